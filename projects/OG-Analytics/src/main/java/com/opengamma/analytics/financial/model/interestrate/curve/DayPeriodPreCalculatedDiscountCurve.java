@@ -72,14 +72,13 @@ public class DayPeriodPreCalculatedDiscountCurve extends DiscountCurve {
     // of years. Therefore, we overallocate the array and go beyond the end
     // of the year range slightly.
 
-    _preCalculatedDiscountFactors = new double[numYears * 366];
-    int numDays = 0;
-    while (numDays < _preCalculatedDiscountFactors.length) {
-      final double xValue = (numDays) / _daysPerYear;
-      final double yValue = super.getDiscountFactor(xValue);
-      _preCalculatedDiscountFactors[numDays] = yValue;
-      numDays++;
+    final double[] xValues = new double[numYears * 366];
+    for (int numDays = 0; numDays < xValues.length; numDays++) {
+      xValues[numDays] = (numDays) / _daysPerYear;
     }
+    final double[] yValues = new double[xValues.length];
+    super.getDiscountFactors(xValues, yValues);
+    _preCalculatedDiscountFactors = yValues;
   }
 
   @Override
@@ -98,6 +97,19 @@ public class DayPeriodPreCalculatedDiscountCurve extends DiscountCurve {
     return _preCalculatedDiscountFactors[nDays];
   }
 
+  @Override
+  public void getDiscountFactors(final double[] t, final double[] discountFactors) {
+    if (_preCalculatedDiscountFactors == null) {
+      super.getDiscountFactors(t, discountFactors);
+      return;
+    }
+    ArgumentChecker.notNull(t, "times");
+    ArgumentChecker.notNull(discountFactors, "discount factors");
+    for (int loopt = 0; loopt < t.length; loopt++) {
+      discountFactors[loopt] = getDiscountFactor(t[loopt]);
+    }
+  }
+
   /**
    * Returns true if the discount factors are pre-calculated.
    * @return True if the discount factors are pre-calculated
@@ -84,6 +84,13 @@ public class DiscountCurve extends YieldAndDiscountCurve {
     return _curve.getYValue(t);
   }
 
+  @Override
+  public void getDiscountFactors(final double[] t, final double[] discountFactors) {
+    ArgumentChecker.notNull(t, "times");
+    ArgumentChecker.notNull(discountFactors, "discount factors");
+    _curve.getYValues(t, discountFactors);
+  }
+
   @Override
   public double getForwardRate(final double t) {
     return -_curve.getDyDx(t) / _curve.getYValue(t);
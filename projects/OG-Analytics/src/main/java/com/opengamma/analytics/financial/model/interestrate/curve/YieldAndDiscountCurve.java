@@ -57,6 +57,19 @@ public abstract class YieldAndDiscountCurve implements InterestRateModel<Double>
     return Math.exp(-t * getInterestRate(t));
   }
 
+  /**
+   * Returns the discount factors at an array of times. Curves on interpolated data compute them together, reusing the interpolation interval of the previous time when the times increase.
+   * @param t The times.
+   * @param discountFactors The array receiving the discount factors, at least as long as the times.
+   */
+  public void getDiscountFactors(final double[] t, final double[] discountFactors) {
+    ArgumentChecker.notNull(t, "times");
+    ArgumentChecker.notNull(discountFactors, "discount factors");
+    for (int loopt = 0; loopt < t.length; loopt++) {
+      discountFactors[loopt] = getDiscountFactor(t[loopt]);
+    }
+  }
+
   /**
    * Gets the forward rate at a given time.
    * @param t The time
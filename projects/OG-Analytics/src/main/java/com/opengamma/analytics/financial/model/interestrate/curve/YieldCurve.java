@@ -70,6 +70,16 @@ public class YieldCurve extends YieldAndDiscountCurve {
     return getCurve().getYValue(t);
   }
 
+  @Override
+  public void getDiscountFactors(final double[] t, final double[] discountFactors) {
+    ArgumentChecker.notNull(t, "times");
+    ArgumentChecker.notNull(discountFactors, "discount factors");
+    _curve.getYValues(t, discountFactors);
+    for (int loopt = 0; loopt < t.length; loopt++) {
+      discountFactors[loopt] = (t[loopt] == 0) ? 1.0 : Math.exp(-t[loopt] * discountFactors[loopt]);
+    }
+  }
+
   @Override
   public double getForwardRate(final double t) {
     final DoublesCurve curve = getCurve();
@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.montecarlo.provider;
 
+import java.util.concurrent.ExecutorService;
+
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.G2ppPiecewiseConstantModel;
 import com.opengamma.analytics.financial.model.interestrate.definition.G2ppPiecewiseConstantParameters;
@@ -16,7 +18,9 @@ import com.opengamma.analytics.financial.provider.description.interestrate.Multi
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionCommons;
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionResult;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.random.BatchRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberGeneratorSubstreams;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
 
@@ -46,10 +50,6 @@ public class G2ppMonteCarloMethod extends MonteCarloMethod {
    * The Hull-White one factor model.
    */
   private static final G2ppPiecewiseConstantModel MODEL = new G2ppPiecewiseConstantModel();
-  /**
-   * The number of paths in one block.
-   */
-  private static final int BLOCK_SIZE = 1000;
 
   /**
    * @param numberGenerator The random number generator.
@@ -59,6 +59,16 @@ public class G2ppMonteCarloMethod extends MonteCarloMethod {
     super(numberGenerator, nbPath);
   }
 
+  /**
+   * @param numberSubstreams The random number substreams, one per block of paths.
+   * @param nbPath The maximum number of paths.
+   * @param executor The executor on which the blocks are run in parallel, null to run them on the calling thread.
+   * @param relativeTolerance The relative standard error at which the simulation stops early, zero to use all the paths.
+   */
+  public G2ppMonteCarloMethod(final RandomNumberGeneratorSubstreams numberSubstreams, final int nbPath, final ExecutorService executor, final double relativeTolerance) {
+    super(numberSubstreams, nbPath, executor, relativeTolerance);
+  }
+
   /**
    * Computes the present value in the G2++ two factors model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
@@ -119,68 +129,115 @@ public class G2ppMonteCarloMethod extends MonteCarloMethod {
     final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
     final CholeskyDecompositionResult cdr = cd.evaluate(new DoubleMatrix2D(cov));
     final double[][] covCD = cdr.getL().getData();
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
     final double[][] impactAmount = decision.getImpactAmount();
-    double pv = 0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(2 * nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[2 * nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < 2 * nbJump; i++) {
-          for (int j = 0; j < 2 * nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
+    final double[] average = simulate(new BlockCalculatorFactory() {
+      @Override
+      public BlockCalculator create() {
+        return new BlockCalculator() {
+          private final PathGenerator _paths = new PathGenerator(pDI, covCD, h, tau2);
+
+          @Override
+          public double[] evaluate(final RandomNumberGenerator numberGenerator, final int nbPath) {
+            final Double[][][] pD = _paths.generate(numberGenerator, nbPath);
+            return new double[] {instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) };
           }
-        }
+        };
       }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, tau2);
-      pv += instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
-    }
-    pv *= pDN / getNbPath(); // Multiply by the numeraire.
+    });
+    final double pv = average[0] * pDN; // Multiply by the numeraire.
     return MultipleCurrencyAmount.of(ccy, pv);
   }
 
   /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
-   * @param nbPath The number of paths.
-   * @return The array of variables.
+   * Generates the discount factors on the simulated paths from the random variables and the model constants. The path buffers are reused from one block to the next, so an instance must only be
+   * used by one thread.
    */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
+  private static final class PathGenerator {
+
+    /**
+     * The initial discount factors. jump/cf
+     */
+    private final double[][] _initDiscountFactor;
+    /**
+     * The Cholesky decomposition of the covariance matrix. jump0+jump1/jump0+jump1
+     */
+    private final double[][] _covCD;
+    /**
+     * The H parameters. factor/jump/cf
+     */
+    private final double[][][] _h;
+    /**
+     * The square of total volatilities. jump/cf
+     */
+    private final double[][] _tau2;
+    /**
+     * The independent random variables. jump0+jump1/path
+     */
+    private double[][] _x;
+    /**
+     * The correlated random variables. jump0+jump1/path
+     */
+    private double[][] _y;
+    /**
+     * The discount factor paths. path/jump/cf
+     */
+    private Double[][][] _pD;
+
+    /**
+     * @param initDiscountFactor The initial discount factors. jump/cf
+     * @param covCD The Cholesky decomposition of the covariance matrix.
+     * @param h The H parameters. factor/jump/cf
+     * @param tau2 The square of total volatilities. jump/cf
+     */
+    public PathGenerator(final double[][] initDiscountFactor, final double[][] covCD, final double[][][] h, final double[][] tau2) {
+      _initDiscountFactor = initDiscountFactor;
+      _covCD = covCD;
+      _h = h;
+      _tau2 = tau2;
     }
-    return result;
-  }
 
-  /**
-   * Construct the discount factors on the simulated paths from the random variables and the model constants.
-   * @param initDiscountFactor The initial discount factors. jump/cf
-   * @param y The correlated random variables. jump0+jump1/path.
-   * @param h The H parameters. factor/jump/cf
-   * @param tau2 The square of total volatilities. jump/cf 
-   * @return The discount factor paths (path/jump/cf).
-   */
-  private Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final double[][][] h, final double[][] tau2) {
-    final int nbJump = y.length / 2;
-    final int nbPath = y[0].length;
-    final Double[][][] pD = new Double[nbPath][nbJump][];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      final int nbCF = h[0][loopjump].length;
+    /**
+     * Construct the discount factors on the simulated paths for a block.
+     * @param numberGenerator The generator for the independent normally distributed variables.
+     * @param nbPath The number of paths.
+     * @return The discount factor paths (path/jump/cf). The array is reused by the next call.
+     */
+    public Double[][][] generate(final RandomNumberGenerator numberGenerator, final int nbPath) {
+      final int nbFactorJump = _covCD.length;
+      final int nbJump = nbFactorJump / 2;
+      if ((_y == null) || (_y[0].length != nbPath)) {
+        _x = new double[nbFactorJump][nbPath];
+        _y = new double[nbFactorJump][nbPath];
+        _pD = new Double[nbPath][nbJump][];
+        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+          final int nbCF = _h[0][loopjump].length;
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            _pD[looppath][loopjump] = new Double[nbCF];
+          }
+        }
+      }
+      BatchRandomNumberGenerator.fill(numberGenerator, _x);
       for (int looppath = 0; looppath < nbPath; looppath++) {
-        pD[looppath][loopjump] = new Double[nbCF];
-        for (int loopcf = 0; loopcf < nbCF; loopcf++) {
-          pD[looppath][loopjump][loopcf] = initDiscountFactor[loopjump][loopcf]
-              * Math.exp(-h[0][loopjump][loopcf] * y[loopjump][looppath] - h[1][loopjump][loopcf] * y[nbJump + loopjump][looppath] - 0.5 * tau2[loopjump][loopcf]);
+        for (int i = 0; i < nbFactorJump; i++) {
+          double y = 0;
+          for (int j = 0; j < nbFactorJump; j++) {
+            y += _x[j][looppath] * _covCD[i][j];
+          }
+          _y[i][looppath] = y;
+        }
+      }
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        final int nbCF = _h[0][loopjump].length;
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          for (int loopcf = 0; loopcf < nbCF; loopcf++) {
+            _pD[looppath][loopjump][loopcf] = _initDiscountFactor[loopjump][loopcf]
+                * Math.exp(-_h[0][loopjump][loopcf] * _y[loopjump][looppath] - _h[1][loopjump][loopcf] * _y[nbJump + loopjump][looppath] - 0.5 * _tau2[loopjump][loopcf]);
+          }
         }
       }
+      return _pD;
     }
-    return pD;
+
   }
 
 }
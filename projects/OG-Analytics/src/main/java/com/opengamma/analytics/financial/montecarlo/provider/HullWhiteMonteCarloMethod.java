@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.HullWhiteOneFactorPiecewiseConstantInterestRateModel;
@@ -25,7 +26,9 @@ import com.opengamma.analytics.financial.provider.sensitivity.multicurve.Multipl
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionCommons;
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionResult;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.random.BatchRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberGeneratorSubstreams;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
 import com.opengamma.util.tuple.DoublesPair;
@@ -56,10 +59,6 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
    * The Hull-White one factor model.
    */
   private static final HullWhiteOneFactorPiecewiseConstantInterestRateModel MODEL = new HullWhiteOneFactorPiecewiseConstantInterestRateModel();
-  /**
-   * The number of paths in one block.
-   */
-  private static final int BLOCK_SIZE = 1000;
 
   /**
    * @param numberGenerator The random number generator.
@@ -69,6 +68,16 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     super(numberGenerator, nbPath);
   }
 
+  /**
+   * @param numberSubstreams The random number substreams, one per block of paths.
+   * @param nbPath The maximum number of paths.
+   * @param executor The executor on which the blocks are run in parallel, null to run them on the calling thread.
+   * @param relativeTolerance The relative standard error at which the simulation stops early, zero to use all the paths.
+   */
+  public HullWhiteMonteCarloMethod(final RandomNumberGeneratorSubstreams numberSubstreams, final int nbPath, final ExecutorService executor, final double relativeTolerance) {
+    super(numberSubstreams, nbPath, executor, relativeTolerance);
+  }
+
   /**
    * Computes the present value in the Hull-White one factor model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
@@ -136,28 +145,22 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
         covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
       }
     }
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
     final double[][] impactAmount = decision.getImpactAmount();
-    double pv = 0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
+    final double[] average = simulate(new BlockCalculatorFactory() {
+      @Override
+      public BlockCalculator create() {
+        return new BlockCalculator() {
+          private final PathGenerator _paths = new PathGenerator(pDI, covCD, h, h2, gamma);
+
+          @Override
+          public double[] evaluate(final RandomNumberGenerator numberGenerator, final int nbPath) {
+            final Double[][][] pD = _paths.generate(numberGenerator, nbPath);
+            return new double[] {instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) };
           }
-        }
+        };
       }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
-      pv += instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
-    }
-    pv *= pDN / getNbPath(); // Multiply by the numeraire.
+    });
+    final double pv = average[0] * pDN; // Multiply by the numeraire.
     return MultipleCurrencyAmount.of(ccy, pv);
   }
 
@@ -228,67 +231,56 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
         covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
       }
     }
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
     final double[][] impactAmount = decision.getImpactAmount();
-    double pv = 0;
-    final double[] pvBlock = new double[nbBlock];
-    // Backward sweep (init)
-    final double pvBar = 1.0;
-    final double[] pvBlockBar = new double[nbBlock];
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      pvBlockBar[loopblock] = pDN / getNbPath() * pvBar;
+    int nbImpact = 0;
+    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+      nbImpact += impactAmount[loopjump].length;
     }
+    final int nbImpactTotal = nbImpact;
+    // The block calculator returns the block price, followed by its derivatives with respect to the impact amounts and to the initial discount factors.
+    final double[] average = simulate(new BlockCalculatorFactory() {
+      @Override
+      public BlockCalculator create() {
+        return new BlockCalculator() {
+          private final PathGenerator _paths = new PathGenerator(pDI, covCD, h, h2, gamma);
+
+          @Override
+          public double[] evaluate(final RandomNumberGenerator numberGenerator, final int nbPath) {
+            final Double[][][] pD = _paths.generate(numberGenerator, nbPath);
+            final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
+            final double[] result = new double[1 + 2 * nbImpactTotal];
+            result[0] = instrument.accept(MCDC, mcdDB);
+            // Backward sweep (in block)
+            int loopresult = 1;
+            for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+              for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+                result[loopresult++] = mcdDB.getImpactAmountDerivative()[loopjump][loopimp];
+              }
+            }
+            _paths.adjointInitialDiscountFactor(mcdDB.getPathDiscountingFactorDerivative(), result, loopresult);
+            return result;
+          }
+        };
+      }
+    });
+    final double pvBar = 1.0;
+    final double pv = average[0] * pDN; // Multiply by the numeraire.
+    // Backward sweep (blocks)
     final double[][] impactAmountBar = new double[nbJump][];
+    final double[][] pDIBar = new double[nbJump][];
+    int loopaverage = 1;
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       impactAmountBar[loopjump] = new double[impactAmount[loopjump].length];
+      for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+        impactAmountBar[loopjump][loopimp] = average[loopaverage++] * pDN * pvBar;
+      }
     }
-    // Forward sweep (end) and backward sweep (main)
-    final double[][] pDIBar = new double[nbJump][];
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       pDIBar[loopjump] = new double[impactAmount[loopjump].length];
-    }
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
-      }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
-      final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
-      pvBlock[loopblock] = instrument.accept(MCDC, mcdDB) * nbPath2[loopblock];
-      pv += pvBlock[loopblock];
-      // Backward sweep (in block loop)
-      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-        for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          impactAmountBar[loopjump][loopimp] += mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
-        }
-      }
-      final Double[][][] pDBar = new Double[nbPath2[loopblock]][nbJump][];
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-          pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
-          for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-            pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
-          }
-        }
-      }
-      final double[][] pDIBarTemp = pathGeneratorDiscountAdjointIDF(pDI, y, h, h2, gamma, pDBar);
-      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-        for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          pDIBar[loopjump][loopimp] += pDIBarTemp[loopjump][loopimp];
-        }
+      for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+        pDIBar[loopjump][loopimp] = average[loopaverage++] * pDN * pvBar;
       }
     }
-    pv *= pDN / getNbPath(); // Multiply by the numeraire.
     // Backward sweep (end)
     double pDNBar = pv / pDN * pvBar;
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
@@ -321,79 +313,133 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
   }
 
   /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
-   * @param nbPath The number of paths.
-   * @return The array of variables.
+   * Generates the discount factors on the simulated paths from the random variables and the model constants. The path buffers are reused from one block to the next, so an instance must only be
+   * used by one thread.
    */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
+  private static final class PathGenerator {
+
+    /**
+     * The initial discount factors. jump/cf
+     */
+    private final double[][] _initDiscountFactor;
+    /**
+     * The Cholesky decomposition of the covariance matrix. jump/jump
+     */
+    private final double[][] _covCD;
+    /**
+     * The H parameters. jump/cf
+     */
+    private final double[][] _h;
+    /**
+     * The H^2 parameters multiplied by gamma. jump/cf
+     */
+    private final double[][] _h2gamma;
+    /**
+     * The independent random variables. jump/path
+     */
+    private double[][] _x;
+    /**
+     * The correlated random variables. jump/path
+     */
+    private double[][] _y;
+    /**
+     * The ratio of the simulated to the initial discount factors. jump/cf/path
+     */
+    private double[][][] _ratio;
+    /**
+     * The discount factor paths. path/jump/cf
+     */
+    private Double[][][] _pD;
+
+    /**
+     * @param initDiscountFactor The initial discount factors.
+     * @param covCD The Cholesky decomposition of the covariance matrix.
+     * @param h The H parameters.
+     * @param h2 The H^2 parameters.
+     * @param gamma The gamma parameters.
+     */
+    public PathGenerator(final double[][] initDiscountFactor, final double[][] covCD, final double[][] h, final double[][] h2, final double[] gamma) {
+      final int nbJump = gamma.length;
+      _initDiscountFactor = initDiscountFactor;
+      _covCD = covCD;
+      _h = h;
+      _h2gamma = new double[nbJump][];
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        final int nbCF = h[loopjump].length;
+        _h2gamma[loopjump] = new double[nbCF];
+        for (int loopcf = 0; loopcf < nbCF; loopcf++) {
+          _h2gamma[loopjump][loopcf] = h2[loopjump][loopcf] * gamma[loopjump];
+        }
+      }
     }
-    return result;
-  }
 
-  /**
-   * Construct the discount factors on the simulated paths from the random variables and the model constants.
-   * @param initDiscountFactor The initial discount factors.
-   * @param y The correlated random variables. jump/path
-   * @param h The H parameters. jump/cf
-   * @param h2 The H^2 parameters.
-   * @param gamma The gamma parameters.
-   * @return The discount factor paths (path/jump/cf).
-   */
-  private Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final double[][] h, final double[][] h2, final double[] gamma) {
-    final int nbJump = y.length;
-    final int nbPath = y[0].length;
-    final Double[][][] pD = new Double[nbPath][nbJump][];
-    double[] h2gamma;
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      final int nbCF = h[loopjump].length;
-      h2gamma = new double[nbCF];
-      for (int loopcf = 0; loopcf < nbCF; loopcf++) {
-        h2gamma[loopcf] = h2[loopjump][loopcf] * gamma[loopjump];
+    /**
+     * Construct the discount factors on the simulated paths for a block.
+     * @param numberGenerator The generator for the independent normally distributed variables.
+     * @param nbPath The number of paths.
+     * @return The discount factor paths (path/jump/cf). The array is reused by the next call.
+     */
+    public Double[][][] generate(final RandomNumberGenerator numberGenerator, final int nbPath) {
+      final int nbJump = _h.length;
+      if ((_y == null) || (_y[0].length != nbPath)) {
+        _x = new double[nbJump][nbPath];
+        _y = new double[nbJump][nbPath];
+        _ratio = new double[nbJump][][];
+        _pD = new Double[nbPath][nbJump][];
+        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+          final int nbCF = _h[loopjump].length;
+          _ratio[loopjump] = new double[nbCF][nbPath];
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            _pD[looppath][loopjump] = new Double[nbCF];
+          }
+        }
       }
+      BatchRandomNumberGenerator.fill(numberGenerator, _x);
       for (int looppath = 0; looppath < nbPath; looppath++) {
-        pD[looppath][loopjump] = new Double[nbCF];
+        for (int i = 0; i < nbJump; i++) {
+          double y = 0;
+          for (int j = 0; j < nbJump; j++) {
+            y += _x[j][looppath] * _covCD[i][j];
+          }
+          _y[i][looppath] = y;
+        }
+      }
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        final int nbCF = _h[loopjump].length;
         for (int loopcf = 0; loopcf < nbCF; loopcf++) {
-          pD[looppath][loopjump][loopcf] = initDiscountFactor[loopjump][loopcf] * Math.exp(-h[loopjump][loopcf] * y[loopjump][looppath] - h2gamma[loopcf]);
+          final double[] ratio = _ratio[loopjump][loopcf];
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            ratio[looppath] = Math.exp(-_h[loopjump][loopcf] * _y[loopjump][looppath] - _h2gamma[loopjump][loopcf]);
+            _pD[looppath][loopjump][loopcf] = _initDiscountFactor[loopjump][loopcf] * ratio[looppath];
+          }
         }
       }
+      return _pD;
     }
-    return pD;
-  }
 
-  /**
-   * Computes the initial discount factors adjoint values with respect to the initDiscountFactor.
-   * @param initDiscountFactor The initial discount factors.
-   * @param y The correlated random variables.
-   * @param h The H parameters.
-   * @param h2 The H^2 parameters.
-   * @param gamma The gamma parameters.
-   * @param pDBar The simulated discount factor adjoints (path/jump/cf).
-   * @return The initial discount factor adjoints (jump/cf).
-   */
-  private double[][] pathGeneratorDiscountAdjointIDF(final double[][] initDiscountFactor, final double[][] y, final double[][] h, final double[][] h2, final double[] gamma, final Double[][][] pDBar) {
-    final int nbJump = y.length;
-    final int nbPath = y[0].length;
-    double[] h2gamma;
-    final double[][] initDiscountFactorBar = new double[nbJump][];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      final int nbCF = h[loopjump].length;
-      h2gamma = new double[nbCF];
-      for (int loopcf = 0; loopcf < nbCF; loopcf++) {
-        h2gamma[loopcf] = h2[loopjump][loopcf] * gamma[loopjump];
-      }
-      // Backward sweep
-      initDiscountFactorBar[loopjump] = new double[nbCF];
-      for (int looppath = 0; looppath < nbPath; looppath++) {
+    /**
+     * Computes the adjoint values of the initial discount factors for the last generated block.
+     * @param pDBar The simulated discount factor adjoints (path/jump/cf).
+     * @param initDiscountFactorBar The array in which the initial discount factor adjoints are stored, jump/cf flattened.
+     * @param offset The position of the first adjoint in initDiscountFactorBar.
+     */
+    public void adjointInitialDiscountFactor(final Double[][][] pDBar, final double[] initDiscountFactorBar, final int offset) {
+      final int nbJump = _h.length;
+      final int nbPath = _y[0].length;
+      int loopbar = offset;
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        final int nbCF = _h[loopjump].length;
         for (int loopcf = 0; loopcf < nbCF; loopcf++) {
-          initDiscountFactorBar[loopjump][loopcf] += Math.exp(-h[loopjump][loopcf] * y[loopjump][looppath] - h2gamma[loopcf]) * pDBar[looppath][loopjump][loopcf];
+          final double[] ratio = _ratio[loopjump][loopcf];
+          double bar = 0;
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            bar += ratio[looppath] * pDBar[looppath][loopjump][loopcf];
+          }
+          initDiscountFactorBar[loopbar++] = bar;
         }
       }
     }
-    return initDiscountFactorBar;
+
   }
 
   //  /**
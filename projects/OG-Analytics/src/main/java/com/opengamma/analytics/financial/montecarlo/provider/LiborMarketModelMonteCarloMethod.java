@@ -6,6 +6,7 @@
 package com.opengamma.analytics.financial.montecarlo.provider;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.definition.LiborMarketModelDisplacedDiffusionParameters;
@@ -16,7 +17,9 @@ import com.opengamma.analytics.financial.provider.description.interestrate.Multi
 import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
 import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.random.BatchRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberGeneratorSubstreams;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
 
@@ -38,10 +41,6 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
    * The calculator from discount factors (calculate the price from simulated discount factors and the reference amounts).
    */
   private static final MonteCarloIborRateCalculator MCC = MonteCarloIborRateCalculator.getInstance();
-  /**
-   * The number of paths in one block.
-   */
-  private static final int BLOCK_SIZE = 1000;
   /**
    * The default maximum length of a jump in the path generation.
    */
@@ -68,6 +67,20 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
     _maxJump = maxJump;
   }
 
+  /**
+   * Constructor.
+   * @param numberSubstreams The random number substreams, one per block of paths. Generate Normally distributed numbers.
+   * @param nbPath The maximum number of paths.
+   * @param maxJump The maximum length of a jump in the path generation.
+   * @param executor The executor on which the blocks are run in parallel, null to run them on the calling thread.
+   * @param relativeTolerance The relative standard error at which the simulation stops early, zero to use all the paths.
+   */
+  public LiborMarketModelMonteCarloMethod(final RandomNumberGeneratorSubstreams numberSubstreams, final int nbPath, final double maxJump, final ExecutorService executor,
+      final double relativeTolerance) {
+    super(numberSubstreams, nbPath, executor, relativeTolerance);
+    _maxJump = maxJump;
+  }
+
   public MultipleCurrencyAmount presentValue(final InstrumentDerivative instrument, final Currency ccy, final LiborMarketModelDisplacedDiffusionProvider lmmData) {
     final MulticurveProviderInterface multicurves = lmmData.getMulticurveProvider();
     final LiborMarketModelDisplacedDiffusionParameters parameters = lmmData.getLMMParameters();
@@ -86,25 +99,21 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
       initL[loopper] = (dfL[loopper] / dfL[loopper + 1] - 1.0) / deltaLMM[loopper];
     }
 
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
+    final double[] average = simulate(new BlockCalculatorFactory() {
+      @Override
+      public BlockCalculator create() {
+        return new BlockCalculator() {
+          private final PathGenerator _paths = new PathGenerator(decision.getDecisionTime(), initL, parameters, _maxJump);
 
-    double price = 0.0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] initLPath = new double[nbPeriodLMM][nbPath2[loopblock]];
-      for (int loopper = 0; loopper < nbPeriodLMM; loopper++) {
-        for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-          initLPath[loopper][looppath] = initL[loopper];
-        }
+          @Override
+          public double[] evaluate(final RandomNumberGenerator numberGenerator, final int nbPath) {
+            final double[][][] pathIbor = _paths.generate(numberGenerator, nbPath);
+            return new double[] {instrument.accept(MCC, new MonteCarloIborRateDataBundle(pathIbor, deltaLMM, decision.getImpactAmount(), impactIndex)) / nbPath };
+          }
+        };
       }
-      final double[][][] pathIbor = pathgeneratorlibor(decision.getDecisionTime(), initLPath, parameters);
-      price += instrument.accept(MCC, new MonteCarloIborRateDataBundle(pathIbor, deltaLMM, decision.getImpactAmount(), impactIndex));
-    }
-    price *= multicurves.getDiscountFactor(ccy, parameters.getIborTime()[parameters.getIborTime().length - 1]) / getNbPath();
+    });
+    final double price = average[0] * multicurves.getDiscountFactor(ccy, parameters.getIborTime()[parameters.getIborTime().length - 1]);
     return MultipleCurrencyAmount.of(ccy, price);
   }
 
@@ -120,152 +129,197 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
   }
 
   /**
-   * Create one step in the LMM diffusion. The step is done through several jump times. The diffusion is approximated with a predictor-corrector approach.
-   * @param jumpTime The jump times.
-   * @param initIbor Rate at the start of the period. Size: nbPeriodLMM x nbPath.
-   * @return The Ibor rates at the end of the jump period. Size: nbPeriodLMM x nbPath.
+   * Generates the Ibor rates on the simulated paths. The path independent quantities are computed once and the path buffers are reused from one block to the next, so an instance must only be used
+   * by one thread.
    */
-  private double[][] stepPC(final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
-    final double amr = lmm.getMeanReversion();
-    final double[] iborTime = lmm.getIborTime();
-    final double[] almm = lmm.getDisplacement();
-    final double[] deltalmm = lmm.getAccrualFactor();
-    final DoubleMatrix2D gammaLMM = new DoubleMatrix2D(lmm.getVolatility());
-    final MatrixAlgebra algebra = new CommonsMatrixAlgebra();
-    final DoubleMatrix2D s = (DoubleMatrix2D) algebra.multiply(gammaLMM, algebra.getTranspose(gammaLMM));
-    final int nbJump = jumpTime.length - 1;
-    final int nbPath = initIbor[0].length;
-    final int nbPeriodLMM = lmm.getNbPeriod();
-    final int nbFactorLMM = lmm.getNbFactor();
-    final double[] dt = new double[nbJump];
-    final double[] alpha = new double[nbJump];
-    final double[] alpha2 = new double[nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      dt[loopjump] = jumpTime[loopjump + 1] - jumpTime[loopjump];
-      alpha[loopjump] = Math.exp(amr * jumpTime[loopjump + 1]);
-      alpha2[loopjump] = alpha[loopjump] * alpha[loopjump];
-    }
+  private static final class PathGenerator {
+
+    private final double[] _initIbor;
+    private final double _meanReversion;
+    private final double[] _iborTime;
+    private final double[] _displacement;
+    private final double[] _accrualFactor;
+    private final double _timeTolerance;
+    /**
+     * The volatilities. period/factor
+     */
+    private final double[][] _gamma;
+    /**
+     * The product of the volatility matrix by its transpose. period/period
+     */
+    private final double[][] _s;
+    /**
+     * The times of the steps between each pair of decision dates. jump/step
+     */
+    private final double[][] _jumpTime;
+    private final double[] _dI;
+    private final double[] _dr1;
+    private final int _nbFactor;
+    /**
+     * The independent random variables for all the steps of a path, drawn at once. step+factor/path
+     */
+    private double[][] _dw;
+    private double[][] _f;
+    private double[][] _cc;
+    private double[][] _coefP;
+    private double[][] _coefC;
+    private double[][][] _result;
 
-    final double[][] f = initIbor;
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      final double sqrtDt = Math.sqrt(dt[loopjump]);
-      int index = Arrays.binarySearch(iborTime, jumpTime[loopjump + 1] - lmm.getTimeTolerance());
-      index = -index - 1; // The index from which the rate should be evolved.
-      final int nI = nbPeriodLMM - index;
-      final double[] dI = new double[nI];
-      for (int loopn = 0; loopn < nI; loopn++) {
-        dI[loopn] = 1.0 / deltalmm[index + loopn];
+    /**
+     * @param jumpTime The time of the mandatory jumps.
+     * @param initIbor The Ibor rates at the start. nbPeriodLMM
+     * @param lmm The LMM parameters.
+     * @param maxJump The maximum length of a jump in the path generation.
+     */
+    public PathGenerator(final double[] jumpTime, final double[] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm, final double maxJump) {
+      _initIbor = initIbor;
+      _meanReversion = lmm.getMeanReversion();
+      _iborTime = lmm.getIborTime();
+      _displacement = lmm.getDisplacement();
+      _accrualFactor = lmm.getAccrualFactor();
+      _timeTolerance = lmm.getTimeTolerance();
+      final DoubleMatrix2D gammaLMM = new DoubleMatrix2D(lmm.getVolatility());
+      final MatrixAlgebra algebra = new CommonsMatrixAlgebra();
+      _gamma = gammaLMM.getData();
+      _s = ((DoubleMatrix2D) algebra.multiply(gammaLMM, algebra.getTranspose(gammaLMM))).getData();
+      final int nbJump = jumpTime.length;
+      final double[] jumpTimeA = new double[nbJump + 1];
+      jumpTimeA[0] = 0;
+      System.arraycopy(jumpTime, 0, jumpTimeA, 1, nbJump);
+      _jumpTime = new double[nbJump][];
+      // TODO: add intermediary jump dates if necessary
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        // Intermediary jumps
+        if (jumpTimeA[loopjump + 1] - jumpTimeA[loopjump] < maxJump) {
+          _jumpTime[loopjump] = new double[] {jumpTimeA[loopjump], jumpTimeA[loopjump + 1]};
+        } else {
+          final double jump = jumpTimeA[loopjump + 1] - jumpTimeA[loopjump];
+          final int nbJumpIn = (int) Math.ceil(jump / maxJump);
+          _jumpTime[loopjump] = new double[nbJumpIn + 1];
+          _jumpTime[loopjump][0] = jumpTimeA[loopjump];
+          for (int loopJumpIn = 1; loopJumpIn <= nbJumpIn; loopJumpIn++) {
+            _jumpTime[loopjump][loopJumpIn] = jumpTimeA[loopjump] + loopJumpIn * jump / nbJumpIn;
+          }
+        }
       }
-      final double[][] salpha2Array = new double[nI][nI];
-      for (int loopn1 = 0; loopn1 < nI; loopn1++) {
-        for (int loopn2 = 0; loopn2 < nI; loopn2++) {
-          salpha2Array[loopn1][loopn2] = s.getEntry(index + loopn1, index + loopn2) * alpha2[loopjump];
+      final int nbPeriod = initIbor.length;
+      _dI = new double[nbPeriod];
+      _dr1 = new double[nbPeriod];
+      _nbFactor = lmm.getNbFactor();
+    }
+
+    /**
+     * Generates the paths for a block.
+     * @param numberGenerator The generator for the independent normally distributed variables.
+     * @param nbPath The number of paths.
+     * @return The paths. Size: nbJump x nbPeriodLMM x nbPath. The array is reused by the next call.
+     */
+    public double[][][] generate(final RandomNumberGenerator numberGenerator, final int nbPath) {
+      final int nbPeriod = _initIbor.length;
+      final int nbJump = _jumpTime.length;
+      if ((_f == null) || (_f[0].length != nbPath)) {
+        _f = new double[nbPeriod][nbPath];
+        _cc = new double[nbPeriod][nbPath];
+        _coefP = new double[nbPath][nbPeriod];
+        _coefC = new double[nbPeriod][nbPath];
+        _result = new double[nbJump][nbPeriod][nbPath];
+        int nbStep = 0;
+        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+          nbStep += _jumpTime[loopjump].length - 1;
         }
+        _dw = new double[nbStep * _nbFactor][nbPath];
       }
-      final DoubleMatrix2D salpha2 = new DoubleMatrix2D(salpha2Array);
-      // Random seed
-      final double[][] dw = getNormalArray(nbFactorLMM, nbPath);
-      // Common figures
-      final double[] dr1 = new double[nI];
-      for (int loopn = 0; loopn < nI; loopn++) {
-        dr1[loopn] = -salpha2.getEntry(loopn, loopn) * dt[loopjump] / 2.0;
+      BatchRandomNumberGenerator.fill(numberGenerator, _dw);
+      int offset = 0;
+      for (int loopper = 0; loopper < nbPeriod; loopper++) {
+        Arrays.fill(_f[loopper], _initIbor[loopper]);
       }
-      final double[][] cc = new double[nI][nbPath];
-      for (int loopn = 0; loopn < nI; loopn++) {
-        for (int looppath = 0; looppath < nbPath; looppath++) {
-          for (int loopfact = 0; loopfact < nbFactorLMM; loopfact++) {
-            cc[loopn][looppath] += gammaLMM.getEntry(index + loopn, loopfact) * dw[loopfact][looppath] * sqrtDt * alpha[loopjump];
-          }
-          cc[loopn][looppath] += dr1[loopn];
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        stepPC(_jumpTime[loopjump], offset, nbPath);
+        offset += (_jumpTime[loopjump].length - 1) * _nbFactor;
+        for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
+          System.arraycopy(_f[loop1], 0, _result[loopjump][loop1], 0, nbPath);
         }
       }
-      // Unique step: predictor and corrector
-      final double[][] mP = new double[nI][nbPath];
-      final double[][] mC = new double[nI][nbPath];
-      final double[][] coefP = new double[nbPath][nI - 1];
-      final double[][] coefC = new double[nI][nbPath];
-      for (int looppath = 0; looppath < nbPath; looppath++) {
-        for (int loopn = 0; loopn < nI - 1; loopn++) {
-          coefP[looppath][loopn] = (f[index + loopn + 1][looppath] + almm[index + loopn + 1]) / (f[index + loopn + 1][looppath] + dI[loopn + 1]);
+      return _result;
+    }
+
+    /**
+     * Create one step in the LMM diffusion. The step is done through several jump times. The diffusion is approximated with a predictor-corrector approach.
+     * The rates at the start of the period are updated in place to the rates at the end of the period.
+     * @param jumpTime The jump times.
+     * @param offset The row of the independent normally distributed variables for the first jump.
+     * @param nbPath The number of paths.
+     */
+    private void stepPC(final double[] jumpTime, final int offset, final int nbPath) {
+      final int nbJump = jumpTime.length - 1;
+      final int nbPeriodLMM = _initIbor.length;
+      final int nbFactorLMM = _nbFactor;
+      final double[][] f = _f;
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        final double dt = jumpTime[loopjump + 1] - jumpTime[loopjump];
+        final double alpha = Math.exp(_meanReversion * jumpTime[loopjump + 1]);
+        final double alpha2 = alpha * alpha;
+        final double sqrtDt = Math.sqrt(dt);
+        int index = Arrays.binarySearch(_iborTime, jumpTime[loopjump + 1] - _timeTolerance);
+        index = -index - 1; // The index from which the rate should be evolved.
+        final int nI = nbPeriodLMM - index;
+        for (int loopn = 0; loopn < nI; loopn++) {
+          _dI[loopn] = 1.0 / _accrualFactor[index + loopn];
         }
-      }
-      for (int loopdrift = nI - 1; loopdrift >= 0; loopdrift--) {
-        if (loopdrift < nI - 1) {
+        final int dwOffset = offset + loopjump * nbFactorLMM;
+        // Common figures
+        for (int loopn = 0; loopn < nI; loopn++) {
+          _dr1[loopn] = -(_s[index + loopn][index + loopn] * alpha2) * dt / 2.0;
+        }
+        for (int loopn = 0; loopn < nI; loopn++) {
+          final double[] gamma = _gamma[index + loopn];
+          final double[] cc = _cc[loopn];
           for (int looppath = 0; looppath < nbPath; looppath++) {
-            coefC[loopdrift + 1][looppath] = (f[index + loopdrift + 1][looppath] + almm[index + loopdrift + 1]) / (f[index + loopdrift + 1][looppath] + dI[loopdrift + 1]);
-            for (int loop = loopdrift + 1; loop < nI; loop++) {
-              mP[loopdrift][looppath] += salpha2.getEntry(loop, loopdrift) * coefP[looppath][loop - 1];
-              mC[loopdrift][looppath] += salpha2.getEntry(loop, loopdrift) * coefC[loop][looppath];
+            double c = 0;
+            for (int loopfact = 0; loopfact < nbFactorLMM; loopfact++) {
+              c += gamma[loopfact] * _dw[dwOffset + loopfact][looppath] * sqrtDt * alpha;
             }
+            cc[looppath] = c + _dr1[loopn];
           }
-          for (int looppath = 0; looppath < nbPath; looppath++) {
-            f[loopdrift + index][looppath] = (f[loopdrift + index][looppath] + almm[index + loopdrift])
-                * Math.exp(-(mP[loopdrift][looppath] + mC[loopdrift][looppath]) * dt[loopjump] / 2.0 + cc[loopdrift][looppath]) - almm[index + loopdrift];
-          }
-        } else {
-          for (int looppath = 0; looppath < nbPath; looppath++) {
-            f[loopdrift + index][looppath] = (f[loopdrift + index][looppath] + almm[index + loopdrift]) * Math.exp(cc[loopdrift][looppath]) - almm[index + loopdrift];
+        }
+        // Unique step: predictor and corrector
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          final double[] coefP = _coefP[looppath];
+          for (int loopn = 0; loopn < nI - 1; loopn++) {
+            coefP[loopn] = (f[index + loopn + 1][looppath] + _displacement[index + loopn + 1]) / (f[index + loopn + 1][looppath] + _dI[loopn + 1]);
           }
         }
-      }
-    }
-    return f;
-  }
-
-  /**
-   *
-   * @param jumpTime The time of the mandatory jumps.
-   * @param initIbor The Ibor rates at the start. nbPeriodLMM x nbPath
-   * @param lmm The LMM parameters.
-   * @return The paths. Size: nbJump x nbPeriodLMM x nbPath
-   */
-  private double[][][] pathgeneratorlibor(final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
-    final int nbPeriod = initIbor.length;
-    final int nbPath = initIbor[0].length;
-    final int nbJump = jumpTime.length;
-    double[][] initTmp = new double[nbPeriod][nbPath];
-    for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
-      System.arraycopy(initIbor[loop1], 0, initTmp[loop1], 0, nbPath);
-    }
-    final double[] jumpTimeA = new double[nbJump + 1];
-    jumpTimeA[0] = 0;
-    System.arraycopy(jumpTime, 0, jumpTimeA, 1, nbJump);
-    final double[][][] result = new double[nbJump][nbPeriod][nbPath];
-    // TODO: add intermediary jump dates if necessary
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      // Intermediary jumps
-      double[] jumpIn;
-      if (jumpTimeA[loopjump + 1] - jumpTimeA[loopjump] < _maxJump) {
-        jumpIn = new double[] {jumpTimeA[loopjump], jumpTimeA[loopjump + 1]};
-      } else {
-        final double jump = jumpTimeA[loopjump + 1] - jumpTimeA[loopjump];
-        final int nbJumpIn = (int) Math.ceil(jump / _maxJump);
-        jumpIn = new double[nbJumpIn + 1];
-        jumpIn[0] = jumpTimeA[loopjump];
-        for (int loopJumpIn = 1; loopJumpIn <= nbJumpIn; loopJumpIn++) {
-          jumpIn[loopJumpIn] = jumpTimeA[loopjump] + loopJumpIn * jump / nbJumpIn;
+        for (int loopdrift = nI - 1; loopdrift >= 0; loopdrift--) {
+          final double[] fDrift = f[loopdrift + index];
+          final double displacement = _displacement[index + loopdrift];
+          final double[] cc = _cc[loopdrift];
+          if (loopdrift < nI - 1) {
+            final double[] coefCDrift = _coefC[loopdrift + 1];
+            final double[] fNext = f[index + loopdrift + 1];
+            final double displacementNext = _displacement[index + loopdrift + 1];
+            final double dINext = _dI[loopdrift + 1];
+            for (int looppath = 0; looppath < nbPath; looppath++) {
+              // The corrector uses the rates already evolved in this step
+              coefCDrift[looppath] = (fNext[looppath] + displacementNext) / (fNext[looppath] + dINext);
+              double mP = 0;
+              double mC = 0;
+              for (int loop = loopdrift + 1; loop < nI; loop++) {
+                final double salpha2 = _s[index + loop][index + loopdrift] * alpha2;
+                mP += salpha2 * _coefP[looppath][loop - 1];
+                mC += salpha2 * _coefC[loop][looppath];
+              }
+              fDrift[looppath] = (fDrift[looppath] + displacement) * Math.exp(-(mP + mC) * dt / 2.0 + cc[looppath]) - displacement;
+            }
+          } else {
+            for (int looppath = 0; looppath < nbPath; looppath++) {
+              fDrift[looppath] = (fDrift[looppath] + displacement) * Math.exp(cc[looppath]) - displacement;
+            }
+          }
         }
       }
-      initTmp = stepPC(jumpIn, initTmp, lmm);
-      for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
-        System.arraycopy(initTmp[loop1], 0, result[loopjump][loop1], 0, nbPath);
-      }
     }
-    return result;
-  }
 
-  /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
-   * @param nbPath The number of paths.
-   * @return The array of variables.
-   */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
-    }
-    return result;
   }
 
 }
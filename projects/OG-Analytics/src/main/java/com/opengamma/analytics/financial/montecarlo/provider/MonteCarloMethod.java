@@ -1,25 +1,61 @@
 /**
  * Copyright (C) 2011 - present by OpenGamma Inc. and the OpenGamma group of companies
- * 
+ *
  * Please see distribution for license.
  */
 package com.opengamma.analytics.financial.montecarlo.provider;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.RandomNumberGeneratorSubstreams;
+import com.opengamma.analytics.math.random.SobolNormalRandomNumberGeneratorSubstreams;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Generic Monte-Carlo pricing method.
+ * <p>
+ * The paths are simulated in blocks of at most BLOCK_SIZE paths. A method constructed with a single random number generator runs the blocks one after the other on the calling thread, drawing from
+ * that generator. A method constructed with random number substreams draws the numbers for block i from substream i, so the result does not depend on how the blocks are shared between threads; the
+ * blocks can then be run in parallel on an executor and the simulation can stop once the standard error of the price, estimated from the block averages, is small enough.
  */
 public abstract class MonteCarloMethod {
 
+  /**
+   * The number of paths in one block. Substreams of a low-discrepancy sequence must hold this many points each, see {@link SobolNormalRandomNumberGeneratorSubstreams}.
+   */
+  public static final int BLOCK_SIZE = 1000;
+  /**
+   * The minimum number of blocks simulated before the convergence test is applied.
+   */
+  private static final int MIN_BLOCK_CONVERGENCE = 8;
+
   /**
    * The random number generator.
    */
   private final RandomNumberGenerator _numberGenerator;
+  /**
+   * The random number substreams, one per block.
+   */
+  private final RandomNumberGeneratorSubstreams _numberSubstreams;
   /**
    * The number of paths.
    */
   private final int _nbPath;
+  /**
+   * The executor on which the blocks are run.
+   */
+  private final ExecutorService _executor;
+  /**
+   * The relative standard error below which the simulation stops.
+   */
+  private final double _relativeTolerance;
 
   /**
    * Constructor.
@@ -28,17 +64,52 @@ public abstract class MonteCarloMethod {
    */
   public MonteCarloMethod(RandomNumberGenerator numberGenerator, int nbPath) {
     _numberGenerator = numberGenerator;
+    _numberSubstreams = null;
+    _nbPath = nbPath;
+    _executor = null;
+    _relativeTolerance = 0.0;
+  }
+
+  /**
+   * Constructor for a simulation drawing each block from its own substream.
+   * @param numberSubstreams The random number substreams. The numbers for the block i are drawn from the substream i.
+   * @param nbPath The maximum number of paths.
+   * @param executor The executor on which the blocks are run in parallel. If null, the blocks are run on the calling thread.
+   * @param relativeTolerance The standard error of the price, relative to the price, at which the simulation stops before nbPath paths. Zero to always use nbPath paths. The standard error is
+   * estimated from the block averages as if they were independent, so it is not a valid estimate for the blocks of an unrandomised low-discrepancy sequence, which should use zero.
+   */
+  public MonteCarloMethod(RandomNumberGeneratorSubstreams numberSubstreams, int nbPath, ExecutorService executor, double relativeTolerance) {
+    ArgumentChecker.notNull(numberSubstreams, "numberSubstreams");
+    ArgumentChecker.notNegativeOrZero(nbPath, "nbPath");
+    ArgumentChecker.notNegative(relativeTolerance, "relativeTolerance");
+    if (numberSubstreams instanceof SobolNormalRandomNumberGeneratorSubstreams) {
+      // Block i takes its BLOCK_SIZE points from substream i, so any other substream size would overlap or skip points of the sequence
+      final int nbPoint = ((SobolNormalRandomNumberGeneratorSubstreams) numberSubstreams).getPointsPerSubstream();
+      ArgumentChecker.isTrue(nbPoint == BLOCK_SIZE, "Sobol substreams of {} points do not match the block size {}", nbPoint, BLOCK_SIZE);
+    }
+    _numberGenerator = null;
+    _numberSubstreams = numberSubstreams;
     _nbPath = nbPath;
+    _executor = executor;
+    _relativeTolerance = relativeTolerance;
   }
 
   /**
    * Gets the _numberGenerator field.
-   * @return the _numberGenerator
+   * @return the _numberGenerator, null if the method uses substreams
    */
   public RandomNumberGenerator getNumberGenerator() {
     return _numberGenerator;
   }
 
+  /**
+   * Gets the _numberSubstreams field.
+   * @return the _numberSubstreams, null if the method uses a single generator
+   */
+  public RandomNumberGeneratorSubstreams getNumberSubstreams() {
+    return _numberSubstreams;
+  }
+
   /**
    * Gets the _nbPath field.
    * @return the _nbPath
@@ -47,4 +118,160 @@ public abstract class MonteCarloMethod {
     return _nbPath;
   }
 
+  /**
+   * Gets the _executor field.
+   * @return the _executor, null if the blocks are run on the calling thread
+   */
+  public ExecutorService getExecutor() {
+    return _executor;
+  }
+
+  /**
+   * Gets the _relativeTolerance field.
+   * @return the _relativeTolerance, zero if the simulation always uses all the paths
+   */
+  public double getRelativeTolerance() {
+    return _relativeTolerance;
+  }
+
+  /**
+   * The simulation of one block of paths. An instance holds the path buffers, reused from one block to the next, and is only used by one thread.
+   */
+  protected interface BlockCalculator {
+
+    /**
+     * Simulates a block of paths.
+     * @param numberGenerator The generator from which the random numbers for the block are drawn.
+     * @param nbPath The number of paths in the block.
+     * @return The averages over the paths of the simulated quantities. The first one is the price, used for the convergence test.
+     */
+    double[] evaluate(RandomNumberGenerator numberGenerator, int nbPath);
+
+  }
+
+  /**
+   * Creates the block calculators, one for each thread taking part in a simulation.
+   */
+  protected interface BlockCalculatorFactory {
+
+    /**
+     * Creates a block calculator.
+     * @return The calculator.
+     */
+    BlockCalculator create();
+
+  }
+
+  /**
+   * Runs the simulation.
+   * @param calculatorFactory The factory for the block calculators.
+   * @return The averages over all the simulated paths of the quantities returned by the block calculator.
+   */
+  protected double[] simulate(final BlockCalculatorFactory calculatorFactory) {
+    final Simulation simulation = new Simulation(calculatorFactory);
+    final int nbTask = (_executor == null) ? 1 : Math.min(simulation._nbBlock, Runtime.getRuntime().availableProcessors());
+    final List<Future<?>> tasks = new ArrayList<>(nbTask - 1);
+    for (int looptask = 1; looptask < nbTask; looptask++) {
+      tasks.add(_executor.submit(simulation));
+    }
+    // The calling thread takes part, so the simulation completes even if the executor is saturated
+    simulation.run();
+    try {
+      for (final Future<?> task : tasks) {
+        task.get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted during Monte Carlo simulation", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new OpenGammaRuntimeException("Error during Monte Carlo simulation", e.getCause());
+    }
+    return simulation.getAverage();
+  }
+
+  /**
+   * The state of one simulation, shared by the threads running it. The blocks are taken in order; the convergence test is applied to the blocks completed without gaps from the first one, so the
+   * blocks used, and the result, do not depend on the number of threads.
+   */
+  private final class Simulation implements Runnable {
+
+    private final BlockCalculatorFactory _calculatorFactory;
+    private final int _nbBlock;
+    private final AtomicInteger _nextBlock = new AtomicInteger();
+    private final double[][] _blockResult;
+    private int _nbBlockDone;
+    private double _mean;
+    private double _m2;
+    private volatile boolean _stopped;
+
+    public Simulation(final BlockCalculatorFactory calculatorFactory) {
+      _calculatorFactory = calculatorFactory;
+      _nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
+      _blockResult = new double[_nbBlock][];
+    }
+
+    private int getNbPath(final int block) {
+      return (block < _nbBlock - 1) ? BLOCK_SIZE : MonteCarloMethod.this.getNbPath() - (_nbBlock - 1) * BLOCK_SIZE;
+    }
+
+    @Override
+    public void run() {
+      BlockCalculator calculator = null;
+      while (!_stopped) {
+        final int block = _nextBlock.getAndIncrement();
+        if (block >= _nbBlock) {
+          return;
+        }
+        if (calculator == null) {
+          calculator = _calculatorFactory.create();
+        }
+        final RandomNumberGenerator numberGenerator = (_numberSubstreams == null) ? _numberGenerator : _numberSubstreams.getSubstream(block);
+        try {
+          blockCompleted(block, calculator.evaluate(numberGenerator, getNbPath(block)));
+        } catch (final RuntimeException e) {
+          _stopped = true;
+          throw e;
+        }
+      }
+    }
+
+    private synchronized void blockCompleted(final int block, final double[] result) {
+      _blockResult[block] = result;
+      while (!_stopped && (_nbBlockDone < _nbBlock) && (_blockResult[_nbBlockDone] != null)) {
+        // Running mean and variance of the block prices
+        final double price = _blockResult[_nbBlockDone][0];
+        _nbBlockDone++;
+        final double delta = price - _mean;
+        _mean += delta / _nbBlockDone;
+        _m2 += delta * (price - _mean);
+        if ((_relativeTolerance > 0.0) && (_nbBlockDone >= MIN_BLOCK_CONVERGENCE)) {
+          final double standardError = Math.sqrt(_m2 / (_nbBlockDone - 1) / _nbBlockDone);
+          if (standardError <= _relativeTolerance * Math.abs(_mean)) {
+            _stopped = true;
+          }
+        }
+      }
+    }
+
+    public synchronized double[] getAverage() {
+      final double[] average = new double[_blockResult[0].length];
+      int nbPath = 0;
+      for (int loopblock = 0; loopblock < _nbBlockDone; loopblock++) {
+        final int nbPathBlock = getNbPath(loopblock);
+        for (int i = 0; i < average.length; i++) {
+          average[i] += _blockResult[loopblock][i] * nbPathBlock;
+        }
+        nbPath += nbPathBlock;
+      }
+      for (int i = 0; i < average.length; i++) {
+        average[i] /= nbPath;
+      }
+      return average;
+    }
+
+  }
+
 }
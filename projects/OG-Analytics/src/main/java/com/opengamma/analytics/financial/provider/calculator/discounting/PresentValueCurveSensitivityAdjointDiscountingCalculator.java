@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.discounting;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitorDelegate;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitorSameMethodAdapter;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponFixed;
+import com.opengamma.analytics.financial.interestrate.cash.derivative.Cash;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIbor;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIborSpread;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponON;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Payment;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.Swap;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapFixedCoupon;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapMultileg;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivityTape;
+
+/**
+ * Calculator of the present value curve sensitivity by algorithmic differentiation in adjoint mode, recorded on a {@link MulticurveSensitivityTape}.
+ * <p>
+ * For the cash flows of deposits and linear swaps, the forward sweep computes the discount factors and forward rates and the backward sweep writes their adjoints straight to the tape, without
+ * building point sensitivity maps. The other instruments are priced by {@link PresentValueCurveSensitivityDiscountingCalculator} and their point sensitivities copied to the tape.
+ */
+public final class PresentValueCurveSensitivityAdjointDiscountingCalculator extends InstrumentDerivativeVisitorDelegate<MulticurveSensitivityTape, Void> {
+
+  /**
+   * The unique instance of the calculator.
+   */
+  private static final PresentValueCurveSensitivityAdjointDiscountingCalculator INSTANCE = new PresentValueCurveSensitivityAdjointDiscountingCalculator();
+
+  /**
+   * Gets the calculator instance.
+   * @return The calculator.
+   */
+  public static PresentValueCurveSensitivityAdjointDiscountingCalculator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Constructor.
+   */
+  private PresentValueCurveSensitivityAdjointDiscountingCalculator() {
+    super(new CurveSensitivityRecorder());
+  }
+
+  /**
+   * Records the curve sensitivity of the instruments without a method recording on the tape.
+   */
+  private static final class CurveSensitivityRecorder extends InstrumentDerivativeVisitorSameMethodAdapter<MulticurveSensitivityTape, Void> {
+
+    private static final PresentValueCurveSensitivityDiscountingCalculator PVCSDC = PresentValueCurveSensitivityDiscountingCalculator.getInstance();
+
+    @Override
+    public Void visit(final InstrumentDerivative derivative) {
+      throw new UnsupportedOperationException("Need a sensitivity tape to record the curve sensitivity of " + derivative.getClass().getSimpleName());
+    }
+
+    @Override
+    public Void visit(final InstrumentDerivative derivative, final MulticurveSensitivityTape tape) {
+      tape.add(derivative.accept(PVCSDC, tape.getParameterProvider()));
+      return null;
+    }
+
+  }
+
+  // -----     Deposit     ------
+
+  @Override
+  public Void visitCash(final Cash deposit, final MulticurveSensitivityTape tape) {
+    final MulticurveProviderInterface multicurve = tape.getMulticurveProvider();
+    final double dfStart = multicurve.getDiscountFactor(deposit.getCurrency(), deposit.getStartTime());
+    final double dfEnd = multicurve.getDiscountFactor(deposit.getCurrency(), deposit.getEndTime());
+    // Backward sweep
+    final double pvBar = 1.0;
+    final double dfEndBar = (deposit.getNotional() + deposit.getInterestAmount()) * pvBar;
+    final double dfStartBar = -deposit.getInitialAmount() * pvBar;
+    final int curve = tape.getCurveIndex(multicurve.getName(deposit.getCurrency()), deposit.getCurrency());
+    tape.addDiscountFactor(curve, deposit.getStartTime(), dfStart, dfStartBar);
+    tape.addDiscountFactor(curve, deposit.getEndTime(), dfEnd, dfEndBar);
+    return null;
+  }
+
+  // -----     Payment/Coupon     ------
+
+  @Override
+  public Void visitFixedPayment(final PaymentFixed payment, final MulticurveSensitivityTape tape) {
+    final MulticurveProviderInterface multicurve = tape.getMulticurveProvider();
+    final double df = multicurve.getDiscountFactor(payment.getCurrency(), payment.getPaymentTime());
+    // Backward sweep
+    final double pvBar = 1.0;
+    final double dfBar = payment.getAmount() * pvBar;
+    tape.addDiscountFactor(tape.getCurveIndex(multicurve.getName(payment.getCurrency()), payment.getCurrency()), payment.getPaymentTime(), df, dfBar);
+    return null;
+  }
+
+  @Override
+  public Void visitCouponFixed(final CouponFixed coupon, final MulticurveSensitivityTape tape) {
+    final MulticurveProviderInterface multicurve = tape.getMulticurveProvider();
+    final double df = multicurve.getDiscountFactor(coupon.getCurrency(), coupon.getPaymentTime());
+    // Backward sweep
+    final double pvBar = 1.0;
+    final double dfBar = coupon.getAmount() * pvBar;
+    tape.addDiscountFactor(tape.getCurveIndex(multicurve.getName(coupon.getCurrency()), coupon.getCurrency()), coupon.getPaymentTime(), df, dfBar);
+    return null;
+  }
+
+  @Override
+  public Void visitCouponIbor(final CouponIbor coupon, final MulticurveSensitivityTape tape) {
+    final MulticurveProviderInterface multicurve = tape.getMulticurveProvider();
+    final double forward = multicurve.getSimplyCompoundForwardRate(coupon.getIndex(), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(), coupon.getFixingAccrualFactor());
+    final double df = multicurve.getDiscountFactor(coupon.getCurrency(), coupon.getPaymentTime());
+    // Backward sweep
+    final double pvBar = 1.0;
+    final double forwardBar = coupon.getNotional() * coupon.getPaymentYearFraction() * df * pvBar;
+    final double dfBar = coupon.getNotional() * coupon.getPaymentYearFraction() * forward * pvBar;
+    tape.addDiscountFactor(tape.getCurveIndex(multicurve.getName(coupon.getCurrency()), coupon.getCurrency()), coupon.getPaymentTime(), df, dfBar);
+    tape.addForward(tape.getCurveIndex(multicurve.getName(coupon.getIndex()), coupon.getCurrency()), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(),
+        coupon.getFixingAccrualFactor(), forwardBar);
+    return null;
+  }
+
+  @Override
+  public Void visitCouponIborSpread(final CouponIborSpread coupon, final MulticurveSensitivityTape tape) {
+    final MulticurveProviderInterface multicurve = tape.getMulticurveProvider();
+    final double forward = multicurve.getSimplyCompoundForwardRate(coupon.getIndex(), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(), coupon.getFixingAccrualFactor());
+    final double df = multicurve.getDiscountFactor(coupon.getCurrency(), coupon.getPaymentTime());
+    // Backward sweep
+    final double pvBar = 1.0;
+    final double forwardBar = coupon.getNotional() * coupon.getPaymentYearFraction() * df * pvBar;
+    final double dfBar = (coupon.getNotional() * coupon.getPaymentYearFraction() * forward + coupon.getSpreadAmount()) * pvBar;
+    tape.addDiscountFactor(tape.getCurveIndex(multicurve.getName(coupon.getCurrency()), coupon.getCurrency()), coupon.getPaymentTime(), df, dfBar);
+    tape.addForward(tape.getCurveIndex(multicurve.getName(coupon.getIndex()), coupon.getCurrency()), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(),
+        coupon.getFixingAccrualFactor(), forwardBar);
+    return null;
+  }
+
+  @Override
+  public Void visitCouponOIS(final CouponON coupon, final MulticurveSensitivityTape tape) {
+    final MulticurveProviderInterface multicurve = tape.getMulticurveProvider();
+    final double df = multicurve.getDiscountFactor(coupon.getCurrency(), coupon.getPaymentTime());
+    final double forward = multicurve.getSimplyCompoundForwardRate(coupon.getIndex(), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(), coupon.getFixingPeriodAccrualFactor());
+    final double ratio = 1.0 + coupon.getFixingPeriodAccrualFactor() * forward;
+    // Backward sweep
+    final double pvBar = 1.0;
+    final double ratioBar = coupon.getNotionalAccrued() * df * pvBar;
+    final double forwardBar = coupon.getFixingPeriodAccrualFactor() * ratioBar;
+    final double dfBar = (coupon.getNotionalAccrued() * ratio - coupon.getNotional()) * pvBar;
+    tape.addDiscountFactor(tape.getCurveIndex(multicurve.getName(coupon.getCurrency()), coupon.getCurrency()), coupon.getPaymentTime(), df, dfBar);
+    tape.addForward(tape.getCurveIndex(multicurve.getName(coupon.getIndex()), coupon.getCurrency()), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(),
+        coupon.getFixingPeriodAccrualFactor(), forwardBar);
+    return null;
+  }
+
+  // -----     Annuity     ------
+
+  @Override
+  public Void visitGenericAnnuity(final Annuity<? extends Payment> annuity, final MulticurveSensitivityTape tape) {
+    for (final Payment payment : annuity.getPayments()) {
+      payment.accept(this, tape);
+    }
+    return null;
+  }
+
+  @Override
+  public Void visitFixedCouponAnnuity(final AnnuityCouponFixed annuity, final MulticurveSensitivityTape tape) {
+    return visitGenericAnnuity(annuity, tape);
+  }
+
+  // -----     Swap     ------
+
+  @Override
+  public Void visitSwap(final Swap<?, ?> swap, final MulticurveSensitivityTape tape) {
+    swap.getFirstLeg().accept(this, tape);
+    swap.getSecondLeg().accept(this, tape);
+    return null;
+  }
+
+  @Override
+  public Void visitFixedCouponSwap(final SwapFixedCoupon<?> swap, final MulticurveSensitivityTape tape) {
+    return visitSwap(swap, tape);
+  }
+
+  @Override
+  public Void visitSwapMultileg(final SwapMultileg swap, final MulticurveSensitivityTape tape) {
+    for (final Annuity<? extends Payment> leg : swap.getLegs()) {
+      leg.accept(this, tape);
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,704 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity.multicurve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.ParallelArrayBinarySort;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.tuple.DoublesPair;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * Mutable point sensitivity to the curves, held in primitive arrays by curve index instead of the maps of point lists of {@link MultipleCurrencyMulticurveSensitivity}.
+ * <p>
+ * The curves are identified by their name and by the currency of the value, as in {@link MultipleCurrencyParameterSensitivity}, and given an index when first used. For each curve the
+ * sensitivities to the zero-coupon continuously compounded rates are held as time and value arrays and the sensitivities to the forward rates as start, end, accrual factor and value arrays.
+ * The points are accumulated, merged, scaled and cleaned in place; points added in increasing time order, and the merge of two clean sensitivities, keep the rates sorted without a sort.
+ * <p>
+ * This class is intended for the aggregation of the sensitivities of large portfolios, where the immutable sensitivity objects create one boxed pair per point and per merge.
+ * It is not thread safe.
+ */
+public class DenseMulticurveSensitivity {
+
+  /**
+   * The initial capacity of the point arrays of a curve.
+   */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * The curve indices by currency and name.
+   */
+  private final Map<Currency, Map<String, Integer>> _curveIndex = new HashMap<>();
+  /**
+   * The points, by curve index.
+   */
+  private final List<CurvePoints> _curves = new ArrayList<>();
+  /**
+   * The buffer used to merge the rate points of two curves.
+   */
+  private double[] _mergeTime = new double[0];
+  private double[] _mergeValue = new double[0];
+
+  /**
+   * Creates an empty sensitivity.
+   */
+  public DenseMulticurveSensitivity() {
+  }
+
+  /**
+   * Creates a sensitivity from point sensitivities.
+   * @param sensitivity The point sensitivities, not null.
+   * @return The sensitivity.
+   */
+  public static DenseMulticurveSensitivity of(final MultipleCurrencyMulticurveSensitivity sensitivity) {
+    final DenseMulticurveSensitivity result = new DenseMulticurveSensitivity();
+    result.add(sensitivity, 1.0);
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the index of a curve, adding the curve if necessary.
+   * @param name The curve name, not null.
+   * @param ccy The currency of the value, not null.
+   * @return The index.
+   */
+  public int getCurveIndex(final String name, final Currency ccy) {
+    Map<String, Integer> byName = _curveIndex.get(ccy);
+    if (byName == null) {
+      ArgumentChecker.notNull(ccy, "currency");
+      byName = new HashMap<>();
+      _curveIndex.put(ccy, byName);
+    }
+    Integer index = byName.get(name);
+    if (index == null) {
+      ArgumentChecker.notNull(name, "name");
+      index = _curves.size();
+      byName.put(name, index);
+      _curves.add(new CurvePoints(name, ccy));
+    }
+    return index;
+  }
+
+  /**
+   * Gets the number of curves.
+   * @return The number of curves.
+   */
+  public int getNumberOfCurves() {
+    return _curves.size();
+  }
+
+  /**
+   * Gets the name of a curve.
+   * @param curveIndex The curve index.
+   * @return The name.
+   */
+  public String getCurveName(final int curveIndex) {
+    return _curves.get(curveIndex)._name;
+  }
+
+  /**
+   * Gets the currency of the value for a curve.
+   * @param curveIndex The curve index.
+   * @return The currency.
+   */
+  public Currency getCurrency(final int curveIndex) {
+    return _curves.get(curveIndex)._currency;
+  }
+
+  /**
+   * Gets the number of points, rates and forwards, of all the curves.
+   * @return The number of points.
+   */
+  public int getNumberOfPoints() {
+    int nbPoint = 0;
+    for (final CurvePoints curve : _curves) {
+      nbPoint += curve._nbRate + curve._nbForward;
+    }
+    return nbPoint;
+  }
+
+  /**
+   * Gets the times of the rate points of a curve, in the order of the points. The times are sorted and distinct after {@link #clean()}.
+   * @param curveIndex The curve index.
+   * @return The times, a copy.
+   */
+  public double[] getRateTimes(final int curveIndex) {
+    final CurvePoints curve = _curves.get(curveIndex);
+    return Arrays.copyOf(curve._rateTime, curve._nbRate);
+  }
+
+  /**
+   * Gets the sensitivities to the rates of a curve, in the order of the points.
+   * @param curveIndex The curve index.
+   * @return The sensitivities, a copy.
+   */
+  public double[] getRateValues(final int curveIndex) {
+    final CurvePoints curve = _curves.get(curveIndex);
+    return Arrays.copyOf(curve._rateValue, curve._nbRate);
+  }
+
+  /**
+   * Gets the number of forward points of a curve.
+   * @param curveIndex The curve index.
+   * @return The number of points.
+   */
+  public int getNumberOfForwardPoints(final int curveIndex) {
+    return _curves.get(curveIndex)._nbForward;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a sensitivity to a zero-coupon continuously compounded rate.
+   * @param curveIndex The curve index.
+   * @param time The time.
+   * @param value The sensitivity to the rate.
+   */
+  public void addRate(final int curveIndex, final double time, final double value) {
+    _curves.get(curveIndex).addRate(time, value);
+  }
+
+  /**
+   * Adds a sensitivity to a simply compounded forward rate.
+   * @param curveIndex The curve index.
+   * @param startTime The start time of the forward period.
+   * @param endTime The end time of the forward period.
+   * @param accrualFactor The accrual factor of the forward period.
+   * @param value The sensitivity to the forward rate.
+   */
+  public void addForward(final int curveIndex, final double startTime, final double endTime, final double accrualFactor, final double value) {
+    _curves.get(curveIndex).addForward(startTime, endTime, accrualFactor, false, value);
+  }
+
+  /**
+   * Adds point sensitivities, multiplied by a factor.
+   * @param sensitivity The point sensitivities, not null.
+   * @param factor The factor.
+   */
+  public void add(final MultipleCurrencyMulticurveSensitivity sensitivity, final double factor) {
+    ArgumentChecker.notNull(sensitivity, "sensitivity");
+    for (final Map.Entry<Currency, MulticurveSensitivity> entryCcy : sensitivity.getSensitivities().entrySet()) {
+      final Currency ccy = entryCcy.getKey();
+      for (final Map.Entry<String, List<DoublesPair>> entry : entryCcy.getValue().getYieldDiscountingSensitivities().entrySet()) {
+        final CurvePoints curve = _curves.get(getCurveIndex(entry.getKey(), ccy));
+        for (final DoublesPair point : entry.getValue()) {
+          curve.addRate(point.getFirst(), factor * point.getSecond());
+        }
+      }
+      for (final Map.Entry<String, List<ForwardSensitivity>> entry : entryCcy.getValue().getForwardSensitivities().entrySet()) {
+        final CurvePoints curve = _curves.get(getCurveIndex(entry.getKey(), ccy));
+        for (final ForwardSensitivity point : entry.getValue()) {
+          ArgumentChecker.isTrue(point instanceof SimplyCompoundedForwardSensitivity || point instanceof AnnuallyCompoundedForwardSensitivity,
+              "Unsupported forward sensitivity {}", point.getClass());
+          curve.addForward(point.getStartTime(), point.getEndTime(), point.getAccrualFactor(), point instanceof AnnuallyCompoundedForwardSensitivity, factor * point.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds another sensitivity, multiplied by a factor. The other sensitivity is not changed. When both sensitivities are clean the rates are merged in one pass and the result is clean.
+   * @param other The other sensitivity, not null.
+   * @param factor The factor.
+   */
+  public void add(final DenseMulticurveSensitivity other, final double factor) {
+    ArgumentChecker.notNull(other, "other");
+    if (other == this) {
+      multiplyBy(1.0 + factor);
+      return;
+    }
+    for (final CurvePoints otherCurve : other._curves) {
+      final CurvePoints curve = _curves.get(getCurveIndex(otherCurve._name, otherCurve._currency));
+      mergeRates(curve, otherCurve, factor);
+      for (int looppt = 0; looppt < otherCurve._nbForward; looppt++) {
+        curve.addForward(otherCurve._forwardStart[looppt], otherCurve._forwardEnd[looppt], otherCurve._forwardAccrual[looppt], otherCurve._forwardAnnual[looppt],
+            factor * otherCurve._forwardValue[looppt]);
+      }
+    }
+  }
+
+  /**
+   * Multiplies all the sensitivities by a factor.
+   * @param factor The factor.
+   */
+  public void multiplyBy(final double factor) {
+    for (final CurvePoints curve : _curves) {
+      for (int looppt = 0; looppt < curve._nbRate; looppt++) {
+        curve._rateValue[looppt] *= factor;
+      }
+      for (int looppt = 0; looppt < curve._nbForward; looppt++) {
+        curve._forwardValue[looppt] *= factor;
+      }
+    }
+  }
+
+  /**
+   * Sorts the points of each curve and adds the values of the points at the same times, as {@link MulticurveSensitivity#cleaned()}.
+   */
+  public void clean() {
+    for (final CurvePoints curve : _curves) {
+      curve.cleanRates();
+      curve.cleanForwards();
+    }
+  }
+
+  /**
+   * Sorts the points of each curve, adds the values of the points at the same times and removes the points with a total value not above the tolerance, as
+   * {@link MulticurveSensitivity#cleaned(double)}.
+   * @param tolerance The tolerance.
+   */
+  public void clean(final double tolerance) {
+    clean();
+    for (final CurvePoints curve : _curves) {
+      curve.removeSmall(tolerance);
+    }
+  }
+
+  /**
+   * Removes all the points, keeping the curve indices and the array capacities.
+   */
+  public void clear() {
+    for (final CurvePoints curve : _curves) {
+      curve._nbRate = 0;
+      curve._rateClean = true;
+      curve._nbForward = 0;
+      curve._forwardClean = true;
+    }
+  }
+
+  /**
+   * Merges the rate points of a curve into those of another.
+   * @param curve The curve receiving the points.
+   * @param other The curve with the points to add.
+   * @param factor The factor applied to the points added.
+   */
+  private void mergeRates(final CurvePoints curve, final CurvePoints other, final double factor) {
+    final int nbOther = other._nbRate;
+    if (nbOther == 0) {
+      return;
+    }
+    final int nbCurve = curve._nbRate;
+    if (!curve._rateClean || !other._rateClean || nbCurve == 0) {
+      for (int looppt = 0; looppt < nbOther; looppt++) {
+        curve.addRate(other._rateTime[looppt], factor * other._rateValue[looppt]);
+      }
+      return;
+    }
+    if (_mergeTime.length < nbCurve) {
+      _mergeTime = new double[Math.max(nbCurve, 2 * _mergeTime.length)];
+      _mergeValue = new double[_mergeTime.length];
+    }
+    System.arraycopy(curve._rateTime, 0, _mergeTime, 0, nbCurve);
+    System.arraycopy(curve._rateValue, 0, _mergeValue, 0, nbCurve);
+    curve.ensureRateCapacity(nbCurve + nbOther);
+    int loop1 = 0;
+    int loop2 = 0;
+    int nbPoint = 0;
+    while (loop1 < nbCurve || loop2 < nbOther) {
+      if (loop2 == nbOther || (loop1 < nbCurve && _mergeTime[loop1] < other._rateTime[loop2])) {
+        curve._rateTime[nbPoint] = _mergeTime[loop1];
+        curve._rateValue[nbPoint++] = _mergeValue[loop1++];
+      } else if (loop1 == nbCurve || other._rateTime[loop2] < _mergeTime[loop1]) {
+        curve._rateTime[nbPoint] = other._rateTime[loop2];
+        curve._rateValue[nbPoint++] = factor * other._rateValue[loop2++];
+      } else {
+        curve._rateTime[nbPoint] = _mergeTime[loop1];
+        curve._rateValue[nbPoint++] = _mergeValue[loop1++] + factor * other._rateValue[loop2++];
+      }
+    }
+    curve._nbRate = nbPoint;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Converts to point sensitivities.
+   * @return The point sensitivities.
+   */
+  public MultipleCurrencyMulticurveSensitivity toSensitivity() {
+    MultipleCurrencyMulticurveSensitivity result = new MultipleCurrencyMulticurveSensitivity();
+    for (final CurvePoints curve : _curves) {
+      final Map<String, List<DoublesPair>> rates = new HashMap<>();
+      if (curve._nbRate > 0) {
+        final List<DoublesPair> list = new ArrayList<>(curve._nbRate);
+        for (int looppt = 0; looppt < curve._nbRate; looppt++) {
+          list.add(DoublesPair.of(curve._rateTime[looppt], curve._rateValue[looppt]));
+        }
+        rates.put(curve._name, list);
+      }
+      final Map<String, List<ForwardSensitivity>> forwards = new HashMap<>();
+      if (curve._nbForward > 0) {
+        forwards.put(curve._name, curve.getForwardSensitivities());
+      }
+      if (!rates.isEmpty() || !forwards.isEmpty()) {
+        result = result.plus(curve._currency, MulticurveSensitivity.of(rates, forwards));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the sensitivity to the parameters of one curve. The points of the curve are cleaned first.
+   * <p>
+   * For a yield curve of a {@link MulticurveProviderDiscount}, the forward points are converted to rate points, the points at the same time merged and each time projected once on the curve
+   * parameters. Otherwise the projection is done by the provider.
+   * @param curveIndex The curve index.
+   * @param parameterMulticurves The provider of the curves, not null.
+   * @return The sensitivity, one element per curve parameter.
+   */
+  public double[] getParameterSensitivity(final int curveIndex, final ParameterProviderInterface parameterMulticurves) {
+    ArgumentChecker.notNull(parameterMulticurves, "parameterMulticurves");
+    final CurvePoints curve = _curves.get(curveIndex);
+    curve.cleanRates();
+    curve.cleanForwards();
+    final MulticurveProviderInterface multicurves = parameterMulticurves.getMulticurveProvider();
+    if (multicurves instanceof MulticurveProviderDiscount) {
+      final YieldAndDiscountCurve yieldCurve = ((MulticurveProviderDiscount) multicurves).getCurve(curve._name);
+      if (yieldCurve != null) {
+        return projectOnCurve(curve, yieldCurve);
+      }
+    }
+    return projectOnProvider(curve, parameterMulticurves);
+  }
+
+  /**
+   * Computes the sensitivity to the parameters of all the curves with points.
+   * @param parameterMulticurves The provider of the curves, not null.
+   * @return The sensitivity.
+   */
+  public MultipleCurrencyParameterSensitivity getParameterSensitivity(final ParameterProviderInterface parameterMulticurves) {
+    return getParameterSensitivity(parameterMulticurves, null);
+  }
+
+  /**
+   * Computes the sensitivity to the parameters of the curves in a set.
+   * @param parameterMulticurves The provider of the curves, not null.
+   * @param curvesSet The curve names. Points on other curves are ignored. Null for all the curves.
+   * @return The sensitivity.
+   */
+  public MultipleCurrencyParameterSensitivity getParameterSensitivity(final ParameterProviderInterface parameterMulticurves, final Set<String> curvesSet) {
+    final LinkedHashMap<Pair<String, Currency>, DoubleMatrix1D> result = new LinkedHashMap<>();
+    for (int loopcurve = 0; loopcurve < _curves.size(); loopcurve++) {
+      final CurvePoints curve = _curves.get(loopcurve);
+      if ((curve._nbRate + curve._nbForward > 0) && ((curvesSet == null) || curvesSet.contains(curve._name))) {
+        result.put(Pairs.of(curve._name, curve._currency), new DoubleMatrix1D(getParameterSensitivity(loopcurve, parameterMulticurves)));
+      }
+    }
+    return new MultipleCurrencyParameterSensitivity(result);
+  }
+
+  /**
+   * Projects the clean points of a curve on the parameters of a yield curve.
+   * @param curve The points.
+   * @param yieldCurve The yield curve.
+   * @return The parameter sensitivity.
+   */
+  private static double[] projectOnCurve(final CurvePoints curve, final YieldAndDiscountCurve yieldCurve) {
+    final int nbParameters = yieldCurve.getNumberOfParameters();
+    final double[] result = new double[nbParameters];
+    if (curve._nbForward == 0) {
+      projectSorted(curve._rateTime, curve._rateValue, curve._nbRate, yieldCurve, result);
+      return result;
+    }
+    final int nbPoint = curve._nbRate + 2 * curve._nbForward;
+    final double[] time = Arrays.copyOf(curve._rateTime, nbPoint);
+    final double[] rateBar = Arrays.copyOf(curve._rateValue, nbPoint);
+    // The forwards are sorted by start time, so the discount factors are looked up in increasing order
+    final double[] startTimes = Arrays.copyOf(curve._forwardStart, curve._nbForward);
+    final double[] endTimes = Arrays.copyOf(curve._forwardEnd, curve._nbForward);
+    final double[] dfStarts = new double[curve._nbForward];
+    final double[] dfEnds = new double[curve._nbForward];
+    yieldCurve.getDiscountFactors(startTimes, dfStarts);
+    yieldCurve.getDiscountFactors(endTimes, dfEnds);
+    int loopsort = curve._nbRate;
+    for (int looppt = 0; looppt < curve._nbForward; looppt++) {
+      // Forward with respect to the rates at its start and end, as in the providers' parameterForwardSensitivity
+      final double startTime = startTimes[looppt];
+      final double endTime = endTimes[looppt];
+      final double accrual = curve._forwardAccrual[looppt];
+      final double dfStart = dfStarts[looppt];
+      final double dfEnd = dfEnds[looppt];
+      final double derivativeFactor;
+      if (curve._forwardAnnual[looppt]) {
+        derivativeFactor = Math.pow(dfStart / dfEnd, 1 / accrual) / accrual;
+      } else {
+        derivativeFactor = dfStart / (dfEnd * accrual);
+      }
+      time[loopsort] = startTime;
+      rateBar[loopsort++] = -startTime * derivativeFactor * curve._forwardValue[looppt];
+      time[loopsort] = endTime;
+      rateBar[loopsort++] = endTime * derivativeFactor * curve._forwardValue[looppt];
+    }
+    ParallelArrayBinarySort.parallelBinarySort(time, rateBar);
+    projectSorted(time, rateBar, nbPoint, yieldCurve, result);
+    return result;
+  }
+
+  /**
+   * Projects sorted rate points on the parameters of a yield curve, once for each distinct time.
+   * @param time The times, sorted.
+   * @param rateBar The sensitivities to the rates.
+   * @param nbPoint The number of points.
+   * @param yieldCurve The yield curve.
+   * @param result The parameter sensitivity, added to.
+   */
+  private static void projectSorted(final double[] time, final double[] rateBar, final int nbPoint, final YieldAndDiscountCurve yieldCurve, final double[] result) {
+    int looppt = 0;
+    while (looppt < nbPoint) {
+      final double t = time[looppt];
+      double sensitivity = 0;
+      while ((looppt < nbPoint) && (time[looppt] == t)) {
+        sensitivity += rateBar[looppt++];
+      }
+      final double[] sensiPoint = yieldCurve.getInterestRateParameterSensitivity(t);
+      for (int loopparam = 0; loopparam < result.length; loopparam++) {
+        result[loopparam] += sensitivity * sensiPoint[loopparam];
+      }
+    }
+  }
+
+  /**
+   * Projects the points of a curve through the provider, for curves that are not yield curves of a {@link MulticurveProviderDiscount}.
+   * @param curve The points.
+   * @param parameterMulticurves The provider.
+   * @return The parameter sensitivity.
+   */
+  private static double[] projectOnProvider(final CurvePoints curve, final ParameterProviderInterface parameterMulticurves) {
+    double[] result = null;
+    if (curve._nbRate > 0) {
+      final List<DoublesPair> rates = new ArrayList<>(curve._nbRate);
+      for (int looppt = 0; looppt < curve._nbRate; looppt++) {
+        rates.add(DoublesPair.of(curve._rateTime[looppt], curve._rateValue[looppt]));
+      }
+      result = parameterMulticurves.parameterSensitivity(curve._name, rates);
+    }
+    if (curve._nbForward > 0) {
+      final double[] forwardResult = parameterMulticurves.parameterForwardSensitivity(curve._name, curve.getForwardSensitivities());
+      if (result == null) {
+        result = forwardResult;
+      } else {
+        for (int loopparam = 0; loopparam < result.length; loopparam++) {
+          result[loopparam] += forwardResult[loopparam];
+        }
+      }
+    }
+    return (result == null) ? new double[parameterMulticurves.getMulticurveProvider().getNumberOfParameters(curve._name)] : result;
+  }
+
+  @Override
+  public String toString() {
+    return toSensitivity().toString();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The points of one curve.
+   */
+  private static final class CurvePoints {
+    private final String _name;
+    private final Currency _currency;
+    /**
+     * The rate points. Clean when sorted by time with distinct times.
+     */
+    private double[] _rateTime = new double[INITIAL_CAPACITY];
+    private double[] _rateValue = new double[INITIAL_CAPACITY];
+    private int _nbRate;
+    private boolean _rateClean = true;
+    /**
+     * The forward points. Clean when sorted by start, end, accrual factor and compounding, with distinct periods.
+     */
+    private double[] _forwardStart = new double[0];
+    private double[] _forwardEnd = new double[0];
+    private double[] _forwardAccrual = new double[0];
+    private boolean[] _forwardAnnual = new boolean[0];
+    private double[] _forwardValue = new double[0];
+    private int _nbForward;
+    private boolean _forwardClean = true;
+
+    private CurvePoints(final String name, final Currency currency) {
+      _name = name;
+      _currency = currency;
+    }
+
+    private void ensureRateCapacity(final int capacity) {
+      if (capacity > _rateTime.length) {
+        final int newCapacity = Math.max(capacity, 2 * _rateTime.length);
+        _rateTime = Arrays.copyOf(_rateTime, newCapacity);
+        _rateValue = Arrays.copyOf(_rateValue, newCapacity);
+      }
+    }
+
+    private void addRate(final double time, final double value) {
+      if (_nbRate > 0 && _rateClean) {
+        final double last = _rateTime[_nbRate - 1];
+        if (time == last) {
+          _rateValue[_nbRate - 1] += value;
+          return;
+        }
+        _rateClean = time > last;
+      }
+      ensureRateCapacity(_nbRate + 1);
+      _rateTime[_nbRate] = time;
+      _rateValue[_nbRate++] = value;
+    }
+
+    private void addForward(final double startTime, final double endTime, final double accrualFactor, final boolean annual, final double value) {
+      if (_nbForward > 0 && _forwardClean) {
+        final int order = compareForward(_nbForward - 1, startTime, endTime, accrualFactor, annual);
+        if (order == 0) {
+          _forwardValue[_nbForward - 1] += value;
+          return;
+        }
+        _forwardClean = order < 0;
+      }
+      if (_nbForward == _forwardStart.length) {
+        final int capacity = Math.max(INITIAL_CAPACITY, 2 * _nbForward);
+        _forwardStart = Arrays.copyOf(_forwardStart, capacity);
+        _forwardEnd = Arrays.copyOf(_forwardEnd, capacity);
+        _forwardAccrual = Arrays.copyOf(_forwardAccrual, capacity);
+        _forwardAnnual = Arrays.copyOf(_forwardAnnual, capacity);
+        _forwardValue = Arrays.copyOf(_forwardValue, capacity);
+      }
+      _forwardStart[_nbForward] = startTime;
+      _forwardEnd[_nbForward] = endTime;
+      _forwardAccrual[_nbForward] = accrualFactor;
+      _forwardAnnual[_nbForward] = annual;
+      _forwardValue[_nbForward++] = value;
+    }
+
+    /**
+     * Compares a forward point with a forward period.
+     * @return Negative, zero or positive as the point is before, the same as or after the period.
+     */
+    private int compareForward(final int index, final double startTime, final double endTime, final double accrualFactor, final boolean annual) {
+      int order = Double.compare(_forwardStart[index], startTime);
+      if (order == 0) {
+        order = Double.compare(_forwardEnd[index], endTime);
+        if (order == 0) {
+          order = Double.compare(_forwardAccrual[index], accrualFactor);
+          if (order == 0 && _forwardAnnual[index] != annual) {
+            order = annual ? -1 : 1;
+          }
+        }
+      }
+      return order;
+    }
+
+    private void cleanRates() {
+      if (_rateClean) {
+        return;
+      }
+      ParallelArrayBinarySort.parallelBinarySort(_rateTime, _rateValue, 0, _nbRate - 1);
+      int nbPoint = 0;
+      for (int looppt = 0; looppt < _nbRate; looppt++) {
+        if (nbPoint > 0 && _rateTime[looppt] == _rateTime[nbPoint - 1]) {
+          _rateValue[nbPoint - 1] += _rateValue[looppt];
+        } else {
+          _rateTime[nbPoint] = _rateTime[looppt];
+          _rateValue[nbPoint++] = _rateValue[looppt];
+        }
+      }
+      _nbRate = nbPoint;
+      _rateClean = true;
+    }
+
+    private void cleanForwards() {
+      if (_forwardClean) {
+        return;
+      }
+      // Sort by start time, then the few points with the same start time by the rest of the period
+      final double[] start = Arrays.copyOf(_forwardStart, _nbForward);
+      final int[] order = new int[_nbForward];
+      for (int looppt = 0; looppt < _nbForward; looppt++) {
+        order[looppt] = looppt;
+      }
+      ParallelArrayBinarySort.parallelBinarySort(start, order);
+      for (int looppt = 1; looppt < _nbForward; looppt++) {
+        final int current = order[looppt];
+        int loopins = looppt;
+        while (loopins > 0 && compareForward(order[loopins - 1], _forwardStart[current], _forwardEnd[current], _forwardAccrual[current], _forwardAnnual[current]) > 0) {
+          order[loopins] = order[loopins - 1];
+          loopins--;
+        }
+        order[loopins] = current;
+      }
+      final double[] sortedStart = new double[_forwardStart.length];
+      final double[] sortedEnd = new double[_forwardStart.length];
+      final double[] sortedAccrual = new double[_forwardStart.length];
+      final boolean[] sortedAnnual = new boolean[_forwardStart.length];
+      final double[] sortedValue = new double[_forwardStart.length];
+      int nbPoint = 0;
+      for (int looppt = 0; looppt < _nbForward; looppt++) {
+        final int index = order[looppt];
+        if (nbPoint > 0 && sortedStart[nbPoint - 1] == _forwardStart[index] && sortedEnd[nbPoint - 1] == _forwardEnd[index] && sortedAccrual[nbPoint - 1] == _forwardAccrual[index] &&
+            sortedAnnual[nbPoint - 1] == _forwardAnnual[index]) {
+          sortedValue[nbPoint - 1] += _forwardValue[index];
+        } else {
+          sortedStart[nbPoint] = _forwardStart[index];
+          sortedEnd[nbPoint] = _forwardEnd[index];
+          sortedAccrual[nbPoint] = _forwardAccrual[index];
+          sortedAnnual[nbPoint] = _forwardAnnual[index];
+          sortedValue[nbPoint++] = _forwardValue[index];
+        }
+      }
+      _forwardStart = sortedStart;
+      _forwardEnd = sortedEnd;
+      _forwardAccrual = sortedAccrual;
+      _forwardAnnual = sortedAnnual;
+      _forwardValue = sortedValue;
+      _nbForward = nbPoint;
+      _forwardClean = true;
+    }
+
+    private void removeSmall(final double tolerance) {
+      int nbPoint = 0;
+      for (int looppt = 0; looppt < _nbRate; looppt++) {
+        if (Math.abs(_rateValue[looppt]) > tolerance) {
+          _rateTime[nbPoint] = _rateTime[looppt];
+          _rateValue[nbPoint++] = _rateValue[looppt];
+        }
+      }
+      _nbRate = nbPoint;
+      nbPoint = 0;
+      for (int looppt = 0; looppt < _nbForward; looppt++) {
+        if (Math.abs(_forwardValue[looppt]) > tolerance) {
+          _forwardStart[nbPoint] = _forwardStart[looppt];
+          _forwardEnd[nbPoint] = _forwardEnd[looppt];
+          _forwardAccrual[nbPoint] = _forwardAccrual[looppt];
+          _forwardAnnual[nbPoint] = _forwardAnnual[looppt];
+          _forwardValue[nbPoint++] = _forwardValue[looppt];
+        }
+      }
+      _nbForward = nbPoint;
+    }
+
+    private List<ForwardSensitivity> getForwardSensitivities() {
+      final List<ForwardSensitivity> list = new ArrayList<>(_nbForward);
+      for (int looppt = 0; looppt < _nbForward; looppt++) {
+        if (_forwardAnnual[looppt]) {
+          list.add(new AnnuallyCompoundedForwardSensitivity(_forwardStart[looppt], _forwardEnd[looppt], _forwardAccrual[looppt], _forwardValue[looppt]));
+        } else {
+          list.add(new SimplyCompoundedForwardSensitivity(_forwardStart[looppt], _forwardEnd[looppt], _forwardAccrual[looppt], _forwardValue[looppt]));
+        }
+      }
+      return list;
+    }
+  }
+
+}
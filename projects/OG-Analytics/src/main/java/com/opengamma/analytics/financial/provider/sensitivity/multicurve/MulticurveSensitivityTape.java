@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity.multicurve;
+
+import java.util.Set;
+
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+
+/**
+ * Tape for the reverse (adjoint) computation of the sensitivity of a value to the curve parameters.
+ * <p>
+ * The pricing methods record on the tape, as they run their backward sweep, the adjoints of the zero-coupon continuously compounded rates and of the forward rates they used. The points are held in
+ * a {@link DenseMulticurveSensitivity}, in primitive arrays indexed by curve, instead of the point lists of {@link MulticurveSensitivity}. The last step of the sweep, from the rates to the curve
+ * parameters, is done once for all the points of a curve when the parameter sensitivities are requested: the points of a curve are sorted and those at the same time merged, so an instrument
+ * portfolio with shared dates projects each date once.
+ * <p>
+ * The curves are identified by their name and by the currency of the value, as in {@link MultipleCurrencyParameterSensitivity}. A tape is not thread safe; it can be cleared and reused.
+ */
+public class MulticurveSensitivityTape {
+
+  /**
+   * The provider of the curves.
+   */
+  private final ParameterProviderInterface _parameterMulticurves;
+  /**
+   * The multi-curves provider.
+   */
+  private final MulticurveProviderInterface _multicurves;
+  /**
+   * The points recorded.
+   */
+  private final DenseMulticurveSensitivity _sensitivity = new DenseMulticurveSensitivity();
+  /**
+   * The adjoint of the recorded value, applied to the points recorded.
+   */
+  private double _adjoint = 1.0;
+
+  /**
+   * Creates an empty tape.
+   * @param parameterMulticurves The provider of the curves, not null.
+   */
+  public MulticurveSensitivityTape(final ParameterProviderInterface parameterMulticurves) {
+    ArgumentChecker.notNull(parameterMulticurves, "parameterMulticurves");
+    _parameterMulticurves = parameterMulticurves;
+    _multicurves = parameterMulticurves.getMulticurveProvider();
+  }
+
+  /**
+   * Gets the provider of the curves.
+   * @return The provider.
+   */
+  public ParameterProviderInterface getParameterProvider() {
+    return _parameterMulticurves;
+  }
+
+  /**
+   * Gets the multi-curves provider.
+   * @return The provider.
+   */
+  public MulticurveProviderInterface getMulticurveProvider() {
+    return _multicurves;
+  }
+
+  /**
+   * Gets the adjoint applied to the points recorded, 1 by default. A caller pricing an instrument held in a given quantity sets the quantity here instead of scaling the result.
+   * @return The adjoint.
+   */
+  public double getAdjoint() {
+    return _adjoint;
+  }
+
+  /**
+   * Sets the adjoint applied to the points recorded.
+   * @param adjoint The adjoint.
+   */
+  public void setAdjoint(final double adjoint) {
+    _adjoint = adjoint;
+  }
+
+  /**
+   * Gets the points recorded, as sensitivities to the rates. The sensitivity is the one of the tape and changes with it.
+   * @return The sensitivity.
+   */
+  public DenseMulticurveSensitivity getSensitivity() {
+    return _sensitivity;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the index of a curve, adding it to the tape if necessary.
+   * @param name The curve name.
+   * @param ccy The currency of the value.
+   * @return The index.
+   */
+  public int getCurveIndex(final String name, final Currency ccy) {
+    return _sensitivity.getCurveIndex(name, ccy);
+  }
+
+  /**
+   * Gets the number of curves on the tape.
+   * @return The number of curves.
+   */
+  public int getNumberOfCurves() {
+    return _sensitivity.getNumberOfCurves();
+  }
+
+  /**
+   * Gets the name of a curve.
+   * @param curveIndex The curve index.
+   * @return The name.
+   */
+  public String getCurveName(final int curveIndex) {
+    return _sensitivity.getCurveName(curveIndex);
+  }
+
+  /**
+   * Gets the currency of the value for a curve.
+   * @param curveIndex The curve index.
+   * @return The currency.
+   */
+  public Currency getCurrency(final int curveIndex) {
+    return _sensitivity.getCurrency(curveIndex);
+  }
+
+  /**
+   * Gets the number of points recorded. Points recorded at the same time as the previous point of their curve are merged into it.
+   * @return The number of rate and forward points.
+   */
+  public int getNumberOfPoints() {
+    return _sensitivity.getNumberOfPoints();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Records the adjoint of a zero-coupon continuously compounded rate.
+   * @param curveIndex The curve index.
+   * @param time The time.
+   * @param rateBar The adjoint of the rate, before the tape adjoint is applied.
+   */
+  public void addRate(final int curveIndex, final double time, final double rateBar) {
+    _sensitivity.addRate(curveIndex, time, rateBar * _adjoint);
+  }
+
+  /**
+   * Records the adjoint of a discount factor, as the adjoint of the corresponding rate.
+   * @param curveIndex The curve index.
+   * @param time The time.
+   * @param discountFactor The discount factor.
+   * @param discountFactorBar The adjoint of the discount factor, before the tape adjoint is applied.
+   */
+  public void addDiscountFactor(final int curveIndex, final double time, final double discountFactor, final double discountFactorBar) {
+    addRate(curveIndex, time, -time * discountFactor * discountFactorBar);
+  }
+
+  /**
+   * Records the adjoint of a simply compounded forward rate.
+   * @param curveIndex The curve index.
+   * @param startTime The start time of the forward period.
+   * @param endTime The end time of the forward period.
+   * @param accrualFactor The accrual factor of the forward period.
+   * @param forwardBar The adjoint of the forward rate, before the tape adjoint is applied.
+   */
+  public void addForward(final int curveIndex, final double startTime, final double endTime, final double accrualFactor, final double forwardBar) {
+    _sensitivity.addForward(curveIndex, startTime, endTime, accrualFactor, forwardBar * _adjoint);
+  }
+
+  /**
+   * Records point sensitivities computed by a curve sensitivity calculator. This is used for the instruments without a method recording directly on the tape.
+   * @param sensitivity The sensitivity to the rates, before the tape adjoint is applied.
+   */
+  public void add(final MultipleCurrencyMulticurveSensitivity sensitivity) {
+    _sensitivity.add(sensitivity, _adjoint);
+  }
+
+  /**
+   * Removes all the points, keeping the curve indices and the tape adjoint.
+   */
+  public void clear() {
+    _sensitivity.clear();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Computes the sensitivity to the parameters of one curve from the points recorded.
+   * @param curveIndex The curve index.
+   * @return The sensitivity, one element per curve parameter.
+   */
+  public double[] getParameterSensitivity(final int curveIndex) {
+    return _sensitivity.getParameterSensitivity(curveIndex, _parameterMulticurves);
+  }
+
+  /**
+   * Computes the sensitivity to the parameters of all the curves with points recorded.
+   * @return The sensitivity.
+   */
+  public MultipleCurrencyParameterSensitivity getParameterSensitivity() {
+    return getParameterSensitivity(null);
+  }
+
+  /**
+   * Computes the sensitivity to the parameters of the curves in a set.
+   * @param curvesSet The curve names. Points on other curves are ignored. Null for all the curves.
+   * @return The sensitivity.
+   */
+  public MultipleCurrencyParameterSensitivity getParameterSensitivity(final Set<String> curvesSet) {
+    return _sensitivity.getParameterSensitivity(_parameterMulticurves, curvesSet);
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity.parameter;
+
+import java.util.Set;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitor;
+import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivityTape;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * For an instrument or a portfolio, computes the sensitivity of a multiple currency value (often the present value) to the parameters used in the curves, by algorithmic differentiation
+ * in adjoint mode. The calculator records the adjoints of the rates on a {@link MulticurveSensitivityTape} and projects them on the curve parameters in one pass per curve.
+ * <p>
+ * The result is the same as the one of {@link ParameterSensitivityParameterCalculator} with the corresponding curve sensitivity calculator, up to rounding.
+ */
+public class ParameterSensitivityAdjointCalculator {
+
+  /**
+   * The calculator recording the sensitivities to the rates on the tape.
+   */
+  private final InstrumentDerivativeVisitor<MulticurveSensitivityTape, Void> _tapeCalculator;
+
+  /**
+   * Constructor.
+   * @param tapeCalculator The calculator recording the sensitivities to the rates on the tape.
+   */
+  public ParameterSensitivityAdjointCalculator(final InstrumentDerivativeVisitor<MulticurveSensitivityTape, Void> tapeCalculator) {
+    ArgumentChecker.notNull(tapeCalculator, "tape calculator");
+    _tapeCalculator = tapeCalculator;
+  }
+
+  /**
+   * Computes the sensitivity with respect to the parameters for all curves.
+   * @param instrument The instrument. Not null.
+   * @param parameterMulticurves The parameters and multi-curves provider.
+   * @return The sensitivity (as a ParameterSensitivity).
+   */
+  public MultipleCurrencyParameterSensitivity calculateSensitivity(final InstrumentDerivative instrument, final ParameterProviderInterface parameterMulticurves) {
+    return calculateSensitivity(instrument, parameterMulticurves, null);
+  }
+
+  /**
+   * Computes the sensitivity with respect to the parameters for the supplied curve names.
+   * @param instrument The instrument. Not null.
+   * @param parameterMulticurves The parameters and multi-curves provider.
+   * @param curvesSet The set of curves for which the sensitivity will be computed. Null for all the curves.
+   * @return The sensitivity (as a ParameterSensitivity).
+   */
+  public MultipleCurrencyParameterSensitivity calculateSensitivity(final InstrumentDerivative instrument, final ParameterProviderInterface parameterMulticurves, final Set<String> curvesSet) {
+    ArgumentChecker.notNull(instrument, "derivative");
+    ArgumentChecker.notNull(parameterMulticurves, "multicurves parameter");
+    final MulticurveSensitivityTape tape = new MulticurveSensitivityTape(parameterMulticurves);
+    instrument.accept(_tapeCalculator, tape);
+    return tape.getParameterSensitivity(curvesSet);
+  }
+
+  /**
+   * Computes the total sensitivity of a portfolio with respect to the parameters for all curves. The instruments are recorded on one tape, so each curve is projected once for the portfolio.
+   * @param instruments The instruments. Not null.
+   * @param parameterMulticurves The parameters and multi-curves provider.
+   * @return The sensitivity (as a ParameterSensitivity).
+   */
+  public MultipleCurrencyParameterSensitivity calculateSensitivity(final InstrumentDerivative[] instruments, final ParameterProviderInterface parameterMulticurves) {
+    return calculateSensitivity(instruments, null, parameterMulticurves, null);
+  }
+
+  /**
+   * Computes the total sensitivity of a portfolio with respect to the parameters for the supplied curve names. The instruments are recorded on one tape, so each curve is projected once for
+   * the portfolio.
+   * @param instruments The instruments. Not null.
+   * @param quantities The quantity of each instrument. Null for a quantity of one.
+   * @param parameterMulticurves The parameters and multi-curves provider.
+   * @param curvesSet The set of curves for which the sensitivity will be computed. Null for all the curves.
+   * @return The sensitivity (as a ParameterSensitivity).
+   */
+  public MultipleCurrencyParameterSensitivity calculateSensitivity(final InstrumentDerivative[] instruments, final double[] quantities, final ParameterProviderInterface parameterMulticurves,
+      final Set<String> curvesSet) {
+    ArgumentChecker.noNulls(instruments, "instruments");
+    ArgumentChecker.notNull(parameterMulticurves, "multicurves parameter");
+    ArgumentChecker.isTrue((quantities == null) || (quantities.length == instruments.length), "Need one quantity per instrument");
+    final MulticurveSensitivityTape tape = new MulticurveSensitivityTape(parameterMulticurves);
+    for (int loopins = 0; loopins < instruments.length; loopins++) {
+      tape.setAdjoint((quantities == null) ? 1.0 : quantities[loopins]);
+      instruments[loopins].accept(_tapeCalculator, tape);
+    }
+    return tape.getParameterSensitivity(curvesSet);
+  }
+
+}
@@ -14,6 +14,8 @@ import org.joda.beans.JodaBeanUtils;
 import org.joda.beans.MetaProperty;
 import org.joda.beans.impl.direct.DirectMetaPropertyMap;
 
+import com.opengamma.util.ArgumentChecker;
+
 /**
  * Parent class for a family of curves that have real <i>x</i> and <i>y</i> values.
  */
@@ -52,6 +54,22 @@ public abstract class DoublesCurve extends Curve<Double, Double> implements Seri
    */
   public abstract double getDyDx(final double x);
 
+  /**
+   * Computes the Y values of the curve for an array of X values.
+   * <p>
+   * This implementation computes each value in turn; curves that can share work between the values override it.
+   * 
+   * @param x  the X values, not null
+   * @param result  the array receiving the Y values, not null, at least as long as the X values
+   */
+  public void getYValues(final double[] x, final double[] result) {
+    ArgumentChecker.notNull(x, "x");
+    ArgumentChecker.notNull(result, "result");
+    for (int i = 0; i < x.length; i++) {
+      result[i] = getYValue(x[i]);
+    }
+  }
+
   //------------------------- AUTOGENERATED START -------------------------
   ///CLOVER:OFF
   /**
@@ -541,6 +541,17 @@ public class InterpolatedDoublesCurve extends ArraysDoublesCurve implements Seri
     return _interpolator.interpolate(_dataBundle, x);
   }
 
+  /**
+   * {@inheritDoc}
+   * The values are interpolated together, so increasing X values find their interval by a short walk from the previous one.
+   */
+  @Override
+  public void getYValues(final double[] x, final double[] result) {
+    ArgumentChecker.notNull(x, "x");
+    ArgumentChecker.notNull(result, "result");
+    _interpolator.interpolate(_dataBundle, x, result);
+  }
+
   @Override
   public Double[] getYValueParameterSensitivity(final Double x) {
     ArgumentChecker.notNull(x, "x");
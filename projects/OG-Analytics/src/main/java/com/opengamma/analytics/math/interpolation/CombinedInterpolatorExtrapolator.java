@@ -81,6 +81,33 @@ public class CombinedInterpolatorExtrapolator extends Interpolator1D {
     return _interpolator.interpolate(data, value);
   }
 
+  /**
+   * {@inheritDoc}
+   * The runs of values between the first and last keys are interpolated together by the interpolator; the values outside are extrapolated one by one.
+   */
+  @Override
+  public void interpolate(final Interpolator1DDataBundle data, final double[] values, final int fromIndex, final int toIndex, final double[] result) {
+    Validate.notNull(data, "data");
+    Validate.notNull(values, "values");
+    Validate.notNull(result, "result");
+    final double firstKey = data.firstKey();
+    final double lastKey = data.lastKey();
+    int i = fromIndex;
+    while (i < toIndex) {
+      final int runStart = i;
+      while (i < toIndex && values[i] >= firstKey && values[i] <= lastKey) {
+        i++;
+      }
+      if (i > runStart) {
+        _interpolator.interpolate(data, values, runStart, i, result);
+      }
+      if (i < toIndex) {
+        result[i] = interpolate(data, values[i]);
+        i++;
+      }
+    }
+  }
+
   @Override
   public double firstDerivative(final Interpolator1DDataBundle data, final Double value) {
     Validate.notNull(data, "data");
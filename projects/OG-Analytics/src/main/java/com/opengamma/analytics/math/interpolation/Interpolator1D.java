@@ -28,6 +28,71 @@ public abstract class Interpolator1D implements Interpolator<Interpolator1DDataB
   @Override
   public abstract Double interpolate(Interpolator1DDataBundle data, Double value);
 
+  /**
+   * Interpolates an array of values.
+   * @param data The data bundle, not null
+   * @param values The values to interpolate, not null
+   * @param result The array receiving the interpolated values, not null, at least as long as the values
+   */
+  public void interpolate(final Interpolator1DDataBundle data, final double[] values, final double[] result) {
+    Validate.notNull(values, "values");
+    interpolate(data, values, 0, values.length, result);
+  }
+
+  /**
+   * Interpolates a range of an array of values, writing each result at the index of its value.
+   * <p>
+   * This implementation interpolates each value in turn; it is expected to be overridden for concrete classes that can reuse the bracketing interval of the previous value,
+   * see {@link #getLowerBoundIndex(double[], double, int)}.
+   * @param data The data bundle, not null
+   * @param values The values to interpolate, not null
+   * @param fromIndex The index of the first value, inclusive
+   * @param toIndex The index of the last value, exclusive
+   * @param result The array receiving the interpolated values, not null
+   */
+  public void interpolate(final Interpolator1DDataBundle data, final double[] values, final int fromIndex, final int toIndex, final double[] result) {
+    Validate.notNull(data, "data");
+    Validate.notNull(values, "values");
+    Validate.notNull(result, "result");
+    for (int i = fromIndex; i < toIndex; i++) {
+      result[i] = interpolate(data, values[i]);
+    }
+  }
+
+  /**
+   * Finds the index of the largest key not above a value, as {@link Interpolator1DDataBundle#getLowerBoundIndex(Double)}, starting from the index found for a previous value.
+   * When the values are increasing, as the times of a schedule, each search walks forward a few keys from the previous one instead of a binary search of all the keys.
+   * @param keys The sorted keys
+   * @param value The value, between the first and last keys
+   * @param previousIndex The index found for the previous value, or zero
+   * @return The index
+   */
+  protected static int getLowerBoundIndex(final double[] keys, final double value, final int previousIndex) {
+    final int n = keys.length;
+    if (value < keys[0] || value > keys[n - 1]) {
+      throw new IllegalArgumentException("Could not get lower bound index for " + value + ": x-values are between " + keys[0] + " and " + keys[n - 1]);
+    }
+    int low = (previousIndex > 0 && previousIndex < n && keys[previousIndex] <= value) ? previousIndex : 0;
+    // Gallop forward from the previous index, then bisect the interval found
+    int step = 1;
+    int high = low + 1;
+    while (high < n && keys[high] <= value) {
+      low = high;
+      step <<= 1;
+      high = low + step;
+    }
+    high = Math.min(high, n);
+    while (high - low > 1) {
+      final int mid = (low + high) >>> 1;
+      if (keys[mid] <= value) {
+        low = mid;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
   /**
    * Computes the gradient of the interpolant at the value.
    * <p>
@@ -37,6 +37,26 @@ public class LinearInterpolator1D extends Interpolator1D {
     return y1 + (value - x1) / (x2 - x1) * (y2 - y1);
   }
 
+  @Override
+  public void interpolate(final Interpolator1DDataBundle model, final double[] values, final int fromIndex, final int toIndex, final double[] result) {
+    Validate.notNull(model, "Data bundle must not be null");
+    Validate.notNull(values, "values");
+    Validate.notNull(result, "result");
+    final double[] x = model.getKeys();
+    final double[] y = model.getValues();
+    final int n = x.length;
+    int index = 0;
+    for (int i = fromIndex; i < toIndex; i++) {
+      final double value = values[i];
+      index = getLowerBoundIndex(x, value, index);
+      if (index == n - 1) {
+        result[i] = y[n - 1];
+      } else {
+        result[i] = y[index] + (value - x[index]) / (x[index + 1] - x[index]) * (y[index + 1] - y[index]);
+      }
+    }
+  }
+
   @Override
   public double firstDerivative(final Interpolator1DDataBundle model, final Double value) {
     Validate.notNull(value, "Value to be interpolated must not be null");
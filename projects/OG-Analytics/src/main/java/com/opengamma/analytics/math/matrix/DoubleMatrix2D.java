@@ -6,6 +6,7 @@
 package com.opengamma.analytics.math.matrix;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 import org.apache.commons.lang.Validate;
 
@@ -13,10 +14,16 @@ import com.opengamma.util.ArgumentChecker;
 
 /**
  * A minimal implementation of a 2D matrix of doubles.
- *
+ * <p>
+ * The elements are normally held as an array of row arrays. A matrix may instead be created with a single row-major array, which is how the kernels in {@link OGMatrixAlgebra} produce
+ * their results; the array of row arrays is then only created if {@link #getData} is called, after which it becomes the storage for the matrix so that changes made through it are
+ * seen by the matrix.
  */
 public class DoubleMatrix2D implements Matrix<Double>, Serializable {
-  private final double[][] _data;
+  /** The elements as row arrays, null until requested if the matrix was created with row-major storage. */
+  private volatile double[][] _data;
+  /** The elements in row-major order, null unless the matrix was created with row-major storage and {@link #getData} has not been called. */
+  private volatile double[] _rowMajorData;
   private final int _rows;
   private final int _columns;
   private final int _elements;
@@ -95,6 +102,15 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
     }
   }
 
+  /**
+   * @param rows The number of rows
+   * @param columns The number of columns
+   * @param data The data, not null. The data is expected in row-major form, with {@code rows * columns} elements, and is copied.
+   */
+  public DoubleMatrix2D(final int rows, final int columns, final double[] data) {
+    this(rows, columns, Arrays.copyOf(ArgumentChecker.notNull(data, "data"), data.length), false);
+  }
+
   private DoubleMatrix2D(final double[][] data, @SuppressWarnings("unused") final boolean copy) {
     _rows = data.length;
     _columns = data[0].length;
@@ -102,6 +118,63 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
     _data = data;
   }
 
+  private DoubleMatrix2D(final int rows, final int columns, final double[] data, @SuppressWarnings("unused") final boolean copy) {
+    ArgumentChecker.isTrue(rows >= 0, "rows cannot be negative");
+    ArgumentChecker.isTrue(columns >= 0, "columns cannot be negative");
+    ArgumentChecker.isTrue(data.length == rows * columns, "data length {} does not match {} rows by {} columns", data.length, rows, columns);
+    _rows = rows;
+    _columns = columns;
+    _elements = rows * columns;
+    if (_elements == 0) {
+      _data = new double[0][0];
+    } else {
+      _rowMajorData = data;
+    }
+  }
+
+  /**
+   * Creates a matrix from row-major data without copying it.
+   * @param rows The number of rows
+   * @param columns The number of columns
+   * @param data The data, not null. This must not be changed after the matrix is created.
+   * @return A matrix
+   */
+  static DoubleMatrix2D wrapRowMajor(final int rows, final int columns, final double[] data) {
+    return new DoubleMatrix2D(rows, columns, data, false);
+  }
+
+  /**
+   * Returns the row-major storage of the matrix, if it was created with row-major storage and the row arrays have not been requested. The caller must not modify the array.
+   * Otherwise the elements are held in the row arrays returned by {@link #getData}.
+   * @return The elements in row-major order, or null if the matrix is held as row arrays
+   */
+  double[] getRowMajorStorage() {
+    return _rowMajorData;
+  }
+
+  /**
+   * @return Whether the elements are currently held in a single row-major array
+   */
+  boolean isRowMajor() {
+    return _rowMajorData != null;
+  }
+
+  private static double[] toRowMajor(final double[][] data, final int rows, final int columns) {
+    final double[] rowMajor = new double[rows * columns];
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(data[i], 0, rowMajor, i * columns, columns);
+    }
+    return rowMajor;
+  }
+
+  private double entry(final int row, final int column) {
+    final double[] rowMajor = _rowMajorData;
+    if (rowMajor != null) {
+      return rowMajor[row * _columns + column];
+    }
+    return _data[row][column];
+  }
+
   /**
    * Returns a copy of the row for a particular index.
    * @param index The index
@@ -118,7 +191,14 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
    * @return The row
    */
   public DoubleMatrix1D getRowVector(final int index, final boolean copy) {
-    return new DoubleMatrix1D(_data[index], copy);
+    if (copy) {
+      final double[] rowMajor = _rowMajorData;
+      if (rowMajor != null) {
+        ArgumentChecker.isTrue((index >= 0) && (index < _rows), "row index {} out of range", index);
+        return new DoubleMatrix1D(Arrays.copyOfRange(rowMajor, index * _columns, (index + 1) * _columns), false);
+      }
+    }
+    return new DoubleMatrix1D(getData()[index], copy);
   }
 
   /**
@@ -129,7 +209,7 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
   public DoubleMatrix1D getColumnVector(final int index) {
     final double[] res = new double[_rows];
     for (int i = 0; i < _rows; i++) {
-      res[i] = _data[i][index];
+      res[i] = entry(i, index);
     }
     return new DoubleMatrix1D(res, false);
   }
@@ -140,18 +220,35 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
   @Override
   public Double getEntry(final int... index) {
     ArgumentChecker.notNull(index, "indices");
-    ArgumentChecker.isTrue(index[0] < _data.length, "x index {} is greater than length of array {}", index[0], _data.length);
-    ArgumentChecker.isTrue(index[1] < _data[0].length, "y index {} is greater than length of array {}", index[1], _data[0].length);
-    return _data[index[0]][index[1]];
+    ArgumentChecker.isTrue(index[0] < _rows, "x index {} is greater than length of array {}", index[0], _rows);
+    ArgumentChecker.isTrue(index[1] < _columns, "y index {} is greater than length of array {}", index[1], _columns);
+    return entry(index[0], index[1]);
   }
 
   /**
    * Returns the underlying matrix data. If this is changed so is the matrix.
+   * <p>
+   * If the matrix has row-major storage then the row arrays are created by the first call, and replace the row-major storage.
    * @see #toArray to get a copy of data
    * @return An array of arrays containing the matrix elements
    */
   public double[][] getData() {
-    return _data;
+    double[][] data = _data;
+    if (data == null) {
+      synchronized (this) {
+        data = _data;
+        if (data == null) {
+          final double[] rowMajor = _rowMajorData;
+          data = new double[_rows][];
+          for (int i = 0; i < _rows; i++) {
+            data[i] = Arrays.copyOfRange(rowMajor, i * _columns, (i + 1) * _columns);
+          }
+          _data = data;
+          _rowMajorData = null;
+        }
+      }
+    }
+    return data;
   }
 
   /**
@@ -160,10 +257,31 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
    * @return An array of arrays containing a copy of matrix elements
    */
   public double[][] toArray() {
+    final double[] rowMajor = _rowMajorData;
+    if (rowMajor != null) {
+      final double[][] data = new double[_rows][];
+      for (int i = 0; i < _rows; i++) {
+        data[i] = Arrays.copyOfRange(rowMajor, i * _columns, (i + 1) * _columns);
+      }
+      return data;
+    }
     final DoubleMatrix2D temp = new DoubleMatrix2D(_data);
     return temp.getData();
   }
 
+  /**
+   * Convert the matrix to a single array of its elements in row-major order.
+   * As its elements are copied, the array is independent from the matrix data.
+   * @return An array containing a copy of the matrix elements
+   */
+  public double[] toRowMajorArray() {
+    final double[] rowMajor = _rowMajorData;
+    if (rowMajor != null) {
+      return rowMajor.clone();
+    }
+    return toRowMajor(_data, _rows, _columns);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -195,7 +313,7 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
     int count = 0;
     for (int i = 0; i < _rows; i++) {
       for (int j = 0; j < _columns; j++) {
-        result = prime * result + Double.valueOf(_data[i][j]).hashCode();
+        result = prime * result + Double.valueOf(entry(i, j)).hashCode();
         if (count == 10) {
           break;
         }
@@ -228,7 +346,7 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
     }
     for (int i = 0; i < _rows; i++) {
       for (int j = 0; j < _columns; j++) {
-        if (Double.doubleToLongBits(_data[i][j]) != Double.doubleToLongBits(other._data[i][j])) {
+        if (Double.doubleToLongBits(entry(i, j)) != Double.doubleToLongBits(other.entry(i, j))) {
           return false;
         }
       }
@@ -239,10 +357,10 @@ public class DoubleMatrix2D implements Matrix<Double>, Serializable {
   @Override
   public String toString() {
     final StringBuffer sb = new StringBuffer();
-    for (final double[] d : _data) {
-      for (int i = 0; i < d.length; i++) {
-        sb.append(d[i]);
-        sb.append(i == d.length - 1 ? "\n" : "\t");
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < _columns; j++) {
+        sb.append(entry(i, j));
+        sb.append(j == _columns - 1 ? "\n" : "\t");
       }
     }
     return sb.toString();
@@ -14,6 +14,9 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * An absolutely minimal implementation of matrix algebra - only various multiplications covered. For more advanced
  * stuff (e.g. calculating the inverse) use {@link ColtMatrixAlgebra} or {@link CommonsMatrixAlgebra}
+ * <p>
+ * The products, transposes and solutions are computed with cache-blocked kernels that read either storage of a {@link DoubleMatrix2D} in place. Results are
+ * returned with row-major storage, so a chain of operations does not create row arrays unless {@link DoubleMatrix2D#getData} is called.
  */
 public class OGMatrixAlgebra extends MatrixAlgebra {
 
@@ -168,17 +171,11 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
       return (IdentityMatrix) m;
     }
     if (m instanceof DoubleMatrix2D) {
-      final double[][] data = ((DoubleMatrix2D) m).getData();
-      final int rows = data.length;
-      final int cols = data[0].length;
-      final double[][] res = new double[cols][rows];
-      int i, j;
-      for (i = 0; i < cols; i++) {
-        for (j = 0; j < rows; j++) {
-          res[i][j] = data[j][i];
-        }
-      }
-      return new DoubleMatrix2D(res);
+      final DoubleMatrix2D matrix = (DoubleMatrix2D) m;
+      final int rows = matrix.getNumberOfRows();
+      final int cols = matrix.getNumberOfColumns();
+      final double[] data = matrix.getRowMajorStorage();
+      return DoubleMatrix2D.wrapRowMajor(cols, rows, RowMajorMatrixKernels.transpose(data, rows(matrix, data), rows, cols));
     }
     throw new IllegalArgumentException("Can only take transpose of DoubleMatrix2D; have " + m.getClass());
   }
@@ -240,6 +237,58 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
     throw new NotImplementedException();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D matrixTransposeMultiplyMatrix(final DoubleMatrix2D a) {
+    ArgumentChecker.notNull(a, "a");
+    final int n = a.getNumberOfRows();
+    final int m = a.getNumberOfColumns();
+    final double[] data = a.getRowMajorStorage();
+    return DoubleMatrix2D.wrapRowMajor(m, m, RowMajorMatrixKernels.transposeMultiply(data, rows(a, data), n, m));
+  }
+
+  /**
+   * Solves $\mathbf{A}x = b$ by LU decomposition with partial pivoting.
+   * @param a The square matrix A, not null
+   * @param b The vector b, not null
+   * @return The solution x
+   * @throws com.opengamma.analytics.math.MathException If A is singular
+   */
+  public DoubleMatrix1D solve(final DoubleMatrix2D a, final DoubleMatrix1D b) {
+    ArgumentChecker.notNull(a, "a");
+    ArgumentChecker.notNull(b, "b");
+    final int n = a.getNumberOfRows();
+    ArgumentChecker.isTrue(a.getNumberOfColumns() == n, "Matrix not square");
+    ArgumentChecker.isTrue(b.getNumberOfElements() == n, "Matrix/vector size mismatch");
+    return new DoubleMatrix1D(RowMajorMatrixKernels.solve(a.toRowMajorArray(), n, b.toArray(), 1), false);
+  }
+
+  /**
+   * Solves $\mathbf{AX} = \mathbf{B}$ by LU decomposition with partial pivoting.
+   * @param a The square matrix A, not null
+   * @param b The matrix B, not null
+   * @return The solution X
+   * @throws com.opengamma.analytics.math.MathException If A is singular
+   */
+  public DoubleMatrix2D solve(final DoubleMatrix2D a, final DoubleMatrix2D b) {
+    ArgumentChecker.notNull(a, "a");
+    ArgumentChecker.notNull(b, "b");
+    final int n = a.getNumberOfRows();
+    ArgumentChecker.isTrue(a.getNumberOfColumns() == n, "Matrix not square");
+    ArgumentChecker.isTrue(b.getNumberOfRows() == n, "Matrix size mismatch");
+    final int r = b.getNumberOfColumns();
+    return DoubleMatrix2D.wrapRowMajor(n, r, RowMajorMatrixKernels.solve(a.toRowMajorArray(), n, b.toRowMajorArray(), r));
+  }
+
+  /**
+   * Returns the row arrays of a matrix for the kernels if it doesn't have row-major storage, so that neither form is copied into the other.
+   */
+  private static double[][] rows(final DoubleMatrix2D matrix, final double[] rowMajorStorage) {
+    return (rowMajorStorage != null) ? null : matrix.getData();
+  }
+
   private DoubleMatrix2D multiply(final IdentityMatrix idet, final DoubleMatrix2D m) {
     ArgumentChecker.isTrue(idet.getSize() == m.getNumberOfRows(),
         "size of identity matrix ({}) does not match number or rows of m ({})", idet.getSize(), m.getNumberOfRows());
@@ -260,28 +309,16 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
   }
 
   private DoubleMatrix2D multiply(final DoubleMatrix2D m1, final DoubleMatrix2D m2) {
-    final double[][] a = m1.getData();
-    final double[][] b = m2.getData();
-    final int p = b.length;
+    final int p = m2.getNumberOfRows();
     Validate.isTrue(
-        a[0].length == p,
+        m1.getNumberOfColumns() == p,
         "Matrix size mismatch. m1 is " + m1.getNumberOfRows() + " by " + m1.getNumberOfColumns() + ", but m2 is " +
             m2.getNumberOfRows() + " by " + m2.getNumberOfColumns());
-    final int m = a.length;
-    final int n = b[0].length;
-    double sum;
-    final double[][] res = new double[m][n];
-    int i, j, k;
-    for (i = 0; i < m; i++) {
-      for (j = 0; j < n; j++) {
-        sum = 0.0;
-        for (k = 0; k < p; k++) {
-          sum += a[i][k] * b[k][j];
-        }
-        res[i][j] = sum;
-      }
-    }
-    return new DoubleMatrix2D(res);
+    final int m = m1.getNumberOfRows();
+    final int n = m2.getNumberOfColumns();
+    final double[] a = m1.getRowMajorStorage();
+    final double[] b = m2.getRowMajorStorage();
+    return DoubleMatrix2D.wrapRowMajor(m, n, RowMajorMatrixKernels.multiply(a, rows(m1, a), m, p, b, rows(m2, b), n));
   }
 
   private DoubleMatrix1D multiply(final IdentityMatrix matrix, final DoubleMatrix1D vector) {
@@ -299,22 +336,12 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
   }
 
   private DoubleMatrix1D multiply(final DoubleMatrix2D matrix, final DoubleMatrix1D vector) {
-    final double[][] a = matrix.getData();
     final double[] b = vector.getData();
     final int n = b.length;
-    Validate.isTrue(a[0].length == n, "Matrix/vector size mismatch");
-    final int m = a.length;
-    final double[] res = new double[m];
-    int i, j;
-    double sum;
-    for (i = 0; i < m; i++) {
-      sum = 0.0;
-      for (j = 0; j < n; j++) {
-        sum += a[i][j] * b[j];
-      }
-      res[i] = sum;
-    }
-    return new DoubleMatrix1D(res);
+    Validate.isTrue(matrix.getNumberOfColumns() == n, "Matrix/vector size mismatch");
+    final int m = matrix.getNumberOfRows();
+    final double[] data = matrix.getRowMajorStorage();
+    return new DoubleMatrix1D(RowMajorMatrixKernels.multiply(data, rows(matrix, data), m, n, b), false);
   }
 
   private DoubleMatrix1D multiply(final TridiagonalMatrix matrix, final DoubleMatrix1D vector) {
@@ -336,21 +363,11 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
 
   private DoubleMatrix1D multiply(final DoubleMatrix1D vector, final DoubleMatrix2D matrix) {
     final double[] a = vector.getData();
-    final double[][] b = matrix.getData();
     final int n = a.length;
-    Validate.isTrue(b.length == n, "Matrix/vector size mismatch");
-    final int m = b[0].length;
-    final double[] res = new double[m];
-    int i, j;
-    double sum;
-    for (i = 0; i < m; i++) {
-      sum = 0.0;
-      for (j = 0; j < n; j++) {
-        sum += a[j] * b[j][i];
-      }
-      res[i] = sum;
-    }
-    return new DoubleMatrix1D(res);
+    Validate.isTrue(matrix.getNumberOfRows() == n, "Matrix/vector size mismatch");
+    final int m = matrix.getNumberOfColumns();
+    final double[] data = matrix.getRowMajorStorage();
+    return new DoubleMatrix1D(RowMajorMatrixKernels.multiply(a, data, rows(matrix, data), n, m), false);
   }
 
   private DoubleMatrix1D multiply(final DoubleMatrix1D vector, final TridiagonalMatrix matrix) {
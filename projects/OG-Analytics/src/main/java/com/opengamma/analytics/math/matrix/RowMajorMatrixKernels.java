@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import com.opengamma.analytics.math.MathException;
+
+/**
+ * Matrix kernels operating on the elements of a matrix in row order.
+ * <p>
+ * Each matrix operand is passed either as a single array holding its elements in row-major order, or as an array of row arrays with the single array null, so that a
+ * {@link DoubleMatrix2D} can be used with whichever storage it currently has without copying it. Results are always single row-major arrays.
+ * <p>
+ * The loops are arranged so that the innermost accesses are to consecutive elements, and are blocked so that the parts of the operands being worked on stay in cache for large
+ * matrices. The products accumulate each element's terms in the same order as the naive algorithms so the results are identical.
+ */
+final class RowMajorMatrixKernels {
+
+  /**
+   * The block size, in elements, for the multiplication kernels. 64 rows of 64 doubles is 32kb.
+   */
+  private static final int BLOCK = 64;
+
+  /**
+   * The block size, in elements, for the transpose kernel.
+   */
+  private static final int TRANSPOSE_BLOCK = 32;
+
+  private RowMajorMatrixKernels() {
+  }
+
+  /**
+   * Computes $\mathbf{C} = \mathbf{AB}$.
+   *
+   * @param a the m by p matrix A in row-major order, or null if given as row arrays
+   * @param aRows the rows of A, used only if a is null
+   * @param m the number of rows of A
+   * @param p the number of columns of A, and rows of B
+   * @param b the p by n matrix B in row-major order, or null if given as row arrays
+   * @param bRows the rows of B, used only if b is null
+   * @param n the number of columns of B
+   * @return the m by n matrix C
+   */
+  static double[] multiply(final double[] a, final double[][] aRows, final int m, final int p, final double[] b, final double[][] bRows, final int n) {
+    final double[] c = new double[m * n];
+    for (int ii = 0; ii < m; ii += BLOCK) {
+      final int iEnd = Math.min(ii + BLOCK, m);
+      for (int kk = 0; kk < p; kk += BLOCK) {
+        final int kEnd = Math.min(kk + BLOCK, p);
+        for (int jj = 0; jj < n; jj += BLOCK) {
+          final int jEnd = Math.min(jj + BLOCK, n);
+          for (int i = ii; i < iEnd; i++) {
+            final double[] aRow = (a != null) ? a : aRows[i];
+            final int aOffset = (a != null) ? i * p : 0;
+            final int cRow = i * n;
+            for (int k = kk; k < kEnd; k++) {
+              final double aik = aRow[aOffset + k];
+              final double[] bRow = (b != null) ? b : bRows[k];
+              final int bOffset = (b != null) ? k * n : 0;
+              for (int j = jj; j < jEnd; j++) {
+                c[cRow + j] += aik * bRow[bOffset + j];
+              }
+            }
+          }
+        }
+      }
+    }
+    return c;
+  }
+
+  /**
+   * Computes $\mathbf{A}x$.
+   *
+   * @param a the m by n matrix A in row-major order, or null if given as row arrays
+   * @param aRows the rows of A, used only if a is null
+   * @param m the number of rows of A
+   * @param n the number of columns of A
+   * @param x the vector of length n
+   * @return the vector of length m
+   */
+  static double[] multiply(final double[] a, final double[][] aRows, final int m, final int n, final double[] x) {
+    final double[] res = new double[m];
+    for (int i = 0; i < m; i++) {
+      final double[] aRow = (a != null) ? a : aRows[i];
+      final int offset = (a != null) ? i * n : 0;
+      double sum = 0.0;
+      for (int j = 0; j < n; j++) {
+        sum += aRow[offset + j] * x[j];
+      }
+      res[i] = sum;
+    }
+    return res;
+  }
+
+  /**
+   * Computes $x^T\mathbf{A}$.
+   *
+   * @param x the vector of length m
+   * @param a the m by n matrix A in row-major order, or null if given as row arrays
+   * @param aRows the rows of A, used only if a is null
+   * @param m the number of rows of A
+   * @param n the number of columns of A
+   * @return the vector of length n
+   */
+  static double[] multiply(final double[] x, final double[] a, final double[][] aRows, final int m, final int n) {
+    final double[] res = new double[n];
+    for (int j = 0; j < m; j++) {
+      final double xj = x[j];
+      final double[] aRow = (a != null) ? a : aRows[j];
+      final int offset = (a != null) ? j * n : 0;
+      for (int i = 0; i < n; i++) {
+        res[i] += xj * aRow[offset + i];
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Computes $\mathbf{A}^T$.
+   *
+   * @param a the m by n matrix A in row-major order, or null if given as row arrays
+   * @param aRows the rows of A, used only if a is null
+   * @param m the number of rows of A
+   * @param n the number of columns of A
+   * @return the n by m transpose
+   */
+  static double[] transpose(final double[] a, final double[][] aRows, final int m, final int n) {
+    final double[] res = new double[m * n];
+    for (int ii = 0; ii < m; ii += TRANSPOSE_BLOCK) {
+      final int iEnd = Math.min(ii + TRANSPOSE_BLOCK, m);
+      for (int jj = 0; jj < n; jj += TRANSPOSE_BLOCK) {
+        final int jEnd = Math.min(jj + TRANSPOSE_BLOCK, n);
+        for (int i = ii; i < iEnd; i++) {
+          final double[] aRow = (a != null) ? a : aRows[i];
+          final int offset = (a != null) ? i * n : 0;
+          for (int j = jj; j < jEnd; j++) {
+            res[j * m + i] = aRow[offset + j];
+          }
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Computes $\mathbf{A}^T\mathbf{A}$.
+   *
+   * @param a the n by m matrix A in row-major order, or null if given as row arrays
+   * @param aRows the rows of A, used only if a is null
+   * @param n the number of rows of A
+   * @param m the number of columns of A
+   * @return the m by m symmetric result
+   */
+  static double[] transposeMultiply(final double[] a, final double[][] aRows, final int n, final int m) {
+    final double[] res = new double[m * m];
+    // Accumulate the upper triangle a block of result rows at a time, streaming through the rows of A
+    for (int ii = 0; ii < m; ii += BLOCK) {
+      final int iEnd = Math.min(ii + BLOCK, m);
+      for (int k = 0; k < n; k++) {
+        final double[] aRow = (a != null) ? a : aRows[k];
+        final int offset = (a != null) ? k * m : 0;
+        for (int i = ii; i < iEnd; i++) {
+          final double aki = aRow[offset + i];
+          final int resRow = i * m;
+          for (int j = i; j < m; j++) {
+            res[resRow + j] += aki * aRow[offset + j];
+          }
+        }
+      }
+    }
+    for (int i = 0; i < m; i++) {
+      for (int j = i + 1; j < m; j++) {
+        res[j * m + i] = res[i * m + j];
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Solves $\mathbf{AX} = \mathbf{B}$ by LU decomposition with partial pivoting.
+   *
+   * @param lu the n by n matrix A in row-major order, overwritten with its decomposition
+   * @param n the number of rows and columns of A
+   * @param x the n by r matrix B in row-major order, overwritten with the solution
+   * @param r the number of columns of B
+   * @return the n by r solution X, the same array as x
+   * @throws MathException if A is singular
+   */
+  static double[] solve(final double[] lu, final int n, final double[] x, final int r) {
+    for (int k = 0; k < n; k++) {
+      // Find the pivot
+      int pivot = k;
+      double max = Math.abs(lu[k * n + k]);
+      for (int i = k + 1; i < n; i++) {
+        final double v = Math.abs(lu[i * n + k]);
+        if (v > max) {
+          max = v;
+          pivot = i;
+        }
+      }
+      if (max == 0.0) {
+        throw new MathException("Matrix is singular");
+      }
+      if (pivot != k) {
+        swapRows(lu, n, k, pivot);
+        swapRows(x, r, k, pivot);
+      }
+      // Eliminate below the pivot, applying the same operations to the right hand side
+      final int kRow = k * n;
+      final double diagonal = lu[kRow + k];
+      for (int i = k + 1; i < n; i++) {
+        final int iRow = i * n;
+        final double factor = lu[iRow + k] / diagonal;
+        if (factor != 0.0) {
+          lu[iRow + k] = factor;
+          for (int j = k + 1; j < n; j++) {
+            lu[iRow + j] -= factor * lu[kRow + j];
+          }
+          for (int j = 0; j < r; j++) {
+            x[i * r + j] -= factor * x[k * r + j];
+          }
+        }
+      }
+    }
+    // Back substitution
+    for (int k = n - 1; k >= 0; k--) {
+      final int kRow = k * n;
+      final double diagonal = lu[kRow + k];
+      for (int j = 0; j < r; j++) {
+        x[k * r + j] /= diagonal;
+      }
+      for (int i = 0; i < k; i++) {
+        final double factor = lu[i * n + k];
+        if (factor != 0.0) {
+          for (int j = 0; j < r; j++) {
+            x[i * r + j] -= factor * x[k * r + j];
+          }
+        }
+      }
+    }
+    return x;
+  }
+
+  private static void swapRows(final double[] data, final int columns, final int row1, final int row2) {
+    final int offset1 = row1 * columns;
+    final int offset2 = row2 * columns;
+    for (int j = 0; j < columns; j++) {
+      final double temp = data[offset1 + j];
+      data[offset1 + j] = data[offset2 + j];
+      data[offset2 + j] = temp;
+    }
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Antithetic variates for a symmetric distribution with mean zero, such as the standard normal. When a block of paths is filled, the first half of the paths is drawn from the underlying generator
+ * and the second half is its negation, path for path; with an odd number of paths the middle one has no partner. Vectors requested one at a time alternate between a new draw and its negation.
+ */
+public class AntitheticRandomNumberGenerator extends BatchRandomNumberGenerator {
+
+  /**
+   * The underlying generator.
+   */
+  private final RandomNumberGenerator _underlying;
+  /**
+   * The last vector drawn, to be returned negated by the next call; null if the next call draws.
+   */
+  private double[] _pending;
+  /**
+   * The draws for the first half of the paths, reused between blocks of the same size.
+   */
+  private double[][] _half;
+
+  /**
+   * Creates an instance.
+   * 
+   * @param underlying the underlying generator, not null
+   */
+  public AntitheticRandomNumberGenerator(final RandomNumberGenerator underlying) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    _underlying = underlying;
+  }
+
+  /**
+   * Gets the underlying generator.
+   * 
+   * @return the generator
+   */
+  public RandomNumberGenerator getUnderlying() {
+    return _underlying;
+  }
+
+  @Override
+  public void fill(final double[] result) {
+    if ((_pending != null) && (_pending.length == result.length)) {
+      for (int i = 0; i < result.length; i++) {
+        result[i] = -_pending[i];
+      }
+      _pending = null;
+    } else {
+      BatchRandomNumberGenerator.fill(_underlying, result);
+      _pending = result.clone();
+    }
+  }
+
+  @Override
+  public void fillPaths(final double[][] paths) {
+    ArgumentChecker.notNull(paths, "paths");
+    final int dimension = paths.length;
+    if (dimension == 0) {
+      return;
+    }
+    final int nbPath = paths[0].length;
+    final int nbHalf = (nbPath + 1) / 2;
+    if ((_half == null) || (_half.length != dimension) || (_half[0].length != nbHalf)) {
+      _half = new double[dimension][nbHalf];
+    }
+    final double[][] half = _half;
+    BatchRandomNumberGenerator.fill(_underlying, half);
+    final int nbPair = nbPath / 2;
+    for (int d = 0; d < dimension; d++) {
+      final double[] row = paths[d];
+      final double[] halfRow = half[d];
+      System.arraycopy(halfRow, 0, row, 0, nbHalf);
+      for (int looppath = 0; looppath < nbPair; looppath++) {
+        row[nbHalf + looppath] = -halfRow[looppath];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Base class for a {@link RandomNumberGenerator} that can write its numbers into arrays supplied by the caller, so that a simulation can reuse its buffers.
+ * <p>
+ * A block of Monte Carlo paths is filled with {@link #fillPaths}, which sees the whole block at once. For a pseudo-random generator this is the same as filling each row in turn; quasi-random
+ * generators and variance reduction wrappers override it to treat the rows as the dimensions of one point per path.
+ */
+public abstract class BatchRandomNumberGenerator implements RandomNumberGenerator {
+
+  /**
+   * Fills an array with the numbers that {@link #getVector} would return for a dimension of the array length.
+   * 
+   * @param result the array to fill, not null
+   */
+  public abstract void fill(double[] result);
+
+  /**
+   * Fills a block of paths. Each row of the array is a dimension and each column a path. All of the rows must be the same length.
+   * <p>
+   * This implementation fills each row in turn.
+   * 
+   * @param paths the array to fill, dimension/path, not null
+   */
+  public void fillPaths(final double[][] paths) {
+    ArgumentChecker.notNull(paths, "paths");
+    for (final double[] row : paths) {
+      fill(row);
+    }
+  }
+
+  /**
+   * Fills a block of paths from any generator. A {@link BatchRandomNumberGenerator} fills the block with {@link #fillPaths}; any other generator fills each row from {@link #getVector}.
+   * 
+   * @param generator the generator, not null
+   * @param paths the array to fill, dimension/path, not null
+   */
+  public static void fill(final RandomNumberGenerator generator, final double[][] paths) {
+    if (generator instanceof BatchRandomNumberGenerator) {
+      ((BatchRandomNumberGenerator) generator).fillPaths(paths);
+    } else {
+      for (final double[] row : paths) {
+        System.arraycopy(generator.getVector(row.length), 0, row, 0, row.length);
+      }
+    }
+  }
+
+  /**
+   * Fills an array from any generator with the numbers that {@link RandomNumberGenerator#getVector} would return for a dimension of the array length. A {@link BatchRandomNumberGenerator} fills the
+   * array with {@link #fill(double[])}.
+   * 
+   * @param generator the generator, not null
+   * @param result the array to fill, not null
+   */
+  public static void fill(final RandomNumberGenerator generator, final double[] result) {
+    if (generator instanceof BatchRandomNumberGenerator) {
+      ((BatchRandomNumberGenerator) generator).fill(result);
+    } else {
+      System.arraycopy(generator.getVector(result.length), 0, result, 0, result.length);
+    }
+  }
+
+  @Override
+  public double[] getVector(final int dimension) {
+    ArgumentChecker.notNegative(dimension, "dimension");
+    final double[] result = new double[dimension];
+    fill(result);
+    return result;
+  }
+
+  @Override
+  public List<double[]> getVectors(final int dimension, final int n) {
+    ArgumentChecker.notNegative(dimension, "dimension");
+    ArgumentChecker.notNegative(n, "n");
+    final List<double[]> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      result.add(getVector(dimension));
+    }
+    return result;
+  }
+
+}
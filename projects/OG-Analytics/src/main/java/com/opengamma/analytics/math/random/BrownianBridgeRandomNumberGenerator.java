@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Standard normal increments built with a Brownian bridge from the numbers of an underlying standard normal generator.
+ * <p>
+ * The rows of a block of paths are taken as steps, with the factor index varying fastest: row i * nbFactor + f is the step i of the factor f. For each factor, the underlying numbers are used in
+ * order of importance: the first one sets the Brownian motion at the last step, the next the middle step, and so on by bisection. The increments of that Brownian motion over unit steps are
+ * returned. They are independent standard normal variables, like the underlying numbers, so the generator can replace any normal generator; with a low-discrepancy underlying generator, such as
+ * {@link SobolNormalRandomNumberGenerator}, the best distributed dimensions then drive the large scale shape of the paths.
+ */
+public class BrownianBridgeRandomNumberGenerator extends BatchRandomNumberGenerator {
+
+  /**
+   * The underlying generator.
+   */
+  private final RandomNumberGenerator _underlying;
+  /**
+   * The number of factors.
+   */
+  private final int _nbFactor;
+  /**
+   * The bridge for the last number of steps used.
+   */
+  private Bridge _bridge;
+  /**
+   * The underlying numbers, reused from one block to the next. dimension/path
+   */
+  private double[][] _z;
+
+  /**
+   * Creates a bridge for a single factor.
+   * 
+   * @param underlying the underlying standard normal generator, not null
+   */
+  public BrownianBridgeRandomNumberGenerator(final RandomNumberGenerator underlying) {
+    this(underlying, 1);
+  }
+
+  /**
+   * Creates a bridge for several factors.
+   * 
+   * @param underlying the underlying standard normal generator, not null
+   * @param nbFactor the number of factors, greater than zero
+   */
+  public BrownianBridgeRandomNumberGenerator(final RandomNumberGenerator underlying, final int nbFactor) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNegativeOrZero(nbFactor, "nbFactor");
+    _underlying = underlying;
+    _nbFactor = nbFactor;
+  }
+
+  /**
+   * Gets the underlying generator.
+   * 
+   * @return the generator
+   */
+  public RandomNumberGenerator getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Gets the number of factors.
+   * 
+   * @return the number of factors
+   */
+  public int getNbFactor() {
+    return _nbFactor;
+  }
+
+  @Override
+  public void fill(final double[] result) {
+    final double[][] paths = new double[result.length][1];
+    fillPaths(paths);
+    for (int i = 0; i < result.length; i++) {
+      result[i] = paths[i][0];
+    }
+  }
+
+  @Override
+  public void fillPaths(final double[][] paths) {
+    ArgumentChecker.notNull(paths, "paths");
+    final int dimension = paths.length;
+    ArgumentChecker.isTrue(dimension % _nbFactor == 0, "Dimension {} is not a multiple of the number of factors {}", dimension, _nbFactor);
+    if (dimension == 0) {
+      return;
+    }
+    final int nbPath = paths[0].length;
+    if ((_z == null) || (_z.length != dimension) || (_z[0].length != nbPath)) {
+      _z = new double[dimension][nbPath];
+    }
+    BatchRandomNumberGenerator.fill(_underlying, _z);
+    final int nbStep = dimension / _nbFactor;
+    if ((_bridge == null) || (_bridge._bridgeIndex.length != nbStep)) {
+      _bridge = new Bridge(nbStep);
+    }
+    for (int loopfact = 0; loopfact < _nbFactor; loopfact++) {
+      _bridge.transform(_z, paths, loopfact, _nbFactor, nbPath);
+    }
+  }
+
+  /**
+   * The bridge construction on unit steps (Jackel, Monte Carlo methods in finance, chapter 10). The step i ends at the time i + 1.
+   */
+  private static final class Bridge {
+
+    private final int[] _bridgeIndex;
+    private final int[] _leftIndex;
+    private final int[] _rightIndex;
+    private final double[] _leftWeight;
+    private final double[] _rightWeight;
+    private final double[] _stdDev;
+
+    public Bridge(final int nbStep) {
+      _bridgeIndex = new int[nbStep];
+      _leftIndex = new int[nbStep];
+      _rightIndex = new int[nbStep];
+      _leftWeight = new double[nbStep];
+      _rightWeight = new double[nbStep];
+      _stdDev = new double[nbStep];
+      // The order in which the steps are set; 0 for a step not set yet
+      final int[] map = new int[nbStep];
+      map[nbStep - 1] = 1;
+      _bridgeIndex[0] = nbStep - 1;
+      _stdDev[0] = Math.sqrt(nbStep);
+      int j = 0;
+      for (int i = 1; i < nbStep; i++) {
+        // Find the next gap: j the first step not set, k the step setting its right end
+        while (map[j] != 0) {
+          j++;
+        }
+        int k = j;
+        while (map[k] == 0) {
+          k++;
+        }
+        final int l = j + ((k - 1 - j) >> 1);
+        map[l] = i;
+        _bridgeIndex[i] = l;
+        _leftIndex[i] = j;
+        _rightIndex[i] = k;
+        // The left end is the time j, the end of the step j - 1, or the start
+        final double tLeft = j;
+        final double tMid = l + 1;
+        final double tRight = k + 1;
+        _leftWeight[i] = (tRight - tMid) / (tRight - tLeft);
+        _rightWeight[i] = (tMid - tLeft) / (tRight - tLeft);
+        _stdDev[i] = Math.sqrt((tMid - tLeft) * (tRight - tMid) / (tRight - tLeft));
+        j = k + 1;
+        if (j >= nbStep) {
+          j = 0;
+        }
+      }
+    }
+
+    /**
+     * Builds the increments of one factor.
+     * 
+     * @param z the underlying numbers, dimension/path
+     * @param paths the increments, dimension/path
+     * @param factor the factor
+     * @param nbFactor the number of factors
+     * @param nbPath the number of paths
+     */
+    public void transform(final double[][] z, final double[][] paths, final int factor, final int nbFactor, final int nbPath) {
+      final int nbStep = _bridgeIndex.length;
+      // The Brownian motion at the end of each step, then its increments
+      final double[] last = paths[(nbStep - 1) * nbFactor + factor];
+      final double[] z0 = z[factor];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        last[looppath] = _stdDev[0] * z0[looppath];
+      }
+      for (int i = 1; i < nbStep; i++) {
+        final double[] w = paths[_bridgeIndex[i] * nbFactor + factor];
+        final double[] right = paths[_rightIndex[i] * nbFactor + factor];
+        final double[] zi = z[i * nbFactor + factor];
+        final double rightWeight = _rightWeight[i];
+        final double stdDev = _stdDev[i];
+        if (_leftIndex[i] != 0) {
+          final double[] left = paths[(_leftIndex[i] - 1) * nbFactor + factor];
+          final double leftWeight = _leftWeight[i];
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            w[looppath] = leftWeight * left[looppath] + rightWeight * right[looppath] + stdDev * zi[looppath];
+          }
+        } else {
+          for (int looppath = 0; looppath < nbPath; looppath++) {
+            w[looppath] = rightWeight * right[looppath] + stdDev * zi[looppath];
+          }
+        }
+      }
+      for (int i = nbStep - 1; i > 0; i--) {
+        final double[] w = paths[i * nbFactor + factor];
+        final double[] previous = paths[(i - 1) * nbFactor + factor];
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          w[looppath] -= previous[looppath];
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Moment matching for standard normal numbers. When a block of paths is filled, each dimension is shifted and scaled over the paths so that its sample mean is exactly zero and its sample standard
+ * deviation exactly one. This removes the error of the first two moments from any price that is linear in them, acting as a control variate on the numbers themselves. The paths of a block are then
+ * no longer independent, so the standard error estimated from blocks is slightly biased.
+ * <p>
+ * Vectors requested one at a time, or blocks of fewer than two paths, are returned unchanged.
+ */
+public class MomentMatchingRandomNumberGenerator extends BatchRandomNumberGenerator {
+
+  /**
+   * The underlying generator.
+   */
+  private final RandomNumberGenerator _underlying;
+
+  /**
+   * Creates an instance.
+   * 
+   * @param underlying the underlying standard normal generator, not null
+   */
+  public MomentMatchingRandomNumberGenerator(final RandomNumberGenerator underlying) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    _underlying = underlying;
+  }
+
+  /**
+   * Gets the underlying generator.
+   * 
+   * @return the generator
+   */
+  public RandomNumberGenerator getUnderlying() {
+    return _underlying;
+  }
+
+  @Override
+  public void fill(final double[] result) {
+    BatchRandomNumberGenerator.fill(_underlying, result);
+  }
+
+  @Override
+  public void fillPaths(final double[][] paths) {
+    ArgumentChecker.notNull(paths, "paths");
+    BatchRandomNumberGenerator.fill(_underlying, paths);
+    for (final double[] row : paths) {
+      final int nbPath = row.length;
+      if (nbPath < 2) {
+        continue;
+      }
+      double sum = 0;
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        sum += row[looppath];
+      }
+      final double mean = sum / nbPath;
+      double sum2 = 0;
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        final double x = row[looppath] - mean;
+        sum2 += x * x;
+      }
+      final double scale = (sum2 > 0.0) ? 1.0 / Math.sqrt(sum2 / (nbPath - 1)) : 1.0;
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        row[looppath] = (row[looppath] - mean) * scale;
+      }
+    }
+  }
+
+}
@@ -19,7 +19,7 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * 
  */
-public class NormalRandomNumberGenerator implements RandomNumberGenerator {
+public class NormalRandomNumberGenerator extends BatchRandomNumberGenerator {
   private final ProbabilityDistribution<Double> _normal;
 
   public NormalRandomNumberGenerator(final double mean, final double sigma) {
@@ -33,6 +33,13 @@ public class NormalRandomNumberGenerator implements RandomNumberGenerator {
     _normal = new NormalDistribution(mean, sigma, engine);
   }
 
+  @Override
+  public void fill(final double[] result) {
+    for (int i = 0; i < result.length; i++) {
+      result[i] = _normal.nextRandom();
+    }
+  }
+
   @Override
   public double[] getVector(final int dimension) {
     ArgumentChecker.notNegative(dimension, "dimension");
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import cern.jet.random.engine.MersenneTwister64;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Substreams of normally distributed numbers. Each substream is a {@link NormalRandomNumberGenerator} driven by a Mersenne twister whose seed is derived from the family seed and the substream
+ * index with the SplitMix64 finalizer, so neighbouring indices give unrelated seeds.
+ */
+public class NormalRandomNumberGeneratorSubstreams implements RandomNumberGeneratorSubstreams {
+
+  private final long _seed;
+  private final double _mean;
+  private final double _sigma;
+
+  /**
+   * Creates standard normal substreams.
+   * 
+   * @param seed the seed of the family
+   */
+  public NormalRandomNumberGeneratorSubstreams(final long seed) {
+    this(seed, 0.0, 1.0);
+  }
+
+  /**
+   * @param seed the seed of the family
+   * @param mean the mean of the distribution
+   * @param sigma the standard deviation of the distribution, greater than zero
+   */
+  public NormalRandomNumberGeneratorSubstreams(final long seed, final double mean, final double sigma) {
+    ArgumentChecker.notNegativeOrZero(sigma, "standard deviation");
+    _seed = seed;
+    _mean = mean;
+    _sigma = sigma;
+  }
+
+  /**
+   * Gets the seed of the family.
+   * 
+   * @return the seed
+   */
+  public long getSeed() {
+    return _seed;
+  }
+
+  /**
+   * Gets the seed used for the generator of a substream.
+   * 
+   * @param index the substream index
+   * @return the seed
+   */
+  protected int getSubstreamSeed(final long index) {
+    long z = _seed + (index + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (int) (z ^ (z >>> 32));
+  }
+
+  @Override
+  public RandomNumberGenerator getSubstream(final long index) {
+    ArgumentChecker.notNegative(index, "index");
+    return new NormalRandomNumberGenerator(_mean, _sigma, new MersenneTwister64(getSubstreamSeed(index)));
+  }
+
+}
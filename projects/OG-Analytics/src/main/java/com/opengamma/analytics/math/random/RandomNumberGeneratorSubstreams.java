@@ -0,0 +1,22 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+/**
+ * A family of independent random number generators, identified by an index. The numbers produced by a substream depend only on the family and the index, so work divided into numbered pieces
+ * gives the same results however the pieces are distributed between threads.
+ */
+public interface RandomNumberGeneratorSubstreams {
+
+  /**
+   * Creates a new generator for a substream. Each call returns a new generator, positioned at the start of the substream.
+   * 
+   * @param index the substream index, not negative
+   * @return the generator, not null
+   */
+  RandomNumberGenerator getSubstream(long index);
+
+}
@@ -0,0 +1,301 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cern.jet.stat.Probability;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Standard normal numbers from a Sobol low-discrepancy sequence, mapped through the inverse normal distribution.
+ * <p>
+ * Each call to {@link #getVector} or {@link #fill} returns the next point of the sequence in the requested dimension; {@link #fillPaths} writes one point per path, the rows being the dimensions.
+ * The points are generated in Gray code order (Antonov-Saleev) with 32 bit direction numbers, starting after the origin. The primitive polynomials are taken in order of degree, and the initial
+ * direction numbers are those of Joe and Kuo for the first dimensions and a fixed pseudo-random choice beyond them, so any dimension can be used.
+ * <p>
+ * The numbers from a Sobol sequence are not independent draws; the sequence should be used with the dimension matching the number of random factors of a path.
+ */
+public class SobolNormalRandomNumberGenerator extends BatchRandomNumberGenerator {
+
+  /**
+   * The number of bits in the direction numbers.
+   */
+  private static final int BITS = 32;
+  /**
+   * The scale converting a 32 bit point coordinate to a uniform number in (0, 1).
+   */
+  private static final double SCALE = 1.0 / (1L << BITS);
+  /**
+   * The initial direction numbers m_1 ... m_s for the dimensions following the first, from Joe and Kuo's new-joe-kuo-6.21201 table. Each row matches the primitive polynomial of the same position in
+   * the degree ordered enumeration.
+   */
+  private static final int[][] INITIAL_DIRECTIONS = new int[][] {
+    {1 }, {1, 3 }, {1, 3, 1 }, {1, 1, 1 }, {1, 1, 3, 3 }, {1, 3, 5, 13 }, {1, 1, 5, 5, 17 }, {1, 1, 5, 5, 5 }, {1, 1, 7, 11, 19 }, {1, 1, 5, 1, 1 }, {1, 1, 1, 3, 11 }, {1, 3, 5, 5, 31 },
+    {1, 3, 3, 9, 7, 49 }, {1, 1, 1, 15, 21, 21 }, {1, 3, 1, 13, 27, 49 }, {1, 1, 1, 15, 7, 5 }, {1, 3, 1, 15, 13, 25 }, {1, 1, 5, 5, 19, 61 }, {1, 3, 7, 11, 23, 15, 103 },
+    {1, 3, 7, 13, 13, 15, 69 } };
+
+  /**
+   * The direction numbers computed so far, dimension/bit. Extended, and replaced, when a larger dimension is needed.
+   */
+  private static volatile int[][] s_directions = new int[0][];
+  /**
+   * The primitive polynomials used so far, as bit masks including the leading and constant terms.
+   */
+  private static final List<Integer> s_polynomials = new ArrayList<>();
+
+  /**
+   * The index of the last point returned.
+   */
+  private long _index;
+  /**
+   * The coordinates of the last point returned.
+   */
+  private int[] _point = new int[0];
+
+  /**
+   * Creates a generator starting at the first point after the origin.
+   */
+  public SobolNormalRandomNumberGenerator() {
+    this(0);
+  }
+
+  /**
+   * Creates a generator starting after a number of points. The skipped points are not generated, so a generator for a distant part of the sequence is cheap.
+   *
+   * @param skip the number of points after the origin to skip, not negative
+   */
+  public SobolNormalRandomNumberGenerator(final long skip) {
+    ArgumentChecker.notNegative(skip, "skip");
+    ArgumentChecker.isTrue(skip < (1L << BITS) - 1, "skip");
+    _index = skip;
+  }
+
+  /**
+   * Gets the index of the last point returned, zero if none has been.
+   *
+   * @return the index
+   */
+  public long getIndex() {
+    return _index;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the direction numbers for at least the given dimension.
+   *
+   * @param dimension the dimension
+   * @return the direction numbers, dimension/bit
+   */
+  private static int[][] getDirections(final int dimension) {
+    int[][] directions = s_directions;
+    if (directions.length >= dimension) {
+      return directions;
+    }
+    synchronized (s_polynomials) {
+      directions = s_directions;
+      if (directions.length >= dimension) {
+        return directions;
+      }
+      final int[][] newDirections = new int[dimension][];
+      System.arraycopy(directions, 0, newDirections, 0, directions.length);
+      for (int d = directions.length; d < dimension; d++) {
+        newDirections[d] = createDirections(d);
+      }
+      s_directions = newDirections;
+      return newDirections;
+    }
+  }
+
+  /**
+   * Creates the direction numbers for a dimension. Must be called for each dimension in turn.
+   *
+   * @param dimension the zero based dimension
+   * @return the direction numbers
+   */
+  private static int[] createDirections(final int dimension) {
+    final int[] v = new int[BITS];
+    if (dimension == 0) {
+      for (int i = 0; i < BITS; i++) {
+        v[i] = 1 << (BITS - 1 - i);
+      }
+      return v;
+    }
+    final int polynomial = nextPrimitivePolynomial();
+    final int s = 31 - Integer.numberOfLeadingZeros(polynomial);
+    final int a = (polynomial >> 1) & ((1 << (s - 1)) - 1);
+    final int[] m = new int[s];
+    if (dimension <= INITIAL_DIRECTIONS.length) {
+      System.arraycopy(INITIAL_DIRECTIONS[dimension - 1], 0, m, 0, s);
+    } else {
+      // Odd numbers m_k < 2^k from a fixed linear congruential sequence
+      long seed = dimension;
+      for (int k = 0; k < s; k++) {
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+        m[k] = ((int) (seed >>> 33) & ((1 << (k + 1)) - 1)) | 1;
+      }
+    }
+    for (int i = 0; i < Math.min(s, BITS); i++) {
+      v[i] = m[i] << (BITS - 1 - i);
+    }
+    for (int i = s; i < BITS; i++) {
+      v[i] = v[i - s] ^ (v[i - s] >>> s);
+      for (int k = 1; k < s; k++) {
+        if (((a >> (s - 1 - k)) & 1) != 0) {
+          v[i] ^= v[i - k];
+        }
+      }
+    }
+    return v;
+  }
+
+  /**
+   * Finds the next primitive polynomial over GF(2), in order of degree and then of the middle coefficients.
+   *
+   * @return the polynomial as a bit mask
+   */
+  private static int nextPrimitivePolynomial() {
+    int candidate;
+    if (s_polynomials.isEmpty()) {
+      candidate = 3; // x + 1
+    } else {
+      candidate = s_polynomials.get(s_polynomials.size() - 1) + 2;
+    }
+    while (!isPrimitive(candidate)) {
+      candidate += 2;
+    }
+    s_polynomials.add(candidate);
+    return candidate;
+  }
+
+  /**
+   * Tests whether a polynomial with a constant term is primitive, that is x has order 2^s - 1 modulo the polynomial of degree s.
+   *
+   * @param polynomial the polynomial as a bit mask
+   * @return true if the polynomial is primitive
+   */
+  private static boolean isPrimitive(final int polynomial) {
+    final int degree = 31 - Integer.numberOfLeadingZeros(polynomial);
+    if (degree == 1) {
+      return true;
+    }
+    final long order = (1L << degree) - 1;
+    if (multiplyPower(2, order, polynomial, degree) != 1) {
+      return false;
+    }
+    long remaining = order;
+    for (long factor = 2; factor * factor <= remaining; factor++) {
+      if (remaining % factor == 0) {
+        if (multiplyPower(2, order / factor, polynomial, degree) == 1) {
+          return false;
+        }
+        while (remaining % factor == 0) {
+          remaining /= factor;
+        }
+      }
+    }
+    return (remaining == 1) || (multiplyPower(2, order / remaining, polynomial, degree) != 1);
+  }
+
+  /**
+   * Raises a polynomial to a power modulo another, over GF(2).
+   *
+   * @param base the polynomial to raise, of lower degree than the modulus
+   * @param exponent the power
+   * @param modulus the modulus
+   * @param degree the degree of the modulus
+   * @return the result
+   */
+  private static long multiplyPower(final long base, final long exponent, final int modulus, final int degree) {
+    long result = 1;
+    long square = base;
+    long e = exponent;
+    while (e > 0) {
+      if ((e & 1) != 0) {
+        result = multiply(result, square, modulus, degree);
+      }
+      square = multiply(square, square, modulus, degree);
+      e >>= 1;
+    }
+    return result;
+  }
+
+  private static long multiply(final long a, final long b, final int modulus, final int degree) {
+    long product = 0;
+    for (int i = 0; i < degree; i++) {
+      if (((b >> i) & 1) != 0) {
+        product ^= a << i;
+      }
+    }
+    for (int i = 2 * degree - 2; i >= degree; i--) {
+      if (((product >> i) & 1) != 0) {
+        product ^= ((long) modulus) << (i - degree);
+      }
+    }
+    return product;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Moves to the next point, in the given dimension.
+   *
+   * @param dimension the dimension
+   * @return the coordinates of the point
+   */
+  private int[] nextPoint(final int dimension) {
+    final int[][] directions = getDirections(dimension);
+    if (_point.length != dimension) {
+      // Compute the point directly from the Gray code of its index
+      _point = new int[dimension];
+      final long gray = _index ^ (_index >>> 1);
+      for (int bit = 0; bit < BITS; bit++) {
+        if (((gray >>> bit) & 1) != 0) {
+          for (int d = 0; d < dimension; d++) {
+            _point[d] ^= directions[d][bit];
+          }
+        }
+      }
+    }
+    _index++;
+    ArgumentChecker.isTrue(_index < (1L << BITS), "Sobol sequence exhausted");
+    final int bit = Long.numberOfTrailingZeros(_index);
+    for (int d = 0; d < dimension; d++) {
+      _point[d] ^= directions[d][bit];
+    }
+    return _point;
+  }
+
+  private static double toNormal(final int coordinate) {
+    return Probability.normalInverse((coordinate & 0xFFFFFFFFL) * SCALE);
+  }
+
+  @Override
+  public void fill(final double[] result) {
+    final int[] point = nextPoint(result.length);
+    for (int d = 0; d < result.length; d++) {
+      result[d] = toNormal(point[d]);
+    }
+  }
+
+  @Override
+  public void fillPaths(final double[][] paths) {
+    ArgumentChecker.notNull(paths, "paths");
+    final int dimension = paths.length;
+    if (dimension == 0) {
+      return;
+    }
+    final int nbPath = paths[0].length;
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      final int[] point = nextPoint(dimension);
+      for (int d = 0; d < dimension; d++) {
+        paths[d][looppath] = toNormal(point[d]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Substreams of a Sobol sequence. The substream i is the run of points starting after i times the number of points per substream, so the substreams taken in order are the sequence itself and a
+ * simulation run in blocks keeps the low discrepancy of the whole sequence. This only holds if each block uses exactly the number of points per substream; for
+ * {@code MonteCarloMethod} that is its {@code BLOCK_SIZE}, which it checks.
+ * <p>
+ * The points of the sequence are not random, so the blocks are not independent samples and the spread of the block averages is not a valid estimate of the error. A simulation stopped early on that
+ * estimate may stop too soon or too late; use a fixed number of paths with these substreams.
+ */
+public class SobolNormalRandomNumberGeneratorSubstreams implements RandomNumberGeneratorSubstreams {
+
+  private final int _pointsPerSubstream;
+
+  /**
+   * Creates the substreams.
+   * 
+   * @param pointsPerSubstream the number of points in each substream, typically the number of paths in a block, greater than zero
+   */
+  public SobolNormalRandomNumberGeneratorSubstreams(final int pointsPerSubstream) {
+    ArgumentChecker.notNegativeOrZero(pointsPerSubstream, "pointsPerSubstream");
+    _pointsPerSubstream = pointsPerSubstream;
+  }
+
+  /**
+   * Gets the number of points in each substream.
+   * 
+   * @return the number of points
+   */
+  public int getPointsPerSubstream() {
+    return _pointsPerSubstream;
+  }
+
+  @Override
+  public RandomNumberGenerator getSubstream(final long index) {
+    ArgumentChecker.notNegative(index, "index");
+    return new SobolNormalRandomNumberGenerator(index * _pointsPerSubstream);
+  }
+
+}
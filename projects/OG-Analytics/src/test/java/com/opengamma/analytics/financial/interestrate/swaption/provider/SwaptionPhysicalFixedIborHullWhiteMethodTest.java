@@ -8,6 +8,8 @@ package com.opengamma.analytics.financial.interestrate.swaption.provider;
 import static org.testng.AssertJUnit.assertEquals;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.testng.annotations.Test;
 import org.threeten.bp.Period;
@@ -32,6 +34,7 @@ import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.N
 import com.opengamma.analytics.financial.model.volatility.BlackImpliedVolatilityFormula;
 import com.opengamma.analytics.financial.model.volatility.NormalImpliedVolatilityFormula;
 import com.opengamma.analytics.financial.montecarlo.provider.HullWhiteMonteCarloMethod;
+import com.opengamma.analytics.financial.montecarlo.provider.MonteCarloMethod;
 import com.opengamma.analytics.financial.provider.calculator.discounting.CashFlowEquivalentCalculator;
 import com.opengamma.analytics.financial.provider.calculator.discounting.ParRateDiscountingCalculator;
 import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueCurveSensitivityDiscountingCalculator;
@@ -49,7 +52,11 @@ import com.opengamma.analytics.financial.provider.sensitivity.multicurve.Multipl
 import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator;
 import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
 import com.opengamma.analytics.financial.util.AssertSensitivityObjects;
+import com.opengamma.analytics.math.random.BrownianBridgeRandomNumberGenerator;
 import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.NormalRandomNumberGeneratorSubstreams;
+import com.opengamma.analytics.math.random.SobolNormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.SobolNormalRandomNumberGeneratorSubstreams;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
 import com.opengamma.financial.convention.calendar.Calendar;
@@ -271,6 +278,65 @@ public class SwaptionPhysicalFixedIborHullWhiteMethodTest {
     assertEquals("Swaption physical - Hull-White - Monte Carlo - payer/receiver/swap parity", pvReceiverLongMC.getAmount(EUR) + pvPayerShortMC.getAmount(EUR), pvSwap.getAmount(EUR), 1.0E+5);
   }
 
+  @Test
+  /**
+   * Tests that the Monte-Carlo with substreams gives the same result whatever the number of threads, with and without early stop.
+   */
+  public void presentValueMonteCarloParallel() {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final HullWhiteMonteCarloMethod methodSerial = new HullWhiteMonteCarloMethod(new NormalRandomNumberGeneratorSubstreams(1234L), NB_PATH, null, 0.0);
+      final HullWhiteMonteCarloMethod methodParallel = new HullWhiteMonteCarloMethod(new NormalRandomNumberGeneratorSubstreams(1234L), NB_PATH, executor, 0.0);
+      final MultipleCurrencyAmount pvExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+      final MultipleCurrencyAmount pvSerial = methodSerial.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      final MultipleCurrencyAmount pvParallel = methodParallel.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo", pvExplicit.getAmount(EUR), pvSerial.getAmount(EUR), 1.0E+4);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo - parallel", pvSerial.getAmount(EUR), pvParallel.getAmount(EUR), 0.0);
+      final MultipleCurrencyMulticurveSensitivity pvcsSerial = methodSerial.presentValueCurveSensitivity(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      final MultipleCurrencyMulticurveSensitivity pvcsParallel = methodParallel.presentValueCurveSensitivity(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      AssertSensitivityObjects.assertEquals("Swaption physical - Hull-White - Monte Carlo - parallel", pvcsSerial, pvcsParallel, 1.0E-6);
+      final HullWhiteMonteCarloMethod methodStopSerial = new HullWhiteMonteCarloMethod(new NormalRandomNumberGeneratorSubstreams(1234L), 10 * NB_PATH, null, 2.5E-3);
+      final HullWhiteMonteCarloMethod methodStopParallel = new HullWhiteMonteCarloMethod(new NormalRandomNumberGeneratorSubstreams(1234L), 10 * NB_PATH, executor, 2.5E-3);
+      final MultipleCurrencyAmount pvStopSerial = methodStopSerial.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      final MultipleCurrencyAmount pvStopParallel = methodStopParallel.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo - early stop", pvExplicit.getAmount(EUR), pvStopSerial.getAmount(EUR), 5.0E+4);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo - early stop parallel", pvStopSerial.getAmount(EUR), pvStopParallel.getAmount(EUR), 0.0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  /**
+   * Tests the present value with quasi-random numbers: a Sobol sequence with a Brownian bridge, as a single sequence and as substreams run in parallel.
+   */
+  public void presentValueMonteCarloQuasiRandom() {
+    final MultipleCurrencyAmount pvExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+    final HullWhiteMonteCarloMethod methodSobol = new HullWhiteMonteCarloMethod(new BrownianBridgeRandomNumberGenerator(new SobolNormalRandomNumberGenerator()), NB_PATH);
+    final MultipleCurrencyAmount pvSobol = methodSobol.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo - Sobol", pvExplicit.getAmount(EUR), pvSobol.getAmount(EUR), 1.0E+4);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      // One substream per block of paths: the substreams taken in order are the Sobol sequence
+      final HullWhiteMonteCarloMethod methodSerial = new HullWhiteMonteCarloMethod(new SobolNormalRandomNumberGeneratorSubstreams(MonteCarloMethod.BLOCK_SIZE), NB_PATH, null, 0.0);
+      final HullWhiteMonteCarloMethod methodParallel = new HullWhiteMonteCarloMethod(new SobolNormalRandomNumberGeneratorSubstreams(MonteCarloMethod.BLOCK_SIZE), NB_PATH, executor, 0.0);
+      final MultipleCurrencyAmount pvSerial = methodSerial.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      final MultipleCurrencyAmount pvParallel = methodParallel.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo - Sobol substreams", pvExplicit.getAmount(EUR), pvSerial.getAmount(EUR), 1.0E+4);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo - Sobol substreams parallel", pvSerial.getAmount(EUR), pvParallel.getAmount(EUR), 0.0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  /**
+   * Tests that Sobol substreams must match the block size.
+   */
+  public void sobolSubstreamsBlockSize() {
+    new HullWhiteMonteCarloMethod(new SobolNormalRandomNumberGeneratorSubstreams(MonteCarloMethod.BLOCK_SIZE / 2), NB_PATH, null, 0.0);
+  }
+
   @Test
   /**
    * Tests the Hull-White parameters sensitivity for the explicit formula.
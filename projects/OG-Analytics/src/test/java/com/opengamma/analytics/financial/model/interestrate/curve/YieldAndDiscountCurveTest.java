@@ -206,4 +206,20 @@ public class YieldAndDiscountCurveTest {
     assertArrayEquals("YieldPeriodicCurve.fromYieldsInterpolated", TIME, curveInt.getXDataAsPrimitive(), TOLERANCE_RATE);
   }
 
+  @Test
+  /**
+   * Tests the discount factors at an array of times.
+   */
+  public void discountFactors() {
+    final double[] times = new double[] {1.0, 1.25, 1.25, 2.0, 2.75, 3.0, 1.5 };
+    final YieldAndDiscountCurve[] curves = new YieldAndDiscountCurve[] {YIELD, DISCOUNT, YIELD_PERIODIC };
+    for (final YieldAndDiscountCurve curve : curves) {
+      final double[] df = new double[times.length];
+      curve.getDiscountFactors(times, df);
+      for (int loopt = 0; loopt < times.length; loopt++) {
+        assertEquals("YieldAndDiscountCurve: getDiscountFactors", curve.getDiscountFactor(times[loopt]), df[loopt], TOLERANCE_PV);
+      }
+    }
+  }
+
 }
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.internal.junit.ArrayAsserts.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.DenseMulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ForwardSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.SimplyCompoundedForwardSensitivity;
+import com.opengamma.analytics.financial.util.AssertSensitivityObjects;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Tests the DenseMulticurveSensitivity class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class DenseMulticurveSensitivityTest {
+
+  private static final List<DoublesPair> SENSI_DATA_1 = Arrays.asList(new DoublesPair[] {DoublesPair.of(1d, 10d), DoublesPair.of(2d, 20d), DoublesPair.of(3d, 30d), DoublesPair.of(4d, 40d) });
+  private static final List<DoublesPair> SENSI_DATA_2 = Arrays.asList(new DoublesPair[] {DoublesPair.of(3d, 40d), DoublesPair.of(1.5d, 30d), DoublesPair.of(3d, 20d), DoublesPair.of(5d, 10d) });
+  private static final List<ForwardSensitivity> SENSI_FWD_1 = new ArrayList<>();
+  private static final List<ForwardSensitivity> SENSI_FWD_2 = new ArrayList<>();
+  static {
+    SENSI_FWD_1.add(new SimplyCompoundedForwardSensitivity(0.5, 0.75, 0.26, 11));
+    SENSI_FWD_1.add(new SimplyCompoundedForwardSensitivity(0.75, 1.00, 0.26, 12));
+    SENSI_FWD_1.add(new SimplyCompoundedForwardSensitivity(1.00, 1.25, 0.24, 13));
+    SENSI_FWD_2.add(new SimplyCompoundedForwardSensitivity(1.00, 1.25, 0.24, 14));
+    SENSI_FWD_2.add(new SimplyCompoundedForwardSensitivity(0.25, 0.50, 0.25, 15));
+    SENSI_FWD_2.add(new SimplyCompoundedForwardSensitivity(0.75, 1.00, 0.26, 16));
+  }
+  private static final String CURVE_NAME_1 = "A";
+  private static final String CURVE_NAME_2 = "B";
+
+  private static final MultipleCurrencyMulticurveSensitivity SENSI_1;
+  private static final MultipleCurrencyMulticurveSensitivity SENSI_2;
+  static {
+    final Map<String, List<DoublesPair>> dsc1 = new HashMap<>();
+    dsc1.put(CURVE_NAME_1, SENSI_DATA_1);
+    final Map<String, List<ForwardSensitivity>> fwd1 = new HashMap<>();
+    fwd1.put(CURVE_NAME_2, SENSI_FWD_1);
+    SENSI_1 = MultipleCurrencyMulticurveSensitivity.of(Currency.EUR, MulticurveSensitivity.of(dsc1, fwd1));
+    final Map<String, List<DoublesPair>> dsc2 = new HashMap<>();
+    dsc2.put(CURVE_NAME_1, SENSI_DATA_2);
+    final Map<String, List<ForwardSensitivity>> fwd2 = new HashMap<>();
+    fwd2.put(CURVE_NAME_2, SENSI_FWD_2);
+    SENSI_2 = MultipleCurrencyMulticurveSensitivity.of(Currency.EUR, MulticurveSensitivity.of(dsc2, fwd2)).plus(Currency.USD, MulticurveSensitivity.of(dsc2, fwd2));
+  }
+
+  private static final double TOLERANCE = 1.0E-10;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void nullSensitivity() {
+    DenseMulticurveSensitivity.of(null);
+  }
+
+  @Test
+  public void curveIndex() {
+    final DenseMulticurveSensitivity dense = new DenseMulticurveSensitivity();
+    final int index1 = dense.getCurveIndex(CURVE_NAME_1, Currency.EUR);
+    final int index2 = dense.getCurveIndex(CURVE_NAME_1, Currency.USD);
+    assertEquals("DenseMulticurveSensitivity: curve index", 0, index1);
+    assertEquals("DenseMulticurveSensitivity: curve index", 1, index2);
+    assertEquals("DenseMulticurveSensitivity: curve index", index1, dense.getCurveIndex(CURVE_NAME_1, Currency.EUR));
+    assertEquals("DenseMulticurveSensitivity: curve index", 2, dense.getNumberOfCurves());
+    assertEquals("DenseMulticurveSensitivity: curve index", CURVE_NAME_1, dense.getCurveName(index2));
+    assertEquals("DenseMulticurveSensitivity: curve index", Currency.USD, dense.getCurrency(index2));
+  }
+
+  @Test
+  public void of() {
+    final DenseMulticurveSensitivity dense = DenseMulticurveSensitivity.of(SENSI_2);
+    dense.clean();
+    AssertSensitivityObjects.assertEquals("DenseMulticurveSensitivity: of", SENSI_2.cleaned(), dense.toSensitivity(), TOLERANCE);
+    final int index = dense.getCurveIndex(CURVE_NAME_1, Currency.EUR);
+    assertArrayEquals("DenseMulticurveSensitivity: clean", new double[] {1.5, 3.0, 5.0 }, dense.getRateTimes(index), TOLERANCE);
+    assertArrayEquals("DenseMulticurveSensitivity: clean", new double[] {30.0, 60.0, 10.0 }, dense.getRateValues(index), TOLERANCE);
+  }
+
+  @Test
+  public void addRate() {
+    final DenseMulticurveSensitivity dense = new DenseMulticurveSensitivity();
+    final int index = dense.getCurveIndex(CURVE_NAME_1, Currency.EUR);
+    dense.addRate(index, 1.0, 1.0);
+    dense.addRate(index, 2.0, 2.0);
+    dense.addRate(index, 2.0, 3.0);
+    assertEquals("DenseMulticurveSensitivity: points in order are merged", 2, dense.getNumberOfPoints());
+    dense.addRate(index, 0.5, 4.0);
+    dense.addRate(index, 1.0, 5.0);
+    assertEquals("DenseMulticurveSensitivity: points out of order", 4, dense.getNumberOfPoints());
+    dense.clean();
+    assertArrayEquals("DenseMulticurveSensitivity: clean", new double[] {0.5, 1.0, 2.0 }, dense.getRateTimes(index), TOLERANCE);
+    assertArrayEquals("DenseMulticurveSensitivity: clean", new double[] {4.0, 6.0, 5.0 }, dense.getRateValues(index), TOLERANCE);
+    dense.clear();
+    assertEquals("DenseMulticurveSensitivity: clear", 0, dense.getNumberOfPoints());
+    assertEquals("DenseMulticurveSensitivity: clear", 1, dense.getNumberOfCurves());
+  }
+
+  @Test
+  public void add() {
+    final double factor = -2.5;
+    final MultipleCurrencyMulticurveSensitivity expected = SENSI_1.plus(SENSI_2.multipliedBy(factor)).cleaned();
+    // Both clean: merged in one pass
+    final DenseMulticurveSensitivity dense1 = DenseMulticurveSensitivity.of(SENSI_1);
+    final DenseMulticurveSensitivity dense2 = DenseMulticurveSensitivity.of(SENSI_2);
+    dense2.clean();
+    dense1.add(dense2, factor);
+    dense1.clean();
+    AssertSensitivityObjects.assertEquals("DenseMulticurveSensitivity: add", expected, dense1.toSensitivity(), TOLERANCE);
+    // Not clean: appended
+    final DenseMulticurveSensitivity dense3 = DenseMulticurveSensitivity.of(SENSI_1);
+    dense3.add(DenseMulticurveSensitivity.of(SENSI_2), factor);
+    dense3.clean();
+    AssertSensitivityObjects.assertEquals("DenseMulticurveSensitivity: add", expected, dense3.toSensitivity(), TOLERANCE);
+    // Point sensitivities
+    final DenseMulticurveSensitivity dense4 = DenseMulticurveSensitivity.of(SENSI_1);
+    dense4.add(SENSI_2, factor);
+    dense4.clean();
+    AssertSensitivityObjects.assertEquals("DenseMulticurveSensitivity: add", expected, dense4.toSensitivity(), TOLERANCE);
+  }
+
+  @Test
+  public void addItself() {
+    final DenseMulticurveSensitivity dense = DenseMulticurveSensitivity.of(SENSI_2);
+    dense.add(dense, 2.0);
+    dense.clean();
+    AssertSensitivityObjects.assertEquals("DenseMulticurveSensitivity: add", SENSI_2.multipliedBy(3.0).cleaned(), dense.toSensitivity(), TOLERANCE);
+  }
+
+  @Test
+  public void multiplyBy() {
+    final DenseMulticurveSensitivity dense = DenseMulticurveSensitivity.of(SENSI_2);
+    dense.multiplyBy(1.5);
+    dense.clean();
+    AssertSensitivityObjects.assertEquals("DenseMulticurveSensitivity: multiplyBy", SENSI_2.multipliedBy(1.5).cleaned(), dense.toSensitivity(), TOLERANCE);
+  }
+
+  @Test
+  public void cleanTolerance() {
+    final DenseMulticurveSensitivity dense = DenseMulticurveSensitivity.of(SENSI_1);
+    final int index = dense.getCurveIndex(CURVE_NAME_1, Currency.EUR);
+    dense.addRate(index, 2.0, -20.0);
+    dense.clean(1.0E-8);
+    assertArrayEquals("DenseMulticurveSensitivity: clean", new double[] {1.0, 3.0, 4.0 }, dense.getRateTimes(index), TOLERANCE);
+    assertEquals("DenseMulticurveSensitivity: clean", SENSI_FWD_1.size(), dense.getNumberOfForwardPoints(dense.getCurveIndex(CURVE_NAME_2, Currency.EUR)));
+  }
+
+}
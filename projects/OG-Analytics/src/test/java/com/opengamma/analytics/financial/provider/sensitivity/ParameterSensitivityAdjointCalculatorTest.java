@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.instrument.annuity.AnnuityCouponFixedDefinition;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIborMaster;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedON;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedONMaster;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.index.IndexON;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedONDefinition;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponFixed;
+import com.opengamma.analytics.financial.interestrate.cash.derivative.Cash;
+import com.opengamma.analytics.financial.interestrate.fra.derivative.ForwardRateAgreement;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Coupon;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapFixedCoupon;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueCurveSensitivityAdjointDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueCurveSensitivityDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderForward;
+import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivityTape;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityAdjointCalculator;
+import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator;
+import com.opengamma.analytics.financial.util.AssertSensitivityObjects;
+import com.opengamma.analytics.math.curve.DoublesCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.time.DateUtils;
+
+/**
+ * Tests the computation of parameter sensitivity by algorithmic differentiation in adjoint mode.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ParameterSensitivityAdjointCalculatorTest {
+
+  private static final Calendar NYC = new MondayToFridayCalendar("NYC");
+  private static final GeneratorSwapFixedIbor USD6MLIBOR3M = GeneratorSwapFixedIborMaster.getInstance().getGenerator("USD6MLIBOR3M", NYC);
+  private static final IborIndex USDLIBOR3M = USD6MLIBOR3M.getIborIndex();
+  private static final Currency USD = USD6MLIBOR3M.getCurrency();
+  private static final ZonedDateTime EFFECTIVE_DATE = DateUtils.getUTCDate(2012, 10, 29);
+  private static final double NOTIONAL = 100000000;
+
+  private static final SwapFixedIborDefinition SWAP_DEFINITION = SwapFixedIborDefinition.from(EFFECTIVE_DATE, Period.ofYears(2), USD6MLIBOR3M, NOTIONAL, 0.05, false);
+  private static final AnnuityCouponFixedDefinition ANNUITY_DEFINITION = SWAP_DEFINITION.getFixedLeg();
+  private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2012, 9, 26);
+  private static final SwapFixedCoupon<Coupon> SWAP = SWAP_DEFINITION.toDerivative(REFERENCE_DATE);
+  private static final AnnuityCouponFixed ANNUITY = ANNUITY_DEFINITION.toDerivative(REFERENCE_DATE);
+
+  private static final GeneratorSwapFixedON USD1YFEDFUND = GeneratorSwapFixedONMaster.getInstance().getGenerator("USD1YFEDFUND", NYC);
+  private static final IndexON FEDFUND = USD1YFEDFUND.getIndex();
+  private static final SwapFixedONDefinition OIS_DEFINITION = SwapFixedONDefinition.from(EFFECTIVE_DATE, Period.ofMonths(6), NOTIONAL, USD1YFEDFUND, 0.02, false);
+  private static final SwapFixedCoupon<Coupon> OIS = OIS_DEFINITION.toDerivative(REFERENCE_DATE);
+  private static final Cash DEPOSIT = new Cash(USD, 0.01, 0.26, NOTIONAL, 0.02, 0.25);
+  private static final ForwardRateAgreement FRA = new ForwardRateAgreement(USD, 0.52, 0.25, NOTIONAL, USDLIBOR3M, 0.25, 0.27, 0.52, 0.25, 0.02);
+
+  private static final double[] TIME = {0.25, 0.50, 1.0, 2.0, 5.0};
+  private static final double[] YIELD = {0.02, 0.025, 0.03, 0.03, 0.028};
+  private static final Interpolator1D INTERPOLATOR_LINEAR = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.LINEAR, Interpolator1DFactory.LINEAR_EXTRAPOLATOR,
+      Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+  private static final String DSC_NAME = "USD Discounting";
+  private static final String FWD3_NAME = "USD Forward 3M";
+  private static final YieldAndDiscountCurve DSC = new YieldCurve(DSC_NAME, new InterpolatedDoublesCurve(TIME, YIELD, INTERPOLATOR_LINEAR, true));
+  private static final YieldAndDiscountCurve FWD3_DSC = new YieldCurve(FWD3_NAME, new InterpolatedDoublesCurve(TIME, YIELD, INTERPOLATOR_LINEAR, true));
+  private static final MulticurveProviderDiscount MARKET_DSC = new MulticurveProviderDiscount();
+  static {
+    MARKET_DSC.setCurve(USD, DSC);
+    MARKET_DSC.setCurve(FEDFUND, DSC);
+    MARKET_DSC.setCurve(USDLIBOR3M, FWD3_DSC);
+  }
+  private static final DoublesCurve FWD3_FWD = new InterpolatedDoublesCurve(TIME, YIELD, INTERPOLATOR_LINEAR, true, FWD3_NAME);
+  private static final MulticurveProviderForward MARKET_FWD = new MulticurveProviderForward();
+  static {
+    MARKET_FWD.setCurve(USD, DSC);
+    MARKET_FWD.setCurve(FEDFUND, DSC);
+    MARKET_FWD.setCurve(USDLIBOR3M, FWD3_FWD);
+  }
+
+  private static final PresentValueCurveSensitivityDiscountingCalculator PVCSC = PresentValueCurveSensitivityDiscountingCalculator.getInstance();
+  private static final ParameterSensitivityParameterCalculator<ParameterProviderInterface> PSC = new ParameterSensitivityParameterCalculator<>(PVCSC);
+  private static final ParameterSensitivityAdjointCalculator PSC_AD = new ParameterSensitivityAdjointCalculator(PresentValueCurveSensitivityAdjointDiscountingCalculator.getInstance());
+
+  private static final double TOLERANCE_DELTA = 1.0E-2;
+
+  private static void assertSameSensitivity(final String message, final InstrumentDerivative instrument) {
+    AssertSensitivityObjects.assertEquals(message, PSC.calculateSensitivity(instrument, MARKET_DSC), PSC_AD.calculateSensitivity(instrument, MARKET_DSC), TOLERANCE_DELTA);
+    AssertSensitivityObjects.assertEquals(message, PSC.calculateSensitivity(instrument, MARKET_FWD), PSC_AD.calculateSensitivity(instrument, MARKET_FWD), TOLERANCE_DELTA);
+  }
+
+  @Test
+  public void instruments() {
+    assertSameSensitivity("Adjoint parameter sensitivity: fixed annuity", ANNUITY);
+    assertSameSensitivity("Adjoint parameter sensitivity: swap", SWAP);
+    assertSameSensitivity("Adjoint parameter sensitivity: OIS", OIS);
+    assertSameSensitivity("Adjoint parameter sensitivity: deposit", DEPOSIT);
+    // Recorded from the point sensitivities
+    assertSameSensitivity("Adjoint parameter sensitivity: FRA", FRA);
+  }
+
+  @Test
+  public void portfolio() {
+    final InstrumentDerivative[] instruments = new InstrumentDerivative[] {SWAP, OIS, DEPOSIT, FRA, SWAP };
+    final double[] quantities = new double[] {2.0, -1.0, 0.5, 3.0, 1.0 };
+    MultipleCurrencyParameterSensitivity expected = new MultipleCurrencyParameterSensitivity();
+    for (int loopins = 0; loopins < instruments.length; loopins++) {
+      expected = expected.plus(PSC.calculateSensitivity(instruments[loopins], MARKET_DSC).multipliedBy(quantities[loopins]));
+    }
+    AssertSensitivityObjects.assertEquals("Adjoint parameter sensitivity: portfolio", expected,
+        PSC_AD.calculateSensitivity(instruments, quantities, MARKET_DSC, null), TOLERANCE_DELTA);
+  }
+
+  @Test
+  public void curvesSet() {
+    final MultipleCurrencyParameterSensitivity pvps = PSC_AD.calculateSensitivity(SWAP, MARKET_DSC, Collections.singleton(DSC_NAME));
+    assertEquals("Adjoint parameter sensitivity: curve set", 1, pvps.getAllNamesCurrency().size());
+    AssertSensitivityObjects.assertEquals("Adjoint parameter sensitivity: curve set", PSC.calculateSensitivity(SWAP, MARKET_DSC, Collections.singleton(DSC_NAME)), pvps, TOLERANCE_DELTA);
+  }
+
+  @Test
+  public void tapeReuse() {
+    final MulticurveSensitivityTape tape = new MulticurveSensitivityTape(MARKET_DSC);
+    SWAP.accept(PresentValueCurveSensitivityAdjointDiscountingCalculator.getInstance(), tape);
+    final int nbPoint = tape.getNumberOfPoints();
+    tape.clear();
+    assertEquals("Adjoint parameter sensitivity: cleared tape", 0, tape.getNumberOfPoints());
+    SWAP.accept(PresentValueCurveSensitivityAdjointDiscountingCalculator.getInstance(), tape);
+    assertEquals("Adjoint parameter sensitivity: reused tape", nbPoint, tape.getNumberOfPoints());
+    AssertSensitivityObjects.assertEquals("Adjoint parameter sensitivity: reused tape", PSC.calculateSensitivity(SWAP, MARKET_DSC), tape.getParameterSensitivity(), TOLERANCE_DELTA);
+  }
+
+}
@@ -138,6 +138,22 @@ public class CombinedInterpolatorExtrapolatorTest {
     assertEquals(COMBINED3.interpolate(DATA, x + 100), F.evaluate(x + 100), 1e-5);
   }
 
+  @Test
+  public void testBatch() {
+    // Increasing, repeated, decreasing and extrapolated values
+    final double[] values = new double[] {-1.5, 0.0, 0.2, 0.2, 1.7, 4.0, 4.5, 8.9, 9.0, 12.5, 3.3, 2.1, -0.5, 6.25 };
+    final Interpolator1D[] interpolators = new Interpolator1D[] {INTERPOLATOR, new LogLinearInterpolator1D(), new NaturalCubicSplineInterpolator1D() };
+    for (final Interpolator1D interpolator : interpolators) {
+      final Interpolator1DDataBundle data = interpolator.getDataBundleFromSortedArrays(X, Y);
+      final CombinedInterpolatorExtrapolator combined = new CombinedInterpolatorExtrapolator(interpolator, LEFT_EXTRAPOLATOR, new LinearExtrapolator1D(interpolator));
+      final double[] result = new double[values.length];
+      combined.interpolate(data, values, result);
+      for (int i = 0; i < values.length; i++) {
+        assertEquals(interpolator.getClass().getSimpleName() + " at " + values[i], combined.interpolate(data, values[i]), result[i], 1e-15);
+      }
+    }
+  }
+
   @Test
   public void testBoundary() {
     for (final double value : X) {
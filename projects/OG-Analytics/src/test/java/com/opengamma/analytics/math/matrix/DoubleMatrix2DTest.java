@@ -7,6 +7,7 @@ package com.opengamma.analytics.math.matrix;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 import org.testng.annotations.Test;
 
@@ -102,4 +103,32 @@ public class DoubleMatrix2DTest {
     assertFalse(objects.equals(OBJECTS));
   }
 
+  @Test
+  public void testRowMajor() {
+    final DoubleMatrix2D d = new DoubleMatrix2D(3, 4, new double[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+    assertTrue(d.isRowMajor());
+    assertEquals(d.getNumberOfRows(), 3);
+    assertEquals(d.getNumberOfColumns(), 4);
+    assertEquals(7., d.getEntry(1, 2), 0);
+    assertEquals(d.getRowVector(2), PRIMITIVES.getRowVector(2));
+    assertEquals(d.getColumnVector(1), PRIMITIVES.getColumnVector(1));
+    assertEquals(d, PRIMITIVES);
+    assertEquals(d.hashCode(), PRIMITIVES.hashCode());
+    assertEquals(d.toString(), PRIMITIVES.toString());
+    assertTrue(d.isRowMajor());
+    // Requesting the row arrays switches the storage and changes through them are seen by the matrix
+    final double[][] data = d.getData();
+    assertFalse(d.isRowMajor());
+    assertEquals(12., data[2][3], 0);
+    data[2][3] = 13;
+    assertEquals(13., d.getEntry(2, 3), 0);
+    assertEquals(13., d.toRowMajorArray()[11], 0);
+    assertFalse(d.equals(PRIMITIVES));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRowMajorWrongLength() {
+    new DoubleMatrix2D(3, 4, new double[11]);
+  }
+
 }
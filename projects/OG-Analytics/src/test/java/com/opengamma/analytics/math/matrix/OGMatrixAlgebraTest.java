@@ -6,9 +6,12 @@
 package com.opengamma.analytics.math.matrix;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 import org.testng.annotations.Test;
 
+import com.opengamma.analytics.math.MathException;
 import com.opengamma.analytics.math.linearalgebra.TridiagonalMatrix;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
@@ -123,4 +126,86 @@ public class OGMatrixAlgebraTest {
     AssertMatrix.assertEqualsMatrix(aTaRef, aTa, 1e-15);
   }
 
+  private static DoubleMatrix2D randomMatrix(final int rows, final int columns) {
+    final double[][] data = new double[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        data[i][j] = RANDOM.nextRandom();
+      }
+    }
+    return new DoubleMatrix2D(data);
+  }
+
+  @Test
+  public void testBlockedKernelsMatchNaive() {
+    // Larger than the block sizes, and not multiples of them
+    final DoubleMatrix2D a = randomMatrix(150, 70);
+    final DoubleMatrix2D b = randomMatrix(70, 131);
+    final DoubleMatrix2D c = (DoubleMatrix2D) ALGEBRA.multiply(a, b);
+    assertEquals(150, c.getNumberOfRows());
+    assertEquals(131, c.getNumberOfColumns());
+    for (int i = 0; i < 150; i++) {
+      for (int j = 0; j < 131; j++) {
+        double sum = 0.0;
+        for (int k = 0; k < 70; k++) {
+          sum += a.getData()[i][k] * b.getData()[k][j];
+        }
+        // The terms are accumulated in the same order so the result is identical
+        assertEquals(sum, c.getEntry(i, j), 0.0);
+      }
+    }
+    final DoubleMatrix2D aT = ALGEBRA.getTranspose(a);
+    for (int i = 0; i < 150; i++) {
+      for (int j = 0; j < 70; j++) {
+        assertEquals(a.getEntry(i, j), aT.getEntry(j, i), 0.0);
+      }
+    }
+    AssertMatrix.assertEqualsMatrix((DoubleMatrix2D) ALGEBRA.multiply(aT, a), ALGEBRA.matrixTransposeMultiplyMatrix(a), 0.0);
+    final DoubleMatrix1D x = new DoubleMatrix1D(randomMatrix(1, 70).getData()[0]);
+    final DoubleMatrix1D y = (DoubleMatrix1D) ALGEBRA.multiply(a, x);
+    final DoubleMatrix1D yT = (DoubleMatrix1D) ALGEBRA.multiply(x, aT);
+    for (int i = 0; i < 150; i++) {
+      assertEquals(y.getEntry(i), yT.getEntry(i), 0.0);
+    }
+  }
+
+  @Test
+  public void testMixedStorage() {
+    final DoubleMatrix2D a = randomMatrix(80, 70);
+    final DoubleMatrix2D b = randomMatrix(70, 90);
+    final DoubleMatrix2D bRowMajor = new DoubleMatrix2D(70, 90, b.toRowMajorArray());
+    final DoubleMatrix2D expected = (DoubleMatrix2D) ALGEBRA.multiply(a, b);
+    AssertMatrix.assertEqualsMatrix(expected, (DoubleMatrix2D) ALGEBRA.multiply(a, bRowMajor), 0.0);
+    final DoubleMatrix2D aRowMajor = ALGEBRA.getTranspose(ALGEBRA.getTranspose(a));
+    AssertMatrix.assertEqualsMatrix(expected, (DoubleMatrix2D) ALGEBRA.multiply(aRowMajor, b), 0.0);
+    AssertMatrix.assertEqualsMatrix(expected, (DoubleMatrix2D) ALGEBRA.multiply(aRowMajor, bRowMajor), 0.0);
+    AssertMatrix.assertEqualsMatrix(ALGEBRA.matrixTransposeMultiplyMatrix(a), ALGEBRA.matrixTransposeMultiplyMatrix(aRowMajor), 0.0);
+    // The operands are read in place, neither storage being converted to the other
+    assertFalse(a.isRowMajor());
+    assertFalse(b.isRowMajor());
+    assertTrue(aRowMajor.isRowMajor());
+    assertTrue(bRowMajor.isRowMajor());
+    assertTrue(expected.isRowMajor());
+  }
+
+  @Test
+  public void testSolve() {
+    final OGMatrixAlgebra algebra = MatrixAlgebraFactory.OG_ALGEBRA;
+    final DoubleMatrix2D a = randomMatrix(90, 90);
+    final DoubleMatrix1D b = new DoubleMatrix1D(randomMatrix(1, 90).getData()[0]);
+    final DoubleMatrix1D x = algebra.solve(a, b);
+    final DoubleMatrix1D ax = (DoubleMatrix1D) algebra.multiply(a, x);
+    for (int i = 0; i < 90; i++) {
+      assertEquals(b.getEntry(i), ax.getEntry(i), 1e-10);
+    }
+    final DoubleMatrix2D inverse = algebra.solve(A, new IdentityMatrix(3));
+    AssertMatrix.assertEqualsMatrix(new IdentityMatrix(3), (DoubleMatrix2D) algebra.multiply(A, inverse), 1e-14);
+  }
+
+  @Test(expectedExceptions = MathException.class)
+  public void testSolveSingular() {
+    final OGMatrixAlgebra algebra = MatrixAlgebraFactory.OG_ALGEBRA;
+    algebra.solve(new DoubleMatrix2D(new double[][] { {1, 2 }, {2, 4 } }), new DoubleMatrix1D(new double[] {1, 1 }));
+  }
+
 }
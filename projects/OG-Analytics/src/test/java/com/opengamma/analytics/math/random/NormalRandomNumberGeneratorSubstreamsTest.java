@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class NormalRandomNumberGeneratorSubstreamsTest {
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadSigma() {
+    new NormalRandomNumberGeneratorSubstreams(1L, 0, -1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadIndex() {
+    new NormalRandomNumberGeneratorSubstreams(1L).getSubstream(-1);
+  }
+
+  @Test
+  public void testReproducible() {
+    final NormalRandomNumberGeneratorSubstreams substreams = new NormalRandomNumberGeneratorSubstreams(42L);
+    final double[] first = substreams.getSubstream(3).getVector(100);
+    // Other substreams drawn in between have no effect
+    substreams.getSubstream(4).getVector(100);
+    assertEquals(Arrays.toString(first), Arrays.toString(new NormalRandomNumberGeneratorSubstreams(42L).getSubstream(3).getVector(100)));
+  }
+
+  @Test
+  public void testIndependent() {
+    final NormalRandomNumberGeneratorSubstreams substreams = new NormalRandomNumberGeneratorSubstreams(42L);
+    assertFalse(Arrays.equals(substreams.getSubstream(0).getVector(10), substreams.getSubstream(1).getVector(10)));
+    assertFalse(Arrays.equals(substreams.getSubstream(0).getVector(10), new NormalRandomNumberGeneratorSubstreams(43L).getSubstream(0).getVector(10)));
+  }
+
+}
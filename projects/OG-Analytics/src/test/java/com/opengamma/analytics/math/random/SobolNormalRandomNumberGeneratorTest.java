@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import cern.jet.stat.Probability;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SobolNormalRandomNumberGeneratorTest {
+
+  private static final double TOLERANCE = 1.0E-12;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeSkip() {
+    new SobolNormalRandomNumberGenerator(-1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadSubstreamPoints() {
+    new SobolNormalRandomNumberGeneratorSubstreams(0);
+  }
+
+  @Test
+  public void testFirstPoints() {
+    final double[][] expected = new double[][] { {0.5, 0.5 }, {0.75, 0.25 }, {0.25, 0.75 }, {0.375, 0.375 }, {0.875, 0.875 } };
+    final SobolNormalRandomNumberGenerator generator = new SobolNormalRandomNumberGenerator();
+    for (final double[] point : expected) {
+      final double[] x = generator.getVector(2);
+      for (int d = 0; d < 2; d++) {
+        assertEquals(Probability.normalInverse(point[d]), x[d], TOLERANCE);
+      }
+    }
+    assertEquals(5, generator.getIndex());
+  }
+
+  @Test
+  public void testFillPaths() {
+    final int dimension = 50;
+    final int nbPath = 64;
+    final double[][] paths = new double[dimension][nbPath];
+    new SobolNormalRandomNumberGenerator().fillPaths(paths);
+    final SobolNormalRandomNumberGenerator generator = new SobolNormalRandomNumberGenerator();
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      final double[] point = generator.getVector(dimension);
+      for (int d = 0; d < dimension; d++) {
+        assertEquals(point[d], paths[d][looppath], 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testSkip() {
+    final int dimension = 30;
+    final SobolNormalRandomNumberGenerator sequential = new SobolNormalRandomNumberGenerator();
+    final SobolNormalRandomNumberGeneratorSubstreams substreams = new SobolNormalRandomNumberGeneratorSubstreams(100);
+    for (int loopstream = 0; loopstream < 3; loopstream++) {
+      final RandomNumberGenerator substream = substreams.getSubstream(loopstream);
+      for (int looppoint = 0; looppoint < 100; looppoint++) {
+        final double[] expected = sequential.getVector(dimension);
+        final double[] x = substream.getVector(dimension);
+        for (int d = 0; d < dimension; d++) {
+          assertEquals(expected[d], x[d], 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMoments() {
+    // All the dimensions of the first 2^k points are evenly spread
+    final int dimension = 100;
+    final int nbPath = 4095;
+    final double[][] paths = new double[dimension][nbPath];
+    new SobolNormalRandomNumberGenerator().fillPaths(paths);
+    for (int d = 0; d < dimension; d++) {
+      double sum = 0;
+      double sum2 = 0;
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        sum += paths[d][looppath];
+        sum2 += paths[d][looppath] * paths[d][looppath];
+      }
+      assertEquals(0.0, sum / nbPath, 1.0E-10);
+      assertEquals(1.0, sum2 / nbPath, 1.0E-2);
+    }
+  }
+
+}
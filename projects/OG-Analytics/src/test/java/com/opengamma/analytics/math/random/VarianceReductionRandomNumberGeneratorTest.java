@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister64;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests {@link AntitheticRandomNumberGenerator}, {@link BrownianBridgeRandomNumberGenerator} and {@link MomentMatchingRandomNumberGenerator}.
+ */
+@Test(groups = TestGroup.UNIT)
+public class VarianceReductionRandomNumberGeneratorTest {
+
+  private static final double TOLERANCE = 1.0E-12;
+
+  private static NormalRandomNumberGenerator normal() {
+    return new NormalRandomNumberGenerator(0, 1, new MersenneTwister64(12345));
+  }
+
+  @Test
+  public void testAntitheticPaths() {
+    final int nbPath = 7;
+    final double[][] paths = new double[3][nbPath];
+    new AntitheticRandomNumberGenerator(normal()).fillPaths(paths);
+    final double[][] half = new double[3][4];
+    normal().fillPaths(half);
+    for (int d = 0; d < 3; d++) {
+      for (int looppath = 0; looppath < 4; looppath++) {
+        assertEquals(half[d][looppath], paths[d][looppath], 0.0);
+      }
+      for (int looppath = 0; looppath < 3; looppath++) {
+        assertEquals(-paths[d][looppath], paths[d][4 + looppath], 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testAntitheticVectors() {
+    final AntitheticRandomNumberGenerator generator = new AntitheticRandomNumberGenerator(normal());
+    final double[] x = generator.getVector(5);
+    final double[] y = generator.getVector(5);
+    final double[] z = generator.getVector(5);
+    final double[] expected = normal().getVector(5);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(expected[i], x[i], 0.0);
+      assertEquals(-x[i], y[i], 0.0);
+    }
+    assertEquals(normal().getVectors(5, 2).get(1)[0], z[0], 0.0);
+  }
+
+  @Test
+  public void testSobolVectors() {
+    // A vector is one point of the underlying sequence in the requested dimension
+    final AntitheticRandomNumberGenerator antithetic = new AntitheticRandomNumberGenerator(new SobolNormalRandomNumberGenerator());
+    final MomentMatchingRandomNumberGenerator momentMatching = new MomentMatchingRandomNumberGenerator(new SobolNormalRandomNumberGenerator());
+    final SobolNormalRandomNumberGenerator sobol = new SobolNormalRandomNumberGenerator();
+    for (int n = 0; n < 3; n++) {
+      final double[] expected = sobol.getVector(4);
+      final double[] x = antithetic.getVector(4);
+      final double[] y = antithetic.getVector(4);
+      final double[] z = momentMatching.getVector(4);
+      for (int i = 0; i < 4; i++) {
+        assertEquals(expected[i], x[i], 0.0);
+        assertEquals(-x[i], y[i], 0.0);
+        assertEquals(expected[i], z[i], 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testBridgeOneStep() {
+    final double[][] paths = new double[1][10];
+    new BrownianBridgeRandomNumberGenerator(normal()).fillPaths(paths);
+    final double[] expected = normal().getVector(10);
+    for (int looppath = 0; looppath < 10; looppath++) {
+      assertEquals(expected[looppath], paths[0][looppath], TOLERANCE);
+    }
+  }
+
+  @Test
+  public void testBridgeTerminal() {
+    // The first underlying number of each factor sets the sum of its increments
+    final int nbFactor = 2;
+    for (int nbStep = 2; nbStep < 12; nbStep++) {
+      final double[][] paths = new double[nbStep * nbFactor][5];
+      new BrownianBridgeRandomNumberGenerator(normal(), nbFactor).fillPaths(paths);
+      final double[][] z = new double[nbStep * nbFactor][5];
+      normal().fillPaths(z);
+      for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+        for (int looppath = 0; looppath < 5; looppath++) {
+          double sum = 0;
+          for (int loopstep = 0; loopstep < nbStep; loopstep++) {
+            sum += paths[loopstep * nbFactor + loopfact][looppath];
+          }
+          assertEquals(Math.sqrt(nbStep) * z[loopfact][looppath], sum, TOLERANCE);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBridgeMoments() {
+    final int nbStep = 6;
+    final int nbPath = 100000;
+    final double[][] paths = new double[nbStep][nbPath];
+    new BrownianBridgeRandomNumberGenerator(normal()).fillPaths(paths);
+    for (int i = 0; i < nbStep; i++) {
+      for (int j = 0; j <= i; j++) {
+        double sum = 0;
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          sum += paths[i][looppath] * paths[j][looppath];
+        }
+        assertEquals((i == j) ? 1.0 : 0.0, sum / nbPath, 2.0E-2);
+      }
+    }
+  }
+
+  @Test
+  public void testMomentMatching() {
+    final int nbPath = 25;
+    final double[][] paths = new double[4][nbPath];
+    new MomentMatchingRandomNumberGenerator(normal()).fillPaths(paths);
+    for (final double[] row : paths) {
+      double sum = 0;
+      double sum2 = 0;
+      for (final double x : row) {
+        sum += x;
+        sum2 += x * x;
+      }
+      assertEquals(0.0, sum, TOLERANCE);
+      assertEquals(1.0, sum2 / (nbPath - 1), TOLERANCE);
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.analytics;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.matrix.MatrixAlgebraFactory;
+
+/**
+ * Benchmarks {@link DoubleMatrix2D} arithmetic through the {@link MatrixAlgebra} implementations.
+ * <p>
+ * Square sizes cover curve calibration Jacobians (tens of nodes) through to the larger systems seen when fitting volatility surfaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MatrixAlgebraBenchmark {
+
+  /**
+   * The number of rows and columns of the matrices.
+   */
+  @Param({"20", "100", "400" })
+  public int _size;
+  /**
+   * The name of the algebra, as understood by {@link MatrixAlgebraFactory}.
+   */
+  @Param({MatrixAlgebraFactory.OG, MatrixAlgebraFactory.COMMONS })
+  public String _algebra;
+
+  private MatrixAlgebra _matrixAlgebra;
+  private DoubleMatrix2D _m1;
+  private DoubleMatrix2D _m2;
+  private DoubleMatrix1D _v;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(42L);
+    _matrixAlgebra = MatrixAlgebraFactory.getMatrixAlgebra(_algebra);
+    _m1 = randomMatrix(random, _size);
+    _m2 = randomMatrix(random, _size);
+    final double[] v = new double[_size];
+    for (int i = 0; i < _size; i++) {
+      v[i] = random.nextDouble();
+    }
+    _v = new DoubleMatrix1D(v);
+  }
+
+  private static DoubleMatrix2D randomMatrix(final Random random, final int size) {
+    final double[][] data = new double[size][size];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        data[i][j] = random.nextDouble();
+      }
+    }
+    return new DoubleMatrix2D(data);
+  }
+
+  @Benchmark
+  public Object multiplyMatrixMatrix() {
+    return _matrixAlgebra.multiply(_m1, _m2);
+  }
+
+  @Benchmark
+  public Object multiplyMatrixVector() {
+    return _matrixAlgebra.multiply(_m1, _v);
+  }
+
+  @Benchmark
+  public Object transpose() {
+    return _matrixAlgebra.getTranspose(_m1);
+  }
+
+  @Benchmark
+  public Object add() {
+    return _matrixAlgebra.add(_m1, _m2);
+  }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.analytics;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.curve.interestrate.generator.GeneratorCurveYieldInterpolated;
+import com.opengamma.analytics.financial.curve.interestrate.generator.GeneratorYDCurve;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.instrument.InstrumentDefinition;
+import com.opengamma.analytics.financial.instrument.cash.CashDefinition;
+import com.opengamma.analytics.financial.instrument.index.GeneratorAttributeIR;
+import com.opengamma.analytics.financial.instrument.index.GeneratorDepositIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorDepositON;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIborMaster;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedON;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedONMaster;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.index.IndexON;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedONDefinition;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.provider.calculator.discounting.ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.ParSpreadMarketQuoteDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.calculator.generic.LastTimeCalculator;
+import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlockBundle;
+import com.opengamma.analytics.financial.provider.curve.MultiCurveBundle;
+import com.opengamma.analytics.financial.provider.curve.SingleCurveBundle;
+import com.opengamma.analytics.financial.provider.curve.multicurve.MulticurveDiscountBuildingRepository;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.timeseries.precise.zdt.ImmutableZonedDateTimeDoubleTimeSeries;
+import com.opengamma.timeseries.precise.zdt.ZonedDateTimeDoubleTimeSeries;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Benchmarks the calibration of a USD discounting (OIS) and forward Libor 3M curve pair by {@link MulticurveDiscountBuildingRepository}.
+ * <p>
+ * The two curves are calibrated simultaneously as a single unit so that the root-finder works on the full Jacobian.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MulticurveCalibrationBenchmark {
+
+  private static final Interpolator1D INTERPOLATOR = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.DOUBLE_QUADRATIC,
+      Interpolator1DFactory.LINEAR_EXTRAPOLATOR, Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+  private static final double TOLERANCE_ROOT = 1.0E-10;
+  private static final int STEP_MAX = 100;
+
+  private static final Calendar NYC = new MondayToFridayCalendar("NYC");
+  private static final Currency USD = Currency.USD;
+  private static final ZonedDateTime NOW = DateUtils.getUTCDate(2014, 6, 19);
+
+  private static final GeneratorSwapFixedON GENERATOR_OIS_USD = GeneratorSwapFixedONMaster.getInstance().getGenerator("USD1YFEDFUND", NYC);
+  private static final IndexON INDEX_ON_USD = GENERATOR_OIS_USD.getIndex();
+  private static final GeneratorDepositON GENERATOR_DEPOSIT_ON_USD = new GeneratorDepositON("USD Deposit ON", USD, NYC, INDEX_ON_USD.getDayCount());
+  private static final GeneratorSwapFixedIbor USD6MLIBOR3M = GeneratorSwapFixedIborMaster.getInstance().getGenerator("USD6MLIBOR3M", NYC);
+  private static final IborIndex USDLIBOR3M = USD6MLIBOR3M.getIborIndex();
+  private static final GeneratorDepositIbor GENERATOR_USDLIBOR3M = new GeneratorDepositIbor("GENERATOR_USDLIBOR3M", USDLIBOR3M, NYC);
+
+  private static final ZonedDateTimeDoubleTimeSeries TS_EMPTY = ImmutableZonedDateTimeDoubleTimeSeries.ofEmptyUTC();
+  private static final ZonedDateTimeDoubleTimeSeries TS_ON_USD = ImmutableZonedDateTimeDoubleTimeSeries.ofUTC(new ZonedDateTime[] {DateUtils.getUTCDate(2014, 6, 18) },
+      new double[] {0.0009 });
+  private static final ZonedDateTimeDoubleTimeSeries TS_IBOR_USD3M = ImmutableZonedDateTimeDoubleTimeSeries.ofUTC(new ZonedDateTime[] {DateUtils.getUTCDate(2014, 6, 18) },
+      new double[] {0.0023 });
+
+  private static final String CURVE_NAME_DSC_USD = "USD Discounting";
+  private static final String CURVE_NAME_FWD3_USD = "USD Libor3M";
+
+  private static final double[] DSC_USD_MARKET_QUOTES = new double[] {0.0009, 0.0009, 0.0010, 0.0010, 0.0011, 0.0012, 0.0014, 0.0017, 0.0040, 0.0078, 0.0117, 0.0150,
+    0.0198, 0.0240, 0.0262, 0.0280, 0.0295, 0.0307 };
+  private static final Period[] DSC_USD_TENOR = new Period[] {Period.ofDays(0), Period.ofDays(1), Period.ofMonths(1), Period.ofMonths(2), Period.ofMonths(3),
+    Period.ofMonths(6), Period.ofMonths(9), Period.ofYears(1), Period.ofYears(2), Period.ofYears(3), Period.ofYears(4), Period.ofYears(5), Period.ofYears(7),
+    Period.ofYears(10), Period.ofYears(12), Period.ofYears(15), Period.ofYears(20), Period.ofYears(30) };
+
+  private static final double[] FWD3_USD_MARKET_QUOTES = new double[] {0.0023, 0.0026, 0.0033, 0.0062, 0.0101, 0.0136, 0.0166, 0.0212, 0.0255, 0.0275, 0.0292, 0.0307,
+    0.0317 };
+  private static final Period[] FWD3_USD_TENOR = new Period[] {Period.ofMonths(0), Period.ofMonths(6), Period.ofYears(1), Period.ofYears(2), Period.ofYears(3),
+    Period.ofYears(4), Period.ofYears(5), Period.ofYears(7), Period.ofYears(10), Period.ofYears(12), Period.ofYears(15), Period.ofYears(20), Period.ofYears(30) };
+
+  private final MulticurveDiscountBuildingRepository _repository = new MulticurveDiscountBuildingRepository(TOLERANCE_ROOT, TOLERANCE_ROOT, STEP_MAX);
+  private final MulticurveProviderDiscount _knownData = new MulticurveProviderDiscount(new FXMatrix(USD));
+  private final LinkedHashMap<String, Currency> _dscMap = new LinkedHashMap<>();
+  private final LinkedHashMap<String, IndexON[]> _fwdOnMap = new LinkedHashMap<>();
+  private final LinkedHashMap<String, IborIndex[]> _fwdIborMap = new LinkedHashMap<>();
+  private MultiCurveBundle<GeneratorYDCurve>[] _curveBundles;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setUp() {
+    _dscMap.put(CURVE_NAME_DSC_USD, USD);
+    _fwdOnMap.put(CURVE_NAME_DSC_USD, new IndexON[] {INDEX_ON_USD });
+    _fwdIborMap.put(CURVE_NAME_FWD3_USD, new IborIndex[] {USDLIBOR3M });
+    final InstrumentDefinition<?>[] dscDefinitions = new InstrumentDefinition<?>[DSC_USD_TENOR.length];
+    for (int i = 0; i < DSC_USD_TENOR.length; i++) {
+      if (i < 2) {
+        dscDefinitions[i] = GENERATOR_DEPOSIT_ON_USD.generateInstrument(NOW, DSC_USD_MARKET_QUOTES[i], 1.0, new GeneratorAttributeIR(DSC_USD_TENOR[i], Period.ofDays(0)));
+      } else {
+        dscDefinitions[i] = GENERATOR_OIS_USD.generateInstrument(NOW, DSC_USD_MARKET_QUOTES[i], 1.0, new GeneratorAttributeIR(DSC_USD_TENOR[i]));
+      }
+    }
+    final InstrumentDefinition<?>[] fwdDefinitions = new InstrumentDefinition<?>[FWD3_USD_TENOR.length];
+    for (int i = 0; i < FWD3_USD_TENOR.length; i++) {
+      if (i == 0) {
+        fwdDefinitions[i] = GENERATOR_USDLIBOR3M.generateInstrument(NOW, FWD3_USD_MARKET_QUOTES[i], 1.0, new GeneratorAttributeIR(FWD3_USD_TENOR[i]));
+      } else {
+        fwdDefinitions[i] = USD6MLIBOR3M.generateInstrument(NOW, FWD3_USD_MARKET_QUOTES[i], 1.0, new GeneratorAttributeIR(FWD3_USD_TENOR[i]));
+      }
+    }
+    final GeneratorYDCurve generator = new GeneratorCurveYieldInterpolated(LastTimeCalculator.getInstance(), INTERPOLATOR);
+    final SingleCurveBundle<GeneratorYDCurve>[] singleCurves = new SingleCurveBundle[] {
+      createCurveBundle(CURVE_NAME_DSC_USD, dscDefinitions, generator), createCurveBundle(CURVE_NAME_FWD3_USD, fwdDefinitions, generator) };
+    _curveBundles = new MultiCurveBundle[] {new MultiCurveBundle<>(singleCurves) };
+  }
+
+  private static SingleCurveBundle<GeneratorYDCurve> createCurveBundle(final String name, final InstrumentDefinition<?>[] definitions, final GeneratorYDCurve generator) {
+    final InstrumentDerivative[] derivatives = new InstrumentDerivative[definitions.length];
+    final double[] rates = new double[definitions.length];
+    for (int i = 0; i < definitions.length; i++) {
+      derivatives[i] = convert(definitions[i]);
+      rates[i] = initialGuess(definitions[i]);
+    }
+    final GeneratorYDCurve finalGenerator = generator.finalGenerator(derivatives);
+    return new SingleCurveBundle<>(name, derivatives, finalGenerator.initialGuess(rates), finalGenerator);
+  }
+
+  private static InstrumentDerivative convert(final InstrumentDefinition<?> instrument) {
+    if (instrument instanceof SwapFixedONDefinition) {
+      return ((SwapFixedONDefinition) instrument).toDerivative(NOW, new ZonedDateTimeDoubleTimeSeries[] {TS_EMPTY, TS_ON_USD });
+    }
+    if (instrument instanceof SwapFixedIborDefinition) {
+      return ((SwapFixedIborDefinition) instrument).toDerivative(NOW, new ZonedDateTimeDoubleTimeSeries[] {TS_IBOR_USD3M });
+    }
+    return instrument.toDerivative(NOW);
+  }
+
+  private static double initialGuess(final InstrumentDefinition<?> instrument) {
+    if (instrument instanceof SwapFixedONDefinition) {
+      return ((SwapFixedONDefinition) instrument).getFixedLeg().getNthPayment(0).getRate();
+    }
+    if (instrument instanceof SwapFixedIborDefinition) {
+      return ((SwapFixedIborDefinition) instrument).getFixedLeg().getNthPayment(0).getRate();
+    }
+    if (instrument instanceof CashDefinition) {
+      return ((CashDefinition) instrument).getRate();
+    }
+    return 0.01;
+  }
+
+  @Benchmark
+  public Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> calibrate() {
+    return _repository.makeCurvesFromDerivatives(_curveBundles, _knownData, _dscMap, _fwdIborMap, _fwdOnMap, ParSpreadMarketQuoteDiscountingCalculator.getInstance(),
+        ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator.getInstance());
+  }
+
+}
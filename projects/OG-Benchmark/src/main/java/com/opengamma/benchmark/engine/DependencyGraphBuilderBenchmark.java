@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.MapComputationTargetResolver;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.function.AbstractFunction;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Benchmarks construction of a dependency graph by {@link DependencyGraphBuilder}.
+ * <p>
+ * Each primitive target requests a value at the top of a chain of functions of configurable depth, the bottom of which is sourced from market data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DependencyGraphBuilderBenchmark {
+
+  private static final String MARKET_DATA = "MarketValue";
+
+  /**
+   * The number of targets requested.
+   */
+  @Param({"1000", "10000" })
+  public int _targets;
+  /**
+   * The number of function applications between the requested value and market data.
+   */
+  @Param({"4" })
+  public int _depth;
+  /**
+   * The number of additional threads the builder may use.
+   */
+  @Param({"0", "3" })
+  public int _threads;
+
+  private FixedMarketDataAvailabilityProvider _marketData;
+  private FunctionCompilationContext _compilationContext;
+  private CompiledFunctionResolver _functionResolver;
+  private List<ValueRequirement> _requirements;
+
+  @Setup
+  public void setUp() {
+    final InMemoryFunctionRepository functions = new InMemoryFunctionRepository();
+    for (int i = 0; i < _depth; i++) {
+      functions.addFunction(new ChainFunction(i));
+    }
+    _marketData = new FixedMarketDataAvailabilityProvider();
+    _requirements = new ArrayList<ValueRequirement>(_targets);
+    final MapComputationTargetResolver targetResolver = new MapComputationTargetResolver();
+    for (int i = 0; i < _targets; i++) {
+      final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Benchmark", Integer.toString(i)));
+      targetResolver.addTarget(target);
+      _marketData.addAvailableData(new ValueSpecification(MARKET_DATA, target.toSpecification(), ValueProperties.with(ValuePropertyNames.FUNCTION, "MarketData").get()));
+      _requirements.add(new ValueRequirement(ChainFunction.valueName(_depth - 1), target.toSpecification()));
+    }
+    final Instant now = Instant.now();
+    _compilationContext = new FunctionCompilationContext();
+    _compilationContext.setRawComputationTargetResolver(targetResolver);
+    _compilationContext.setComputationTargetResolver(targetResolver.atVersionCorrection(VersionCorrection.of(now, now)));
+    final CompiledFunctionService compilationService = new CompiledFunctionService(functions, new CachingFunctionRepositoryCompiler(), _compilationContext);
+    compilationService.initialize();
+    _functionResolver = new DefaultFunctionResolver(compilationService).compile(now);
+  }
+
+  @Benchmark
+  public DependencyGraph buildGraph() {
+    final DependencyGraphBuilder builder = new DependencyGraphBuilder();
+    builder.setCalculationConfigurationName("Default");
+    builder.setMarketDataAvailabilityProvider(_marketData);
+    builder.setCompilationContext(_compilationContext);
+    builder.setFunctionResolver(_functionResolver);
+    builder.setMaxAdditionalThreads(_threads);
+    builder.addTarget(_requirements);
+    return builder.getDependencyGraph();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Function producing level {@code n} of the chain from level {@code n - 1}, or from market data at level zero.
+   */
+  private static final class ChainFunction extends AbstractFunction.NonCompiledInvoker {
+
+    private final int _level;
+
+    private ChainFunction(final int level) {
+      _level = level;
+      setUniqueId("Chain" + level);
+    }
+
+    private static String valueName(final int level) {
+      return "Level" + level;
+    }
+
+    @Override
+    public ComputationTargetType getTargetType() {
+      return ComputationTargetType.PRIMITIVE;
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      return Collections.singleton(new ValueSpecification(valueName(_level), target.toSpecification(), createValueProperties().get()));
+    }
+
+    @Override
+    public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+      final String input = (_level == 0) ? MARKET_DATA : valueName(_level - 1);
+      return Collections.singleton(new ValueRequirement(input, target.toSpecification()));
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+        final Set<ValueRequirement> desiredValues) {
+      final Set<ComputedValue> result = new HashSet<ComputedValue>();
+      for (final ComputedValue input : inputs.getAllValues()) {
+        result.add(new ComputedValue(new ValueSpecification(valueName(_level), target.toSpecification(), createValueProperties().get()), input.getValue()));
+      }
+      return result;
+    }
+
+  }
+
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.fudgemsg.FudgeContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.threeten.bp.Instant;
+
+import com.opengamma.core.position.impl.MockPositionSource;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.DefaultComputationTargetResolver;
+import com.opengamma.engine.InMemorySecuritySource;
+import com.opengamma.engine.cache.InMemoryViewComputationCacheSource;
+import com.opengamma.engine.cache.ViewComputationCacheSource;
+import com.opengamma.engine.calcnode.CalculationNodeLogEventListener;
+import com.opengamma.engine.calcnode.JobDispatcher;
+import com.opengamma.engine.calcnode.LocalNodeJobInvoker;
+import com.opengamma.engine.calcnode.SimpleCalculationNode;
+import com.opengamma.engine.calcnode.stats.DiscardingInvocationStatisticsGatherer;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphBuilderFactory;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
+import com.opengamma.engine.depgraph.impl.DependencyNodeFunctionImpl;
+import com.opengamma.engine.depgraph.impl.DependencyNodeImpl;
+import com.opengamma.engine.exec.DependencyGraphExecutionFuture;
+import com.opengamma.engine.exec.PlanBasedGraphExecutorFactory;
+import com.opengamma.engine.exec.plan.GraphExecutionPlanner;
+import com.opengamma.engine.exec.plan.MultipleNodeExecutionPlanner;
+import com.opengamma.engine.exec.plan.SingleNodeExecutionPlanner;
+import com.opengamma.engine.exec.stats.DiscardingGraphStatisticsGathererProvider;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.DummyOverrideOperationCompiler;
+import com.opengamma.engine.marketdata.InMemoryLKVMarketDataProvider;
+import com.opengamma.engine.marketdata.SingletonMarketDataProviderFactory;
+import com.opengamma.engine.marketdata.resolver.SingleMarketDataProviderResolver;
+import com.opengamma.engine.marketdata.spec.LiveMarketDataSpecification;
+import com.opengamma.engine.resource.EngineResourceManagerImpl;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.test.MockConfigSource;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfigurationImpl;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.engine.view.cycle.SingleComputationCycle;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.impl.ViewProcessContext;
+import com.opengamma.engine.view.listener.ComputationResultListener;
+import com.opengamma.engine.view.permission.DefaultViewPermissionProvider;
+import com.opengamma.engine.view.permission.DefaultViewPortfolioPermissionProvider;
+import com.opengamma.engine.view.worker.SingleThreadViewProcessWorkerFactory;
+import com.opengamma.engine.view.worker.cache.InMemoryViewExecutionCache;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.id.VersionedUniqueIdSupplier;
+import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.util.log.ThreadLocalLogEventListener;
+
+/**
+ * Benchmarks execution of a dependency graph by {@link com.opengamma.engine.exec.PlanBasedGraphExecutor} against a local calculation node.
+ * <p>
+ * The graph is a set of independent chains of trivial functions so that the measurement is dominated by planning, job dispatch and cache traffic rather
+ * than by function invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PlanBasedGraphExecutorBenchmark {
+
+  /**
+   * The number of independent chains in the graph.
+   */
+  @Param({"100", "1000" })
+  public int _chains;
+  /**
+   * The number of nodes in each chain.
+   */
+  @Param({"10" })
+  public int _depth;
+  /**
+   * The execution planner to use, either "single" or "multiple".
+   */
+  @Param({"single", "multiple" })
+  public String _planner;
+
+  private ExecutorService _nodeExecutor;
+  private ViewProcessContext _viewProcessContext;
+  private CompiledViewDefinitionWithGraphsImpl _compiledView;
+  private DependencyGraph _graph;
+  private SingleComputationCycle _cycle;
+  private int _cycleId;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final MockFunction function = new MockFunction(ComputationTarget.NULL);
+    final Set<DependencyNode> roots = new HashSet<DependencyNode>();
+    for (int chain = 0; chain < _chains; chain++) {
+      DependencyNode previousNode = null;
+      ValueSpecification previousValue = null;
+      for (int level = 0; level < _depth; level++) {
+        final Map<ValueSpecification, DependencyNode> inputs;
+        if (previousNode != null) {
+          inputs = Collections.singletonMap(previousValue, previousNode);
+        } else {
+          inputs = Collections.emptyMap();
+        }
+        previousValue = new ValueSpecification(chain + "-" + level, ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, MockFunction.UNIQUE_ID).get());
+        function.addResult(new ComputedValue(previousValue, level));
+        previousNode = new DependencyNodeImpl(DependencyNodeFunctionImpl.of(function), ComputationTargetSpecification.NULL, Collections.singleton(previousValue), inputs);
+      }
+      roots.add(previousNode);
+    }
+    _graph = new DependencyGraphImpl("Default", roots, _chains * _depth, Collections.<ValueSpecification, Set<ValueRequirement>>emptyMap());
+    final InMemoryFunctionRepository functionRepository = new InMemoryFunctionRepository();
+    functionRepository.addFunction(function);
+    final FunctionCompilationContext compilationContext = new FunctionCompilationContext();
+    compilationContext.setRawComputationTargetResolver(new DefaultComputationTargetResolver(new InMemorySecuritySource(), new MockPositionSource()));
+    final CompiledFunctionService compilationService = new CompiledFunctionService(functionRepository, new CachingFunctionRepositoryCompiler(), compilationContext);
+    compilationService.initialize();
+    final ViewComputationCacheSource computationCacheSource = new InMemoryViewComputationCacheSource(FudgeContext.GLOBAL_DEFAULT);
+    _nodeExecutor = Executors.newCachedThreadPool();
+    final JobDispatcher jobDispatcher = new JobDispatcher(new LocalNodeJobInvoker(new SimpleCalculationNode(computationCacheSource, compilationService, new FunctionExecutionContext(),
+        "node", _nodeExecutor, new DiscardingInvocationStatisticsGatherer(), new CalculationNodeLogEventListener(new ThreadLocalLogEventListener()))));
+    final ViewDefinition viewDefinition = new ViewDefinition("Benchmark", UserPrincipal.getTestUser());
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Default"));
+    final MockConfigSource configSource = new MockConfigSource();
+    configSource.put(viewDefinition);
+    _viewProcessContext = new ViewProcessContext(UniqueId.of("Process", "Benchmark"), configSource, new DefaultViewPermissionProvider(), new DefaultViewPortfolioPermissionProvider(),
+        new SingleMarketDataProviderResolver(new SingletonMarketDataProviderFactory(new InMemoryLKVMarketDataProvider())), compilationService,
+        new DefaultFunctionResolver(compilationService), computationCacheSource, jobDispatcher, new SingleThreadViewProcessWorkerFactory(), new DependencyGraphBuilderFactory(),
+        new PlanBasedGraphExecutorFactory(createPlanner()), new DiscardingGraphStatisticsGathererProvider(), new DummyOverrideOperationCompiler(),
+        new EngineResourceManagerImpl<SingleComputationCycle>(), new VersionedUniqueIdSupplier("Benchmark", "1"), new InMemoryViewExecutionCache());
+    final Instant now = Instant.now();
+    _compiledView = new CompiledViewDefinitionWithGraphsImpl(VersionCorrection.of(now, now), "", viewDefinition, Collections.singleton(_graph),
+        Collections.<ComputationTargetReference, UniqueId>emptyMap(), new SimplePortfolio("Benchmark"), 0,
+        Collections.<CompiledViewCalculationConfiguration>singleton(CompiledViewCalculationConfigurationImpl.of(_graph)), null, null);
+  }
+
+  private GraphExecutionPlanner createPlanner() {
+    if ("single".equals(_planner)) {
+      return new SingleNodeExecutionPlanner();
+    } else if ("multiple".equals(_planner)) {
+      return new MultipleNodeExecutionPlanner();
+    } else {
+      throw new IllegalArgumentException("Unknown planner " + _planner);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void createCycle() {
+    final ViewCycleExecutionOptions cycleOptions = ViewCycleExecutionOptions.builder().setValuationTime(Instant.ofEpochMilli(1))
+        .setMarketDataSpecification(LiveMarketDataSpecification.LIVE_SPEC).create();
+    _cycle = new SingleComputationCycle(UniqueId.of("Benchmark", "Cycle" + (_cycleId++)), "", new ComputationResultListener() {
+      @Override
+      public void resultAvailable(final ViewComputationResultModel result) {
+        // ignore
+      }
+    }, _viewProcessContext, _compiledView, cycleOptions, VersionCorrection.of(Instant.ofEpochMilli(1), Instant.ofEpochMilli(1)));
+  }
+
+  @TearDown(Level.Invocation)
+  public void releaseCycle() {
+    _cycle.release();
+    _cycle = null;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    _nodeExecutor.shutdownNow();
+  }
+
+  @Benchmark
+  public Object executeGraph() throws Exception {
+    final DependencyGraphExecutionFuture future = _viewProcessContext.getDependencyGraphExecutorFactory().createExecutor(_cycle).execute(_graph,
+        Collections.<ValueSpecification>emptySet(), Collections.<ValueSpecification, FunctionParameters>emptyMap());
+    return future.get();
+  }
+
+}
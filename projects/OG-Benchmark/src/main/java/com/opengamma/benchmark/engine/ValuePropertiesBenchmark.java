@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+
+/**
+ * Benchmarks the {@link ValueProperties} operations used heavily during dependency graph construction.
+ * <p>
+ * The property sets are representative of a requirement from a portfolio level function (a few strict constraints, some wild-cards and optional
+ * properties) and the maximal output of a pricing function that satisfies it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ValuePropertiesBenchmark {
+
+  private ValueProperties _constraints;
+  private ValueProperties _results;
+  private ValueProperties _other;
+
+  @Setup
+  public void setUp() {
+    _constraints = ValueProperties.builder()
+        .with(ValuePropertyNames.CURVE_EXPOSURES, "Exposures")
+        .with(ValuePropertyNames.CALCULATION_METHOD, "Discounting")
+        .withAny(ValuePropertyNames.CURRENCY)
+        .withOptional("Aggregation").withAny("Aggregation")
+        .get();
+    _results = ValueProperties.builder()
+        .with(ValuePropertyNames.FUNCTION, "PV")
+        .with(ValuePropertyNames.CURVE_EXPOSURES, "Exposures")
+        .with(ValuePropertyNames.CALCULATION_METHOD, "Discounting")
+        .with(ValuePropertyNames.CURRENCY, "USD")
+        .withAny(ValuePropertyNames.CURVE)
+        .withAny(ValuePropertyNames.CURVE_CALCULATION_CONFIG)
+        .get();
+    _other = ValueProperties.builder()
+        .with(ValuePropertyNames.FUNCTION, "PV")
+        .with(ValuePropertyNames.CURVE_EXPOSURES, "Exposures", "Alternative")
+        .with(ValuePropertyNames.CURRENCY, "EUR")
+        .withAny(ValuePropertyNames.CURVE)
+        .with("Aggregation", "Sum")
+        .get();
+  }
+
+  @Benchmark
+  public ValueProperties union() {
+    return _results.union(_other);
+  }
+
+  @Benchmark
+  public ValueProperties intersect() {
+    return _results.intersect(_other);
+  }
+
+  @Benchmark
+  public ValueProperties compose() {
+    return _results.compose(_constraints);
+  }
+
+  @Benchmark
+  public boolean isSatisfiedBy() {
+    return _constraints.isSatisfiedBy(_results);
+  }
+
+  @Benchmark
+  public ValueProperties copyWith() {
+    return _results.copy().withoutAny(ValuePropertyNames.FUNCTION).with(ValuePropertyNames.FUNCTION, "Other").get();
+  }
+
+}
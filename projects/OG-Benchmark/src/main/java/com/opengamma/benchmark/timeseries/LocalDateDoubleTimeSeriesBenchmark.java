@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.timeseries;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeriesBuilder;
+
+/**
+ * Benchmarks the operators on {@link ImmutableLocalDateDoubleTimeSeries} used by historical simulation functions.
+ * <p>
+ * The two series are daily business-day histories that overlap for most, but not all, of their dates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LocalDateDoubleTimeSeriesBenchmark {
+
+  /**
+   * The length of the history in years.
+   */
+  @Param({"1", "10" })
+  public int _years;
+
+  private LocalDateDoubleTimeSeries _series1;
+  private LocalDateDoubleTimeSeries _series2;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(42L);
+    final LocalDate end = LocalDate.of(2014, 6, 30);
+    final LocalDate start = end.minusYears(_years);
+    _series1 = createSeries(random, start, end, 0);
+    _series2 = createSeries(random, start.plusMonths(1), end, 97);
+  }
+
+  private static LocalDateDoubleTimeSeries createSeries(final Random random, final LocalDate start, final LocalDate end, final int holidayInterval) {
+    final LocalDateDoubleTimeSeriesBuilder builder = ImmutableLocalDateDoubleTimeSeries.builder();
+    int count = 0;
+    for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+      if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+        continue;
+      }
+      // drop some dates so that the intersection is not trivially the whole series
+      if ((holidayInterval > 0) && ((++count % holidayInterval) == 0)) {
+        continue;
+      }
+      builder.put(date, 100d + random.nextGaussian());
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public LocalDateDoubleTimeSeries add() {
+    return _series1.add(_series2);
+  }
+
+  @Benchmark
+  public LocalDateDoubleTimeSeries multiply() {
+    return _series1.multiply(_series2);
+  }
+
+  @Benchmark
+  public LocalDateDoubleTimeSeries unionAdd() {
+    return _series1.unionAdd(_series2);
+  }
+
+  @Benchmark
+  public LocalDateDoubleTimeSeries intersectionFirstValue() {
+    return _series1.intersectionFirstValue(_series2);
+  }
+
+  @Benchmark
+  public LocalDateDoubleTimeSeries scalarMultiply() {
+    return _series1.multiply(1.5);
+  }
+
+  @Benchmark
+  public LocalDateDoubleTimeSeries lag() {
+    return _series1.lag(1);
+  }
+
+  @Benchmark
+  public LocalDateDoubleTimeSeries relativeReturns() {
+    return _series1.divide(_series1.lag(1)).subtract(1d);
+  }
+
+}
@@ -101,6 +101,7 @@ public abstract class AbstractBloombergLiveDataServerComponentFactory extends Ab
     realServer.setDistributionSpecificationResolver(distSpecResolver);
     realServer.setEntitlementChecker(entitlementChecker);
     realServer.setMarketDataSenderFactory(senderFactory);
+    repo.registerLifecycle(senderFactory);
     repo.registerLifecycle(realServer);
     repo.registerMBean(new BloombergLiveDataServerMBean(realServer));
 
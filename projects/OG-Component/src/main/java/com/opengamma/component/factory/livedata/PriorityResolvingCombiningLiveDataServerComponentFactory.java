@@ -114,6 +114,7 @@ public class PriorityResolvingCombiningLiveDataServerComponentFactory extends Ab
     server.setDistributionSpecificationResolver(resolver);
     server.setEntitlementChecker(entitlementChecker);
     server.setMarketDataSenderFactory(senderFactory);
+    repo.registerLifecycle(senderFactory);
   }
 
   @Override
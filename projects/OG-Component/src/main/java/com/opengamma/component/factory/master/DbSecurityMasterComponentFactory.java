@@ -5,6 +5,7 @@
  */
 package com.opengamma.component.factory.master;
 
+import java.util.Collection;
 import java.util.Map;
 
 import net.sf.ehcache.CacheManager;
@@ -22,7 +23,9 @@ import org.joda.beans.impl.direct.DirectMetaPropertyMap;
 
 import com.opengamma.master.security.SecurityMaster;
 import com.opengamma.master.security.impl.DataTrackingSecurityMaster;
+import com.opengamma.master.security.impl.ParallelQuerySplittingSecurityMaster;
 import com.opengamma.master.security.impl.PermissionedSecurityMaster;
+import com.opengamma.master.security.impl.QuerySplittingSecurityMaster;
 import com.opengamma.master.security.impl.RemoteSecurityMaster;
 import com.opengamma.masterdb.security.DataDbSecurityMasterResource;
 import com.opengamma.masterdb.security.DbSecurityMaster;
@@ -48,6 +51,21 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
    */
   @PropertyDefinition
   private Class<? extends SecurityMasterDetailProvider> _detailProvider = HibernateSecurityMasterDetailProvider.class;
+  /**
+   * The maximum number of get requests to pass in one hit - see {@link QuerySplittingSecurityMaster#get(Collection)}
+   */
+  @PropertyDefinition
+  private Integer _maxGetRequestSize;
+  /**
+   * The maximum size of search request to pass in one hit - see {@link QuerySplittingSecurityMaster#search}
+   */
+  @PropertyDefinition
+  private Integer _maxSearchRequestSize;
+  /**
+   * Whether to use parallel search queries - see {@link ParallelQuerySplittingSecurityMaster}
+   */
+  @PropertyDefinition
+  private boolean _parallelSearchQueries;
 
   /**
    * Creates an instance.
@@ -85,7 +103,31 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
 
   @Override
   protected SecurityMaster postProcess(DbSecurityMaster master) {
-    return PermissionedSecurityMaster.wrap(master);
+    return PermissionedSecurityMaster.wrap(splitQueries(master));
+  }
+
+  /**
+   * If query splitting is enabled, wraps the security master with a query splitter.
+   * 
+   * @param master the underlying master, not null
+   * @return the original master if splitting is disabled, otherwise the splitting form
+   */
+  protected SecurityMaster splitQueries(final SecurityMaster master) {
+    final QuerySplittingSecurityMaster splitting = isParallelSearchQueries() ? new ParallelQuerySplittingSecurityMaster(master) : new QuerySplittingSecurityMaster(master);
+    boolean wrapped = false;
+    if (getMaxGetRequestSize() != null) {
+      splitting.setMaxGetRequest(getMaxGetRequestSize());
+      wrapped = true;
+    }
+    if (getMaxSearchRequestSize() != null) {
+      splitting.setMaxSearchRequest(getMaxSearchRequestSize());
+      wrapped = true;
+    }
+    if (wrapped) {
+      return splitting;
+    } else {
+      return master;
+    }
   }
 
   //------------------------- AUTOGENERATED START -------------------------
@@ -157,6 +199,81 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
     return metaBean().detailProvider().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the maximum number of get requests to pass in one hit - see {@link QuerySplittingSecurityMaster#get(Collection)}
+   * @return the value of the property
+   */
+  public Integer getMaxGetRequestSize() {
+    return _maxGetRequestSize;
+  }
+
+  /**
+   * Sets the maximum number of get requests to pass in one hit - see {@link QuerySplittingSecurityMaster#get(Collection)}
+   * @param maxGetRequestSize  the new value of the property
+   */
+  public void setMaxGetRequestSize(Integer maxGetRequestSize) {
+    this._maxGetRequestSize = maxGetRequestSize;
+  }
+
+  /**
+   * Gets the the {@code maxGetRequestSize} property.
+   * @return the property, not null
+   */
+  public final Property<Integer> maxGetRequestSize() {
+    return metaBean().maxGetRequestSize().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the maximum size of search request to pass in one hit - see {@link QuerySplittingSecurityMaster#search}
+   * @return the value of the property
+   */
+  public Integer getMaxSearchRequestSize() {
+    return _maxSearchRequestSize;
+  }
+
+  /**
+   * Sets the maximum size of search request to pass in one hit - see {@link QuerySplittingSecurityMaster#search}
+   * @param maxSearchRequestSize  the new value of the property
+   */
+  public void setMaxSearchRequestSize(Integer maxSearchRequestSize) {
+    this._maxSearchRequestSize = maxSearchRequestSize;
+  }
+
+  /**
+   * Gets the the {@code maxSearchRequestSize} property.
+   * @return the property, not null
+   */
+  public final Property<Integer> maxSearchRequestSize() {
+    return metaBean().maxSearchRequestSize().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets whether to use parallel search queries - see {@link ParallelQuerySplittingSecurityMaster}
+   * @return the value of the property
+   */
+  public boolean isParallelSearchQueries() {
+    return _parallelSearchQueries;
+  }
+
+  /**
+   * Sets whether to use parallel search queries - see {@link ParallelQuerySplittingSecurityMaster}
+   * @param parallelSearchQueries  the new value of the property
+   */
+  public void setParallelSearchQueries(boolean parallelSearchQueries) {
+    this._parallelSearchQueries = parallelSearchQueries;
+  }
+
+  /**
+   * Gets the the {@code parallelSearchQueries} property.
+   * @return the property, not null
+   */
+  public final Property<Boolean> parallelSearchQueries() {
+    return metaBean().parallelSearchQueries().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   @Override
   public DbSecurityMasterComponentFactory clone() {
@@ -172,6 +289,9 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
       DbSecurityMasterComponentFactory other = (DbSecurityMasterComponentFactory) obj;
       return JodaBeanUtils.equal(getCacheManager(), other.getCacheManager()) &&
           JodaBeanUtils.equal(getDetailProvider(), other.getDetailProvider()) &&
+          JodaBeanUtils.equal(getMaxGetRequestSize(), other.getMaxGetRequestSize()) &&
+          JodaBeanUtils.equal(getMaxSearchRequestSize(), other.getMaxSearchRequestSize()) &&
+          (isParallelSearchQueries() == other.isParallelSearchQueries()) &&
           super.equals(obj);
     }
     return false;
@@ -182,12 +302,15 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
     int hash = 7;
     hash = hash * 31 + JodaBeanUtils.hashCode(getCacheManager());
     hash = hash * 31 + JodaBeanUtils.hashCode(getDetailProvider());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getMaxGetRequestSize());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getMaxSearchRequestSize());
+    hash = hash * 31 + JodaBeanUtils.hashCode(isParallelSearchQueries());
     return hash ^ super.hashCode();
   }
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(96);
+    StringBuilder buf = new StringBuilder(192);
     buf.append("DbSecurityMasterComponentFactory{");
     int len = buf.length();
     toString(buf);
@@ -203,6 +326,9 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
     super.toString(buf);
     buf.append("cacheManager").append('=').append(JodaBeanUtils.toString(getCacheManager())).append(',').append(' ');
     buf.append("detailProvider").append('=').append(JodaBeanUtils.toString(getDetailProvider())).append(',').append(' ');
+    buf.append("maxGetRequestSize").append('=').append(JodaBeanUtils.toString(getMaxGetRequestSize())).append(',').append(' ');
+    buf.append("maxSearchRequestSize").append('=').append(JodaBeanUtils.toString(getMaxSearchRequestSize())).append(',').append(' ');
+    buf.append("parallelSearchQueries").append('=').append(JodaBeanUtils.toString(isParallelSearchQueries())).append(',').append(' ');
   }
 
   //-----------------------------------------------------------------------
@@ -226,13 +352,31 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
     @SuppressWarnings({"unchecked", "rawtypes" })
     private final MetaProperty<Class<? extends SecurityMasterDetailProvider>> _detailProvider = DirectMetaProperty.ofReadWrite(
         this, "detailProvider", DbSecurityMasterComponentFactory.class, (Class) Class.class);
+    /**
+     * The meta-property for the {@code maxGetRequestSize} property.
+     */
+    private final MetaProperty<Integer> _maxGetRequestSize = DirectMetaProperty.ofReadWrite(
+        this, "maxGetRequestSize", DbSecurityMasterComponentFactory.class, Integer.class);
+    /**
+     * The meta-property for the {@code maxSearchRequestSize} property.
+     */
+    private final MetaProperty<Integer> _maxSearchRequestSize = DirectMetaProperty.ofReadWrite(
+        this, "maxSearchRequestSize", DbSecurityMasterComponentFactory.class, Integer.class);
+    /**
+     * The meta-property for the {@code parallelSearchQueries} property.
+     */
+    private final MetaProperty<Boolean> _parallelSearchQueries = DirectMetaProperty.ofReadWrite(
+        this, "parallelSearchQueries", DbSecurityMasterComponentFactory.class, Boolean.TYPE);
     /**
      * The meta-properties.
      */
     private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
         this, (DirectMetaPropertyMap) super.metaPropertyMap(),
         "cacheManager",
-        "detailProvider");
+        "detailProvider",
+        "maxGetRequestSize",
+        "maxSearchRequestSize",
+        "parallelSearchQueries");
 
     /**
      * Restricted constructor.
@@ -247,6 +391,12 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
           return _cacheManager;
         case -1015570078:  // detailProvider
           return _detailProvider;
+        case -769924994:  // maxGetRequestSize
+          return _maxGetRequestSize;
+        case 2100076388:  // maxSearchRequestSize
+          return _maxSearchRequestSize;
+        case -337894953:  // parallelSearchQueries
+          return _parallelSearchQueries;
       }
       return super.metaPropertyGet(propertyName);
     }
@@ -283,6 +433,30 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
       return _detailProvider;
     }
 
+    /**
+     * The meta-property for the {@code maxGetRequestSize} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Integer> maxGetRequestSize() {
+      return _maxGetRequestSize;
+    }
+
+    /**
+     * The meta-property for the {@code maxSearchRequestSize} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Integer> maxSearchRequestSize() {
+      return _maxSearchRequestSize;
+    }
+
+    /**
+     * The meta-property for the {@code parallelSearchQueries} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Boolean> parallelSearchQueries() {
+      return _parallelSearchQueries;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
@@ -291,6 +465,12 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
           return ((DbSecurityMasterComponentFactory) bean).getCacheManager();
         case -1015570078:  // detailProvider
           return ((DbSecurityMasterComponentFactory) bean).getDetailProvider();
+        case -769924994:  // maxGetRequestSize
+          return ((DbSecurityMasterComponentFactory) bean).getMaxGetRequestSize();
+        case 2100076388:  // maxSearchRequestSize
+          return ((DbSecurityMasterComponentFactory) bean).getMaxSearchRequestSize();
+        case -337894953:  // parallelSearchQueries
+          return ((DbSecurityMasterComponentFactory) bean).isParallelSearchQueries();
       }
       return super.propertyGet(bean, propertyName, quiet);
     }
@@ -305,6 +485,15 @@ public class DbSecurityMasterComponentFactory extends AbstractDocumentDbMasterCo
         case -1015570078:  // detailProvider
           ((DbSecurityMasterComponentFactory) bean).setDetailProvider((Class<? extends SecurityMasterDetailProvider>) newValue);
           return;
+        case -769924994:  // maxGetRequestSize
+          ((DbSecurityMasterComponentFactory) bean).setMaxGetRequestSize((Integer) newValue);
+          return;
+        case 2100076388:  // maxSearchRequestSize
+          ((DbSecurityMasterComponentFactory) bean).setMaxSearchRequestSize((Integer) newValue);
+          return;
+        case -337894953:  // parallelSearchQueries
+          ((DbSecurityMasterComponentFactory) bean).setParallelSearchQueries((Boolean) newValue);
+          return;
       }
       super.propertySet(bean, propertyName, newValue, quiet);
     }
@@ -5,6 +5,7 @@
  */
 package com.opengamma.component.factory.source;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -28,7 +29,9 @@ import com.opengamma.component.factory.ComponentInfoAttributes;
 import com.opengamma.core.config.ConfigSource;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
 import com.opengamma.core.historicaltimeseries.impl.DataHistoricalTimeSeriesSourceResource;
+import com.opengamma.core.historicaltimeseries.impl.DiskCachingHistoricalTimeSeriesSource;
 import com.opengamma.core.historicaltimeseries.impl.EHCachingHistoricalTimeSeriesSource;
+import com.opengamma.core.historicaltimeseries.impl.MappedFileHistoricalTimeSeriesStore;
 import com.opengamma.core.historicaltimeseries.impl.RemoteHistoricalTimeSeriesSource;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesMaster;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesResolver;
@@ -62,6 +65,11 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
    */
   @PropertyDefinition
   private CacheManager _cacheManager;
+  /**
+   * The directory of the on-disk time-series cache, null for no on-disk cache.
+   */
+  @PropertyDefinition
+  private String _diskCacheDirectory;
   /**
    * The underlying hts master.
    */
@@ -124,6 +132,7 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
    * Creates the HTS source without registering it.
    * <p>
    * This calls {@link #createSourcePreCaching(ComponentRepository, HistoricalTimeSeriesResolver)}.
+   * If a disk cache directory is set the time-series are cached on disk, beneath any cache manager cache.
    * 
    * @param repo the component repository, only used to register secondary items like lifecycle, not null
    * @param resolver the resolver, not null
@@ -131,6 +140,10 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
    */
   protected HistoricalTimeSeriesSource createSource(ComponentRepository repo, HistoricalTimeSeriesResolver resolver) {
     HistoricalTimeSeriesSource source = createSourcePreCaching(repo, resolver);
+    if (getDiskCacheDirectory() != null) {
+      MappedFileHistoricalTimeSeriesStore store = new MappedFileHistoricalTimeSeriesStore(new File(getDiskCacheDirectory()), "hts");
+      source = new DiskCachingHistoricalTimeSeriesSource(source, store);
+    }
     if (getCacheManager() != null) {
       source = new EHCachingHistoricalTimeSeriesSource(source, getCacheManager());
     }
@@ -243,6 +256,31 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
     return metaBean().cacheManager().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the directory of the on-disk time-series cache, null for no on-disk cache.
+   * @return the value of the property
+   */
+  public String getDiskCacheDirectory() {
+    return _diskCacheDirectory;
+  }
+
+  /**
+   * Sets the directory of the on-disk time-series cache, null for no on-disk cache.
+   * @param diskCacheDirectory  the new value of the property
+   */
+  public void setDiskCacheDirectory(String diskCacheDirectory) {
+    this._diskCacheDirectory = diskCacheDirectory;
+  }
+
+  /**
+   * Gets the the {@code diskCacheDirectory} property.
+   * @return the property, not null
+   */
+  public final Property<String> diskCacheDirectory() {
+    return metaBean().diskCacheDirectory().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   /**
    * Gets the underlying hts master.
@@ -311,6 +349,7 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
       return JodaBeanUtils.equal(getClassifier(), other.getClassifier()) &&
           (isPublishRest() == other.isPublishRest()) &&
           JodaBeanUtils.equal(getCacheManager(), other.getCacheManager()) &&
+          JodaBeanUtils.equal(getDiskCacheDirectory(), other.getDiskCacheDirectory()) &&
           JodaBeanUtils.equal(getHistoricalTimeSeriesMaster(), other.getHistoricalTimeSeriesMaster()) &&
           JodaBeanUtils.equal(getConfigSource(), other.getConfigSource()) &&
           super.equals(obj);
@@ -324,6 +363,7 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
     hash = hash * 31 + JodaBeanUtils.hashCode(getClassifier());
     hash = hash * 31 + JodaBeanUtils.hashCode(isPublishRest());
     hash = hash * 31 + JodaBeanUtils.hashCode(getCacheManager());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getDiskCacheDirectory());
     hash = hash * 31 + JodaBeanUtils.hashCode(getHistoricalTimeSeriesMaster());
     hash = hash * 31 + JodaBeanUtils.hashCode(getConfigSource());
     return hash ^ super.hashCode();
@@ -331,7 +371,7 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(192);
+    StringBuilder buf = new StringBuilder(224);
     buf.append("HistoricalTimeSeriesSourceComponentFactory{");
     int len = buf.length();
     toString(buf);
@@ -348,6 +388,7 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
     buf.append("classifier").append('=').append(JodaBeanUtils.toString(getClassifier())).append(',').append(' ');
     buf.append("publishRest").append('=').append(JodaBeanUtils.toString(isPublishRest())).append(',').append(' ');
     buf.append("cacheManager").append('=').append(JodaBeanUtils.toString(getCacheManager())).append(',').append(' ');
+    buf.append("diskCacheDirectory").append('=').append(JodaBeanUtils.toString(getDiskCacheDirectory())).append(',').append(' ');
     buf.append("historicalTimeSeriesMaster").append('=').append(JodaBeanUtils.toString(getHistoricalTimeSeriesMaster())).append(',').append(' ');
     buf.append("configSource").append('=').append(JodaBeanUtils.toString(getConfigSource())).append(',').append(' ');
   }
@@ -377,6 +418,11 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
      */
     private final MetaProperty<CacheManager> _cacheManager = DirectMetaProperty.ofReadWrite(
         this, "cacheManager", HistoricalTimeSeriesSourceComponentFactory.class, CacheManager.class);
+    /**
+     * The meta-property for the {@code diskCacheDirectory} property.
+     */
+    private final MetaProperty<String> _diskCacheDirectory = DirectMetaProperty.ofReadWrite(
+        this, "diskCacheDirectory", HistoricalTimeSeriesSourceComponentFactory.class, String.class);
     /**
      * The meta-property for the {@code historicalTimeSeriesMaster} property.
      */
@@ -395,6 +441,7 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
         "classifier",
         "publishRest",
         "cacheManager",
+        "diskCacheDirectory",
         "historicalTimeSeriesMaster",
         "configSource");
 
@@ -413,6 +460,8 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
           return _publishRest;
         case -1452875317:  // cacheManager
           return _cacheManager;
+        case 1413293064:  // diskCacheDirectory
+          return _diskCacheDirectory;
         case 173967376:  // historicalTimeSeriesMaster
           return _historicalTimeSeriesMaster;
         case 195157501:  // configSource
@@ -461,6 +510,14 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
       return _cacheManager;
     }
 
+    /**
+     * The meta-property for the {@code diskCacheDirectory} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<String> diskCacheDirectory() {
+      return _diskCacheDirectory;
+    }
+
     /**
      * The meta-property for the {@code historicalTimeSeriesMaster} property.
      * @return the meta-property, not null
@@ -487,6 +544,8 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
           return ((HistoricalTimeSeriesSourceComponentFactory) bean).isPublishRest();
         case -1452875317:  // cacheManager
           return ((HistoricalTimeSeriesSourceComponentFactory) bean).getCacheManager();
+        case 1413293064:  // diskCacheDirectory
+          return ((HistoricalTimeSeriesSourceComponentFactory) bean).getDiskCacheDirectory();
         case 173967376:  // historicalTimeSeriesMaster
           return ((HistoricalTimeSeriesSourceComponentFactory) bean).getHistoricalTimeSeriesMaster();
         case 195157501:  // configSource
@@ -507,6 +566,9 @@ public class HistoricalTimeSeriesSourceComponentFactory extends AbstractComponen
         case -1452875317:  // cacheManager
           ((HistoricalTimeSeriesSourceComponentFactory) bean).setCacheManager((CacheManager) newValue);
           return;
+        case 1413293064:  // diskCacheDirectory
+          ((HistoricalTimeSeriesSourceComponentFactory) bean).setDiskCacheDirectory((String) newValue);
+          return;
         case 173967376:  // historicalTimeSeriesMaster
           ((HistoricalTimeSeriesSourceComponentFactory) bean).setHistoricalTimeSeriesMaster((HistoricalTimeSeriesMaster) newValue);
           return;
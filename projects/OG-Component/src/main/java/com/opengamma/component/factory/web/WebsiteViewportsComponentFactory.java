@@ -63,6 +63,7 @@ import com.opengamma.master.security.SecurityMaster;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.web.analytics.AnalyticsViewManager;
 import com.opengamma.web.analytics.GridColumnsJsonWriter;
+import com.opengamma.web.analytics.ViewportResultsBinaryWriter;
 import com.opengamma.web.analytics.ViewportResultsJsonCsvWriter;
 import com.opengamma.web.analytics.blotter.BlotterResource;
 import com.opengamma.web.analytics.formatting.ResultsFormatter;
@@ -240,6 +241,7 @@ public class WebsiteViewportsComponentFactory extends AbstractComponentFactory {
     ResultsFormatter resultsFormatter = new ResultsFormatter(_suppressCurrencyDisplay ? SUPPRESS_CURRENCY : DISPLAY_CURRENCY);
     GridColumnsJsonWriter columnWriter = new GridColumnsJsonWriter(resultsFormatter);
     ViewportResultsJsonCsvWriter viewportResultsWriter = new ViewportResultsJsonCsvWriter(resultsFormatter);
+    ViewportResultsBinaryWriter viewportResultsBinaryWriter = new ViewportResultsBinaryWriter(resultsFormatter);
 
     repo.getRestComponents().publishResource(aggregatorsResource);
     repo.getRestComponents().publishResource(snapshotResource);
@@ -259,7 +261,7 @@ public class WebsiteViewportsComponentFactory extends AbstractComponentFactory {
     repo.getRestComponents().publishHelper(new DependencyGraphGridStructureMessageBodyWriter(columnWriter));
     repo.getRestComponents().publishHelper(new ValueRequirementMessageBodyWriter());
     repo.getRestComponents().publishHelper(new GridColumnGroupsMessageBodyWriter(columnWriter));
-    repo.getRestComponents().publishHelper(new ViewportResultsMessageBodyWriter(viewportResultsWriter));
+    repo.getRestComponents().publishHelper(new ViewportResultsMessageBodyWriter(viewportResultsWriter, viewportResultsBinaryWriter));
     repo.getRestComponents().publishHelper(new ViewDefinitionEntriesResource(configSource));
     repo.getRestComponents().publishHelper(new ErrorInfoMessageBodyWriter());
 
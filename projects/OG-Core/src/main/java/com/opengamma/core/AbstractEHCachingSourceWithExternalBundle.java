@@ -128,7 +128,11 @@ public abstract class AbstractEHCachingSourceWithExternalBundle<V extends Unique
     ArgumentChecker.notNull(bundles, "bundles");
     ArgumentChecker.notNull(versionCorrection, "versionCorrection");
     if (versionCorrection.containsLatest()) {
-      return getUnderlying().getAll(bundles, versionCorrection);
+      final Map<ExternalIdBundle, Collection<V>> results = getUnderlying().getAll(bundles, versionCorrection);
+      for (Collection<V> result : results.values()) {
+        cacheItems(result);
+      }
+      return results;
     }
     final Map<ExternalIdBundle, Collection<V>> results = Maps.newHashMapWithExpectedSize(bundles.size());
     final Collection<ExternalIdBundle> misses = new ArrayList<ExternalIdBundle>(bundles.size());
@@ -242,7 +246,9 @@ public abstract class AbstractEHCachingSourceWithExternalBundle<V extends Unique
     ArgumentChecker.notNull(bundles, "bundles");
     ArgumentChecker.notNull(versionCorrection, "versionCorrection");
     if (versionCorrection.containsLatest()) {
-      return getUnderlying().getSingle(bundles, versionCorrection);
+      final Map<ExternalIdBundle, V> results = getUnderlying().getSingle(bundles, versionCorrection);
+      cacheItems(results.values());
+      return results;
     }
     final Map<ExternalIdBundle, V> results = Maps.newHashMapWithExpectedSize(bundles.size());
     final Collection<ExternalIdBundle> misses = new ArrayList<ExternalIdBundle>(bundles.size());
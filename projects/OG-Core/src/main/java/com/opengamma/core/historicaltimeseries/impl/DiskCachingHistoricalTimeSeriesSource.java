@@ -0,0 +1,500 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core.historicaltimeseries.impl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Clock;
+import org.threeten.bp.LocalDate;
+
+import com.google.common.collect.Maps;
+import com.opengamma.core.change.BasicChangeManager;
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.core.change.ChangeListener;
+import com.opengamma.core.change.ChangeManager;
+import com.opengamma.core.change.ChangeType;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.OpenGammaClock;
+import com.opengamma.util.function.Supplier;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * A cache decorating a {@code HistoricalTimeSeriesSource} which keeps the latest version
+ * of each time-series in a {@link MappedFileHistoricalTimeSeriesStore}.
+ * <p>
+ * Whole time-series are fetched from the underlying source and stored compressed on disk,
+ * with requests for part of a time-series served by decoding only the chunks covering it.
+ * The lookups of time-series by identifier are stored as aliases so that they survive a
+ * restart along with the time-series.
+ * <p>
+ * Time-series are removed when the underlying source reports a change, and a time-series
+ * fetched while it was being changed is not stored. The lookups are all removed when a
+ * time-series is added, as it may be the one now found for some identifiers.
+ * <p>
+ * A stored time-series or lookup may have changed while no source was listening, so the
+ * first time each is used by this source it is checked against the unique identifier and
+ * latest point of the underlying source's time-series, which is fetched again if they differ.
+ * Requests for a specific earlier version of a time-series are passed to the underlying source.
+ * <p>
+ * This is intended to sit beneath an {@link EHCachingHistoricalTimeSeriesSource}, which
+ * caches the time-series in use on the heap.
+ */
+public class DiskCachingHistoricalTimeSeriesSource implements HistoricalTimeSeriesSource {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(DiskCachingHistoricalTimeSeriesSource.class);
+
+  /** The underlying source. */
+  private final HistoricalTimeSeriesSource _underlying;
+  /** The store. */
+  private final MappedFileHistoricalTimeSeriesStore _store;
+  /** The local change manager. */
+  private final ChangeManager _changeManager = new BasicChangeManager();
+  /** The clock. */
+  private final Clock _clock = OpenGammaClock.getInstance();
+  /** The object identifiers and aliases checked against the underlying source, or stored, by this source. */
+  private final Set<Object> _validated = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+  /**
+   * Creates an instance.
+   *
+   * @param underlying  the underlying source, not null
+   * @param store  the store, not null
+   */
+  public DiskCachingHistoricalTimeSeriesSource(final HistoricalTimeSeriesSource underlying, final MappedFileHistoricalTimeSeriesStore store) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNull(store, "store");
+    _underlying = underlying;
+    _store = store;
+    _underlying.changeManager().addChangeListener(new ChangeListener() {
+      @Override
+      public void entityChanged(ChangeEvent event) {
+        if (event.getType() == ChangeType.ADDED) {
+          _store.clearAliases();
+        }
+        _store.remove(event.getObjectId());
+        changeManager().entityChanged(event.getType(), event.getObjectId(), event.getVersionFrom(), event.getVersionTo(), event.getVersionInstant());
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying source.
+   *
+   * @return the underlying source, not null
+   */
+  public HistoricalTimeSeriesSource getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Gets the store.
+   *
+   * @return the store, not null
+   */
+  public MappedFileHistoricalTimeSeriesStore getStore() {
+    return _store;
+  }
+
+  /**
+   * Gets the clock.
+   *
+   * @return the clock, not null
+   */
+  public Clock getClock() {
+    return _clock;
+  }
+
+  @Override
+  public ChangeManager changeManager() {
+    return _changeManager;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(UniqueId uniqueId) {
+    return doGetHistoricalTimeSeries(uniqueId, null, true, null, true, null);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return doGetHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, null);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, int maxPoints) {
+    return doGetHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(UniqueId uniqueId) {
+    return latestDataPoint(doGetHistoricalTimeSeries(uniqueId, null, true, null, true, -1));
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return latestDataPoint(doGetHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, -1));
+  }
+
+  private HistoricalTimeSeries doGetHistoricalTimeSeries(
+      final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final Integer maxPoints) {
+    ArgumentChecker.notNull(uniqueId, "uniqueId");
+    final ObjectId objectId = uniqueId.getObjectId();
+    final UniqueId stored = _store.getUniqueId(objectId);
+    if (stored != null && (uniqueId.isLatest() ? isValid(objectId, objectId, fetchLatest(uniqueId)) : uniqueId.equals(stored))) {
+      final HistoricalTimeSeries hts = _store.get(objectId, start, includeStart, end, includeEnd, maxPoints);
+      if (hts != null) {
+        return hts;
+      }
+    }
+    if (uniqueId.isVersioned()) {
+      // only the latest version is stored, which may be a different version
+      if (maxPoints == null) {
+        return _underlying.getHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd);
+      }
+      return _underlying.getHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, maxPoints);
+    }
+    final long modificationCount = _store.getModificationCount();
+    final HistoricalTimeSeries hts = _underlying.getHistoricalTimeSeries(uniqueId);
+    if (hts == null) {
+      return null;
+    }
+    if (hts.getTimeSeries() != null && _store.put(hts, modificationCount)) {
+      _validated.add(objectId);
+    }
+    return subSeries(hts, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  private Supplier<HistoricalTimeSeries> fetchLatest(final UniqueId uniqueId) {
+    return new Supplier<HistoricalTimeSeries>() {
+      @Override
+      public HistoricalTimeSeries get() {
+        return _underlying.getHistoricalTimeSeries(uniqueId, null, true, null, true, -1);
+      }
+    };
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      ExternalIdBundle identifierBundle, String dataSource, String dataProvider, String dataField) {
+    return getHistoricalTimeSeries(identifierBundle, LocalDate.now(getClock()), dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      ExternalIdBundle identifierBundle, String dataSource, String dataProvider, String dataField,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return getHistoricalTimeSeries(identifierBundle, LocalDate.now(getClock()), dataSource, dataProvider, dataField, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      ExternalIdBundle identifierBundle, String dataSource, String dataProvider, String dataField,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, int maxPoints) {
+    return getHistoricalTimeSeries(identifierBundle, LocalDate.now(getClock()), dataSource, dataProvider, dataField, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String dataSource, String dataProvider, String dataField) {
+    return doGetHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, null, true, null, true, null);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String dataSource, String dataProvider, String dataField,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return doGetHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd, null);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String dataSource, String dataProvider, String dataField,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, int maxPoints) {
+    return doGetHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String dataSource, String dataProvider, String dataField) {
+    return latestDataPoint(doGetHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, null, true, null, true, -1));
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String dataSource, String dataProvider, String dataField,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return latestDataPoint(doGetHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd, -1));
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      ExternalIdBundle identifierBundle, String dataSource, String dataProvider, String dataField) {
+    return getLatestDataPoint(identifierBundle, LocalDate.now(getClock()), dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      ExternalIdBundle identifierBundle, String dataSource, String dataProvider, String dataField,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return getLatestDataPoint(identifierBundle, LocalDate.now(getClock()), dataSource, dataProvider, dataField, start, includeStart, end, includeEnd);
+  }
+
+  private HistoricalTimeSeries doGetHistoricalTimeSeries(
+      final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate, final String dataSource, final String dataProvider, final String dataField,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final Integer maxPoints) {
+    ArgumentChecker.notNull(identifierBundle, "identifierBundle");
+    final String alias = alias(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField);
+    return doGetHistoricalTimeSeries(alias, start, includeStart, end, includeEnd, maxPoints, new Supplier<HistoricalTimeSeries>() {
+      @Override
+      public HistoricalTimeSeries get() {
+        return _underlying.getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField);
+      }
+    }, new Supplier<HistoricalTimeSeries>() {
+      @Override
+      public HistoricalTimeSeries get() {
+        return _underlying.getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, null, true, null, true, -1);
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      String dataField, ExternalIdBundle identifierBundle, String resolutionKey) {
+    return getHistoricalTimeSeries(dataField, identifierBundle, LocalDate.now(getClock()), resolutionKey);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      String dataField, ExternalIdBundle identifierBundle, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return getHistoricalTimeSeries(dataField, identifierBundle, LocalDate.now(getClock()), resolutionKey, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      String dataField, ExternalIdBundle identifierBundle, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, int maxPoints) {
+    return getHistoricalTimeSeries(dataField, identifierBundle, LocalDate.now(getClock()), resolutionKey, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      String dataField, ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String resolutionKey) {
+    return doGetHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, null, true, null, true, null);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      String dataField, ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return doGetHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd, null);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(
+      String dataField, ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, int maxPoints) {
+    return doGetHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      String dataField, ExternalIdBundle identifierBundle, String resolutionKey) {
+    return getLatestDataPoint(dataField, identifierBundle, LocalDate.now(getClock()), resolutionKey);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      String dataField, ExternalIdBundle identifierBundle, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return getLatestDataPoint(dataField, identifierBundle, LocalDate.now(getClock()), resolutionKey, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      String dataField, ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String resolutionKey) {
+    return latestDataPoint(doGetHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, null, true, null, true, -1));
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(
+      String dataField, ExternalIdBundle identifierBundle, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    return latestDataPoint(doGetHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd, -1));
+  }
+
+  private HistoricalTimeSeries doGetHistoricalTimeSeries(
+      final String dataField, final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate, final String resolutionKey,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final Integer maxPoints) {
+    ArgumentChecker.notNull(identifierBundle, "identifierBundle");
+    final String alias = "resolve|" + dataField + "|" + identifierBundle + "|" + identifierValidityDate + "|" + resolutionKey;
+    return doGetHistoricalTimeSeries(alias, start, includeStart, end, includeEnd, maxPoints, new Supplier<HistoricalTimeSeries>() {
+      @Override
+      public HistoricalTimeSeries get() {
+        return _underlying.getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey);
+      }
+    }, new Supplier<HistoricalTimeSeries>() {
+      @Override
+      public HistoricalTimeSeries get() {
+        return _underlying.getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, null, true, null, true, -1);
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Map<ExternalIdBundle, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Set<ExternalIdBundle> identifierSet, String dataSource, String dataProvider, String dataField,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(identifierSet, "identifierSet");
+    Map<ExternalIdBundle, HistoricalTimeSeries> result = Maps.newHashMap();
+    Set<ExternalIdBundle> remainingIds = new HashSet<>();
+    for (ExternalIdBundle identifiers : identifierSet) {
+      HistoricalTimeSeries hts = null;
+      final String alias = alias(identifiers, null, dataSource, dataProvider, dataField);
+      ObjectId objectId = _store.getAlias(alias);
+      // lookups not yet checked against the underlying source are fetched again with the others
+      if (objectId != null && _validated.contains(alias)) {
+        hts = _store.get(objectId, start, includeStart, end, includeEnd, null);
+      }
+      if (hts == null) {
+        remainingIds.add(identifiers);
+      } else {
+        result.put(identifiers, hts);
+      }
+    }
+    if (remainingIds.size() > 0) {
+      final long modificationCount = _store.getModificationCount();
+      Map<ExternalIdBundle, HistoricalTimeSeries> remainingTsResults =
+          _underlying.getHistoricalTimeSeries(remainingIds, dataSource, dataProvider, dataField, null, true, null, true);
+      for (Map.Entry<ExternalIdBundle, HistoricalTimeSeries> tsResult : remainingTsResults.entrySet()) {
+        HistoricalTimeSeries hts = tsResult.getValue();
+        if (hts != null) {
+          store(alias(tsResult.getKey(), null, dataSource, dataProvider, dataField), hts, modificationCount);
+          hts = subSeries(hts, start, includeStart, end, includeEnd, null);
+        }
+        result.put(tsResult.getKey(), hts);
+      }
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public ExternalIdBundle getExternalIdBundle(UniqueId uniqueId) {
+    return _underlying.getExternalIdBundle(uniqueId);
+  }
+
+  //-------------------------------------------------------------------------
+  private static String alias(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String dataSource, final String dataProvider, final String dataField) {
+    return "ids|" + identifierBundle + "|" + identifierValidityDate + "|" + dataSource + "|" + dataProvider + "|" + dataField;
+  }
+
+  /**
+   * Serves an identifier lookup from the store, fetching and storing the whole time-series if not found.
+   */
+  private HistoricalTimeSeries doGetHistoricalTimeSeries(final String alias,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final Integer maxPoints,
+      final Supplier<HistoricalTimeSeries> fetchAll, final Supplier<HistoricalTimeSeries> fetchLatest) {
+    final ObjectId objectId = _store.getAlias(alias);
+    if (objectId != null && isValid(alias, objectId, fetchLatest)) {
+      final HistoricalTimeSeries hts = _store.get(objectId, start, includeStart, end, includeEnd, maxPoints);
+      if (hts != null) {
+        return hts;
+      }
+    }
+    final long modificationCount = _store.getModificationCount();
+    final HistoricalTimeSeries hts = fetchAll.get();
+    if (hts == null) {
+      return null;
+    }
+    store(alias, hts, modificationCount);
+    return subSeries(hts, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  private void store(final String alias, final HistoricalTimeSeries hts, final long modificationCount) {
+    if (hts.getUniqueId() == null || hts.getTimeSeries() == null) {
+      return;
+    }
+    s_logger.debug("Storing time-series {} for {}", hts.getUniqueId(), alias);
+    final ObjectId objectId = hts.getUniqueId().getObjectId();
+    if (_store.put(hts, modificationCount)) {
+      _validated.add(objectId);
+      if (_store.putAlias(alias, objectId, modificationCount)) {
+        _validated.add(alias);
+      }
+    }
+  }
+
+  /**
+   * Checks a stored time-series against the underlying source the first time it is used by this source.
+   *
+   * @param key  the object identifier or alias the time-series was found by, not null
+   * @param objectId  the object identifier of the stored time-series, not null
+   * @param fetchLatest  fetches the latest point of the time-series from the underlying source, not null
+   * @return true if the stored time-series is current
+   */
+  private boolean isValid(final Object key, final ObjectId objectId, final Supplier<HistoricalTimeSeries> fetchLatest) {
+    if (_validated.contains(key)) {
+      return true;
+    }
+    final HistoricalTimeSeries latest = fetchLatest.get();
+    if (latest == null || latest.getUniqueId() == null || !latest.getUniqueId().equals(_store.getUniqueId(objectId))) {
+      return false;
+    }
+    final Pair<LocalDate, Double> latestPoint = latestDataPoint(latest);
+    final Pair<LocalDate, Double> storedPoint = latestDataPoint(_store.get(objectId, null, true, null, true, -1));
+    if (latestPoint == null ? storedPoint != null : !latestPoint.equals(storedPoint)) {
+      return false;
+    }
+    s_logger.debug("Stored time-series {} for {} is current", latest.getUniqueId(), key);
+    _validated.add(key);
+    return true;
+  }
+
+  private static HistoricalTimeSeries subSeries(final HistoricalTimeSeries hts,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final Integer maxPoints) {
+    if (hts.getTimeSeries() == null || (start == null && end == null && maxPoints == null)) {
+      return hts;
+    }
+    return new SimpleHistoricalTimeSeries(hts.getUniqueId(),
+        MappedFileHistoricalTimeSeriesStore.subSeries(hts.getTimeSeries(), start, includeStart, end, includeEnd, maxPoints));
+  }
+
+  private static Pair<LocalDate, Double> latestDataPoint(final HistoricalTimeSeries hts) {
+    if (hts == null || hts.getTimeSeries() == null || hts.getTimeSeries().isEmpty()) {
+      return null;
+    }
+    return Pairs.of(hts.getTimeSeries().getLatestTime(), hts.getTimeSeries().getLatestValue());
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[" + getUnderlying() + "]";
+  }
+
+}
@@ -0,0 +1,1073 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core.historicaltimeseries.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.LocalDate;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateToIntConverter;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A persistent store of the latest version of historical time-series, held in memory-mapped segment files.
+ * <p>
+ * Each time-series is split into chunks of consecutive points. Within a chunk the dates are delta encoded
+ * and each value is XOR encoded against the previous one before the chunk is deflated. The dates covered
+ * by each chunk are indexed on the heap so that a date range, or the first or last few points, can be
+ * served by inflating only the chunks needed.
+ * <p>
+ * Time-series, removals and aliases are appended to the segment files as records, so replacing a
+ * time-series leaves its previous record behind. The index is rebuilt from the records when the store
+ * is opened, dropping time-series stored longer ago than the maximum age, and the live records are
+ * copied into new files once more than half of the contents of the files is no longer needed.
+ * <p>
+ * The files written by each compaction are a new generation. They are written with a temporary suffix
+ * and renamed once complete, and the files of the previous generation are only deleted once every file
+ * has been renamed. When the store is opened it uses the latest generation with no temporary files, so
+ * a compaction that is interrupted leaves the previous generation in use.
+ * <p>
+ * A time-series fetched from elsewhere can be stored with {@link #put(HistoricalTimeSeries, long)} so
+ * that it is not stored if it was removed while it was being fetched.
+ * <p>
+ * The mapped memory of deleted segment files is released by the operating system once the buffers
+ * have been garbage collected.
+ * <p>
+ * This class is internally synchronized.
+ */
+public class MappedFileHistoricalTimeSeriesStore {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedFileHistoricalTimeSeriesStore.class);
+
+  /**
+   * The default size of each segment file.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+  /**
+   * The default number of points in each chunk.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 256;
+  /**
+   * The default maximum age of the time-series kept when the store is opened.
+   */
+  public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  /**
+   * The number of bytes used for the length prefix of each record.
+   */
+  private static final int HEADER_SIZE = 4;
+  private static final byte SERIES_RECORD = 1;
+  private static final byte REMOVE_RECORD = 2;
+  private static final byte ALIAS_RECORD = 3;
+  private static final byte CLEAR_ALIASES_RECORD = 4;
+  /**
+   * The number of stripes the removals are recorded in.
+   */
+  private static final int REMOVAL_STRIPES = 1024;
+
+  private final File _directory;
+  private final String _name;
+  private final int _segmentSize;
+  private final int _chunkSize;
+  private final Pattern _fileNames;
+
+  /**
+   * Guards all of the state below. Reads of the segments are made holding the read lock.
+   */
+  private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+  private final Map<ObjectId, Entry> _entries = new HashMap<ObjectId, Entry>();
+  private final Map<String, ObjectId> _aliases = new HashMap<String, ObjectId>();
+  private final SetMultimap<ObjectId, String> _aliasesByObjectId = HashMultimap.create();
+  private final List<MappedByteBuffer> _segments = new ArrayList<MappedByteBuffer>();
+  private final List<File> _files = new ArrayList<File>();
+  /**
+   * The generation of the segment files, incremented by each compaction.
+   */
+  private int _fileGeneration;
+  /**
+   * The number of removals of time-series or aliases made from the store, see {@link #getModificationCount}.
+   */
+  private long _modificationCount;
+  /**
+   * The modification count at the last removal of a time-series in each stripe of object identifiers.
+   */
+  private final long[] _removals = new long[REMOVAL_STRIPES];
+  /**
+   * The modification count at which the aliases were last cleared.
+   */
+  private long _aliasesCleared;
+  /**
+   * The next free byte in the last segment.
+   */
+  private int _writePosition;
+  /**
+   * The bytes of all the records in the segment files.
+   */
+  private long _totalBytes;
+  /**
+   * The bytes of the records of the stored time-series.
+   */
+  private long _liveBytes;
+  /**
+   * Whether new segments are being written by {@link #compact}.
+   */
+  private boolean _compacting;
+
+  /**
+   * Opens a store with the default sizes and maximum age.
+   *
+   * @param directory  the folder holding the segment files, created if necessary, not null
+   * @param name  the prefix for the segment file names, not null
+   */
+  public MappedFileHistoricalTimeSeriesStore(final File directory, final String name) {
+    this(directory, name, DEFAULT_SEGMENT_SIZE, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_AGE_MILLIS);
+  }
+
+  /**
+   * Opens a store, reading the time-series stored by any previous store with the same files.
+   *
+   * @param directory  the folder holding the segment files, created if necessary, not null
+   * @param name  the prefix for the segment file names, not null
+   * @param segmentSize  the size of each segment file in bytes
+   * @param chunkSize  the number of points in each chunk, greater than zero
+   * @param maxAgeMillis  the age beyond which previously stored time-series are dropped when opening
+   */
+  public MappedFileHistoricalTimeSeriesStore(final File directory, final String name, final int segmentSize, final int chunkSize, final long maxAgeMillis) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.notNull(name, "name");
+    ArgumentChecker.isTrue(segmentSize > HEADER_SIZE, "segmentSize too small");
+    ArgumentChecker.isTrue(chunkSize > 0, "chunkSize must be greater than zero");
+    ArgumentChecker.notNegative(maxAgeMillis, "maxAgeMillis");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create directory " + directory);
+    }
+    _directory = directory;
+    _name = name;
+    _segmentSize = segmentSize;
+    _chunkSize = chunkSize;
+    _fileNames = Pattern.compile(Pattern.quote(name) + "-(\\d+)-\\d+\\.(dat|tmp)");
+    open(System.currentTimeMillis() - maxAgeMillis);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of time-series stored.
+   *
+   * @return the number of time-series
+   */
+  public int size() {
+    _lock.readLock().lock();
+    try {
+      return _entries.size();
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of segment files currently mapped.
+   *
+   * @return the segment count
+   */
+  public int getSegmentCount() {
+    _lock.readLock().lock();
+    try {
+      return _segments.size();
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the unique identifier of a stored time-series.
+   *
+   * @param objectId  the object identifier of the time-series, not null
+   * @return the unique identifier of the stored version, null if not stored
+   */
+  public UniqueId getUniqueId(final ObjectId objectId) {
+    ArgumentChecker.notNull(objectId, "objectId");
+    _lock.readLock().lock();
+    try {
+      final Entry entry = _entries.get(objectId);
+      return (entry != null ? entry._uniqueId : null);
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the points of a stored time-series between two dates.
+   * <p>
+   * Only the chunks overlapping the dates are inflated. If a maximum number of points is
+   * given then only the chunks needed for those points are inflated.
+   *
+   * @param objectId  the object identifier of the time-series, not null
+   * @param start  the start date, null for the earliest date
+   * @param includeStart  whether the start date is included
+   * @param end  the end date, null for the latest date
+   * @param includeEnd  whether the end date is included
+   * @param maxPoints  the maximum number of points, from the start if positive or the end if negative, null for all
+   * @return the time-series, null if not stored
+   */
+  public HistoricalTimeSeries get(final ObjectId objectId, final LocalDate start, final boolean includeStart,
+      final LocalDate end, final boolean includeEnd, final Integer maxPoints) {
+    ArgumentChecker.notNull(objectId, "objectId");
+    final int startDate = toStartDate(start, includeStart);
+    final int endDate = toEndDate(end, includeEnd);
+    _lock.readLock().lock();
+    try {
+      final Entry entry = _entries.get(objectId);
+      if (entry == null) {
+        return null;
+      }
+      return new SimpleHistoricalTimeSeries(entry._uniqueId, read(entry, startDate, endDate, maxPoints));
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the count of removals of time-series or aliases made from the store.
+   * <p>
+   * This is taken before fetching a time-series to store so that it can be passed to
+   * {@link #put(HistoricalTimeSeries, long)} and {@link #putAlias(String, ObjectId, long)}.
+   *
+   * @return the modification count
+   */
+  public long getModificationCount() {
+    _lock.readLock().lock();
+    try {
+      return _modificationCount;
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Stores a time-series, replacing any previously stored version.
+   *
+   * @param series  the time-series, not null
+   */
+  public void put(final HistoricalTimeSeries series) {
+    put(series, Long.MAX_VALUE);
+  }
+
+  /**
+   * Stores a time-series, replacing any previously stored version, unless it may have been removed since
+   * the modification count was taken.
+   * <p>
+   * Removals are recorded against a stripe of object identifiers, so a removal of another time-series
+   * can occasionally prevent the time-series from being stored.
+   *
+   * @param series  the time-series, not null
+   * @param modificationCount  the value of {@link #getModificationCount} from before the time-series was fetched
+   * @return true if the time-series was stored, false if it may have been removed since
+   */
+  public boolean put(final HistoricalTimeSeries series, final long modificationCount) {
+    ArgumentChecker.notNull(series, "series");
+    ArgumentChecker.notNull(series.getUniqueId(), "series.uniqueId");
+    ArgumentChecker.notNull(series.getTimeSeries(), "series.timeSeries");
+    final Entry entry = new Entry(series.getUniqueId(), System.currentTimeMillis(), series.getTimeSeries(), _chunkSize);
+    final byte[] record = entry.encode(series.getTimeSeries());
+    final ObjectId objectId = series.getUniqueId().getObjectId();
+    _lock.writeLock().lock();
+    try {
+      if (_removals[stripe(objectId)] > modificationCount) {
+        s_logger.debug("Not storing time-series {} removed since it was fetched", series.getUniqueId());
+        return false;
+      }
+      append(record);
+      entry.relocate(_segments.size() - 1, _writePosition - record.length - HEADER_SIZE);
+      final Entry previous = _entries.put(objectId, entry);
+      _liveBytes += entry._recordLength;
+      if (previous != null) {
+        _liveBytes -= previous._recordLength;
+      }
+      compactIfWasteful();
+      return true;
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a time-series and any aliases of it.
+   * <p>
+   * The removal is recorded even if the time-series is not stored, so that a version fetched before
+   * the removal is not then stored.
+   *
+   * @param objectId  the object identifier of the time-series, not null
+   */
+  public void remove(final ObjectId objectId) {
+    ArgumentChecker.notNull(objectId, "objectId");
+    _lock.writeLock().lock();
+    try {
+      _removals[stripe(objectId)] = ++_modificationCount;
+      final Entry previous = _entries.remove(objectId);
+      if (previous != null) {
+        _liveBytes -= previous._recordLength;
+      }
+      final boolean aliased = removeAliases(objectId);
+      if (previous != null || aliased) {
+        append(removeRecord(objectId));
+      }
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the time-series that an alias refers to.
+   *
+   * @param alias  the alias, not null
+   * @return the object identifier of the time-series, null if not known
+   */
+  public ObjectId getAlias(final String alias) {
+    ArgumentChecker.notNull(alias, "alias");
+    _lock.readLock().lock();
+    try {
+      return _aliases.get(alias);
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Stores an alias for a stored time-series, such as the key of an identifier lookup.
+   * <p>
+   * The alias is removed when the time-series is removed.
+   * Nothing is stored if the time-series is not stored.
+   *
+   * @param alias  the alias, not null
+   * @param objectId  the object identifier of the time-series, not null
+   */
+  public void putAlias(final String alias, final ObjectId objectId) {
+    putAlias(alias, objectId, Long.MAX_VALUE);
+  }
+
+  /**
+   * Stores an alias for a stored time-series, unless the time-series or the aliases may have been
+   * removed since the modification count was taken.
+   *
+   * @param alias  the alias, not null
+   * @param objectId  the object identifier of the time-series, not null
+   * @param modificationCount  the value of {@link #getModificationCount} from before the time-series was looked up
+   * @return true if the alias is stored, false if it may have been removed since
+   */
+  public boolean putAlias(final String alias, final ObjectId objectId, final long modificationCount) {
+    ArgumentChecker.notNull(alias, "alias");
+    ArgumentChecker.notNull(objectId, "objectId");
+    _lock.writeLock().lock();
+    try {
+      if (!_entries.containsKey(objectId) || _aliasesCleared > modificationCount || _removals[stripe(objectId)] > modificationCount) {
+        return false;
+      }
+      if (!objectId.equals(_aliases.get(alias))) {
+        append(aliasRecord(alias, objectId));
+        addAlias(alias, objectId);
+      }
+      return true;
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all of the aliases, keeping the time-series.
+   */
+  public void clearAliases() {
+    _lock.writeLock().lock();
+    try {
+      _aliasesCleared = ++_modificationCount;
+      if (!_aliases.isEmpty()) {
+        _aliases.clear();
+        _aliasesByObjectId.clear();
+        append(new byte[] {CLEAR_ALIASES_RECORD });
+      }
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all the time-series and deletes the segment files.
+   */
+  public void clear() {
+    _lock.writeLock().lock();
+    try {
+      _modificationCount++;
+      Arrays.fill(_removals, _modificationCount);
+      _aliasesCleared = _modificationCount;
+      _entries.clear();
+      _aliases.clear();
+      _aliasesByObjectId.clear();
+      deleteFiles(_files);
+      _segments.clear();
+      _files.clear();
+      _writePosition = 0;
+      _totalBytes = 0;
+      _liveBytes = 0;
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  private static int stripe(final ObjectId objectId) {
+    return (objectId.hashCode() & Integer.MAX_VALUE) % REMOVAL_STRIPES;
+  }
+
+  private static int toStartDate(final LocalDate start, final boolean includeStart) {
+    if (start == null) {
+      return Integer.MIN_VALUE;
+    }
+    final int date = LocalDateToIntConverter.convertToInt(start);
+    return (includeStart || date == Integer.MAX_VALUE ? date : date + 1);
+  }
+
+  private static int toEndDate(final LocalDate end, final boolean includeEnd) {
+    if (end == null) {
+      return Integer.MAX_VALUE;
+    }
+    final int date = LocalDateToIntConverter.convertToInt(end);
+    return (includeEnd || date == Integer.MIN_VALUE ? date : date - 1);
+  }
+
+  /**
+   * Restricts a time-series to the points between two dates.
+   *
+   * @param series  the time-series, not null
+   * @param start  the start date, null for the earliest date
+   * @param includeStart  whether the start date is included
+   * @param end  the end date, null for the latest date
+   * @param includeEnd  whether the end date is included
+   * @param maxPoints  the maximum number of points, from the start if positive or the end if negative, null for all
+   * @return the restricted time-series, not null
+   */
+  public static LocalDateDoubleTimeSeries subSeries(final LocalDateDoubleTimeSeries series, final LocalDate start, final boolean includeStart,
+      final LocalDate end, final boolean includeEnd, final Integer maxPoints) {
+    ArgumentChecker.notNull(series, "series");
+    return subSeries(series.timesArrayFast(), series.valuesArrayFast(), series.size(), toStartDate(start, includeStart), toEndDate(end, includeEnd), maxPoints);
+  }
+
+  private static LocalDateDoubleTimeSeries subSeries(final int[] dates, final double[] values, final int size,
+      final int startDate, final int endDate, final Integer maxPoints) {
+    int from = 0;
+    while (from < size && dates[from] < startDate) {
+      from++;
+    }
+    int to = size;
+    while (to > from && dates[to - 1] > endDate) {
+      to--;
+    }
+    if (maxPoints != null) {
+      if (maxPoints >= 0) {
+        to = Math.min(to, from + maxPoints);
+      } else {
+        from = Math.max(from, to + maxPoints);
+      }
+    }
+    if (from >= to) {
+      return ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES;
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(Arrays.copyOfRange(dates, from, to), Arrays.copyOfRange(values, from, to));
+  }
+
+  /**
+   * Reads the points of a time-series, holding the read lock.
+   */
+  private LocalDateDoubleTimeSeries read(final Entry entry, final int startDate, final int endDate, final Integer maxPoints) {
+    int first = 0;
+    while (first < entry._chunkCount && entry._lastDates[first] < startDate) {
+      first++;
+    }
+    int last = entry._chunkCount - 1;
+    while (last >= first && entry._firstDates[last] > endDate) {
+      last--;
+    }
+    if (first > last || (maxPoints != null && maxPoints == 0)) {
+      return ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES;
+    }
+    // inflate chunks from the end the points are taken from until there are enough of them
+    final int limit = (maxPoints == null ? Integer.MAX_VALUE : Math.abs(maxPoints));
+    final boolean fromEnd = (maxPoints != null && maxPoints < 0);
+    final ByteBuffer segment = _segments.get(entry._segment).duplicate();
+    final LinkedList<int[]> chunkDates = new LinkedList<int[]>();
+    final LinkedList<double[]> chunkValues = new LinkedList<double[]>();
+    int found = 0;
+    int size = 0;
+    for (int i = 0; i <= last - first && found < limit; i++) {
+      final int chunk = (fromEnd ? last - i : first + i);
+      final int count = entry._counts[chunk];
+      final int[] dates = new int[count];
+      final double[] values = new double[count];
+      entry.decode(segment, chunk, dates, values);
+      for (int date : dates) {
+        if (date >= startDate && date <= endDate) {
+          found++;
+        }
+      }
+      if (fromEnd) {
+        chunkDates.addFirst(dates);
+        chunkValues.addFirst(values);
+      } else {
+        chunkDates.addLast(dates);
+        chunkValues.addLast(values);
+      }
+      size += count;
+    }
+    if (chunkDates.size() == 1) {
+      return subSeries(chunkDates.getFirst(), chunkValues.getFirst(), size, startDate, endDate, maxPoints);
+    }
+    final int[] dates = new int[size];
+    final double[] values = new double[size];
+    int pos = 0;
+    while (!chunkDates.isEmpty()) {
+      final int[] d = chunkDates.removeFirst();
+      final double[] v = chunkValues.removeFirst();
+      System.arraycopy(d, 0, dates, pos, d.length);
+      System.arraycopy(v, 0, values, pos, v.length);
+      pos += d.length;
+    }
+    return subSeries(dates, values, size, startDate, endDate, maxPoints);
+  }
+
+  //-------------------------------------------------------------------------
+  private File segmentFile(final int generation, final int segment, final boolean temporary) {
+    return new File(_directory, _name + "-" + generation + "-" + segment + (temporary ? ".tmp" : ".dat"));
+  }
+
+  /**
+   * Lists the segment files of every generation.
+   */
+  private List<File> segmentFiles() {
+    final List<File> files = new ArrayList<File>();
+    final File[] all = _directory.listFiles();
+    if (all != null) {
+      for (File file : all) {
+        if (_fileNames.matcher(file.getName()).matches()) {
+          files.add(file);
+        }
+      }
+    }
+    return files;
+  }
+
+  private int fileGeneration(final File file) {
+    final Matcher matcher = _fileNames.matcher(file.getName());
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException("Not a segment file " + file);
+    }
+    return Integer.parseInt(matcher.group(1));
+  }
+
+  private static MappedByteBuffer mapSegment(final File file, final int size, final boolean create) {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      if (create) {
+        // discard anything left in a file that couldn't be deleted
+        raf.setLength(0);
+      }
+      if (raf.length() < size) {
+        raf.setLength(size);
+      }
+      final FileChannel channel = raf.getChannel();
+      // The mapping remains valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't map segment file " + file, e);
+    }
+  }
+
+  /**
+   * Appends a record, mapping a new segment if the current one is full, holding the write lock.
+   */
+  private void append(final byte[] record) {
+    final int required = record.length + HEADER_SIZE;
+    if (_segments.isEmpty() || required > _segments.get(_segments.size() - 1).capacity() - _writePosition) {
+      final File file = segmentFile(_fileGeneration, _segments.size(), _compacting);
+      _segments.add(mapSegment(file, Math.max(required, _segmentSize), true));
+      _files.add(file);
+      _writePosition = 0;
+    }
+    final ByteBuffer buffer = _segments.get(_segments.size() - 1).duplicate();
+    buffer.position(_writePosition + HEADER_SIZE);
+    buffer.put(record);
+    // the length is written last so that a partly written record is ignored when the store is opened
+    buffer.putInt(_writePosition, record.length);
+    _writePosition += required;
+    _totalBytes += required;
+  }
+
+  private void addAlias(final String alias, final ObjectId objectId) {
+    final ObjectId previous = _aliases.put(alias, objectId);
+    if (previous != null) {
+      _aliasesByObjectId.remove(previous, alias);
+    }
+    _aliasesByObjectId.put(objectId, alias);
+  }
+
+  private boolean removeAliases(final ObjectId objectId) {
+    final Iterable<String> aliases = _aliasesByObjectId.removeAll(objectId);
+    boolean removed = false;
+    for (String alias : aliases) {
+      _aliases.remove(alias);
+      removed = true;
+    }
+    return removed;
+  }
+
+  private static byte[] removeRecord(final ObjectId objectId) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    final DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeByte(REMOVE_RECORD);
+      writeString(out, objectId.toString());
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't encode record", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] aliasRecord(final String alias, final ObjectId objectId) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    final DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeByte(ALIAS_RECORD);
+      writeString(out, alias);
+      writeString(out, objectId.toString());
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't encode record", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(final DataOutputStream out, final String str) throws IOException {
+    final byte[] bytes = str.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Rebuilds the index from the existing segment files.
+   *
+   * @param oldest  the earliest time, in epoch milliseconds, at which a time-series may have been stored to be kept
+   */
+  private void open(final long oldest) {
+    final List<File> files = segmentFiles();
+    // a generation with temporary files is from a compaction that didn't finish
+    final Set<Integer> incomplete = new HashSet<Integer>();
+    int latest = -1;
+    for (File file : files) {
+      final int generation = fileGeneration(file);
+      if (file.getName().endsWith(".tmp")) {
+        incomplete.add(generation);
+      }
+      latest = Math.max(latest, generation);
+    }
+    int complete = -1;
+    for (File file : files) {
+      final int generation = fileGeneration(file);
+      if (generation > complete && !incomplete.contains(generation)) {
+        complete = generation;
+      }
+    }
+    if (complete >= 0) {
+      _fileGeneration = complete;
+      for (int segment = 0; segmentFile(complete, segment, false).isFile(); segment++) {
+        final File file = segmentFile(complete, segment, false);
+        final MappedByteBuffer buffer = mapSegment(file, (int) file.length(), false);
+        _segments.add(buffer);
+        _files.add(file);
+        _writePosition = scan(segment, buffer, oldest);
+        _totalBytes += _writePosition;
+      }
+    } else {
+      _fileGeneration = latest + 1;
+    }
+    files.removeAll(_files);
+    deleteFiles(files);
+    s_logger.info("Opened {} with {} time-series in {} segments", new Object[] {this, _entries.size(), _segments.size()});
+    if (_liveBytes * 2 < _totalBytes) {
+      compact();
+    }
+  }
+
+  private int scan(final int segment, final ByteBuffer buffer, final long oldest) {
+    int position = 0;
+    while (position + HEADER_SIZE <= buffer.capacity()) {
+      final int length = buffer.getInt(position);
+      if (length <= 0 || length > buffer.capacity() - position - HEADER_SIZE) {
+        break;
+      }
+      final ByteBuffer record = buffer.duplicate();
+      record.position(position + HEADER_SIZE);
+      record.limit(position + HEADER_SIZE + length);
+      try {
+        readRecord(segment, position, length + HEADER_SIZE, record.slice(), oldest);
+      } catch (RuntimeException ex) {
+        s_logger.warn("Ignoring the remainder of segment {} of {} after an unreadable record", segment, this);
+        break;
+      }
+      position += HEADER_SIZE + length;
+    }
+    return position;
+  }
+
+  private void readRecord(final int segment, final int offset, final int recordLength, final ByteBuffer record, final long oldest) {
+    switch (record.get()) {
+      case SERIES_RECORD: {
+        final Entry entry = Entry.read(record, recordLength);
+        entry.relocate(segment, offset);
+        final ObjectId objectId = entry._uniqueId.getObjectId();
+        final Entry previous = (entry._storedMillis >= oldest ? _entries.put(objectId, entry) : _entries.remove(objectId));
+        if (entry._storedMillis >= oldest) {
+          _liveBytes += recordLength;
+        } else {
+          removeAliases(objectId);
+        }
+        if (previous != null) {
+          _liveBytes -= previous._recordLength;
+        }
+        break;
+      }
+      case REMOVE_RECORD: {
+        final ObjectId objectId = ObjectId.parse(readString(record));
+        final Entry previous = _entries.remove(objectId);
+        if (previous != null) {
+          _liveBytes -= previous._recordLength;
+        }
+        removeAliases(objectId);
+        break;
+      }
+      case CLEAR_ALIASES_RECORD:
+        _aliases.clear();
+        _aliasesByObjectId.clear();
+        break;
+      case ALIAS_RECORD: {
+        final String alias = readString(record);
+        final ObjectId objectId = ObjectId.parse(readString(record));
+        if (_entries.containsKey(objectId)) {
+          addAlias(alias, objectId);
+        }
+        break;
+      }
+      default:
+        throw new OpenGammaRuntimeException("Unknown record type");
+    }
+  }
+
+  private void compactIfWasteful() {
+    if (_totalBytes > 2L * _segmentSize && _liveBytes * 2 < _totalBytes) {
+      compact();
+    }
+  }
+
+  /**
+   * Copies the live records into new segment files, holding the write lock or while opening.
+   */
+  private void compact() {
+    final List<MappedByteBuffer> oldSegments = new ArrayList<MappedByteBuffer>(_segments);
+    final long oldBytes = _totalBytes;
+    _segments.clear();
+    _files.clear();
+    _writePosition = 0;
+    _totalBytes = 0;
+    _fileGeneration++;
+    _compacting = true;
+    try {
+      for (Entry entry : _entries.values()) {
+        final ByteBuffer buffer = oldSegments.get(entry._segment).duplicate();
+        buffer.position(entry._recordOffset + HEADER_SIZE);
+        final byte[] record = new byte[entry._recordLength - HEADER_SIZE];
+        buffer.get(record);
+        append(record);
+        entry.relocate(_segments.size() - 1, _writePosition - entry._recordLength);
+      }
+      for (Map.Entry<String, ObjectId> alias : _aliases.entrySet()) {
+        append(aliasRecord(alias.getKey(), alias.getValue()));
+      }
+    } finally {
+      _compacting = false;
+    }
+    for (MappedByteBuffer segment : _segments) {
+      segment.force();
+    }
+    boolean renamed = true;
+    for (int segment = 0; segment < _files.size(); segment++) {
+      final File file = segmentFile(_fileGeneration, segment, false);
+      if (_files.get(segment).renameTo(file)) {
+        _files.set(segment, file);
+      } else {
+        s_logger.warn("Couldn't rename segment file {} to {}", _files.get(segment), file);
+        renamed = false;
+      }
+    }
+    if (renamed) {
+      // the new generation is complete, so the files of earlier ones are no longer needed
+      final List<File> files = segmentFiles();
+      files.removeAll(_files);
+      deleteFiles(files);
+    } else {
+      // the mapped segments are still used, but the previous generation is kept for when the store is next opened
+      s_logger.warn("Keeping the previous segment files of {}", this);
+    }
+    s_logger.info("Compacted {} from {} to {} bytes", new Object[] {this, oldBytes, _totalBytes});
+  }
+
+  private static void deleteFiles(final List<File> files) {
+    for (File file : files) {
+      if (!file.delete()) {
+        s_logger.warn("Couldn't delete segment file {}", file);
+        file.deleteOnExit();
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "MappedFileHistoricalTimeSeriesStore[" + new File(_directory, _name) + "]";
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The location and chunk index of a stored time-series.
+   * <p>
+   * The chunk offsets are relative to the start of the record so are unchanged when it is copied.
+   */
+  private static final class Entry {
+    private final UniqueId _uniqueId;
+    private final long _storedMillis;
+    private final int _chunkCount;
+    private final int[] _firstDates;
+    private final int[] _lastDates;
+    private final int[] _counts;
+    private final int[] _offsets;
+    private final int[] _rawLengths;
+    private final int[] _compressedLengths;
+    private int _recordLength;
+    private int _segment;
+    private int _recordOffset;
+
+    private Entry(final UniqueId uniqueId, final long storedMillis, final int chunkCount) {
+      _uniqueId = uniqueId;
+      _storedMillis = storedMillis;
+      _chunkCount = chunkCount;
+      _firstDates = new int[chunkCount];
+      _lastDates = new int[chunkCount];
+      _counts = new int[chunkCount];
+      _offsets = new int[chunkCount];
+      _rawLengths = new int[chunkCount];
+      _compressedLengths = new int[chunkCount];
+    }
+
+    private Entry(final UniqueId uniqueId, final long storedMillis, final LocalDateDoubleTimeSeries series, final int chunkSize) {
+      this(uniqueId, storedMillis, (series.size() + chunkSize - 1) / chunkSize);
+      final int[] dates = series.timesArrayFast();
+      for (int chunk = 0; chunk < _chunkCount; chunk++) {
+        final int from = chunk * chunkSize;
+        final int to = Math.min(dates.length, from + chunkSize);
+        _firstDates[chunk] = dates[from];
+        _lastDates[chunk] = dates[to - 1];
+        _counts[chunk] = to - from;
+      }
+    }
+
+    private void relocate(final int segment, final int recordOffset) {
+      _segment = segment;
+      _recordOffset = recordOffset;
+    }
+
+    /**
+     * Encodes the record of the time-series, filling in the chunk lengths and offsets.
+     */
+    private byte[] encode(final LocalDateDoubleTimeSeries series) {
+      final int[] dates = series.timesArrayFast();
+      final double[] values = series.valuesArrayFast();
+      final byte[][] chunks = new byte[_chunkCount][];
+      final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+      final DataOutputStream rawOut = new DataOutputStream(raw);
+      final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      final byte[] buf = new byte[4096];
+      try {
+        int from = 0;
+        for (int chunk = 0; chunk < _chunkCount; chunk++) {
+          raw.reset();
+          int previousDate = dates[from];
+          long previousBits = 0;
+          for (int i = from; i < from + _counts[chunk]; i++) {
+            writeVarInt(rawOut, dates[i] - previousDate);
+            final long bits = Double.doubleToRawLongBits(values[i]);
+            rawOut.writeLong(bits ^ previousBits);
+            previousDate = dates[i];
+            previousBits = bits;
+          }
+          from += _counts[chunk];
+          _rawLengths[chunk] = raw.size();
+          final ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 2 + 16);
+          deflater.reset();
+          deflater.setInput(raw.toByteArray());
+          deflater.finish();
+          while (!deflater.finished()) {
+            compressed.write(buf, 0, deflater.deflate(buf));
+          }
+          chunks[chunk] = compressed.toByteArray();
+          _compressedLengths[chunk] = chunks[chunk].length;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(SERIES_RECORD);
+        out.writeLong(_storedMillis);
+        writeString(out, _uniqueId.toString());
+        out.writeInt(_chunkCount);
+        for (int chunk = 0; chunk < _chunkCount; chunk++) {
+          out.writeInt(_firstDates[chunk]);
+          out.writeInt(_lastDates[chunk]);
+          out.writeInt(_counts[chunk]);
+          out.writeInt(_rawLengths[chunk]);
+          out.writeInt(_compressedLengths[chunk]);
+        }
+        for (int chunk = 0; chunk < _chunkCount; chunk++) {
+          _offsets[chunk] = HEADER_SIZE + out.size();
+          out.write(chunks[chunk]);
+        }
+        _recordLength = HEADER_SIZE + out.size();
+        return bytes.toByteArray();
+      } catch (IOException e) {
+        throw new OpenGammaRuntimeException("Couldn't encode time-series " + _uniqueId, e);
+      } finally {
+        deflater.end();
+      }
+    }
+
+    /**
+     * Reads the entry from a record positioned after the record type.
+     */
+    private static Entry read(final ByteBuffer record, final int recordLength) {
+      final long storedMillis = record.getLong();
+      final UniqueId uniqueId = UniqueId.parse(readString(record));
+      final Entry entry = new Entry(uniqueId, storedMillis, record.getInt());
+      for (int chunk = 0; chunk < entry._chunkCount; chunk++) {
+        entry._firstDates[chunk] = record.getInt();
+        entry._lastDates[chunk] = record.getInt();
+        entry._counts[chunk] = record.getInt();
+        entry._rawLengths[chunk] = record.getInt();
+        entry._compressedLengths[chunk] = record.getInt();
+      }
+      int offset = HEADER_SIZE + record.position();
+      for (int chunk = 0; chunk < entry._chunkCount; chunk++) {
+        entry._offsets[chunk] = offset;
+        offset += entry._compressedLengths[chunk];
+      }
+      if (offset != recordLength) {
+        throw new OpenGammaRuntimeException("Inconsistent record for time-series " + uniqueId);
+      }
+      entry._recordLength = recordLength;
+      return entry;
+    }
+
+    /**
+     * Inflates and decodes a chunk into arrays of its length.
+     */
+    private void decode(final ByteBuffer segment, final int chunk, final int[] dates, final double[] values) {
+      final byte[] compressed = new byte[_compressedLengths[chunk]];
+      segment.position(_recordOffset + _offsets[chunk]);
+      segment.get(compressed);
+      final byte[] raw = new byte[_rawLengths[chunk]];
+      final Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(compressed);
+        int length = 0;
+        while (length < raw.length && !inflater.finished()) {
+          final int inflated = inflater.inflate(raw, length, raw.length - length);
+          if (inflated == 0 && inflater.needsInput()) {
+            break;
+          }
+          length += inflated;
+        }
+        if (length != raw.length) {
+          throw new OpenGammaRuntimeException("Truncated chunk in time-series " + _uniqueId);
+        }
+      } catch (DataFormatException e) {
+        throw new OpenGammaRuntimeException("Corrupt chunk in time-series " + _uniqueId, e);
+      } finally {
+        inflater.end();
+      }
+      final ByteBuffer in = ByteBuffer.wrap(raw);
+      int date = _firstDates[chunk];
+      long bits = 0;
+      for (int i = 0; i < dates.length; i++) {
+        date += readVarInt(in);
+        bits ^= in.getLong();
+        dates[i] = date;
+        values[i] = Double.longBitsToDouble(bits);
+      }
+    }
+
+    private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        out.writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte(value);
+    }
+
+    private static int readVarInt(final ByteBuffer in) {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = in.get();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+  }
+
+}
@@ -6,9 +6,12 @@
 package com.opengamma.core.security.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -18,6 +21,8 @@ import org.slf4j.LoggerFactory;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -163,17 +168,7 @@ public class NonVersionedRedisSecuritySource implements SecuritySource {
     ArgumentChecker.notNull(security, "security");
     //ArgumentChecker.notNull(security.getUniqueId(), "security uniqueId");
     
-    UniqueId uniqueId = security.getUniqueId();
-    if (uniqueId == null) {
-      uniqueId = UniqueId.of(IDENTIFIER_SCHEME_DEFAULT, GUIDGenerator.generate().toString());
-    }
-    if (uniqueId.getVersion() != null) {
-      uniqueId = UniqueId.of(uniqueId.getObjectId(), null);
-    }
-    if (security instanceof MutableUniqueIdentifiable) {
-      MutableUniqueIdentifiable mutableSecurity = (MutableUniqueIdentifiable) security;
-      mutableSecurity.setUniqueId(uniqueId);
-    }
+    UniqueId uniqueId = toStoredUniqueId(security);
     
     try (Timer.Context context = _putTimer.time()) {
       byte[] securityData = SecurityFudgeUtil.convertToFudge(getFudgeContext(), security);
@@ -204,6 +199,74 @@ public class NonVersionedRedisSecuritySource implements SecuritySource {
     }
     return uniqueId;
   }
+
+  /**
+   * Stores a number of securities using a single connection, pipelining the Redis commands.
+   * <p>
+   * This is equivalent to calling {@link #put} for each security but avoids a round-trip per command
+   * when populating the store in bulk.
+   * 
+   * @param securities the securities to store, not null
+   * @return the unique identifiers of the stored securities, in the same order, not null
+   */
+  public List<UniqueId> putAll(Collection<? extends Security> securities) {
+    ArgumentChecker.noNulls(securities, "securities");
+    final List<UniqueId> uniqueIds = new ArrayList<UniqueId>(securities.size());
+    try (Timer.Context context = _putTimer.time()) {
+      final List<byte[]> securityData = new ArrayList<byte[]>(securities.size());
+      for (Security security : securities) {
+        uniqueIds.add(toStoredUniqueId(security));
+        securityData.add(SecurityFudgeUtil.convertToFudge(getFudgeContext(), security));
+      }
+
+      Jedis jedis = getJedisPool().getResource();
+      try {
+        final Pipeline pipeline = jedis.pipelined();
+        final Map<ExternalId, Response<Long>> cardinalities = new HashMap<ExternalId, Response<Long>>();
+        int i = 0;
+        for (Security security : securities) {
+          final UniqueId uniqueId = uniqueIds.get(i);
+          for (ExternalId externalId : security.getExternalIdBundle()) {
+            String redisKey = toRedisKey(externalId);
+            pipeline.sadd(redisKey, uniqueId.toString());
+            cardinalities.put(externalId, pipeline.scard(redisKey));
+          }
+          byte[] redisKey = toRedisKey(uniqueId);
+          pipeline.hset(redisKey, DATA_NAME_AS_BYTES, securityData.get(i));
+          pipeline.hset(redisKey, CLASS_NAME_AS_BYTES, security.getClass().getName().getBytes(Charsets.UTF_8));
+          i++;
+        }
+        pipeline.sync();
+        for (Map.Entry<ExternalId, Response<Long>> cardinality : cardinalities.entrySet()) {
+          if (cardinality.getValue().get() > 1) {
+            s_logger.warn("Multiple securities with same ExternalId {}. Probable misuse.", cardinality.getKey());
+          }
+        }
+        
+        getJedisPool().returnResource(jedis);
+      } catch (Exception e) {
+        s_logger.error("Unable to put " + securities.size() + " securities", e);
+        getJedisPool().returnBrokenResource(jedis);
+        throw new OpenGammaRuntimeException("Unable to put " + securities.size() + " securities", e);
+      }
+    }
+    return uniqueIds;
+  }
+
+  private static UniqueId toStoredUniqueId(Security security) {
+    UniqueId uniqueId = security.getUniqueId();
+    if (uniqueId == null) {
+      uniqueId = UniqueId.of(IDENTIFIER_SCHEME_DEFAULT, GUIDGenerator.generate().toString());
+    }
+    if (uniqueId.getVersion() != null) {
+      uniqueId = UniqueId.of(uniqueId.getObjectId(), null);
+    }
+    if (security instanceof MutableUniqueIdentifiable) {
+      MutableUniqueIdentifiable mutableSecurity = (MutableUniqueIdentifiable) security;
+      mutableSecurity.setUniqueId(uniqueId);
+    }
+    return uniqueId;
+  }
   
   // ---------------------------------------------------------------------
   // IMPLEMENTATION OF SECURITYSOURCE
@@ -240,8 +303,12 @@ public class NonVersionedRedisSecuritySource implements SecuritySource {
   public Map<ExternalIdBundle, Collection<Security>> getAll(Collection<ExternalIdBundle> bundles, VersionCorrection versionCorrection) {
     Map<ExternalIdBundle, Collection<Security>> result = new HashMap<ExternalIdBundle, Collection<Security>>();
     
-    for (ExternalIdBundle bundle : bundles) {
-      result.put(bundle, get(bundle));
+    for (Map.Entry<ExternalIdBundle, Security> entry : getSingle(bundles, versionCorrection).entrySet()) {
+      if (entry.getValue() == null) {
+        result.put(entry.getKey(), Collections.<Security>emptySet());
+      } else {
+        result.put(entry.getKey(), Collections.singleton(entry.getValue()));
+      }
     }
     
     return result;
@@ -292,11 +359,47 @@ public class NonVersionedRedisSecuritySource implements SecuritySource {
 
   @Override
   public Map<ExternalIdBundle, Security> getSingle(Collection<ExternalIdBundle> bundles, VersionCorrection versionCorrection) {
-    Map<ExternalIdBundle, Security> result = new HashMap<ExternalIdBundle, Security>();
+    ArgumentChecker.noNulls(bundles, "bundles");
     
+    final Set<ExternalId> externalIds = new LinkedHashSet<ExternalId>();
     for (ExternalIdBundle bundle : bundles) {
-      Security security = getSingle(bundle);
-      result.put(bundle, security);
+      if (bundle.size() != 1) {
+        s_logger.warn("Possible bad use of NonVersionedRedisSecuritySource: bundle size {} not equal to 1.", bundle);
+      }
+      externalIds.add(bundle.iterator().next());
+    }
+    Map<ExternalId, Security> securities = executeGet(new GetWorker<Map<ExternalId, Security>>() {
+      @Override
+      public Map<ExternalId, Security> query(Jedis jedis) {
+        Pipeline pipeline = jedis.pipelined();
+        Map<ExternalId, Response<Set<String>>> responses = new HashMap<ExternalId, Response<Set<String>>>();
+        for (ExternalId externalId : externalIds) {
+          responses.put(externalId, pipeline.smembers(toRedisKey(externalId)));
+        }
+        pipeline.sync();
+        Map<ExternalId, UniqueId> externalToUnique = new HashMap<ExternalId, UniqueId>();
+        for (Map.Entry<ExternalId, Response<Set<String>>> response : responses.entrySet()) {
+          Set<String> uniqueIds = response.getValue().get();
+          if (uniqueIds.isEmpty()) {
+            continue;
+          }
+          if (uniqueIds.size() > 1) {
+            s_logger.info("Following unique IDs for externalId {} : {}. Choosing randomly.", response.getKey(), uniqueIds);
+          }
+          externalToUnique.put(response.getKey(), UniqueId.parse(uniqueIds.iterator().next()));
+        }
+        Map<UniqueId, Security> byUniqueId = getAllInJedis(jedis, externalToUnique.values());
+        Map<ExternalId, Security> result = new HashMap<ExternalId, Security>();
+        for (Map.Entry<ExternalId, UniqueId> entry : externalToUnique.entrySet()) {
+          result.put(entry.getKey(), byUniqueId.get(entry.getValue()));
+        }
+        return result;
+      }
+    });
+    
+    Map<ExternalIdBundle, Security> result = new HashMap<ExternalIdBundle, Security>();
+    for (ExternalIdBundle bundle : bundles) {
+      result.put(bundle, securities.get(bundle.iterator().next()));
     }
     
     return result;
@@ -329,22 +432,29 @@ public class NonVersionedRedisSecuritySource implements SecuritySource {
   }
 
   @Override
-  public Map<UniqueId, Security> get(Collection<UniqueId> uniqueIds) {
-    Map<UniqueId, Security> result = new HashMap<UniqueId, Security>();
-    
-    for (UniqueId uniqueId : uniqueIds) {
-      result.put(uniqueId, get(uniqueId));
-    }
-    
+  public Map<UniqueId, Security> get(final Collection<UniqueId> uniqueIds) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+
+    Map<UniqueId, Security> result = executeGet(new GetWorker<Map<UniqueId, Security>>() {
+      @Override
+      public Map<UniqueId, Security> query(Jedis jedis) {
+        return getAllInJedis(jedis, uniqueIds);
+      }
+    });
     return result;
   }
 
   @Override
   public Map<ObjectId, Security> get(Collection<ObjectId> objectIds, VersionCorrection versionCorrection) {
+    ArgumentChecker.noNulls(objectIds, "objectIds");
+    final List<UniqueId> uniqueIds = new ArrayList<UniqueId>(objectIds.size());
+    for (ObjectId objectId : objectIds) {
+      uniqueIds.add(UniqueId.of(objectId, null));
+    }
     Map<ObjectId, Security> result = new HashMap<ObjectId, Security>();
     
-    for (ObjectId objectId : objectIds) {
-      result.put(objectId, get(UniqueId.of(objectId, null)));
+    for (Map.Entry<UniqueId, Security> entry : get(uniqueIds).entrySet()) {
+      result.put(entry.getKey().getObjectId(), entry.getValue());
     }
     
     return result;
@@ -359,6 +469,36 @@ public class NonVersionedRedisSecuritySource implements SecuritySource {
     byte[] redisKey = toRedisKey(uniqueId);
     byte[] securityData = jedis.hget(redisKey, DATA_NAME_AS_BYTES);
     byte[] classNameData = jedis.hget(redisKey, CLASS_NAME_AS_BYTES);
+    return fromRedis(uniqueId, securityData, classNameData);
+  }
+
+  /**
+   * Reads a number of securities using a single pipeline on the connection.
+   * 
+   * @param jedis the connection, not null
+   * @param uniqueIds the identifiers to read, not null
+   * @return the securities, with a null value for any that are missing, not null
+   */
+  protected Map<UniqueId, Security> getAllInJedis(Jedis jedis, Collection<UniqueId> uniqueIds) {
+    Pipeline pipeline = jedis.pipelined();
+    Map<UniqueId, Response<byte[]>> securityData = new HashMap<UniqueId, Response<byte[]>>();
+    Map<UniqueId, Response<byte[]>> classNameData = new HashMap<UniqueId, Response<byte[]>>();
+    for (UniqueId uniqueId : uniqueIds) {
+      if (!securityData.containsKey(uniqueId)) {
+        byte[] redisKey = toRedisKey(uniqueId);
+        securityData.put(uniqueId, pipeline.hget(redisKey, DATA_NAME_AS_BYTES));
+        classNameData.put(uniqueId, pipeline.hget(redisKey, CLASS_NAME_AS_BYTES));
+      }
+    }
+    pipeline.sync();
+    Map<UniqueId, Security> result = new HashMap<UniqueId, Security>();
+    for (Map.Entry<UniqueId, Response<byte[]>> entry : securityData.entrySet()) {
+      result.put(entry.getKey(), fromRedis(entry.getKey(), entry.getValue().get(), classNameData.get(entry.getKey()).get()));
+    }
+    return result;
+  }
+
+  private Security fromRedis(UniqueId uniqueId, byte[] securityData, byte[] classNameData) {
     if (securityData == null) {
       s_logger.warn("No data for security unique ID {}", uniqueId);
       return null;
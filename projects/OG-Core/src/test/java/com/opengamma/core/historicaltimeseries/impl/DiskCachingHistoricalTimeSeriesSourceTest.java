@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core.historicaltimeseries.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.core.change.BasicChangeManager;
+import com.opengamma.core.change.ChangeManager;
+import com.opengamma.core.change.ChangeType;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
+import com.opengamma.core.id.ExternalSchemes;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * Tests the {@link DiskCachingHistoricalTimeSeriesSource} class.
+ */
+@Test(groups = TestGroup.UNIT, singleThreaded = true)
+public class DiskCachingHistoricalTimeSeriesSourceTest {
+
+  private static final UniqueId UID = UniqueId.of("A", "B");
+  private static final ExternalIdBundle IDS = ExternalIdBundle.of(ExternalSchemes.bloombergTickerSecurityId("A"));
+  private static final LocalDate[] DATES = {LocalDate.of(2011, 6, 28), LocalDate.of(2011, 6, 29), LocalDate.of(2011, 6, 30)};
+  private static final double[] VALUES = {12.32d, 12.33d, 12.34d};
+  private static final LocalDateDoubleTimeSeries TIME_SERIES = ImmutableLocalDateDoubleTimeSeries.of(DATES, VALUES);
+
+  private File _directory;
+  private ChangeManager _underlyingChangeManager;
+  private HistoricalTimeSeriesSource _underlyingSource;
+  private DiskCachingHistoricalTimeSeriesSource _cachingSource;
+
+  @BeforeMethod
+  public void setUp() {
+    _directory = new File(System.getProperty("java.io.tmpdir"), "DiskCachingHistoricalTimeSeriesSourceTest-" + System.nanoTime());
+    assertTrue(_directory.mkdirs());
+    _underlyingChangeManager = new BasicChangeManager();
+    _underlyingSource = mock(HistoricalTimeSeriesSource.class);
+    when(_underlyingSource.changeManager()).thenReturn(_underlyingChangeManager);
+    _cachingSource = new DiskCachingHistoricalTimeSeriesSource(_underlyingSource, new MappedFileHistoricalTimeSeriesStore(_directory, "test"));
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(_directory);
+  }
+
+  //-------------------------------------------------------------------------
+  public void getHistoricalTimeSeries_UniqueId() {
+    HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID.withVersion("1"), TIME_SERIES);
+    when(_underlyingSource.getHistoricalTimeSeries(UID)).thenReturn(series);
+
+    HistoricalTimeSeries series1 = _cachingSource.getHistoricalTimeSeries(UID);
+    HistoricalTimeSeries series2 = _cachingSource.getHistoricalTimeSeries(UID, DATES[1], true, null, true);
+    HistoricalTimeSeries series3 = _cachingSource.getHistoricalTimeSeries(UID.withVersion("1"), null, true, null, true, -1);
+    assertEquals(TIME_SERIES, series1.getTimeSeries());
+    assertEquals(TIME_SERIES.subSeries(DATES[1], true, DATES[2], true), series2.getTimeSeries());
+    assertEquals(TIME_SERIES.tail(1), series3.getTimeSeries());
+    assertEquals(UID.withVersion("1"), series2.getUniqueId());
+    assertEquals(Pairs.of(DATES[2], VALUES[2]), _cachingSource.getLatestDataPoint(UID));
+
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID);
+  }
+
+  public void getHistoricalTimeSeries_UniqueId_otherVersion() {
+    when(_underlyingSource.getHistoricalTimeSeries(UID)).thenReturn(new SimpleHistoricalTimeSeries(UID.withVersion("2"), TIME_SERIES));
+    HistoricalTimeSeries earlier = new SimpleHistoricalTimeSeries(UID.withVersion("1"), TIME_SERIES.head(1));
+    when(_underlyingSource.getHistoricalTimeSeries(UID.withVersion("1"), null, true, null, true)).thenReturn(earlier);
+
+    _cachingSource.getHistoricalTimeSeries(UID);
+    assertEquals(earlier, _cachingSource.getHistoricalTimeSeries(UID.withVersion("1")));
+  }
+
+  public void getHistoricalTimeSeries_externalIds() {
+    HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID, TIME_SERIES);
+    LocalDate date = LocalDate.of(2011, 7, 1);
+    when(_underlyingSource.getHistoricalTimeSeries(IDS, date, "Source", "Provider", "Field")).thenReturn(series);
+
+    HistoricalTimeSeries series1 = _cachingSource.getHistoricalTimeSeries(IDS, date, "Source", "Provider", "Field", DATES[0], false, DATES[2], false);
+    HistoricalTimeSeries series2 = _cachingSource.getHistoricalTimeSeries(IDS, date, "Source", "Provider", "Field");
+    assertEquals(TIME_SERIES.subSeries(DATES[0], false, DATES[2], false), series1.getTimeSeries());
+    assertEquals(TIME_SERIES, series2.getTimeSeries());
+    // served by unique identifier from the time-series stored for the identifiers
+    assertEquals(TIME_SERIES, _cachingSource.getHistoricalTimeSeries(UID).getTimeSeries());
+
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(IDS, date, "Source", "Provider", "Field");
+    verify(_underlyingSource, times(0)).getHistoricalTimeSeries(UID);
+  }
+
+  public void getHistoricalTimeSeries_resolutionKey() {
+    HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID, TIME_SERIES);
+    LocalDate date = LocalDate.of(2011, 7, 1);
+    when(_underlyingSource.getHistoricalTimeSeries("Field", IDS, date, "Key")).thenReturn(series);
+
+    assertEquals(Pairs.of(DATES[1], VALUES[1]), _cachingSource.getLatestDataPoint("Field", IDS, date, "Key", null, true, DATES[2], false));
+    assertEquals(TIME_SERIES.head(2), _cachingSource.getHistoricalTimeSeries("Field", IDS, date, "Key", null, true, null, true, 2).getTimeSeries());
+
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries("Field", IDS, date, "Key");
+  }
+
+  public void getHistoricalTimeSeries_notFound() {
+    LocalDate date = LocalDate.of(2011, 7, 1);
+    assertNull(_cachingSource.getHistoricalTimeSeries("Field", IDS, date, "Key"));
+    assertNull(_cachingSource.getLatestDataPoint(UID));
+  }
+
+  public void getHistoricalTimeSeries_bulk() {
+    HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID, TIME_SERIES);
+    Map<ExternalIdBundle, HistoricalTimeSeries> underlyingResult = Collections.singletonMap(IDS, series);
+    when(_underlyingSource.getHistoricalTimeSeries(Collections.singleton(IDS), "Source", "Provider", "Field", null, true, null, true)).thenReturn(underlyingResult);
+
+    Map<ExternalIdBundle, HistoricalTimeSeries> result1 = _cachingSource.getHistoricalTimeSeries(
+        Collections.singleton(IDS), "Source", "Provider", "Field", DATES[1], true, null, true);
+    Map<ExternalIdBundle, HistoricalTimeSeries> result2 = _cachingSource.getHistoricalTimeSeries(
+        Collections.singleton(IDS), "Source", "Provider", "Field", null, true, DATES[1], true);
+    assertEquals(TIME_SERIES.subSeries(DATES[1], true, DATES[2], true), result1.get(IDS).getTimeSeries());
+    assertEquals(TIME_SERIES.subSeries(DATES[0], true, DATES[1], true), result2.get(IDS).getTimeSeries());
+
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(Collections.singleton(IDS), "Source", "Provider", "Field", null, true, null, true);
+  }
+
+  public void changeEvent_removesTimeSeries() {
+    HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID, TIME_SERIES);
+    when(_underlyingSource.getHistoricalTimeSeries(UID)).thenReturn(series);
+    _cachingSource.getHistoricalTimeSeries(UID);
+    _underlyingChangeManager.entityChanged(ChangeType.CHANGED, UID.getObjectId(), null, null, Instant.now());
+    assertNull(_cachingSource.getStore().getUniqueId(UID.getObjectId()));
+    _cachingSource.getHistoricalTimeSeries(UID);
+    verify(_underlyingSource, times(2)).getHistoricalTimeSeries(UID);
+  }
+
+  public void restart_keepsTimeSeries() {
+    HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID, TIME_SERIES);
+    LocalDate date = LocalDate.of(2011, 7, 1);
+    when(_underlyingSource.getHistoricalTimeSeries("Field", IDS, date, "Key")).thenReturn(series);
+    _cachingSource.getHistoricalTimeSeries("Field", IDS, date, "Key");
+
+    // checked against the latest point when first used
+    when(_underlyingSource.getHistoricalTimeSeries("Field", IDS, date, "Key", null, true, null, true, -1)).thenReturn(new SimpleHistoricalTimeSeries(UID, TIME_SERIES.tail(1)));
+    DiskCachingHistoricalTimeSeriesSource restarted = new DiskCachingHistoricalTimeSeriesSource(_underlyingSource, new MappedFileHistoricalTimeSeriesStore(_directory, "test"));
+    assertEquals(TIME_SERIES, restarted.getHistoricalTimeSeries("Field", IDS, date, "Key").getTimeSeries());
+    assertEquals(TIME_SERIES, restarted.getHistoricalTimeSeries("Field", IDS, date, "Key").getTimeSeries());
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries("Field", IDS, date, "Key");
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries("Field", IDS, date, "Key", null, true, null, true, -1);
+  }
+
+  public void restart_refetchesChangedTimeSeries() {
+    when(_underlyingSource.getHistoricalTimeSeries(UID)).thenReturn(new SimpleHistoricalTimeSeries(UID, TIME_SERIES.head(2)));
+    _cachingSource.getHistoricalTimeSeries(UID);
+
+    // a point was added while no source was listening
+    when(_underlyingSource.getHistoricalTimeSeries(UID)).thenReturn(new SimpleHistoricalTimeSeries(UID, TIME_SERIES));
+    when(_underlyingSource.getHistoricalTimeSeries(UID, null, true, null, true, -1)).thenReturn(new SimpleHistoricalTimeSeries(UID, TIME_SERIES.tail(1)));
+    DiskCachingHistoricalTimeSeriesSource restarted = new DiskCachingHistoricalTimeSeriesSource(_underlyingSource, new MappedFileHistoricalTimeSeriesStore(_directory, "test"));
+    assertEquals(TIME_SERIES, restarted.getHistoricalTimeSeries(UID).getTimeSeries());
+    assertEquals(TIME_SERIES, restarted.getHistoricalTimeSeries(UID).getTimeSeries());
+    verify(_underlyingSource, times(2)).getHistoricalTimeSeries(UID);
+  }
+
+  public void changeEvent_duringFetch() {
+    final HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID, TIME_SERIES);
+    when(_underlyingSource.getHistoricalTimeSeries(UID)).thenAnswer(new Answer<HistoricalTimeSeries>() {
+      @Override
+      public HistoricalTimeSeries answer(InvocationOnMock invocation) {
+        // the time-series changes after this version has been read
+        _underlyingChangeManager.entityChanged(ChangeType.CHANGED, UID.getObjectId(), null, null, Instant.now());
+        return series;
+      }
+    });
+    assertEquals(TIME_SERIES, _cachingSource.getHistoricalTimeSeries(UID).getTimeSeries());
+    assertNull(_cachingSource.getStore().getUniqueId(UID.getObjectId()));
+  }
+
+  public void changeEvent_addedRemovesLookups() {
+    HistoricalTimeSeries series = new SimpleHistoricalTimeSeries(UID, TIME_SERIES);
+    LocalDate date = LocalDate.of(2011, 7, 1);
+    when(_underlyingSource.getHistoricalTimeSeries("Field", IDS, date, "Key")).thenReturn(series);
+    _cachingSource.getHistoricalTimeSeries("Field", IDS, date, "Key");
+    _underlyingChangeManager.entityChanged(ChangeType.ADDED, ObjectId.of("A", "C"), null, null, Instant.now());
+    assertEquals(UID, _cachingSource.getStore().getUniqueId(UID.getObjectId()));
+    _cachingSource.getHistoricalTimeSeries("Field", IDS, date, "Key");
+    verify(_underlyingSource, times(2)).getHistoricalTimeSeries("Field", IDS, date, "Key");
+  }
+
+}
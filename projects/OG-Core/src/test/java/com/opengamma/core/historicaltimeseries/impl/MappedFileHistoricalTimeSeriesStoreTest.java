@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core.historicaltimeseries.impl;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link MappedFileHistoricalTimeSeriesStore} class.
+ */
+@Test(groups = TestGroup.UNIT, singleThreaded = true)
+public class MappedFileHistoricalTimeSeriesStoreTest {
+
+  private static final UniqueId UID_A = UniqueId.of("Hts", "A", "1");
+  private static final UniqueId UID_B = UniqueId.of("Hts", "B", "1");
+  private static final LocalDate START = LocalDate.of(2010, 1, 1);
+
+  private File _directory;
+
+  @BeforeMethod
+  public void createDirectory() {
+    _directory = new File(System.getProperty("java.io.tmpdir"), "MappedFileHistoricalTimeSeriesStoreTest-" + System.nanoTime());
+    assertTrue(_directory.mkdirs());
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    FileUtils.deleteDirectory(_directory);
+  }
+
+  private static LocalDateDoubleTimeSeries series(final int size, final double base) {
+    final LocalDate[] dates = new LocalDate[size];
+    final double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      // skip some days so the date deltas vary
+      dates[i] = START.plusDays(i + i / 5);
+      values[i] = base + Math.sin(i) * 10d;
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+  }
+
+  private MappedFileHistoricalTimeSeriesStore createStore(final String name) {
+    return new MappedFileHistoricalTimeSeriesStore(_directory, name, 4096, 16, MappedFileHistoricalTimeSeriesStore.DEFAULT_MAX_AGE_MILLIS);
+  }
+
+  //-------------------------------------------------------------------------
+  public void testPutGet() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testPutGet");
+    final LocalDateDoubleTimeSeries a = series(100, 1d);
+    final LocalDateDoubleTimeSeries b = series(0, 2d);
+    store.put(new SimpleHistoricalTimeSeries(UID_A, a));
+    store.put(new SimpleHistoricalTimeSeries(UID_B, b));
+    assertEquals(2, store.size());
+    assertEquals(UID_A, store.getUniqueId(UID_A.getObjectId()));
+    final HistoricalTimeSeries testA = store.get(UID_A.getObjectId(), null, true, null, true, null);
+    assertEquals(UID_A, testA.getUniqueId());
+    assertEquals(a, testA.getTimeSeries());
+    assertEquals(b, store.get(UID_B.getObjectId(), null, true, null, true, null).getTimeSeries());
+    assertNull(store.get(ObjectId.of("Hts", "C"), null, true, null, true, null));
+    assertNull(store.getUniqueId(ObjectId.of("Hts", "C")));
+  }
+
+  public void testReplace() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testReplace");
+    store.put(new SimpleHistoricalTimeSeries(UID_A, series(100, 1d)));
+    final UniqueId uid = UID_A.withVersion("2");
+    final LocalDateDoubleTimeSeries a = series(120, 3d);
+    store.put(new SimpleHistoricalTimeSeries(uid, a));
+    assertEquals(1, store.size());
+    assertEquals(uid, store.getUniqueId(UID_A.getObjectId()));
+    assertEquals(a, store.get(UID_A.getObjectId(), null, true, null, true, null).getTimeSeries());
+  }
+
+  public void testRange() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testRange");
+    final LocalDateDoubleTimeSeries a = series(100, 1d);
+    store.put(new SimpleHistoricalTimeSeries(UID_A, a));
+    final LocalDate start = a.getTimeAtIndex(20);
+    final LocalDate end = a.getTimeAtIndex(50);
+    assertEquals(a.subSeries(start, true, end, true), store.get(UID_A.getObjectId(), start, true, end, true, null).getTimeSeries());
+    assertEquals(a.subSeries(start, false, end, false), store.get(UID_A.getObjectId(), start, false, end, false, null).getTimeSeries());
+    assertEquals(a.subSeries(start, true, a.getLatestTime(), true), store.get(UID_A.getObjectId(), start, true, null, true, null).getTimeSeries());
+    assertEquals(0, store.get(UID_A.getObjectId(), START.minusYears(1), true, START.minusDays(1), true, null).getTimeSeries().size());
+    assertEquals(0, store.get(UID_A.getObjectId(), LocalDate.MIN, true, LocalDate.MAX, true, 0).getTimeSeries().size());
+    assertEquals(a, store.get(UID_A.getObjectId(), LocalDate.MIN, false, LocalDate.MAX, false, null).getTimeSeries());
+  }
+
+  public void testMaxPoints() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testMaxPoints");
+    final LocalDateDoubleTimeSeries a = series(100, 1d);
+    store.put(new SimpleHistoricalTimeSeries(UID_A, a));
+    assertEquals(a.head(20), store.get(UID_A.getObjectId(), null, true, null, true, 20).getTimeSeries());
+    assertEquals(a.tail(20), store.get(UID_A.getObjectId(), null, true, null, true, -20).getTimeSeries());
+    final LocalDateDoubleTimeSeries latest = store.get(UID_A.getObjectId(), null, true, a.getTimeAtIndex(40), false, -1).getTimeSeries();
+    assertEquals(1, latest.size());
+    assertEquals(a.getTimeAtIndex(39), latest.getLatestTime());
+    assertEquals(a.getValueAtIndex(39), latest.getLatestValue(), 0d);
+    assertEquals(a, store.get(UID_A.getObjectId(), null, true, null, true, 1000).getTimeSeries());
+  }
+
+  public void testSubSeries() {
+    final LocalDateDoubleTimeSeries a = series(100, 1d);
+    final LocalDate start = a.getTimeAtIndex(20);
+    final LocalDate end = a.getTimeAtIndex(50);
+    assertEquals(a.subSeries(start, false, end, true).tail(5), MappedFileHistoricalTimeSeriesStore.subSeries(a, start, false, end, true, -5));
+    assertEquals(a, MappedFileHistoricalTimeSeriesStore.subSeries(a, null, true, null, true, null));
+  }
+
+  public void testRemove() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testRemove");
+    store.put(new SimpleHistoricalTimeSeries(UID_A, series(100, 1d)));
+    store.putAlias("alias", UID_A.getObjectId());
+    store.remove(UID_A.getObjectId());
+    assertEquals(0, store.size());
+    assertNull(store.get(UID_A.getObjectId(), null, true, null, true, null));
+    assertNull(store.getAlias("alias"));
+  }
+
+  public void testAlias() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testAlias");
+    store.putAlias("alias", UID_A.getObjectId());
+    assertNull(store.getAlias("alias"));
+    store.put(new SimpleHistoricalTimeSeries(UID_A, series(10, 1d)));
+    store.put(new SimpleHistoricalTimeSeries(UID_B, series(10, 2d)));
+    store.putAlias("alias", UID_A.getObjectId());
+    assertEquals(UID_A.getObjectId(), store.getAlias("alias"));
+    store.putAlias("alias", UID_B.getObjectId());
+    assertEquals(UID_B.getObjectId(), store.getAlias("alias"));
+    store.remove(UID_A.getObjectId());
+    assertEquals(UID_B.getObjectId(), store.getAlias("alias"));
+  }
+
+  public void testRemovedDuringFetch() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testRemovedDuringFetch");
+    final long modificationCount = store.getModificationCount();
+    store.remove(UID_A.getObjectId());
+    assertFalse(store.put(new SimpleHistoricalTimeSeries(UID_A, series(10, 1d)), modificationCount));
+    assertNull(store.getUniqueId(UID_A.getObjectId()));
+    assertTrue(store.put(new SimpleHistoricalTimeSeries(UID_A, series(10, 1d)), store.getModificationCount()));
+    assertEquals(UID_A, store.getUniqueId(UID_A.getObjectId()));
+  }
+
+  public void testClearAliases() {
+    MappedFileHistoricalTimeSeriesStore store = createStore("testClearAliases");
+    store.put(new SimpleHistoricalTimeSeries(UID_A, series(10, 1d)));
+    final long modificationCount = store.getModificationCount();
+    store.putAlias("alias", UID_A.getObjectId());
+    store.clearAliases();
+    assertNull(store.getAlias("alias"));
+    assertFalse(store.putAlias("alias", UID_A.getObjectId(), modificationCount));
+    assertNull(store.getAlias("alias"));
+    store = createStore("testClearAliases");
+    assertEquals(1, store.size());
+    assertNull(store.getAlias("alias"));
+  }
+
+  public void testReopen() {
+    final LocalDateDoubleTimeSeries a = series(100, 1d);
+    final LocalDateDoubleTimeSeries b = series(200, 2d);
+    MappedFileHistoricalTimeSeriesStore store = createStore("testReopen");
+    store.put(new SimpleHistoricalTimeSeries(UID_A, a));
+    store.put(new SimpleHistoricalTimeSeries(UID_B, b));
+    store.putAlias("alias", UID_B.getObjectId());
+    store.remove(UID_A.getObjectId());
+    store = createStore("testReopen");
+    assertEquals(1, store.size());
+    assertNull(store.get(UID_A.getObjectId(), null, true, null, true, null));
+    assertEquals(b, store.get(UID_B.getObjectId(), null, true, null, true, null).getTimeSeries());
+    assertEquals(UID_B.getObjectId(), store.getAlias("alias"));
+  }
+
+  public void testReopen_maxAge() throws Exception {
+    MappedFileHistoricalTimeSeriesStore store = createStore("testReopen_maxAge");
+    store.put(new SimpleHistoricalTimeSeries(UID_A, series(100, 1d)));
+    store.putAlias("alias", UID_A.getObjectId());
+    Thread.sleep(10);
+    store = new MappedFileHistoricalTimeSeriesStore(_directory, "testReopen_maxAge", 4096, 16, 1);
+    assertEquals(0, store.size());
+    assertNull(store.getAlias("alias"));
+  }
+
+  public void testCompaction() {
+    final MappedFileHistoricalTimeSeriesStore store = createStore("testCompaction");
+    LocalDateDoubleTimeSeries a = null;
+    for (int i = 0; i < 100; i++) {
+      a = series(200, i);
+      store.put(new SimpleHistoricalTimeSeries(UID_A.withVersion(Integer.toString(i)), a));
+      store.putAlias("alias", UID_A.getObjectId());
+    }
+    assertTrue(store.getSegmentCount() < 10);
+    assertEquals(a, store.get(UID_A.getObjectId(), null, true, null, true, null).getTimeSeries());
+    assertEquals(UID_A.getObjectId(), store.getAlias("alias"));
+    // only the files of the latest generation are kept
+    assertEquals(store.getSegmentCount(), _directory.list().length);
+    final MappedFileHistoricalTimeSeriesStore reopened = createStore("testCompaction");
+    assertEquals(a, reopened.get(UID_A.getObjectId(), null, true, null, true, null).getTimeSeries());
+    assertEquals(UID_A.getObjectId(), reopened.getAlias("alias"));
+  }
+
+  public void testInterruptedCompaction() throws IOException {
+    final LocalDateDoubleTimeSeries a = series(100, 1d);
+    MappedFileHistoricalTimeSeriesStore store = createStore("testInterruptedCompaction");
+    store.put(new SimpleHistoricalTimeSeries(UID_A, a));
+    final String[] files = _directory.list();
+    // the next generation, partly renamed
+    FileUtils.writeByteArrayToFile(new File(_directory, "testInterruptedCompaction-1-0.dat"), new byte[4096]);
+    FileUtils.writeByteArrayToFile(new File(_directory, "testInterruptedCompaction-1-1.tmp"), new byte[4096]);
+    store = createStore("testInterruptedCompaction");
+    assertEquals(a, store.get(UID_A.getObjectId(), null, true, null, true, null).getTimeSeries());
+    assertEquals(Arrays.asList(files), Arrays.asList(_directory.list()));
+  }
+
+  public void testClear() {
+    MappedFileHistoricalTimeSeriesStore store = createStore("testClear");
+    store.put(new SimpleHistoricalTimeSeries(UID_A, series(100, 1d)));
+    store.clear();
+    assertEquals(0, store.size());
+    store.put(new SimpleHistoricalTimeSeries(UID_B, series(10, 1d)));
+    store = createStore("testClear");
+    assertEquals(1, store.size());
+    assertNull(store.getUniqueId(UID_A.getObjectId()));
+  }
+
+}
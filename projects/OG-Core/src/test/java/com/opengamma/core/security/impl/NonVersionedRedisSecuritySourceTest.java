@@ -9,6 +9,9 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import org.testng.annotations.Test;
 
 import com.opengamma.core.security.Security;
@@ -16,6 +19,7 @@ import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.ExternalScheme;
 import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.test.AbstractRedisTestCase;
 import com.opengamma.util.test.TestGroup;
 
@@ -58,13 +62,34 @@ public class NonVersionedRedisSecuritySourceTest extends AbstractRedisTestCase {
     assertNull(security);
   }
   
+  public void putAllBulkGet() {
+    NonVersionedRedisSecuritySource source = new NonVersionedRedisSecuritySource(getJedisPool(), getRedisPrefix());
+    source.putAll(Arrays.asList(simpleSecurity("1"), simpleSecurity("2")));
+    
+    ExternalIdBundle bundle1 = ExternalIdBundle.of(ExternalId.of("TEST-EXT", "1"));
+    ExternalIdBundle bundle2 = ExternalIdBundle.of(ExternalId.of("TEST-EXT", "2"));
+    ExternalIdBundle bundle3 = ExternalIdBundle.of(ExternalId.of("TEST-EXT", "3"));
+    Map<ExternalIdBundle, Security> securities = source.getSingle(Arrays.asList(bundle1, bundle2, bundle3), VersionCorrection.LATEST);
+    assertEquals(UniqueId.of("TEST-UNQ", "1"), securities.get(bundle1).getUniqueId());
+    assertEquals(UniqueId.of("TEST-UNQ", "2"), securities.get(bundle2).getUniqueId());
+    assertNull(securities.get(bundle3));
+    
+    Map<UniqueId, Security> byUniqueId = source.get(Arrays.asList(UniqueId.of("TEST-UNQ", "1"), UniqueId.of("TEST-UNQ", "3")));
+    assertEquals("Name - 1", byUniqueId.get(UniqueId.of("TEST-UNQ", "1")).getName());
+    assertNull(byUniqueId.get(UniqueId.of("TEST-UNQ", "3")));
+  }
+  
   protected void addSimpleSecurity(NonVersionedRedisSecuritySource source, String key) {
+    source.put(simpleSecurity(key));
+  }
+  
+  protected SimpleSecurity simpleSecurity(String key) {
     SimpleSecurity simpleSecurity = new SimpleSecurity("FAKE TYPE");
     simpleSecurity.setUniqueId(UniqueId.of("TEST-UNQ", key));
     simpleSecurity.addExternalId(ExternalId.of("TEST-EXT", key));
     simpleSecurity.addAttribute("Attribute", key);
     simpleSecurity.setName("Name - " + key);
-    source.put(simpleSecurity);
+    return simpleSecurity;
   }
 
 }
@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link BinaryDataStore} that holds the data in memory-mapped segment files rather than on the Java heap.
+ * <p>
+ * Values are appended to the current segment, prefixed by their length, and an index maps each identifier to the segment and offset of its most
+ * recent value. Space from overwritten values is not reclaimed until the whole store is deleted, which is appropriate for the per-cycle lifetime
+ * of a computation cache. A value larger than the segment size is given a segment of its own.
+ * <p>
+ * The segment files are removed when the store is deleted. The mapped memory is released by the operating system once the buffers have been
+ * garbage collected. A get or put that is still in progress when the store is deleted fails with an {@link IllegalStateException}.
+ * <p>
+ * This class is internally synchronized.
+ */
+public class MappedFileBinaryDataStore extends AbstractBinaryDataStore implements BinaryDataStore {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedFileBinaryDataStore.class);
+
+  /**
+   * The default size of each segment file.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The number of bytes used for the length prefix of each value.
+   */
+  private static final int HEADER_SIZE = 4;
+
+  private static final long NOT_FOUND = -1L;
+
+  private final File _directory;
+  private final String _name;
+  private final int _segmentSize;
+
+  /**
+   * The location of each value, the segment number in the high word and the offset in the low word.
+   */
+  private final Long2LongMap _index = new Long2LongOpenHashMap();
+  private final ReadWriteLock _indexLock = new ReentrantReadWriteLock();
+
+  /**
+   * The mapped segments. The array is replaced, never modified, when a segment is added so may be read without locking.
+   */
+  private volatile MappedByteBuffer[] _segments = new MappedByteBuffer[0];
+  /**
+   * The segment files, guarded by {@code this}.
+   */
+  private final List<File> _files = new ArrayList<File>();
+  /**
+   * The next free byte in the last segment, guarded by {@code this}.
+   */
+  private int _writePosition;
+  /**
+   * Whether {@link #delete} has been called, only set while holding {@code this}.
+   */
+  private volatile boolean _deleted;
+
+  /**
+   * Creates a new store using the default segment size.
+   *
+   * @param directory the folder to create the segment files in, not null
+   * @param name the prefix for the segment file names, not null
+   */
+  public MappedFileBinaryDataStore(final File directory, final String name) {
+    this(directory, name, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Creates a new store.
+   *
+   * @param directory the folder to create the segment files in, not null
+   * @param name the prefix for the segment file names, not null
+   * @param segmentSize the size of each segment file in bytes
+   */
+  public MappedFileBinaryDataStore(final File directory, final String name, final int segmentSize) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.notNull(name, "name");
+    ArgumentChecker.isTrue(segmentSize > HEADER_SIZE, "segmentSize too small");
+    _directory = directory;
+    _name = name;
+    _segmentSize = segmentSize;
+    _index.defaultReturnValue(NOT_FOUND);
+  }
+
+  protected File getDirectory() {
+    return _directory;
+  }
+
+  protected String getName() {
+    return _name;
+  }
+
+  protected int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  /**
+   * Returns the number of segment files currently mapped.
+   *
+   * @return the segment count
+   */
+  public int getSegmentCount() {
+    return _segments.length;
+  }
+
+  private MappedByteBuffer mapSegment(final int segment, final int size) {
+    final File file = new File(getDirectory(), getName() + "-" + segment + ".dat");
+    // Recorded before the file is created so delete() removes it even if it can't be mapped
+    if (!_files.contains(file)) {
+      _files.add(file);
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(size);
+      final FileChannel channel = raf.getChannel();
+      // The mapping remains valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't map segment file " + file, e);
+    }
+  }
+
+  /**
+   * Reserves space for a value, mapping a new segment if the current one is full.
+   *
+   * @param length the length of the value, excluding the header
+   * @return the location of the reserved space
+   */
+  private synchronized long allocate(final int length) {
+    if (_deleted) {
+      throw new IllegalStateException("Data store " + getName() + " has been deleted");
+    }
+    final int required = length + HEADER_SIZE;
+    MappedByteBuffer[] segments = _segments;
+    if ((segments.length == 0) || (required > segments[segments.length - 1].capacity() - _writePosition)) {
+      final MappedByteBuffer[] newSegments = new MappedByteBuffer[segments.length + 1];
+      System.arraycopy(segments, 0, newSegments, 0, segments.length);
+      newSegments[segments.length] = mapSegment(segments.length, Math.max(required, getSegmentSize()));
+      _segments = newSegments;
+      segments = newSegments;
+      _writePosition = 0;
+    }
+    final long location = ((long) (segments.length - 1) << 32) | _writePosition;
+    _writePosition += required;
+    return location;
+  }
+
+  private ByteBuffer segment(final long location) {
+    final MappedByteBuffer[] segments = _segments;
+    final int segment = (int) (location >>> 32);
+    if (segment >= segments.length) {
+      // the segments only go away when the store is deleted
+      throw new IllegalStateException("Data store " + getName() + " has been deleted");
+    }
+    return segments[segment].duplicate();
+  }
+
+  private void write(final long location, final byte[] data) {
+    final ByteBuffer buffer = segment(location);
+    final int offset = (int) location;
+    buffer.putInt(offset, data.length);
+    buffer.position(offset + HEADER_SIZE);
+    buffer.put(data);
+  }
+
+  private byte[] read(final long location) {
+    final ByteBuffer buffer = segment(location);
+    final int offset = (int) location;
+    final byte[] data = new byte[buffer.getInt(offset)];
+    buffer.position(offset + HEADER_SIZE);
+    buffer.get(data);
+    return data;
+  }
+
+  // BinaryDataStore
+
+  @Override
+  public byte[] get(final long identifier) {
+    final long location;
+    _indexLock.readLock().lock();
+    try {
+      location = _index.get(identifier);
+    } finally {
+      _indexLock.readLock().unlock();
+    }
+    if (location == NOT_FOUND) {
+      return null;
+    }
+    return read(location);
+  }
+
+  @Override
+  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+    final long[] locations = new long[identifiers.size()];
+    int i = 0;
+    _indexLock.readLock().lock();
+    try {
+      for (Long identifier : identifiers) {
+        locations[i++] = _index.get(identifier.longValue());
+      }
+    } finally {
+      _indexLock.readLock().unlock();
+    }
+    final Map<Long, byte[]> result = new HashMap<Long, byte[]>();
+    i = 0;
+    for (Long identifier : identifiers) {
+      final long location = locations[i++];
+      if (location != NOT_FOUND) {
+        result.put(identifier, read(location));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final long identifier, final byte[] data) {
+    final long location = allocate(data.length);
+    write(location, data);
+    _indexLock.writeLock().lock();
+    try {
+      checkNotDeleted();
+      _index.put(identifier, location);
+    } finally {
+      _indexLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    final long[] identifiers = new long[data.size()];
+    final long[] locations = new long[data.size()];
+    int i = 0;
+    for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+      identifiers[i] = entry.getKey();
+      locations[i] = allocate(entry.getValue().length);
+      write(locations[i], entry.getValue());
+      i++;
+    }
+    _indexLock.writeLock().lock();
+    try {
+      checkNotDeleted();
+      for (i = 0; i < identifiers.length; i++) {
+        _index.put(identifiers[i], locations[i]);
+      }
+    } finally {
+      _indexLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Fails a put that completes after the store was deleted, so that the index isn't left with a location in a removed segment. Called with the
+   * index write lock held, which {@link #delete} takes after marking the store as deleted.
+   */
+  private void checkNotDeleted() {
+    if (_deleted) {
+      throw new IllegalStateException("Data store " + getName() + " has been deleted");
+    }
+  }
+
+  @Override
+  public synchronized void delete() {
+    _deleted = true;
+    _indexLock.writeLock().lock();
+    try {
+      _index.clear();
+    } finally {
+      _indexLock.writeLock().unlock();
+    }
+    _segments = new MappedByteBuffer[0];
+    for (File file : _files) {
+      // a segment that couldn't be created is recorded but has no file
+      if (!file.delete() && file.exists()) {
+        s_logger.warn("Couldn't delete segment file {}", file);
+        file.deleteOnExit();
+      }
+    }
+    _files.clear();
+  }
+
+  @Override
+  public String toString() {
+    return "MappedFileBinaryDataStore[" + getName() + "]";
+  }
+
+}
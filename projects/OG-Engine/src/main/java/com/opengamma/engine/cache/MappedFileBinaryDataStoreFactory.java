@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link MappedFileBinaryDataStore} instances.
+ * <p>
+ * Each store is given a distinct file name prefix within the data store folder so that the shared and private caches for the same cycle do not collide.
+ */
+public class MappedFileBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  private final File _dataStoreFolder;
+  private final int _segmentSize;
+  private final AtomicInteger _nextStore = new AtomicInteger();
+
+  public MappedFileBinaryDataStoreFactory(final File dataStoreFolder) {
+    this(dataStoreFolder, MappedFileBinaryDataStore.DEFAULT_SEGMENT_SIZE);
+  }
+
+  public MappedFileBinaryDataStoreFactory(final File dataStoreFolder, final int segmentSize) {
+    ArgumentChecker.notNull(dataStoreFolder, "dataStoreFolder");
+    if (!dataStoreFolder.isDirectory() && !dataStoreFolder.mkdirs()) {
+      throw new IllegalArgumentException("Data store folder " + dataStoreFolder + " could not be created");
+    }
+    _dataStoreFolder = dataStoreFolder;
+    _segmentSize = ArgumentChecker.notNegativeOrZero(segmentSize, "segmentSize");
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(ViewComputationCacheKey cacheKey) {
+    final String name = (cacheKey.getViewCycleId() + "-" + cacheKey.getCalculationConfigurationName()).replaceAll("[^A-Za-z0-9_\\-]", "_") + "-" + _nextStore.getAndIncrement();
+    return new MappedFileBinaryDataStore(_dataStoreFolder, name, _segmentSize);
+  }
+
+}
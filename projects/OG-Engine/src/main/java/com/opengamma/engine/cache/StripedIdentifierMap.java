@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.opengamma.engine.MemoryUtils;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link IdentifierMap} backed by lock-striped, open-addressing primitive hash tables.
+ * <p>
+ * The forward mapping is split over a number of stripes, each an {@link Object2LongOpenHashMap} guarded by its own read/write lock, so that
+ * concurrent lookups of different specifications rarely contend. Identifiers are allocated sequentially which allows the reverse mapping to be
+ * held in chunked arrays indexed directly by identifier. Neither direction creates {@link Long} instances, including the bulk operations which
+ * take each stripe's lock once per call.
+ * <p>
+ * This has no facilities for acting as a cache, or for persistence.
+ */
+public class StripedIdentifierMap implements IdentifierMap {
+
+  /**
+   * The default number of stripes.
+   */
+  public static final int DEFAULT_STRIPES = 16;
+
+  private static final int CHUNK_BITS = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private static final long NOT_FOUND = -1L;
+
+  private final Stripe[] _stripes;
+  private final int _stripeMask;
+
+  /**
+   * The next identifier, guarded by {@code _chunkLock}.
+   */
+  private long _nextIdentifier = 1L;
+  /**
+   * The reverse mapping. The outer array is replaced, never modified, when a chunk is added.
+   */
+  private volatile AtomicReferenceArray<ValueSpecification>[] _chunks;
+  private final Object _chunkLock = new Object();
+
+  /**
+   * One stripe of the forward mapping.
+   */
+  private static final class Stripe {
+
+    private final Object2LongOpenHashMap<ValueSpecification> _identifiers = new Object2LongOpenHashMap<ValueSpecification>();
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+
+    private Stripe() {
+      _identifiers.defaultReturnValue(NOT_FOUND);
+    }
+
+  }
+
+  /**
+   * Creates a new map with the default number of stripes.
+   */
+  public StripedIdentifierMap() {
+    this(DEFAULT_STRIPES);
+  }
+
+  /**
+   * Creates a new map.
+   *
+   * @param stripes the number of stripes, rounded up to a power of two
+   */
+  @SuppressWarnings("unchecked")
+  public StripedIdentifierMap(final int stripes) {
+    ArgumentChecker.notNegativeOrZero(stripes, "stripes");
+    int count = 1;
+    while (count < stripes) {
+      count <<= 1;
+    }
+    _stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      _stripes[i] = new Stripe();
+    }
+    _stripeMask = count - 1;
+    _chunks = new AtomicReferenceArray[] {new AtomicReferenceArray<ValueSpecification>(CHUNK_SIZE) };
+  }
+
+  private int stripeIndex(final ValueSpecification spec) {
+    int h = spec.hashCode();
+    // Spread the high bits down, as the open hash tables within each stripe use the low bits
+    h ^= (h >>> 16);
+    h ^= (h >>> 8);
+    return h & _stripeMask;
+  }
+
+  /**
+   * Allocates an identifier and records the reverse mapping. The caller must hold the write lock on the stripe the specification belongs to.
+   *
+   * @param spec the specification, not null
+   * @return the new identifier
+   */
+  private long allocate(final ValueSpecification spec) {
+    final long identifier;
+    AtomicReferenceArray<ValueSpecification>[] chunks;
+    synchronized (_chunkLock) {
+      identifier = _nextIdentifier++;
+      chunks = _chunks;
+      final int chunk = (int) (identifier >>> CHUNK_BITS);
+      if (chunk >= chunks.length) {
+        @SuppressWarnings("unchecked")
+        final AtomicReferenceArray<ValueSpecification>[] newChunks = new AtomicReferenceArray[chunks.length << 1];
+        System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+        for (int i = chunks.length; i < newChunks.length; i++) {
+          newChunks[i] = new AtomicReferenceArray<ValueSpecification>(CHUNK_SIZE);
+        }
+        _chunks = newChunks;
+        chunks = newChunks;
+      }
+    }
+    chunks[(int) (identifier >>> CHUNK_BITS)].set((int) identifier & CHUNK_MASK, spec);
+    return identifier;
+  }
+
+  private long getOrAllocate(final Stripe stripe, final ValueSpecification spec) {
+    long identifier = stripe._identifiers.getLong(spec);
+    if (identifier == NOT_FOUND) {
+      final ValueSpecification key = MemoryUtils.instance(spec);
+      identifier = allocate(key);
+      stripe._identifiers.put(key, identifier);
+    }
+    return identifier;
+  }
+
+  // IdentifierMap
+
+  @Override
+  public long getIdentifier(final ValueSpecification spec) {
+    ArgumentChecker.notNull(spec, "spec");
+    final Stripe stripe = _stripes[stripeIndex(spec)];
+    long identifier;
+    stripe._lock.readLock().lock();
+    try {
+      identifier = stripe._identifiers.getLong(spec);
+    } finally {
+      stripe._lock.readLock().unlock();
+    }
+    if (identifier != NOT_FOUND) {
+      return identifier;
+    }
+    stripe._lock.writeLock().lock();
+    try {
+      return getOrAllocate(stripe, spec);
+    } finally {
+      stripe._lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Object2LongMap<ValueSpecification> getIdentifiers(final Collection<ValueSpecification> specs) {
+    final Object2LongOpenHashMap<ValueSpecification> result = new Object2LongOpenHashMap<ValueSpecification>(specs.size());
+    final List<List<ValueSpecification>> byStripe = new ArrayList<List<ValueSpecification>>(_stripes.length);
+    for (int i = 0; i < _stripes.length; i++) {
+      byStripe.add(null);
+    }
+    for (ValueSpecification spec : specs) {
+      final int index = stripeIndex(spec);
+      List<ValueSpecification> stripeSpecs = byStripe.get(index);
+      if (stripeSpecs == null) {
+        stripeSpecs = new ArrayList<ValueSpecification>();
+        byStripe.set(index, stripeSpecs);
+      }
+      stripeSpecs.add(spec);
+    }
+    for (int i = 0; i < _stripes.length; i++) {
+      final List<ValueSpecification> stripeSpecs = byStripe.get(i);
+      if (stripeSpecs == null) {
+        continue;
+      }
+      final Stripe stripe = _stripes[i];
+      List<ValueSpecification> misses = null;
+      stripe._lock.readLock().lock();
+      try {
+        for (ValueSpecification spec : stripeSpecs) {
+          final long identifier = stripe._identifiers.getLong(spec);
+          if (identifier != NOT_FOUND) {
+            result.put(spec, identifier);
+          } else {
+            if (misses == null) {
+              misses = new ArrayList<ValueSpecification>();
+            }
+            misses.add(spec);
+          }
+        }
+      } finally {
+        stripe._lock.readLock().unlock();
+      }
+      if (misses != null) {
+        stripe._lock.writeLock().lock();
+        try {
+          for (ValueSpecification spec : misses) {
+            result.put(spec, getOrAllocate(stripe, spec));
+          }
+        } finally {
+          stripe._lock.writeLock().unlock();
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public ValueSpecification getValueSpecification(final long identifier) {
+    if (identifier <= 0) {
+      return null;
+    }
+    final AtomicReferenceArray<ValueSpecification>[] chunks = _chunks;
+    final int chunk = (int) (identifier >>> CHUNK_BITS);
+    if (chunk >= chunks.length) {
+      return null;
+    }
+    return chunks[chunk].get((int) identifier & CHUNK_MASK);
+  }
+
+  @Override
+  public Long2ObjectMap<ValueSpecification> getValueSpecifications(final LongCollection identifiers) {
+    final Long2ObjectMap<ValueSpecification> result = new Long2ObjectOpenHashMap<ValueSpecification>(identifiers.size());
+    final LongIterator itr = identifiers.iterator();
+    while (itr.hasNext()) {
+      final long identifier = itr.nextLong();
+      result.put(identifier, getValueSpecification(identifier));
+    }
+    return result;
+  }
+
+}
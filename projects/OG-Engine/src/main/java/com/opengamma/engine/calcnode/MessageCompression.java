@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.calcnode;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.fudgemsg.wire.FudgeSize;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.calcnode.msg.Compressed;
+import com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessage;
+
+/**
+ * Compresses the encoded form of messages exchanged between a job invoker and a remote calculation node.
+ * <p>
+ * The encoded message is compressed with ZLIB at its fastest setting and sent as a {@link Compressed}
+ * message. Job batches contain many repeated function identifiers, parameters and target specifications
+ * so compress well, but small messages are not worth the cost so are only compressed above a threshold.
+ */
+/* package */final class MessageCompression {
+
+  private MessageCompression() {
+  }
+
+  /**
+   * Encodes a message, compressing it if its encoded form is at least the threshold size.
+   * 
+   * @param fudgeContext the Fudge context, not null
+   * @param message the message to encode, not null
+   * @param threshold the size in bytes at which to compress the message, zero or less to never compress
+   * @return the encoded message, not null
+   */
+  public static FudgeMsg encode(final FudgeContext fudgeContext, final RemoteCalcNodeMessage message, final int threshold) {
+    final FudgeSerializer serializer = new FudgeSerializer(fudgeContext);
+    final FudgeMsg msg = FudgeSerializer.addClassHeader(serializer.objectToFudgeMsg(message), message.getClass(), RemoteCalcNodeMessage.class);
+    if (threshold <= 0) {
+      return msg;
+    }
+    // measure without encoding, messages below the threshold are encoded once when they are sent
+    if (FudgeSize.calculateMessageSize(msg) < threshold) {
+      return msg;
+    }
+    final Compressed compressed = new Compressed(deflate(fudgeContext.toByteArray(msg)));
+    return FudgeSerializer.addClassHeader(serializer.objectToFudgeMsg(compressed), Compressed.class, RemoteCalcNodeMessage.class);
+  }
+
+  /**
+   * Decodes the message held by a compressed message.
+   * 
+   * @param fudgeContext the Fudge context, not null
+   * @param message the compressed message, not null
+   * @return the message, not null
+   */
+  public static FudgeMsg decode(final FudgeContext fudgeContext, final Compressed message) {
+    return fudgeContext.deserialize(inflate(message.getData())).getMessage();
+  }
+
+  private static byte[] deflate(final byte[] data) {
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      final ByteArrayList collector = new ByteArrayList(data.length / 4 + 32);
+      final byte[] buf = new byte[4096];
+      while (!deflater.finished()) {
+        final int size = deflater.deflate(buf);
+        collector.addElements(collector.size(), buf, 0, size);
+      }
+      return collector.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(final byte[] data) {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      final ByteArrayList collector = new ByteArrayList(data.length * 4);
+      final byte[] buf = new byte[4096];
+      while (!inflater.finished()) {
+        final int size = inflater.inflate(buf);
+        if (size == 0 && inflater.needsInput()) {
+          throw new OpenGammaRuntimeException("Truncated compressed message");
+        }
+        collector.addElements(collector.size(), buf, 0, size);
+      }
+      return collector.toByteArray();
+    } catch (DataFormatException e) {
+      throw new OpenGammaRuntimeException("Invalid compressed message", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+}
@@ -21,7 +21,9 @@ import org.springframework.context.Lifecycle;
 import com.opengamma.engine.cache.AbstractIdentifierMap;
 import com.opengamma.engine.cache.IdentifierMap;
 import com.opengamma.engine.calcnode.msg.Cancel;
+import com.opengamma.engine.calcnode.msg.Compressed;
 import com.opengamma.engine.calcnode.msg.Execute;
+import com.opengamma.engine.calcnode.msg.ExecuteBatch;
 import com.opengamma.engine.calcnode.msg.Failure;
 import com.opengamma.engine.calcnode.msg.Init;
 import com.opengamma.engine.calcnode.msg.IsAlive;
@@ -66,9 +68,26 @@ public class RemoteNodeClient extends SimpleCalculationNodeInvocationContainer i
       }
     }
 
+    @Override
+    protected void visitCompressedMessage(final Compressed message) {
+      final FudgeContext fudgeContext = getConnection().getFudgeMessageSender().getFudgeContext();
+      final FudgeDeserializer deserializer = new FudgeDeserializer(fudgeContext);
+      deserializer.fudgeMsgToObject(RemoteCalcNodeMessage.class, MessageCompression.decode(fudgeContext, message)).accept(this);
+    }
+
     @Override
     protected void visitExecuteMessage(final Execute message) {
-      final CalculationJob job = message.getJob();
+      execute(message.getJob());
+    }
+
+    @Override
+    protected void visitExecuteBatchMessage(final ExecuteBatch message) {
+      for (CalculationJob job : message.getJob()) {
+        execute(job);
+      }
+    }
+
+    private void execute(final CalculationJob job) {
       VersionCorrectionUtils.lockForLifetime(job.getResolverVersionCorrection(), job);
       getFunctionCompilationService().reinitializeIfNeeded(job.getFunctionInitializationIdentifier());
       AbstractIdentifierMap.resolveIdentifiers(getIdentifierMap(), job);
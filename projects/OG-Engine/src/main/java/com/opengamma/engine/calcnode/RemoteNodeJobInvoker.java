@@ -12,8 +12,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -29,7 +31,9 @@ import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.cache.AbstractIdentifierMap;
 import com.opengamma.engine.cache.IdentifierMap;
 import com.opengamma.engine.calcnode.msg.Cancel;
+import com.opengamma.engine.calcnode.msg.Compressed;
 import com.opengamma.engine.calcnode.msg.Execute;
+import com.opengamma.engine.calcnode.msg.ExecuteBatch;
 import com.opengamma.engine.calcnode.msg.Failure;
 import com.opengamma.engine.calcnode.msg.Invocations;
 import com.opengamma.engine.calcnode.msg.IsAlive;
@@ -48,9 +52,17 @@ import com.opengamma.transport.FudgeConnection;
 import com.opengamma.transport.FudgeConnectionStateListener;
 import com.opengamma.transport.FudgeMessageReceiver;
 import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
 
 /**
  * A JobInvoker for invoking a job on a remote node connected by a FudgeConnection.
+ * <p>
+ * By default each job is sent to the node in its own message. If a maximum batch size greater than one is set, jobs
+ * invoked while a previous message is being sent are coalesced and sent together in {@link ExecuteBatch} messages. This
+ * reduces the per-message overhead when the dispatcher is sending many small jobs. The node must support batches. Messages
+ * can also be compressed if their encoded size reaches a threshold.
  */
 /* package */class RemoteNodeJobInvoker implements JobInvoker, FudgeMessageReceiver, FudgeConnectionStateListener {
 
@@ -99,6 +111,16 @@ import com.opengamma.transport.FudgeMessageSender;
   private final FunctionBlacklistQuery _blacklistQuery;
   private final FunctionBlacklistMaintainer _blacklistUpdate;
   private volatile String _invokerId;
+  private volatile int _maxBatchSize = 1;
+  private volatile int _compressionThreshold;
+  /**
+   * Root jobs waiting to be sent when batching is enabled.
+   */
+  private final Queue<Pair<CalculationJob, JobInvocationReceiver>> _unsentJobs = new ConcurrentLinkedQueue<Pair<CalculationJob, JobInvocationReceiver>>();
+  /**
+   * Set while a task is sending the unsent jobs.
+   */
+  private final AtomicBoolean _sendingJobs = new AtomicBoolean();
   private final RemoteCalcNodeMessageVisitor _messageVisitor = new RemoteCalcNodeMessageVisitor() {
 
     @Override
@@ -106,6 +128,13 @@ import com.opengamma.transport.FudgeMessageSender;
       s_logger.warn("Unexpected message - {}", message);
     }
 
+    @Override
+    protected void visitCompressedMessage(final Compressed message) {
+      final FudgeContext fudgeContext = getFudgeMessageSender().getFudgeContext();
+      final FudgeDeserializer deserializer = new FudgeDeserializer(fudgeContext);
+      deserializer.fudgeMsgToObject(RemoteCalcNodeMessage.class, MessageCompression.decode(fudgeContext, message)).accept(this);
+    }
+
     @Override
     protected void visitFailureMessage(final Failure message) {
       s_logger.info("Received failure for job {}", message.getJob());
@@ -204,6 +233,35 @@ import com.opengamma.transport.FudgeMessageSender;
     s_logger.info("Remote node invoker created with capacity {}", _capacity);
   }
 
+  /**
+   * Sets the maximum number of jobs to send to the node in one message. Jobs from a single invocation are never split
+   * between messages, so a batch may exceed this if the root job has a large tail.
+   * 
+   * @param maxBatchSize the maximum number of jobs in a batch, one to send each job in its own message
+   */
+  public void setMaxBatchSize(final int maxBatchSize) {
+    ArgumentChecker.isTrue(maxBatchSize > 0, "maxBatchSize must be positive");
+    _maxBatchSize = maxBatchSize;
+  }
+
+  public int getMaxBatchSize() {
+    return _maxBatchSize;
+  }
+
+  /**
+   * Sets the encoded size at which messages sent to the node are compressed.
+   * 
+   * @param compressionThreshold the size in bytes, zero to never compress
+   */
+  public void setCompressionThreshold(final int compressionThreshold) {
+    ArgumentChecker.notNegative(compressionThreshold, "compressionThreshold");
+    _compressionThreshold = compressionThreshold;
+  }
+
+  public int getCompressionThreshold() {
+    return _compressionThreshold;
+  }
+
   private CapabilitySet getCapabilitySet() {
     return _capabilitySet;
   }
@@ -246,8 +304,7 @@ import com.opengamma.transport.FudgeMessageSender;
   }
 
   protected void sendMessage(final RemoteCalcNodeMessage message) {
-    final FudgeSerializer serializer = new FudgeSerializer(getFudgeMessageSender().getFudgeContext());
-    getFudgeMessageSender().send(FudgeSerializer.addClassHeader(serializer.objectToFudgeMsg(message), message.getClass(), RemoteCalcNodeMessage.class));
+    getFudgeMessageSender().send(MessageCompression.encode(getFudgeMessageSender().getFudgeContext(), message, getCompressionThreshold()));
   }
 
   private void jobFailed(final JobInvocationReceiver receiver, final CalculationJob job, final String nodeId, final Exception e) {
@@ -310,6 +367,11 @@ import com.opengamma.transport.FudgeMessageSender;
       }
     }
     s_logger.info("Dispatching job {}", rootJob.getSpecification());
+    if (getMaxBatchSize() > 1) {
+      _unsentJobs.add(Pairs.of(rootJob, receiver));
+      sendUnsentJobs();
+      return true;
+    }
     // Don't block the dispatcher with outgoing serialization and I/O
     getExecutorService().execute(new Runnable() {
 
@@ -352,6 +414,90 @@ import com.opengamma.transport.FudgeMessageSender;
     return true;
   }
 
+  /**
+   * Starts a task to send the unsent jobs if one isn't already running. Jobs queued while a message is being sent are
+   * coalesced into the next message, so batches only form when the jobs are being invoked faster than they can be sent.
+   */
+  private void sendUnsentJobs() {
+    if (!_sendingJobs.compareAndSet(false, true)) {
+      return;
+    }
+    // Don't block the dispatcher with outgoing serialization and I/O
+    getExecutorService().execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (sendBatch()) {
+            // keep sending until the queue is empty
+          }
+        } finally {
+          _sendingJobs.set(false);
+        }
+        // A job may have been queued after the last batch was taken but before the flag was cleared
+        if (!_unsentJobs.isEmpty()) {
+          sendUnsentJobs();
+        }
+      }
+    });
+  }
+
+  /**
+   * Sends the next batch of unsent jobs.
+   * 
+   * @return true if a batch was sent, false if there were no jobs
+   */
+  private boolean sendBatch() {
+    final List<Pair<CalculationJob, JobInvocationReceiver>> roots = new ArrayList<Pair<CalculationJob, JobInvocationReceiver>>();
+    final List<CalculationJob> jobs = new ArrayList<CalculationJob>();
+    final List<CalculationJobSpecification> pending = new ArrayList<CalculationJobSpecification>();
+    final int maxBatchSize = getMaxBatchSize();
+    try {
+      Pair<CalculationJob, JobInvocationReceiver> root;
+      while ((jobs.size() < maxBatchSize) && ((root = _unsentJobs.poll()) != null)) {
+        roots.add(root);
+        // Breadth first ordering of jobs, just in case some can start before we've received everything
+        final Queue<CalculationJob> tree = new LinkedList<CalculationJob>();
+        tree.add(root.getFirst());
+        CalculationJob job = tree.poll();
+        while (job != null) {
+          pending.add(job.getSpecification());
+          getPendingJobs().put(job.getSpecification(), new JobInfo(root.getSecond(), job));
+          AbstractIdentifierMap.convertIdentifiers(getIdentifierMap(), job);
+          jobs.add(blacklist(getBlacklistQuery(), job));
+          if (job.getTail() != null) {
+            tree.addAll(job.getTail());
+          }
+          job = tree.poll();
+        }
+      }
+      if (roots.isEmpty()) {
+        return false;
+      }
+      s_logger.debug("Sending batch of {} jobs", jobs.size());
+      if (jobs.size() == 1) {
+        sendMessage(new Execute(jobs.get(0)));
+      } else {
+        sendMessage(new ExecuteBatch(jobs));
+      }
+    } catch (Exception e) {
+      s_logger.warn("Error sending batch of {} jobs", pending.size());
+      // None of the jobs will complete, so don't leave them pending
+      for (CalculationJobSpecification job : pending) {
+        getPendingJobs().remove(job);
+      }
+      for (Pair<CalculationJob, JobInvocationReceiver> failed : roots) {
+        jobFailed(failed.getSecond(), failed.getFirst(), "node on " + getInvokerId(), e);
+        // As for the unbatched case, we'll check for an additional decrement when "Ready" messages arrive
+        if (_launched.decrementAndGet() < _capacity) {
+          if (registerIfRequired(true)) {
+            s_logger.debug("Notified dispatcher of capacity available");
+          }
+        }
+      }
+    }
+    return true;
+  }
+
   @Override
   public void cancel(final Collection<CalculationJobSpecification> jobs) {
     s_logger.info("Cancelling {} jobs at {}", jobs.size(), getInvokerId());
@@ -40,6 +40,7 @@ import com.opengamma.engine.function.blacklist.MultipleFunctionBlacklistMaintain
 import com.opengamma.engine.function.blacklist.MultipleFunctionBlacklistQuery;
 import com.opengamma.transport.FudgeConnection;
 import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Server end to RemoteNodeClient to receive requests from remote calculation nodes and marshal
@@ -264,6 +265,8 @@ public class RemoteNodeServer implements FudgeConnectionReceiver {
   private Set<Capability> _capabilitiesToAdd;
   private FunctionBlacklistMaintainerProvider _blacklistUpdate;
   private FunctionBlacklistQueryProvider _blacklistQuery;
+  private int _maxBatchSize = 1;
+  private int _compressionThreshold;
 
   public RemoteNodeServer(final JobInvokerRegister jobInvokerRegister, final IdentifierMap identifierMap,
       final FunctionCosts functionCosts, final FunctionCompilationContext functionCompilationContext) {
@@ -345,6 +348,46 @@ public class RemoteNodeServer implements FudgeConnectionReceiver {
     return new DummyFunctionBlacklistQuery();
   }
 
+  /**
+   * Returns the maximum number of jobs sent to a node in one message.
+   * 
+   * @return the maximum batch size, one if jobs are sent individually
+   */
+  public int getMaxBatchSize() {
+    return _maxBatchSize;
+  }
+
+  /**
+   * Sets the maximum number of jobs sent to a node in one message. Batching reduces the dispatch overhead of many small
+   * jobs but requires the remote nodes to support batch messages.
+   * 
+   * @param maxBatchSize the maximum batch size, one to send jobs individually
+   */
+  public void setMaxBatchSize(final int maxBatchSize) {
+    ArgumentChecker.isTrue(maxBatchSize > 0, "maxBatchSize must be positive");
+    _maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Returns the encoded size at which messages sent to nodes are compressed.
+   * 
+   * @return the size in bytes, zero if messages are never compressed
+   */
+  public int getCompressionThreshold() {
+    return _compressionThreshold;
+  }
+
+  /**
+   * Sets the encoded size at which messages sent to nodes are compressed. Compression requires the remote nodes to
+   * support compressed messages.
+   * 
+   * @param compressionThreshold the size in bytes, zero to never compress
+   */
+  public void setCompressionThreshold(final int compressionThreshold) {
+    ArgumentChecker.notNegative(compressionThreshold, "compressionThreshold");
+    _compressionThreshold = compressionThreshold;
+  }
+
   protected JobInvokerRegister getJobInvokerRegister() {
     return _jobInvokerRegister;
   }
@@ -384,6 +427,8 @@ public class RemoteNodeServer implements FudgeConnectionReceiver {
         if (_capabilitiesToAdd != null) {
           invoker.addCapabilities(_capabilitiesToAdd);
         }
+        invoker.setMaxBatchSize(getMaxBatchSize());
+        invoker.setCompressionThreshold(getCompressionThreshold());
         final Init init = new Init(getFunctionCompilationContext().getFunctionInitId());
         invoker.sendMessage(init);
         getJobInvokerRegister().registerJobInvoker(invoker);
@@ -0,0 +1,73 @@
+// Automatically created - do not modify - CSOFF
+///CLOVER:OFF
+package com.opengamma.engine.calcnode.msg;
+public class Compressed extends com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessage implements java.io.Serializable {
+  public void accept (RemoteCalcNodeMessageVisitor visitor) { visitor.visitCompressedMessage (this); }
+  private static final long serialVersionUID = -1068803758l;
+  private byte[] _data;
+  public static final String DATA_KEY = "data";
+  public Compressed (byte[] data) {
+    if (data == null) throw new NullPointerException ("'data' cannot be null");
+    _data = java.util.Arrays.copyOf (data, data.length);
+  }
+  protected Compressed (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    super (deserializer, fudgeMsg);
+    org.fudgemsg.FudgeField fudgeField;
+    fudgeField = fudgeMsg.getByName (DATA_KEY);
+    if (fudgeField == null) throw new IllegalArgumentException ("Fudge message is not a Compressed - field 'data' is not present");
+    try {
+      _data = fudgeMsg.getFieldValue (byte[].class, fudgeField);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException ("Fudge message is not a Compressed - field 'data' is not byte[]", e);
+    }
+  }
+  protected Compressed (final Compressed source) {
+    super (source);
+    if (source == null) throw new NullPointerException ("'source' must not be null");
+    if (source._data == null) _data = null;
+    else {
+      _data = java.util.Arrays.copyOf (source._data, source._data.length);
+    }
+  }
+  public Compressed clone () {
+    return new Compressed (this);
+  }
+  public org.fudgemsg.FudgeMsg toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer) {
+    if (serializer == null) throw new NullPointerException ("serializer must not be null");
+    final org.fudgemsg.MutableFudgeMsg msg = serializer.newMessage ();
+    toFudgeMsg (serializer, msg);
+    return msg;
+  }
+  public void toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer, final org.fudgemsg.MutableFudgeMsg msg) {
+    super.toFudgeMsg (serializer, msg);
+    if (_data != null)  {
+      msg.add (DATA_KEY, null, _data);
+    }
+  }
+  public static Compressed fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
+    for (org.fudgemsg.FudgeField field : types) {
+      final String className = (String)field.getValue ();
+      if ("com.opengamma.engine.calcnode.msg.Compressed".equals (className)) break;
+      try {
+        return (com.opengamma.engine.calcnode.msg.Compressed)Class.forName (className).getDeclaredMethod ("fromFudgeMsg", org.fudgemsg.mapping.FudgeDeserializer.class, org.fudgemsg.FudgeMsg.class).invoke (null, deserializer, fudgeMsg);
+      }
+      catch (Throwable t) {
+        // no-action
+      }
+    }
+    return new Compressed (deserializer, fudgeMsg);
+  }
+  public byte[] getData () {
+    return java.util.Arrays.copyOf (_data, _data.length);
+  }
+  public void setData (byte[] data) {
+    if (data == null) throw new NullPointerException ("'data' cannot be null");
+    _data = java.util.Arrays.copyOf (data, data.length);
+  }
+  public String toString () {
+    return org.apache.commons.lang.builder.ToStringBuilder.reflectionToString(this, org.apache.commons.lang.builder.ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
+///CLOVER:ON - CSON
@@ -17,10 +17,18 @@ public abstract class RemoteCalcNodeMessageVisitor {
     visitUnexpectedMessage(message);
   }
 
+  protected void visitCompressedMessage(Compressed message) {
+    visitUnexpectedMessage(message);
+  }
+
   protected void visitExecuteMessage(Execute message) {
     visitUnexpectedMessage(message);
   }
 
+  protected void visitExecuteBatchMessage(ExecuteBatch message) {
+    visitUnexpectedMessage(message);
+  }
+
   protected void visitFailureMessage(Failure message) {
     visitUnexpectedMessage(message);
   }
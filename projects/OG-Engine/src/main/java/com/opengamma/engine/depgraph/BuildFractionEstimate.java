@@ -66,4 +66,68 @@ import com.google.common.base.Supplier;
     return (get() * 100) + "%";
   }
 
+  /**
+   * Estimates the percentage completion of a {@link PartitionedDependencyGraphBuild}, logging the time spent in each phase as it completes.
+   * <p>
+   * Building the partitions is assumed to be the bulk of the work; the completion phase is estimated from the completing builder.
+   */
+  /* package */static final class Partitioned implements Supplier<Double> {
+
+    private static final double PARTITION_WEIGHT = 0.8;
+    private static final double MERGE_WEIGHT = 0.05;
+
+    private final WeakReference<PartitionedDependencyGraphBuild> _build;
+    private BuildFractionEstimate _completion;
+    private PartitionedDependencyGraphBuild.Phase _reported = PartitionedDependencyGraphBuild.Phase.PENDING;
+
+    public Partitioned(final PartitionedDependencyGraphBuild build) {
+      _build = new WeakReference<PartitionedDependencyGraphBuild>(build);
+    }
+
+    private void reportPhases(final PartitionedDependencyGraphBuild build, final PartitionedDependencyGraphBuild.Phase phase) {
+      while (_reported.ordinal() < phase.ordinal()) {
+        if (_reported != PartitionedDependencyGraphBuild.Phase.PENDING) {
+          s_logger.info("{} phase of {} completed after {}ms", new Object[] {_reported, build, build.getPhaseTime(_reported) / 1000000 });
+        }
+        _reported = PartitionedDependencyGraphBuild.Phase.values()[_reported.ordinal() + 1];
+      }
+    }
+
+    @Override
+    public Double get() {
+      final PartitionedDependencyGraphBuild build = _build.get();
+      if ((build == null) || build.isCancelled()) {
+        return 1d;
+      }
+      final PartitionedDependencyGraphBuild.Phase phase = build.getPhase();
+      reportPhases(build, phase);
+      switch (phase) {
+        case PENDING:
+          return 0d;
+        case PARTITION: {
+          final int partitions = build.getPartitionCount();
+          if (partitions <= 0) {
+            return 0d;
+          }
+          return PARTITION_WEIGHT * build.getCompletedPartitions() / partitions;
+        }
+        case MERGE:
+          return PARTITION_WEIGHT;
+        case COMPLETION:
+          if (_completion == null) {
+            _completion = new BuildFractionEstimate(build.getBuilder());
+          }
+          return PARTITION_WEIGHT + MERGE_WEIGHT + (1d - PARTITION_WEIGHT - MERGE_WEIGHT) * _completion.get();
+        default:
+          return 1d;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return (get() * 100) + "%";
+    }
+
+  }
+
 }
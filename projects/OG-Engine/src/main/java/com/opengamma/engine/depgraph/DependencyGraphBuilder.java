@@ -144,6 +144,8 @@ public final class DependencyGraphBuilder implements Cancelable {
   private FunctionCompilationContext _compilationContext;
   /** The function exclusion groups for this instance of DependencyGraphBuilder */
   private FunctionExclusionGroups _functionExclusionGroups;
+  /** The target reference resolutions shared with other builders, null if not shared */
+  private ConcurrentMap<ComputationTargetReference, ComputationTargetSpecification> _targetResolutions;
 
   // The resolve task is ref-counted once for the map (it is being used as a set)
   private final ConcurrentMap<ValueRequirement, Map<ResolveTask, ResolveTask>> _requirements = new ConcurrentHashMap<ValueRequirement, Map<ResolveTask, ResolveTask>>();
@@ -271,6 +273,24 @@ public final class DependencyGraphBuilder implements Cancelable {
     return _functionExclusionGroups;
   }
 
+  /**
+   * Sets a cache of target reference resolutions to share with other builders working on the same configuration, for example the partitions of a {@link PartitionedDependencyGraphBuild}.
+   * 
+   * @param targetResolutions the shared cache, or null to resolve all target references directly
+   */
+  public void setTargetResolutionCache(final ConcurrentMap<ComputationTargetReference, ComputationTargetSpecification> targetResolutions) {
+    _targetResolutions = targetResolutions;
+  }
+
+  /**
+   * Returns the cache of target reference resolutions shared with other builders.
+   * 
+   * @return the shared cache, or null if target references are resolved directly
+   */
+  public ConcurrentMap<ComputationTargetReference, ComputationTargetSpecification> getTargetResolutionCache() {
+    return _targetResolutions;
+  }
+
   /**
    * Sets the target digest rules
    * 
@@ -355,6 +375,24 @@ public final class DependencyGraphBuilder implements Cancelable {
   };
 
   protected ComputationTargetSpecification resolveTargetReference(final ComputationTargetReference reference) {
+    final ConcurrentMap<ComputationTargetReference, ComputationTargetSpecification> targetResolutions = _targetResolutions;
+    if (targetResolutions == null) {
+      return resolveTargetReferenceImpl(reference);
+    }
+    ComputationTargetSpecification specification = targetResolutions.get(reference);
+    if (specification == null) {
+      specification = resolveTargetReferenceImpl(reference);
+      if (specification != null) {
+        final ComputationTargetSpecification existing = targetResolutions.putIfAbsent(reference, specification);
+        if (existing != null) {
+          specification = existing;
+        }
+      }
+    }
+    return specification;
+  }
+
+  private ComputationTargetSpecification resolveTargetReferenceImpl(final ComputationTargetReference reference) {
     ComputationTargetSpecification specification = getCompilationContext().getComputationTargetResolver().getSpecificationResolver().getTargetSpecification(reference);
     if (specification == null) {
       s_logger.warn("Couldn't resolve {}", reference);
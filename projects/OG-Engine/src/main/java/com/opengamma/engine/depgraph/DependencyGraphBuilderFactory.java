@@ -8,6 +8,7 @@ package com.opengamma.engine.depgraph;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -17,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import com.opengamma.engine.function.exclusion.FunctionExclusionGroups;
 import com.opengamma.engine.target.digest.TargetDigests;
+import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.MdcAwareThreadPoolExecutor;
 
 /**
@@ -54,6 +56,9 @@ public class DependencyGraphBuilderFactory {
   private FunctionExclusionGroups _functionExclusionGroups;
   private TargetDigests _targetDigests;
   private ComputationTargetCollapser _computationTargetCollapser;
+  private boolean _partitionedPortfolioBuild = System.getProperty("DependencyGraphBuilderFactory.partitionedPortfolioBuild", "FALSE").equalsIgnoreCase("TRUE");
+  private int _partitionParallelism = Runtime.getRuntime().availableProcessors();
+  private ForkJoinPool _partitionPool;
   private final Executor _executor = createExecutor();
 
   public DependencyGraphBuilderFactory() {
@@ -122,6 +127,67 @@ public class DependencyGraphBuilderFactory {
     return _computationTargetCollapser;
   }
 
+  /**
+   * Sets whether portfolio requirements should be partitioned by portfolio node and the partitions built independently. The default setting is taken from system property
+   * {@code DependencyGraphBuilderFactory.partitionedPortfolioBuild} if set, otherwise it is off.
+   * 
+   * @param partitionedPortfolioBuild true to enable, false to disable
+   * @see PartitionedDependencyGraphBuild
+   */
+  public void setPartitionedPortfolioBuild(final boolean partitionedPortfolioBuild) {
+    _partitionedPortfolioBuild = partitionedPortfolioBuild;
+  }
+
+  public boolean isPartitionedPortfolioBuild() {
+    return _partitionedPortfolioBuild;
+  }
+
+  /**
+   * Sets the number of threads used to build partitions. Partitioned builds already running finish with the previous number of threads. The default is the number of processor cores.
+   * 
+   * @param partitionParallelism the number of threads
+   */
+  public synchronized void setPartitionParallelism(final int partitionParallelism) {
+    ArgumentChecker.isTrue(partitionParallelism > 0, "partitionParallelism");
+    if (_partitionPool != null) {
+      // Builds using the pool still complete; the next build creates a pool of the new size
+      _partitionPool.shutdown();
+      _partitionPool = null;
+    }
+    _partitionParallelism = partitionParallelism;
+  }
+
+  public synchronized int getPartitionParallelism() {
+    return _partitionParallelism;
+  }
+
+  /**
+   * Returns the work-stealing pool used to build partitions, creating it if necessary. All partitioned builds from a single factory share the same pool, which is kept for the life of the
+   * factory. Its threads are daemons and are retired when idle so an unused pool holds no threads.
+   * 
+   * @return the pool, not null
+   */
+  /* package */synchronized ForkJoinPool getPartitionPool() {
+    if (_partitionPool == null) {
+      _partitionPool = new ForkJoinPool(_partitionParallelism);
+    }
+    return _partitionPool;
+  }
+
+  /* package */synchronized boolean isPartitionPoolActive() {
+    return _partitionPool != null;
+  }
+
+  /**
+   * Creates a partitioned build that will complete in the given builder, which must have been created by this factory.
+   * 
+   * @param builder the builder to merge the partitions into and resolve any remaining requirements with, not null
+   * @return the partitioned build, not null
+   */
+  public PartitionedDependencyGraphBuild newPartitionedBuild(final DependencyGraphBuilder builder) {
+    return new PartitionedDependencyGraphBuild(this, builder);
+  }
+
   public DependencyGraphBuilder newInstance() {
     final DependencyGraphBuilder builder = new DependencyGraphBuilder(getExecutor(), getRunQueueFactory());
     configureBuilder(builder);
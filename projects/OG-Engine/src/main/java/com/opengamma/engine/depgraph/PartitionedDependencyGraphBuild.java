@@ -0,0 +1,379 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.async.Cancelable;
+
+/**
+ * Builds a dependency graph from independent partitions of the terminal requirements.
+ * <p>
+ * Requirements that can be resolved in isolation, for example those for the positions beneath a single portfolio node, are added to a partition. Each partition is built by its own
+ * {@link DependencyGraphBuilder} on a work-stealing pool so the builders do not contend on each other's resolution state; the only state shared between them is a concurrent cache of target
+ * reference resolutions. The partition graphs are then merged and passed to the completing builder, which resolves any requirements that span partitions (for example aggregates on the root
+ * portfolio node) against the merged graph.
+ * <p>
+ * The phases of the build are:
+ * <ol>
+ * <li>{@link Phase#PARTITION} - the partitions are built in parallel;
+ * <li>{@link Phase#MERGE} - the partition graphs are merged and passed to the completing builder;
+ * <li>{@link Phase#COMPLETION} - the completing builder resolves the remaining requirements.
+ * </ol>
+ * The time spent in each phase is recorded and reported by the {@link #buildFractionEstimate} progress estimate.
+ * <p>
+ * Requirements may be added to the partitions concurrently, but {@link #build} and {@link #getDependencyGraph} must only be called by a single thread.
+ */
+public final class PartitionedDependencyGraphBuild implements Cancelable {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(PartitionedDependencyGraphBuild.class);
+
+  /**
+   * The phases of a partitioned build.
+   */
+  public enum Phase {
+    /**
+     * Requirements are being added; the build has not started.
+     */
+    PENDING,
+    /**
+     * The partitions are being built.
+     */
+    PARTITION,
+    /**
+     * The partition graphs are being merged.
+     */
+    MERGE,
+    /**
+     * The completing builder is resolving the remaining requirements.
+     */
+    COMPLETION,
+    /**
+     * The graph has been built.
+     */
+    COMPLETE
+  }
+
+  private final DependencyGraphBuilderFactory _factory;
+  private final DependencyGraphBuilder _builder;
+  private final ConcurrentMap<ComputationTargetReference, ComputationTargetSpecification> _targetResolutions = new ConcurrentHashMap<ComputationTargetReference, ComputationTargetSpecification>();
+  private final List<Queue<ValueRequirement>> _partitions = new CopyOnWriteArrayList<Queue<ValueRequirement>>();
+  private final Queue<ValueRequirement> _completion = new ConcurrentLinkedQueue<ValueRequirement>();
+  /**
+   * The partitions that any unpartitioned requirements (see {@link #getPartition}) are spread over, created on demand.
+   */
+  private final int[] _sharedPartitions;
+  private final AtomicInteger _completedPartitions = new AtomicInteger();
+  private final Set<DependencyGraphBuilder> _activeBuilders = Collections.newSetFromMap(new ConcurrentHashMap<DependencyGraphBuilder, Boolean>());
+  private final long[] _phaseTimes = new long[Phase.values().length];
+  private volatile Phase _phase = Phase.PENDING;
+  private volatile long _phaseStart;
+  private volatile boolean _cancelled;
+
+  /**
+   * Creates a new partitioned build. Use {@link DependencyGraphBuilderFactory#newPartitionedBuild} rather than calling this directly.
+   *
+   * @param factory the factory to create the partition builders from, not null
+   * @param builder the builder to complete the graph with, not null
+   */
+  /* package */PartitionedDependencyGraphBuild(final DependencyGraphBuilderFactory factory, final DependencyGraphBuilder builder) {
+    ArgumentChecker.notNull(factory, "factory");
+    ArgumentChecker.notNull(builder, "builder");
+    _factory = factory;
+    _builder = builder;
+    _sharedPartitions = new int[factory.getPartitionParallelism()];
+    for (int i = 0; i < _sharedPartitions.length; i++) {
+      _sharedPartitions[i] = -1;
+    }
+    builder.setTargetResolutionCache(_targetResolutions);
+  }
+
+  /**
+   * Returns the builder that completes the graph.
+   *
+   * @return the completing builder, not null
+   */
+  public DependencyGraphBuilder getBuilder() {
+    return _builder;
+  }
+
+  /**
+   * Creates a new, empty, partition.
+   *
+   * @return the partition index
+   */
+  public int newPartition() {
+    synchronized (_partitions) {
+      _partitions.add(new ConcurrentLinkedQueue<ValueRequirement>());
+      return _partitions.size() - 1;
+    }
+  }
+
+  /**
+   * Returns a partition for requirements that have no natural partition of their own, for example those on positions held directly by the root portfolio node. These are spread over a number of
+   * shared partitions determined by the key.
+   *
+   * @param key the key identifying the requirements, not null
+   * @return the partition index
+   */
+  public int getPartition(final Object key) {
+    final int slot = (key.hashCode() & Integer.MAX_VALUE) % _sharedPartitions.length;
+    synchronized (_sharedPartitions) {
+      int partition = _sharedPartitions[slot];
+      if (partition < 0) {
+        partition = newPartition();
+        _sharedPartitions[slot] = partition;
+      }
+      return partition;
+    }
+  }
+
+  /**
+   * Returns the number of partitions.
+   *
+   * @return the partition count
+   */
+  public int getPartitionCount() {
+    return _partitions.size();
+  }
+
+  /**
+   * Returns the number of partitions that have been built.
+   *
+   * @return the completed partition count
+   */
+  public int getCompletedPartitions() {
+    return _completedPartitions.get();
+  }
+
+  /**
+   * Adds a requirement to a partition.
+   *
+   * @param partition the partition index, as returned by {@link #newPartition} or {@link #getPartition}
+   * @param requirement the requirement to add, not null
+   */
+  public void addTarget(final int partition, final ValueRequirement requirement) {
+    ArgumentChecker.notNull(requirement, "requirement");
+    _partitions.get(partition).add(requirement);
+  }
+
+  /**
+   * Adds a requirement to be resolved by the completing builder after the partitions have been merged.
+   *
+   * @param requirement the requirement to add, not null
+   */
+  public void addTarget(final ValueRequirement requirement) {
+    ArgumentChecker.notNull(requirement, "requirement");
+    _completion.add(requirement);
+  }
+
+  private DependencyGraphBuilder createPartitionBuilder() {
+    final DependencyGraphBuilder builder = _factory.newInstance();
+    builder.setCalculationConfigurationName(_builder.getCalculationConfigurationName());
+    builder.setMarketDataAvailabilityProvider(_builder.getMarketDataAvailabilityProvider());
+    builder.setFunctionResolver(_builder.getFunctionResolver());
+    builder.setCompilationContext(_builder.getCompilationContext());
+    builder.setFunctionExclusionGroups(_builder.getFunctionExclusionGroups());
+    builder.setDisableFailureReporting(_builder.isDisableFailureReporting());
+    builder.setTargetResolutionCache(_targetResolutions);
+    // The pool thread builds the partition itself
+    builder.setMaxAdditionalThreads(0);
+    return builder;
+  }
+
+  private DependencyGraph buildPartition(final int index) {
+    if (_cancelled) {
+      throw new CancellationException();
+    }
+    final DependencyGraphBuilder builder = createPartitionBuilder();
+    _activeBuilders.add(builder);
+    try {
+      final Queue<ValueRequirement> requirements = _partitions.get(index);
+      builder.addTarget(new ArrayList<ValueRequirement>(requirements));
+      requirements.clear();
+      final DependencyGraph graph = builder.getDependencyGraph();
+      final Map<Throwable, Integer> exceptions = builder.getExceptions();
+      if ((exceptions != null) && !exceptions.isEmpty()) {
+        s_logger.warn("{} exception(s) building partition {} of {}", new Object[] {exceptions.size(), index, _builder.getCalculationConfigurationName() });
+      }
+      s_logger.debug("Built partition {} as {}", index, graph);
+      return graph;
+    } finally {
+      _activeBuilders.remove(builder);
+      _completedPartitions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Builds a range of partitions, splitting it between the pool threads.
+   */
+  private final class BuildPartitions extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final DependencyGraph[] _graphs;
+    private final int _start;
+    private final int _end;
+
+    private BuildPartitions(final DependencyGraph[] graphs, final int start, final int end) {
+      _graphs = graphs;
+      _start = start;
+      _end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (_end - _start == 1) {
+        _graphs[_start] = buildPartition(_start);
+      } else {
+        final int mid = (_start + _end) >>> 1;
+        invokeAll(new BuildPartitions(_graphs, _start, mid), new BuildPartitions(_graphs, mid, _end));
+      }
+    }
+
+  }
+
+  private void startPhase(final Phase phase) {
+    final long now = System.nanoTime();
+    if (_phase != Phase.PENDING) {
+      _phaseTimes[_phase.ordinal()] = now - _phaseStart;
+    }
+    _phaseStart = now;
+    _phase = phase;
+  }
+
+  /**
+   * Builds the partitions and merges them into the completing builder. Any requirements added with {@link #addTarget(ValueRequirement)} are then added to the completing builder.
+   * <p>
+   * If there are no partitions, the requirements are just passed to the completing builder.
+   */
+  public void build() {
+    if (_phase != Phase.PENDING) {
+      throw new IllegalStateException("Build already started");
+    }
+    final int count = _partitions.size();
+    if (count > 0) {
+      startPhase(Phase.PARTITION);
+      s_logger.info("Building {} partitions of {}", count, _builder.getCalculationConfigurationName());
+      final DependencyGraph[] graphs = new DependencyGraph[count];
+      _factory.getPartitionPool().invoke(new BuildPartitions(graphs, 0, count));
+      if (_cancelled) {
+        throw new CancellationException();
+      }
+      startPhase(Phase.MERGE);
+      final List<DependencyGraph> graphList = new ArrayList<DependencyGraph>(count);
+      for (DependencyGraph graph : graphs) {
+        graphList.add(graph);
+      }
+      final DependencyGraph merged = DependencyGraphImpl.merge(_builder.getCalculationConfigurationName(), graphList);
+      s_logger.info("Merged partitions into {}", merged);
+      _builder.setDependencyGraph(merged);
+    }
+    startPhase(Phase.COMPLETION);
+    if (!_completion.isEmpty()) {
+      _builder.addTarget(new ArrayList<ValueRequirement>(_completion));
+      _completion.clear();
+    }
+  }
+
+  /**
+   * Returns the constructed dependency graph, blocking until the completing builder has finished. This will call {@link #build} if it has not already been called.
+   *
+   * @return the graph, not null
+   */
+  public DependencyGraph getDependencyGraph() {
+    if (_phase == Phase.PENDING) {
+      build();
+    }
+    final DependencyGraph graph = _builder.getDependencyGraph();
+    if (_phase != Phase.COMPLETE) {
+      startPhase(Phase.COMPLETE);
+      s_logger.info("Built {} from {} partitions in {}ms (partition {}ms, merge {}ms, completion {}ms)", new Object[] {graph, _partitions.size(), getTotalTime() / 1000000,
+        getPhaseTime(Phase.PARTITION) / 1000000, getPhaseTime(Phase.MERGE) / 1000000, getPhaseTime(Phase.COMPLETION) / 1000000 });
+    }
+    return graph;
+  }
+
+  /**
+   * Returns the current phase of the build.
+   *
+   * @return the phase, not null
+   */
+  public Phase getPhase() {
+    return _phase;
+  }
+
+  /**
+   * Returns the time spent in a phase. For the current phase this is the time spent so far.
+   *
+   * @param phase the phase to query, not null
+   * @return the time in nanoseconds, zero if the phase has not started
+   */
+  public long getPhaseTime(final Phase phase) {
+    if ((phase == _phase) && (phase != Phase.PENDING) && (phase != Phase.COMPLETE)) {
+      return System.nanoTime() - _phaseStart;
+    }
+    return _phaseTimes[phase.ordinal()];
+  }
+
+  /**
+   * Returns the time spent building so far.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getTotalTime() {
+    return getPhaseTime(Phase.PARTITION) + getPhaseTime(Phase.MERGE) + getPhaseTime(Phase.COMPLETION);
+  }
+
+  /**
+   * Estimate the completion of the build, from 0 (nothing completed) to 1 (all done). See {@link BuildFractionEstimate.Partitioned} for details.
+   *
+   * @return the completion estimate
+   */
+  public Supplier<Double> buildFractionEstimate() {
+    return new BuildFractionEstimate.Partitioned(this);
+  }
+
+  @Override
+  public boolean cancel(final boolean mayInterruptIfRunning) {
+    _cancelled = true;
+    for (DependencyGraphBuilder builder : _activeBuilders) {
+      builder.cancel(mayInterruptIfRunning);
+    }
+    return _builder.cancel(mayInterruptIfRunning);
+  }
+
+  public boolean isCancelled() {
+    return _cancelled || _builder.isCancelled();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[" + _builder + ", " + _partitions.size() + " partitions]";
+  }
+
+}
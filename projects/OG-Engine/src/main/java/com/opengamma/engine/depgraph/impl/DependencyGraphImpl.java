@@ -7,19 +7,25 @@ package com.opengamma.engine.depgraph.impl;
 
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.DependencyNodeFunction;
 import com.opengamma.engine.function.MarketDataSourcingFunction;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
@@ -335,6 +341,166 @@ public class DependencyGraphImpl implements DependencyGraph, Serializable {
     return new DependencyGraphImpl(graph.getCalculationConfigurationName(), newRoots, calculateSize(newRoots), graph.getTerminalOutputs());
   }
 
+  /**
+   * Node state accumulated while merging graphs. All nodes producing any of the same outputs are merged into a single instance.
+   */
+  private static final class MergedNode {
+
+    private final DependencyNodeFunction _function;
+    private final ComputationTargetSpecification _target;
+    private final Set<ValueSpecification> _outputs = new LinkedHashSet<ValueSpecification>();
+    private final Set<ValueSpecification> _inputs = new LinkedHashSet<ValueSpecification>();
+    private MergedNode _mergedInto;
+    private DependencyNode _node;
+
+    private MergedNode(final DependencyNode node) {
+      _function = node.getFunction();
+      _target = node.getTarget();
+    }
+
+    private void add(final DependencyNode node) {
+      int count = node.getOutputCount();
+      for (int i = 0; i < count; i++) {
+        _outputs.add(node.getOutputValue(i));
+      }
+      count = node.getInputCount();
+      for (int i = 0; i < count; i++) {
+        _inputs.add(node.getInputValue(i));
+      }
+    }
+
+    private MergedNode get() {
+      MergedNode node = this;
+      while (node._mergedInto != null) {
+        node = node._mergedInto;
+      }
+      return node;
+    }
+
+    /**
+     * Creates the node, and the nodes for its inputs if they haven't already been created. The inputs are visited with an explicit stack rather than by recursion as graphs can be deeper than
+     * the thread's stack allows.
+     */
+    private DependencyNode toNode(final Map<ValueSpecification, MergedNode> producers) {
+      final Deque<MergedNode> stack = new ArrayDeque<MergedNode>();
+      stack.push(this);
+      while (!stack.isEmpty()) {
+        final MergedNode merged = stack.peek();
+        if (merged._node != null) {
+          stack.pop();
+          continue;
+        }
+        boolean inputsCreated = true;
+        for (ValueSpecification input : merged._inputs) {
+          final MergedNode producer = producers.get(input).get();
+          if (producer._node == null) {
+            stack.push(producer);
+            inputsCreated = false;
+          }
+        }
+        if (inputsCreated) {
+          stack.pop();
+          final ValueSpecification[] inputValues = merged._inputs.toArray(new ValueSpecification[merged._inputs.size()]);
+          final DependencyNode[] inputNodes = new DependencyNode[inputValues.length];
+          for (int i = 0; i < inputValues.length; i++) {
+            inputNodes[i] = producers.get(inputValues[i]).get()._node;
+          }
+          merged._node = DependencyNodeImpl.of(merged._function, merged._target, merged._outputs.toArray(new ValueSpecification[merged._outputs.size()]), inputValues, inputNodes);
+        }
+      }
+      return _node;
+    }
+
+  }
+
+  /**
+   * Merges graphs that were built independently for the same configuration into a single graph.
+   * <p>
+   * Nodes from any of the graphs that produce the same value specification are combined into a single node producing the union of their outputs from the union of their inputs. The graphs must have
+   * been built with consistent resolutions, for example against the same function repository and market data, for the result to be valid. The terminal outputs of the result are the union of the
+   * terminal outputs of the graphs.
+   * 
+   * @param calcConfigName the configuration name, not null
+   * @param graphs the graphs to merge, not null and not containing null
+   * @return the merged graph, not null
+   */
+  public static DependencyGraph merge(final String calcConfigName, final Collection<DependencyGraph> graphs) {
+    ArgumentChecker.notNull(calcConfigName, "calcConfigName");
+    ArgumentChecker.noNulls(graphs, "graphs");
+    if (graphs.size() == 1) {
+      final DependencyGraph graph = graphs.iterator().next();
+      if (calcConfigName.equals(graph.getCalculationConfigurationName())) {
+        return graph;
+      }
+    }
+    int size = 0;
+    for (DependencyGraph graph : graphs) {
+      size += graph.getSize();
+    }
+    final Map<ValueSpecification, MergedNode> producers = Maps.newHashMapWithExpectedSize(size);
+    final List<MergedNode> mergedNodes = new ArrayList<MergedNode>(size);
+    final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+    for (DependencyGraph graph : graphs) {
+      final Iterator<DependencyNode> itr = graph.nodeIterator();
+      while (itr.hasNext()) {
+        final DependencyNode node = itr.next();
+        MergedNode merged = null;
+        final int count = node.getOutputCount();
+        for (int i = 0; i < count; i++) {
+          final MergedNode existing = producers.get(node.getOutputValue(i));
+          if (existing != null) {
+            final MergedNode other = existing.get();
+            if (merged == null) {
+              merged = other;
+            } else if (merged != other) {
+              // The node bridges two previously distinct nodes
+              merged._outputs.addAll(other._outputs);
+              merged._inputs.addAll(other._inputs);
+              other._mergedInto = merged;
+            }
+          }
+        }
+        if (merged == null) {
+          merged = new MergedNode(node);
+          mergedNodes.add(merged);
+        }
+        merged.add(node);
+        for (int i = 0; i < count; i++) {
+          producers.put(node.getOutputValue(i), merged);
+        }
+      }
+      for (Map.Entry<ValueSpecification, Set<ValueRequirement>> terminal : graph.getTerminalOutputs().entrySet()) {
+        Set<ValueRequirement> requirements = terminalOutputs.get(terminal.getKey());
+        if (requirements == null) {
+          requirements = new HashSet<ValueRequirement>();
+          terminalOutputs.put(terminal.getKey(), requirements);
+        }
+        requirements.addAll(terminal.getValue());
+      }
+    }
+    final Set<ValueSpecification> consumed = Sets.newHashSetWithExpectedSize(producers.size());
+    size = 0;
+    for (MergedNode merged : mergedNodes) {
+      if (merged._mergedInto == null) {
+        consumed.addAll(merged._inputs);
+        size++;
+      }
+    }
+    final Collection<DependencyNode> roots = new ArrayList<DependencyNode>();
+    findRoots: for (MergedNode merged : mergedNodes) { //CSIGNORE
+      if (merged._mergedInto != null) {
+        continue;
+      }
+      for (ValueSpecification output : merged._outputs) {
+        if (consumed.contains(output)) {
+          continue findRoots;
+        }
+      }
+      roots.add(merged.toNode(producers));
+    }
+    return new DependencyGraphImpl(calcConfigName, roots, size, terminalOutputs);
+  }
+
   private static void dumpNodeASCII(final PrintStream out, String indent, final DependencyNode node, final Map<DependencyNode, Integer> uidMap) {
     Integer uid = uidMap.get(node);
     if (uid == null) {
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Reverse index of a dependency graph, holding the consumers of each node and the nodes for each target.
+ * <p>
+ * The nodes in a graph only reference their inputs so operations such as {@link RootDiscardingSubgrapher} must visit every node, from the roots, to find the nodes that depend on an
+ * invalid one. With this index the nodes affected by a change to a small number of targets can be found, and removed, by visiting only those nodes. After the incremental compilation
+ * that replaces them the index can be brought up to date by visiting only the new nodes.
+ * <p>
+ * This is not thread-safe. An index which has been used to remove nodes from a graph describes the partial graph, and not the original graph it was constructed from.
+ */
+public final class DependentNodeIndex {
+
+  /**
+   * The consumers of each node in the graph.
+   */
+  private final Map<DependencyNode, Collection<DependencyNode>> _consumers;
+
+  /**
+   * The nodes for each target unique identifier.
+   */
+  private final Map<UniqueId, Collection<DependencyNode>> _nodesByTarget;
+
+  /**
+   * The graph the index corresponds to.
+   */
+  private DependencyGraph _graph;
+
+  /**
+   * Creates a new index of the given graph. This must visit every node in the graph.
+   *
+   * @param graph the graph to index, not null
+   */
+  public DependentNodeIndex(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "graph");
+    _consumers = Maps.newHashMapWithExpectedSize(graph.getSize());
+    _nodesByTarget = new HashMap<UniqueId, Collection<DependencyNode>>();
+    _graph = graph;
+    final int roots = graph.getRootCount();
+    for (int i = 0; i < roots; i++) {
+      addNode(graph.getRootNode(i));
+    }
+  }
+
+  /**
+   * Adds a node, and any of its inputs that are not already indexed.
+   *
+   * @param node the node to add, not null
+   * @return the number of nodes added
+   */
+  private int addNode(final DependencyNode node) {
+    if (_consumers.containsKey(node)) {
+      return 0;
+    }
+    _consumers.put(node, new ArrayList<DependencyNode>(2));
+    final UniqueId target = node.getTarget().getUniqueId();
+    if (target != null) {
+      Collection<DependencyNode> nodes = _nodesByTarget.get(target);
+      if (nodes == null) {
+        nodes = new ArrayList<DependencyNode>(2);
+        _nodesByTarget.put(target, nodes);
+      }
+      nodes.add(node);
+    }
+    int added = 1;
+    final int count = node.getInputCount();
+    for (int i = 0; i < count; i++) {
+      final DependencyNode input = node.getInputNode(i);
+      added += addNode(input);
+      _consumers.get(input).add(node);
+    }
+    return added;
+  }
+
+  private void removeNode(final DependencyNode node) {
+    _consumers.remove(node);
+    final UniqueId target = node.getTarget().getUniqueId();
+    if (target != null) {
+      final Collection<DependencyNode> nodes = _nodesByTarget.get(target);
+      if (nodes != null) {
+        nodes.remove(node);
+        if (nodes.isEmpty()) {
+          _nodesByTarget.remove(target);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the graph this index was last constructed or updated from.
+   *
+   * @return the graph, not null
+   */
+  public DependencyGraph getGraph() {
+    return _graph;
+  }
+
+  /**
+   * Returns the number of nodes in the index.
+   *
+   * @return the number of nodes
+   */
+  public int getSize() {
+    return _consumers.size();
+  }
+
+  /**
+   * Returns the nodes that operate on the given target.
+   *
+   * @param target the target unique identifier, not null
+   * @return the nodes, not null
+   */
+  public Collection<DependencyNode> getNodes(final UniqueId target) {
+    final Collection<DependencyNode> nodes = _nodesByTarget.get(target);
+    if (nodes != null) {
+      return Collections.unmodifiableCollection(nodes);
+    } else {
+      return Collections.emptySet();
+    }
+  }
+
+  /**
+   * Returns the nodes that consume outputs from the given node.
+   *
+   * @param node the node to query, not null
+   * @return the consuming nodes, empty if the node is a root, or null if the node is not in the index
+   */
+  public Collection<DependencyNode> getConsumers(final DependencyNode node) {
+    final Collection<DependencyNode> consumers = _consumers.get(node);
+    if (consumers != null) {
+      return Collections.unmodifiableCollection(consumers);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the given nodes and all nodes that depend on them, directly or indirectly.
+   *
+   * @param nodes the nodes to start from, not null
+   * @return the nodes and their dependents, not null
+   */
+  public Set<DependencyNode> getDependents(final Collection<DependencyNode> nodes) {
+    final Set<DependencyNode> dependents = new HashSet<DependencyNode>();
+    final LinkedList<DependencyNode> pending = new LinkedList<DependencyNode>(nodes);
+    while (!pending.isEmpty()) {
+      final DependencyNode node = pending.removeFirst();
+      if (dependents.add(node)) {
+        final Collection<DependencyNode> consumers = _consumers.get(node);
+        if (consumers != null) {
+          pending.addAll(consumers);
+        }
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Removes nodes, and everything that depends on them, from a partial graph. This is equivalent to applying a {@link RootDiscardingSubgrapher} that rejects the nodes but only visits
+   * the nodes that are removed, and their immediate inputs.
+   * <p>
+   * Any terminal outputs from the removed nodes are removed from the terminal output set with their value requirements written to the missing requirement set. Any input to a removed
+   * node that is no longer consumed by any other becomes a root.
+   *
+   * @param nodes the nodes to remove, not null
+   * @param roots the root nodes of the graph to update, not null
+   * @param terminals the terminal outputs to update, not null
+   * @param missingRequirements the structure that should receive any requirements that are ejected from the graph, not null
+   * @return the nodes removed, not null
+   */
+  public Set<DependencyNode> removeDependents(final Collection<DependencyNode> nodes, final Collection<DependencyNode> roots,
+      final Map<ValueSpecification, Set<ValueRequirement>> terminals, final Set<ValueRequirement> missingRequirements) {
+    final Set<DependencyNode> removed = getDependents(nodes);
+    if (removed.isEmpty()) {
+      return removed;
+    }
+    final List<DependencyNode> newRoots = new ArrayList<DependencyNode>();
+    for (DependencyNode node : removed) {
+      int count = node.getInputCount();
+      for (int i = 0; i < count; i++) {
+        final DependencyNode input = node.getInputNode(i);
+        if (!removed.contains(input)) {
+          final Collection<DependencyNode> consumers = _consumers.get(input);
+          if (consumers != null) {
+            consumers.remove(node);
+            if (consumers.isEmpty()) {
+              newRoots.add(input);
+            }
+          }
+        }
+      }
+      count = node.getOutputCount();
+      for (int i = 0; i < count; i++) {
+        final Set<ValueRequirement> requirements = terminals.remove(node.getOutputValue(i));
+        if (requirements != null) {
+          missingRequirements.addAll(requirements);
+        }
+      }
+    }
+    for (DependencyNode node : removed) {
+      removeNode(node);
+    }
+    roots.removeAll(removed);
+    roots.addAll(newRoots);
+    return removed;
+  }
+
+  /**
+   * Updates the index to describe a graph compiled from the partial graph the index currently describes.
+   * <p>
+   * Only the nodes that are not already in the index are visited. If the new graph does not contain every node from the index, for example because an existing node was replaced during
+   * compilation or nodes were removed from the partial graph without using this index, then the index cannot be updated and should be discarded.
+   *
+   * @param graph the new graph, not null
+   * @return true if the index was updated, false if it is no longer valid
+   */
+  public boolean update(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "graph");
+    final int roots = graph.getRootCount();
+    for (int i = 0; i < roots; i++) {
+      addNode(graph.getRootNode(i));
+    }
+    _graph = graph;
+    // Every node of the graph is now in the index; any additional ones are stale
+    return _consumers.size() == graph.getSize();
+  }
+
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.fudgemsg;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeBuilder;
+import org.fudgemsg.mapping.FudgeBuilderFor;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.exec.DefaultAggregatedExecutionLog;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
+import com.opengamma.engine.view.impl.ResultModelLayout;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.fudgemsg.WriteReplaceHelper;
+
+/**
+ * Fudge message builder for {@link ColumnarViewComputationResultModel}.
+ * <p>
+ * The message keeps the columns of the model. Double values are written as a single {@code double[]} field and the
+ * positions holding values, doubles and non-null objects as bit sets, so a value costs eight bytes plus a few bits
+ * instead of a sub-message with a value specification. Execution logs, missing inputs and compute node identifiers
+ * are only written where present, compute node identifiers being written once each and referenced by index.
+ */
+@FudgeBuilderFor(ColumnarViewComputationResultModel.class)
+public class ColumnarViewComputationResultModelFudgeBuilder implements FudgeBuilder<ColumnarViewComputationResultModel> {
+
+  private static final String FIELD_VIEWPROCESSID = "viewProcessId";
+  private static final String FIELD_VIEWCYCLEID = "viewCycleId";
+  private static final String FIELD_VIEW_CYCLE_EXECUTION_OPTIONS = "viewCycleExecutionOptions";
+  private static final String FIELD_CALCULATION_TIME = "calculationTime";
+  private static final String FIELD_CALCULATION_DURATION = "calculationDuration";
+  private static final String FIELD_VERSION_CORRECTION = "versionCorrection";
+  private static final String FIELD_CALC_CONFIGS = "calcConfigs";
+  private static final String FIELD_CALC_CONFIG_INDICES = "calcConfigIndices";
+  private static final String FIELD_SPECIFICATIONS = "specifications";
+  private static final String FIELD_PRESENT = "present";
+  private static final String FIELD_DOUBLE_POSITIONS = "doublePositions";
+  private static final String FIELD_DOUBLES = "doubles";
+  private static final String FIELD_OBJECT_POSITIONS = "objectPositions";
+  private static final String FIELD_OBJECTS = "objects";
+  private static final String FIELD_NULL_LOGS = "nullLogs";
+  private static final String FIELD_LOGS = "logs";
+  private static final String FIELD_COMPUTE_NODES = "computeNodes";
+  private static final String FIELD_COMPUTE_NODE_INDICES = "computeNodeIndices";
+  private static final String FIELD_INVOCATION_RESULTS = "invocationResults";
+  private static final String FIELD_MISSING_INPUTS = "missingInputs";
+  private static final String FIELD_LIVEDATA = "liveData";
+
+  private static final int POSITION_ORDINAL = 1;
+  private static final int VALUE_ORDINAL = 2;
+
+  @Override
+  public MutableFudgeMsg buildMessage(final FudgeSerializer serializer, final ColumnarViewComputationResultModel resultModel) {
+    final MutableFudgeMsg message = serializer.newMessage();
+    message.add(FIELD_VIEWPROCESSID, resultModel.getViewProcessId());
+    message.add(FIELD_VIEWCYCLEID, resultModel.getViewCycleId());
+    message.add(FIELD_CALCULATION_TIME, resultModel.getCalculationTime());
+    serializer.addToMessage(message, FIELD_VIEW_CYCLE_EXECUTION_OPTIONS, null, resultModel.getViewCycleExecutionOptions());
+    serializer.addToMessage(message, FIELD_CALCULATION_DURATION, null, resultModel.getCalculationDuration());
+    serializer.addToMessage(message, FIELD_VERSION_CORRECTION, null, resultModel.getVersionCorrection());
+    final ResultModelLayout layout = resultModel.getLayout();
+    final MutableFudgeMsg calcConfigsMsg = message.addSubMessage(FIELD_CALC_CONFIGS, null);
+    for (final String calcConfigName : layout.getCalculationConfigurationNames()) {
+      calcConfigsMsg.add(null, null, calcConfigName);
+    }
+    message.add(FIELD_CALC_CONFIG_INDICES, layout.getCalculationConfigurationIndices());
+    final MutableFudgeMsg specificationsMsg = message.addSubMessage(FIELD_SPECIFICATIONS, null);
+    for (int i = 0; i < layout.size(); i++) {
+      serializer.addToMessage(specificationsMsg, null, null, layout.getSpecification(i));
+    }
+    final BitSet present = resultModel.getPresentPositions();
+    final BitSet doublePositions = resultModel.getDoublePositions();
+    final BitSet objectPositions = new BitSet(layout.size());
+    final BitSet nullLogs = new BitSet(layout.size());
+    final double[] doubles = new double[doublePositions.cardinality()];
+    final MutableFudgeMsg objectsMsg = serializer.newMessage();
+    final MutableFudgeMsg logsMsg = serializer.newMessage();
+    final MutableFudgeMsg missingInputsMsg = serializer.newMessage();
+    final Map<String, Integer> computeNodes = new HashMap<String, Integer>();
+    final MutableFudgeMsg computeNodesMsg = serializer.newMessage();
+    final int[] computeNodeIndices = new int[present.cardinality()];
+    final byte[] invocationResults = new byte[present.cardinality()];
+    int doubleIndex = 0;
+    int presentIndex = 0;
+    for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1), presentIndex++) {
+      if (doublePositions.get(i)) {
+        doubles[doubleIndex++] = resultModel.getDouble(i);
+      } else {
+        final Object value = resultModel.getValue(i);
+        if (value != null) {
+          objectPositions.set(i);
+          serializer.addToMessageWithClassHeaders(objectsMsg, null, null, WriteReplaceHelper.writeReplace(value));
+        }
+      }
+      final AggregatedExecutionLog log = resultModel.getAggregatedExecutionLog(i);
+      if (log == null) {
+        nullLogs.set(i);
+      } else if (log != AggregatedExecutionLog.EMPTY) {
+        logsMsg.add(null, POSITION_ORDINAL, i);
+        serializer.addToMessage(logsMsg, null, VALUE_ORDINAL, log);
+      }
+      final Set<ValueSpecification> missingInputs = resultModel.getMissingInputs(i);
+      if (missingInputs != null) {
+        missingInputsMsg.add(null, POSITION_ORDINAL, i);
+        final MutableFudgeMsg inputsMsg = missingInputsMsg.addSubMessage(null, VALUE_ORDINAL);
+        for (final ValueSpecification missingInput : missingInputs) {
+          serializer.addToMessage(inputsMsg, null, null, missingInput);
+        }
+      }
+      final String computeNodeId = resultModel.getComputeNodeId(i);
+      if (computeNodeId != null) {
+        Integer index = computeNodes.get(computeNodeId);
+        if (index == null) {
+          index = computeNodes.size();
+          computeNodes.put(computeNodeId, index);
+          computeNodesMsg.add(null, null, computeNodeId);
+        }
+        computeNodeIndices[presentIndex] = index;
+      } else {
+        computeNodeIndices[presentIndex] = -1;
+      }
+      final InvocationResult invocationResult = resultModel.getInvocationResult(i);
+      invocationResults[presentIndex] = (byte) (invocationResult != null ? invocationResult.ordinal() + 1 : 0);
+    }
+    message.add(FIELD_PRESENT, present.toLongArray());
+    message.add(FIELD_DOUBLE_POSITIONS, doublePositions.toLongArray());
+    message.add(FIELD_DOUBLES, doubles);
+    message.add(FIELD_OBJECT_POSITIONS, objectPositions.toLongArray());
+    message.add(FIELD_OBJECTS, objectsMsg);
+    message.add(FIELD_NULL_LOGS, nullLogs.toLongArray());
+    message.add(FIELD_LOGS, logsMsg);
+    message.add(FIELD_MISSING_INPUTS, missingInputsMsg);
+    message.add(FIELD_COMPUTE_NODES, computeNodesMsg);
+    message.add(FIELD_COMPUTE_NODE_INDICES, computeNodeIndices);
+    message.add(FIELD_INVOCATION_RESULTS, invocationResults);
+    final MutableFudgeMsg liveDataMsg = message.addSubMessage(FIELD_LIVEDATA, null);
+    for (final ComputedValue value : resultModel.getAllMarketData()) {
+      serializer.addToMessage(liveDataMsg, null, null, value);
+    }
+    return message;
+  }
+
+  @Override
+  public ColumnarViewComputationResultModel buildObject(final FudgeDeserializer deserializer, final FudgeMsg message) {
+    final List<String> calcConfigNames = Lists.newArrayList();
+    for (final FudgeField field : message.getMessage(FIELD_CALC_CONFIGS)) {
+      calcConfigNames.add((String) field.getValue());
+    }
+    final int[] calcConfigIndices = message.getValue(int[].class, FIELD_CALC_CONFIG_INDICES);
+    final FudgeMsg specificationsMsg = message.getMessage(FIELD_SPECIFICATIONS);
+    final ValueSpecification[] specifications = new ValueSpecification[specificationsMsg.getNumFields()];
+    int specificationIndex = 0;
+    for (final FudgeField field : specificationsMsg) {
+      specifications[specificationIndex++] = deserializer.fieldValueToObject(ValueSpecification.class, field);
+    }
+    final ResultModelLayout layout = new ResultModelLayout(calcConfigNames.toArray(new String[calcConfigNames.size()]), calcConfigIndices, specifications);
+    final ColumnarViewComputationResultModel resultModel = new ColumnarViewComputationResultModel(layout);
+    resultModel.setViewProcessId(message.getValue(UniqueId.class, FIELD_VIEWPROCESSID));
+    resultModel.setViewCycleId(message.getValue(UniqueId.class, FIELD_VIEWCYCLEID));
+    resultModel.setViewCycleExecutionOptions(deserializer.fieldValueToObject(ViewCycleExecutionOptions.class, message.getByName(FIELD_VIEW_CYCLE_EXECUTION_OPTIONS)));
+    resultModel.setCalculationTime(message.getFieldValue(Instant.class, message.getByName(FIELD_CALCULATION_TIME)));
+    final FudgeField durationField = message.getByName(FIELD_CALCULATION_DURATION);
+    resultModel.setCalculationDuration(durationField != null ? deserializer.fieldValueToObject(Duration.class, durationField) : null);
+    resultModel.setVersionCorrection(deserializer.fieldValueToObject(VersionCorrection.class, message.getByName(FIELD_VERSION_CORRECTION)));
+
+    final BitSet present = BitSet.valueOf(message.getValue(long[].class, FIELD_PRESENT));
+    final BitSet doublePositions = BitSet.valueOf(message.getValue(long[].class, FIELD_DOUBLE_POSITIONS));
+    final double[] doubles = message.getValue(double[].class, FIELD_DOUBLES);
+    final BitSet objectPositions = BitSet.valueOf(message.getValue(long[].class, FIELD_OBJECT_POSITIONS));
+    final Iterator<FudgeField> objects = message.getMessage(FIELD_OBJECTS).iterator();
+    final BitSet nullLogs = BitSet.valueOf(message.getValue(long[].class, FIELD_NULL_LOGS));
+    final Map<Integer, AggregatedExecutionLog> logs = new HashMap<Integer, AggregatedExecutionLog>();
+    Integer position = null;
+    for (final FudgeField field : message.getMessage(FIELD_LOGS)) {
+      if (field.getOrdinal() == POSITION_ORDINAL) {
+        position = ((Number) field.getValue()).intValue();
+      } else if (field.getOrdinal() == VALUE_ORDINAL) {
+        logs.put(position, deserializer.fieldValueToObject(DefaultAggregatedExecutionLog.class, field));
+      }
+    }
+    final Map<Integer, Set<ValueSpecification>> missingInputs = new HashMap<Integer, Set<ValueSpecification>>();
+    for (final FudgeField field : message.getMessage(FIELD_MISSING_INPUTS)) {
+      if (field.getOrdinal() == POSITION_ORDINAL) {
+        position = ((Number) field.getValue()).intValue();
+      } else if (field.getOrdinal() == VALUE_ORDINAL) {
+        final FudgeMsg inputsMsg = (FudgeMsg) field.getValue();
+        final Set<ValueSpecification> inputs = Sets.newHashSetWithExpectedSize(inputsMsg.getNumFields());
+        for (final FudgeField input : inputsMsg) {
+          inputs.add(deserializer.fieldValueToObject(ValueSpecification.class, input));
+        }
+        missingInputs.put(position, inputs);
+      }
+    }
+    final List<String> computeNodes = Lists.newArrayList();
+    for (final FudgeField field : message.getMessage(FIELD_COMPUTE_NODES)) {
+      computeNodes.add((String) field.getValue());
+    }
+    final int[] computeNodeIndices = message.getValue(int[].class, FIELD_COMPUTE_NODE_INDICES);
+    final byte[] invocationResults = message.getValue(byte[].class, FIELD_INVOCATION_RESULTS);
+    final InvocationResult[] invocationResultValues = InvocationResult.values();
+    int doubleIndex = 0;
+    int presentIndex = 0;
+    for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1), presentIndex++) {
+      final Object value;
+      if (doublePositions.get(i)) {
+        value = doubles[doubleIndex++];
+      } else if (objectPositions.get(i)) {
+        value = deserializer.fieldValueToObject(objects.next());
+      } else {
+        value = null;
+      }
+      final AggregatedExecutionLog log;
+      if (nullLogs.get(i)) {
+        log = null;
+      } else if (logs.containsKey(i)) {
+        log = logs.get(i);
+      } else {
+        log = AggregatedExecutionLog.EMPTY;
+      }
+      final String computeNodeId = computeNodeIndices[presentIndex] >= 0 ? computeNodes.get(computeNodeIndices[presentIndex]) : null;
+      final int invocationResult = invocationResults[presentIndex];
+      resultModel.setValue(i, value, log, computeNodeId, missingInputs.get(i),
+          invocationResult != 0 ? invocationResultValues[invocationResult - 1] : null);
+    }
+    for (final FudgeField field : message.getMessage(FIELD_LIVEDATA)) {
+      resultModel.addMarketData(deserializer.fieldValueToObject(ComputedValue.class, field));
+    }
+    return resultModel;
+  }
+
+}
@@ -41,6 +41,7 @@ import com.opengamma.engine.view.cycle.ViewCycleMetadata;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
 import com.opengamma.engine.view.impl.ViewProcessorImpl;
+import com.opengamma.engine.view.listener.ViewResultBacklog;
 import com.opengamma.engine.view.listener.ViewResultListener;
 import com.opengamma.engine.view.permission.ViewPermissionContext;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
@@ -48,6 +49,7 @@ import com.opengamma.engine.view.permission.ViewPortfolioPermissionProvider;
 import com.opengamma.id.UniqueId;
 import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.metric.OpenGammaMetricRegistry;
 import com.opengamma.util.tuple.Pair;
 
 /**
@@ -264,6 +266,7 @@ public class ViewClientImpl implements ViewClient {
     };
 
     _mergingViewProcessListener = new RateLimitingMergingViewProcessListener(mergedViewProcessListener, getViewProcessor().getViewCycleManager(), timer);
+    _mergingViewProcessListener.registerMetrics(OpenGammaMetricRegistry.getSummaryInstance(), OpenGammaMetricRegistry.getDetailedInstance(), "ViewClient-" + id);
     _mergingViewProcessListener.setPaused(true);
   }
 
@@ -391,6 +394,14 @@ public class ViewClientImpl implements ViewClient {
   @Override
   public void setResultListener(ViewResultListener resultListener) {
     _userResultListener.set(resultListener);
+    // A listener queueing results for delivery elsewhere gets updates at the rate it can deliver them
+    if (resultListener instanceof ViewResultBacklog) {
+      _mergingViewProcessListener.setBacklog((ViewResultBacklog) resultListener);
+      _mergingViewProcessListener.setAdaptive(true);
+    } else {
+      _mergingViewProcessListener.setBacklog(null);
+      _mergingViewProcessListener.setAdaptive(false);
+    }
   }
 
   @Override
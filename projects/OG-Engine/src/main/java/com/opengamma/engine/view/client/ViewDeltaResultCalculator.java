@@ -13,16 +13,21 @@ import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.value.ComputedValueResult;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.view.DeltaDefinition;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewCalculationResultModel;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
 import com.opengamma.util.tuple.Pair;
 
 /**
  * Produces {@link ViewDeltaResultModel} instances by comparing two {@link ViewComputationResultModel}.
+ * <p>
+ * If both results are {@link ColumnarViewComputationResultModel} instances with the same layout, and none of the calculation configurations uses a number comparer, the values are
+ * compared position by position without creating the intermediate result objects.
  */
 public class ViewDeltaResultCalculator {
 
@@ -35,6 +40,9 @@ public class ViewDeltaResultCalculator {
    * @return the delta between the two results, not null
    */
   public static ViewDeltaResultModel computeDeltaModel(ViewDefinition viewDefinition, ViewResultModel previousResult, ViewResultModel result) {
+    if (isColumnarDelta(viewDefinition, previousResult, result)) {
+      return ((ColumnarViewComputationResultModel) result).createDeltaModel((ColumnarViewComputationResultModel) previousResult);
+    }
     InMemoryViewDeltaResultModel deltaModel = new InMemoryViewDeltaResultModel();
     deltaModel.setViewCycleExecutionOptions(result.getViewCycleExecutionOptions());
     deltaModel.setCalculationTime(result.getCalculationTime());
@@ -56,6 +64,24 @@ public class ViewDeltaResultCalculator {
     return deltaModel;
   }
 
+  private static boolean isColumnarDelta(ViewDefinition viewDefinition, ViewResultModel previousResult, ViewResultModel result) {
+    if (!(previousResult instanceof ColumnarViewComputationResultModel) || !(result instanceof ColumnarViewComputationResultModel)) {
+      return false;
+    }
+    final ColumnarViewComputationResultModel columnarResult = (ColumnarViewComputationResultModel) result;
+    if (!columnarResult.getLayout().equals(((ColumnarViewComputationResultModel) previousResult).getLayout())) {
+      return false;
+    }
+    // A number comparer may treat values as unchanged that differ, so those configurations need the value by value comparison
+    for (String calcConfigName : columnarResult.getLayout().getCalculationConfigurationNames()) {
+      final ViewCalculationConfiguration calcConfig = viewDefinition.getCalculationConfiguration(calcConfigName);
+      if ((calcConfig == null) || (calcConfig.getDeltaDefinition().getNumberComparer() != null)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static void computeDeltaModel(DeltaDefinition deltaDefinition, InMemoryViewDeltaResultModel deltaModel, ComputationTargetSpecification targetSpec,
       String calcConfigName, ViewCalculationResultModel previousCalcModel, ViewCalculationResultModel resultCalcModel) {
     final Map<Pair<String, ValueProperties>, ComputedValueResult> resultValues = resultCalcModel.getValues(targetSpec);
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.view.client.merging;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -12,6 +13,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Function;
 import com.opengamma.engine.resource.EngineResourceManagerInternal;
 import com.opengamma.engine.resource.EngineResourceRetainer;
@@ -32,6 +36,7 @@ import com.opengamma.engine.view.listener.ViewDefinitionCompiledCall;
 import com.opengamma.engine.view.listener.ViewResultListener;
 import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.metric.MetricProducer;
 
 /**
  * Collects and merges view process updates, releasing them only when {@code drain()} is called. Also ensures that different update types are passed to the underlying listener in the correct order
@@ -40,8 +45,11 @@ import com.opengamma.util.ArgumentChecker;
  * Fragments and delta results are merged so that those corresponding to the latest cycle will be available. Individual notifications from earlier cycles will be discarded. For example, if there is a
  * view compilation and a number of cycles run, the events released will be the compilation notification, merged events corresponding to the last full cycle, and anything available for any incomplete
  * cycle.
+ * <p>
+ * Once metrics are registered, the delay between the first update being held and its release, and the number of updates merged
+ * into or discarded in favour of later ones, are recorded for the listener.
  */
-public class MergingViewProcessListener implements ViewResultListener {
+public class MergingViewProcessListener implements ViewResultListener, MetricProducer {
 
   private static final Logger s_logger = LoggerFactory.getLogger(MergingViewProcessListener.class);
 
@@ -105,6 +113,22 @@ public class MergingViewProcessListener implements ViewResultListener {
    */
   private final AtomicLong _lastUpdateMillis = new AtomicLong(0);
 
+  /**
+   * The time at which the oldest update in the queue was received.
+   */
+  private long _oldestCallMillis;
+
+  private MetricRegistry _metricRegistry;
+  private String _metricNamePrefix;
+  /**
+   * The delay between an update being queued and it, or a later update merged with it, being released.
+   */
+  private Timer _lagTimer;
+  /**
+   * The updates merged into, or discarded in favour of, later ones.
+   */
+  private Meter _coalescedMeter;
+
   private Call<?> _firstCall;
   private Call<?> _lastCall;
   /**
@@ -192,6 +216,57 @@ public class MergingViewProcessListener implements ViewResultListener {
     return _lastUpdateMillis.get();
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Registers the lag and coalescing metrics of this listener. These are specific to the listener so are registered with the
+   * detailed registry, and should be removed with {@link #unregisterMetrics} when the listener is no longer used.
+   *
+   * @param summaryRegistry the summary registry, not null
+   * @param detailedRegistry the detailed registry, not null
+   * @param namePrefix the prefix for the metric names, unique to this listener, not null
+   */
+  @Override
+  public void registerMetrics(MetricRegistry summaryRegistry, MetricRegistry detailedRegistry, String namePrefix) {
+    _mergerLock.lock();
+    try {
+      _metricRegistry = detailedRegistry;
+      _metricNamePrefix = namePrefix;
+      _lagTimer = detailedRegistry.timer(namePrefix + ".lag");
+      _coalescedMeter = detailedRegistry.meter(namePrefix + ".coalesced");
+    } finally {
+      _mergerLock.unlock();
+    }
+  }
+
+  /**
+   * Removes any metrics registered by {@link #registerMetrics}.
+   */
+  public void unregisterMetrics() {
+    _mergerLock.lock();
+    try {
+      if (_metricRegistry != null) {
+        unregisterMetrics(_metricRegistry, _metricNamePrefix);
+        _metricRegistry = null;
+        _metricNamePrefix = null;
+        _lagTimer = null;
+        _coalescedMeter = null;
+      }
+    } finally {
+      _mergerLock.unlock();
+    }
+  }
+
+  /**
+   * Removes the metrics registered by this listener. Sub-classes registering additional metrics should override this.
+   *
+   * @param registry the registry the metrics were registered with, not null
+   * @param namePrefix the prefix for the metric names, not null
+   */
+  protected void unregisterMetrics(MetricRegistry registry, String namePrefix) {
+    registry.remove(namePrefix + ".lag");
+    registry.remove(namePrefix + ".coalesced");
+  }
+
   //-------------------------------------------------------------------------
   public boolean isLatestResultCycleRetained() {
     return _isLatestResultCycleRetained;
@@ -286,6 +361,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         }
         if (_cycleCompleted != null) {
           // There's a previous cycle completed call in the queue - move to end
+          markCoalesced();
           putCallToEnd(_cycleCompleted);
           // Merge new cycle completed call into old one
           _cycleCompleted.getFunction().update(fullResult, deltaResult);
@@ -325,6 +401,7 @@ public class MergingViewProcessListener implements ViewResultListener {
       if (!isPassThrough()) {
         if (_latestCycleFragmentCompleted != null) {
           // There's a current fragment completed call in the queue - move to end
+          markCoalesced();
           putCallToEnd(_latestCycleFragmentCompleted);
           // Merge new fragment completed call into old one
           _latestCycleFragmentCompleted.getFunction().update(fullFragment, deltaFragment);
@@ -450,10 +527,22 @@ public class MergingViewProcessListener implements ViewResultListener {
   private Call<?> takeCallQueue() {
     final Call<?> result;
     result = _firstCall;
+    if ((result != null) && (_lagTimer != null)) {
+      _lagTimer.update(System.currentTimeMillis() - _oldestCallMillis, TimeUnit.MILLISECONDS);
+    }
     clearCallQueue();
     return result;
   }
 
+  /**
+   * Records an update being merged into, or discarded in favour of, a later one. The caller must hold the {@link #_mergerLock} lock.
+   */
+  private void markCoalesced() {
+    if (_coalescedMeter != null) {
+      _coalescedMeter.mark();
+    }
+  }
+
   /**
    * Makes queued calls to the underlying. The caller must not hold the {@link #_mergerLock} lock.
    * 
@@ -518,6 +607,7 @@ public class MergingViewProcessListener implements ViewResultListener {
    * Removes the given call from the linked list. The caller must hold the {@link #_mergerLock} lock.
    */
   private void removeCall(final Call<?> call) {
+    markCoalesced();
     if (call == _firstCall) {
       // At the head of the queue
       _firstCall = call._next;
@@ -537,6 +627,7 @@ public class MergingViewProcessListener implements ViewResultListener {
     if (_firstCall == null) {
       // First element into the queue
       _firstCall = call;
+      _oldestCallMillis = System.currentTimeMillis();
     }
     _lastCall = call;
     return call;
@@ -11,17 +11,35 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.opengamma.engine.resource.EngineResourceManagerInternal;
+import com.opengamma.engine.view.listener.ViewResultBacklog;
 import com.opengamma.engine.view.listener.ViewResultListener;
 import com.opengamma.util.ArgumentChecker;
 
 /**
  * Merges view process results to satisfy a specified maximum downstream update rate (given in terms of a minimum period between updates). This maximum rate can be adjusted on-the-fly.
+ * <p>
+ * In adaptive mode the period between updates also follows the rate at which the underlying listener consumes them. The period is
+ * stretched to a multiple of the time the underlying takes to accept an update and, if a {@link ViewResultBacklog} is set, no update
+ * is released while it reports undelivered calls. Results arriving in the meantime are merged, so a slow consumer receives fewer,
+ * larger updates instead of a growing queue of them.
  */
 public class RateLimitingMergingViewProcessListener extends MergingViewProcessListener {
 
   private static final long MIN_PERIOD = 50;
 
+  /**
+   * The longest period between updates that adaptive mode will choose.
+   */
+  private static final long MAX_ADAPTIVE_PERIOD = 10000;
+
+  /**
+   * The multiple of the time taken to deliver an update used as the period between updates in adaptive mode.
+   */
+  private static final int ADAPTIVE_PERIOD_FACTOR = 2;
+
   private final ScheduledExecutorService _timer;
   private ReentrantLock _taskSetupLock = new ReentrantLock();
   private Future<?> _asyncUpdateCheckerTask;
@@ -35,6 +53,20 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
    */
   private AtomicLong _lastUpdateTimeMillis = new AtomicLong();
 
+  private volatile boolean _isAdaptive;
+
+  private volatile ViewResultBacklog _backlog;
+
+  /**
+   * The smoothed time taken by the underlying listener to accept an update, in milliseconds.
+   */
+  private AtomicLong _deliveryTimeMillis = new AtomicLong();
+
+  /**
+   * The updates held back because the underlying listener had not consumed the previous ones.
+   */
+  private volatile Meter _deferredMeter;
+
   public RateLimitingMergingViewProcessListener(ViewResultListener underlying, EngineResourceManagerInternal<?> cycleManager, ScheduledExecutorService timer) {
     super(underlying, cycleManager);
     ArgumentChecker.notNull(timer, "timer");
@@ -48,6 +80,20 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
     } finally {
       _taskSetupLock.unlock();
     }
+    unregisterMetrics();
+  }
+
+  @Override
+  public void registerMetrics(MetricRegistry summaryRegistry, MetricRegistry detailedRegistry, String namePrefix) {
+    super.registerMetrics(summaryRegistry, detailedRegistry, namePrefix);
+    _deferredMeter = detailedRegistry.meter(namePrefix + ".deferred");
+  }
+
+  @Override
+  protected void unregisterMetrics(MetricRegistry registry, String namePrefix) {
+    super.unregisterMetrics(registry, namePrefix);
+    registry.remove(namePrefix + ".deferred");
+    _deferredMeter = null;
   }
 
   //-------------------------------------------------------------------------
@@ -111,6 +157,70 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
     invoke(drain);
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Gets whether the period between updates adapts to the rate at which the underlying listener consumes them.
+   * 
+   * @return true if the update period is adaptive
+   */
+  public boolean isAdaptive() {
+    return _isAdaptive;
+  }
+
+  /**
+   * Sets whether the period between updates adapts to the rate at which the underlying listener consumes them. When adaptive, updates are
+   * always merged and released from the timer, never passed straight through, and the minimum update period is only a lower bound.
+   * 
+   * @param isAdaptive true to adapt the update period to the underlying listener
+   */
+  public void setAdaptive(boolean isAdaptive) {
+    final Call<?> drain;
+    _taskSetupLock.lock();
+    try {
+      if (_isAdaptive == isAdaptive) {
+        return;
+      }
+      _isAdaptive = isAdaptive;
+      drain = updateConfiguration();
+    } finally {
+      _taskSetupLock.unlock();
+    }
+    invoke(drain);
+  }
+
+  /**
+   * Gets the backlog of the underlying listener, if any.
+   * 
+   * @return the backlog, null if none
+   */
+  public ViewResultBacklog getBacklog() {
+    return _backlog;
+  }
+
+  /**
+   * Sets the backlog of the underlying listener. In adaptive mode no update is released while the backlog reports undelivered calls.
+   * 
+   * @param backlog the backlog, null if none
+   */
+  public void setBacklog(ViewResultBacklog backlog) {
+    _backlog = backlog;
+  }
+
+  /**
+   * Gets the period which must have elapsed since the last update before another is triggered. This is the minimum update period, or
+   * in adaptive mode possibly longer based on the time the underlying listener has been taking to accept updates.
+   * 
+   * @return the current update period, in milliseconds
+   */
+  public long getUpdatePeriodMillis() {
+    final long minimumUpdatePeriodMillis = getMinimumUpdatePeriodMillis();
+    if (!isAdaptive()) {
+      return minimumUpdatePeriodMillis;
+    }
+    final long adaptivePeriodMillis = Math.min(MAX_ADAPTIVE_PERIOD, _deliveryTimeMillis.get() * ADAPTIVE_PERIOD_FACTOR);
+    return Math.max(minimumUpdatePeriodMillis, adaptivePeriodMillis);
+  }
+
   //-------------------------------------------------------------------------
   private boolean drainIfRequired() {
 
@@ -122,24 +232,41 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
       return false;
     }
 
-    long minimumUpdatePeriodMillis = getMinimumUpdatePeriodMillis();
-    if (currentTime - lastUpdateTime < minimumUpdatePeriodMillis) {
+    long updatePeriodMillis = getUpdatePeriodMillis();
+    if (currentTime - lastUpdateTime < updatePeriodMillis) {
       return false;
     }
 
+    if (isAdaptive()) {
+      final ViewResultBacklog backlog = getBacklog();
+      if ((backlog != null) && (backlog.getBacklog() > 0)) {
+        // The underlying hasn't consumed the last update; keep merging
+        final Meter deferredMeter = _deferredMeter;
+        if (deferredMeter != null) {
+          deferredMeter.mark();
+        }
+        return false;
+      }
+    }
+
     if (!_lastUpdateTimeMillis.compareAndSet(lastUpdateTime, currentTime)) {
       // Another thread has got there before us
       return false;
     }
 
+    final long startTime = System.nanoTime();
     drain();
+    final long deliveryTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    // Exponential smoothing so that a single slow delivery doesn't dominate
+    final long previousDeliveryTimeMillis = _deliveryTimeMillis.get();
+    _deliveryTimeMillis.set((previousDeliveryTimeMillis * 3 + deliveryTimeMillis) / 4);
     return true;
   }
 
   private Call<?> updateConfiguration() {
     long minimumUpdatePeriodMillis = getMinimumUpdatePeriodMillis();
     cancelTimerTask();
-    final Call<?> drain = setPassThrough(minimumUpdatePeriodMillis == 0 && !isPaused());
+    final Call<?> drain = setPassThrough(minimumUpdatePeriodMillis == 0 && !isPaused() && !isAdaptive());
     if (!isPaused() && !isPassThrough()) {
       final Runnable task = new Runnable() {
         @Override
@@ -147,7 +274,9 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
           drainIfRequired();
         }
       };
-      _asyncUpdateCheckerTask = _timer.scheduleWithFixedDelay(task, minimumUpdatePeriodMillis, minimumUpdatePeriodMillis, TimeUnit.MILLISECONDS);
+      // In adaptive mode the period may change between checks, so check often
+      final long checkPeriodMillis = isAdaptive() ? MIN_PERIOD : minimumUpdatePeriodMillis;
+      _asyncUpdateCheckerTask = _timer.scheduleWithFixedDelay(task, checkPeriodMillis, checkPeriodMillis, TimeUnit.MILLISECONDS);
     }
     return drain;
   }
@@ -26,6 +26,7 @@ import com.opengamma.core.security.SecurityLink;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.MemoryUtils;
 import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.depgraph.PartitionedDependencyGraphBuild;
 import com.opengamma.engine.target.ComputationTargetReference;
 import com.opengamma.engine.target.ComputationTargetRequirement;
 import com.opengamma.engine.target.ComputationTargetType;
@@ -56,10 +57,12 @@ import com.opengamma.util.tuple.Pairs;
     private final ComputationTargetSpecification _targetSpec;
     private final Set<Pair<String, ValueProperties>> _requirements = Sets.newHashSet();
     private final boolean _excluded;
+    private final int _partition;
 
-    public NodeData(final PortfolioNode node, final boolean excluded) {
+    public NodeData(final PortfolioNode node, final boolean excluded, final int partition) {
       _targetSpec = ComputationTargetSpecification.of(node);
       _excluded = excluded;
+      _partition = partition;
     }
 
     public synchronized void addRequirements(final Set<Pair<String, ValueProperties>> requirements) {
@@ -78,6 +81,10 @@ import com.opengamma.util.tuple.Pairs;
       return _excluded;
     }
 
+    public int getPartition() {
+      return _partition;
+    }
+
   }
 
   private final Set<UniqueId> _includeEvents;
@@ -86,6 +93,7 @@ import com.opengamma.util.tuple.Pairs;
   private final List<MergedOutput> _mergedOutputs;
   private final Set<ValueRequirement> _alreadyAdded;
   private final DependencyGraphBuilder _builder;
+  private final PartitionedDependencyGraphBuild _partitions;
   private final ConcurrentMap<ComputationTargetReference, UniqueId> _resolutions;
   private final boolean _outputAggregates;
   private final boolean _outputPositions;
@@ -100,6 +108,24 @@ import com.opengamma.util.tuple.Pairs;
   public PortfolioCompilerTraversalCallback(final ViewCalculationConfiguration calculationConfiguration, final DependencyGraphBuilder builder,
       final Set<ValueRequirement> alreadyAdded, final ConcurrentMap<ComputationTargetReference, UniqueId> resolutions, final Set<UniqueId> includeEvents,
       final Set<UniqueId> excludeEvents) {
+    this(calculationConfiguration, builder, null, alreadyAdded, resolutions, includeEvents, excludeEvents);
+  }
+
+  /**
+   * Creates a callback that may partition the requirements. If a partitioned build is given, the requirements beneath each child of the root portfolio node are added to a partition of their own,
+   * those on positions held directly by the root node are spread over the shared partitions, and those on the root node itself are left for the completion phase.
+   *
+   * @param calculationConfiguration the calculation configuration, not null
+   * @param builder the builder to add requirements to if not partitioning, not null
+   * @param partitions the partitioned build to add requirements to, null to add them directly to the builder
+   * @param alreadyAdded requirements to suppress, null if none
+   * @param resolutions the resolution cache, not null
+   * @param includeEvents the positions to include, null for all
+   * @param excludeEvents the nodes to exclude, null for none
+   */
+  public PortfolioCompilerTraversalCallback(final ViewCalculationConfiguration calculationConfiguration, final DependencyGraphBuilder builder,
+      final PartitionedDependencyGraphBuild partitions, final Set<ValueRequirement> alreadyAdded, final ConcurrentMap<ComputationTargetReference, UniqueId> resolutions,
+      final Set<UniqueId> includeEvents, final Set<UniqueId> excludeEvents) {
     _portfolioRequirementsBySecurityType = calculationConfiguration.getPortfolioRequirementsBySecurityType();
     _mergedOutputs = calculationConfiguration.getMergedOutputs();
     final ResultModelDefinition resultModelDefinition = calculationConfiguration.getViewDefinition().getResultModelDefinition();
@@ -107,6 +133,7 @@ import com.opengamma.util.tuple.Pairs;
     _outputPositions = resultModelDefinition.getPositionOutputMode() != ResultOutputMode.NONE;
     _outputTrades = resultModelDefinition.getTradeOutputMode() != ResultOutputMode.NONE;
     _builder = builder;
+    _partitions = partitions;
     _alreadyAdded = alreadyAdded;
     _resolutions = resolutions;
     _includeEvents = includeEvents;
@@ -132,10 +159,17 @@ import com.opengamma.util.tuple.Pairs;
    * See the notes in {@link DependencyGraphBuilder} for the hazards of requesting the same value requirement multiple times.
    * 
    * @param valueRequirement the value requirement to add
+   * @param partition the partition to add the requirement to, or -1 for the completion phase of a partitioned build (ignored if not partitioning)
    */
-  protected void addValueRequirement(final ValueRequirement valueRequirement) {
+  protected void addValueRequirement(final ValueRequirement valueRequirement, final int partition) {
     if ((_alreadyAdded == null) || !_alreadyAdded.contains(valueRequirement)) {
-      _builder.addTarget(valueRequirement);
+      if (_partitions == null) {
+        _builder.addTarget(valueRequirement);
+      } else if (partition < 0) {
+        _partitions.addTarget(valueRequirement);
+      } else {
+        _partitions.addTarget(partition, valueRequirement);
+      }
     } else {
       s_logger.debug("Suppressing {} from the incremental requirement set", valueRequirement);
     }
@@ -199,7 +233,16 @@ import com.opengamma.util.tuple.Pairs;
     // Initialise an empty set of requirements for the current portfolio node
     // This will be filled in as the traversal of this portfolio node's children proceeds, and retrieved during
     // this portfolio node's post-order traversal.
-    final NodeData nodeData = new NodeData(node, nodeExcluded);
+    int partition = -1;
+    if ((_partitions != null) && (node.getParentNodeId() != null)) {
+      final NodeData parentNodeData = _nodeData.get(node.getParentNodeId());
+      if ((parentNodeData != null) && (parentNodeData.getPartition() >= 0)) {
+        partition = parentNodeData.getPartition();
+      } else {
+        partition = _partitions.newPartition();
+      }
+    }
+    final NodeData nodeData = new NodeData(node, nodeExcluded, partition);
     _nodeData.put(node.getUniqueId(), nodeData);
     if (_outputAggregates && !nodeExcluded) {
       // Retrieve the required aggregate outputs (by 'aggregate' sec type) for the current calc configuration
@@ -211,12 +254,29 @@ import com.opengamma.util.tuple.Pairs;
         // for this portfolio node.
         final ComputationTargetSpecification targetSpec = nodeData.getTargetSpecification();
         for (final Pair<String, ValueProperties> requiredOutput : requiredOutputs) {
-          addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), targetSpec, requiredOutput.getSecond()));
+          addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), targetSpec, requiredOutput.getSecond()), partition);
         }
       }
     }
   }
 
+  /**
+   * Returns the partition for the requirements on a position and its trades.
+   *
+   * @param nodeData the data for the parent node, not null if partitioning
+   * @param position the position
+   * @return the partition, -1 if not partitioning
+   */
+  private int getPartition(final NodeData nodeData, final Position position) {
+    if (_partitions == null) {
+      return -1;
+    }
+    if (nodeData.getPartition() >= 0) {
+      return nodeData.getPartition();
+    }
+    return _partitions.getPartition(position.getUniqueId().getObjectId());
+  }
+
   /**
    * The pre-order operation for a position in a portfolio. which adds the value requirements for the current position and/or its trades to the graph builder's set of value requirements (if the result
    * model specifies it), and also adds aggregate value requirements to the parent's requirements (again, if the result model specifies it) to be reaped post-order.
@@ -249,6 +309,10 @@ import com.opengamma.util.tuple.Pairs;
       store(position);
       store(position.getSecurityLink());
     }
+    if (nodeData == null) {
+      nodeData = _nodeData.get(parentNode.getUniqueId());
+    }
+    final int partition = getPartition(nodeData, position);
     // Identify this position's security type
     final String securityType = security.getSecurityType();
     Set<Pair<String, ValueProperties>> requiredOutputs;
@@ -258,9 +322,6 @@ import com.opengamma.util.tuple.Pairs;
       requiredOutputs = _portfolioRequirementsBySecurityType.get(securityType);
       // Check that there's at least one required output to deal with
       if ((requiredOutputs != null) && !requiredOutputs.isEmpty()) {
-        if (nodeData == null) {
-          nodeData = _nodeData.get(parentNode.getUniqueId());
-        }
         // Are we interested in aggregate results for the parent? If so, pass on requirements to parent portfolio node
         if (_outputAggregates) {
           nodeData.addRequirements(requiredOutputs);
@@ -272,21 +333,18 @@ import com.opengamma.util.tuple.Pairs;
           // building them using the retrieved required outputs for this security type and the newly created computation
           // target spec for this position.
           for (final Pair<String, ValueProperties> requiredOutput : requiredOutputs) {
-            addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), positionSpec, requiredOutput.getSecond()));
+            addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), positionSpec, requiredOutput.getSecond()), partition);
           }
         }
       }
       for (MergedOutput mergedOutput : _mergedOutputs) {
-        if (nodeData == null) {
-          nodeData = _nodeData.get(parentNode.getUniqueId());
-        }
         final ValueProperties constraints = ValueProperties.with(ValuePropertyNames.NAME, mergedOutput.getMergedOutputName()).get();
         if (_outputAggregates) {
           nodeData.addRequirements(ImmutableSet.of(Pairs.of(ValueRequirementNames.MERGED_OUTPUT, constraints)));
         }
         if (_outputPositions && !positionExcluded) {
           final ComputationTargetSpecification positionSpec = nodeData.getTargetSpecification().containing(ComputationTargetType.POSITION, position.getUniqueId().toLatest());
-          addValueRequirement(new ValueRequirement(ValueRequirementNames.MERGED_OUTPUT, positionSpec, constraints));
+          addValueRequirement(new ValueRequirement(ValueRequirementNames.MERGED_OUTPUT, positionSpec, constraints), partition);
         }
       }
     }
@@ -304,7 +362,7 @@ import com.opengamma.util.tuple.Pairs;
             // building them using the retrieved required outputs icw trades for this security type and the newly
             // created computation target spec for this trade.
             for (final Pair<String, ValueProperties> requiredOutput : requiredOutputs) {
-              addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), tradeSpec, requiredOutput.getSecond()));
+              addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), tradeSpec, requiredOutput.getSecond()), partition);
             }
           }
         }
@@ -312,7 +370,7 @@ import com.opengamma.util.tuple.Pairs;
           for (final Trade trade : trades) {
             final ValueProperties constraints = ValueProperties.with(ValuePropertyNames.NAME, mergedOutput.getMergedOutputName()).get();
             final ComputationTargetSpecification tradeSpec = ComputationTargetSpecification.of(trade);
-            addValueRequirement(new ValueRequirement(ValueRequirementNames.MERGED_OUTPUT, tradeSpec, constraints));
+            addValueRequirement(new ValueRequirement(ValueRequirementNames.MERGED_OUTPUT, tradeSpec, constraints), partition);
           }
         }
         for (final Trade trade : trades) {
@@ -348,7 +406,7 @@ import com.opengamma.util.tuple.Pairs;
       // building them using the requirements gathered during its children's traversal and the newly created computation
       // target spec for this portfolio node.
       for (final Pair<String, ValueProperties> requiredOutput : nodeRequirements) {
-        addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), targetSpec, requiredOutput.getSecond()));
+        addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), targetSpec, requiredOutput.getSecond()), nodeData.getPartition());
       }
     }
   }
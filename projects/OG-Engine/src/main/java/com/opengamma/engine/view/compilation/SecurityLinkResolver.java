@@ -135,6 +135,23 @@ public final class SecurityLinkResolver {
         _securitySource.addToCache(security);
       }
     }
+    if (securityLinkMap.size() > 1) {
+      // Fetch the targets with bulk calls to the underlying so that the jobs are mostly satisfied from the cache
+      final Collection<ObjectId> objectIds = new ArrayList<ObjectId>();
+      final Collection<ExternalIdBundle> bundles = new ArrayList<ExternalIdBundle>();
+      for (Pair<ObjectId, ExternalIdBundle> key : securityLinkMap.keySet()) {
+        if (key.getFirst() != null) {
+          objectIds.add(key.getFirst());
+        } else if ((key.getSecond() != null) && (key.getSecond().size() > 0)) {
+          bundles.add(key.getSecond());
+        }
+      }
+      try {
+        _securitySource.prefetch(objectIds, bundles, _versionCorrection);
+      } catch (RuntimeException ex) {
+        s_logger.warn("Bulk security resolution failed, resolving individually", ex);
+      }
+    }
     s_logger.debug("Submitting {} resolution jobs for {} links", securityLinkMap.size(), securityLinks.size());
     // Submit a job for each "unique" link. The job will serially resolve all "identical" links as they will
     // be in the cache at that point.
@@ -314,6 +331,30 @@ public final class SecurityLinkResolver {
       }
     }
 
+    /**
+     * Populates the caches using the bulk methods of the underlying source.
+     * 
+     * @param objectIds the object identifiers to fetch, not null
+     * @param bundles the bundles to fetch, not null
+     * @param versionCorrection the version-correction, not null
+     */
+    void prefetch(final Collection<ObjectId> objectIds, final Collection<ExternalIdBundle> bundles, final VersionCorrection versionCorrection) {
+      if (!objectIds.isEmpty()) {
+        for (Map.Entry<ObjectId, Security> security : _underlying.get(objectIds, versionCorrection).entrySet()) {
+          if (security.getValue() != null) {
+            _objectIdCache.putIfAbsent(security.getKey(), security.getValue());
+          }
+        }
+      }
+      if (!bundles.isEmpty()) {
+        for (Map.Entry<ExternalIdBundle, Security> security : _underlying.getSingle(bundles, versionCorrection).entrySet()) {
+          if (security.getValue() != null) {
+            _weakIdCache.putIfAbsent(security.getKey(), security.getValue());
+          }
+        }
+      }
+    }
+
     @Override
     public Security get(UniqueId uniqueId) {
       Security security = _objectIdCache.get(uniqueId.getObjectId());
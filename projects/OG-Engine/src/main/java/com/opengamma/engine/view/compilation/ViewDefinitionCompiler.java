@@ -42,8 +42,10 @@ import com.opengamma.engine.ComputationTargetResolver;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.depgraph.DependencyGraphBuilderFactory;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.depgraph.Housekeeper;
+import com.opengamma.engine.depgraph.PartitionedDependencyGraphBuild;
 import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
 import com.opengamma.engine.depgraph.impl.RootDiscardingSubgrapher;
 import com.opengamma.engine.function.FunctionCompilationContext;
@@ -109,6 +111,7 @@ public final class ViewDefinitionCompiler {
 
     private final String _label;
     private final ConcurrentMap<String, Double> _buildEstimates;
+    private final ConcurrentMap<String, Supplier<Double>> _partitionedEstimates = new ConcurrentHashMap<String, Supplier<Double>>();
 
     private CompilationCompletionEstimate(final ViewCompilationContext context) {
       final Collection<DependencyGraphBuilder> builders = context.getBuilders();
@@ -120,6 +123,20 @@ public final class ViewDefinitionCompiler {
       _label = context.getViewDefinition().getName();
     }
 
+    /**
+     * Takes the estimate for a configuration from its partitioned build rather than its completing builder, which does no work until the partitions have been built.
+     *
+     * @param partitions the partitioned build, not null
+     */
+    private void partitioned(final PartitionedDependencyGraphBuild partitions) {
+      _partitionedEstimates.put(partitions.getBuilder().getCalculationConfigurationName(), partitions.buildFractionEstimate());
+    }
+
+    private Supplier<Double> getEstimate(final DependencyGraphBuilder builder, final Supplier<Double> estimate) {
+      final Supplier<Double> partitioned = _partitionedEstimates.get(builder.getCalculationConfigurationName());
+      return (partitioned != null) ? partitioned : estimate;
+    }
+
     public double[] estimates() {
       final double[] result = new double[_buildEstimates.size()];
       int i = 0;
@@ -139,7 +156,7 @@ public final class ViewDefinitionCompiler {
 
     @Override
     public boolean tick(final DependencyGraphBuilder builder, final Supplier<Double> estimate) {
-      final Double estimateValue = estimate.get();
+      final Double estimateValue = getEstimate(builder, estimate).get();
       s_logger.debug("{}/{} building at {}", new Object[] {_label, builder.getCalculationConfigurationName(), estimateValue });
       _buildEstimates.put(builder.getCalculationConfigurationName(), estimateValue);
       return estimateValue < 1d;
@@ -152,7 +169,7 @@ public final class ViewDefinitionCompiler {
 
     @Override
     public boolean completed(final DependencyGraphBuilder builder, final Supplier<Double> estimate) {
-      return estimate.get() < 1d;
+      return getEstimate(builder, estimate).get() < 1d;
     }
   }
 
@@ -160,6 +177,7 @@ public final class ViewDefinitionCompiler {
   private abstract static class CompilationTask implements Future<CompiledViewDefinitionWithGraphsImpl> {
 
     private final ViewCompilationContext _viewCompilationContext;
+    private final CompilationCompletionEstimate _completionEstimate;
     private volatile CompiledViewDefinitionWithGraphsImpl _result;
     private boolean _portfolioOutputs;
     private Portfolio _portfolio;
@@ -167,7 +185,9 @@ public final class ViewDefinitionCompiler {
     protected CompilationTask(final ViewCompilationContext context) {
       _viewCompilationContext = context;
       if (s_logger.isDebugEnabled()) {
-        new CompilationCompletionEstimate(_viewCompilationContext);
+        _completionEstimate = new CompilationCompletionEstimate(_viewCompilationContext);
+      } else {
+        _completionEstimate = null;
       }
       final ResultModelDefinition resultModelDefinition = context.getViewDefinition().getResultModelDefinition();
       _portfolioOutputs = (resultModelDefinition.getPositionOutputMode() != ResultOutputMode.NONE) || (resultModelDefinition.getAggregatePositionOutputMode() != ResultOutputMode.NONE);
@@ -179,6 +199,27 @@ public final class ViewDefinitionCompiler {
 
     protected abstract void compile(DependencyGraphBuilder builder);
 
+    /**
+     * Notes that a configuration is being compiled with a partitioned build, so that any progress estimate is taken from it.
+     *
+     * @param partitions the partitioned build, not null
+     */
+    protected void partitioned(final PartitionedDependencyGraphBuild partitions) {
+      if (_completionEstimate != null) {
+        _completionEstimate.partitioned(partitions);
+      }
+    }
+
+    /**
+     * Returns the graph from a builder once {@link #compile(DependencyGraphBuilder)} has added the requirements to it, blocking until it is complete.
+     *
+     * @param builder the builder, not null
+     * @return the graph, not null
+     */
+    protected DependencyGraph getDependencyGraph(final DependencyGraphBuilder builder) {
+      return builder.getDependencyGraph();
+    }
+
     protected void compile() {
       final Iterator<DependencyGraphBuilder> builders = getContext().getBuilders().iterator();
       while (builders.hasNext()) {
@@ -186,7 +227,7 @@ public final class ViewDefinitionCompiler {
         compile(builder);
         // TODO: Use a heuristic to decide whether to let the graph builds run in parallel, or sequentially. We will force sequential builds for the time being.
         // Wait for the current config's dependency graph to be built before moving to the next view calc config
-        DependencyGraph graph = builder.getDependencyGraph();
+        DependencyGraph graph = getDependencyGraph(builder);
         builders.remove();
         graph = DependencyGraphImpl.removeUnnecessaryValues(graph);
         getContext().getGraphs().add(graph);
@@ -344,13 +385,32 @@ public final class ViewDefinitionCompiler {
 
   private static class FullCompilationTask extends CompilationTask {
 
+    /**
+     * The partitioned build for the configuration currently being compiled, null if the configuration is not being partitioned.
+     */
+    private volatile PartitionedDependencyGraphBuild _partitions;
+
     protected FullCompilationTask(final ViewCompilationContext context) {
       super(context);
     }
 
+    private PartitionedDependencyGraphBuild createPartitionedBuild(final DependencyGraphBuilder builder, final ViewCalculationConfiguration config) {
+      final DependencyGraphBuilderFactory factory = getContext().getServices().getDependencyGraphBuilder();
+      if (!factory.isPartitionedPortfolioBuild() || isStripedPortfolioRequirements() || config.getAllPortfolioRequirements().isEmpty()
+          || (builder.getCompilationContext().getPortfolio() == null)) {
+        return null;
+      }
+      return factory.newPartitionedBuild(builder);
+    }
+
     @Override
     protected void compile(final DependencyGraphBuilder builder) {
       final ViewCalculationConfiguration config = getContext().getViewDefinition().getCalculationConfiguration(builder.getCalculationConfigurationName());
+      final PartitionedDependencyGraphBuild partitions = createPartitionedBuild(builder, config);
+      _partitions = partitions;
+      if (partitions != null) {
+        partitioned(partitions);
+      }
       Set<ValueRequirement> specificRequirements = config.getSpecificRequirements();
       if (specificRequirements.isEmpty()) {
         specificRequirements = null;
@@ -364,10 +424,36 @@ public final class ViewDefinitionCompiler {
             continue;
           }
           // Add the specific requirement to the current calc config's dep graph builder
-          builder.addTarget(requirement);
+          if (partitions != null) {
+            partitions.addTarget(requirement);
+          } else {
+            builder.addTarget(requirement);
+          }
         }
       }
-      addPortfolioRequirements(builder, specificRequirements, getContext(), config, null, null);
+      addPortfolioRequirements(builder, partitions, specificRequirements, getContext(), config, null, null);
+      if (partitions != null) {
+        partitions.build();
+      }
+    }
+
+    @Override
+    protected DependencyGraph getDependencyGraph(final DependencyGraphBuilder builder) {
+      final PartitionedDependencyGraphBuild partitions = _partitions;
+      if (partitions != null) {
+        _partitions = null;
+        return partitions.getDependencyGraph();
+      }
+      return super.getDependencyGraph(builder);
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      final PartitionedDependencyGraphBuild partitions = _partitions;
+      if (partitions != null) {
+        partitions.cancel(mayInterruptIfRunning);
+      }
+      return super.cancel(mayInterruptIfRunning);
     }
 
     @Override
@@ -496,10 +582,10 @@ public final class ViewDefinitionCompiler {
       }
       if (_unchangedNodes != null) {
         s_logger.info("Adding portfolio requirements with unchanged node set");
-        addPortfolioRequirements(builder, incrementalRequirements, getContext(), calcConfig, null, _unchangedNodes);
+        addPortfolioRequirements(builder, null, incrementalRequirements, getContext(), calcConfig, null, _unchangedNodes);
       } else if (changedPositions != null) {
         s_logger.info("Adding portfolio requirements with changed position set");
-        addPortfolioRequirements(builder, incrementalRequirements, getContext(), calcConfig, changedPositions, null);
+        addPortfolioRequirements(builder, null, incrementalRequirements, getContext(), calcConfig, changedPositions, null);
       } else {
         s_logger.info("No additional portfolio requirements needed");
       }
@@ -623,14 +709,15 @@ public final class ViewDefinitionCompiler {
     s_striped = useStripes;
   }
 
-  private static void addPortfolioRequirements(final DependencyGraphBuilder builder, final Set<ValueRequirement> alreadyAdded, final ViewCompilationContext context,
-      final ViewCalculationConfiguration calcConfig, final Set<UniqueId> includeEvents, final Set<UniqueId> excludeEvents) {
+  private static void addPortfolioRequirements(final DependencyGraphBuilder builder, final PartitionedDependencyGraphBuild partitions, final Set<ValueRequirement> alreadyAdded,
+      final ViewCompilationContext context, final ViewCalculationConfiguration calcConfig, final Set<UniqueId> includeEvents, final Set<UniqueId> excludeEvents) {
     if (calcConfig.getAllPortfolioRequirements().size() == 0) {
       // No portfolio requirements for this calculation configuration - avoid further processing.
       return;
     }
     final Portfolio portfolio = builder.getCompilationContext().getPortfolio();
-    final PortfolioCompilerTraversalCallback traversalCallback = new PortfolioCompilerTraversalCallback(calcConfig, builder, alreadyAdded, context.getActiveResolutions(), includeEvents, excludeEvents);
+    final PortfolioCompilerTraversalCallback traversalCallback = new PortfolioCompilerTraversalCallback(calcConfig, builder, partitions, alreadyAdded, context.getActiveResolutions(), includeEvents,
+        excludeEvents);
     final PortfolioNodeTraverser traverser = PortfolioNodeTraverser.parallel(traversalCallback, context.getServices().getExecutorService());
     if (isStripedPortfolioRequirements()) {
       final Map<String, Set<Pair<String, ValueProperties>>> requirementsBySecurityType = traversalCallback.getPortfolioRequirementsBySecurityType();
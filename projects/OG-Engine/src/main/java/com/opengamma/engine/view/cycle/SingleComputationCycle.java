@@ -68,8 +68,10 @@ import com.opengamma.engine.view.compilation.CompiledViewDefinition;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.ExecutionLogModeSource;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.impl.ResultModelLayout;
 import com.opengamma.engine.view.impl.ViewProcessContext;
 import com.opengamma.engine.view.listener.ComputationResultListener;
 import com.opengamma.id.UniqueId;
@@ -82,6 +84,9 @@ import com.opengamma.util.tuple.Pair;
  * Holds all data and actions for a single computation pass. The view cycle may be executed at most once.
  * <p>
  * The cycle is thread-safe for readers, for example obtaining the current state or the result, but is only designed for a single executor.
+ * <p>
+ * If constructed with a {@link ResultModelLayout} the full result of the cycle is a {@link ColumnarViewComputationResultModel} using that layout,
+ * otherwise it is an {@link InMemoryViewComputationResultModel}. Fragment results are always in-memory models.
  */
 public class SingleComputationCycle implements ViewCycle, EngineResource {
 
@@ -120,9 +125,29 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
 
   // Output
   private final InMemoryViewComputationResultModel _resultModel;
+  private final ColumnarViewComputationResultModel _columnarResultModel;
 
   public SingleComputationCycle(final UniqueId cycleId, final String name, final ComputationResultListener cycleFragmentResultListener, final ViewProcessContext viewProcessContext,
       final CompiledViewDefinitionWithGraphs compiledViewDefinition, final ViewCycleExecutionOptions executionOptions, final VersionCorrection versionCorrection) {
+    this(cycleId, name, cycleFragmentResultListener, viewProcessContext, compiledViewDefinition, executionOptions, versionCorrection, null);
+  }
+
+  /**
+   * Creates a cycle.
+   * 
+   * @param cycleId the unique identifier of the cycle, not null
+   * @param name the name of the cycle
+   * @param cycleFragmentResultListener the listener for fragment results, not null
+   * @param viewProcessContext the view process context, not null
+   * @param compiledViewDefinition the compiled view to execute, not null
+   * @param executionOptions the cycle execution options, not null
+   * @param versionCorrection the resolved version/correction, not null
+   * @param resultModelLayout the layout of the compiled view's terminal outputs to hold the full result in a {@link ColumnarViewComputationResultModel}, or null for an
+   *          {@link InMemoryViewComputationResultModel}
+   */
+  public SingleComputationCycle(final UniqueId cycleId, final String name, final ComputationResultListener cycleFragmentResultListener, final ViewProcessContext viewProcessContext,
+      final CompiledViewDefinitionWithGraphs compiledViewDefinition, final ViewCycleExecutionOptions executionOptions, final VersionCorrection versionCorrection,
+      final ResultModelLayout resultModelLayout) {
     ArgumentChecker.notNull(cycleId, "cycleId");
     ArgumentChecker.notNull(cycleFragmentResultListener, "cycleFragmentResultListener");
     ArgumentChecker.notNull(viewProcessContext, "viewProcessContext");
@@ -136,7 +161,17 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     _cycleFragmentResultListener = cycleFragmentResultListener;
     _executionOptions = executionOptions;
     _versionCorrection = versionCorrection;
-    _resultModel = constructTemplateResultModel();
+    if (resultModelLayout != null) {
+      _resultModel = null;
+      _columnarResultModel = new ColumnarViewComputationResultModel(resultModelLayout);
+      _columnarResultModel.setViewCycleId(getCycleId());
+      _columnarResultModel.setViewProcessId(getViewProcessId());
+      _columnarResultModel.setViewCycleExecutionOptions(getExecutionOptions());
+      _columnarResultModel.setVersionCorrection(getVersionCorrection());
+    } else {
+      _resultModel = constructTemplateResultModel();
+      _columnarResultModel = null;
+    }
   }
 
   protected InMemoryViewComputationResultModel constructTemplateResultModel() {
@@ -258,10 +293,35 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   }
 
   @Override
-  public InMemoryViewComputationResultModel getResultModel() {
+  public ViewComputationResultModel getResultModel() {
+    if (_columnarResultModel != null) {
+      return _columnarResultModel;
+    }
     return _resultModel;
   }
 
+  /**
+   * Adds a value to the full result model.
+   * 
+   * @param calcConfigName the calculation configuration name, not null
+   * @param value the value, not null
+   */
+  /* package */void addResultModelValue(final String calcConfigName, final ComputedValueResult value) {
+    if (_columnarResultModel != null) {
+      _columnarResultModel.addValue(calcConfigName, value);
+    } else {
+      _resultModel.addValue(calcConfigName, value);
+    }
+  }
+
+  private void addResultModelMarketData(final ComputedValue marketData) {
+    if (_columnarResultModel != null) {
+      _columnarResultModel.addMarketData(marketData);
+    } else {
+      _resultModel.addMarketData(marketData);
+    }
+  }
+
   @Override
   public ComputationCacheResponse queryComputationCaches(final ComputationCycleQuery query) {
     ArgumentChecker.notNull(query, "query");
@@ -403,7 +463,6 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * Adds suppressed output markers to the result model for all terminal outputs.
    */
   private void generateSuppressedOutputs() {
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
     final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
     for (CompiledViewCalculationConfiguration compiledCalcConfig : getCompiledViewDefinition().getCompiledCalculationConfigurations()) {
       String calcConfigName = compiledCalcConfig.getName();
@@ -411,7 +470,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
         ComputedValue value = new ComputedValue(valueSpec, MissingOutput.SUPPRESSED);
         ComputedValueResult valueResult = new ComputedValueResult(value, AggregatedExecutionLog.EMPTY);
         fragmentResultModel.addValue(calcConfigName, valueResult);
-        fullResultModel.addValue(calcConfigName, valueResult);
+        addResultModelValue(calcConfigName, valueResult);
       }
     }
     fragmentResultModel.setCalculationTime(Instant.now());
@@ -460,7 +519,6 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     final Set<ValueSpecification> allRequiredMarketData = getCompiledViewDefinition().getMarketDataRequirements();
     s_logger.debug("Populating {} market data items using snapshot {}", allRequiredMarketData.size(), snapshot);
     final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
     final Map<ValueSpecification, Object> marketDataValues = snapshot.query(allRequiredMarketData);
     if (suppressExecutionOnNoMarketData && allRequiredMarketData.size() > 0 && marketDataValues.size() == 0) {
       // Market data was expected but the snapshot was empty. Don't bother doing anything else, and indicate that
@@ -492,15 +550,15 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
           computedValueResult = new ComputedValueResult(marketDataSpec, MissingInput.MISSING_MARKET_DATA, MARKET_DATA_LOG);
           ComputedValueResult resultModelValueResult = new ComputedValueResult(marketDataSpec, null, AggregatedExecutionLog.EMPTY);
           fragmentResultModel.addMarketData(resultModelValueResult);
-          fullResultModel.addMarketData(resultModelValueResult);
+          addResultModelMarketData(resultModelValueResult);
         } else {
           computedValueResult = new ComputedValueResult(marketDataSpec, marketDataValue, AggregatedExecutionLog.EMPTY);
           fragmentResultModel.addMarketData(computedValueResult);
-          fullResultModel.addMarketData(computedValueResult);
+          addResultModelMarketData(computedValueResult);
         }
         if (terminalOutputs.contains(marketDataSpec) && (resultModel.getOutputMode(marketDataSpec.getTargetSpecification().getType()) != ResultOutputMode.NONE)) {
           fragmentResultModel.addValue(calcConfig.getName(), computedValueResult);
-          fullResultModel.addValue(calcConfig.getName(), computedValueResult);
+          addResultModelValue(calcConfig.getName(), computedValueResult);
         }
         valuesToLoad.add(computedValueResult);
       }
@@ -547,7 +605,6 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
     final FunctionParametersDelta parameterDelta = FunctionParametersDelta.of(previousCycle.getExecutionOptions(), getExecutionOptions());
     final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
     final CompiledViewDefinition previousViewDefinition = previousCycle.getCompiledViewDefinition();
     final CompiledViewDefinitionWithGraphs viewDefinition = getCompiledViewDefinition();
     for (final DependencyGraphExplorer depGraphExplorer : viewDefinition.getDependencyGraphExplorers()) {
@@ -602,7 +659,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
           final ValueSpecification valueSpec = computedValueResult.getSpecification();
           if (terminalOutputs.containsKey(valueSpec) && getViewDefinition().getResultModelDefinition().shouldOutputResult(valueSpec, depGraph)) {
             fragmentResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
-            fullResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
+            addResultModelValue(depGraph.getCalculationConfigurationName(), computedValueResult);
           }
           final Object previousValue = computedValueResult.getValue() != null ? computedValueResult.getValue() : MissingOutput.EVALUATION_ERROR;
           newValues.add(new ComputedValue(valueSpec, previousValue));
@@ -620,8 +677,15 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   }
 
   private void completeResultModel() {
-    getResultModel().setCalculationTime(Instant.now());
-    getResultModel().setCalculationDuration(getDuration());
+    final Instant calculationTime = Instant.now();
+    final Duration calculationDuration = getDuration();
+    if (_columnarResultModel != null) {
+      _columnarResultModel.setCalculationTime(calculationTime);
+      _columnarResultModel.setCalculationDuration(calculationDuration);
+    } else {
+      _resultModel.setCalculationTime(calculationTime);
+      _resultModel.setCalculationDuration(calculationDuration);
+    }
   }
 
   protected void notifyFragmentCompleted(final ViewComputationResultModel fragmentResult) {
@@ -77,6 +77,16 @@ public final class ExecutionFlags {
     return this;
   }
 
+  /**
+   * Adds {@link ViewExecutionFlags#COLUMNAR_RESULTS}.
+   * 
+   * @return this
+   */
+  public ExecutionFlags columnarResults() {
+    _flags.add(ViewExecutionFlags.COLUMNAR_RESULTS);
+    return this;
+  }
+
   /**
    * Adds {@link ViewExecutionFlags#COMPILE_ONLY}
    * 
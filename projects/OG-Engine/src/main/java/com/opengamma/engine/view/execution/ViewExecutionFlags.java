@@ -112,6 +112,13 @@ public enum ViewExecutionFlags {
   /**
    * Indicates that the results should be stored in batch database.
    */
-  BATCH
+  BATCH,
+
+  /**
+   * Indicates that the full result of each cycle should be held in a {@link com.opengamma.engine.view.impl.ColumnarViewComputationResultModel}, with a layout shared by all cycles of a
+   * compilation, instead of an {@link com.opengamma.engine.view.impl.InMemoryViewComputationResultModel}. This reduces the objects created for each cycle and allows deltas to be found by
+   * comparing values by position.
+   */
+  COLUMNAR_RESULTS
 
 }
@@ -0,0 +1,652 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.ViewTargetResultModel;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * Implementation of {@link ViewComputationResultModel} that stores values in column-oriented arrays.
+ * <p>
+ * Values are held at the positions given by a {@link ResultModelLayout} which is shared by all results for a
+ * compiled view. Double values are stored in a primitive array and other values in an object array, so a cycle
+ * creates a handful of arrays instead of a {@link ComputedValueResult} and several map entries for every value.
+ * {@link ComputedValueResult} instances are only created when values are read through the {@link ViewResultModel}
+ * interface. The changes between two models with the same layout are found by comparing the arrays, see
+ * {@link #getChangedPositions}.
+ * <p>
+ * This class is not thread safe while values are being added.
+ */
+public class ColumnarViewComputationResultModel implements ViewComputationResultModel, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final InvocationResult[] INVOCATION_RESULTS = InvocationResult.values();
+
+  private UniqueId _viewProcessId;
+  private UniqueId _viewCycleId;
+  private ViewCycleExecutionOptions _viewCycleExecutionOptions;
+  private Instant _calculationTime;
+  private Duration _calculationDuration;
+  private VersionCorrection _versionCorrection;
+  private final Map<ValueSpecification, ComputedValue> _allMarketData = new HashMap<ValueSpecification, ComputedValue>();
+
+  /** The positions of the values. */
+  private final ResultModelLayout _layout;
+  /** Positions that have a value. */
+  private final BitSet _present;
+  /** Positions whose value is a double held in {@link #_doubles}. */
+  private final BitSet _scalar;
+  /** The double values. */
+  private final double[] _doubles;
+  /** The values that aren't doubles. */
+  private final Object[] _values;
+  /** The execution logs. */
+  private final AggregatedExecutionLog[] _logs;
+  /** The compute node identifiers. */
+  private final String[] _computeNodeIds;
+  /** The missing inputs. */
+  private final Object[] _missingInputs;
+  /** The invocation results, stored as ordinal plus one with zero for none. */
+  private final byte[] _invocationResults;
+
+  /**
+   * Creates an empty model.
+   *
+   * @param layout the positions of the values, not null
+   */
+  public ColumnarViewComputationResultModel(final ResultModelLayout layout) {
+    ArgumentChecker.notNull(layout, "layout");
+    final int size = layout.size();
+    _layout = layout;
+    _present = new BitSet(size);
+    _scalar = new BitSet(size);
+    _doubles = new double[size];
+    _values = new Object[size];
+    _logs = new AggregatedExecutionLog[size];
+    _computeNodeIds = new String[size];
+    _missingInputs = new Object[size];
+    _invocationResults = new byte[size];
+  }
+
+  /**
+   * Creates a model containing a copy of the values of another model.
+   *
+   * @param layout the positions of the values, not null
+   * @param copyFrom the model to copy, not null
+   */
+  public ColumnarViewComputationResultModel(final ResultModelLayout layout, final ViewComputationResultModel copyFrom) {
+    this(layout);
+    update(copyFrom);
+  }
+
+  /**
+   * Updates the values held in this model with values from (and about) a delta cycle.
+   *
+   * @param delta the delta results, not null
+   */
+  public void update(final ViewResultModel delta) {
+    ArgumentChecker.notNull(delta, "delta");
+    setViewProcessId(delta.getViewProcessId());
+    setViewCycleId(delta.getViewCycleId());
+    setViewCycleExecutionOptions(delta.getViewCycleExecutionOptions());
+    setCalculationTime(delta.getCalculationTime());
+    setCalculationDuration(delta.getCalculationDuration());
+    setVersionCorrection(delta.getVersionCorrection());
+    for (final ViewResultEntry entry : delta.getAllResults()) {
+      addValue(entry.getCalculationConfiguration(), entry.getComputedValue());
+    }
+    if (delta instanceof ViewComputationResultModel) {
+      for (final ComputedValue marketData : ((ViewComputationResultModel) delta).getAllMarketData()) {
+        addMarketData(marketData);
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a value, replacing any previous value at the same position.
+   *
+   * @param calcConfigurationName the calculation configuration name, not null
+   * @param value the value, not null
+   * @throws IllegalArgumentException if the value isn't part of the layout
+   */
+  public void addValue(final String calcConfigurationName, final ComputedValueResult value) {
+    final int position = _layout.getPosition(calcConfigurationName, value.getSpecification());
+    if (position < 0) {
+      throw new IllegalArgumentException("Value " + value.getSpecification() + " for " + calcConfigurationName + " isn't part of the layout");
+    }
+    setValue(position, value.getValue(), value.getAggregatedExecutionLog(), value.getComputeNodeId(), value.getMissingInputs(),
+        value.getInvocationResult());
+  }
+
+  /**
+   * Sets the double value at a position, replacing any previous value.
+   *
+   * @param position the position
+   * @param value the value
+   * @param log the execution log, may be null
+   */
+  public void setDouble(final int position, final double value, final AggregatedExecutionLog log) {
+    setValue(position, null, log, null, null, null);
+    _scalar.set(position);
+    _doubles[position] = value;
+  }
+
+  /**
+   * Sets the value at a position, replacing any previous value. {@link Double} values are held in the primitive column.
+   *
+   * @param position the position
+   * @param value the value, may be null
+   * @param log the execution log, may be null
+   * @param computeNodeId the identifier of the node that produced the value, may be null
+   * @param missingInputs the inputs that were missing when the value was calculated, may be null
+   * @param invocationResult the result of the function invocation, may be null
+   */
+  public void setValue(final int position, final Object value, final AggregatedExecutionLog log, final String computeNodeId,
+      final Set<ValueSpecification> missingInputs, final InvocationResult invocationResult) {
+    _present.set(position);
+    if (value instanceof Double) {
+      _scalar.set(position);
+      _doubles[position] = (Double) value;
+      _values[position] = null;
+    } else {
+      _scalar.clear(position);
+      _doubles[position] = 0d;
+      _values[position] = value;
+    }
+    _logs[position] = log;
+    _computeNodeIds[position] = computeNodeId;
+    _missingInputs[position] = missingInputs;
+    _invocationResults[position] = (byte) (invocationResult != null ? invocationResult.ordinal() + 1 : 0);
+  }
+
+  /**
+   * Adds a market data value, replacing any previous item with the same value specification.
+   *
+   * @param marketData the market data value, not null
+   */
+  public void addMarketData(final ComputedValue marketData) {
+    _allMarketData.put(marketData.getSpecification(), marketData);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the layout that gives the position of each value.
+   *
+   * @return the layout, not null
+   */
+  public ResultModelLayout getLayout() {
+    return _layout;
+  }
+
+  /**
+   * Checks if there is a value at a position.
+   *
+   * @param position the position
+   * @return true if there is a value
+   */
+  public boolean isPresent(final int position) {
+    return _present.get(position);
+  }
+
+  /**
+   * Checks if the value at a position is a double, available without boxing from {@link #getDouble}.
+   *
+   * @param position the position
+   * @return true if the value is a double
+   */
+  public boolean isDouble(final int position) {
+    return _scalar.get(position);
+  }
+
+  /**
+   * Gets the double value at a position.
+   *
+   * @param position the position
+   * @return the value
+   * @throws IllegalStateException if the value isn't a double
+   */
+  public double getDouble(final int position) {
+    if (!_scalar.get(position)) {
+      throw new IllegalStateException("Value at position " + position + " isn't a double");
+    }
+    return _doubles[position];
+  }
+
+  /**
+   * Gets the value at a position, boxing doubles.
+   *
+   * @param position the position
+   * @return the value, null if there isn't one
+   */
+  public Object getValue(final int position) {
+    return _scalar.get(position) ? (Object) _doubles[position] : _values[position];
+  }
+
+  /**
+   * Gets the execution log at a position.
+   *
+   * @param position the position
+   * @return the execution log, may be null
+   */
+  public AggregatedExecutionLog getAggregatedExecutionLog(final int position) {
+    return _logs[position];
+  }
+
+  /**
+   * Gets the compute node identifier at a position.
+   *
+   * @param position the position
+   * @return the identifier, may be null
+   */
+  public String getComputeNodeId(final int position) {
+    return _computeNodeIds[position];
+  }
+
+  /**
+   * Gets the missing inputs at a position.
+   *
+   * @param position the position
+   * @return the missing inputs, may be null
+   */
+  @SuppressWarnings("unchecked")
+  public Set<ValueSpecification> getMissingInputs(final int position) {
+    return (Set<ValueSpecification>) _missingInputs[position];
+  }
+
+  /**
+   * Gets the invocation result at a position.
+   *
+   * @param position the position
+   * @return the invocation result, may be null
+   */
+  public InvocationResult getInvocationResult(final int position) {
+    final int result = _invocationResults[position];
+    return result != 0 ? INVOCATION_RESULTS[result - 1] : null;
+  }
+
+  /**
+   * Gets the positions that have values.
+   *
+   * @return a copy of the positions, not null
+   */
+  public BitSet getPresentPositions() {
+    return (BitSet) _present.clone();
+  }
+
+  /**
+   * Gets the positions whose values are doubles.
+   *
+   * @return a copy of the positions, not null
+   */
+  public BitSet getDoublePositions() {
+    return (BitSet) _scalar.clone();
+  }
+
+  /**
+   * Gets the value at a position as a result.
+   *
+   * @param position the position
+   * @return the result, null if there is no value
+   */
+  public ComputedValueResult getResult(final int position) {
+    if (!_present.get(position)) {
+      return null;
+    }
+    return new ComputedValueResult(_layout.getSpecification(position), getValue(position), _logs[position], _computeNodeIds[position],
+        getMissingInputs(position), getInvocationResult(position));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Finds the positions whose values differ from those in an earlier model. Doubles are compared without boxing,
+   * other values and execution logs are compared with {@code equals}. If the earlier model has a different layout
+   * then every value is changed.
+   *
+   * @param previous the earlier model, null if there isn't one
+   * @return the changed positions, not null
+   */
+  public BitSet getChangedPositions(final ColumnarViewComputationResultModel previous) {
+    if (previous == null || !_layout.equals(previous._layout)) {
+      return getPresentPositions();
+    }
+    final BitSet changed = new BitSet(_layout.size());
+    for (int i = _present.nextSetBit(0); i >= 0; i = _present.nextSetBit(i + 1)) {
+      if (!previous._present.get(i) || isChanged(previous, i)) {
+        changed.set(i);
+      }
+    }
+    return changed;
+  }
+
+  private boolean isChanged(final ColumnarViewComputationResultModel previous, final int position) {
+    final boolean scalar = _scalar.get(position);
+    if (scalar != previous._scalar.get(position)) {
+      return true;
+    }
+    if (scalar) {
+      if (Double.doubleToLongBits(_doubles[position]) != Double.doubleToLongBits(previous._doubles[position])) {
+        return true;
+      }
+    } else if (!ObjectUtils.equals(_values[position], previous._values[position])) {
+      return true;
+    }
+    return !ObjectUtils.equals(_logs[position], previous._logs[position]);
+  }
+
+  /**
+   * Creates a delta model containing the values that have changed since an earlier model.
+   *
+   * @param previous the earlier model, null if there isn't one
+   * @return the delta model, not null
+   */
+  public InMemoryViewDeltaResultModel createDeltaModel(final ColumnarViewComputationResultModel previous) {
+    return createDeltaModel(getChangedPositions(previous), previous != null ? previous.getCalculationTime() : null);
+  }
+
+  /**
+   * Creates a delta model containing the current values at the given positions. Positions without a value are skipped.
+   *
+   * @param positions the positions to include, not null
+   * @param previousCalculationTime the calculation time of the result the delta applies to, null if there isn't one
+   * @return the delta model, not null
+   */
+  public InMemoryViewDeltaResultModel createDeltaModel(final BitSet positions, final Instant previousCalculationTime) {
+    ArgumentChecker.notNull(positions, "positions");
+    final InMemoryViewDeltaResultModel delta = new InMemoryViewDeltaResultModel();
+    delta.setViewProcessId(getViewProcessId());
+    delta.setViewCycleId(getViewCycleId());
+    delta.setViewCycleExecutionOptions(getViewCycleExecutionOptions());
+    delta.setCalculationTime(getCalculationTime());
+    delta.setCalculationDuration(getCalculationDuration());
+    delta.setVersionCorrection(getVersionCorrection());
+    delta.setPreviousCalculationTime(previousCalculationTime);
+    for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+      if (_present.get(i)) {
+        delta.addValue(_layout.getCalculationConfigurationName(i), getResult(i));
+      }
+    }
+    return delta;
+  }
+
+  /**
+   * Finds the positions in this model's layout of the values in another result model, typically a delta.
+   *
+   * @param resultModel the result model, not null
+   * @return the positions, null if any of the values isn't part of the layout
+   */
+  public BitSet getPositions(final ViewResultModel resultModel) {
+    final BitSet positions = new BitSet(_layout.size());
+    for (final ViewResultEntry entry : resultModel.getAllResults()) {
+      final int position = _layout.getPosition(entry.getCalculationConfiguration(), entry.getComputedValue().getSpecification());
+      if (position < 0) {
+        return null;
+      }
+      positions.set(position);
+    }
+    return positions;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public UniqueId getViewProcessId() {
+    return _viewProcessId;
+  }
+
+  public void setViewProcessId(final UniqueId viewProcessId) {
+    _viewProcessId = viewProcessId;
+  }
+
+  @Override
+  public UniqueId getViewCycleId() {
+    return _viewCycleId;
+  }
+
+  public void setViewCycleId(final UniqueId viewCycleId) {
+    _viewCycleId = viewCycleId;
+  }
+
+  @Override
+  public ViewCycleExecutionOptions getViewCycleExecutionOptions() {
+    return _viewCycleExecutionOptions;
+  }
+
+  public void setViewCycleExecutionOptions(final ViewCycleExecutionOptions viewCycleExecutionOptions) {
+    _viewCycleExecutionOptions = viewCycleExecutionOptions;
+  }
+
+  @Override
+  public Instant getCalculationTime() {
+    return _calculationTime;
+  }
+
+  public void setCalculationTime(final Instant calculationTime) {
+    _calculationTime = calculationTime;
+  }
+
+  @Override
+  public Duration getCalculationDuration() {
+    return _calculationDuration;
+  }
+
+  public void setCalculationDuration(final Duration calculationDuration) {
+    _calculationDuration = calculationDuration;
+  }
+
+  @Override
+  public VersionCorrection getVersionCorrection() {
+    return _versionCorrection;
+  }
+
+  public void setVersionCorrection(final VersionCorrection versionCorrection) {
+    _versionCorrection = versionCorrection;
+  }
+
+  @Override
+  public Set<ComputedValue> getAllMarketData() {
+    return new HashSet<ComputedValue>(_allMarketData.values());
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Set<ComputationTargetSpecification> getAllTargets() {
+    final Set<ComputationTargetSpecification> targets = new LinkedHashSet<ComputationTargetSpecification>();
+    for (int i = _present.nextSetBit(0); i >= 0; i = _present.nextSetBit(i + 1)) {
+      targets.add(_layout.getSpecification(i).getTargetSpecification());
+    }
+    return Collections.unmodifiableSet(targets);
+  }
+
+  @Override
+  public Collection<String> getCalculationConfigurationNames() {
+    final Set<String> names = new LinkedHashSet<String>();
+    for (int i = _present.nextSetBit(0); i >= 0; i = _present.nextSetBit(i + 1)) {
+      names.add(_layout.getCalculationConfigurationName(i));
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
+  @Override
+  public ViewCalculationResultModel getCalculationResult(final String calcConfigurationName) {
+    final Map<ComputationTargetSpecification, int[]> targetPositions = _layout.getTargetPositions(calcConfigurationName);
+    if (targetPositions == null) {
+      return null;
+    }
+    for (final int[] positions : targetPositions.values()) {
+      if (anyPresent(positions)) {
+        return new CalculationResult(calcConfigurationName, targetPositions);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public ViewTargetResultModel getTargetResult(final ComputationTargetSpecification targetSpecification) {
+    for (final String calcConfigName : _layout.getCalculationConfigurationNames()) {
+      if (anyPresent(_layout.getPositions(calcConfigName, targetSpecification))) {
+        return new TargetResult(targetSpecification);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public List<ViewResultEntry> getAllResults() {
+    final List<ViewResultEntry> results = new ArrayList<ViewResultEntry>(_present.cardinality());
+    for (int i = _present.nextSetBit(0); i >= 0; i = _present.nextSetBit(i + 1)) {
+      results.add(new ViewResultEntry(_layout.getCalculationConfigurationName(i), getResult(i)));
+    }
+    return results;
+  }
+
+  @Override
+  public Set<String> getAllOutputValueNames() {
+    final Set<String> outputValueNames = new HashSet<String>();
+    for (int i = _present.nextSetBit(0); i >= 0; i = _present.nextSetBit(i + 1)) {
+      outputValueNames.add(_layout.getSpecification(i).getValueName());
+    }
+    return outputValueNames;
+  }
+
+  private boolean anyPresent(final int[] positions) {
+    if (positions != null) {
+      for (final int position : positions) {
+        if (_present.get(position)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private List<ComputedValueResult> getResults(final int[] positions) {
+    if (positions == null) {
+      return null;
+    }
+    final List<ComputedValueResult> results = new ArrayList<ComputedValueResult>(positions.length);
+    for (final int position : positions) {
+      if (_present.get(position)) {
+        results.add(getResult(position));
+      }
+    }
+    return results.isEmpty() ? null : results;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * View of the values for a calculation configuration, values are created from the arrays when requested.
+   */
+  private final class CalculationResult implements ViewCalculationResultModel {
+
+    private final String _calcConfigName;
+    private final Map<ComputationTargetSpecification, int[]> _targetPositions;
+
+    private CalculationResult(final String calcConfigName, final Map<ComputationTargetSpecification, int[]> targetPositions) {
+      _calcConfigName = calcConfigName;
+      _targetPositions = targetPositions;
+    }
+
+    @Override
+    public Collection<ComputationTargetSpecification> getAllTargets() {
+      final List<ComputationTargetSpecification> targets = new ArrayList<ComputationTargetSpecification>();
+      for (final Map.Entry<ComputationTargetSpecification, int[]> target : _targetPositions.entrySet()) {
+        if (anyPresent(target.getValue())) {
+          targets.add(target.getKey());
+        }
+      }
+      return Collections.unmodifiableList(targets);
+    }
+
+    @Override
+    public Map<Pair<String, ValueProperties>, ComputedValueResult> getValues(final ComputationTargetSpecification target) {
+      final List<ComputedValueResult> results = getResults(_targetPositions.get(target));
+      if (results == null) {
+        return null;
+      }
+      final Map<Pair<String, ValueProperties>, ComputedValueResult> values = new HashMap<Pair<String, ValueProperties>, ComputedValueResult>();
+      for (final ComputedValueResult result : results) {
+        values.put(Pairs.of(result.getSpecification().getValueName(), result.getSpecification().getProperties()), result);
+      }
+      return Collections.unmodifiableMap(values);
+    }
+
+    @Override
+    public Collection<ComputedValueResult> getAllValues(final ComputationTargetSpecification target) {
+      final List<ComputedValueResult> results = getResults(_targetPositions.get(target));
+      return results != null ? Collections.unmodifiableList(results) : null;
+    }
+
+    @Override
+    public String toString() {
+      return "CalculationResult[" + _calcConfigName + "]";
+    }
+
+  }
+
+  /**
+   * View of the values for a target, values are created from the arrays when requested.
+   */
+  private final class TargetResult implements ViewTargetResultModel {
+
+    private final ComputationTargetSpecification _target;
+
+    private TargetResult(final ComputationTargetSpecification target) {
+      _target = target;
+    }
+
+    @Override
+    public Collection<String> getCalculationConfigurationNames() {
+      final List<String> names = new ArrayList<String>();
+      for (final String calcConfigName : _layout.getCalculationConfigurationNames()) {
+        if (anyPresent(_layout.getPositions(calcConfigName, _target))) {
+          names.add(calcConfigName);
+        }
+      }
+      return Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public Collection<ComputedValueResult> getAllValues(final String calcConfigurationName) {
+      final List<ComputedValueResult> results = getResults(_layout.getPositions(calcConfigurationName, _target));
+      return results != null ? Collections.unmodifiableList(results) : null;
+    }
+
+  }
+
+}
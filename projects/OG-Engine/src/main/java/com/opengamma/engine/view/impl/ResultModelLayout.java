@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraphExplorer;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Assigns a fixed position to every (calculation configuration, value specification) pair that a compiled view
+ * can produce. A {@link ColumnarViewComputationResultModel} stores its values in arrays indexed by these positions,
+ * so the layout is built once per compilation and shared by the results of every cycle that uses it.
+ * <p>
+ * This class is immutable and thread safe.
+ */
+public final class ResultModelLayout implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** The calculation configuration names. */
+  private final String[] _calcConfigNames;
+  /** The index into {@link #_calcConfigNames} of the configuration of each position. */
+  private final int[] _calcConfigs;
+  /** The value specification of each position. */
+  private final ValueSpecification[] _specifications;
+  /** The position of each value specification, keyed by calculation configuration. */
+  private final Map<String, Map<ValueSpecification, Integer>> _positions;
+  /** The positions of the values of each target, keyed by calculation configuration. */
+  private final Map<String, Map<ComputationTargetSpecification, int[]>> _targetPositions;
+
+  /**
+   * Creates a layout.
+   *
+   * @param calcConfigNames the calculation configuration names, not null
+   * @param calcConfigs the index into {@code calcConfigNames} of the configuration of each position, not null
+   * @param specifications the value specification of each position, not null
+   */
+  public ResultModelLayout(final String[] calcConfigNames, final int[] calcConfigs, final ValueSpecification[] specifications) {
+    ArgumentChecker.noNulls(calcConfigNames, "calcConfigNames");
+    ArgumentChecker.notNull(calcConfigs, "calcConfigs");
+    ArgumentChecker.noNulls(specifications, "specifications");
+    ArgumentChecker.isTrue(calcConfigs.length == specifications.length, "calcConfigs and specifications must be the same length");
+    _calcConfigNames = calcConfigNames.clone();
+    _calcConfigs = calcConfigs.clone();
+    _specifications = specifications.clone();
+    _positions = new HashMap<String, Map<ValueSpecification, Integer>>();
+    final Map<String, Map<ComputationTargetSpecification, List<Integer>>> targetPositions = new HashMap<String, Map<ComputationTargetSpecification, List<Integer>>>();
+    for (final String calcConfigName : _calcConfigNames) {
+      _positions.put(calcConfigName, new HashMap<ValueSpecification, Integer>());
+      targetPositions.put(calcConfigName, new LinkedHashMap<ComputationTargetSpecification, List<Integer>>());
+    }
+    for (int i = 0; i < _specifications.length; i++) {
+      final String calcConfigName = _calcConfigNames[_calcConfigs[i]];
+      if (_positions.get(calcConfigName).put(_specifications[i], i) != null) {
+        throw new IllegalArgumentException("Duplicate value specification " + _specifications[i] + " in " + calcConfigName);
+      }
+      final ComputationTargetSpecification target = _specifications[i].getTargetSpecification();
+      List<Integer> positions = targetPositions.get(calcConfigName).get(target);
+      if (positions == null) {
+        positions = new ArrayList<Integer>();
+        targetPositions.get(calcConfigName).put(target, positions);
+      }
+      positions.add(i);
+    }
+    _targetPositions = new HashMap<String, Map<ComputationTargetSpecification, int[]>>();
+    for (final Map.Entry<String, Map<ComputationTargetSpecification, List<Integer>>> calcConfig : targetPositions.entrySet()) {
+      final Map<ComputationTargetSpecification, int[]> positionsByTarget = new LinkedHashMap<ComputationTargetSpecification, int[]>();
+      for (final Map.Entry<ComputationTargetSpecification, List<Integer>> target : calcConfig.getValue().entrySet()) {
+        final int[] positions = new int[target.getValue().size()];
+        for (int i = 0; i < positions.length; i++) {
+          positions[i] = target.getValue().get(i);
+        }
+        positionsByTarget.put(target.getKey(), positions);
+      }
+      _targetPositions.put(calcConfig.getKey(), positionsByTarget);
+    }
+  }
+
+  /**
+   * Creates a layout for the terminal outputs of a compiled view.
+   *
+   * @param compiledView the compiled view, not null
+   * @return the layout, not null
+   */
+  public static ResultModelLayout of(final CompiledViewDefinitionWithGraphs compiledView) {
+    ArgumentChecker.notNull(compiledView, "compiledView");
+    final Builder builder = new Builder();
+    for (final DependencyGraphExplorer graph : compiledView.getDependencyGraphExplorers()) {
+      for (final ValueSpecification output : graph.getTerminalOutputs().keySet()) {
+        builder.add(graph.getCalculationConfigurationName(), output);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a layout for the values in an existing result model.
+   *
+   * @param resultModel the result model, not null
+   * @return the layout, not null
+   */
+  public static ResultModelLayout of(final ViewResultModel resultModel) {
+    ArgumentChecker.notNull(resultModel, "resultModel");
+    final Builder builder = new Builder();
+    for (final ViewResultEntry entry : resultModel.getAllResults()) {
+      builder.add(entry.getCalculationConfiguration(), entry.getComputedValue().getSpecification());
+    }
+    return builder.build();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of positions.
+   *
+   * @return the number of positions
+   */
+  public int size() {
+    return _specifications.length;
+  }
+
+  /**
+   * Gets the position of a value.
+   *
+   * @param calcConfigName the calculation configuration name, not null
+   * @param specification the value specification, not null
+   * @return the position, -1 if the value isn't part of the layout
+   */
+  public int getPosition(final String calcConfigName, final ValueSpecification specification) {
+    final Map<ValueSpecification, Integer> positions = _positions.get(calcConfigName);
+    if (positions == null) {
+      return -1;
+    }
+    final Integer position = positions.get(specification);
+    return position != null ? position : -1;
+  }
+
+  /**
+   * Gets the value specification at a position.
+   *
+   * @param position the position
+   * @return the value specification, not null
+   */
+  public ValueSpecification getSpecification(final int position) {
+    return _specifications[position];
+  }
+
+  /**
+   * Gets the calculation configuration name of a position.
+   *
+   * @param position the position
+   * @return the calculation configuration name, not null
+   */
+  public String getCalculationConfigurationName(final int position) {
+    return _calcConfigNames[_calcConfigs[position]];
+  }
+
+  /**
+   * Gets the calculation configuration names.
+   *
+   * @return the names, not null
+   */
+  public List<String> getCalculationConfigurationNames() {
+    return Collections.unmodifiableList(Arrays.asList(_calcConfigNames));
+  }
+
+  /**
+   * Gets the positions of the values of a target.
+   *
+   * @param calcConfigName the calculation configuration name, not null
+   * @param target the target, not null
+   * @return the positions, null if the configuration has no values for the target
+   */
+  /* package */ int[] getPositions(final String calcConfigName, final ComputationTargetSpecification target) {
+    final Map<ComputationTargetSpecification, int[]> positions = _targetPositions.get(calcConfigName);
+    return positions != null ? positions.get(target) : null;
+  }
+
+  /**
+   * Gets the positions of every target's values in a configuration.
+   *
+   * @param calcConfigName the calculation configuration name, not null
+   * @return the positions keyed by target, null if the configuration isn't part of the layout
+   */
+  /* package */ Map<ComputationTargetSpecification, int[]> getTargetPositions(final String calcConfigName) {
+    return _targetPositions.get(calcConfigName);
+  }
+
+  /**
+   * Gets the index of the calculation configuration of each position, for encoding.
+   *
+   * @return a copy of the indices, not null
+   */
+  public int[] getCalculationConfigurationIndices() {
+    return _calcConfigs.clone();
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public boolean equals(final Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof ResultModelLayout)) {
+      return false;
+    }
+    final ResultModelLayout other = (ResultModelLayout) obj;
+    return Arrays.equals(_calcConfigNames, other._calcConfigNames) &&
+        Arrays.equals(_calcConfigs, other._calcConfigs) &&
+        Arrays.equals(_specifications, other._specifications);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(_calcConfigNames) * 31 + Arrays.hashCode(_calcConfigs);
+  }
+
+  @Override
+  public String toString() {
+    return "ResultModelLayout[" + Arrays.toString(_calcConfigNames) + ", " + _specifications.length + " positions]";
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Builds a layout by adding values one at a time. Values already added are ignored.
+   */
+  public static final class Builder {
+
+    private final Map<String, Integer> _calcConfigIndices = new LinkedHashMap<String, Integer>();
+    private final Map<String, Map<ValueSpecification, Integer>> _positions = new HashMap<String, Map<ValueSpecification, Integer>>();
+    private final List<ValueSpecification> _specifications = new ArrayList<ValueSpecification>();
+    private final List<Integer> _calcConfigs = new ArrayList<Integer>();
+
+    /**
+     * Adds a value to the layout.
+     *
+     * @param calcConfigName the calculation configuration name, not null
+     * @param specification the value specification, not null
+     * @return the position of the value
+     */
+    public int add(final String calcConfigName, final ValueSpecification specification) {
+      ArgumentChecker.notNull(calcConfigName, "calcConfigName");
+      ArgumentChecker.notNull(specification, "specification");
+      Integer calcConfigIndex = _calcConfigIndices.get(calcConfigName);
+      if (calcConfigIndex == null) {
+        calcConfigIndex = _calcConfigIndices.size();
+        _calcConfigIndices.put(calcConfigName, calcConfigIndex);
+        _positions.put(calcConfigName, new HashMap<ValueSpecification, Integer>());
+      }
+      final Map<ValueSpecification, Integer> positions = _positions.get(calcConfigName);
+      Integer position = positions.get(specification);
+      if (position == null) {
+        position = _specifications.size();
+        positions.put(specification, position);
+        _specifications.add(specification);
+        _calcConfigs.add(calcConfigIndex);
+      }
+      return position;
+    }
+
+    /**
+     * Creates the layout.
+     *
+     * @return the layout, not null
+     */
+    public ResultModelLayout build() {
+      final int[] calcConfigs = new int[_calcConfigs.size()];
+      for (int i = 0; i < calcConfigs.length; i++) {
+        calcConfigs[i] = _calcConfigs.get(i);
+      }
+      return new ResultModelLayout(_calcConfigIndices.keySet().toArray(new String[_calcConfigIndices.size()]), calcConfigs,
+          _specifications.toArray(new ValueSpecification[_specifications.size()]));
+    }
+
+  }
+
+}
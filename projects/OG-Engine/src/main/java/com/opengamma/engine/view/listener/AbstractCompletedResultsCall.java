@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.view.listener;
 
+import java.util.BitSet;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
@@ -12,11 +14,17 @@ import org.threeten.bp.Instant;
 import com.google.common.base.Function;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
 
 /**
  * Base class for cycle results.
+ * <p>
+ * When each new full result is a {@link ColumnarViewComputationResultModel} with the same layout, as produced by view processes
+ * executing with {@link com.opengamma.engine.view.execution.ViewExecutionFlags#COLUMNAR_RESULTS}, deltas are merged by
+ * recording the positions they touch instead of copying and updating a delta model. The merged delta is built once,
+ * from the latest full result, when it is requested.
  */
 public abstract class AbstractCompletedResultsCall implements Function<ViewResultListener, Object> {
 
@@ -26,6 +34,15 @@ public abstract class AbstractCompletedResultsCall implements Function<ViewResul
   private InMemoryViewComputationResultModel _fullCopy;
   private ViewDeltaResultModel _delta;
   private InMemoryViewDeltaResultModel _deltaCopy;
+  /**
+   * The positions of the values in the merged delta, if merging by position. When set, {@link #_delta} is not current.
+   */
+  private BitSet _deltaPositions;
+  /**
+   * The full result that {@link #_deltaPositions} refers to.
+   */
+  private ColumnarViewComputationResultModel _deltaFull;
+  private Instant _deltaPreviousTimestamp;
 
   public AbstractCompletedResultsCall(ViewComputationResultModel full, ViewDeltaResultModel delta) {
     update(full, delta);
@@ -76,6 +93,13 @@ public abstract class AbstractCompletedResultsCall implements Function<ViewResul
       }
     }
     if (delta != null) {
+      if (mergeByPosition(full, delta)) {
+        s_logger.debug("Merged delta from {} by position", delta.getCalculationTime());
+        return;
+      }
+      if (_deltaPositions != null) {
+        materializeDelta();
+      }
       if (_delta != null) {
         final Instant previous = _delta.getCalculationTime();
         final Instant current = delta.getCalculationTime();
@@ -113,7 +137,63 @@ public abstract class AbstractCompletedResultsCall implements Function<ViewResul
   }
 
   public ViewDeltaResultModel getViewDeltaResultModel() {
+    if (_deltaPositions != null) {
+      materializeDelta();
+    }
     return _delta;
   }
 
+  /**
+   * Merges a delta by recording its positions in the layout of the full result that accompanies it. This is only possible if that
+   * full result has just become the current one, is a columnar model and the delta is not older than the deltas already merged.
+   *
+   * @param full the full result received with the delta
+   * @param delta the delta, not null
+   * @return true if the delta was merged, false if it must be merged into a delta model
+   */
+  private boolean mergeByPosition(final ViewComputationResultModel full, final ViewDeltaResultModel delta) {
+    if ((full == null) || (full != _full) || !(full instanceof ColumnarViewComputationResultModel)) {
+      return false;
+    }
+    final ColumnarViewComputationResultModel columnarFull = (ColumnarViewComputationResultModel) full;
+    final BitSet positions;
+    if (_deltaPositions != null) {
+      if (!columnarFull.getLayout().equals(_deltaFull.getLayout()) || delta.getCalculationTime().isBefore(_deltaFull.getCalculationTime())) {
+        return false;
+      }
+      positions = columnarFull.getPositions(delta);
+      if (positions == null) {
+        return false;
+      }
+      _deltaPositions.or(positions);
+    } else {
+      if ((_delta == null) || delta.getCalculationTime().isBefore(_delta.getCalculationTime())) {
+        return false;
+      }
+      positions = columnarFull.getPositions(delta);
+      final BitSet previousPositions = columnarFull.getPositions(_delta);
+      if ((positions == null) || (previousPositions == null)) {
+        return false;
+      }
+      positions.or(previousPositions);
+      _deltaPositions = positions;
+      _delta = null;
+      _deltaCopy = null;
+    }
+    _deltaFull = columnarFull;
+    _deltaPreviousTimestamp = delta.getPreviousResultTimestamp();
+    return true;
+  }
+
+  /**
+   * Builds the merged delta model from the recorded positions.
+   */
+  private void materializeDelta() {
+    _deltaCopy = _deltaFull.createDeltaModel(_deltaPositions, _deltaPreviousTimestamp);
+    _delta = _deltaCopy;
+    _deltaPositions = null;
+    _deltaFull = null;
+    _deltaPreviousTimestamp = null;
+  }
+
 }
@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.listener;
+
+/**
+ * Implemented by a {@link ViewResultListener} that queues the calls made on it for delivery elsewhere, for example to a
+ * remote client. Whatever is calling the listener can hold back, and merge, further calls until the queue has drained.
+ */
+public interface ViewResultBacklog {
+
+  /**
+   * Gets the number of calls received that have not yet been delivered.
+   *
+   * @return the number of undelivered calls
+   */
+  int getBacklog();
+
+}
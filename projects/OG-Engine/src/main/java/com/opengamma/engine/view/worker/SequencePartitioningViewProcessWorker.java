@@ -16,9 +16,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
 
+import com.opengamma.engine.resource.EngineResourceReference;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.cycle.SingleComputationCycle;
 import com.opengamma.engine.view.cycle.ViewCycle;
 import com.opengamma.engine.view.cycle.ViewCycleMetadata;
 import com.opengamma.engine.view.execution.ArbitraryViewCycleExecutionSequence;
@@ -31,6 +33,10 @@ import com.opengamma.engine.view.impl.ViewProcessContext;
 
 /**
  * Implementation of {@link ViewProcessWorker} for partitioning a sequence and delegating to other workers to handle each partition.
+ * <p>
+ * The partitions run concurrently. By default the notifications from each are passed to the context as they happen, so results for different cycles may arrive in any order. If ordered delivery
+ * is requested then notifications from a partition are held back until all of the partitions before it in the sequence have completed, giving the context the same order of results that a single
+ * worker would have produced. Completed cycles are retained through the cycle manager while they are held back.
  */
 public class SequencePartitioningViewProcessWorker implements ViewProcessWorker, ViewProcessWorkerContext {
 
@@ -43,6 +49,10 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
   private final ViewCycleExecutionSequence _sequence;
   private final ViewCycleExecutionOptions _defaultExecutionOptions;
   private final Queue<ViewProcessWorker> _workers = new LinkedList<ViewProcessWorker>();
+  /**
+   * The partitions not yet retired, in sequence order, when delivering in order. Null otherwise.
+   */
+  private final Queue<Partition> _partitions;
   private volatile ViewDefinition _viewDefinition;
   private int _partition;
   private boolean _terminated;
@@ -50,9 +60,18 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
   private int _spawnedCycleCount;
   private int _spawnedWorkers;
   private int _trigger;
+  /**
+   * Set while a thread is passing held back notifications to the context. Only the head partition may notify the context directly, and only when this is clear.
+   */
+  private boolean _delivering;
 
   public SequencePartitioningViewProcessWorker(final ViewProcessWorkerFactory delegate, final ViewProcessWorkerContext context, final ViewExecutionOptions executionOptions,
       final ViewDefinition viewDefinition, final int partition, final int maxWorkers) {
+    this(delegate, context, executionOptions, viewDefinition, partition, maxWorkers, false);
+  }
+
+  public SequencePartitioningViewProcessWorker(final ViewProcessWorkerFactory delegate, final ViewProcessWorkerContext context, final ViewExecutionOptions executionOptions,
+      final ViewDefinition viewDefinition, final int partition, final int maxWorkers, final boolean orderedDelivery) {
     _delegate = delegate;
     _context = context;
     _executionFlags = EnumSet.copyOf(executionOptions.getFlags());
@@ -62,6 +81,7 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
     _viewDefinition = viewDefinition;
     _partition = partition;
     _trigger = maxWorkers;
+    _partitions = orderedDelivery ? new LinkedList<Partition>() : null;
     if (!_executionFlags.remove(ViewExecutionFlags.WAIT_FOR_INITIAL_TRIGGER)) {
       // Kick off first batch of workers
       triggerCycle();
@@ -104,6 +124,10 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
     return _partition;
   }
 
+  private boolean isOrderedDelivery() {
+    return _partitions != null;
+  }
+
   private synchronized void spawnWorker() {
     ViewCycleExecutionSequence sequence = getSequence();
     final int partitionSize = getPartitionSize();
@@ -122,7 +146,15 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
       final int firstCycle = _spawnedCycleCount;
       _spawnedCycleCount += partition.size();
       s_logger.info("Spawning worker {} for {} cycles {} - {}", new Object[] {++_spawnedWorkerCount, getWorkerContext(), firstCycle, _spawnedCycleCount });
-      ViewProcessWorker delegate = getDelegate().createWorker(this, getExecutionOptions(new ArbitraryViewCycleExecutionSequence(partition)), getViewDefinition());
+      final ViewProcessWorkerContext context;
+      if (isOrderedDelivery()) {
+        final Partition orderedContext = new Partition(_spawnedWorkerCount);
+        _partitions.add(orderedContext);
+        context = orderedContext;
+      } else {
+        context = this;
+      }
+      ViewProcessWorker delegate = getDelegate().createWorker(context, getExecutionOptions(new ArbitraryViewCycleExecutionSequence(partition)), getViewDefinition());
       _workers.add(delegate);
       _spawnedWorkers++;
     }
@@ -166,9 +198,23 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
   @Override
   public void terminate() {
     Collection<ViewProcessWorker> delegates;
+    List<Notification> discarded = null;
     synchronized (this) {
       _terminated = true;
       delegates = new ArrayList<ViewProcessWorker>(_workers);
+      if (isOrderedDelivery()) {
+        // A terminated worker won't report completion, so the held back notifications would never be retired
+        discarded = new ArrayList<Notification>();
+        for (Partition partition : _partitions) {
+          discarded.addAll(partition._pending);
+          partition._pending.clear();
+        }
+      }
+    }
+    if (discarded != null) {
+      for (Notification notification : discarded) {
+        notification.discard();
+      }
     }
     for (ViewProcessWorker delegate : delegates) {
       delegate.terminate();
@@ -304,7 +350,7 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
     s_logger.debug("Worker completed");
     final boolean finished;
     synchronized (this) {
-      finished = (--_spawnedWorkers) == 0;
+      finished = ((--_spawnedWorkers) == 0) && !isOrderedDelivery();
       if (!_terminated) {
         spawnWorker();
       }
@@ -316,6 +362,219 @@ public class SequencePartitioningViewProcessWorker implements ViewProcessWorker,
     }
   }
 
+  // Ordered delivery
+
+  /**
+   * A notification from a partition that is held back until the partitions before it have completed.
+   */
+  private abstract static class Notification {
+
+    /**
+     * Passes the notification to the context.
+     * 
+     * @param context the context to notify, not null
+     */
+    public abstract void deliver(ViewProcessWorkerContext context);
+
+    /**
+     * Releases any resources held by a notification that will not be delivered.
+     */
+    public void discard() {
+      // No-op by default
+    }
+
+  }
+
+  /**
+   * The context given to the worker for one partition when delivering in order.
+   */
+  private final class Partition implements ViewProcessWorkerContext {
+
+    private final int _index;
+    private final List<Notification> _pending = new ArrayList<Notification>();
+    private boolean _completed;
+
+    public Partition(final int index) {
+      _index = index;
+    }
+
+    private void notify(final Notification notification) {
+      synchronized (SequencePartitioningViewProcessWorker.this) {
+        if (_delivering || (_partitions.peek() != this)) {
+          if (!_terminated) {
+            _pending.add(notification);
+          }
+          return;
+        }
+      }
+      notification.deliver(getWorkerContext());
+    }
+
+    @Override
+    public ViewProcessContext getProcessContext() {
+      return SequencePartitioningViewProcessWorker.this.getProcessContext();
+    }
+
+    @Override
+    public void viewDefinitionCompiled(final ViewExecutionDataProvider dataProvider, final CompiledViewDefinitionWithGraphs compiled) {
+      s_logger.debug("View definition compiled for partition {}", _index);
+      notify(new Notification() {
+        @Override
+        public void deliver(final ViewProcessWorkerContext context) {
+          context.viewDefinitionCompiled(dataProvider, compiled);
+        }
+      });
+    }
+
+    @Override
+    public void viewDefinitionCompilationFailed(final Instant compilationTime, final Exception exception) {
+      s_logger.debug("View definition compilation failed for partition {}", _index);
+      notify(new Notification() {
+        @Override
+        public void deliver(final ViewProcessWorkerContext context) {
+          context.viewDefinitionCompilationFailed(compilationTime, exception);
+        }
+      });
+    }
+
+    @Override
+    public void cycleStarted(final ViewCycleMetadata cycleMetadata) {
+      s_logger.debug("Cycle started for partition {}", _index);
+      notify(new Notification() {
+        @Override
+        public void deliver(final ViewProcessWorkerContext context) {
+          context.cycleStarted(cycleMetadata);
+        }
+      });
+    }
+
+    @Override
+    public void cycleFragmentCompleted(final ViewComputationResultModel result, final ViewDefinition viewDefinition) {
+      s_logger.debug("Cycle fragment completed for partition {}", _index);
+      notify(new Notification() {
+        @Override
+        public void deliver(final ViewProcessWorkerContext context) {
+          context.cycleFragmentCompleted(result, viewDefinition);
+        }
+      });
+    }
+
+    @Override
+    public void cycleCompleted(final ViewCycle cycle) {
+      s_logger.debug("Cycle completed for partition {}", _index);
+      synchronized (SequencePartitioningViewProcessWorker.this) {
+        if (_delivering || (_partitions.peek() != this)) {
+          if (_terminated) {
+            // Nothing held back will be delivered once terminated
+            return;
+          }
+          // The worker will release the cycle when we return, so take our own reference to it until it can be delivered
+          final EngineResourceReference<SingleComputationCycle> reference = getProcessContext().getCycleManager().createReference(cycle.getUniqueId());
+          if (reference == null) {
+            s_logger.warn("Couldn't retain cycle {} for ordered delivery", cycle.getUniqueId());
+          }
+          _pending.add(new Notification() {
+            @Override
+            public void deliver(final ViewProcessWorkerContext context) {
+              try {
+                context.cycleCompleted(cycle);
+              } finally {
+                discard();
+              }
+            }
+
+            @Override
+            public void discard() {
+              if (reference != null) {
+                reference.release();
+              }
+            }
+          });
+          return;
+        }
+      }
+      getWorkerContext().cycleCompleted(cycle);
+    }
+
+    @Override
+    public void cycleExecutionFailed(final ViewCycleExecutionOptions options, final Exception exception) {
+      s_logger.debug("Cycle execution failed for partition {}", _index);
+      notify(new Notification() {
+        @Override
+        public void deliver(final ViewProcessWorkerContext context) {
+          context.cycleExecutionFailed(options, exception);
+        }
+      });
+    }
+
+    @Override
+    public void workerCompleted() {
+      s_logger.debug("Worker completed for partition {}", _index);
+      // Spawn the next worker before retiring this one so that the partition queue is only empty when there is no more work
+      SequencePartitioningViewProcessWorker.this.workerCompleted();
+      synchronized (SequencePartitioningViewProcessWorker.this) {
+        _completed = true;
+        if (_delivering || (_partitions.peek() != this)) {
+          // An earlier partition is still running, or another thread is already delivering; it will retire this one
+          return;
+        }
+        _delivering = true;
+      }
+      retirePartitions();
+    }
+
+    @Override
+    public String toString() {
+      return "Partition " + _index + "[" + getWorkerContext() + "]";
+    }
+
+  }
+
+  /**
+   * Delivers the held back notifications of the partition at the head of the queue, retiring it and moving on to the next if it has completed. The caller must have set the delivering flag, which
+   * is cleared when there is nothing more that can be delivered.
+   */
+  private void retirePartitions() {
+    boolean finished = false;
+    while (true) {
+      final List<Notification> notifications;
+      final boolean terminated;
+      synchronized (this) {
+        final Partition head = _partitions.peek();
+        if (head == null) {
+          _delivering = false;
+          finished = (_spawnedWorkers == 0);
+          break;
+        }
+        if (head._pending.isEmpty()) {
+          if (head._completed) {
+            _partitions.poll();
+            continue;
+          }
+          _delivering = false;
+          break;
+        }
+        notifications = new ArrayList<Notification>(head._pending);
+        head._pending.clear();
+        terminated = _terminated;
+      }
+      for (Notification notification : notifications) {
+        if (terminated) {
+          notification.discard();
+        } else {
+          try {
+            notification.deliver(getWorkerContext());
+          } catch (RuntimeException e) {
+            s_logger.error("Error delivering notification to " + getWorkerContext(), e);
+          }
+        }
+      }
+    }
+    if (finished) {
+      getWorkerContext().workerCompleted();
+    }
+  }
+
   // Object
 
   @Override
@@ -19,6 +19,7 @@ import com.opengamma.util.ArgumentChecker;
 public abstract class SequencePartitioningViewProcessWorkerFactory implements ViewProcessWorkerFactory {
 
   private final ViewProcessWorkerFactory _delegate;
+  private volatile boolean _orderedDelivery;
 
   public SequencePartitioningViewProcessWorkerFactory(final ViewProcessWorkerFactory delegate) {
     ArgumentChecker.notNull(delegate, "delegate");
@@ -29,6 +30,20 @@ public abstract class SequencePartitioningViewProcessWorkerFactory implements Vi
     return _delegate;
   }
 
+  /**
+   * Sets whether the results from the concurrently executing partitions should be delivered in sequence order. If set, the notifications from a partition are held back until the partitions before
+   * it have completed. This costs memory, for the results held, but means the context sees the cycles in the same order as it would from a single worker.
+   * 
+   * @param orderedDelivery true to deliver results in sequence order, false to deliver them as they are produced
+   */
+  public void setOrderedDelivery(final boolean orderedDelivery) {
+    _orderedDelivery = orderedDelivery;
+  }
+
+  public boolean isOrderedDelivery() {
+    return _orderedDelivery;
+  }
+
   /**
    * Estimate the saturation level for the execution environment. This is the number of workers that we should run in parallel at any time. If the total number of cycles is known then we should spawn
    * this many workers, each with a fair subset of the total cycles.
@@ -82,6 +97,6 @@ public abstract class SequencePartitioningViewProcessWorkerFactory implements Vi
     if (partition < minimumPartition) {
       partition = minimumPartition;
     }
-    return new SequencePartitioningViewProcessWorker(getDelegate(), context, executionOptions, viewDefinition, partition, saturation);
+    return new SequencePartitioningViewProcessWorker(getDelegate(), context, executionOptions, viewDefinition, partition, saturation, isOrderedDelivery());
   }
 }
@@ -53,6 +53,7 @@ import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraphExplorer;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.depgraph.impl.DependencyNodeImpl;
+import com.opengamma.engine.depgraph.impl.DependentNodeIndex;
 import com.opengamma.engine.depgraph.impl.RootDiscardingSubgrapher;
 import com.opengamma.engine.function.FunctionParameters;
 import com.opengamma.engine.marketdata.MarketDataSnapshot;
@@ -86,6 +87,7 @@ import com.opengamma.engine.view.cycle.ViewCycleState;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
+import com.opengamma.engine.view.impl.ResultModelLayout;
 import com.opengamma.engine.view.impl.ViewProcessContext;
 import com.opengamma.engine.view.listener.ComputationResultListener;
 import com.opengamma.engine.view.worker.cache.ViewExecutionCacheKey;
@@ -200,6 +202,15 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
   private final boolean _executeGraphs;
   private final boolean _ignoreCompilationValidity;
   private final boolean _suppressExecutionOnNoMarketData;
+  private final boolean _columnarResults;
+  /**
+   * The layout of the columnar result models, shared by the cycles of the compilation it was created for. Only accessed by the thread executing cycles.
+   */
+  private ResultModelLayout _resultModelLayout;
+  /**
+   * The compilation that {@link #_resultModelLayout} was created for.
+   */
+  private CompiledViewDefinitionWithGraphs _resultModelLayoutCompilation;
   /**
    * The changes to the master trigger that must be made during the next cycle.
    * <p>
@@ -290,6 +301,12 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
    */
   private final AtomicBoolean _forceGraphRebuild = new AtomicBoolean();
 
+  /**
+   * Reverse indices of the most recently compiled graphs, by calculation configuration, allowing the nodes affected by changed targets to be found without visiting the whole of each
+   * graph. These are only maintained once target changes have caused an incremental compilation, and are only accessed by the thread performing the compilations.
+   */
+  private Map<String, DependentNodeIndex> _dependentNodeIndices;
+
   public SingleThreadViewProcessWorker(final ViewProcessWorkerContext context, final ViewExecutionOptions executionOptions, final ViewDefinition viewDefinition) {
     ArgumentChecker.notNull(context, "context");
     ArgumentChecker.notNull(executionOptions, "executionOptions");
@@ -322,6 +339,7 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
     _executeGraphs = !executionOptions.getFlags().contains(ViewExecutionFlags.FETCH_MARKET_DATA_ONLY);
     _suppressExecutionOnNoMarketData = executionOptions.getFlags().contains(ViewExecutionFlags.SKIP_CYCLE_ON_NO_MARKET_DATA);
     _ignoreCompilationValidity = executionOptions.getFlags().contains(ViewExecutionFlags.IGNORE_COMPILATION_VALIDITY);
+    _columnarResults = executionOptions.getFlags().contains(ViewExecutionFlags.COLUMNAR_RESULTS);
     _viewDefinition = viewDefinition;
     _specificMarketDataSelectors = extractSpecificSelectors(viewDefinition);
     _marketDataManager = createMarketDataManager(context);
@@ -888,10 +906,27 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
       }
     };
     final SingleComputationCycle cycle = new SingleComputationCycle(cycleId, executionOptions.getName(), streamingResultListener, getProcessContext(), compiledViewDefinition,
-        executionOptions, versionCorrection);
+        executionOptions, versionCorrection, getResultModelLayout(compiledViewDefinition));
     return getProcessContext().getCycleManager().manage(cycle);
   }
 
+  /**
+   * Returns the layout for columnar result models of a compilation, reusing the previous layout for cycles of the same compilation so that their results can be compared by position.
+   * 
+   * @param compiledViewDefinition the compilation, not null
+   * @return the layout, or null if results are not held in columnar models
+   */
+  private ResultModelLayout getResultModelLayout(final CompiledViewDefinitionWithGraphs compiledViewDefinition) {
+    if (!_columnarResults) {
+      return null;
+    }
+    if (_resultModelLayoutCompilation != compiledViewDefinition) {
+      _resultModelLayout = ResultModelLayout.of(compiledViewDefinition);
+      _resultModelLayoutCompilation = compiledViewDefinition;
+    }
+    return _resultModelLayout;
+  }
+
   private void subscribeToTargetResolverChanges() {
     if (_targetResolverChanges == null) {
       _targetResolverChanges = new TargetResolverChangeListener() {
@@ -1145,25 +1180,12 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
       while (itrTerminalOutput.hasNext()) {
         final Map.Entry<ValueSpecification, Set<ValueRequirement>> entry = itrTerminalOutput.next();
         if (unmap.contains(entry.getKey().getTargetSpecification().getUniqueId())) {
-          List<ValueRequirement> removal = null;
-          for (final ValueRequirement requirement : entry.getValue()) {
-            if (!specificRequirements.contains(requirement)) {
-              if (removal == null) {
-                removal = new ArrayList<>(entry.getValue().size());
-              }
-              removal.add(requirement);
-            }
-            // Anything that was in the specific requirements will be captured by the standard invalid identifier tests
-          }
-          if (removal != null) {
-            if (removal.size() == entry.getValue().size()) {
-              // No longer a terminal output
-              itrTerminalOutput.remove();
-            } else {
-              final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>(entry.getValue());
-              requirements.removeAll(removal);
-              entry.setValue(requirements);
-            }
+          final Set<ValueRequirement> requirements = unmapRequirements(entry.getValue(), specificRequirements);
+          if (requirements == null) {
+            // No longer a terminal output
+            itrTerminalOutput.remove();
+          } else {
+            entry.setValue(requirements);
           }
         }
       }
@@ -1181,6 +1203,140 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
     }
   }
 
+  /**
+   * Removes the portfolio derived requirements from a terminal output's requirement set.
+   * 
+   * @param requirements the terminal output requirements, not null
+   * @param specificRequirements the specific requirements of the calculation configuration, not null
+   * @return the remaining requirements, or null if there are none and the value is no longer a terminal output
+   */
+  private static Set<ValueRequirement> unmapRequirements(final Set<ValueRequirement> requirements, final Set<ValueRequirement> specificRequirements) {
+    List<ValueRequirement> removal = null;
+    for (final ValueRequirement requirement : requirements) {
+      if (!specificRequirements.contains(requirement)) {
+        if (removal == null) {
+          removal = new ArrayList<>(requirements.size());
+        }
+        removal.add(requirement);
+      }
+      // Anything that was in the specific requirements will be captured by the standard invalid identifier tests
+    }
+    if (removal == null) {
+      return requirements;
+    } else if (removal.size() == requirements.size()) {
+      return null;
+    } else {
+      final Set<ValueRequirement> remaining = new HashSet<ValueRequirement>(requirements);
+      remaining.removeAll(removal);
+      return remaining;
+    }
+  }
+
+  /**
+   * Removes the nodes affected by changed targets from the previous graphs using the indices retained from the previous compilation.
+   * <p>
+   * This is equivalent to {@link #mapAndUnmapNodes} with no mapping followed by filtering with {@link InvalidPortfolioDependencyNodeFilter} and
+   * {@link InvalidTargetDependencyNodeFilter}, but only visits the nodes that are removed rather than the whole of each graph. The indices are taken by this call; they describe the
+   * partial graphs afterwards and can be updated from the result of the incremental compilation.
+   * 
+   * @param previousGraphs the previous graphs, freshly taken from the compiled view definition, not null
+   * @param compiledViewDefinition the compiled view definition the previous graphs are taken from, not null
+   * @param unmap the set of old unique identifiers that might not have portfolio derived terminal outputs, not null
+   * @param invalidIdentifiers the old unique identifiers that now resolve differently, not null
+   * @return the indices describing the updated graphs, or null if there are no suitable indices and the graphs have not been modified
+   */
+  private Map<String, DependentNodeIndex> removeChangedTargets(final Map<String, PartiallyCompiledGraph> previousGraphs, final CompiledViewDefinitionWithGraphs compiledViewDefinition,
+      final Set<UniqueId> unmap, final Set<UniqueId> invalidIdentifiers) {
+    final Map<String, DependentNodeIndex> indices = _dependentNodeIndices;
+    _dependentNodeIndices = null;
+    if (indices == null) {
+      return null;
+    }
+    for (DependencyGraphExplorer explorer : compiledViewDefinition.getDependencyGraphExplorers()) {
+      final DependentNodeIndex index = indices.get(explorer.getCalculationConfigurationName());
+      if ((index == null) || (index.getGraph() != explorer.getWholeGraph())) {
+        s_logger.debug("No dependent node index for {}", explorer.getCalculationConfigurationName());
+        return null;
+      }
+    }
+    final UniqueId portfolioId = (compiledViewDefinition.getPortfolio() != null) ? compiledViewDefinition.getPortfolio().getUniqueId() : null;
+    final Iterator<Map.Entry<String, PartiallyCompiledGraph>> itr = previousGraphs.entrySet().iterator();
+    while (itr.hasNext()) {
+      final Map.Entry<String, PartiallyCompiledGraph> entry = itr.next();
+      final PartiallyCompiledGraph previousGraph = entry.getValue();
+      final DependentNodeIndex index = indices.get(entry.getKey());
+      final Set<ValueRequirement> specificRequirements = compiledViewDefinition.getViewDefinition().getCalculationConfiguration(entry.getKey()).getSpecificRequirements();
+      final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = previousGraph.getTerminalOutputs();
+      final List<DependencyNode> invalidNodes = new ArrayList<DependencyNode>();
+      // Remove the portfolio derived terminal outputs from unmapped targets, and note any unmapped portfolio nodes
+      for (UniqueId target : unmap) {
+        for (DependencyNode node : index.getNodes(target)) {
+          if (node.getTarget().getType().isTargetType(ComputationTargetType.PORTFOLIO_NODE)) {
+            invalidNodes.add(node);
+          }
+          final int count = node.getOutputCount();
+          for (int i = 0; i < count; i++) {
+            final ValueSpecification output = node.getOutputValue(i);
+            final Set<ValueRequirement> requirements = terminalOutputs.get(output);
+            if (requirements != null) {
+              final Set<ValueRequirement> remaining = unmapRequirements(requirements, specificRequirements);
+              if (remaining == null) {
+                terminalOutputs.remove(output);
+              } else {
+                terminalOutputs.put(output, remaining);
+              }
+            }
+          }
+        }
+      }
+      // Remove any PORTFOLIO nodes and the nodes on invalid targets, with everything that depends on them
+      if (portfolioId != null) {
+        for (DependencyNode node : index.getNodes(portfolioId)) {
+          if (node.getTarget().getType().isTargetType(ComputationTargetType.PORTFOLIO)) {
+            invalidNodes.add(node);
+          }
+        }
+      }
+      for (UniqueId target : invalidIdentifiers) {
+        invalidNodes.addAll(index.getNodes(target));
+      }
+      final Set<DependencyNode> removed = index.removeDependents(invalidNodes, previousGraph.getRoots(), terminalOutputs, previousGraph.getMissingRequirements());
+      s_logger.debug("Removed {} nodes from {} affected by target changes", removed.size(), entry.getKey());
+      if (previousGraph.getRoots().isEmpty()) {
+        s_logger.info("Discarded total dependency graph for {}", entry.getKey());
+        indices.remove(entry.getKey());
+        itr.remove();
+      }
+    }
+    return indices;
+  }
+
+  /**
+   * Updates, or creates, the dependent node indices for a newly compiled view definition.
+   * 
+   * @param compiledViewDefinition the compiled view definition, not null
+   * @param indices the indices describing the partial graphs used for an incremental compilation, or null if there are none
+   * @param required true if indices are required for subsequent compilations, false to discard them
+   */
+  private void updateDependentNodeIndices(final CompiledViewDefinitionWithGraphs compiledViewDefinition, final Map<String, DependentNodeIndex> indices, final boolean required) {
+    if (!required) {
+      _dependentNodeIndices = null;
+      return;
+    }
+    final Collection<DependencyGraphExplorer> explorers = compiledViewDefinition.getDependencyGraphExplorers();
+    final Map<String, DependentNodeIndex> newIndices = Maps.newHashMapWithExpectedSize(explorers.size());
+    for (DependencyGraphExplorer explorer : explorers) {
+      final DependencyGraph graph = explorer.getWholeGraph();
+      DependentNodeIndex index = (indices != null) ? indices.get(explorer.getCalculationConfigurationName()) : null;
+      if ((index == null) || !index.update(graph)) {
+        s_logger.debug("Indexing dependent nodes of {}", explorer.getCalculationConfigurationName());
+        index = new DependentNodeIndex(graph);
+      }
+      newIndices.put(explorer.getCalculationConfigurationName(), index);
+    }
+    _dependentNodeIndices = newIndices;
+  }
+
   /**
    * Returns the set of unique identifiers that were previously used as targets in the dependency graph for object identifiers (or external identifiers) that now resolve differently.
    * 
@@ -1345,6 +1501,8 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
         ConcurrentMap<ComputationTargetReference, UniqueId> previousResolutions = null;
         Set<UniqueId> changedPositions = null;
         Set<UniqueId> unchangedNodes = null;
+        Map<String, DependentNodeIndex> dependentNodeIndices = null;
+        boolean indexDependentNodes = false;
         ViewCompilationServices compilationServices = null;
         if (!_forceGraphRebuild.getAndSet(false)) {
           compiledViewDefinition = getCachedCompiledViewDefinition(valuationTime, versionCorrection);
@@ -1425,12 +1583,21 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
                   } else {
                     mapped = null;
                   }
-                  // Remove terminal outputs and rewrite nodes
-                  mapAndUnmapNodes(previousGraphs, compiledViewDefinition, mapped, unmapped);
-                  // Remove any PORTFOLIO nodes and any unmapped PORTFOLIO_NODE nodes with the filter
-                  filterPreviousGraphs(previousGraphs, new InvalidPortfolioDependencyNodeFilter(unmapped), null);
-                  // Invalidate any dependency graph nodes on the invalid targets
-                  filterPreviousGraphs(previousGraphs, new InvalidTargetDependencyNodeFilter(invalidIdentifiers.keySet()), unchangedNodes);
+                  if (mapped == null) {
+                    // Only the changed targets are affected; remove just their nodes if the graphs have been indexed
+                    dependentNodeIndices = removeChangedTargets(previousGraphs, compiledViewDefinition, unmapped, invalidIdentifiers.keySet());
+                    indexDependentNodes = true;
+                  } else {
+                    _dependentNodeIndices = null;
+                  }
+                  if (dependentNodeIndices == null) {
+                    // Remove terminal outputs and rewrite nodes
+                    mapAndUnmapNodes(previousGraphs, compiledViewDefinition, mapped, unmapped);
+                    // Remove any PORTFOLIO nodes and any unmapped PORTFOLIO_NODE nodes with the filter
+                    filterPreviousGraphs(previousGraphs, new InvalidPortfolioDependencyNodeFilter(unmapped), null);
+                    // Invalidate any dependency graph nodes on the invalid targets
+                    filterPreviousGraphs(previousGraphs, new InvalidTargetDependencyNodeFilter(invalidIdentifiers.keySet()), unchangedNodes);
+                  }
                 } else {
                   compiledViewDefinition = compiledViewDefinition.withResolverVersionCorrection(versionCorrection);
                   cacheCompiledViewDefinition(compiledViewDefinition);
@@ -1481,6 +1648,7 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
                 .atVersionCorrection(versionCorrection);
             compiledViewDefinition = initialiseMarketDataManipulation(compiledViewDefinition, resolver);
             cacheCompiledViewDefinition(compiledViewDefinition);
+            updateDependentNodeIndices(compiledViewDefinition, dependentNodeIndices, indexDependentNodes);
           } else {
             return null;
           }
@@ -71,4 +71,14 @@ public final class StaticSequencePartitioningViewProcessWorkerFactory implements
     return getFactory().getMaximumCycles();
   }
 
+  @Override
+  public void setOrderedDelivery(boolean orderedDelivery) {
+    getFactory().setOrderedDelivery(orderedDelivery);
+  }
+
+  @Override
+  public boolean isOrderedDelivery() {
+    return getFactory().isOrderedDelivery();
+  }
+
 }
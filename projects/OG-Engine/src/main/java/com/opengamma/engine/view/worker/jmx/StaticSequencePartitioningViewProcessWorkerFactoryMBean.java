@@ -22,4 +22,8 @@ public interface StaticSequencePartitioningViewProcessWorkerFactoryMBean {
 
   int getMaximumCyclesPerWorker();
 
+  void setOrderedDelivery(boolean orderedDelivery);
+
+  boolean isOrderedDelivery();
+
 }
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link MappedFileBinaryDataStore} class.
+ */
+@Test(groups = TestGroup.UNIT, singleThreaded = true)
+public class MappedFileBinaryDataStoreTest {
+
+  private File _directory;
+
+  @BeforeMethod
+  public void createDirectory() {
+    _directory = new File(System.getProperty("java.io.tmpdir"), "MappedFileBinaryDataStoreTest-" + System.nanoTime());
+    assertTrue(_directory.mkdirs());
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    FileUtils.deleteDirectory(_directory);
+  }
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] data = new byte[length];
+    random.nextBytes(data);
+    return data;
+  }
+
+  public void testPutGet() {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, "testPutGet", 1024);
+    final Random random = new Random(1L);
+    final byte[] a = randomBytes(random, 100);
+    final byte[] b = randomBytes(random, 0);
+    store.put(1L, a);
+    store.put(2L, b);
+    assertTrue(Arrays.equals(store.get(1L), a));
+    assertTrue(Arrays.equals(store.get(2L), b));
+    assertNull(store.get(3L));
+    store.delete();
+  }
+
+  public void testOverwrite() {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, "testOverwrite", 1024);
+    store.put(1L, new byte[] {1, 2, 3 });
+    store.put(1L, new byte[] {4, 5 });
+    assertTrue(Arrays.equals(store.get(1L), new byte[] {4, 5 }));
+    store.delete();
+  }
+
+  public void testSegmentRollover() {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, "testSegmentRollover", 256);
+    final Random random = new Random(2L);
+    final Map<Long, byte[]> expected = new HashMap<Long, byte[]>();
+    for (long i = 0; i < 100; i++) {
+      final byte[] data = randomBytes(random, 10 + random.nextInt(100));
+      expected.put(i, data);
+      store.put(i, data);
+    }
+    // a value larger than the segment size gets a segment of its own
+    final byte[] large = randomBytes(random, 1000);
+    expected.put(100L, large);
+    store.put(100L, large);
+    assertTrue(store.getSegmentCount() > 1);
+    for (Map.Entry<Long, byte[]> entry : expected.entrySet()) {
+      assertTrue(Arrays.equals(store.get(entry.getKey()), entry.getValue()));
+    }
+    store.delete();
+  }
+
+  public void testBulkPutGet() {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, "testBulkPutGet", 512);
+    final Random random = new Random(3L);
+    final Map<Long, byte[]> data = new HashMap<Long, byte[]>();
+    for (long i = 0; i < 50; i++) {
+      data.put(i, randomBytes(random, 50));
+    }
+    store.put(data);
+    final Map<Long, byte[]> result = store.get(Arrays.asList(0L, 10L, 49L, 50L));
+    assertEquals(result.size(), 3);
+    assertTrue(Arrays.equals(result.get(0L), data.get(0L)));
+    assertTrue(Arrays.equals(result.get(10L), data.get(10L)));
+    assertTrue(Arrays.equals(result.get(49L), data.get(49L)));
+    store.delete();
+  }
+
+  public void testDeleteRemovesFiles() {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, "testDeleteRemovesFiles", 64);
+    for (long i = 0; i < 10; i++) {
+      store.put(i, new byte[40]);
+    }
+    assertTrue(_directory.list().length > 0);
+    store.delete();
+    assertNull(store.get(0L));
+    assertEquals(store.getSegmentCount(), 0);
+    // File deletion of a still-mapped segment may be deferred on some platforms
+    if (!System.getProperty("os.name").startsWith("Windows")) {
+      assertEquals(_directory.list().length, 0);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testPutAfterDelete() {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, "testPutAfterDelete", 64);
+    store.delete();
+    store.put(1L, new byte[1]);
+  }
+
+  public void testDeleteDuringAccess() throws InterruptedException {
+    final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(_directory, "testDeleteDuringAccess", 256);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final CountDownLatch started = new CountDownLatch(4);
+    final Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final long base = t * 1000000L;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          started.countDown();
+          try {
+            for (long i = base; ; i++) {
+              store.put(i, new byte[32]);
+              store.get(i);
+              store.get(base);
+            }
+          } catch (IllegalStateException e) {
+            // the store was deleted
+          } catch (Throwable e) {
+            failure.set(e);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    started.await();
+    Thread.sleep(50);
+    store.delete();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure.get());
+    assertNull(store.get(0L));
+  }
+
+  public void testFactory() {
+    final MappedFileBinaryDataStoreFactory factory = new MappedFileBinaryDataStoreFactory(_directory, 1024);
+    final ViewComputationCacheKey key = new ViewComputationCacheKey(UniqueId.of("Cycle", "1"), "Default");
+    final BinaryDataStore store1 = factory.createDataStore(key);
+    final BinaryDataStore store2 = factory.createDataStore(key);
+    store1.put(1L, new byte[] {1 });
+    store2.put(1L, new byte[] {2 });
+    assertTrue(Arrays.equals(store1.get(1L), new byte[] {1 }));
+    assertTrue(Arrays.equals(store2.get(1L), new byte[] {2 }));
+    store1.delete();
+    store2.delete();
+  }
+
+}
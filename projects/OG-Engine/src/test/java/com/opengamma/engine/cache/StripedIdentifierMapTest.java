@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link StripedIdentifierMap} class.
+ */
+@Test(groups = TestGroup.INTEGRATION)
+public class StripedIdentifierMapTest extends AbstractIdentifierMapTest {
+
+  @Override
+  protected IdentifierMap createIdentifierMap(String testName) {
+    return new StripedIdentifierMap();
+  }
+
+  public void unknownIdentifier() {
+    final IdentifierMap idMap = new StripedIdentifierMap(4);
+    assertNull(idMap.getValueSpecification(0L));
+    assertNull(idMap.getValueSpecification(1L));
+    assertNull(idMap.getValueSpecification(1L << 40));
+  }
+
+  public void concurrentAllocation() throws Exception {
+    final IdentifierMap idMap = new StripedIdentifierMap(4);
+    final List<ValueSpecification> specs = new ArrayList<ValueSpecification>();
+    // Enough values to need several chunks of the reverse mapping
+    for (int i = 0; i < 10000; i++) {
+      specs.add(getValueSpec("value-" + i));
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<Object2LongMap<ValueSpecification>>> futures = new ArrayList<Future<Object2LongMap<ValueSpecification>>>();
+      for (int t = 0; t < 4; t++) {
+        final boolean bulk = (t & 1) == 0;
+        futures.add(executor.submit(new Callable<Object2LongMap<ValueSpecification>>() {
+          @Override
+          public Object2LongMap<ValueSpecification> call() {
+            if (bulk) {
+              return idMap.getIdentifiers(specs);
+            }
+            final Object2LongMap<ValueSpecification> result = new Object2LongOpenHashMap<ValueSpecification>();
+            for (ValueSpecification spec : specs) {
+              result.put(spec, idMap.getIdentifier(spec));
+            }
+            return result;
+          }
+        }));
+      }
+      final Object2LongMap<ValueSpecification> expected = futures.get(0).get();
+      assertEquals(specs.size(), expected.size());
+      for (Future<Object2LongMap<ValueSpecification>> future : futures) {
+        assertEquals(expected, future.get());
+      }
+      for (ValueSpecification spec : specs) {
+        assertEquals(spec, idMap.getValueSpecification(expected.getLong(spec)));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
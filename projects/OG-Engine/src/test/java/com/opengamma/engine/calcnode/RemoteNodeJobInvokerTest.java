@@ -5,12 +5,17 @@
  */
 package com.opengamma.engine.calcnode;
 
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsgEnvelope;
@@ -20,8 +25,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.cache.InMemoryIdentifierMap;
+import com.opengamma.engine.calcnode.msg.Compressed;
 import com.opengamma.engine.calcnode.msg.Execute;
+import com.opengamma.engine.calcnode.msg.ExecuteBatch;
 import com.opengamma.engine.calcnode.msg.Ready;
 import com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessage;
 import com.opengamma.engine.calcnode.msg.Result;
@@ -119,4 +127,106 @@ public class RemoteNodeJobInvokerTest {
     }
   }
 
+  public void batchedCompressedInvocation() {
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      final JobDispatcher jobDispatcher = new JobDispatcher();
+      final Ready initialMessage = new Ready(20, "Test");
+      final DirectFudgeConnection conduit = new DirectFudgeConnection(s_fudgeContext);
+      final RemoteNodeJobInvoker jobInvoker = new RemoteNodeJobInvoker(executor, initialMessage, conduit.getEnd1(), new InMemoryIdentifierMap(), new FunctionCosts(),
+          new DummyFunctionBlacklistQuery(), new DummyFunctionBlacklistMaintainer());
+      jobInvoker.setMaxBatchSize(5);
+      jobInvoker.setCompressionThreshold(1);
+      jobDispatcher.registerJobInvoker(jobInvoker);
+      final FudgeConnection remoteNode = conduit.getEnd2();
+      remoteNode.setFudgeMessageReceiver(new FudgeMessageReceiver() {
+        @Override
+        public void messageReceived(FudgeContext fudgeContext, FudgeMsgEnvelope msgEnvelope) {
+          final FudgeDeserializer dcontext = new FudgeDeserializer(fudgeContext);
+          RemoteCalcNodeMessage message = dcontext.fudgeMsgToObject(RemoteCalcNodeMessage.class, msgEnvelope.getMessage());
+          assertTrue(message instanceof Compressed);
+          message = dcontext.fudgeMsgToObject(RemoteCalcNodeMessage.class, MessageCompression.decode(fudgeContext, (Compressed) message));
+          final List<CalculationJob> jobs;
+          if (message instanceof ExecuteBatch) {
+            jobs = ((ExecuteBatch) message).getJob();
+            assertTrue(jobs.size() <= 5);
+          } else {
+            assertTrue(message instanceof Execute);
+            jobs = Collections.singletonList(((Execute) message).getJob());
+          }
+          final FudgeSerializer scontext = new FudgeSerializer(fudgeContext);
+          for (CalculationJob job : jobs) {
+            final Result result = new Result(JobDispatcherTest.createTestJobResult(job.getSpecification(), 0, "Test"));
+            remoteNode.getFudgeMessageSender().send(FudgeSerializer.addClassHeader(scontext.objectToFudgeMsg(result), result.getClass(), RemoteCalcNodeMessage.class));
+          }
+        }
+      });
+      final TestJobResultReceiver[] resultReceivers = new TestJobResultReceiver[100];
+      for (int i = 0; i < resultReceivers.length; i++) {
+        resultReceivers[i] = new TestJobResultReceiver();
+        jobDispatcher.dispatchJob(JobDispatcherTest.createTestJob(), resultReceivers[i]);
+      }
+      for (int i = 0; i < resultReceivers.length; i++) {
+        assertNotNull(resultReceivers[i].waitForResult(TIMEOUT));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void batchedInvocationSendFailure() throws InterruptedException {
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      final Ready initialMessage = new Ready(2, "Test");
+      final DirectFudgeConnection conduit = new DirectFudgeConnection(s_fudgeContext);
+      final RemoteNodeJobInvoker jobInvoker = new RemoteNodeJobInvoker(executor, initialMessage, conduit.getEnd1(), new InMemoryIdentifierMap(), new FunctionCosts(),
+          new DummyFunctionBlacklistQuery(), new DummyFunctionBlacklistMaintainer()) {
+        @Override
+        protected void sendMessage(final RemoteCalcNodeMessage message) {
+          if ((message instanceof Execute) || (message instanceof ExecuteBatch)) {
+            throw new OpenGammaRuntimeException("Send failed");
+          }
+          super.sendMessage(message);
+        }
+      };
+      jobInvoker.setMaxBatchSize(5);
+      final CountDownLatch failed = new CountDownLatch(2);
+      final JobInvocationReceiver receiver = new JobInvocationReceiver() {
+
+        @Override
+        public void jobCompleted(final CalculationJobResult result) {
+          // Nothing is sent, so nothing can complete
+          assertFalse(true);
+        }
+
+        @Override
+        public void jobFailed(final JobInvoker jobInvoker, final String computeNodeId, final Exception exception) {
+          failed.countDown();
+        }
+
+      };
+      assertTrue(jobInvoker.invoke(JobDispatcherTest.createTestJob(), receiver));
+      assertTrue(jobInvoker.invoke(JobDispatcherTest.createTestJob(), receiver));
+      assertTrue(failed.await(TIMEOUT, TimeUnit.MILLISECONDS));
+      // The failed jobs must have released their capacity
+      final CountDownLatch failedAgain = new CountDownLatch(1);
+      assertTrue(jobInvoker.invoke(JobDispatcherTest.createTestJob(), new JobInvocationReceiver() {
+
+        @Override
+        public void jobCompleted(final CalculationJobResult result) {
+          assertFalse(true);
+        }
+
+        @Override
+        public void jobFailed(final JobInvoker jobInvoker, final String computeNodeId, final Exception exception) {
+          failedAgain.countDown();
+        }
+
+      }));
+      assertTrue(failedAgain.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
 }
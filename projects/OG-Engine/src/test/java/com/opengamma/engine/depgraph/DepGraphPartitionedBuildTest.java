@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.test.TestLifecycle;
+
+/**
+ * Tests the dependency graph building with {@link PartitionedDependencyGraphBuild}.
+ */
+@Test(groups = TestGroup.UNIT)
+public class DepGraphPartitionedBuildTest extends AbstractDependencyGraphBuilderTest {
+
+  private DependencyGraphBuilderFactory factory() {
+    final DependencyGraphBuilderFactory factory = new DependencyGraphBuilderFactory();
+    factory.setPartitionParallelism(2);
+    return factory;
+  }
+
+  public void partitionsMerged() {
+    TestLifecycle.begin();
+    try {
+      final DepGraphTestHelper helper = helper();
+      helper.addFunctionRequiring2Producing1();
+      helper.addFunctionProducing2();
+      final DependencyGraphBuilderFactory factory = factory();
+      final PartitionedDependencyGraphBuild build = factory.newPartitionedBuild(helper.createBuilder(null));
+      // Both partitions will produce a node for requirement 2
+      build.addTarget(build.newPartition(), helper.getRequirement1());
+      build.addTarget(build.newPartition(), helper.getRequirement2());
+      final DependencyGraph graph = build.getDependencyGraph();
+      assertNotNull(graph);
+      assertEquals(2, graph.getSize());
+      assertEquals(ImmutableSet.of(helper.getSpec1(), helper.getSpec2()), graph.getTerminalOutputs().keySet());
+      assertEquals(2, build.getCompletedPartitions());
+      assertEquals(PartitionedDependencyGraphBuild.Phase.COMPLETE, build.getPhase());
+      assertEquals(1d, build.buildFractionEstimate().get());
+      // The pool is kept for later builds
+      assertTrue(factory.isPartitionPoolActive());
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+  public void completionUsesPartitions() {
+    TestLifecycle.begin();
+    try {
+      final DepGraphTestHelper helper = helper();
+      helper.addFunctionRequiring2Producing1();
+      helper.addFunctionProducing2();
+      final PartitionedDependencyGraphBuild build = factory().newPartitionedBuild(helper.createBuilder(null));
+      build.addTarget(build.newPartition(), helper.getRequirement2());
+      build.addTarget(helper.getRequirement1());
+      build.build();
+      assertEquals(PartitionedDependencyGraphBuild.Phase.COMPLETION, build.getPhase());
+      final DependencyGraph graph = build.getDependencyGraph();
+      assertEquals(2, graph.getSize());
+      assertEquals(ImmutableSet.of(helper.getSpec1(), helper.getSpec2()), graph.getTerminalOutputs().keySet());
+      assertTrue(build.getPhaseTime(PartitionedDependencyGraphBuild.Phase.PARTITION) > 0);
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+  public void noPartitions() {
+    TestLifecycle.begin();
+    try {
+      final DepGraphTestHelper helper = helper();
+      helper.addFunctionProducing2();
+      final PartitionedDependencyGraphBuild build = factory().newPartitionedBuild(helper.createBuilder(null));
+      build.addTarget(helper.getRequirement2());
+      final DependencyGraph graph = build.getDependencyGraph();
+      assertEquals(1, graph.getSize());
+      assertTrue(DependencyGraphImpl.getAllOutputSpecifications(graph).contains(helper.getSpec2()));
+      assertEquals(0, build.getPhaseTime(PartitionedDependencyGraphBuild.Phase.PARTITION));
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+}
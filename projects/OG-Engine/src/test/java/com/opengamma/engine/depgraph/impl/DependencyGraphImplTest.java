@@ -10,6 +10,7 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertSame;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
@@ -198,4 +199,38 @@ public class DependencyGraphImplTest {
     assertEquals(graphB, graphA);
   }
 
+  public void testMerge() {
+    final ValueSpecification[] v = new ValueSpecification[4];
+    final ValueRequirement[] r = new ValueRequirement[4];
+    for (int i = 0; i < v.length; i++) {
+      v[i] = new ValueSpecification(Integer.toString(i), ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+      r[i] = new ValueRequirement(Integer.toString(i), ComputationTargetSpecification.NULL);
+    }
+    final DependencyNodeFunction function = DependencyNodeFunctionImpl.of("Test", EmptyFunctionParameters.INSTANCE);
+    // Both graphs use v[0], but from different node instances with different additional outputs
+    final DependencyNode a1 = DependencyNodeImpl.of(function, ComputationTargetSpecification.NULL, new ValueSpecification[] {v[0] }, new ValueSpecification[0], new DependencyNode[0]);
+    final DependencyNode b = DependencyNodeImpl.of(function, ComputationTargetSpecification.NULL, new ValueSpecification[] {v[1] }, new ValueSpecification[] {v[0] }, new DependencyNode[] {a1 });
+    final DependencyNode a2 = DependencyNodeImpl.of(function, ComputationTargetSpecification.NULL, new ValueSpecification[] {v[0], v[3] }, new ValueSpecification[0], new DependencyNode[0]);
+    final DependencyNode c = DependencyNodeImpl.of(function, ComputationTargetSpecification.NULL, new ValueSpecification[] {v[2] }, new ValueSpecification[] {v[0] }, new DependencyNode[] {a2 });
+    final DependencyGraph graph1 = new DependencyGraphImpl("Test", Collections.singleton(b), 2, ImmutableMap.of(v[1], Collections.singleton(r[1])));
+    final DependencyGraph graph2 = new DependencyGraphImpl("Test", Collections.singleton(c), 2, ImmutableMap.of(v[2], Collections.singleton(r[2]), v[0], Collections.singleton(r[0])));
+    final DependencyGraph merged = DependencyGraphImpl.merge("Merged", Arrays.asList(graph1, graph2));
+    assertEquals(merged.getCalculationConfigurationName(), "Merged");
+    assertEquals(merged.getSize(), 3);
+    assertEquals(merged.getRootCount(), 2);
+    assertEquals(merged.getTerminalOutputs(), ImmutableMap.of(v[0], Collections.singleton(r[0]), v[1], Collections.singleton(r[1]), v[2], Collections.singleton(r[2])));
+    assertEquals(DependencyGraphImpl.getAllOutputSpecifications(merged), ImmutableSet.of(v[0], v[1], v[2], v[3]));
+    final DependencyNode root0 = merged.getRootNode(0);
+    final DependencyNode root1 = merged.getRootNode(1);
+    assertSame(root0.getInputNode(0), root1.getInputNode(0));
+    assertEquals(DependencyNodeImpl.getOutputValues(root0.getInputNode(0)), ImmutableSet.of(v[0], v[3]));
+  }
+
+  public void testMergeSingle() {
+    final TestDependencyGraphBuilder gb = new TestDependencyGraphBuilder("Single");
+    gb.addNode("Test", ComputationTargetSpecification.NULL).addTerminalOutput("A");
+    final DependencyGraph graph = gb.buildGraph();
+    assertSame(DependencyGraphImpl.merge("Single", Collections.singleton(graph)), graph);
+  }
+
 }
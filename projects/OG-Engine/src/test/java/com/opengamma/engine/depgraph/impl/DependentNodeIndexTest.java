@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.compilation.InvalidTargetDependencyNodeFilter;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Unit test for the {@link DependentNodeIndex} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class DependentNodeIndexTest {
+
+  private UniqueId id(final int id) {
+    return UniqueId.of("Test", Integer.toString(id));
+  }
+
+  private ComputationTargetSpecification target(final int id) {
+    return new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, id(id));
+  }
+
+  private ValueRequirement req(final int id) {
+    return new ValueRequirement("V", target(id));
+  }
+
+  private NodeBuilder node(final TestDependencyGraphBuilder builder, final int id) {
+    return builder.addNode("F", target(id));
+  }
+
+  /**
+   * Creates a graph of the form:
+   *
+   * <pre>
+   *    N1 ---> N4*-------
+   *                       \
+   *    N2 ---> N5 \        > N8*
+   *        \        N7*---/
+   *         ->    /
+   *    N3 ---> N6
+   * </pre>
+   */
+  private DependencyGraph largeGraph() {
+    final TestDependencyGraphBuilder builder = new TestDependencyGraphBuilder("large");
+    NodeBuilder nb = node(builder, 1);
+    final ValueSpecification v1 = nb.addOutput("V");
+    nb = node(builder, 2);
+    final ValueSpecification v2 = nb.addOutput("V");
+    nb = node(builder, 3);
+    final ValueSpecification v3 = nb.addOutput("V");
+    nb = node(builder, 4);
+    nb.addInput(v1);
+    final ValueSpecification v4 = nb.addTerminalOutput("V");
+    nb = node(builder, 5);
+    nb.addInput(v2);
+    final ValueSpecification v5 = nb.addOutput("V");
+    nb = node(builder, 6);
+    nb.addInput(v2);
+    nb.addInput(v3);
+    final ValueSpecification v6 = nb.addOutput("V");
+    nb = node(builder, 7);
+    nb.addInput(v5);
+    nb.addInput(v6);
+    final ValueSpecification v7 = nb.addTerminalOutput("V");
+    nb = node(builder, 8);
+    nb.addInput(v4);
+    nb.addInput(v7);
+    nb.addTerminalOutput("V");
+    return builder.buildGraph();
+  }
+
+  private DependencyNode find(final DependencyGraph graph, final int id) {
+    for (DependencyNode node : DependencyGraphImpl.getDependencyNodes(graph)) {
+      if (node.getTarget().equals(target(id))) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  private DependencyNode copy(final DependencyNode node, final DependencyNode... inputs) {
+    final ValueSpecification[] inputValues = new ValueSpecification[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      inputValues[i] = inputs[i].getOutputValue(0);
+    }
+    return DependencyNodeImpl.of(node.getFunction(), node.getTarget(), new ValueSpecification[] {node.getOutputValue(0) }, inputValues, inputs);
+  }
+
+  /**
+   * Checks the index removes the same nodes, and produces the same roots and terminal outputs, as filtering.
+   */
+  private void assertRemoval(final int... ids) {
+    final Set<UniqueId> invalid = new HashSet<UniqueId>();
+    for (int id : ids) {
+      invalid.add(id(id));
+    }
+    final DependencyGraph graph = largeGraph();
+    final Set<ValueRequirement> expectedMissing = new HashSet<ValueRequirement>();
+    final Map<ValueSpecification, Set<ValueRequirement>> expectedTerminals = new HashMap<ValueSpecification, Set<ValueRequirement>>(graph.getTerminalOutputs());
+    final Set<DependencyNode> expectedRoots = new InvalidTargetDependencyNodeFilter(invalid).subGraph(DependencyGraphImpl.getRootNodes(graph), expectedTerminals, expectedMissing);
+    final DependentNodeIndex index = new DependentNodeIndex(graph);
+    final Collection<DependencyNode> nodes = new ArrayList<DependencyNode>();
+    for (UniqueId id : invalid) {
+      nodes.addAll(index.getNodes(id));
+    }
+    final List<DependencyNode> roots = new ArrayList<DependencyNode>(DependencyGraphImpl.getRootNodes(graph));
+    final Map<ValueSpecification, Set<ValueRequirement>> terminals = new HashMap<ValueSpecification, Set<ValueRequirement>>(graph.getTerminalOutputs());
+    final Set<ValueRequirement> missing = new HashSet<ValueRequirement>();
+    final Set<DependencyNode> removed = index.removeDependents(nodes, roots, terminals, missing);
+    assertEquals(new HashSet<DependencyNode>(roots), expectedRoots);
+    assertEquals(terminals, expectedTerminals);
+    assertEquals(missing, expectedMissing);
+    assertEquals(index.getSize(), graph.getSize() - removed.size());
+    for (DependencyNode node : removed) {
+      assertNull(index.getConsumers(node));
+    }
+  }
+
+  public void testIndex() {
+    final DependencyGraph graph = largeGraph();
+    final DependentNodeIndex index = new DependentNodeIndex(graph);
+    assertSame(index.getGraph(), graph);
+    assertEquals(index.getSize(), 8);
+    assertEquals(index.getNodes(id(2)).size(), 1);
+    assertTrue(index.getNodes(id(9)).isEmpty());
+    final DependencyNode n2 = find(graph, 2);
+    assertEquals(new HashSet<DependencyNode>(index.getConsumers(n2)), ImmutableSet.of(find(graph, 5), find(graph, 6)));
+    assertTrue(index.getConsumers(find(graph, 8)).isEmpty());
+    assertEquals(index.getDependents(Collections.singleton(n2)), ImmutableSet.of(n2, find(graph, 5), find(graph, 6), find(graph, 7), find(graph, 8)));
+  }
+
+  public void testLeafNode() {
+    assertRemoval(1);
+    assertRemoval(2);
+    assertRemoval(3);
+    assertRemoval(1, 3);
+  }
+
+  public void testMiddleNode() {
+    assertRemoval(5);
+  }
+
+  public void testRootNode() {
+    assertRemoval(8);
+    assertRemoval(3, 8);
+  }
+
+  public void testNoChange() {
+    final DependencyGraph graph = largeGraph();
+    final DependentNodeIndex index = new DependentNodeIndex(graph);
+    final List<DependencyNode> roots = new ArrayList<DependencyNode>(DependencyGraphImpl.getRootNodes(graph));
+    final Set<ValueRequirement> missing = new HashSet<ValueRequirement>();
+    assertTrue(index.removeDependents(index.getNodes(id(9)), roots, new HashMap<ValueSpecification, Set<ValueRequirement>>(graph.getTerminalOutputs()), missing).isEmpty());
+    assertEquals(roots.size(), 1);
+    assertTrue(missing.isEmpty());
+    assertTrue(index.update(graph));
+    assertEquals(index.getSize(), 8);
+  }
+
+  public void testUpdate() {
+    final DependencyGraph graph = largeGraph();
+    final DependentNodeIndex index = new DependentNodeIndex(graph);
+    final List<DependencyNode> roots = new ArrayList<DependencyNode>(DependencyGraphImpl.getRootNodes(graph));
+    final Map<ValueSpecification, Set<ValueRequirement>> terminals = new HashMap<ValueSpecification, Set<ValueRequirement>>(graph.getTerminalOutputs());
+    final Set<ValueRequirement> missing = new HashSet<ValueRequirement>();
+    index.removeDependents(index.getNodes(id(5)), roots, terminals, missing);
+    assertEquals(missing, ImmutableSet.of(req(7), req(8)));
+    // Rebuild N5, N7 and N8 on top of the remaining nodes
+    final DependencyNode n2 = find(graph, 2);
+    final DependencyNode n5 = copy(find(graph, 5), n2);
+    final DependencyNode n7 = copy(find(graph, 7), n5, find(graph, 6));
+    final DependencyNode n8 = copy(find(graph, 8), find(graph, 4), n7);
+    final DependencyGraph newGraph = new DependencyGraphImpl("large", Collections.singleton(n8), 8, graph.getTerminalOutputs());
+    assertTrue(index.update(newGraph));
+    assertSame(index.getGraph(), newGraph);
+    assertEquals(new HashSet<DependencyNode>(index.getConsumers(n2)), ImmutableSet.of(n5, find(graph, 6)));
+    assertEquals(index.getNodes(id(7)).size(), 1);
+    assertSame(index.getNodes(id(7)).iterator().next(), n7);
+    // Updating from a graph which doesn't contain the original nodes detects the stale entries
+    assertFalse(index.update(largeGraph()));
+  }
+
+}
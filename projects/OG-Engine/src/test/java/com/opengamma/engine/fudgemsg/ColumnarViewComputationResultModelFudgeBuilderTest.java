@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.fudgemsg;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.testng.annotations.Test;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
+import com.opengamma.engine.view.impl.ResultModelLayout;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ColumnarViewComputationResultModelFudgeBuilder} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ColumnarViewComputationResultModelFudgeBuilderTest {
+
+  private static final ComputationTargetSpecification TARGET = ComputationTargetSpecification.of(UniqueId.of("Test", "A"));
+
+  private static ValueSpecification spec(final String valueName) {
+    return new ValueSpecification(valueName, TARGET, ValueProperties.with(ValuePropertyNames.FUNCTION, valueName).get());
+  }
+
+  public void roundTrip() {
+    final ResultModelLayout.Builder layoutBuilder = new ResultModelLayout.Builder();
+    layoutBuilder.add("Default", spec("PV"));
+    layoutBuilder.add("Default", spec("Name"));
+    layoutBuilder.add("Default", spec("Missing"));
+    layoutBuilder.add("Other", spec("PV"));
+    layoutBuilder.add("Other", spec("Null"));
+    final ResultModelLayout layout = layoutBuilder.build();
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(layout);
+    model.setViewProcessId(UniqueId.of("Process", "1"));
+    model.setViewCycleId(UniqueId.of("Cycle", "1"));
+    model.setCalculationTime(Instant.ofEpochMilli(500));
+    model.setCalculationDuration(Duration.ofMillis(100));
+    model.setVersionCorrection(VersionCorrection.LATEST);
+    model.addValue("Default", new ComputedValueResult(spec("PV"), 1.5d, AggregatedExecutionLog.EMPTY, "Node1", null, InvocationResult.SUCCESS));
+    model.addValue("Default", new ComputedValueResult(spec("Name"), "Foo", AggregatedExecutionLog.EMPTY, "Node2", null, InvocationResult.SUCCESS));
+    model.addValue("Other", new ComputedValueResult(spec("PV"), 2.5d, AggregatedExecutionLog.EMPTY, "Node1", null, InvocationResult.SUCCESS));
+    model.addValue("Other", new ComputedValueResult(spec("Null"), null, AggregatedExecutionLog.EMPTY, null,
+        Collections.singleton(spec("Input")), InvocationResult.FUNCTION_THREW_EXCEPTION));
+    model.addMarketData(new ComputedValue(spec("Market"), new BigDecimal("1.25")));
+
+    final ColumnarViewComputationResultModelFudgeBuilder builder = new ColumnarViewComputationResultModelFudgeBuilder();
+    final FudgeMsg msg = builder.buildMessage(new FudgeSerializer(OpenGammaFudgeContext.getInstance()), model);
+    final ColumnarViewComputationResultModel result = builder.buildObject(new FudgeDeserializer(OpenGammaFudgeContext.getInstance()), msg);
+
+    assertEquals(layout, result.getLayout());
+    assertEquals(model.getViewProcessId(), result.getViewProcessId());
+    assertEquals(model.getViewCycleId(), result.getViewCycleId());
+    assertEquals(model.getCalculationTime(), result.getCalculationTime());
+    assertEquals(model.getCalculationDuration(), result.getCalculationDuration());
+    assertEquals(model.getVersionCorrection(), result.getVersionCorrection());
+    assertEquals(model.getPresentPositions(), result.getPresentPositions());
+    assertEquals(model.getDoublePositions(), result.getDoublePositions());
+    assertFalse(result.isPresent(2));
+    assertNull(result.getValue(4));
+    for (int i = 0; i < layout.size(); i++) {
+      assertEquals(model.getResult(i), result.getResult(i));
+    }
+    assertEquals(model.getAllMarketData(), result.getAllMarketData());
+    assertEquals(0, result.getChangedPositions(model).cardinality());
+  }
+
+}
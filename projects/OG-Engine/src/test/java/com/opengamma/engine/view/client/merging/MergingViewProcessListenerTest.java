@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 import org.threeten.bp.Instant;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.ComputationTargetSpecification;
@@ -537,4 +538,25 @@ public class MergingViewProcessListenerTest {
     underlying.assertNoCalls();
   }
 
+  public void testMetrics() {
+    final TestViewResultListener underlying = new TestViewResultListener();
+    final EngineResourceManagerInternal<?> cycleManager = new EngineResourceManagerImpl<EngineResource>();
+    final MergingViewProcessListener listener = new MergingViewProcessListener(underlying, cycleManager);
+    final MetricRegistry registry = new MetricRegistry();
+    listener.registerMetrics(registry, registry, "Test");
+    listener.setPassThrough(false);
+    for (int i = 0; i < 3; i++) {
+      final InMemoryViewComputationResultModel result = new InMemoryViewComputationResultModel();
+      result.setCalculationTime(now());
+      listener.cycleCompleted(result, null);
+    }
+    listener.drain();
+    underlying.assertCycleCompleted();
+    underlying.assertNoCalls();
+    assertEquals(registry.meter("Test.coalesced").getCount(), 2);
+    assertEquals(registry.timer("Test.lag").getCount(), 1);
+    listener.unregisterMetrics();
+    assertTrue(registry.getMetrics().isEmpty());
+  }
+
 }
@@ -13,6 +13,7 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,7 @@ import com.opengamma.engine.view.ViewResultEntry;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
+import com.opengamma.engine.view.listener.ViewResultBacklog;
 import com.opengamma.engine.view.listener.ViewResultListener;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.test.TestGroup;
@@ -129,6 +131,43 @@ public class RateLimitingMergingViewProcessListenerTest {
     }
   }
 
+  @Test
+  public void testAdaptiveWaitsForBacklog() throws InterruptedException {
+    final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+    try {
+      final BackloggedTestViewResultListener testListener = new BackloggedTestViewResultListener();
+      final RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), executor);
+      mergingListener.setBacklog(testListener);
+      mergingListener.setAdaptive(true);
+      assertTrue(mergingListener.isAdaptive());
+
+      // Results are merged and released from the timer even with no minimum period
+      mergingListener.setPaused(true);
+      addResults(mergingListener, 100);
+      mergingListener.setPaused(false);
+      testListener.assertCycleCompleted(Timeout.standardTimeoutMillis());
+      testListener.assertNoCalls();
+
+      // Nothing is released while the underlying reports a backlog
+      testListener.getBacklogCount().set(1);
+      addResults(mergingListener, 100);
+      Thread.sleep(500);
+      testListener.assertNoCalls();
+      testListener.getBacklogCount().set(0);
+      testListener.assertCycleCompleted(Timeout.standardTimeoutMillis());
+      testListener.assertNoCalls();
+
+      // Non-adaptive with no minimum period passes results straight through again
+      mergingListener.setAdaptive(false);
+      addResults(mergingListener, 10);
+      testListener.assertMultipleCycleCompleted(10);
+
+      mergingListener.terminate();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void testCallOrderingAndCollapsing() throws InterruptedException {
     final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
@@ -243,4 +282,19 @@ public class RateLimitingMergingViewProcessListenerTest {
     listener.viewDefinitionCompiled(mock(CompiledViewDefinitionWithGraphsImpl.class), true);
   }
 
+  private static class BackloggedTestViewResultListener extends TestViewResultListener implements ViewResultBacklog {
+
+    private final AtomicInteger _backlogCount = new AtomicInteger();
+
+    public AtomicInteger getBacklogCount() {
+      return _backlogCount;
+    }
+
+    @Override
+    public int getBacklog() {
+      return _backlogCount.get();
+    }
+
+  }
+
 }
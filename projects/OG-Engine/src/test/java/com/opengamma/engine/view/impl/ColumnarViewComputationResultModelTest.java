@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import static com.opengamma.engine.view.impl.ViewCalculationResultModelImplTest.SPEC;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.DeltaComparer;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.client.ViewDeltaResultCalculator;
+import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the {@link ColumnarViewComputationResultModel} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ColumnarViewComputationResultModelTest {
+
+  private static final ValueSpecification PV = new ValueSpecification("PV", SPEC, ValueProperties.with(ValuePropertyNames.FUNCTION, "PV").get());
+  private static final ValueSpecification NAME = new ValueSpecification("Name", SPEC, ValueProperties.with(ValuePropertyNames.FUNCTION, "Name").get());
+
+  private static ResultModelLayout layout() {
+    final ResultModelLayout.Builder builder = new ResultModelLayout.Builder();
+    builder.add("Default", PV);
+    builder.add("Default", NAME);
+    builder.add("Other", PV);
+    return builder.build();
+  }
+
+  //-------------------------------------------------------------------------
+  public void testLayout() {
+    final ResultModelLayout layout = layout();
+    assertEquals(3, layout.size());
+    assertEquals(0, layout.getPosition("Default", PV));
+    assertEquals(1, layout.getPosition("Default", NAME));
+    assertEquals(2, layout.getPosition("Other", PV));
+    assertEquals(-1, layout.getPosition("Other", NAME));
+    assertEquals(-1, layout.getPosition("Missing", PV));
+    assertEquals("Other", layout.getCalculationConfigurationName(2));
+    assertEquals(NAME, layout.getSpecification(1));
+    assertEquals(layout, layout());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testLayoutDuplicate() {
+    new ResultModelLayout(new String[] {"Default" }, new int[] {0, 0 }, new ValueSpecification[] {PV, PV });
+  }
+
+  public void testAddValue() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(layout());
+    model.addValue("Default", new ComputedValueResult(PV, 1.5d, AggregatedExecutionLog.EMPTY, "Node", null, InvocationResult.SUCCESS));
+    model.addValue("Default", new ComputedValueResult(NAME, "Foo", AggregatedExecutionLog.EMPTY));
+    assertTrue(model.isPresent(0));
+    assertTrue(model.isDouble(0));
+    assertEquals(1.5d, model.getDouble(0), 0d);
+    assertEquals(1.5d, model.getValue(0));
+    assertEquals("Node", model.getComputeNodeId(0));
+    assertEquals(InvocationResult.SUCCESS, model.getInvocationResult(0));
+    assertFalse(model.isDouble(1));
+    assertEquals("Foo", model.getValue(1));
+    assertFalse(model.isPresent(2));
+    assertNull(model.getResult(2));
+    assertEquals(new ComputedValueResult(PV, 1.5d, AggregatedExecutionLog.EMPTY, "Node", null, InvocationResult.SUCCESS), model.getResult(0));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAddValueNotInLayout() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(layout());
+    model.addValue("Other", new ComputedValueResult(NAME, "Foo", AggregatedExecutionLog.EMPTY));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testGetDoubleNotDouble() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(layout());
+    model.addValue("Default", new ComputedValueResult(NAME, "Foo", AggregatedExecutionLog.EMPTY));
+    model.getDouble(1);
+  }
+
+  public void testResultModelViews() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(layout());
+    model.setDouble(0, 1d, AggregatedExecutionLog.EMPTY);
+    model.setDouble(2, 2d, AggregatedExecutionLog.EMPTY);
+    assertEquals(Collections.singleton(SPEC), model.getAllTargets());
+    assertEquals(2, model.getAllResults().size());
+    final ViewCalculationResultModel calcResult = model.getCalculationResult("Default");
+    final Map<Pair<String, ValueProperties>, ComputedValueResult> values = calcResult.getValues(SPEC);
+    assertEquals(1, values.size());
+    assertEquals(1d, values.get(Pair.of("PV", PV.getProperties())).getValue());
+    assertEquals(2, model.getTargetResult(SPEC).getCalculationConfigurationNames().size());
+    assertEquals(Collections.singleton("PV"), model.getAllOutputValueNames());
+  }
+
+  public void testCopy() {
+    final InMemoryViewComputationResultModel inMemory = new InMemoryViewComputationResultModel();
+    inMemory.setCalculationTime(Instant.ofEpochMilli(500));
+    inMemory.addValue("Default", new ComputedValueResult(PV, 1.5d, AggregatedExecutionLog.EMPTY));
+    inMemory.addValue("Other", new ComputedValueResult(PV, 2.5d, AggregatedExecutionLog.EMPTY));
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(ResultModelLayout.of(inMemory), inMemory);
+    assertEquals(Instant.ofEpochMilli(500), model.getCalculationTime());
+    assertEquals(2, model.getLayout().size());
+    assertEquals(1.5d, model.getDouble(model.getLayout().getPosition("Default", PV)), 0d);
+    assertEquals(2.5d, model.getDouble(model.getLayout().getPosition("Other", PV)), 0d);
+  }
+
+  public void testChangedPositions() {
+    final ResultModelLayout layout = layout();
+    final ColumnarViewComputationResultModel previous = new ColumnarViewComputationResultModel(layout);
+    previous.setDouble(0, 1d, AggregatedExecutionLog.EMPTY);
+    previous.addValue("Default", new ComputedValueResult(NAME, "Foo", AggregatedExecutionLog.EMPTY));
+    previous.setDouble(2, 2d, AggregatedExecutionLog.EMPTY);
+    final ColumnarViewComputationResultModel current = new ColumnarViewComputationResultModel(layout);
+    current.setDouble(0, 1d, AggregatedExecutionLog.EMPTY);
+    current.addValue("Default", new ComputedValueResult(NAME, "Foo", AggregatedExecutionLog.EMPTY));
+    current.setDouble(2, 3d, AggregatedExecutionLog.EMPTY);
+    final BitSet expected = new BitSet();
+    expected.set(2);
+    assertEquals(expected, current.getChangedPositions(previous));
+    assertEquals(current.getPresentPositions(), current.getChangedPositions(null));
+
+    final ViewDeltaResultModel delta = current.createDeltaModel(previous);
+    assertEquals(1, delta.getAllResults().size());
+    assertEquals("Other", delta.getAllResults().get(0).getCalculationConfiguration());
+    assertEquals(3d, delta.getAllResults().get(0).getComputedValue().getValue());
+  }
+
+  public void testDeltaResultCalculator() {
+    final ResultModelLayout layout = layout();
+    final ColumnarViewComputationResultModel previous = new ColumnarViewComputationResultModel(layout);
+    previous.setCalculationTime(Instant.ofEpochMilli(500));
+    previous.setDouble(0, 1d, AggregatedExecutionLog.EMPTY);
+    previous.setDouble(2, 2d, AggregatedExecutionLog.EMPTY);
+    final ColumnarViewComputationResultModel current = new ColumnarViewComputationResultModel(layout);
+    current.setCalculationTime(Instant.ofEpochMilli(1000));
+    current.setDouble(0, 1d, AggregatedExecutionLog.EMPTY);
+    current.addValue("Default", new ComputedValueResult(NAME, "Foo", AggregatedExecutionLog.EMPTY));
+    current.setDouble(2, 3d, AggregatedExecutionLog.EMPTY);
+    final ViewDefinition viewDefinition = new ViewDefinition("Test", UserPrincipal.getTestUser());
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Default"));
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Other"));
+    // The positional comparison must agree with the value by value comparison of the in-memory models
+    final ViewDeltaResultModel columnar = ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, previous, current);
+    final ViewDeltaResultModel inMemory = ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, new InMemoryViewComputationResultModel(previous),
+        new InMemoryViewComputationResultModel(current));
+    assertEquals(2, columnar.getAllResults().size());
+    assertEquals(new HashSet<Object>(inMemory.getAllResults()), new HashSet<Object>(columnar.getAllResults()));
+    assertEquals(Instant.ofEpochMilli(500), columnar.getPreviousResultTimestamp());
+    // A number comparer needs the value by value comparison
+    viewDefinition.getCalculationConfiguration("Other").getDeltaDefinition().setNumberComparer(new DeltaComparer<Number>() {
+      @Override
+      public boolean isDelta(final Number previousValue, final Number newValue) {
+        return false;
+      }
+    });
+    assertEquals(1, ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, previous, current).getAllResults().size());
+  }
+
+}
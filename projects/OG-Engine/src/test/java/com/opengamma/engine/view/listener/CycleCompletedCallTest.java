@@ -5,16 +5,34 @@
  */
 package com.opengamma.engine.view.listener;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.mockito.Mockito;
 import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
 
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.client.ViewDeltaResultCalculator;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
+import com.opengamma.engine.view.impl.ResultModelLayout;
+import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.test.TestGroup;
 
 /**
@@ -47,4 +65,82 @@ public class CycleCompletedCallTest extends AbstractCompletedResultsCallTest {
     Mockito.verify(mock, Mockito.only()).cycleCompleted(full, delta);
   }
 
+  private static ValueSpecification value(final int i) {
+    return new ValueSpecification(Integer.toString(i), ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+  }
+
+  private static ColumnarViewComputationResultModel columnarFull(final ResultModelLayout layout, final Instant time, final double a, final double b, final double c) {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel(layout);
+    model.setCalculationTime(time);
+    model.setDouble(0, a, AggregatedExecutionLog.EMPTY);
+    model.setDouble(1, b, AggregatedExecutionLog.EMPTY);
+    model.setDouble(2, c, AggregatedExecutionLog.EMPTY);
+    return model;
+  }
+
+  private static ViewDeltaResultModel delta(final Instant time, final int value, final double newValue) {
+    final InMemoryViewDeltaResultModel model = new InMemoryViewDeltaResultModel();
+    model.setCalculationTime(time);
+    model.setPreviousCalculationTime(time.minusSeconds(1L));
+    model.addValue("Default", new ComputedValueResult(value(value), newValue, AggregatedExecutionLog.EMPTY));
+    return model;
+  }
+
+  public void testColumnarMerge() {
+    final ResultModelLayout.Builder layoutBuilder = new ResultModelLayout.Builder();
+    layoutBuilder.add("Default", value(1));
+    layoutBuilder.add("Default", value(2));
+    layoutBuilder.add("Default", value(3));
+    final ResultModelLayout layout = layoutBuilder.build();
+    final Instant now = Instant.now();
+    final CycleCompletedCall instance = create(columnarFull(layout, now, 1d, 1d, 1d), delta(now, 1, 1d));
+    instance.update(columnarFull(layout, now.plusSeconds(1L), 2d, 1d, 1d), delta(now.plusSeconds(1L), 1, 2d));
+    final ColumnarViewComputationResultModel latest = columnarFull(layout, now.plusSeconds(2L), 2d, 3d, 1d);
+    instance.update(latest, delta(now.plusSeconds(2L), 2, 3d));
+    assertSame(instance.getFullResult(), latest);
+    final ViewDeltaResultModel delta = instance.getDeltaResult();
+    assertEquals(delta.getCalculationTime(), now.plusSeconds(2L));
+    assertEquals(delta.getPreviousResultTimestamp(), now.plusSeconds(1L));
+    final Map<String, Object> values = new HashMap<String, Object>();
+    for (ViewResultEntry entry : delta.getAllResults()) {
+      values.put(entry.getComputedValue().getSpecification().getValueName(), entry.getComputedValue().getValue());
+    }
+    assertEquals(values.size(), 2);
+    assertEquals(values.get("1"), 2d);
+    assertEquals(values.get("2"), 3d);
+    // A model that isn't columnar falls back to merging the delta models
+    final InMemoryViewComputationResultModel inMemory = new InMemoryViewComputationResultModel();
+    inMemory.setCalculationTime(now.plusSeconds(3L));
+    instance.update(inMemory, delta(now.plusSeconds(3L), 3, 4d));
+    assertEquals(instance.getDeltaResult().getAllResults().size(), 3);
+  }
+
+  public void testColumnarCycleResults() {
+    final ResultModelLayout.Builder layoutBuilder = new ResultModelLayout.Builder();
+    layoutBuilder.add("Default", value(1));
+    layoutBuilder.add("Default", value(2));
+    layoutBuilder.add("Default", value(3));
+    final ResultModelLayout layout = layoutBuilder.build();
+    final ViewDefinition viewDefinition = new ViewDefinition("Test", UserPrincipal.getTestUser());
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Default"));
+    // Full and delta results as published by a view process executing with columnar results
+    final Instant now = Instant.now();
+    final ColumnarViewComputationResultModel first = columnarFull(layout, now, 1d, 1d, 1d);
+    final CycleCompletedCall instance = create(first, ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, null, first));
+    final ColumnarViewComputationResultModel second = columnarFull(layout, now.plusSeconds(1L), 2d, 1d, 1d);
+    instance.update(second, ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, first, second));
+    final ColumnarViewComputationResultModel third = columnarFull(layout, now.plusSeconds(2L), 2d, 3d, 1d);
+    instance.update(third, ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, second, third));
+    assertSame(instance.getFullResult(), third);
+    final Map<String, Object> values = new HashMap<String, Object>();
+    for (ViewResultEntry entry : instance.getDeltaResult().getAllResults()) {
+      values.put(entry.getComputedValue().getSpecification().getValueName(), entry.getComputedValue().getValue());
+    }
+    // The first delta contained every value, so the merged delta holds the latest of each
+    assertEquals(values.size(), 3);
+    assertEquals(values.get("1"), 2d);
+    assertEquals(values.get("2"), 3d);
+    assertEquals(values.get("3"), 1d);
+  }
+
 }
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.view.worker;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -12,14 +13,20 @@ import static org.testng.Assert.fail;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.Test;
 import org.threeten.bp.Instant;
 
+import com.opengamma.engine.resource.EngineResourceManagerInternal;
+import com.opengamma.engine.resource.EngineResourceReference;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.cycle.SingleComputationCycle;
 import com.opengamma.engine.view.cycle.ViewCycle;
 import com.opengamma.engine.view.cycle.ViewCycleMetadata;
 import com.opengamma.engine.view.execution.ArbitraryViewCycleExecutionSequence;
@@ -29,6 +36,8 @@ import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewCycleExecutionSequence;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
+import com.opengamma.engine.view.impl.ViewProcessContext;
+import com.opengamma.id.UniqueId;
 import com.opengamma.util.test.TestGroup;
 import com.opengamma.util.test.Timeout;
 
@@ -113,7 +122,9 @@ public class SequencePartitioningViewProcessWorkerTest {
           _context.workerCompleted();
           return;
         }
-        _context.cycleStarted(Mockito.mock(ViewCycleMetadata.class));
+        final ViewCycleMetadata metadata = Mockito.mock(ViewCycleMetadata.class);
+        Mockito.when(metadata.getValuationTime()).thenReturn(options.getValuationTime());
+        _context.cycleStarted(metadata);
         if (!compiled) {
           compiled = true;
           _context.viewDefinitionCompiled(Mockito.mock(ViewExecutionDataProvider.class), Mockito.mock(CompiledViewDefinitionWithGraphs.class));
@@ -129,7 +140,7 @@ public class SequencePartitioningViewProcessWorkerTest {
         _context.cycleFragmentCompleted(Mockito.mock(ViewComputationResultModel.class), _viewDefinition);
         _context.cycleCompleted(Mockito.mock(ViewCycle.class));
       } while (!_terminated);
-      _context.workerCompleted();
+      // Like SingleThreadViewProcessWorker, a terminated worker does not report completion
     }
 
   }
@@ -137,6 +148,7 @@ public class SequencePartitioningViewProcessWorkerTest {
   private class ViewProcessWorkerFactoryMock implements ViewProcessWorkerFactory {
 
     private final int _delay;
+    private int _firstDelay = -1;
 
     public ViewProcessWorkerFactoryMock(final int delay) {
       _delay = delay;
@@ -144,7 +156,92 @@ public class SequencePartitioningViewProcessWorkerTest {
 
     @Override
     public ViewProcessWorker createWorker(ViewProcessWorkerContext context, ViewExecutionOptions executionOptions, ViewDefinition viewDefinition) {
-      return new ViewProcessWorkerMock(context, executionOptions, viewDefinition, _delay);
+      final int delay;
+      synchronized (this) {
+        if (_firstDelay >= 0) {
+          delay = _firstDelay;
+          _firstDelay = -1;
+        } else {
+          delay = _delay;
+        }
+      }
+      return new ViewProcessWorkerMock(context, executionOptions, viewDefinition, delay);
+    }
+
+  }
+
+  private class OrderedViewProcessWorkerContext implements ViewProcessWorkerContext {
+
+    private final ViewProcessContext _processContext = Mockito.mock(ViewProcessContext.class);
+    private final List<Instant> _valuationTimes = new ArrayList<Instant>();
+    private final AtomicInteger _cyclesRetained = new AtomicInteger();
+    private final AtomicInteger _cyclesReleased = new AtomicInteger();
+    private int _cyclesCompleted;
+    private int _workersCompleted;
+
+    @SuppressWarnings("unchecked")
+    public OrderedViewProcessWorkerContext() {
+      final EngineResourceManagerInternal<SingleComputationCycle> cycleManager = Mockito.mock(EngineResourceManagerInternal.class);
+      Mockito.when(cycleManager.createReference(Mockito.any(UniqueId.class))).thenAnswer(new Answer<EngineResourceReference<SingleComputationCycle>>() {
+        @Override
+        public EngineResourceReference<SingleComputationCycle> answer(final InvocationOnMock invocation) {
+          _cyclesRetained.incrementAndGet();
+          return new EngineResourceReference<SingleComputationCycle>() {
+
+            @Override
+            public SingleComputationCycle get() {
+              return null;
+            }
+
+            @Override
+            public void release() {
+              _cyclesReleased.incrementAndGet();
+            }
+
+          };
+        }
+      });
+      Mockito.when(_processContext.getCycleManager()).thenReturn(cycleManager);
+    }
+
+    @Override
+    public ViewProcessContext getProcessContext() {
+      return _processContext;
+    }
+
+    @Override
+    public void viewDefinitionCompiled(final ViewExecutionDataProvider dataProvider, final CompiledViewDefinitionWithGraphs compiled) {
+      // Ignore
+    }
+
+    @Override
+    public void viewDefinitionCompilationFailed(final Instant compilationTime, final Exception exception) {
+      fail();
+    }
+
+    @Override
+    public synchronized void cycleStarted(final ViewCycleMetadata cycleMetadata) {
+      _valuationTimes.add(cycleMetadata.getValuationTime());
+    }
+
+    @Override
+    public void cycleFragmentCompleted(final ViewComputationResultModel result, final ViewDefinition viewDefinition) {
+      // Ignore
+    }
+
+    @Override
+    public synchronized void cycleCompleted(final ViewCycle cycle) {
+      _cyclesCompleted++;
+    }
+
+    @Override
+    public void cycleExecutionFailed(final ViewCycleExecutionOptions options, final Exception exception) {
+      fail();
+    }
+
+    @Override
+    public synchronized void workerCompleted() {
+      _workersCompleted++;
     }
 
   }
@@ -173,6 +270,61 @@ public class SequencePartitioningViewProcessWorkerTest {
     Mockito.verify(context, Mockito.times(0)).viewDefinitionCompilationFailed(Mockito.any(Instant.class), Mockito.any(Exception.class));
   }
 
+  public void testFiniteSequenceOrdered() throws InterruptedException {
+    final ViewProcessWorkerFactoryMock underlying = new ViewProcessWorkerFactoryMock(0);
+    // The first partition is the slowest, so everything after it must be held back
+    underlying._firstDelay = (int) (Timeout.standardTimeoutMillis() / 64);
+    final Instant t = Instant.now();
+    final List<ViewCycleExecutionOptions> cycles = new ArrayList<ViewCycleExecutionOptions>(37);
+    for (int i = 0; i < 37; i++) {
+      cycles.add(ViewCycleExecutionOptions.builder().setValuationTime(t.plusSeconds(i)).create());
+    }
+    final ViewCycleExecutionSequence sequence = new ArbitraryViewCycleExecutionSequence(cycles);
+    final ViewExecutionOptions options = ExecutionOptions.of(sequence, EnumSet.of(ViewExecutionFlags.RUN_AS_FAST_AS_POSSIBLE));
+    final OrderedViewProcessWorkerContext context = new OrderedViewProcessWorkerContext();
+    final SequencePartitioningViewProcessWorker worker = new SequencePartitioningViewProcessWorker(underlying, context, options, Mockito.mock(ViewDefinition.class), 5, 3, true);
+    assertTrue(worker.join(4 * Timeout.standardTimeoutMillis()));
+    assertTrue(worker.isTerminated());
+    synchronized (context) {
+      assertEquals(context._cyclesCompleted, cycles.size());
+      assertEquals(context._workersCompleted, 1);
+      assertEquals(context._valuationTimes.size(), cycles.size());
+      for (int i = 0; i < cycles.size(); i++) {
+        assertEquals(context._valuationTimes.get(i), cycles.get(i).getValuationTime());
+      }
+    }
+    assertTrue(context._cyclesRetained.get() > 0);
+    assertEquals(context._cyclesReleased.get(), context._cyclesRetained.get());
+  }
+
+  public void testTerminateOrdered() throws InterruptedException {
+    final ViewProcessWorkerFactoryMock underlying = new ViewProcessWorkerFactoryMock(0);
+    // The first partition never completes, so the cycles from the others are held back until termination
+    underlying._firstDelay = (int) (Timeout.standardTimeoutMillis() * 16);
+    final Instant t = Instant.now();
+    final List<ViewCycleExecutionOptions> cycles = new ArrayList<ViewCycleExecutionOptions>(37);
+    for (int i = 0; i < 37; i++) {
+      cycles.add(ViewCycleExecutionOptions.builder().setValuationTime(t.plusSeconds(i)).create());
+    }
+    final ViewCycleExecutionSequence sequence = new ArbitraryViewCycleExecutionSequence(cycles);
+    final ViewExecutionOptions options = ExecutionOptions.of(sequence, EnumSet.of(ViewExecutionFlags.RUN_AS_FAST_AS_POSSIBLE));
+    final OrderedViewProcessWorkerContext context = new OrderedViewProcessWorkerContext();
+    final SequencePartitioningViewProcessWorker worker = new SequencePartitioningViewProcessWorker(underlying, context, options, Mockito.mock(ViewDefinition.class), 5, 3, true);
+    final long timeout = System.currentTimeMillis() + Timeout.standardTimeoutMillis();
+    while (context._cyclesRetained.get() < 5) {
+      assertTrue(System.currentTimeMillis() < timeout);
+      Thread.sleep(10);
+    }
+    worker.terminate();
+    assertTrue(worker.join(4 * Timeout.standardTimeoutMillis()));
+    assertTrue(worker.isTerminated());
+    synchronized (context) {
+      assertEquals(context._cyclesCompleted, 0);
+      assertEquals(context._workersCompleted, 0);
+    }
+    assertEquals(context._cyclesReleased.get(), context._cyclesRetained.get());
+  }
+
   public void testInfiniteSequence() throws InterruptedException {
     final ViewProcessWorkerFactoryMock underlying = new ViewProcessWorkerFactoryMock((int) (Timeout.standardTimeoutMillis() / 32));
     final ViewExecutionOptions options = ExecutionOptions.of(new InfiniteViewCycleExecutionSequence(), EnumSet.of(ViewExecutionFlags.RUN_AS_FAST_AS_POSSIBLE));
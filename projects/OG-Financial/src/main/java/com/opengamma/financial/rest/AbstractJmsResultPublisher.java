@@ -95,6 +95,15 @@ public abstract class AbstractJmsResultPublisher {
     _messageQueue.add(resultMsgByteArray);
   }
 
+  /**
+   * Gets the number of results serialized by {@link #send(Object)} which are still waiting to be sent over JMS.
+   * 
+   * @return the number of queued results
+   */
+  protected int getQueuedResultCount() {
+    return _messageQueue.size();
+  }
+
   //-------------------------------------------------------------------------
   public void startPublishingResults(String destination) throws Exception {
     _lock.lock();
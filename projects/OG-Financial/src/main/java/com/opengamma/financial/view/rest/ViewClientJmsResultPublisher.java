@@ -25,6 +25,7 @@ import com.opengamma.engine.view.listener.ProcessCompletedCall;
 import com.opengamma.engine.view.listener.ProcessTerminatedCall;
 import com.opengamma.engine.view.listener.ViewDefinitionCompilationFailedCall;
 import com.opengamma.engine.view.listener.ViewDefinitionCompiledCall;
+import com.opengamma.engine.view.listener.ViewResultBacklog;
 import com.opengamma.engine.view.listener.ViewResultListener;
 import com.opengamma.financial.rest.AbstractJmsResultPublisher;
 import com.opengamma.livedata.UserPrincipal;
@@ -33,7 +34,7 @@ import com.opengamma.util.jms.JmsConnector;
 /**
  * Publishes {@code ViewClient} results over JMS.
  */
-public class ViewClientJmsResultPublisher extends AbstractJmsResultPublisher implements ViewResultListener  {
+public class ViewClientJmsResultPublisher extends AbstractJmsResultPublisher implements ViewResultListener, ViewResultBacklog {
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(ViewClientJmsResultPublisher.class);
@@ -68,6 +69,11 @@ public class ViewClientJmsResultPublisher extends AbstractJmsResultPublisher imp
     _viewClient.setResultListener(null);
   }
 
+  @Override
+  public int getBacklog() {
+    return getQueuedResultCount();
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public UserPrincipal getUser() {
@@ -68,20 +68,25 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   private volatile MarketDataSenderFactory _marketDataSenderFactory = new EmptyMarketDataSenderFactory();
   private final Collection<SubscriptionListener> _subscriptionListeners = new CopyOnWriteArrayList<>();
 
-  /** Access controlled via _subscriptionLock */
-  private final Set<Subscription> _currentlyActiveSubscriptions = new HashSet<>();
+  /** _Write_ access controlled via _subscriptionLock */
+  private final Set<Subscription> _currentlyActiveSubscriptions = Collections.newSetFromMap(new ConcurrentHashMap<Subscription, Boolean>());
 
   /** _Write_ access controlled via _subscriptionLock */
   private final Map<String, Subscription> _securityUniqueId2Subscription = new ConcurrentHashMap<>();
 
-  /** Access controlled via _subscriptionLock */
-  private final Map<LiveDataSpecification, MarketDataDistributor> _fullyQualifiedSpec2Distributor = new HashMap<>();
+  /** _Write_ access controlled via _subscriptionLock */
+  private final Map<LiveDataSpecification, MarketDataDistributor> _fullyQualifiedSpec2Distributor = new ConcurrentHashMap<>();
 
   private final AtomicLong _numMarketDataUpdatesReceived = new AtomicLong(0);
   private final PerformanceCounter _performanceCounter;
 
   private final CacheManager _cacheManager;
 
+  /**
+   * Serializes changes to the subscription registry. Readers, including the tick path through
+   * {@link #liveDataReceived}, never take this lock; the registry maps are concurrent so a
+   * subscription storm holding the lock across {@link #doSubscribe} doesn't stall distribution.
+   */
   private final Lock _subscriptionLock = new ReentrantLock();
 
   private DistributionSpecificationResolver _distributionSpecificationResolver = new NaiveDistributionSpecificationResolver();
@@ -530,18 +535,39 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     Map<String, Subscription> securityUniqueId2NewSubscription = new HashMap<>();
     Map<String, LiveDataSpecification> securityUniqueId2SpecFromClient = new HashMap<>();
 
+    final long distributionExpiryTime = System.currentTimeMillis() + getExpirationManager().getTimeoutExtension();
+    Map<LiveDataSpecification, DistributionSpecification> distrSpecs = getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient);
+    Collection<LiveDataSpecification> specsToSubscribe = new ArrayList<>();
+    for (LiveDataSpecification specFromClient : liveDataSpecificationsFromClient) {
+      // this is the only place where subscribe() can 'partially' fail
+      final DistributionSpecification distributionSpec = distrSpecs.get(specFromClient);
+      if (distributionSpec == null) {
+        s_logger.info("Unable to work out distribution spec for specification " + specFromClient);
+        responses.put(specFromClient.getIdentifiers(), buildErrorMessageResponse(specFromClient, LiveDataSubscriptionResult.NOT_PRESENT, "Unable to work out distribution spec"));
+        continue;
+      }
+      // An existing distributor only needs its expiry extended, as a heartbeat does, so that is done without the lock.
+      // Expired distributors may be being stopped by expireSubscriptions and are left to the locked path.
+      MarketDataDistributor distributor = getMarketDataDistributor(distributionSpec);
+      if (distributor != null && (distributor.isPersistent() || !persistent) && !distributor.hasExpired()) {
+        distributor.setExpiry(distributionExpiryTime);
+        if (getMarketDataDistributor(distributionSpec) == distributor) {
+          s_logger.info("Already subscribed to {}", distributionSpec.getFullyQualifiedLiveDataSpecification());
+          responses.put(specFromClient.getIdentifiers(), buildSubscriptionResponse(specFromClient, distributionSpec));
+          continue;
+        }
+      }
+      specsToSubscribe.add(specFromClient);
+    }
+    if (specsToSubscribe.isEmpty()) {
+      subscriptionDone(Collections.<String>emptySet());
+      return responses.values();
+    }
+
     _subscriptionLock.lock();
     try {
-      final long distributionExpiryTime = System.currentTimeMillis() + getExpirationManager().getTimeoutExtension();
-      Map<LiveDataSpecification, DistributionSpecification> distrSpecs = getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient);
-      for (LiveDataSpecification specFromClient : liveDataSpecificationsFromClient) {
-        // this is the only place where subscribe() can 'partially' fail
+      for (LiveDataSpecification specFromClient : specsToSubscribe) {
         final DistributionSpecification distributionSpec = distrSpecs.get(specFromClient);
-        if (distributionSpec == null) {
-          s_logger.info("Unable to work out distribution spec for specification " + specFromClient);
-          responses.put(specFromClient.getIdentifiers(), buildErrorMessageResponse(specFromClient, LiveDataSubscriptionResult.NOT_PRESENT, "Unable to work out distribution spec"));
-          continue;
-        }
         final LiveDataSpecification fullyQualifiedSpec = distributionSpec.getFullyQualifiedLiveDataSpecification();
         Subscription subscription = getSubscription(fullyQualifiedSpec);
         if (subscription != null) {
@@ -1031,16 +1057,11 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   }
 
   public boolean isSubscribedTo(LiveDataSpecification fullyQualifiedSpec) {
-    _subscriptionLock.lock();
-    try {
-      return _fullyQualifiedSpec2Distributor.containsKey(fullyQualifiedSpec);
-    } finally {
-      _subscriptionLock.unlock();
-    }
+    return _fullyQualifiedSpec2Distributor.containsKey(fullyQualifiedSpec);
   }
 
   public boolean isSubscribedTo(Subscription subscription) {
-    return getSubscriptions().contains(subscription);
+    return _currentlyActiveSubscriptions.contains(subscription);
   }
 
   public void liveDataReceived(String securityUniqueId, FudgeMsg liveDataFields) {
@@ -1083,7 +1104,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   }
 
   public int getNumActiveSubscriptions() {
-    return getSubscriptions().size();
+    return _currentlyActiveSubscriptions.size();
   }
 
   public long getNumMarketDataUpdatesReceived() {
@@ -1098,12 +1119,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   }
 
   public Set<Subscription> getSubscriptions() {
-    _subscriptionLock.lock();
-    try {
-      return new HashSet<>(_currentlyActiveSubscriptions);
-    } finally {
-      _subscriptionLock.unlock();
-    }
+    return new HashSet<>(_currentlyActiveSubscriptions);
   }
 
   public Subscription getSubscription(LiveDataSpecification fullyQualifiedSpec) {
@@ -1129,25 +1145,16 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
 
   public Map<LiveDataSpecification, MarketDataDistributor> getMarketDataDistributors(Collection<LiveDataSpecification> fullyQualifiedSpecs) {
     //NOTE: this is not much (if any) faster here, but for subclasses it can be
-    _subscriptionLock.lock();
-    try {
-      HashMap<LiveDataSpecification, MarketDataDistributor> hashMap = new HashMap<>();
-      for (LiveDataSpecification liveDataSpecification : fullyQualifiedSpecs) {
-        hashMap.put(liveDataSpecification, _fullyQualifiedSpec2Distributor.get(liveDataSpecification));
-      }
-      return hashMap;
-    } finally {
-      _subscriptionLock.unlock();
+    HashMap<LiveDataSpecification, MarketDataDistributor> hashMap = new HashMap<>();
+    for (LiveDataSpecification liveDataSpecification : fullyQualifiedSpecs) {
+      hashMap.put(liveDataSpecification, _fullyQualifiedSpec2Distributor.get(liveDataSpecification));
     }
+    return hashMap;
   }
 
   public MarketDataDistributor getMarketDataDistributor(LiveDataSpecification fullyQualifiedSpec) {
-    _subscriptionLock.lock();
-    try {
-      return _fullyQualifiedSpec2Distributor.get(fullyQualifiedSpec);
-    } finally {
-      _subscriptionLock.unlock();
-    }
+    //NOTE: don't need lock here, map is safe
+    return _fullyQualifiedSpec2Distributor.get(fullyQualifiedSpec);
   }
 
   /**
@@ -47,6 +47,11 @@ public class Subscription {
    * <p> 
    */
   private final ConcurrentHashMap<DistributionSpecification, MarketDataDistributor> _distributors = new ConcurrentHashMap<DistributionSpecification, MarketDataDistributor>();
+  /**
+   * Copy-on-write snapshot of the distributors, used to fan out ticks without iterating the map.
+   * Rebuilt whenever {@link #_distributors} is modified; modifications are serialized on the map.
+   */
+  private volatile MarketDataDistributor[] _distributorSnapshot = new MarketDataDistributor[0];
   /** 
    * The handle to the underlying subscription, specific to the market data provider, such as Bloomberg/Reuters.
    * May be null if the subscription is not currently active.
@@ -194,7 +199,11 @@ public class Subscription {
     MarketDataDistributor distributor = getMarketDataDistributor(spec);
     if (distributor == null) {
       distributor = new MarketDataDistributor(spec, this, getMarketDataSenderFactory(), persistent, getLkvStoreProvider());
-      MarketDataDistributor previous = _distributors.putIfAbsent(spec, distributor);
+      MarketDataDistributor previous;
+      synchronized (_distributors) {
+        previous = _distributors.putIfAbsent(spec, distributor);
+        updateDistributorSnapshot();
+      }
       if (previous == null) {
         s_logger.info("Added {} to {}", distributor, this);
       } else {
@@ -216,7 +225,11 @@ public class Subscription {
   }
 
   /*package*/ void removeDistributor(DistributionSpecification spec) {
-    MarketDataDistributor removed = _distributors.remove(spec);
+    MarketDataDistributor removed;
+    synchronized (_distributors) {
+      removed = _distributors.remove(spec);
+      updateDistributorSnapshot();
+    }
     if (removed != null) {
       s_logger.info("Removed {} from {}", removed, this);      
     } else {
@@ -226,7 +239,14 @@ public class Subscription {
 
   /*package*/ void removeAllDistributors() {
     s_logger.info("Removed {} from {}", _distributors, this);
-    _distributors.clear();
+    synchronized (_distributors) {
+      _distributors.clear();
+      updateDistributorSnapshot();
+    }
+  }
+
+  private void updateDistributorSnapshot() {
+    _distributorSnapshot = _distributors.values().toArray(new MarketDataDistributor[_distributors.size()]);
   }
 
   /*package*/ void initialSnapshotReceived(FudgeMsg liveDataFields) {
@@ -247,7 +267,7 @@ public class Subscription {
     try {
       _history.liveDataReceived(liveDataFields);
 
-      for (MarketDataDistributor distributor : getDistributors()) {
+      for (MarketDataDistributor distributor : _distributorSnapshot) {
         distributor.distributeLiveData(liveDataFields);
       }
     } finally {
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.LiveDataValueUpdateBeanFudgeBuilder;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+import com.opengamma.util.jms.JmsConnector;
+
+/**
+ * Publishes the conflated updates of {@link JmsSender}s once per conflation window.
+ * <p>
+ * A sender in conflating mode merges the ticks it receives into its cumulative delta and
+ * schedules itself here instead of sending each one. Every window the pending senders are
+ * drained and their updates are sent to JMS using a single session and producer, so each
+ * distribution publishes at most one message per window however fast its ticker updates.
+ * <p>
+ * All sends happen on a single thread which reuses its serializer and message buffer.
+ * The thread is stopped by {@link #close()}.
+ */
+/*package*/ class ConflatingJmsPublisher {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingJmsPublisher.class);
+
+  /**
+   * The JMS connector.
+   */
+  private final JmsConnector _jmsConnector;
+  /**
+   * The senders with updates waiting to be published.
+   */
+  private final Queue<JmsSender> _pendingSenders = new ConcurrentLinkedQueue<>();
+  /**
+   * The serializer, only used by the publishing thread.
+   */
+  private final FudgeSerializer _serializer;
+  /**
+   * The message buffer, only used by the publishing thread.
+   */
+  private final MessageBuffer _buffer = new MessageBuffer();
+  /**
+   * The writer into the message buffer, only used by the publishing thread.
+   */
+  private final FudgeMsgWriter _writer;
+  /**
+   * The publishing thread.
+   */
+  private final ScheduledExecutorService _scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadPoolFactory("JmsSenderConflation", true));
+  /**
+   * The task publishing once per window, guarded by the scheduler.
+   */
+  private ScheduledFuture<?> _publishTask;
+
+  /**
+   * Creates an instance and starts publishing.
+   *
+   * @param jmsConnector  the JMS connector, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param conflationMillis  the length of the conflation window in milliseconds, greater than zero
+   */
+  /*package*/ ConflatingJmsPublisher(JmsConnector jmsConnector, FudgeContext fudgeContext, long conflationMillis) {
+    ArgumentChecker.notNull(jmsConnector, "jmsConnector");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.isTrue(conflationMillis > 0, "conflationMillis must be greater than zero");
+    _jmsConnector = jmsConnector;
+    _serializer = new FudgeSerializer(fudgeContext);
+    _writer = fudgeContext.createMessageWriter(_buffer);
+    setConflationMillis(conflationMillis);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Changes the length of the conflation window.
+   * <p>
+   * The window of every sender using this publisher changes, the next publication
+   * is one new window from now.
+   *
+   * @param conflationMillis  the length of the conflation window in milliseconds, greater than zero
+   */
+  /*package*/ void setConflationMillis(long conflationMillis) {
+    ArgumentChecker.isTrue(conflationMillis > 0, "conflationMillis must be greater than zero");
+    synchronized (_scheduler) {
+      if (_scheduler.isShutdown()) {
+        throw new IllegalStateException("Publisher has been closed");
+      }
+      if (_publishTask != null) {
+        _publishTask.cancel(false);
+      }
+      _publishTask = _scheduler.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            publish();
+          } catch (RuntimeException e) {
+            s_logger.error("Failed to publish conflated market data", e);
+          }
+        }
+      }, conflationMillis, conflationMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops the publishing thread, first sending the updates already scheduled.
+   * <p>
+   * Updates can't be scheduled after this, senders send them directly instead.
+   */
+  /*package*/ void close() {
+    synchronized (_scheduler) {
+      _scheduler.shutdown();
+    }
+    // waits for a publication in progress on the publishing thread
+    publish();
+  }
+
+  /**
+   * Checks if the publisher has been closed.
+   *
+   * @return true if closed
+   */
+  /*package*/ boolean isClosed() {
+    return _scheduler.isShutdown();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Schedules a sender's update to be sent at the end of the current window.
+   * <p>
+   * The sender is responsible for scheduling itself at most once per window.
+   * If the publisher has been closed the update won't be sent and the sender must send it itself.
+   *
+   * @param sender  the sender, not null
+   * @return true if the update will be sent, false if the publisher has been closed
+   */
+  /*package*/ boolean schedule(JmsSender sender) {
+    _pendingSenders.add(sender);
+    // close() shuts down before draining the queue, so a sender added while the publisher was open is always sent
+    if (isClosed()) {
+      _pendingSenders.remove(sender);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Publishes the updates of all the senders scheduled so far.
+   * <p>
+   * This is normally invoked by the publishing thread once per window. Updates that can't
+   * be sent are returned to their senders to be merged with any later ticks.
+   */
+  /*package*/ synchronized void publish() {
+    if (_pendingSenders.isEmpty()) {
+      return;
+    }
+    final List<JmsSender> senders = new ArrayList<>(_pendingSenders.size());
+    for (JmsSender sender = _pendingSenders.poll(); sender != null; sender = _pendingSenders.poll()) {
+      senders.add(sender);
+    }
+    s_logger.debug("Publishing conflated updates for {} senders", senders.size());
+    final JmsTemplate jmsTemplate = _jmsConnector.getJmsTemplateTopic();
+    final int[] sent = new int[1];
+    final LiveDataValueUpdateBean[] inFlight = new LiveDataValueUpdateBean[1];
+    try {
+      jmsTemplate.execute(new SessionCallback<Object>() {
+        @Override
+        public Object doInJms(Session session) throws JMSException {
+          MessageProducer producer = session.createProducer(null);
+          try {
+            for (; sent[0] < senders.size(); sent[0]++) {
+              JmsSender sender = senders.get(sent[0]);
+              LiveDataValueUpdateBean update = sender.takeConflatedUpdate();
+              if (update == null) {
+                continue;
+              }
+              inFlight[0] = update;
+              String destinationName = sender.getDistributor().getDistributionSpec().getJmsTopic();
+              Destination destination = jmsTemplate.getDestinationResolver().resolveDestinationName(session, destinationName, true);
+              BytesMessage message = session.createBytesMessage();
+              encode(update);
+              _buffer.writeToMessage(message);
+              if (jmsTemplate.isExplicitQosEnabled()) {
+                producer.send(destination, message, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(), jmsTemplate.getTimeToLive());
+              } else {
+                producer.send(destination, message);
+              }
+              inFlight[0] = null;
+            }
+          } finally {
+            producer.close();
+          }
+          return null;
+        }
+      }, false);
+    } catch (RuntimeException e) {
+      s_logger.warn("Failed to publish conflated market data, will retry next window", e);
+      for (int i = sent[0]; i < senders.size(); i++) {
+        JmsSender sender = senders.get(i);
+        if (i == sent[0] && inFlight[0] != null) {
+          sender.restoreConflatedUpdate(inFlight[0]);
+        } else {
+          _pendingSenders.add(sender);
+        }
+      }
+    }
+  }
+
+  private void encode(LiveDataValueUpdateBean update) {
+    _serializer.reset();
+    _buffer.reset();
+    FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(_serializer, update);
+    _writer.writeMessage(fudgeMsg, 0);
+    _writer.flush();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Byte buffer whose contents can be written to a message without copying.
+   */
+  private static final class MessageBuffer extends ByteArrayOutputStream {
+
+    private MessageBuffer() {
+      super(1024);
+    }
+
+    private void writeToMessage(BytesMessage message) throws JMSException {
+      message.writeBytes(buf, 0, count);
+    }
+  }
+
+}
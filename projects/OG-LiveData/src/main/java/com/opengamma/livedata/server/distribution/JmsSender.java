@@ -32,6 +32,12 @@ import com.opengamma.util.jms.JmsConnector;
  * When the sender loses connection to JMS, it starts building a 
  * cumulative delta of changes. This cumulative delta is published when 
  * the sender reconnects.
+ * <p>
+ * If created with a {@link ConflatingJmsPublisher} the sender always builds
+ * the cumulative delta, and the publisher sends it at the end of each
+ * conflation window. Only the last value of each field within the window
+ * is published. Once the publisher is closed the sender sends every update
+ * immediately.
  */
 public class JmsSender implements MarketDataSender {
 
@@ -66,6 +72,14 @@ public class JmsSender implements MarketDataSender {
    * The internal lock.
    */
   private final Semaphore _lock = new Semaphore(1);
+  /**
+   * The publisher of conflated updates, null if every update is sent immediately.
+   */
+  private final ConflatingJmsPublisher _conflatingPublisher;
+  /**
+   * Whether the sender is waiting for the conflating publisher to take its update.
+   */
+  private boolean _conflationPending;
 
   /**
    * Creates an instance.
@@ -75,12 +89,26 @@ public class JmsSender implements MarketDataSender {
    * @param fudgeContext  the Fudge context, not null
    */
   public JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext) {
+    this(jmsConnector, distributor, fudgeContext, null);
+  }
+
+  /**
+   * Creates an instance that conflates updates.
+   * 
+   * @param jmsConnector  the JMS connector, not null
+   * @param distributor  the distributor, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param conflatingPublisher  the publisher of conflated updates, null to send every update immediately
+   */
+  /*package*/ JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext,
+      ConflatingJmsPublisher conflatingPublisher) {
     ArgumentChecker.notNull(jmsConnector, "jmsConnector");
     ArgumentChecker.notNull(distributor, "Market data distributor");
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
     _jmsConnector = jmsConnector;
     _fudgeContext = fudgeContext;
     _distributor = distributor;
+    _conflatingPublisher = conflatingPublisher;
   }
 
   //-------------------------------------------------------------------------
@@ -101,6 +129,10 @@ public class JmsSender implements MarketDataSender {
         s_logger.debug("{}: Interrupted - not sending message", this);
         return;
       }
+      if (_conflatingPublisher != null) {
+        scheduleConflatedUpdate();
+        return;
+      }
       
       send();
     } finally {
@@ -108,13 +140,17 @@ public class JmsSender implements MarketDataSender {
     }
   }
 
+  private LiveDataValueUpdateBean createUpdate() {
+    return new LiveDataValueUpdateBean(
+        _lastSequenceNumber, 
+        getDistributor().getDistributionSpec().getFullyQualifiedLiveDataSpecification(), 
+        _cumulativeDelta.getLastKnownValues());
+  }
+
   private void send() {
     DistributionSpecification distributionSpec = getDistributor().getDistributionSpec();
     
-    LiveDataValueUpdateBean liveDataValueUpdateBean = new LiveDataValueUpdateBean(
-        _lastSequenceNumber, 
-        distributionSpec.getFullyQualifiedLiveDataSpecification(), 
-        _cumulativeDelta.getLastKnownValues());
+    LiveDataValueUpdateBean liveDataValueUpdateBean = createUpdate();
     s_logger.debug("{}: Sending Live Data update {}", this, liveDataValueUpdateBean);
     
     FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(_fudgeContext), liveDataValueUpdateBean);
@@ -134,6 +170,70 @@ public class JmsSender implements MarketDataSender {
     _cumulativeDelta.clear();
   }
 
+  /**
+   * Schedules the cumulative delta with the conflating publisher unless it is already scheduled.
+   * If the publisher has been closed the delta is sent immediately instead.
+   * Must be called holding the lock.
+   */
+  private void scheduleConflatedUpdate() {
+    if (!_conflationPending) {
+      _conflationPending = true;
+      if (!_conflatingPublisher.schedule(this)) {
+        _conflationPending = false;
+        send();
+      }
+    }
+  }
+
+  /**
+   * Takes the update conflated since it was last taken, clearing the cumulative delta.
+   * <p>
+   * This is called by the conflating publisher once per window for a scheduled sender.
+   * 
+   * @return the update to send, null if there is nothing to send
+   */
+  /*package*/ LiveDataValueUpdateBean takeConflatedUpdate() {
+    _lock.acquireUninterruptibly();
+    try {
+      _conflationPending = false;
+      if (_interrupted || _cumulativeDelta.isEmpty()) {
+        return null;
+      }
+      LiveDataValueUpdateBean update = createUpdate();
+      s_logger.debug("{}: Sending conflated Live Data update {}", this, update);
+      _cumulativeDelta.clear();
+      return update;
+    } finally {
+      _lock.release();
+    }
+  }
+
+  /**
+   * Returns an update which the conflating publisher failed to send. Its fields are merged
+   * beneath any received since it was taken and the sender is scheduled again.
+   * 
+   * @param update  the update that wasn't sent, not null
+   */
+  /*package*/ void restoreConflatedUpdate(LiveDataValueUpdateBean update) {
+    _lock.acquireUninterruptibly();
+    try {
+      FieldHistoryStore merged = new FieldHistoryStore(update.getFields());
+      merged.liveDataReceived(_cumulativeDelta.getLastKnownValues());
+      _cumulativeDelta.clear();
+      _cumulativeDelta.liveDataReceived(merged.getLastKnownValues());
+      if (!_interrupted) {
+        try {
+          scheduleConflatedUpdate();
+        } catch (RuntimeException e) {
+          // the publisher was closed and sending directly failed too, the fields go with the next update
+          s_logger.warn("{}: Failed to send restored update", this, e);
+        }
+      }
+    } finally {
+      _lock.release();
+    }
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Checks if the sender is interrupted.
@@ -167,7 +267,11 @@ public class JmsSender implements MarketDataSender {
     if (_lock.tryAcquire()) {
       try {
         if (!_cumulativeDelta.isEmpty()) {
-          send();
+          if (_conflatingPublisher != null) {
+            scheduleConflatedUpdate();
+          } else {
+            send();
+          }
         }
       } catch (RuntimeException e) {
         s_logger.error("transportResumed() failed", e);
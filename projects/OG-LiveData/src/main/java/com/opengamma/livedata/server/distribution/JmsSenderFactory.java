@@ -17,14 +17,20 @@ import java.util.concurrent.TimeUnit;
 import org.fudgemsg.FudgeContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
 
+import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.jms.JmsConnector;
 
 /**
  * Factory to create JMS senders.
+ * <p>
+ * When conflating, the factory is running while it has a publisher of conflated updates.
+ * Stopping it sends the pending updates and stops the publishing thread. Senders created
+ * before it was stopped then send every update immediately.
  */
-public class JmsSenderFactory implements MarketDataSenderFactory {
+public class JmsSenderFactory implements MarketDataSenderFactory, Lifecycle {
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(JmsSenderFactory.class);
@@ -46,6 +52,14 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
    * The executor.
    */
   private final ExecutorService _executor;
+  /**
+   * The length of the conflation window in milliseconds, zero to send every update immediately.
+   */
+  private long _conflationMillis;
+  /**
+   * The publisher of conflated updates, created when the first conflating sender is.
+   */
+  private ConflatingJmsPublisher _conflatingPublisher;
 
   /**
    * Creates an instance.
@@ -105,6 +119,71 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
     _fudgeContext = fudgeContext;
   }
 
+  /**
+   * Gets the length of the conflation window.
+   * 
+   * @return the conflation window in milliseconds, zero if updates are not conflated
+   */
+  public long getConflationMillis() {
+    return _conflationMillis;
+  }
+
+  /**
+   * Sets the length of the conflation window.
+   * <p>
+   * When greater than zero, the senders created by this factory publish at most one update
+   * per distribution in each window, containing the last value of each field that changed.
+   * The updates for all distributions are sent together at the end of the window. When zero,
+   * the default, every update is sent as soon as it is received.
+   * <p>
+   * Changing the window also changes it for the conflating senders already created.
+   * Disabling conflation only affects senders created after it is disabled.
+   * 
+   * @param conflationMillis  the conflation window in milliseconds, zero to disable conflation
+   */
+  public synchronized void setConflationMillis(long conflationMillis) {
+    ArgumentChecker.notNegative(conflationMillis, "conflationMillis");
+    if (conflationMillis > 0 && _conflatingPublisher != null) {
+      // senders already created keep publishing through the same publisher
+      _conflatingPublisher.setConflationMillis(conflationMillis);
+    }
+    _conflationMillis = conflationMillis;
+  }
+
+  /**
+   * Gets the publisher used by conflating senders, creating it if necessary.
+   * 
+   * @return the publisher, null if updates are not conflated
+   */
+  /*package*/ synchronized ConflatingJmsPublisher getConflatingPublisher() {
+    if (_conflationMillis == 0) {
+      return null;
+    }
+    if (_conflatingPublisher == null) {
+      _conflatingPublisher = new ConflatingJmsPublisher(_jmsConnector, getFudgeContext(), _conflationMillis);
+    }
+    return _conflatingPublisher;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void start() {
+    // the publisher is created when the first conflating sender is
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (_conflatingPublisher != null) {
+      _conflatingPublisher.close();
+      _conflatingPublisher = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return _conflatingPublisher != null;
+  }
+
   //-------------------------------------------------------------------------
   public synchronized void transportInterrupted() {
     s_logger.warn("JMS transport interrupted; notifying {} senders", _allActiveSenders.size());
@@ -133,7 +212,7 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
   @Override
   public synchronized Collection<MarketDataSender> create(MarketDataDistributor distributor) {
     s_logger.debug("Created JmsSender for {}", distributor);
-    JmsSender sender = new JmsSender(_jmsConnector, distributor, getFudgeContext());
+    JmsSender sender = new JmsSender(_jmsConnector, distributor, getFudgeContext(), getConflatingPublisher());
     _allActiveSenders.add(sender);
     return Collections.<MarketDataSender>singleton(sender);
   }
@@ -16,6 +16,7 @@ import java.util.Collections;
 
 import net.sf.ehcache.CacheManager;
 
+import org.fudgemsg.MutableFudgeMsg;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -33,6 +34,7 @@ import com.opengamma.livedata.msg.SubscriptionType;
 import com.opengamma.livedata.normalization.StandardRules;
 import com.opengamma.livedata.server.distribution.MarketDataDistributor;
 import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.test.TestGroup;
 
 /**
@@ -171,6 +173,26 @@ public class MockLiveDataServerTest {
     assertTrue(_server.unsubscribe("testsub"));
   }
 
+  public void resubscribeExtendsExpiry() {
+    _server.subscribe("mysub", false);
+    MarketDataDistributor distributor = _server.getMarketDataDistributor(getSpec("mysub"));
+
+    distributor.setExpiry(System.currentTimeMillis() + 1);
+    LiveDataSubscriptionResponse result = _server.subscribe("mysub", false);
+    assertEquals(LiveDataSubscriptionResult.SUCCESS, result.getSubscriptionResult());
+    assertSame(distributor, _server.getMarketDataDistributor(getSpec("mysub")));
+    assertTrue(distributor.getExpiry() > System.currentTimeMillis() + 1);
+
+    // an expired distributor is renewed under the subscription lock
+    distributor.setExpiry(0L);
+    result = _server.subscribe("mysub", false);
+    assertEquals(LiveDataSubscriptionResult.SUCCESS, result.getSubscriptionResult());
+    assertSame(distributor, _server.getMarketDataDistributor(getSpec("mysub")));
+    assertFalse(distributor.hasExpired());
+    assertEquals(0, _server.expireSubscriptions());
+    assertEquals(1, _server.getNumActiveSubscriptions());
+  }
+
   public void subscribeThenStopDistributor() {
     _server.subscribe("mysub", false);
     _server.subscribe("mysub", false);
@@ -198,6 +220,23 @@ public class MockLiveDataServerTest {
     assertFalse(_server.stopDistributor(distributor));
   }
 
+  public void liveDataDistributedToCurrentDistributors() {
+    _server.subscribe("ticks", false);
+    Subscription sub = _server.getSubscription("ticks");
+    MarketDataDistributor distributor = _server.getMarketDataDistributor("ticks");
+
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("BID", 1.0);
+    _server.liveDataReceived("ticks", msg);
+    assertEquals(1, _server.getNumMarketDataUpdatesReceived());
+    assertEquals(1, distributor.getNumMessagesSent());
+
+    sub.removeAllDistributors();
+    _server.liveDataReceived("ticks", msg);
+    assertEquals(2, _server.getNumMarketDataUpdatesReceived());
+    assertEquals(1, distributor.getNumMessagesSent());
+  }
+
   private void checkResponse(UserPrincipal user, LiveDataSpecification requestedSpec,
       LiveDataSubscriptionResponseMsg response) {
     assertEquals(user, response.getRequestingUser());
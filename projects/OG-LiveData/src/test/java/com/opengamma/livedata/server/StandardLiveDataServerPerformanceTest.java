@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.wire.FudgeMsgReader;
+
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * This is intentionally NOT a TestNG test. It should be run manually to measure the
+ * throughput of {@link StandardLiveDataServer#liveDataReceived} while subscriptions are
+ * being made.
+ * <p>
+ * The ticks are replayed from a file of Fudge messages in the format written by the
+ * Bloomberg tick recorder, each with a {@code security} string and a {@code fields}
+ * sub-message. If no file is given, synthetic ticks are generated.
+ */
+public class StandardLiveDataServerPerformanceTest {
+  public static final int NUM_SECURITIES = 5000;
+  public static final int NUM_FIELDS_PER_SECURITY = 5;
+  public static final int NUM_TICKS = 200000;
+  public static final int NUM_CYCLES = 10;
+  public static final int NUM_STORM_SUBSCRIPTIONS = 20000;
+  public static final FudgeContext FUDGE_CONTEXT = OpenGammaFudgeContext.getInstance();
+  public static final String SECURITY_KEY = "security";
+  public static final String FIELDS_KEY = "fields";
+  private final List<String> _tickSecurities = new ArrayList<String>();
+  private final List<FudgeMsg> _tickFields = new ArrayList<FudgeMsg>();
+  private MockLiveDataServer _server;
+
+  public void loadTicks(String fileName) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(fileName));
+    try {
+      FudgeMsgReader reader = FUDGE_CONTEXT.createMessageReader(in);
+      while (reader.hasNext()) {
+        FudgeMsg tick = reader.nextMessage();
+        String security = tick.getString(SECURITY_KEY);
+        FudgeMsg fields = tick.getMessage(FIELDS_KEY);
+        if (security != null && fields != null) {
+          _tickSecurities.add(security);
+          _tickFields.add(fields);
+        }
+      }
+    } finally {
+      in.close();
+    }
+    System.out.println("Loaded " + _tickSecurities.size() + " ticks from " + fileName);
+  }
+
+  public void generateTicks() {
+    for (int i = 0; i < NUM_TICKS; i++) {
+      MutableFudgeMsg msg = FUDGE_CONTEXT.newMessage();
+      for (int j = 0; j < NUM_FIELDS_PER_SECURITY; j++) {
+        msg.add("Field-" + j, (double) i);
+      }
+      _tickSecurities.add("Security-" + (i % NUM_SECURITIES));
+      _tickFields.add(msg);
+    }
+  }
+
+  public void constructServer() {
+    _server = new MockLiveDataServer(ExternalScheme.of("PerformanceTest"),
+        EHCacheUtils.createTestCacheManager(getClass()));
+    _server.connect();
+    for (String security : new LinkedHashSet<String>(_tickSecurities)) {
+      _server.subscribe(security);
+    }
+  }
+
+  public void oneCycle() {
+    for (int i = 0; i < _tickSecurities.size(); i++) {
+      _server.liveDataReceived(_tickSecurities.get(i), _tickFields.get(i));
+    }
+  }
+
+  public void runTest(int nThreads, boolean subscriptionStorm) throws Exception {
+    final AtomicBoolean running = new AtomicBoolean(true);
+    Thread storm = null;
+    if (subscriptionStorm) {
+      storm = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Set<String> subscribed = new LinkedHashSet<String>();
+          for (int i = 0; i < NUM_STORM_SUBSCRIPTIONS && running.get(); i++) {
+            String security = "Storm-" + i;
+            _server.subscribe(security);
+            subscribed.add(security);
+          }
+          for (String security : subscribed) {
+            _server.unsubscribe(security);
+          }
+        }
+      });
+      storm.setName("Perf test subscriber");
+    }
+    List<Thread> threads = new LinkedList<Thread>();
+    for (int i = 0; i < nThreads; i++) {
+      Thread t = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < NUM_CYCLES; i++) {
+            oneCycle();
+          }
+        }
+      });
+      t.setName("Perf test worker " + i);
+      t.setDaemon(false);
+      threads.add(t);
+    }
+
+    long startTime = System.nanoTime();
+    if (storm != null) {
+      storm.start();
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    long endTime = System.nanoTime();
+    running.set(false);
+    if (storm != null) {
+      storm.join();
+    }
+    long delta = endTime - startTime;
+    double totalUpdates = ((double) NUM_CYCLES) * _tickSecurities.size() * nThreads;
+    double splitTime = ((double) delta) / totalUpdates;
+    System.out.println("........" + splitTime + " nanos per update.");
+
+    double splitTimeInSec = splitTime * 1.0e-9;
+    double numPerSec = 1.0 / splitTimeInSec;
+    System.out.println("........" + numPerSec + " updates per second.");
+  }
+
+  /**
+   * @param args optionally the name of a recorded tick file
+   */
+  public static void main(String[] args) throws Exception {
+    final StandardLiveDataServerPerformanceTest test = new StandardLiveDataServerPerformanceTest();
+    if (args.length > 0) {
+      test.loadTicks(args[0]);
+    } else {
+      test.generateTicks();
+    }
+    test.constructServer();
+
+    // warm up
+    test.runTest(1, false);
+
+    for (int nThreads = 1; nThreads <= 4; nThreads++) {
+      System.out.println("THREADS : " + nThreads);
+      test.runTest(nThreads, false);
+      System.out.println("THREADS : " + nThreads + " WITH SUBSCRIPTION STORM");
+      test.runTest(nThreads, true);
+    }
+    test._server.disconnect();
+  }
+
+}
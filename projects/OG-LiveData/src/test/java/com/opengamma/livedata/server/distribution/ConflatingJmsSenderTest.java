@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.destination.DestinationResolver;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.LiveDataValueUpdateBeanFudgeBuilder;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.jms.JmsConnector;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ConflatingJmsSenderTest {
+
+  private static final FudgeContext s_fudgeContext = OpenGammaFudgeContext.getInstance();
+
+  private final List<byte[]> _sent = new ArrayList<>();
+  private MessageProducer _producer;
+  private JmsConnector _jmsConnector;
+  private JmsSenderFactory _factory;
+  private MarketDataDistributor _mdd;
+
+  @BeforeMethod
+  @SuppressWarnings("unchecked")
+  public void setUp() throws JMSException {
+    _sent.clear();
+    final Session session = mock(Session.class);
+    _producer = mock(MessageProducer.class);
+    when(session.createProducer(null)).thenReturn(_producer);
+    when(session.createBytesMessage()).thenAnswer(new Answer<BytesMessage>() {
+      @Override
+      public BytesMessage answer(InvocationOnMock invocation) throws Throwable {
+        BytesMessage message = mock(BytesMessage.class);
+        doWriteBytes(message);
+        return message;
+      }
+    });
+    DestinationResolver destinationResolver = mock(DestinationResolver.class);
+    when(destinationResolver.resolveDestinationName(any(Session.class), anyString(), anyBoolean())).thenReturn(mock(Destination.class));
+    JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+    when(jmsTemplate.getDestinationResolver()).thenReturn(destinationResolver);
+    when(jmsTemplate.execute(any(SessionCallback.class), anyBoolean())).thenAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        try {
+          return ((SessionCallback<Object>) invocation.getArguments()[0]).doInJms(session);
+        } catch (JMSException e) {
+          throw JmsUtils.convertJmsAccessException(e);
+        }
+      }
+    });
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        ((MessageCreator) invocation.getArguments()[1]).createMessage(session);
+        return null;
+      }
+    }).when(jmsTemplate).send(anyString(), any(MessageCreator.class));
+    _jmsConnector = new JmsConnector("Test", jmsTemplate, jmsTemplate, null, null, null, null);
+    _factory = new JmsSenderFactory(_jmsConnector);
+    // long enough that only the test publishes
+    _factory.setConflationMillis(TimeUnit.HOURS.toMillis(1));
+    _mdd = MarketDataDistributorTest.getTestDistributor(_factory);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _factory.stop();
+  }
+
+  private void doWriteBytes(BytesMessage message) throws JMSException {
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        byte[] bytes = (byte[]) invocation.getArguments()[0];
+        int offset = (Integer) invocation.getArguments()[1];
+        int length = (Integer) invocation.getArguments()[2];
+        _sent.add(Arrays.copyOfRange(bytes, offset, offset + length));
+        return null;
+      }
+    }).when(message).writeBytes(any(byte[].class), anyInt(), anyInt());
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        _sent.add(((byte[]) invocation.getArguments()[0]).clone());
+        return null;
+      }
+    }).when(message).writeBytes(any(byte[].class));
+  }
+
+  private static MutableFudgeMsg msg(String field, Object value) {
+    MutableFudgeMsg msg = s_fudgeContext.newMessage();
+    msg.add(field, value);
+    return msg;
+  }
+
+  private LiveDataValueUpdateBean sentUpdate(int index) {
+    FudgeMsg msg = s_fudgeContext.deserialize(_sent.get(index)).getMessage();
+    return LiveDataValueUpdateBeanFudgeBuilder.fromFudgeMsg(new FudgeDeserializer(s_fudgeContext), msg);
+  }
+
+  //-------------------------------------------------------------------------
+  public void conflatesWithinWindow() {
+    MutableFudgeMsg msg1 = msg("BID", 1d);
+    msg1.add("ASK", 2d);
+    _mdd.distributeLiveData(msg1);
+    _mdd.distributeLiveData(msg("BID", 3d));
+    assertEquals(0, _sent.size());
+
+    _factory.getConflatingPublisher().publish();
+    assertEquals(1, _sent.size());
+    LiveDataValueUpdateBean update = sentUpdate(0);
+    assertEquals(1, update.getSequenceNumber());
+    assertEquals(3d, update.getFields().getDouble("BID"));
+    assertEquals(2d, update.getFields().getDouble("ASK"));
+
+    // nothing new, nothing sent
+    _factory.getConflatingPublisher().publish();
+    assertEquals(1, _sent.size());
+
+    _mdd.distributeLiveData(msg("ASK", 4d));
+    _factory.getConflatingPublisher().publish();
+    assertEquals(2, _sent.size());
+    assertEquals(2, sentUpdate(1).getSequenceNumber());
+    assertEquals(msg("ASK", 4d), sentUpdate(1).getFields());
+  }
+
+  public void restoresUpdateAfterFailure() throws JMSException {
+    doThrow(new JMSException("Broker unavailable")).when(_producer).send(any(Destination.class), any(BytesMessage.class));
+    _mdd.distributeLiveData(msg("BID", 1d));
+    _factory.getConflatingPublisher().publish();
+
+    reset(_producer);
+    _sent.clear();
+    _mdd.distributeLiveData(msg("ASK", 2d));
+    _factory.getConflatingPublisher().publish();
+    assertEquals(1, _sent.size());
+    assertEquals(1d, sentUpdate(0).getFields().getDouble("BID"));
+    assertEquals(2d, sentUpdate(0).getFields().getDouble("ASK"));
+  }
+
+  public void heldWhileInterrupted() {
+    JmsSender sender = new JmsSender(_jmsConnector, _mdd, s_fudgeContext, _factory.getConflatingPublisher());
+    sender.transportInterrupted();
+    sender.sendMarketData(new LiveDataValueUpdateBean(0, _mdd.getFullyQualifiedLiveDataSpecification(), msg("BID", 1d)));
+    _factory.getConflatingPublisher().publish();
+    assertEquals(0, _sent.size());
+
+    sender.transportResumed();
+    _factory.getConflatingPublisher().publish();
+    assertEquals(1, _sent.size());
+    assertEquals(1d, sentUpdate(0).getFields().getDouble("BID"));
+  }
+
+  public void changingWindowKeepsPublisher() {
+    ConflatingJmsPublisher publisher = _factory.getConflatingPublisher();
+    _factory.setConflationMillis(TimeUnit.HOURS.toMillis(2));
+    assertSame(publisher, _factory.getConflatingPublisher());
+
+    _mdd.distributeLiveData(msg("BID", 1d));
+    publisher.publish();
+    assertEquals(1, _sent.size());
+  }
+
+  public void stopSendsPendingUpdates() {
+    ConflatingJmsPublisher publisher = _factory.getConflatingPublisher();
+    _mdd.distributeLiveData(msg("BID", 1d));
+    assertTrue(_factory.isRunning());
+
+    _factory.stop();
+    assertTrue(publisher.isClosed());
+    assertFalse(_factory.isRunning());
+    assertEquals(1, _sent.size());
+    assertEquals(1d, sentUpdate(0).getFields().getDouble("BID"));
+
+    // senders created later get a new publisher
+    assertNotSame(publisher, _factory.getConflatingPublisher());
+  }
+
+  public void sendsDirectlyAfterStop() {
+    _mdd.distributeLiveData(msg("BID", 1d));
+    _factory.stop();
+    assertEquals(1, _sent.size());
+
+    // the existing sender still holds the closed publisher
+    _mdd.distributeLiveData(msg("ASK", 2d));
+    assertEquals(2, _sent.size());
+    assertEquals(msg("ASK", 2d), sentUpdate(1).getFields());
+
+    _mdd.distributeLiveData(msg("BID", 3d));
+    assertEquals(3, _sent.size());
+    assertEquals(msg("BID", 3d), sentUpdate(2).getFields());
+  }
+
+}
@@ -7,13 +7,30 @@ package com.opengamma.master.security.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.opengamma.DataNotFoundException;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.AbstractSource;
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.core.security.AbstractSecuritySource;
 import com.opengamma.core.security.Security;
 import com.opengamma.core.security.SecuritySource;
+import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ExternalIdSearch;
+import com.opengamma.id.ExternalIdSearchType;
+import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.master.AbstractMasterSource;
 import com.opengamma.master.security.ManageableSecurity;
@@ -22,16 +39,33 @@ import com.opengamma.master.security.SecurityMaster;
 import com.opengamma.master.security.SecuritySearchRequest;
 import com.opengamma.master.security.SecuritySearchResult;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.PoolExecutor;
 import com.opengamma.util.PublicSPI;
 
 /**
  * A {@code SecuritySource} implemented using an underlying {@code SecurityMaster}.
  * <p>
  * The {@link SecuritySource} interface provides securities to the engine via a narrow API. This class provides the source on top of a standard {@link SecurityMaster}.
+ * <p>
+ * The bulk methods resolve many bundles or identifiers with a small number of master queries. The request is divided into chunks
+ * which are passed to the master in parallel when a {@link PoolExecutor} is available.
  */
 @PublicSPI
 public class MasterSecuritySource extends AbstractMasterSource<Security, SecurityDocument, SecurityMaster> implements SecuritySource {
 
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(MasterSecuritySource.class);
+
+  /**
+   * The default maximum number of bundles or identifiers to pass to the master in one bulk request.
+   */
+  public static final int DEFAULT_BULK_REQUEST_SIZE = 500;
+
+  /**
+   * The maximum number of bundles or identifiers to pass to the master in one bulk request.
+   */
+  private volatile int _bulkRequestSize = DEFAULT_BULK_REQUEST_SIZE;
+
   /**
    * Creates an instance with an underlying master.
    * 
@@ -41,6 +75,26 @@ public class MasterSecuritySource extends AbstractMasterSource<Security, Securit
     super(master);
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the maximum number of bundles or identifiers to pass to the master in one bulk request.
+   * 
+   * @return the request size, greater than zero
+   */
+  public int getBulkRequestSize() {
+    return _bulkRequestSize;
+  }
+
+  /**
+   * Sets the maximum number of bundles or identifiers to pass to the master in one bulk request.
+   * 
+   * @param bulkRequestSize the request size, greater than zero
+   */
+  public void setBulkRequestSize(final int bulkRequestSize) {
+    ArgumentChecker.notNegativeOrZero(bulkRequestSize, "bulkRequestSize");
+    _bulkRequestSize = bulkRequestSize;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public Collection<Security> get(final ExternalIdBundle bundle) {
@@ -59,8 +113,18 @@ public class MasterSecuritySource extends AbstractMasterSource<Security, Securit
   }
 
   @Override
-  public Map<ExternalIdBundle, Collection<Security>> getAll(final Collection<ExternalIdBundle> bundle, final VersionCorrection versionCorrection) {
-    return AbstractSecuritySource.getAll(this, bundle, versionCorrection);
+  public Map<ExternalIdBundle, Collection<Security>> getAll(final Collection<ExternalIdBundle> bundles, final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(bundles, "bundles");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    if (bundles.size() <= 1) {
+      return AbstractSecuritySource.getAll(this, bundles, versionCorrection);
+    }
+    final Map<ExternalIdBundle, List<ManageableSecurity>> securities = getSecuritiesInternal(bundles, versionCorrection);
+    final Map<ExternalIdBundle, Collection<Security>> result = Maps.newHashMapWithExpectedSize(securities.size());
+    for (Map.Entry<ExternalIdBundle, List<ManageableSecurity>> entry : securities.entrySet()) {
+      result.put(entry.getKey(), new ArrayList<Security>(entry.getValue()));
+    }
+    return result;
   }
 
   @Override
@@ -78,8 +142,61 @@ public class MasterSecuritySource extends AbstractMasterSource<Security, Securit
   }
 
   @Override
-  public Map<ExternalIdBundle, Security> getSingle(final Collection<ExternalIdBundle> bundle, final VersionCorrection versionCorrection) {
-    return AbstractSecuritySource.getSingle(this, bundle, versionCorrection);
+  public Map<ExternalIdBundle, Security> getSingle(final Collection<ExternalIdBundle> bundles, final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(bundles, "bundles");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    if (bundles.size() <= 1) {
+      return AbstractSecuritySource.getSingle(this, bundles, versionCorrection);
+    }
+    final Map<ExternalIdBundle, List<ManageableSecurity>> securities = getSecuritiesInternal(bundles, versionCorrection);
+    final Map<ExternalIdBundle, Security> result = Maps.newHashMapWithExpectedSize(securities.size());
+    for (Map.Entry<ExternalIdBundle, List<ManageableSecurity>> entry : securities.entrySet()) {
+      // simply picks the first returned security, as the single bundle form does
+      result.put(entry.getKey(), entry.getValue().get(0));
+    }
+    return result;
+  }
+
+  /**
+   * Gets securities by unique identifier, passing chunks of the identifiers to the master's bulk get method.
+   * <p>
+   * Identifiers that cannot be found are omitted from the result.
+   * 
+   * @param uniqueIds the unique identifiers, not null
+   * @return the map of results, not null
+   */
+  @Override
+  public Map<UniqueId, Security> get(final Collection<UniqueId> uniqueIds) {
+    ArgumentChecker.notNull(uniqueIds, "uniqueIds");
+    if (uniqueIds.size() <= 1) {
+      return AbstractSource.get(this, uniqueIds);
+    }
+    final List<Callable<Map<UniqueId, Security>>> jobs = new ArrayList<Callable<Map<UniqueId, Security>>>();
+    for (final List<UniqueId> chunk : Lists.partition(new ArrayList<UniqueId>(uniqueIds), getBulkRequestSize())) {
+      jobs.add(new Callable<Map<UniqueId, Security>>() {
+        @Override
+        public Map<UniqueId, Security> call() {
+          final Map<UniqueId, SecurityDocument> documents;
+          try {
+            documents = getMaster().get(chunk);
+          } catch (DataNotFoundException ex) {
+            // at least one is missing; the single form ignores the missing ones
+            s_logger.debug("Bulk get failed, retrying individually: {}", ex.getMessage());
+            return AbstractSource.get(MasterSecuritySource.this, chunk);
+          }
+          final Map<UniqueId, Security> result = Maps.newHashMapWithExpectedSize(documents.size());
+          for (Map.Entry<UniqueId, SecurityDocument> document : documents.entrySet()) {
+            result.put(document.getKey(), document.getValue().getSecurity());
+          }
+          return result;
+        }
+      });
+    }
+    final Map<UniqueId, Security> result = Maps.newHashMapWithExpectedSize(uniqueIds.size());
+    for (Map<UniqueId, Security> chunk : execute(jobs)) {
+      result.putAll(chunk);
+    }
+    return result;
   }
 
   @SuppressWarnings({"rawtypes", "unchecked" })
@@ -90,6 +207,136 @@ public class MasterSecuritySource extends AbstractMasterSource<Security, Securit
     return (Collection) search(request).getSecurities(); // cast safe as supplied list will not be altered    
   }
 
+  /**
+   * Finds the securities matching each of the bundles.
+   * <p>
+   * Each chunk of bundles is satisfied by a single search for any of their identifiers, with the results matched back
+   * to the bundles they contain identifiers from. Bundles with no matching securities are omitted from the result.
+   * 
+   * @param bundles the bundles to search for, not null
+   * @param versionCorrection the version-correction, not null
+   * @return the securities matching each bundle, in the order returned by the master, not null
+   */
+  private Map<ExternalIdBundle, List<ManageableSecurity>> getSecuritiesInternal(final Collection<ExternalIdBundle> bundles, VersionCorrection versionCorrection) {
+    if (versionCorrection.containsLatest()) {
+      // fix "latest" so that all of the chunks see the same state
+      versionCorrection = versionCorrection.withLatestFixed(Instant.now());
+    }
+    final VersionCorrection vc = versionCorrection;
+    final List<Callable<Map<ExternalIdBundle, List<ManageableSecurity>>>> jobs = new ArrayList<Callable<Map<ExternalIdBundle, List<ManageableSecurity>>>>();
+    for (final List<ExternalIdBundle> chunk : Lists.partition(new ArrayList<ExternalIdBundle>(bundles), getBulkRequestSize())) {
+      jobs.add(new Callable<Map<ExternalIdBundle, List<ManageableSecurity>>>() {
+        @Override
+        public Map<ExternalIdBundle, List<ManageableSecurity>> call() {
+          return getSecuritiesChunk(chunk, vc);
+        }
+      });
+    }
+    final Map<ExternalIdBundle, List<ManageableSecurity>> result = Maps.newHashMapWithExpectedSize(bundles.size());
+    for (Map<ExternalIdBundle, List<ManageableSecurity>> chunk : execute(jobs)) {
+      result.putAll(chunk);
+    }
+    return result;
+  }
+
+  private Map<ExternalIdBundle, List<ManageableSecurity>> getSecuritiesChunk(final Collection<ExternalIdBundle> bundles, final VersionCorrection versionCorrection) {
+    final Map<ExternalId, List<ExternalIdBundle>> bundlesById = Maps.newHashMap();
+    for (ExternalIdBundle bundle : bundles) {
+      for (ExternalId id : bundle) {
+        List<ExternalIdBundle> idBundles = bundlesById.get(id);
+        if (idBundles == null) {
+          idBundles = new ArrayList<ExternalIdBundle>(1);
+          bundlesById.put(id, idBundles);
+        }
+        idBundles.add(bundle);
+      }
+    }
+    final Map<ExternalIdBundle, List<ManageableSecurity>> result = Maps.newHashMap();
+    if (bundlesById.isEmpty()) {
+      return result;
+    }
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    request.setExternalIdSearch(ExternalIdSearch.of(ExternalIdSearchType.ANY, bundlesById.keySet()));
+    request.setVersionCorrection(versionCorrection);
+    for (ManageableSecurity security : search(request).getSecurities()) {
+      final Set<ExternalIdBundle> matched = new HashSet<ExternalIdBundle>();
+      for (ExternalId id : security.getExternalIdBundle()) {
+        final List<ExternalIdBundle> idBundles = bundlesById.get(id);
+        if (idBundles != null) {
+          for (ExternalIdBundle bundle : idBundles) {
+            if (matched.add(bundle)) {
+              List<ManageableSecurity> securities = result.get(bundle);
+              if (securities == null) {
+                securities = new ArrayList<ManageableSecurity>(1);
+                result.put(bundle, securities);
+              }
+              securities.add(security);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Runs the jobs for each chunk of a bulk request, in parallel if there is more than one chunk and a {@link PoolExecutor} is available.
+   * 
+   * @param <T> the result type
+   * @param jobs the jobs to run, not null
+   * @return the job results, not null
+   */
+  private static <T> List<T> execute(final List<Callable<T>> jobs) {
+    final List<T> results = new ArrayList<T>(jobs.size());
+    final PoolExecutor executor = PoolExecutor.instance();
+    try {
+      if ((jobs.size() <= 1) || (executor == null)) {
+        for (Callable<T> job : jobs) {
+          results.add(job.call());
+        }
+        return results;
+      }
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new OpenGammaRuntimeException("Bulk request failed", ex);
+    }
+    final Throwable[] failure = new Throwable[1];
+    final PoolExecutor.Service<T> service = executor.createService(new PoolExecutor.CompletionListener<T>() {
+
+      @Override
+      public void success(final T result) {
+        synchronized (results) {
+          results.add(result);
+        }
+      }
+
+      @Override
+      public void failure(final Throwable error) {
+        s_logger.error("Caught exception", error);
+        synchronized (results) {
+          failure[0] = error;
+        }
+      }
+
+    });
+    s_logger.debug("Issuing {} parallel queries", jobs.size());
+    for (Callable<T> job : jobs) {
+      service.execute(job);
+    }
+    try {
+      service.join();
+    } catch (InterruptedException e) {
+      throw new OpenGammaRuntimeException("Interrupted", e);
+    }
+    synchronized (results) {
+      if (failure[0] != null) {
+        throw new OpenGammaRuntimeException("Bulk request failed", failure[0]);
+      }
+      return results;
+    }
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Searches for securities matching the specified search criteria.
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.master.security.impl;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.id.UniqueId;
+import com.opengamma.master.security.SecurityDocument;
+import com.opengamma.master.security.SecurityMaster;
+import com.opengamma.master.security.SecuritySearchRequest;
+import com.opengamma.master.security.SecuritySearchResult;
+import com.opengamma.util.PoolExecutor;
+import com.opengamma.util.PoolExecutor.CompletionListener;
+
+/**
+ * A {@link QuerySplittingSecurityMaster} implementation that makes the underlying requests in parallel.
+ */
+public class ParallelQuerySplittingSecurityMaster extends QuerySplittingSecurityMaster {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ParallelQuerySplittingSecurityMaster.class);
+
+  public ParallelQuerySplittingSecurityMaster(final SecurityMaster underlying) {
+    super(underlying);
+  }
+
+  @Override
+  protected Map<UniqueId, SecurityDocument> callSplitGetRequest(final Collection<Collection<UniqueId>> requests) {
+    return super.parallelSplitGetRequest(requests);
+  }
+
+  @Override
+  protected SecuritySearchResult callSplitSearchRequest(final Collection<SecuritySearchRequest> requests) {
+    final SecuritySearchResult mergedResult = new SecuritySearchResult();
+    final Set<UniqueId> merged = new HashSet<UniqueId>();
+    final PoolExecutor.Service<SecuritySearchResult> service = parallelService(new CompletionListener<SecuritySearchResult>() {
+
+      @Override
+      public void success(final SecuritySearchResult result) {
+        synchronized (mergedResult) {
+          mergeSplitSearchResult(mergedResult, result, merged);
+        }
+      }
+
+      @Override
+      public void failure(final Throwable error) {
+        s_logger.error("Caught exception", error);
+      }
+
+    });
+    s_logger.debug("Issuing {} parallel queries", requests.size());
+    long t = System.nanoTime();
+    for (final SecuritySearchRequest request : requests) {
+      service.execute(new Callable<SecuritySearchResult>() {
+        @Override
+        public SecuritySearchResult call() throws Exception {
+          s_logger.debug("Requesting securities for {}", request.getObjectIds() != null ? request.getObjectIds().size() + " object ids" : request.getExternalIdSearch().size() + " external ids");
+          long t = System.nanoTime();
+          final SecuritySearchResult result = getUnderlying().search(request);
+          s_logger.info("{} securities queried in {}ms", result.getDocuments().size(), (double) (System.nanoTime() - t) / 1e6);
+          return result;
+        }
+      });
+    }
+    try {
+      service.join();
+    } catch (InterruptedException e) {
+      throw new OpenGammaRuntimeException("Interrupted", e);
+    }
+    s_logger.info("Finished queries for {} securities in {}ms", mergedResult.getDocuments().size(), (double) (System.nanoTime() - t) / 1e6);
+    return mergedResult;
+  }
+
+}
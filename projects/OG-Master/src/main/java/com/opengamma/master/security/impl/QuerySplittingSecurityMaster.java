@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.master.security.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdSearch;
+import com.opengamma.id.ExternalIdSearchType;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.master.impl.AbstractQuerySplittingMaster;
+import com.opengamma.master.security.SecurityDocument;
+import com.opengamma.master.security.SecurityHistoryRequest;
+import com.opengamma.master.security.SecurityHistoryResult;
+import com.opengamma.master.security.SecurityMaster;
+import com.opengamma.master.security.SecurityMetaDataRequest;
+import com.opengamma.master.security.SecurityMetaDataResult;
+import com.opengamma.master.security.SecuritySearchRequest;
+import com.opengamma.master.security.SecuritySearchResult;
+import com.opengamma.util.paging.Paging;
+import com.opengamma.util.paging.PagingRequest;
+
+/**
+ * A {@link SecurityMaster} implementation that divides search operations into a number of smaller operations to pass to the underlying. This is intended for use with some database backed
+ * security masters where performance decreases, or becomes unstable, with large queries such as the bulk resolution of many external identifier bundles.
+ * <p>
+ * Searches by object identifier, or for any of a set of external identifiers, can be split. Other searches are passed to the underlying unchanged.
+ */
+public class QuerySplittingSecurityMaster extends AbstractQuerySplittingMaster<SecurityDocument, SecurityMaster> implements SecurityMaster {
+
+  /**
+   * The maximum size of request to pass to {@link SecurityMaster#search}, zero or negative for no limit.
+   */
+  private int _maxSearchRequest;
+
+  /**
+   * Creates a new instance wrapping the underlying with default properties.
+   * 
+   * @param underlying the underlying security master to satisfy the requests, not null
+   */
+  public QuerySplittingSecurityMaster(final SecurityMaster underlying) {
+    super(underlying);
+  }
+
+  /**
+   * Returns the maximum number of items to pass to the {@link SecurityMaster#search} method in each call.
+   * 
+   * @return the current limit, zero or negative if none
+   */
+  public int getMaxSearchRequest() {
+    return _maxSearchRequest;
+  }
+
+  /**
+   * Sets the maximum number of items to pass to the {@link SecurityMaster#search} method in each call.
+   * 
+   * @param maxSearchRequest the new limit, zero or negative if none
+   */
+  public void setMaxSearchRequest(final int maxSearchRequest) {
+    _maxSearchRequest = maxSearchRequest;
+  }
+
+  /**
+   * Returns the number of chunks to split a request of the given size into.
+   * 
+   * @param count the number of items in the request
+   * @return the number of chunks, or zero to not split
+   */
+  private int chunks(final int count) {
+    final int chunkSize = getMaxSearchRequest();
+    if ((chunkSize <= 0) || (chunkSize >= count)) {
+      // Request too small, or splitting is disabled
+      return 0;
+    }
+    return (count + chunkSize - 1) / chunkSize;
+  }
+
+  protected Collection<SecuritySearchRequest> splitSearchRequest(final SecuritySearchRequest request) {
+    if (!PagingRequest.ALL.equals(request.getPagingRequest()) && !PagingRequest.NONE.equals(request.getPagingRequest())) {
+      // Can only split requests with no paging
+      return null;
+    }
+    if (request.getObjectIds() != null) {
+      int chunks = chunks(request.getObjectIds().size());
+      if (chunks == 0) {
+        return null;
+      }
+      final int count = request.getObjectIds().size();
+      final Collection<SecuritySearchRequest> requests = new ArrayList<SecuritySearchRequest>();
+      final Iterator<ObjectId> securities = request.getObjectIds().iterator();
+      for (int i = 0; i < count;) {
+        final int chunkSize = (count - i) / (chunks--);
+        final SecuritySearchRequest subRequest = request.clone();
+        final List<ObjectId> objectIds = new ArrayList<ObjectId>(chunkSize);
+        for (int j = 0; (j < chunkSize) && securities.hasNext(); j++) {
+          objectIds.add(securities.next());
+        }
+        subRequest.setObjectIds(objectIds);
+        requests.add(subRequest);
+        i += chunkSize;
+      }
+      return requests;
+    }
+    final ExternalIdSearch idSearch = request.getExternalIdSearch();
+    if ((idSearch != null) && (idSearch.getSearchType() == ExternalIdSearchType.ANY)) {
+      int chunks = chunks(idSearch.size());
+      if (chunks == 0) {
+        return null;
+      }
+      final int count = idSearch.size();
+      final Collection<SecuritySearchRequest> requests = new ArrayList<SecuritySearchRequest>();
+      final Iterator<ExternalId> ids = idSearch.iterator();
+      for (int i = 0; i < count;) {
+        final int chunkSize = (count - i) / (chunks--);
+        final SecuritySearchRequest subRequest = request.clone();
+        final List<ExternalId> externalIds = new ArrayList<ExternalId>(chunkSize);
+        for (int j = 0; (j < chunkSize) && ids.hasNext(); j++) {
+          externalIds.add(ids.next());
+        }
+        subRequest.setExternalIdSearch(ExternalIdSearch.of(ExternalIdSearchType.ANY, externalIds));
+        requests.add(subRequest);
+        i += chunkSize;
+      }
+      return requests;
+    }
+    // Can only split object identifier or "any" external identifier requests
+    return null;
+  }
+
+  protected void mergeSplitSearchResult(final SecuritySearchResult mergeWith, final SecuritySearchResult result, final Set<UniqueId> merged) {
+    // a security with several matching identifiers may be returned by more than one of the requests
+    for (SecurityDocument document : result.getDocuments()) {
+      if (merged.add(document.getUniqueId())) {
+        mergeWith.getDocuments().add(document);
+      }
+    }
+    mergeWith.setPaging(Paging.of(PagingRequest.ALL, mergeWith.getDocuments().size()));
+    mergeWith.setVersionCorrection(result.getVersionCorrection());
+  }
+
+  protected SecuritySearchResult callSplitSearchRequest(final Collection<SecuritySearchRequest> requests) {
+    final SecuritySearchResult result = new SecuritySearchResult();
+    final Set<UniqueId> merged = new HashSet<UniqueId>();
+    for (SecuritySearchRequest request : requests) {
+      mergeSplitSearchResult(result, getUnderlying().search(request), merged);
+    }
+    return result;
+  }
+
+  // SecurityMaster
+
+  @Override
+  public SecurityMetaDataResult metaData(final SecurityMetaDataRequest request) {
+    return getUnderlying().metaData(request);
+  }
+
+  /**
+   * When splitting is enabled, and the request is for more securities than the split size, two or more requests are made to the underlying master. {@inheritDoc}
+   */
+  @Override
+  public SecuritySearchResult search(final SecuritySearchRequest request) {
+    if (canSplit()) {
+      final Collection<SecuritySearchRequest> requests = splitSearchRequest(request);
+      if (requests == null) {
+        // Small query pass-through
+        return getUnderlying().search(request);
+      } else {
+        // Multiple queries
+        return callSplitSearchRequest(requests);
+      }
+    } else {
+      // Splitting disabled
+      return getUnderlying().search(request);
+    }
+  }
+
+  @Override
+  public SecurityHistoryResult history(final SecurityHistoryRequest request) {
+    return getUnderlying().history(request);
+  }
+
+}
@@ -10,8 +10,11 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
 
 import org.testng.annotations.Test;
 import org.threeten.bp.Instant;
@@ -177,6 +180,43 @@ public class MasterSecuritySourceTest {
     assertEquals("Test", testResult.getName());
   }
 
+  //-------------------------------------------------------------------------
+  public void test_getAll_bulk() throws Exception {
+    InMemorySecurityMaster master = new InMemorySecurityMaster();
+    ManageableSecurity a = master.add(new SecurityDocument(new ManageableSecurity(null, "A", "EQUITY", ExternalIdBundle.of(ID1, ExternalId.of("C", "A"))))).getSecurity();
+    ManageableSecurity b = master.add(new SecurityDocument(new ManageableSecurity(null, "B", "EQUITY", ExternalIdBundle.of(ID2)))).getSecurity();
+    MasterSecuritySource test = new MasterSecuritySource(master);
+    test.setBulkRequestSize(2);
+    ExternalIdBundle bundleA = ExternalIdBundle.of(ID1);
+    ExternalIdBundle bundleAB = ExternalIdBundle.of(ExternalId.of("C", "A"), ID2);
+    ExternalIdBundle missing = ExternalIdBundle.of(ExternalId.of("X", "Y"));
+    Map<ExternalIdBundle, Collection<Security>> testResult = test.getAll(Arrays.asList(bundleA, missing, bundleAB), VersionCorrection.LATEST);
+    assertEquals(2, testResult.size());
+    assertEquals(1, testResult.get(bundleA).size());
+    assertEquals(a.getUniqueId(), testResult.get(bundleA).iterator().next().getUniqueId());
+    assertEquals(2, testResult.get(bundleAB).size());
+    assertFalse(testResult.containsKey(missing));
+    assertEquals(test.get(bundleAB).size(), testResult.get(bundleAB).size());
+
+    Map<ExternalIdBundle, Security> singleResult = test.getSingle(Arrays.asList(bundleA, missing, ExternalIdBundle.of(ID2)), VersionCorrection.LATEST);
+    assertEquals(2, singleResult.size());
+    assertEquals(a.getUniqueId(), singleResult.get(bundleA).getUniqueId());
+    assertEquals(b.getUniqueId(), singleResult.get(ExternalIdBundle.of(ID2)).getUniqueId());
+  }
+
+  public void test_get_UniqueIds_bulk() throws Exception {
+    InMemorySecurityMaster master = new InMemorySecurityMaster();
+    UniqueId a = master.add(new SecurityDocument(new ManageableSecurity(null, "A", "EQUITY", ExternalIdBundle.of(ID1)))).getUniqueId();
+    UniqueId b = master.add(new SecurityDocument(new ManageableSecurity(null, "B", "EQUITY", ExternalIdBundle.of(ID2)))).getUniqueId();
+    UniqueId missing = UniqueId.of(a.getScheme(), "Missing");
+    MasterSecuritySource test = new MasterSecuritySource(master);
+    test.setBulkRequestSize(2);
+    Map<UniqueId, Security> testResult = test.get(Arrays.asList(a, b, missing));
+    assertEquals(2, testResult.size());
+    assertEquals("A", testResult.get(a).getName());
+    assertEquals("B", testResult.get(b).getName());
+  }
+
   //-------------------------------------------------------------------------
   protected ManageableSecurity example() {
     return new ManageableSecurity(UID, "Test", "EQUITY", ExternalIdBundle.EMPTY);
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.master.security.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ExternalIdSearch;
+import com.opengamma.id.ExternalIdSearchType;
+import com.opengamma.id.UniqueId;
+import com.opengamma.master.security.ManageableSecurity;
+import com.opengamma.master.security.SecurityDocument;
+import com.opengamma.master.security.SecurityHistoryRequest;
+import com.opengamma.master.security.SecurityHistoryResult;
+import com.opengamma.master.security.SecurityMaster;
+import com.opengamma.master.security.SecuritySearchRequest;
+import com.opengamma.master.security.SecuritySearchResult;
+import com.opengamma.util.paging.PagingRequest;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link QuerySplittingSecurityMaster} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class QuerySplittingSecurityMasterTest {
+
+  private static final ExternalId ID_A1 = ExternalId.of("A", "1");
+  private static final ExternalId ID_A2 = ExternalId.of("A", "2");
+  private static final ExternalId ID_B1 = ExternalId.of("B", "1");
+  private static final ExternalId ID_B2 = ExternalId.of("B", "2");
+
+  private static InMemorySecurityMaster createUnderlying() {
+    final InMemorySecurityMaster master = new InMemorySecurityMaster();
+    master.add(new SecurityDocument(new ManageableSecurity(null, "1", "EQUITY", ExternalIdBundle.of(ID_A1, ID_B1))));
+    master.add(new SecurityDocument(new ManageableSecurity(null, "2", "EQUITY", ExternalIdBundle.of(ID_A2, ID_B2))));
+    master.add(new SecurityDocument(new ManageableSecurity(null, "3", "EQUITY", ExternalIdBundle.of(ExternalId.of("C", "3")))));
+    return master;
+  }
+
+  private static Set<String> names(final SecuritySearchResult result) {
+    final Set<String> names = new HashSet<String>();
+    for (ManageableSecurity security : result.getSecurities()) {
+      names.add(security.getName());
+    }
+    return names;
+  }
+
+  public void testSearch_disabled() {
+    final SecurityMaster mock = Mockito.mock(SecurityMaster.class);
+    final QuerySplittingSecurityMaster instance = new QuerySplittingSecurityMaster(mock);
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    request.addExternalIds(ID_A1, ID_A2);
+    final SecuritySearchResult result = new SecuritySearchResult();
+    Mockito.when(mock.search(request)).thenReturn(result);
+    assertEquals(instance.getMaxSearchRequest(), 0);
+    assertSame(instance.search(request), result);
+  }
+
+  public void testSearch_invalid_paging() {
+    final SecurityMaster mock = Mockito.mock(SecurityMaster.class);
+    final QuerySplittingSecurityMaster instance = new QuerySplittingSecurityMaster(mock);
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    request.addExternalIds(ID_A1, ID_A2);
+    request.setPagingRequest(PagingRequest.FIRST_PAGE);
+    final SecuritySearchResult result = new SecuritySearchResult();
+    Mockito.when(mock.search(request)).thenReturn(result);
+    instance.setMaxSearchRequest(1);
+    assertSame(instance.search(request), result);
+  }
+
+  public void testSearch_all_externalIds() {
+    final SecurityMaster mock = Mockito.mock(SecurityMaster.class);
+    final QuerySplittingSecurityMaster instance = new QuerySplittingSecurityMaster(mock);
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    request.setExternalIdSearch(ExternalIdSearch.of(ExternalIdSearchType.ALL, ID_A1, ID_B1));
+    final SecuritySearchResult result = new SecuritySearchResult();
+    Mockito.when(mock.search(request)).thenReturn(result);
+    instance.setMaxSearchRequest(1);
+    assertSame(instance.search(request), result);
+  }
+
+  public void testSearch_large_externalIds() {
+    final QuerySplittingSecurityMaster instance = new QuerySplittingSecurityMaster(createUnderlying());
+    instance.setMaxSearchRequest(1);
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    request.setExternalIdSearch(ExternalIdSearch.of(ExternalIdSearchType.ANY, Arrays.asList(ID_A1, ID_B1, ID_B2)));
+    final SecuritySearchResult result = instance.search(request);
+    // security 1 matches two of the split requests but is only returned once
+    assertEquals(result.getDocuments().size(), 2);
+    assertEquals(result.getPaging().getTotalItems(), 2);
+    assertEquals(names(result), new HashSet<String>(Arrays.asList("1", "2")));
+  }
+
+  public void testSearch_large_objectIds() {
+    final InMemorySecurityMaster underlying = createUnderlying();
+    final QuerySplittingSecurityMaster instance = new QuerySplittingSecurityMaster(underlying);
+    instance.setMaxSearchRequest(2);
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    for (SecurityDocument document : underlying.search(new SecuritySearchRequest()).getDocuments()) {
+      request.addObjectId(document.getObjectId());
+    }
+    final SecuritySearchResult result = instance.search(request);
+    assertEquals(result.getDocuments().size(), 3);
+    assertEquals(names(result), new HashSet<String>(Arrays.asList("1", "2", "3")));
+  }
+
+  public void testSearch_parallel() {
+    final ParallelQuerySplittingSecurityMaster instance = new ParallelQuerySplittingSecurityMaster(createUnderlying());
+    instance.setMaxSearchRequest(1);
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    request.setExternalIdSearch(ExternalIdSearch.of(ExternalIdSearchType.ANY, Arrays.asList(ID_A1, ID_A2, ID_B1, ID_B2)));
+    final SecuritySearchResult result = instance.search(request);
+    assertEquals(result.getDocuments().size(), 2);
+    assertEquals(names(result), new HashSet<String>(Arrays.asList("1", "2")));
+  }
+
+  public void testHistory() {
+    final SecurityMaster mock = Mockito.mock(SecurityMaster.class);
+    final QuerySplittingSecurityMaster instance = new QuerySplittingSecurityMaster(mock);
+    final SecurityHistoryRequest request = new SecurityHistoryRequest();
+    final SecurityHistoryResult result = new SecurityHistoryResult();
+    Mockito.when(mock.history(request)).thenReturn(result);
+    assertSame(instance.history(request), result);
+  }
+
+  public void testGet() {
+    final SecurityMaster mock = Mockito.mock(SecurityMaster.class);
+    final QuerySplittingSecurityMaster instance = new QuerySplittingSecurityMaster(mock);
+    final SecurityDocument document = new SecurityDocument();
+    Mockito.when(mock.get(UniqueId.of("Foo", "Bar"))).thenReturn(document);
+    assertSame(instance.get(UniqueId.of("Foo", "Bar")), document);
+  }
+
+}
@@ -11,14 +11,23 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
@@ -26,10 +35,12 @@ import org.threeten.bp.Duration;
 import org.threeten.bp.Instant;
 import org.threeten.bp.LocalDate;
 
+import com.google.common.collect.Iterables;
 import com.opengamma.DataNotFoundException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.change.ChangeType;
 import com.opengamma.elsql.ElSqlBundle;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -39,7 +50,9 @@ import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.masterdb.AbstractDbMaster;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateToIntConverter;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.db.BulkInsertRows;
 import com.opengamma.util.db.DbDateUtils;
 import com.opengamma.util.db.DbMapSqlParameterSource;
 import com.opengamma.util.tuple.Pair;
@@ -67,6 +80,18 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
    * The prefix used for data point unique identifiers.
    */
   protected static final String DATA_POINT_PREFIX = "DP";
+  /**
+   * The maximum number of time-series queried by a single bulk statement.
+   */
+  protected static final int BULK_CHUNK_SIZE = 1000;
+  /**
+   * The data points table.
+   */
+  private static final String POINT_TABLE = "hts_point";
+  /**
+   * The columns of the data points table, in the order used by {@link DataPointRows}.
+   */
+  private static final String[] POINT_COLUMNS = {"doc_oid", "point_date", "ver_instant", "corr_instant", "point_value"};
 
   /**
    * The master.
@@ -165,7 +190,84 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     }
     return result;
   }
-    
+
+  /**
+   * Gets the data points of many time-series.
+   * <p>
+   * The time-series are loaded a chunk at a time, each chunk using one query for the
+   * versions and one for the data points of all the series in it.
+   * Time-series that cannot be found are omitted from the result.
+   * 
+   * @param objectIds  the time-series object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param filter  the filter to apply to the data points, not null
+   * @return the time-series keyed by object identifier, in the order requested, not null
+   */
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(
+      Collection<? extends ObjectIdentifiable> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    ArgumentChecker.notNull(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    ArgumentChecker.notNull(filter, "filter");
+    final VersionCorrection vc = versionCorrection.withLatestFixed(now());
+    final Set<ObjectId> ids = new LinkedHashSet<ObjectId>();
+    for (ObjectIdentifiable objectId : objectIds) {
+      ArgumentChecker.notNull(objectId, "objectId");
+      checkScheme(objectId);
+      ids.add(objectId.getObjectId());
+    }
+    final Map<ObjectId, ManageableHistoricalTimeSeries> result = new LinkedHashMap<ObjectId, ManageableHistoricalTimeSeries>();
+    if (filter.getMaxPoints() != null ||
+        (filter.getLatestDate() != null && filter.getEarliestDate() != null && filter.getLatestDate().isBefore(filter.getEarliestDate()))) {
+      // point limits are applied per series, so these are loaded one at a time
+      for (ObjectId objectId : ids) {
+        ManageableHistoricalTimeSeries hts = getTimeSeriesIfExists(objectId, vc, filter);
+        if (hts != null) {
+          result.put(objectId, hts);
+        }
+      }
+      return result;
+    }
+    final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate();
+    for (List<ObjectId> chunk : Iterables.partition(ids, BULK_CHUNK_SIZE)) {
+      final DbMapSqlParameterSource args = createParameterSource()
+        .addValue("sql_doc_oids", sqlDocOids(chunk))
+        .addTimestamp("version_as_of_instant", vc.getVersionAsOf())
+        .addTimestamp("corrected_to_instant", vc.getCorrectedTo())
+        .addValue("start_date", DbDateUtils.toSqlDateNullFarPast(filter.getEarliestDate()))
+        .addValue("end_date", DbDateUtils.toSqlDateNullFarFuture(filter.getLatestDate()));
+      final String sqlVersion = getElSqlBundle().getSql("SelectDataPointsVersionBulk", args);
+      final Map<Long, ManageableHistoricalTimeSeries> versions = namedJdbc.query(sqlVersion, args, new BulkManageableHTSExtractor());
+      Map<Long, LocalDateDoubleTimeSeries> points = Collections.emptyMap();
+      if (versions.isEmpty() == false) {
+        final String sqlPoints = getElSqlBundle().getSql("SelectDataPointsBulk", args);
+        points = namedJdbc.query(sqlPoints, args, new BulkDataPointsExtractor());
+      }
+      for (ObjectId objectId : chunk) {
+        final long oid = extractOid(objectId);
+        ManageableHistoricalTimeSeries hts = versions.get(oid);
+        if (hts != null) {
+          LocalDateDoubleTimeSeries series = points.get(oid);
+          hts.setTimeSeries(series != null ? series : ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES);
+        } else {
+          // no data points, the time-series doc may still exist
+          hts = getTimeSeriesIfExists(objectId, vc, filter);
+        }
+        if (hts != null) {
+          result.put(objectId, hts);
+        }
+      }
+    }
+    return result;
+  }
+
+  private ManageableHistoricalTimeSeries getTimeSeriesIfExists(ObjectId objectId, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    try {
+      return getTimeSeries(objectId, versionCorrection, filter);
+    } catch (DataNotFoundException ex) {
+      return null;
+    }
+  }
+
   //-------------------------------------------------------------------------
   public UniqueId updateTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
     ArgumentChecker.notNull(objectId, "objectId");
@@ -188,6 +290,97 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     return result.getFirst();
   }
 
+  /**
+   * Adds data points to many time-series in a single transaction.
+   * <p>
+   * This has the same effect as updating each time-series in turn, except that either
+   * all of the time-series are updated or none are. The checks are made a chunk of
+   * time-series at a time and the points of all the series are inserted together,
+   * using the fastest mechanism supported by the database.
+   * 
+   * @param series  the data points to add keyed by time-series object identifier, not null
+   * @return the unique identifiers of the updated time-series keyed by object identifier, not null
+   */
+  public Map<ObjectId, UniqueId> updateTimeSeriesDataPoints(final Map<? extends ObjectIdentifiable, ? extends LocalDateDoubleTimeSeries> series) {
+    ArgumentChecker.notNull(series, "series");
+    s_logger.debug("add time-series data points to {} time-series", series.size());
+
+    final Map<ObjectId, LocalDateDoubleTimeSeries> toAdd = new LinkedHashMap<ObjectId, LocalDateDoubleTimeSeries>();
+    for (Entry<? extends ObjectIdentifiable, ? extends LocalDateDoubleTimeSeries> entry : series.entrySet()) {
+      ArgumentChecker.notNull(entry.getKey(), "objectId");
+      ArgumentChecker.notNull(entry.getValue(), "series");
+      checkScheme(entry.getKey());
+      toAdd.put(entry.getKey().getObjectId(), entry.getValue());
+    }
+    if (toAdd.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Pair<Map<ObjectId, UniqueId>, Instant> result = getTransactionTemplateRetrying(getMaxRetries()).execute(
+        new TransactionCallback<Pair<Map<ObjectId, UniqueId>, Instant>>() {
+          @Override
+          public Pair<Map<ObjectId, UniqueId>, Instant> doInTransaction(final TransactionStatus status) {
+            final Instant now = now();
+            return Pairs.of(insertDataPointsBulk(toAdd, now), now);
+          }
+        });
+    for (Entry<ObjectId, LocalDateDoubleTimeSeries> entry : toAdd.entrySet()) {
+      if (entry.getValue().isEmpty() == false) {
+        getMaster().changeManager().entityChanged(ChangeType.CHANGED, entry.getKey(), null, null, result.getSecond());
+      }
+    }
+    return result.getFirst();
+  }
+
+  /**
+   * Checks and inserts the data points of many time-series.
+   * 
+   * @param series  the time-series data points keyed by object identifier, not null
+   * @param now  the current instant, not null
+   * @return the unique identifiers keyed by object identifier, not null
+   */
+  protected Map<ObjectId, UniqueId> insertDataPointsBulk(final Map<ObjectId, LocalDateDoubleTimeSeries> series, final Instant now) {
+    final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate();
+    final Map<ObjectId, UniqueId> result = new LinkedHashMap<ObjectId, UniqueId>();
+    final DataPointRows rows = new DataPointRows(DbDateUtils.toSqlTimestamp(now));
+    for (List<ObjectId> chunk : Iterables.partition(series.keySet(), BULK_CHUNK_SIZE)) {
+      final DbMapSqlParameterSource args = createParameterSource()
+        .addValue("sql_doc_oids", sqlDocOids(chunk))
+        .addTimestamp("version_as_of_instant", now)
+        .addTimestamp("corrected_to_instant", now);
+      final String sqlOids = getElSqlBundle().getSql("SelectLatestOidsBulk", args);
+      final Set<Long> found = new HashSet<Long>(namedJdbc.queryForList(sqlOids, args, Long.class));
+      final String sqlMaxDates = getElSqlBundle().getSql("SelectMaxPointDateBulk", args);
+      final Map<Long, LocalDate> maxDates = new HashMap<Long, LocalDate>();
+      namedJdbc.query(sqlMaxDates, args, new RowCallbackHandler() {
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+          maxDates.put(rs.getLong("DOC_OID"), DbDateUtils.fromSqlDateAllowNull(rs.getDate("MAX_POINT_DATE")));
+        }
+      });
+      for (ObjectId objectId : chunk) {
+        final long oid = extractOid(objectId);
+        if (found.contains(oid) == false) {
+          throw new DataNotFoundException("Unable to find time-series: " + objectId);
+        }
+        final LocalDateDoubleTimeSeries points = series.get(objectId);
+        if (points.isEmpty()) {
+          result.put(objectId, resolveObjectId(objectId, VersionCorrection.LATEST));
+          continue;
+        }
+        final LocalDate maxDate = maxDates.get(oid);
+        if (maxDate != null && points.getEarliestTime().isAfter(maxDate) == false) {
+          throw new IllegalArgumentException("Unable to update data points of time-series " + objectId +
+              " as the update starts at " + points.getEarliestTime() +
+              " which is before the latest data point in the database at " + maxDate);
+        }
+        rows.add(oid, points);
+        result.put(objectId, createTimeSeriesUniqueId(oid, now, now));
+      }
+    }
+    getDialect().bulkInsert(getJdbcTemplate().getJdbcOperations(), POINT_TABLE, POINT_COLUMNS, rows);
+    return result;
+  }
+
   /**
    * Checks the data points can be inserted.
    * 
@@ -222,25 +415,10 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
    * @return the unique identifier, not null
    */
   protected UniqueId insertDataPoints(final UniqueId uniqueId, final LocalDateDoubleTimeSeries series, final Instant now) {
-    final Long docOid = extractOid(uniqueId);
-    final Timestamp nowTS = DbDateUtils.toSqlTimestamp(now);
-    final List<DbMapSqlParameterSource> argsList = new ArrayList<DbMapSqlParameterSource>();
-    for (Entry<LocalDate, Double> entry : series) {
-      LocalDate date = entry.getKey();
-      Double value = entry.getValue();
-      if (date == null || value == null) {
-        throw new IllegalArgumentException("Time-series must not contain a null value");
-      }
-      final DbMapSqlParameterSource args = createParameterSource()
-        .addValue("doc_oid", docOid)
-        .addDate("point_date", date)
-        .addValue("ver_instant", nowTS)
-        .addValue("corr_instant", nowTS)
-        .addValue("point_value", value);
-      argsList.add(args);
-    }
-    final String sqlInsert = getElSqlBundle().getSql("InsertDataPoint");
-    getJdbcTemplate().batchUpdate(sqlInsert, argsList.toArray(new DbMapSqlParameterSource[argsList.size()]));
+    final long docOid = extractOid(uniqueId);
+    final DataPointRows rows = new DataPointRows(DbDateUtils.toSqlTimestamp(now));
+    rows.add(docOid, series);
+    getDialect().bulkInsert(getJdbcTemplate().getJdbcOperations(), POINT_TABLE, POINT_COLUMNS, rows);
     return createTimeSeriesUniqueId(docOid, now, now);
   }
 
@@ -348,6 +526,22 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     return resolveObjectId(uniqueId, VersionCorrection.of(now, now));
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Builds the comma separated list of object row ids used by the bulk queries.
+   * 
+   * @param objectIds  the object identifiers, not empty, not null
+   * @return the SQL list, not null
+   */
+  private String sqlDocOids(List<ObjectId> objectIds) {
+    StringBuilder buf = new StringBuilder(objectIds.size() * 10);
+    for (ObjectId objectId : objectIds) {
+      buf.append(extractOid(objectId)).append(", ");
+    }
+    buf.setLength(buf.length() - 2);
+    return buf.toString();
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Extracts the object row id from the object identifier.
@@ -421,25 +615,130 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
   protected final class DataPointsExtractor implements ResultSetExtractor<LocalDateDoubleTimeSeries> {
     @Override
     public LocalDateDoubleTimeSeries extractData(final ResultSet rs) throws SQLException, DataAccessException {
-      final List<LocalDate> dates = new ArrayList<LocalDate>(256);
-      final List<Double> values = new ArrayList<Double>(256);
-      LocalDate last = null;
+      final DataPointsBuffer buffer = new DataPointsBuffer();
       while (rs.next()) {
-        LocalDate date = DbDateUtils.fromSqlDateAllowNull(rs.getDate("POINT_DATE"));
-        if (date.equals(last) == false) {
-          last = date;
-          // different databases return different types, notably BigDecimal and Double
-          Object value = rs.getObject("POINT_VALUE");
-          if (value != null) {
-            dates.add(date);
-            values.add(rs.getDouble("POINT_VALUE"));
+        buffer.add(rs);
+      }
+      return buffer.toTimeSeries();
+    }
+  }
+
+  /**
+   * Mapper from SQL rows ordered by object id to a LocalDateDoubleTimeSeries for each object id.
+   */
+  protected final class BulkDataPointsExtractor implements ResultSetExtractor<Map<Long, LocalDateDoubleTimeSeries>> {
+    @Override
+    public Map<Long, LocalDateDoubleTimeSeries> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final Map<Long, LocalDateDoubleTimeSeries> result = new HashMap<Long, LocalDateDoubleTimeSeries>();
+      final DataPointsBuffer buffer = new DataPointsBuffer();
+      Long docOid = null;
+      while (rs.next()) {
+        long rowDocOid = rs.getLong("DOC_OID");
+        if (docOid == null || docOid != rowDocOid) {
+          if (docOid != null) {
+            result.put(docOid, buffer.toTimeSeries());
+            buffer.clear();
           }
-        } else {
-          // The data points query should return no more than one value per date
-          throw new OpenGammaRuntimeException("Unexpected duplicate data point entry");
+          docOid = rowDocOid;
         }
+        buffer.add(rs);
       }
-      return ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+      if (docOid != null) {
+        result.put(docOid, buffer.toTimeSeries());
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Growable primitive arrays that the data points of one time-series are read into.
+   */
+  private static final class DataPointsBuffer {
+    private int[] _dates = new int[256];
+    private double[] _values = new double[256];
+    private int _size;
+    private int _lastDate = Integer.MIN_VALUE;
+
+    private void add(final ResultSet rs) throws SQLException {
+      final int date = LocalDateToIntConverter.convertToInt(DbDateUtils.fromSqlDateAllowNull(rs.getDate("POINT_DATE")));
+      if (date == _lastDate) {
+        // The data points query should return no more than one value per date
+        throw new OpenGammaRuntimeException("Unexpected duplicate data point entry");
+      }
+      _lastDate = date;
+      // different databases return different types, notably BigDecimal and Double
+      final double value = rs.getDouble("POINT_VALUE");
+      if (rs.wasNull()) {
+        return;
+      }
+      if (_size == _dates.length) {
+        _dates = Arrays.copyOf(_dates, _size * 2);
+        _values = Arrays.copyOf(_values, _size * 2);
+      }
+      _dates[_size] = date;
+      _values[_size] = value;
+      _size++;
+    }
+
+    private LocalDateDoubleTimeSeries toTimeSeries() {
+      if (_size == 0) {
+        return ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES;
+      }
+      return ImmutableLocalDateDoubleTimeSeries.of(Arrays.copyOf(_dates, _size), Arrays.copyOf(_values, _size));
+    }
+
+    private void clear() {
+      _size = 0;
+      _lastDate = Integer.MIN_VALUE;
+    }
+  }
+
+  /**
+   * The rows of the data points table inserted for a set of time-series.
+   * <p>
+   * The rows are read directly from the primitive arrays of each time-series.
+   */
+  private static final class DataPointRows implements BulkInsertRows {
+    private final Timestamp _instant;
+    private final List<Long> _docOids = new ArrayList<Long>();
+    private final List<LocalDateDoubleTimeSeries> _series = new ArrayList<LocalDateDoubleTimeSeries>();
+    private int _size;
+    // the series of the last row read, rows are normally read in order
+    private int _current;
+    private int _currentStart;
+
+    private DataPointRows(final Timestamp instant) {
+      _instant = instant;
+    }
+
+    private void add(final long docOid, final LocalDateDoubleTimeSeries series) {
+      _docOids.add(docOid);
+      _series.add(series);
+      _size += series.size();
+    }
+
+    @Override
+    public int size() {
+      return _size;
+    }
+
+    @Override
+    public void fillRow(final int index, final Object[] row) {
+      if (index < _currentStart) {
+        _current = 0;
+        _currentStart = 0;
+      }
+      while (index - _currentStart >= _series.get(_current).size()) {
+        _currentStart += _series.get(_current).size();
+        _current++;
+      }
+      final LocalDateDoubleTimeSeries series = _series.get(_current);
+      final int pos = index - _currentStart;
+      row[0] = _docOids.get(_current);
+      row[1] = DbDateUtils.toSqlDate(LocalDateToIntConverter.convertToLocalDate(series.getTimeAtIndexFast(pos)));
+      row[2] = _instant;
+      row[3] = _instant;
+      row[4] = series.getValueAtIndexFast(pos);
     }
   }
 
@@ -496,5 +795,25 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     }
   }
 
+  /**
+   * Mapper from SQL rows to a ManageableHistoricalTimeSeries for each object id.
+   */
+  protected final class BulkManageableHTSExtractor implements ResultSetExtractor<Map<Long, ManageableHistoricalTimeSeries>> {
+    @Override
+    public Map<Long, ManageableHistoricalTimeSeries> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final Map<Long, ManageableHistoricalTimeSeries> result = new HashMap<Long, ManageableHistoricalTimeSeries>();
+      while (rs.next()) {
+        long docOid = rs.getLong("DOC_OID");
+        Instant verInstant = DbDateUtils.fromSqlTimestamp(rs.getTimestamp("MAX_VER_INSTANT"));
+        Instant corrInstant = DbDateUtils.fromSqlTimestamp(rs.getTimestamp("MAX_CORR_INSTANT"));
+        ManageableHistoricalTimeSeries hts = new ManageableHistoricalTimeSeries();
+        hts.setUniqueId(createTimeSeriesUniqueId(docOid, verInstant, corrInstant));
+        hts.setVersionInstant(verInstant);
+        hts.setCorrectionInstant(corrInstant);
+        result.put(docOid, hts);
+      }
+      return result;
+    }
+  }
 
 }
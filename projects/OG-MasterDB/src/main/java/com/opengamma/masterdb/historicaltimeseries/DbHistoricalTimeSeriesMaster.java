@@ -9,7 +9,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -120,6 +122,8 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
   private Timer _htsAddTimer = new Timer();
   private Timer _getTimeSeriesTimer = new Timer();
   private Timer _updatePointsTimer = new Timer();
+  private Timer _getTimeSeriesBulkTimer = new Timer();
+  private Timer _updatePointsBulkTimer = new Timer();
   private Timer _correctPointsTimer = new Timer();
   private Timer _removePointsTimer = new Timer();
   
@@ -147,6 +151,8 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     _htsAddTimer = summaryRegistry.timer(namePrefix + ".htsAdd");
     _getTimeSeriesTimer = summaryRegistry.timer(namePrefix + ".getTimeSeries");
     _updatePointsTimer = summaryRegistry.timer(namePrefix + ".updatePoints");
+    _getTimeSeriesBulkTimer = summaryRegistry.timer(namePrefix + ".getTimeSeriesBulk");
+    _updatePointsBulkTimer = summaryRegistry.timer(namePrefix + ".updatePointsBulk");
     _correctPointsTimer = summaryRegistry.timer(namePrefix + ".correctPoints");
     _removePointsTimer = summaryRegistry.timer(namePrefix + ".removePoints");
   }
@@ -482,6 +488,24 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     }
   }
 
+  /**
+   * Gets the data points of many time-series.
+   * <p>
+   * This is considerably faster than getting each time-series separately.
+   * Time-series that cannot be found are omitted from the result.
+   *
+   * @param objectIds  the time-series object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param filter  the filter to apply to the data points, not null
+   * @return the time-series keyed by object identifier, not null
+   */
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(
+      Collection<? extends ObjectIdentifiable> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    try (Timer.Context context = _getTimeSeriesBulkTimer.time()) {
+      return getDataPointsWorker().getTimeSeries(objectIds, versionCorrection, filter);
+    }
+  }
+
   //-------------------------------------------------------------------------
 
   @Override
@@ -491,6 +515,21 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     }
   }
 
+  /**
+   * Adds data points to many time-series in a single transaction.
+   * <p>
+   * This is considerably faster than updating each time-series separately.
+   * Either all of the time-series are updated or none are.
+   *
+   * @param series  the data points to add keyed by time-series object identifier, not null
+   * @return the unique identifiers of the updated time-series keyed by object identifier, not null
+   */
+  public Map<ObjectId, UniqueId> updateTimeSeriesDataPoints(final Map<? extends ObjectIdentifiable, ? extends LocalDateDoubleTimeSeries> series) {
+    try (Timer.Context context = _updatePointsBulkTimer.time()) {
+      return getDataPointsWorker().updateTimeSeriesDataPoints(series);
+    }
+  }
+
   @Override
   public UniqueId correctTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
     try (Timer.Context context = _correctPointsTimer.time()) {
@@ -10,9 +10,11 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -28,10 +30,12 @@ import org.springframework.jdbc.support.lob.LobHandler;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.google.common.collect.Lists;
+import com.opengamma.DataNotFoundException;
 import com.opengamma.elsql.ElSqlBundle;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.ExternalIdSearch;
+import com.opengamma.id.ExternalScheme;
 import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
@@ -82,6 +86,10 @@ public class DbSecurityMaster
    * Permission key prefix
    */
   private static final String PERMISSION_KEY_PREFIX = "Permission~";
+  /**
+   * The maximum number of values in a single SQL IN list.
+   */
+  private static final int MAX_IN_LIST_SIZE = 500;
 
   /**
    * SQL order by.
@@ -273,9 +281,34 @@ public class DbSecurityMaster
    * @return the SQL, not null
    */
   protected String sqlSelectIdKeys(final ExternalIdSearch idSearch) {
+    // group the values by scheme so that a large bundle search becomes a short list of IN clauses
+    final Map<ExternalScheme, List<Integer>> schemes = new LinkedHashMap<ExternalScheme, List<Integer>>();
+    int i = 0;
+    for (ExternalId id : idSearch) {
+      List<Integer> indices = schemes.get(id.getScheme());
+      if (indices == null) {
+        indices = new ArrayList<Integer>();
+        schemes.put(id.getScheme(), indices);
+      }
+      indices.add(i++);
+    }
     List<String> list = new ArrayList<String>();
-    for (int i = 0; i < idSearch.size(); i++) {
-      list.add("(key_scheme = :key_scheme" + i + " AND key_value = :key_value" + i + ") ");
+    for (List<Integer> indices : schemes.values()) {
+      for (List<Integer> chunk : Lists.partition(indices, MAX_IN_LIST_SIZE)) {
+        final int first = chunk.get(0);
+        if (chunk.size() == 1) {
+          list.add("(key_scheme = :key_scheme" + first + " AND key_value = :key_value" + first + ") ");
+        } else {
+          final StringBuilder buf = new StringBuilder();
+          buf.append("(key_scheme = :key_scheme").append(first).append(" AND key_value IN (");
+          for (Integer index : chunk) {
+            buf.append(":key_value").append(index).append(", ");
+          }
+          buf.setLength(buf.length() - 2);
+          buf.append(")) ");
+          list.add(buf.toString());
+        }
+      }
     }
     return StringUtils.join(list, "OR ");
   }
@@ -296,6 +329,64 @@ public class DbSecurityMaster
     return doc;
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Gets a number of documents by unique identifier.
+   * <p>
+   * Versioned identifiers are fetched by row identifier and latest identifiers by object identifier, each using a
+   * small number of IN-list queries rather than one query per identifier.
+   * 
+   * @param uniqueIds the unique identifiers to query, not null
+   * @return the map of results, not null
+   * @throws DataNotFoundException if any of the documents could not be found
+   */
+  @Override
+  public Map<UniqueId, SecurityDocument> get(final Collection<UniqueId> uniqueIds) {
+    ArgumentChecker.notNull(uniqueIds, "uniqueIds");
+    s_logger.debug("get {} securities", uniqueIds.size());
+    final List<UniqueId> versioned = new ArrayList<UniqueId>(uniqueIds.size());
+    final List<UniqueId> latest = new ArrayList<UniqueId>();
+    for (UniqueId uniqueId : uniqueIds) {
+      checkScheme(uniqueId);
+      if (uniqueId.isVersioned()) {
+        versioned.add(uniqueId);
+      } else {
+        latest.add(uniqueId);
+      }
+    }
+    final Map<UniqueId, SecurityDocument> result = new HashMap<UniqueId, SecurityDocument>();
+    for (List<UniqueId> chunk : Lists.partition(versioned, MAX_IN_LIST_SIZE)) {
+      final StringBuilder buf = new StringBuilder(chunk.size() * 10);
+      for (UniqueId uniqueId : chunk) {
+        buf.append(extractRowId(uniqueId)).append(", ");
+      }
+      buf.setLength(buf.length() - 2);
+      final DbMapSqlParameterSource args = createParameterSource().addValue("sql_doc_ids", buf.toString());
+      final String sql = getElSqlBundle().getSql("GetByIds", args);
+      final List<SecurityDocument> docs = getDbConnector().getJdbcTemplate().query(sql, args, new SecurityDocumentExtractor());
+      loadDetail(getDetailProvider(), docs);
+      for (SecurityDocument doc : docs) {
+        result.put(doc.getUniqueId(), doc);
+      }
+    }
+    for (List<UniqueId> chunk : Lists.partition(latest, MAX_IN_LIST_SIZE)) {
+      final SecuritySearchRequest request = new SecuritySearchRequest();
+      for (UniqueId uniqueId : chunk) {
+        request.addObjectId(uniqueId.getObjectId());
+      }
+      for (SecurityDocument doc : search(request).getDocuments()) {
+        result.put(doc.getObjectId().atLatestVersion(), doc);
+      }
+    }
+    for (UniqueId uniqueId : uniqueIds) {
+      // the row identifier alone may match a different object, so the result is keyed by the full unique identifier
+      if (!result.containsKey(uniqueId)) {
+        throw new DataNotFoundException("Security not found: " + uniqueId);
+      }
+    }
+    return result;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public SecurityHistoryResult history(final SecurityHistoryRequest request) {
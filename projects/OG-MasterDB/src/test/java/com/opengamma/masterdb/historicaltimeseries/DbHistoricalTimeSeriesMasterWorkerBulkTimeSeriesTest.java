@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.google.common.collect.ImmutableMap;
+import com.opengamma.DataNotFoundException;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.test.DbTest;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the bulk methods of DbHistoricalTimeSeriesMaster.
+ */
+@Test(groups = TestGroup.UNIT_DB)
+public class DbHistoricalTimeSeriesMasterWorkerBulkTimeSeriesTest extends AbstractDbHistoricalTimeSeriesMasterWorkerTest {
+  // superclass sets up dummy database
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DbHistoricalTimeSeriesMasterWorkerBulkTimeSeriesTest.class);
+
+  private static final ObjectId OID_101 = ObjectId.of("DbHts", "DP101");
+  private static final ObjectId OID_102 = ObjectId.of("DbHts", "DP102");
+  private static final ObjectId OID_MISSING = ObjectId.of("DbHts", "DP0");
+
+  @Factory(dataProvider = "databases", dataProviderClass = DbTest.class)
+  public DbHistoricalTimeSeriesMasterWorkerBulkTimeSeriesTest(String databaseType, String databaseVersion) {
+    super(databaseType, databaseVersion);
+    s_logger.info("running testcases for {}", databaseType);
+  }
+
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_get_latest() {
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = _htsMaster.getTimeSeries(
+        Arrays.asList(OID_101, OID_MISSING, OID_102), VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofAll());
+    assertEquals(2, test.size());
+
+    ManageableHistoricalTimeSeries test101 = test.get(OID_101);
+    ManageableHistoricalTimeSeries expected101 = _htsMaster.getTimeSeries(OID_101, VersionCorrection.LATEST);
+    assertEquals(expected101.getUniqueId(), test101.getUniqueId());
+    assertEquals(_version2Instant, test101.getVersionInstant());
+    assertEquals(_version4Instant, test101.getCorrectionInstant());
+    assertEquals(expected101.getTimeSeries(), test101.getTimeSeries());
+    assertEquals(3, test101.getTimeSeries().size());
+
+    ManageableHistoricalTimeSeries test102 = test.get(OID_102);
+    assertEquals(OID_102, test102.getUniqueId().getObjectId());
+    assertEquals(0, test102.getTimeSeries().size());
+  }
+
+  @Test
+  public void test_get_versionCorrectionAndRange() {
+    VersionCorrection vc = VersionCorrection.of(_version2Instant.plusSeconds(1), _version3Instant.plusSeconds(1));
+    HistoricalTimeSeriesGetFilter filter = HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 2), null);
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = _htsMaster.getTimeSeries(Arrays.asList(OID_101), vc, filter);
+    assertEquals(1, test.size());
+
+    ManageableHistoricalTimeSeries expected = _htsMaster.getTimeSeries(OID_101, vc, filter);
+    assertEquals(expected.getUniqueId(), test.get(OID_101).getUniqueId());
+    assertEquals(expected.getTimeSeries(), test.get(OID_101).getTimeSeries());
+    assertEquals(2, expected.getTimeSeries().size());
+    assertEquals(3.21d, expected.getTimeSeries().getValue(LocalDate.of(2011, 1, 2)), 0.001d);
+  }
+
+  @Test
+  public void test_get_maxPoints() {
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = _htsMaster.getTimeSeries(
+        Arrays.asList(OID_101, OID_102), VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofLatestPoint());
+    assertEquals(2, test.size());
+    LocalDateDoubleTimeSeries series = test.get(OID_101).getTimeSeries();
+    assertEquals(1, series.size());
+    assertEquals(LocalDate.of(2011, 1, 3), series.getLatestTime());
+    assertEquals(0, test.get(OID_102).getTimeSeries().size());
+  }
+
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_update() {
+    LocalDate[] dates101 = {LocalDate.of(2011, 2, 1), LocalDate.of(2011, 2, 2)};
+    double[] values101 = {4.1d, 4.2d};
+    LocalDate[] dates102 = {LocalDate.of(2011, 1, 1), LocalDate.of(2011, 1, 2), LocalDate.of(2011, 1, 3)};
+    double[] values102 = {1.1d, 1.2d, 1.3d};
+    Map<ObjectId, LocalDateDoubleTimeSeries> series = new LinkedHashMap<ObjectId, LocalDateDoubleTimeSeries>();
+    series.put(OID_101, ImmutableLocalDateDoubleTimeSeries.of(dates101, values101));
+    series.put(OID_102, ImmutableLocalDateDoubleTimeSeries.of(dates102, values102));
+
+    Map<ObjectId, UniqueId> result = _htsMaster.updateTimeSeriesDataPoints(series);
+    assertEquals(2, result.size());
+
+    ManageableHistoricalTimeSeries test101 = _htsMaster.getTimeSeries(result.get(OID_101));
+    assertEquals(result.get(OID_101), test101.getUniqueId());
+    assertEquals(5, test101.getTimeSeries().size());
+    assertEquals(4.2d, test101.getTimeSeries().getLatestValue(), 0.001d);
+
+    ManageableHistoricalTimeSeries test102 = _htsMaster.getTimeSeries(result.get(OID_102));
+    assertEquals(result.get(OID_102), test102.getUniqueId());
+    assertEquals(series.get(OID_102), test102.getTimeSeries());
+
+    Map<ObjectId, ManageableHistoricalTimeSeries> bulk = _htsMaster.getTimeSeries(
+        series.keySet(), VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofAll());
+    assertEquals(test101.getTimeSeries(), bulk.get(OID_101).getTimeSeries());
+    assertEquals(test102.getTimeSeries(), bulk.get(OID_102).getTimeSeries());
+  }
+
+  @Test
+  public void test_update_beforeExistingPoints_nothingAdded() {
+    LocalDate[] dates = {LocalDate.of(2011, 1, 1)};
+    double[] values = {1.1d};
+    Map<ObjectId, LocalDateDoubleTimeSeries> series = new LinkedHashMap<ObjectId, LocalDateDoubleTimeSeries>();
+    series.put(OID_102, ImmutableLocalDateDoubleTimeSeries.of(dates, values));
+    series.put(OID_101, ImmutableLocalDateDoubleTimeSeries.of(dates, values));
+    try {
+      _htsMaster.updateTimeSeriesDataPoints(series);
+    } catch (IllegalArgumentException ex) {
+      assertEquals(0, _htsMaster.getTimeSeries(OID_102, VersionCorrection.LATEST).getTimeSeries().size());
+      return;
+    }
+    throw new AssertionError("Expected IllegalArgumentException");
+  }
+
+  @Test(expectedExceptions = DataNotFoundException.class)
+  public void test_update_notFound() {
+    LocalDate[] dates = {LocalDate.of(2011, 1, 1)};
+    double[] values = {1.1d};
+    _htsMaster.updateTimeSeriesDataPoints(ImmutableMap.of(OID_MISSING, ImmutableLocalDateDoubleTimeSeries.of(dates, values)));
+  }
+
+}
@@ -5,6 +5,11 @@
  */
 package com.opengamma.masterdb.security;
 
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Factory;
@@ -91,4 +96,29 @@ public class QuerySecurityDbSecurityMasterWorkerGetTest extends AbstractDbSecuri
     assert202(test);
   }
 
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_getSecurities_bulk() {
+    UniqueId uid101 = UniqueId.of("DbSec", "101", "0");
+    UniqueId uid102 = UniqueId.of("DbSec", "102", "0");
+    UniqueId uid201 = UniqueId.of("DbSec", "201", "0");
+    UniqueId oid201 = UniqueId.of("DbSec", "201");
+    Map<UniqueId, SecurityDocument> test = _secMaster.get(Arrays.asList(uid101, uid102, uid201, oid201));
+    assertEquals(4, test.size());
+    assert101(test.get(uid101));
+    assert102(test.get(uid102));
+    assert201(test.get(uid201));
+    assert202(test.get(oid201));
+  }
+
+  @Test(expectedExceptions = DataNotFoundException.class)
+  public void test_getSecurities_bulk_notFoundVersion() {
+    _secMaster.get(Arrays.asList(UniqueId.of("DbSec", "101", "0"), UniqueId.of("DbSec", "101", "1")));
+  }
+
+  @Test(expectedExceptions = DataNotFoundException.class)
+  public void test_getSecurities_bulk_unversioned_notFound() {
+    _secMaster.get(Arrays.asList(UniqueId.of("DbSec", "101"), UniqueId.of("DbSec", "0")));
+  }
+
 }
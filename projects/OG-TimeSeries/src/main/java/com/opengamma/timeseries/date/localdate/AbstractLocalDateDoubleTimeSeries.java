@@ -87,6 +87,32 @@ abstract class AbstractLocalDateDoubleTimeSeries
     return new SimpleImmutableEntry<LocalDate, Double>(key, value);
   }
 
+  /**
+   * Gets the times of a series, without cloning if it is one of ours.
+   * 
+   * @param series  the series, not null
+   * @return the array, not null, must not be modified
+   */
+  static int[] timesArrayFast0(DateDoubleTimeSeries<?> series) {
+    if (series instanceof AbstractLocalDateDoubleTimeSeries) {
+      return ((AbstractLocalDateDoubleTimeSeries) series).timesArrayFast0();
+    }
+    return series.timesArrayFast();
+  }
+
+  /**
+   * Gets the values of a series, without cloning if it is one of ours.
+   * 
+   * @param series  the series, not null
+   * @return the array, not null, must not be modified
+   */
+  static double[] valuesArrayFast0(DateDoubleTimeSeries<?> series) {
+    if (series instanceof AbstractLocalDateDoubleTimeSeries) {
+      return ((AbstractLocalDateDoubleTimeSeries) series).valuesArrayFast0();
+    }
+    return series.valuesArrayFast();
+  }
+
   //-------------------------------------------------------------------------
   @Override
   protected int convertToInt(LocalDate date) {
@@ -260,15 +286,14 @@ abstract class AbstractLocalDateDoubleTimeSeries
 
   public LocalDateDoubleTimeSeries operate(DateDoubleTimeSeries<?> other, BinaryOperator operator) {
     int[] aTimes = timesArrayFast0();
+    int[] bTimes = timesArrayFast0(other);
     // if the series share a common set of times use the common series
-    if (other instanceof AbstractLocalDateDoubleTimeSeries &&
-        aTimes == ((AbstractLocalDateDoubleTimeSeries) other).timesArrayFast0()) {
+    if (aTimes == bTimes || Arrays.equals(aTimes, bTimes)) {
       return operateWithSameTimes(other, operator);
     }
     double[] aValues = valuesArrayFast0();
     int aCount = 0;
-    int[] bTimes = other.timesArrayFast();
-    double[] bValues = other.valuesArrayFast();
+    double[] bValues = valuesArrayFast0(other);
     int bCount = 0;
     int[] resTimes = new int[Math.min(aTimes.length, bTimes.length)];
     double[] resValues = new double[resTimes.length];
@@ -286,11 +311,7 @@ abstract class AbstractLocalDateDoubleTimeSeries
         bCount++;
       }
     }
-    int[] trimmedTimes = new int[resCount];
-    double[] trimmedValues = new double[resCount];
-    System.arraycopy(resTimes, 0, trimmedTimes, 0, resCount);
-    System.arraycopy(resValues, 0, trimmedValues, 0, resCount);
-    return newInstanceFast(trimmedTimes, trimmedValues);
+    return newInstanceFast(trimTimes(aTimes, resTimes, resCount), trimValues(resValues, resCount));
   }
 
   private LocalDateDoubleTimeSeries unionOperate(DoubleTimeSeries<?> other, BinaryOperator operator) {
@@ -302,15 +323,14 @@ abstract class AbstractLocalDateDoubleTimeSeries
 
   public LocalDateDoubleTimeSeries unionOperate(DateDoubleTimeSeries<?> other, BinaryOperator operator) {
     int[] aTimes = timesArrayFast0();
+    int[] bTimes = timesArrayFast0(other);
     // if the series share a common set of times use the common series
-    if (other instanceof AbstractLocalDateDoubleTimeSeries &&
-        aTimes == ((AbstractLocalDateDoubleTimeSeries) other).timesArrayFast0()) {
+    if (aTimes == bTimes || Arrays.equals(aTimes, bTimes)) {
       return operateWithSameTimes(other, operator);
     }
     double[] aValues = valuesArrayFast0();
     int aCount = 0;
-    int[] bTimes = other.timesArrayFast();
-    double[] bValues = other.valuesArrayFast();
+    double[] bValues = valuesArrayFast0(other);
     int bCount = 0;
     int[] resTimes = new int[aTimes.length + bTimes.length];
     double[] resValues = new double[resTimes.length];
@@ -346,11 +366,32 @@ abstract class AbstractLocalDateDoubleTimeSeries
         bCount++;
       }
     }
-    int[] trimmedTimes = new int[resCount];
-    double[] trimmedValues = new double[resCount];
-    System.arraycopy(resTimes, 0, trimmedTimes, 0, resCount);
-    System.arraycopy(resValues, 0, trimmedValues, 0, resCount);
-    return newInstanceFast(trimmedTimes, trimmedValues);
+    return newInstanceFast(trimTimes(aTimes, resTimes, resCount), trimValues(resValues, resCount));
+  }
+
+  /**
+   * Trims the times produced by a merge, sharing the times of the first series if they are the same.
+   * 
+   * @param aTimes  the times of the first series, not null
+   * @param resTimes  the merged times, not null
+   * @param resCount  the number of merged times
+   * @return the times, not null
+   */
+  private static int[] trimTimes(int[] aTimes, int[] resTimes, int resCount) {
+    if (resCount == aTimes.length) {
+      // every time in the result is in the first series, so they are the same
+      return aTimes;
+    } else if (resCount == resTimes.length) {
+      return resTimes;
+    }
+    return Arrays.copyOf(resTimes, resCount);
+  }
+
+  private static double[] trimValues(double[] resValues, int resCount) {
+    if (resCount == resValues.length) {
+      return resValues;
+    }
+    return Arrays.copyOf(resValues, resCount);
   }
 
   //-------------------------------------------------------------------------
@@ -491,6 +532,10 @@ abstract class AbstractLocalDateDoubleTimeSeries
       int aCount = 0;
       int[] bTimes = ((AbstractLocalDateDoubleTimeSeries) other).timesArrayFast0();
       int bCount = 0;
+      if (aTimes == bTimes || Arrays.equals(aTimes, bTimes)) {
+        // immutable, so can share both arrays
+        return newInstanceFast(aTimes, aValues);
+      }
       int[] resTimes = new int[Math.min(aTimes.length, bTimes.length)];
       double[] resValues = new double[resTimes.length];
       int resCount = 0;
@@ -507,11 +552,11 @@ abstract class AbstractLocalDateDoubleTimeSeries
           bCount++;
         }
       }
-      int[] trimmedTimes = new int[resCount];
-      double[] trimmedValues = new double[resCount];
-      System.arraycopy(resTimes, 0, trimmedTimes, 0, resCount);
-      System.arraycopy(resValues, 0, trimmedValues, 0, resCount);
-      return newInstanceFast(trimmedTimes, trimmedValues);
+      if (resCount == aTimes.length) {
+        // every time in this series is in the other, so the result is the same
+        return newInstanceFast(aTimes, aValues);
+      }
+      return newInstanceFast(Arrays.copyOf(resTimes, resCount), Arrays.copyOf(resValues, resCount));
     }
     return operate(other, FIRST_OPERATOR);
   }
@@ -605,9 +650,10 @@ abstract class AbstractLocalDateDoubleTimeSeries
     // series share a common set of times so use the common series
     int[] aTimes = timesArrayFast0();
     double[] aValues = valuesArrayFast0();
+    double[] bValues = valuesArrayFast0(other);
     double[] resValues = new double[aTimes.length];
     for (int i = 0; i < aTimes.length; i++) {
-      resValues[i] = operator.operate(aValues[i], other.getValueAtIndexFast(i));
+      resValues[i] = operator.operate(aValues[i], bValues[i]);
     }
     return newInstanceFast(aTimes, resValues);
   }
@@ -0,0 +1,380 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import java.util.Arrays;
+
+import com.opengamma.timeseries.DoubleTimeSeriesOperators.BinaryOperator;
+import com.opengamma.timeseries.DoubleTimeSeriesOperators.UnaryOperator;
+import com.opengamma.timeseries.date.DateDoubleTimeSeries;
+
+/**
+ * Bulk operations on many {@code LocalDate} time-series at once.
+ * <p>
+ * These work directly on the primitive arrays of the series, reusing one scratch buffer
+ * for the whole batch. Results that have the same dates share a single times array, so a
+ * batch of series with a common history, such as the inputs to a historical simulation,
+ * only holds one copy of the dates.
+ */
+public final class BulkLocalDateDoubleTimeSeriesOperations {
+
+  /**
+   * Restricted constructor.
+   */
+  private BulkLocalDateDoubleTimeSeriesOperations() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the intersection of the input time-series.
+   * <p>
+   * Each output series has the values of the matching input on the dates common
+   * to all the inputs. The outputs share one times array.
+   *
+   * @param inputs  the input series, not null
+   * @return the output series, not null
+   */
+  public static LocalDateDoubleTimeSeries[] intersection(LocalDateDoubleTimeSeries... inputs) {
+    LocalDateDoubleTimeSeries[] results = new LocalDateDoubleTimeSeries[inputs.length];
+    if (inputs.length == 0) {
+      return results;
+    }
+    // intersect the dates, reusing two buffers
+    int[] common = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(inputs[0]);
+    int commonCount = common.length;
+    int[] scratch1 = null;
+    int[] scratch2 = null;
+    for (int i = 1; i < inputs.length && commonCount > 0; i++) {
+      int[] times = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(inputs[i]);
+      if (times == common) {
+        continue;
+      }
+      // never write into the array of an input series
+      int[] buffer;
+      if (common == scratch1) {
+        if (scratch2 == null) {
+          scratch2 = new int[commonCount];
+        }
+        buffer = scratch2;
+      } else {
+        if (scratch1 == null) {
+          scratch1 = new int[commonCount];
+        }
+        buffer = scratch1;
+      }
+      int count = 0;
+      int a = 0;
+      int b = 0;
+      while (a < commonCount && b < times.length) {
+        if (common[a] == times[b]) {
+          buffer[count++] = common[a];
+          a++;
+          b++;
+        } else if (common[a] < times[b]) {
+          a++;
+        } else {
+          b++;
+        }
+      }
+      if (count < commonCount) {
+        common = buffer;
+        commonCount = count;
+      }
+    }
+    int[] commonTimes = null;
+    for (int i = 0; i < inputs.length; i++) {
+      int[] times = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(inputs[i]);
+      double[] values = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(inputs[i]);
+      if (times.length == commonCount) {
+        // the input has exactly the common dates
+        if (commonTimes == null) {
+          commonTimes = times;
+        }
+        results[i] = new ImmutableLocalDateDoubleTimeSeries(commonTimes, values);
+        continue;
+      }
+      if (commonTimes == null) {
+        commonTimes = Arrays.copyOf(common, commonCount);
+      }
+      double[] resValues = new double[commonCount];
+      int b = 0;
+      for (int a = 0; a < commonCount; a++) {
+        while (times[b] < commonTimes[a]) {
+          b++;
+        }
+        resValues[a] = values[b++];
+      }
+      results[i] = new ImmutableLocalDateDoubleTimeSeries(commonTimes, resValues);
+    }
+    return results;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Applies a binary operator to each input series and another series, on the
+   * intersection of their dates.
+   * <p>
+   * This is equivalent to calling {@link LocalDateDoubleTimeSeries#operate(DateDoubleTimeSeries, BinaryOperator)}
+   * on each input, but outputs with the same dates share one times array.
+   *
+   * @param inputs  the input series, not null
+   * @param other  the series to combine with each input, not null
+   * @param operator  the operator, not null
+   * @return the output series, not null
+   */
+  public static LocalDateDoubleTimeSeries[] operate(LocalDateDoubleTimeSeries[] inputs, DateDoubleTimeSeries<?> other, BinaryOperator operator) {
+    LocalDateDoubleTimeSeries[] results = new LocalDateDoubleTimeSeries[inputs.length];
+    int[] bTimes = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(other);
+    double[] bValues = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(other);
+    int[] timesBuffer = new int[bTimes.length];
+    int[] previousTimes = null;
+    for (int i = 0; i < inputs.length; i++) {
+      int[] aTimes = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(inputs[i]);
+      double[] aValues = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(inputs[i]);
+      int[] resTimes;
+      double[] resValues;
+      if (aTimes == bTimes || Arrays.equals(aTimes, bTimes)) {
+        resTimes = bTimes;
+        resValues = new double[aTimes.length];
+        for (int a = 0; a < aTimes.length; a++) {
+          resValues[a] = operator.operate(aValues[a], bValues[a]);
+        }
+      } else {
+        double[] valuesBuffer = new double[Math.min(aTimes.length, bTimes.length)];
+        int resCount = 0;
+        int a = 0;
+        int b = 0;
+        while (a < aTimes.length && b < bTimes.length) {
+          if (aTimes[a] == bTimes[b]) {
+            timesBuffer[resCount] = aTimes[a];
+            valuesBuffer[resCount] = operator.operate(aValues[a], bValues[b]);
+            resCount++;
+            a++;
+            b++;
+          } else if (aTimes[a] < bTimes[b]) {
+            a++;
+          } else {
+            b++;
+          }
+        }
+        resTimes = sharedTimes(previousTimes, aTimes, timesBuffer, resCount);
+        resValues = resCount == valuesBuffer.length ? valuesBuffer : Arrays.copyOf(valuesBuffer, resCount);
+      }
+      results[i] = new ImmutableLocalDateDoubleTimeSeries(resTimes, resValues);
+      previousTimes = resTimes;
+    }
+    return results;
+  }
+
+  /**
+   * Applies a binary operator to each input series and another series, on the
+   * union of their dates.
+   * <p>
+   * This is equivalent to calling {@link LocalDateDoubleTimeSeries#unionOperate(DateDoubleTimeSeries, BinaryOperator)}
+   * on each input, but the dates and values are merged into scratch buffers reused for
+   * the whole batch and outputs with the same dates share one times array.
+   * On dates in only one of the series the value of that series is used.
+   *
+   * @param inputs  the input series, not null
+   * @param other  the series to combine with each input, not null
+   * @param operator  the operator, not null
+   * @return the output series, not null
+   */
+  public static LocalDateDoubleTimeSeries[] unionOperate(LocalDateDoubleTimeSeries[] inputs, DateDoubleTimeSeries<?> other, BinaryOperator operator) {
+    LocalDateDoubleTimeSeries[] results = new LocalDateDoubleTimeSeries[inputs.length];
+    int[] bTimes = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(other);
+    double[] bValues = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(other);
+    int[] timesBuffer = new int[0];
+    double[] valuesBuffer = new double[0];
+    int[] previousTimes = null;
+    for (int i = 0; i < inputs.length; i++) {
+      int[] aTimes = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(inputs[i]);
+      double[] aValues = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(inputs[i]);
+      int[] resTimes;
+      double[] resValues;
+      if (aTimes == bTimes || Arrays.equals(aTimes, bTimes)) {
+        resTimes = bTimes;
+        resValues = new double[aTimes.length];
+        for (int a = 0; a < aTimes.length; a++) {
+          resValues[a] = operator.operate(aValues[a], bValues[a]);
+        }
+      } else {
+        if (timesBuffer.length < aTimes.length + bTimes.length) {
+          timesBuffer = new int[aTimes.length + bTimes.length];
+          valuesBuffer = new double[timesBuffer.length];
+        }
+        int resCount = 0;
+        int a = 0;
+        int b = 0;
+        while (a < aTimes.length && b < bTimes.length) {
+          if (aTimes[a] == bTimes[b]) {
+            timesBuffer[resCount] = aTimes[a];
+            valuesBuffer[resCount++] = operator.operate(aValues[a++], bValues[b++]);
+          } else if (aTimes[a] < bTimes[b]) {
+            timesBuffer[resCount] = aTimes[a];
+            valuesBuffer[resCount++] = aValues[a++];
+          } else {
+            timesBuffer[resCount] = bTimes[b];
+            valuesBuffer[resCount++] = bValues[b++];
+          }
+        }
+        int aRemaining = aTimes.length - a;
+        System.arraycopy(aTimes, a, timesBuffer, resCount, aRemaining);
+        System.arraycopy(aValues, a, valuesBuffer, resCount, aRemaining);
+        resCount += aRemaining;
+        int bRemaining = bTimes.length - b;
+        System.arraycopy(bTimes, b, timesBuffer, resCount, bRemaining);
+        System.arraycopy(bValues, b, valuesBuffer, resCount, bRemaining);
+        resCount += bRemaining;
+        // the union has the dates of the other series if it contains every input date
+        resTimes = resCount == bTimes.length ? bTimes : sharedTimes(previousTimes, aTimes, timesBuffer, resCount);
+        resValues = Arrays.copyOf(valuesBuffer, resCount);
+      }
+      results[i] = new ImmutableLocalDateDoubleTimeSeries(resTimes, resValues);
+      previousTimes = resTimes;
+    }
+    return results;
+  }
+
+  /**
+   * Applies a unary operator to each input series.
+   *
+   * @param inputs  the input series, not null
+   * @param operator  the operator, not null
+   * @return the output series, not null
+   */
+  public static LocalDateDoubleTimeSeries[] operate(LocalDateDoubleTimeSeries[] inputs, UnaryOperator operator) {
+    LocalDateDoubleTimeSeries[] results = new LocalDateDoubleTimeSeries[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      int[] times = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(inputs[i]);
+      double[] values = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(inputs[i]);
+      double[] resValues = new double[values.length];
+      for (int j = 0; j < values.length; j++) {
+        resValues[j] = operator.operate(values[j]);
+      }
+      results[i] = new ImmutableLocalDateDoubleTimeSeries(times, resValues);  // immutable, so can share times
+    }
+    return results;
+  }
+
+  /**
+   * Lags each input series by a number of observations.
+   * <p>
+   * This is equivalent to calling {@link LocalDateDoubleTimeSeries#lag(int)} on each
+   * input, but outputs lagged from the same dates share one times array.
+   *
+   * @param inputs  the input series, not null
+   * @param lag  the number of observations to lag by, positive or negative
+   * @return the output series, not null
+   */
+  public static LocalDateDoubleTimeSeries[] lag(LocalDateDoubleTimeSeries[] inputs, int lag) {
+    LocalDateDoubleTimeSeries[] results = new LocalDateDoubleTimeSeries[inputs.length];
+    int[] previousTimes = null;
+    int[] previousResTimes = null;
+    for (int i = 0; i < inputs.length; i++) {
+      int[] times = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(inputs[i]);
+      double[] values = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(inputs[i]);
+      int count = Math.max(times.length - Math.abs(lag), 0);
+      if (lag == 0) {
+        results[i] = new ImmutableLocalDateDoubleTimeSeries(times, values);
+        continue;
+      }
+      int[] resTimes;
+      if (times == previousTimes || (previousTimes != null && Arrays.equals(times, previousTimes))) {
+        resTimes = previousResTimes;
+      } else if (lag > 0) {
+        resTimes = Arrays.copyOfRange(times, Math.min(lag, times.length), Math.min(lag, times.length) + count);
+      } else {
+        resTimes = Arrays.copyOf(times, count);
+      }
+      double[] resValues = lag > 0 ? Arrays.copyOf(values, count) : Arrays.copyOfRange(values, values.length - count, values.length);
+      results[i] = new ImmutableLocalDateDoubleTimeSeries(resTimes, resValues);
+      previousTimes = times;
+      previousResTimes = resTimes;
+    }
+    return results;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the sum over a rolling window of observations.
+   * <p>
+   * The result has a value on each date from the {@code window}th observation onwards,
+   * being the sum of that observation and the {@code window - 1} before it.
+   * The sums are maintained incrementally, so each observation is visited twice.
+   *
+   * @param input  the input series, not null
+   * @param window  the number of observations in each window, greater than zero
+   * @return the output series, not null
+   */
+  public static LocalDateDoubleTimeSeries rollingSum(LocalDateDoubleTimeSeries input, int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("Window must be greater than zero: " + window);
+    }
+    int[] times = AbstractLocalDateDoubleTimeSeries.timesArrayFast0(input);
+    double[] values = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(input);
+    if (window > times.length) {
+      return ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES;
+    }
+    int count = times.length - window + 1;
+    double[] resValues = new double[count];
+    double sum = 0;
+    for (int i = 0; i < window; i++) {
+      sum += values[i];
+    }
+    resValues[0] = sum;
+    for (int i = 1; i < count; i++) {
+      sum += values[i + window - 1] - values[i - 1];
+      resValues[i] = sum;
+    }
+    int[] resTimes = window == 1 ? times : Arrays.copyOfRange(times, window - 1, times.length);
+    return new ImmutableLocalDateDoubleTimeSeries(resTimes, resValues);
+  }
+
+  /**
+   * Calculates the mean over a rolling window of observations.
+   *
+   * @param input  the input series, not null
+   * @param window  the number of observations in each window, greater than zero
+   * @return the output series, not null
+   * @see #rollingSum(LocalDateDoubleTimeSeries, int)
+   */
+  public static LocalDateDoubleTimeSeries rollingMean(LocalDateDoubleTimeSeries input, int window) {
+    LocalDateDoubleTimeSeries sum = rollingSum(input, window);
+    double[] values = AbstractLocalDateDoubleTimeSeries.valuesArrayFast0(sum);
+    for (int i = 0; i < values.length; i++) {
+      values[i] /= window;  // array was created by rollingSum so can be updated in place
+    }
+    return sum;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the times of a merged result, sharing an existing array if one has the same content.
+   *
+   * @param previousTimes  the times of the previous result, null if none
+   * @param aTimes  the times of the input series, not null
+   * @param timesBuffer  the merged times, not null
+   * @param resCount  the number of merged times
+   * @return the times, not null
+   */
+  private static int[] sharedTimes(int[] previousTimes, int[] aTimes, int[] timesBuffer, int resCount) {
+    if (resCount == aTimes.length) {
+      return aTimes;
+    }
+    if (previousTimes != null && previousTimes.length == resCount) {
+      boolean same = true;
+      for (int i = 0; i < resCount && same; i++) {
+        same = previousTimes[i] == timesBuffer[i];
+      }
+      if (same) {
+        return previousTimes;
+      }
+    }
+    return Arrays.copyOf(timesBuffer, resCount);
+  }
+
+}
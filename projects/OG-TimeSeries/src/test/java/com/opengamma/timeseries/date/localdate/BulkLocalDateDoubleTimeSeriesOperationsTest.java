@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.timeseries.DoubleTimeSeriesOperators;
+
+/**
+ * Test.
+ */
+@Test(groups = "unit")
+public class BulkLocalDateDoubleTimeSeriesOperationsTest {
+
+  private static final LocalDateDoubleTimeSeries ONE = ImmutableLocalDateDoubleTimeSeries.of(
+      new int[] {20100101, 20100102, 20100103, 20100104, 20100105, 20100106 }, new double[] {1, 2, 3, 4, 5, 6 });
+  private static final LocalDateDoubleTimeSeries TWO = ImmutableLocalDateDoubleTimeSeries.of(
+      new int[] {20100102, 20100103, 20100105, 20100106, 20100107 }, new double[] {20, 30, 50, 60, 70 });
+  private static final LocalDateDoubleTimeSeries THREE = ImmutableLocalDateDoubleTimeSeries.of(
+      new int[] {20091231, 20100103, 20100104, 20100105, 20100106 }, new double[] {-1, 300, 400, 500, 600 });
+
+  public void testIntersection() {
+    LocalDateDoubleTimeSeries[] inputs = new LocalDateDoubleTimeSeries[] {ONE, TWO, THREE };
+    LocalDateDoubleTimeSeries[] results = BulkLocalDateDoubleTimeSeriesOperations.intersection(inputs);
+    assertEquals(3, results.length);
+    for (int i = 0; i < results.length; i++) {
+      assertEquals(inputs[i].intersectionFirstValue(results[0]), results[i]);
+      assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new int[] {20100103, 20100105, 20100106 }, new double[] {3, 5, 6 }).multiply(Math.pow(10, i)), results[i]);
+    }
+    assertSame(((AbstractLocalDateDoubleTimeSeries) results[0]).timesArrayFast0(), ((AbstractLocalDateDoubleTimeSeries) results[2]).timesArrayFast0());
+    // the inputs are not modified
+    assertEquals(6, ONE.size());
+    assertEquals(ONE, BulkLocalDateDoubleTimeSeriesOperations.intersection(ONE)[0]);
+    assertEquals(0, BulkLocalDateDoubleTimeSeriesOperations.intersection().length);
+  }
+
+  public void testOperate() {
+    LocalDateDoubleTimeSeries[] inputs = new LocalDateDoubleTimeSeries[] {ONE, ONE.multiply(2), TWO, THREE };
+    LocalDateDoubleTimeSeries[] results = BulkLocalDateDoubleTimeSeriesOperations.operate(inputs, TWO, DoubleTimeSeriesOperators.ADD_OPERATOR);
+    for (int i = 0; i < results.length; i++) {
+      assertEquals(inputs[i].add(TWO), results[i]);
+    }
+    assertSame(((AbstractLocalDateDoubleTimeSeries) results[0]).timesArrayFast0(), ((AbstractLocalDateDoubleTimeSeries) results[1]).timesArrayFast0());
+    results = BulkLocalDateDoubleTimeSeriesOperations.operate(inputs, DoubleTimeSeriesOperators.NEGATE_OPERATOR);
+    for (int i = 0; i < results.length; i++) {
+      assertEquals(inputs[i].multiply(-1), results[i]);
+    }
+  }
+
+  public void testUnionOperate() {
+    LocalDateDoubleTimeSeries[] inputs = new LocalDateDoubleTimeSeries[] {ONE, ONE.multiply(2), TWO, THREE, ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES };
+    LocalDateDoubleTimeSeries[] results = BulkLocalDateDoubleTimeSeriesOperations.unionOperate(inputs, TWO, DoubleTimeSeriesOperators.ADD_OPERATOR);
+    for (int i = 0; i < results.length; i++) {
+      assertEquals(inputs[i].unionAdd(TWO), results[i]);
+    }
+    assertSame(((AbstractLocalDateDoubleTimeSeries) results[0]).timesArrayFast0(), ((AbstractLocalDateDoubleTimeSeries) results[1]).timesArrayFast0());
+    assertSame(((AbstractLocalDateDoubleTimeSeries) TWO).timesArrayFast0(), ((AbstractLocalDateDoubleTimeSeries) results[4]).timesArrayFast0());
+  }
+
+  public void testLag() {
+    LocalDateDoubleTimeSeries[] inputs = new LocalDateDoubleTimeSeries[] {ONE, ONE.multiply(2), THREE };
+    for (int lag = -7; lag <= 7; lag++) {
+      LocalDateDoubleTimeSeries[] results = BulkLocalDateDoubleTimeSeriesOperations.lag(inputs, lag);
+      for (int i = 0; i < results.length; i++) {
+        assertEquals(inputs[i].lag(lag), results[i]);
+      }
+    }
+  }
+
+  public void testRolling() {
+    LocalDateDoubleTimeSeries sum = BulkLocalDateDoubleTimeSeriesOperations.rollingSum(ONE, 3);
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new int[] {20100103, 20100104, 20100105, 20100106 }, new double[] {6, 9, 12, 15 }), sum);
+    LocalDateDoubleTimeSeries mean = BulkLocalDateDoubleTimeSeriesOperations.rollingMean(ONE, 3);
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new int[] {20100103, 20100104, 20100105, 20100106 }, new double[] {2, 3, 4, 5 }), mean);
+    assertEquals(ONE, BulkLocalDateDoubleTimeSeriesOperations.rollingSum(ONE, 1));
+    assertTrue(BulkLocalDateDoubleTimeSeriesOperations.rollingSum(ONE, 7).isEmpty());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRollingBadWindow() {
+    BulkLocalDateDoubleTimeSeriesOperations.rollingSum(ONE, 0);
+  }
+
+}
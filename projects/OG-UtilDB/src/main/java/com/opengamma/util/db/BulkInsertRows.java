@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.db;
+
+/**
+ * Source of the rows written by {@link DbDialect#bulkInsert}.
+ * <p>
+ * Rows are requested in order and copied into a buffer supplied by the dialect,
+ * allowing data held in columns to be inserted without creating an object per row.
+ */
+public interface BulkInsertRows {
+
+  /**
+   * Gets the number of rows to insert.
+   *
+   * @return the number of rows, zero or greater
+   */
+  int size();
+
+  /**
+   * Copies the values of a row into the buffer.
+   * <p>
+   * The values are in the order of the columns passed to the dialect and must be
+   * of a type that the JDBC driver can bind, such as {@code Long} or {@code java.sql.Date}.
+   *
+   * @param index  the row index, from zero to {@code size() - 1}
+   * @param row  the buffer to fill, one element per column, reused between rows
+   */
+  void fillRow(int index, Object[] row);
+
+}
@@ -6,12 +6,18 @@
 package com.opengamma.util.db;
 
 import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.dialect.Dialect;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.lob.DefaultLobHandler;
 import org.springframework.jdbc.support.lob.LobHandler;
@@ -301,6 +307,41 @@ public abstract class DbDialect {
     return "COALESCE(" + fragment1 + ", " + fragment2 + ")";
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Inserts a large number of rows into a table.
+   * <p>
+   * This uses a JDBC batch of a single prepared statement.
+   * Subclasses may use a faster database specific loading mechanism.
+   * The insert takes part in any current transaction.
+   *
+   * @param jdbc  the JDBC operations, not null
+   * @param tableName  the table name, not null
+   * @param columnNames  the column names, not empty, not null
+   * @param rows  the rows to insert, not null
+   */
+  public void bulkInsert(JdbcOperations jdbc, String tableName, String[] columnNames, final BulkInsertRows rows) {
+    if (rows.size() == 0) {
+      return;
+    }
+    final Object[] row = new Object[columnNames.length];
+    final String sql = "INSERT INTO " + tableName + " (" + StringUtils.join(columnNames, ", ") + ") VALUES (" +
+        StringUtils.repeat("?", ", ", columnNames.length) + ")";
+    jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+      @Override
+      public void setValues(PreparedStatement ps, int index) throws SQLException {
+        rows.fillRow(index, row);
+        for (int i = 0; i < row.length; i++) {
+          StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, row[i]);
+        }
+      }
+      @Override
+      public int getBatchSize() {
+        return rows.size();
+      }
+    });
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the LOB handler used for BLOBs and CLOBs.
@@ -23,6 +23,8 @@ import com.opengamma.util.tuple.Pair;
   private ViewportResults _latestResults;
   /** The current state. */
   private State _state = State.EMPTY;
+  /** The cycle in which each cell last changed, allows clients to request only the changed cells. */
+  private final ViewportCellVersions _cellVersions = new ViewportCellVersions();
 
   /**
    * @param callbackId ID that's passed to listeners when the grid structure changes
@@ -43,7 +45,7 @@ import com.opengamma.util.tuple.Pair;
    */
   /* package */ void updateResults(ResultsCache cache) {
     Pair<ViewportResults, State> resultsAndState = getGridStructure().createResults(getDefinition() , cache);
-    _latestResults = resultsAndState.getFirst();
+    _latestResults = _cellVersions.update(resultsAndState.getFirst());
     _state = resultsAndState.getSecond();
   }
 
@@ -7,6 +7,7 @@ package com.opengamma.web.analytics;
 
 import java.util.Collection;
 
+import com.google.common.base.Objects;
 import com.opengamma.engine.calcnode.MissingValue;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.AggregatedExecutionLog;
@@ -155,6 +156,28 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
     return _format;
   }
 
+  /**
+   * Returns true if this cell would be displayed the same way as another cell. Unlike {@link #equals} this ignores
+   * whether the value was recalculated in the last cycle, a value recalculated to the same result doesn't need to be
+   * sent to the client again.
+   * @param other The other cell, possibly null
+   * @return true if the value, specification, history and log of the cells are equal
+   */
+  /* package */ boolean isSameContent(ResultsCell other) {
+    if (other == null) {
+      return false;
+    }
+    if (this == other) {
+      return true;
+    }
+    return Objects.equal(_value, other._value) &&
+        Objects.equal(_valueSpecification, other._valueSpecification) &&
+        Objects.equal(_history, other._history) &&
+        Objects.equal(_executionLog, other._executionLog) &&
+        Objects.equal(_inlineKey, other._inlineKey) &&
+        _format == other._format;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Tracks the calculation cycle in which each cell in a viewport last changed. This allows the viewport's data
+ * to be sent as a delta containing only the cells that have changed since the client's last update instead of
+ * formatting and sending every visible cell on every cycle.
+ * <p>
+ * The cycle version only increases when a cell's content changes so a client that is up to date receives an
+ * empty delta. When the viewport definition changes every cell is given a new version, a client's previous
+ * data is no longer valid for the new cells. This class isn't thread safe.
+ */
+/* package */ class ViewportCellVersions {
+
+  /** The definition used to create the previous results. */
+  private ViewportDefinition _viewportDefinition;
+  /** The cells from the previous results. */
+  private List<ResultsCell> _cells = Collections.emptyList();
+  /** The cycle version at which each of the previous cells last changed. */
+  private long[] _versions = new long[0];
+  /** The version of the most recent cycle that changed any cell. */
+  private long _cycleVersion;
+
+  /**
+   * Compares the latest results with the previous results and updates the version of every changed cell.
+   * @param results The latest results for the viewport, not null
+   * @return A copy of the results including the version at which each cell last changed
+   */
+  /* package */ ViewportResults update(ViewportResults results) {
+    ArgumentChecker.notNull(results, "results");
+    List<ResultsCell> cells = results.getResults();
+    boolean reset = results.getViewportDefinition() != _viewportDefinition || cells.size() != _cells.size();
+    long nextVersion = _cycleVersion + 1;
+    boolean changed = false;
+    long[] versions = new long[cells.size()];
+    for (int i = 0; i < versions.length; i++) {
+      if (reset || !cells.get(i).isSameContent(_cells.get(i))) {
+        versions[i] = nextVersion;
+        changed = true;
+      } else {
+        versions[i] = _versions[i];
+      }
+    }
+    if (changed) {
+      _cycleVersion = nextVersion;
+    }
+    _viewportDefinition = results.getViewportDefinition();
+    _cells = cells;
+    _versions = versions;
+    return results.withCellVersions(versions, _cycleVersion);
+  }
+
+}
@@ -30,6 +30,12 @@ public class ViewportResults {
   private final Duration _calculationDuration;
   /** The time at which these results became available. */
   private final Instant _valuationTime;
+  /** The cycle version at which each cell last changed, null if versions aren't tracked for the viewport. */
+  private final long[] _cellVersions;
+  /** The version of the most recent cycle that changed any cell in the viewport. */
+  private final long _cycleVersion;
+  /** Cells that haven't changed since this cycle version are omitted, negative if all cells are included. */
+  private final long _baseCycleVersion;
 
   /**
    * @param allResults Cells in the viewport containing the data, history and the value specification. The outer
@@ -41,6 +47,17 @@ public class ViewportResults {
                                 ViewportDefinition viewportDefinition,
                                 GridColumnGroups columns,
                                 Duration calculationDuration, Instant valuationTime) {
+    this(allResults, viewportDefinition, columns, calculationDuration, valuationTime, null, 0, -1);
+  }
+
+  private ViewportResults(List<ResultsCell> allResults,
+                          ViewportDefinition viewportDefinition,
+                          GridColumnGroups columns,
+                          Duration calculationDuration,
+                          Instant valuationTime,
+                          long[] cellVersions,
+                          long cycleVersion,
+                          long baseCycleVersion) {
     ArgumentChecker.notNull(allResults, "allResults");
     ArgumentChecker.notNull(columns, "columns");
     ArgumentChecker.notNull(viewportDefinition, "viewportDefinition");
@@ -51,6 +68,69 @@ public class ViewportResults {
     _columns = columns;
     _calculationDuration = calculationDuration;
     _valuationTime = valuationTime;
+    _cellVersions = cellVersions;
+    _cycleVersion = cycleVersion;
+    _baseCycleVersion = baseCycleVersion;
+  }
+
+  /**
+   * Returns a copy of these results with the cycle version at which each cell last changed.
+   * @param cellVersions The cycle version at which each cell last changed, in the same order as the results
+   * @param cycleVersion The version of the most recent cycle that changed any cell in the viewport
+   * @return A copy of these results including the versions
+   */
+  /* package */ ViewportResults withCellVersions(long[] cellVersions, long cycleVersion) {
+    ArgumentChecker.notNull(cellVersions, "cellVersions");
+    ArgumentChecker.isTrue(cellVersions.length == _allResults.size(), "Cell versions must match the number of cells");
+    return new ViewportResults(_allResults, _viewportDefinition, _columns, _calculationDuration, _valuationTime,
+                               cellVersions, cycleVersion, -1);
+  }
+
+  /**
+   * Returns a copy of these results that only includes the cells that have changed after a cycle version. This is
+   * used by clients that already hold the viewport data as of {@code cycleVersion} and only need the changes.
+   * If versions aren't tracked for the viewport, or the viewport has changed since the version, all cells are
+   * included.
+   * @param cycleVersion The cycle version of the client's copy of the data, null to include all cells
+   * @return Results that only include the cells changed after the version
+   */
+  public ViewportResults changedSince(Long cycleVersion) {
+    // a version from the future means the client's data came from a different viewport, it needs everything
+    if (cycleVersion == null || _cellVersions == null || cycleVersion > _cycleVersion) {
+      return this;
+    }
+    return new ViewportResults(_allResults, _viewportDefinition, _columns, _calculationDuration, _valuationTime,
+                               _cellVersions, _cycleVersion, cycleVersion);
+  }
+
+  /**
+   * @return true if these results only include the cells that changed after a cycle version
+   */
+  /* package */ boolean isDelta() {
+    return _cellVersions != null && _baseCycleVersion >= 0;
+  }
+
+  /**
+   * @param index The index of the cell in the results
+   * @return true if the cell should be sent to the client, i.e. it isn't part of a delta or it has changed
+   */
+  /* package */ boolean isIncluded(int index) {
+    return !isDelta() || _cellVersions[index] > _baseCycleVersion;
+  }
+
+  /**
+   * @return true if the cycle version at which each cell last changed is available
+   */
+  /* package */ boolean hasCellVersions() {
+    return _cellVersions != null;
+  }
+
+  /**
+   * @return The version of the most recent cycle that changed any cell in the viewport, clients pass this value
+   * back to {@link #changedSince} to receive only the cells changed in later cycles
+   */
+  /* package */ long getCycleVersion() {
+    return _cycleVersion;
   }
 
   /**
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics;
+
+import static com.opengamma.web.analytics.formatting.DataType.UNKNOWN;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.google.common.collect.Lists;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.log.LogLevel;
+import com.opengamma.web.analytics.formatting.DataType;
+import com.opengamma.web.analytics.formatting.ResultsFormatter;
+import com.opengamma.web.analytics.formatting.TypeFormatter;
+
+/**
+ * Writes an instance of {@link ViewportResults} in a compact binary format. This carries the same information as
+ * the JSON produced by {@link ViewportResultsJsonCsvWriter} without the repeated field names and number formatting
+ * which dominate the size of large viewports. All values are big-endian.
+ * <pre>
+ *   byte     format version ({@link #FORMAT_VERSION})
+ *   long     viewport version
+ *   long     cycle version, 0 if cell versions aren't tracked
+ *   byte     1 if the message only contains the cells changed since the version requested by the client, else 0
+ *   long     calculation duration in milliseconds
+ *   varint   number of cells, followed by each cell:
+ *     varint   index of the cell in the viewport
+ *     byte     flags, see the FLAG_ constants
+ *     value    the formatted value
+ *     string   data type if {@link #FLAG_TYPE} is set
+ *     varint   history size followed by the formatted values if {@link #FLAG_HISTORY} is set
+ *     byte     log level ordinal if {@link #FLAG_LOG_LEVEL} is set
+ *     string   log output as JSON if {@link #FLAG_LOG_OUTPUT} is set
+ * </pre>
+ * A string is a varint byte count followed by UTF-8. A value is a tag byte followed by nothing
+ * ({@link #TAG_NULL}), a double ({@link #TAG_DOUBLE}), a boolean ({@link #TAG_BOOLEAN}), a string
+ * ({@link #TAG_STRING}), a string containing JSON for structured values ({@link #TAG_JSON}), a long
+ * for integral numbers ({@link #TAG_LONG}) or a string holding the exact decimal representation of any
+ * other number, such as a {@code BigDecimal} ({@link #TAG_DECIMAL}).
+ */
+public class ViewportResultsBinaryWriter {
+
+  /** Version of the binary format. */
+  public static final byte FORMAT_VERSION = 1;
+
+  /** The value is null. */
+  public static final byte TAG_NULL = 0;
+  /** The value is a double. */
+  public static final byte TAG_DOUBLE = 1;
+  /** The value is a boolean. */
+  public static final byte TAG_BOOLEAN = 2;
+  /** The value is a string. */
+  public static final byte TAG_STRING = 3;
+  /** The value is a string containing JSON. */
+  public static final byte TAG_JSON = 4;
+  /** The value is a long. */
+  public static final byte TAG_LONG = 5;
+  /** The value is a string containing a decimal number. */
+  public static final byte TAG_DECIMAL = 6;
+
+  /** The cell's value is an error. */
+  public static final int FLAG_ERROR = 1;
+  /** The cell's data type follows the value. */
+  public static final int FLAG_TYPE = 1 << 1;
+  /** The cell's history follows the value. */
+  public static final int FLAG_HISTORY = 1 << 2;
+  /** The cell's log level follows the value. */
+  public static final int FLAG_LOG_LEVEL = 1 << 3;
+  /** The cell's log output follows the value. */
+  public static final int FLAG_LOG_OUTPUT = 1 << 4;
+
+  private final ResultsFormatter _formatter;
+
+  public ViewportResultsBinaryWriter(ResultsFormatter formatter) {
+    ArgumentChecker.notNull(formatter, "formatter");
+    _formatter = formatter;
+  }
+
+  /**
+   * Writes the results to a stream.
+   * @param viewportResults The results, not null
+   * @param outputStream The stream, not null
+   * @throws IOException If the results can't be written
+   */
+  public void write(ViewportResults viewportResults, OutputStream outputStream) throws IOException {
+    ArgumentChecker.notNull(viewportResults, "viewportResults");
+    ArgumentChecker.notNull(outputStream, "outputStream");
+    DataOutputStream out = new DataOutputStream(outputStream);
+    List<ResultsCell> viewportCells = viewportResults.getResults();
+    int cellCount = 0;
+    for (int i = 0; i < viewportCells.size(); i++) {
+      if (viewportResults.isIncluded(i)) {
+        cellCount++;
+      }
+    }
+    out.writeByte(FORMAT_VERSION);
+    out.writeLong(viewportResults.getVersion());
+    out.writeLong(viewportResults.getCycleVersion());
+    out.writeByte(viewportResults.isDelta() ? 1 : 0);
+    out.writeLong(viewportResults.getCalculationDuration().toMillis());
+    writeVarInt(out, cellCount);
+    for (int i = 0; i < viewportCells.size(); i++) {
+      if (viewportResults.isIncluded(i)) {
+        writeVarInt(out, i);
+        writeCell(out, viewportCells.get(i));
+      }
+    }
+    out.flush();
+  }
+
+  private void writeCell(DataOutputStream out, ResultsCell cell) throws IOException {
+    Object cellValue = cell.getValue();
+    ValueSpecification cellValueSpec = cell.getValueSpecification();
+    Object formattedValue = _formatter.format(cellValue, cellValueSpec, cell.getFormat(), cell.getInlineKey());
+    DataType columnFormat = _formatter.getDataType(cell.getType());
+    List<Object> formattedHistory = null;
+    if (cell.getHistory() != null) {
+      formattedHistory = formatHistory(cellValueSpec, cell.getInlineKey(), cell.getHistory());
+    }
+    AggregatedExecutionLog executionLog = cell.getExecutionLog();
+    LogLevel logLevel = ViewportResultsJsonCsvWriter.maxLogLevel(executionLog);
+    boolean hasLogOutput = ViewportResultsJsonCsvWriter.hasLogOutput(executionLog);
+
+    int flags = 0;
+    if (cell.isError() || ViewportResultsJsonCsvWriter.isError(formattedValue)) {
+      flags |= FLAG_ERROR;
+    }
+    if (columnFormat == UNKNOWN) {
+      flags |= FLAG_TYPE;
+    }
+    if (formattedHistory != null) {
+      flags |= FLAG_HISTORY;
+    }
+    if (logLevel != null) {
+      flags |= FLAG_LOG_LEVEL;
+    }
+    if (hasLogOutput) {
+      flags |= FLAG_LOG_OUTPUT;
+    }
+    out.writeByte(flags);
+    writeValue(out, formattedValue);
+    if (columnFormat == UNKNOWN) {
+      // if the the column type isn't known then send the type with the value
+      writeLongString(out, _formatter.getDataTypeForValue(cellValue, cellValueSpec).name());
+    }
+    if (formattedHistory != null) {
+      writeVarInt(out, formattedHistory.size());
+      for (Object historyValue : formattedHistory) {
+        writeValue(out, historyValue);
+      }
+    }
+    if (logLevel != null) {
+      out.writeByte(logLevel.ordinal());
+    }
+    if (hasLogOutput) {
+      writeLongString(out, new JSONArray(ViewportResultsJsonCsvWriter.formatLogOutput(executionLog)).toString());
+    }
+  }
+
+  private List<Object> formatHistory(ValueSpecification cellValueSpec, Object inlineKey, Collection<Object> history) {
+    List<Object> formattedHistory = null;
+    for (Object historyValue : history) {
+      Object formattedValue = _formatter.format(historyValue, cellValueSpec, TypeFormatter.Format.HISTORY, inlineKey);
+      if (formattedValue != ResultsFormatter.VALUE_UNAVAILABLE) {
+        if (formattedHistory == null) {
+          formattedHistory = Lists.newArrayListWithCapacity(history.size());
+        }
+        formattedHistory.add(formattedValue);
+      }
+    }
+    return formattedHistory;
+  }
+
+  @SuppressWarnings("unchecked")
+  /* package */ static void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(TAG_NULL);
+    } else if (value instanceof Double || value instanceof Float) {
+      out.writeByte(TAG_DOUBLE);
+      out.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      out.writeByte(TAG_LONG);
+      out.writeLong(((Number) value).longValue());
+    } else if (value instanceof Number) {
+      // a double can't hold every BigDecimal or BigInteger exactly
+      out.writeByte(TAG_DECIMAL);
+      writeLongString(out, value.toString());
+    } else if (value instanceof Boolean) {
+      out.writeByte(TAG_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Map) {
+      out.writeByte(TAG_JSON);
+      writeLongString(out, new JSONObject((Map<String, Object>) value).toString());
+    } else if (value instanceof Collection) {
+      out.writeByte(TAG_JSON);
+      writeLongString(out, new JSONArray((Collection<Object>) value).toString());
+    } else {
+      out.writeByte(TAG_STRING);
+      writeLongString(out, value.toString());
+    }
+  }
+
+  /**
+   * Writes a string as a varint byte count followed by UTF-8. Unlike {@link DataOutputStream#writeUTF} this
+   * isn't limited to 64k which matters for large structured values.
+   */
+  private static void writeLongString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes("UTF-8");
+    writeVarInt(out, bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes a non-negative int using 7 bits per byte, the high bit of each byte is set if more bytes follow.
+   */
+  /* package */ static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      out.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.writeByte(remaining);
+  }
+
+}
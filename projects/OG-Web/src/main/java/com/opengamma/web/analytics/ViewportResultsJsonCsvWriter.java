@@ -58,6 +58,9 @@ public class ViewportResultsJsonCsvWriter {
   private static final String MESSAGE = "message";
   private static final String FUNCTION_NAME = "functionName";
   private static final String TARGET = "target";
+  private static final String CYCLE = "cycle";
+  private static final String DELTA = "delta";
+  private static final String INDEX = "i";
 
   private final ResultsFormatter _formatter;
   private final DoubleValueOptionalDecimalPlaceFormatter _durationFormatter = new DoubleValueOptionalDecimalPlaceFormatter();
@@ -118,7 +121,13 @@ public class ViewportResultsJsonCsvWriter {
   public String getJson(ViewportResults viewportResults) {
     List<ResultsCell> viewportCells = viewportResults.getResults();
     List<Object> results = Lists.newArrayListWithCapacity(viewportCells.size());
-    for (ResultsCell cell : viewportCells) {
+    boolean delta = viewportResults.isDelta();
+    for (int i = 0; i < viewportCells.size(); i++) {
+      // unchanged cells are skipped before formatting, formatting is the expensive part
+      if (!viewportResults.isIncluded(i)) {
+        continue;
+      }
+      ResultsCell cell = viewportCells.get(i);
       Object cellValue = cell.getValue();
       ValueSpecification cellValueSpec = cell.getValueSpecification();
       Object formattedValue = _formatter.format(cellValue, cellValueSpec, cell.getFormat(), cell.getInlineKey());
@@ -129,6 +138,9 @@ public class ViewportResultsJsonCsvWriter {
       AggregatedExecutionLog executionLog = cell.getExecutionLog();
       LogLevel logLevel = maxLogLevel(executionLog);
 
+      if (delta) {
+        valueMap.put(INDEX, i);
+      }
       valueMap.put(VALUE, formattedValue);
       if (columnFormat == UNKNOWN) {
         // if the the column type isn't known then send the type with the value
@@ -152,17 +164,24 @@ public class ViewportResultsJsonCsvWriter {
       results.add(valueMap);
     }
     String duration = _durationFormatter.format(new BigDecimal(viewportResults.getCalculationDuration().toMillis()));
-    ImmutableMap<String, Object> resultsMap = ImmutableMap.of(VERSION, viewportResults.getVersion(),
-                                                              CALCULATION_DURATION, duration,
-                                                              DATA, results);
-    return new JSONObject(resultsMap).toString();
+    ImmutableMap.Builder<String, Object> resultsMap = ImmutableMap.builder();
+    resultsMap.put(VERSION, viewportResults.getVersion());
+    resultsMap.put(CALCULATION_DURATION, duration);
+    if (viewportResults.hasCellVersions()) {
+      resultsMap.put(CYCLE, viewportResults.getCycleVersion());
+    }
+    if (delta) {
+      resultsMap.put(DELTA, true);
+    }
+    resultsMap.put(DATA, results);
+    return new JSONObject(resultsMap.build()).toString();
   }
 
-  private static boolean isError(Object value) {
+  /* package */ static boolean isError(Object value) {
     return value instanceof MissingValue;
   }
 
-  private static LogLevel maxLogLevel(AggregatedExecutionLog log) {
+  /* package */ static LogLevel maxLogLevel(AggregatedExecutionLog log) {
     if (log == null) {
       return null;
     }
@@ -175,11 +194,11 @@ public class ViewportResultsJsonCsvWriter {
     return logLevelList.get(logLevelList.size() - 1);
   }
 
-  private static boolean hasLogOutput(AggregatedExecutionLog aggregatedLog) {
+  /* package */ static boolean hasLogOutput(AggregatedExecutionLog aggregatedLog) {
     return aggregatedLog != null && aggregatedLog.getLogs() != null && !aggregatedLog.getLogs().isEmpty();
   }
 
-  private static List<Map<String, Object>> formatLogOutput(AggregatedExecutionLog aggregatedLog) {
+  /* package */ static List<Map<String, Object>> formatLogOutput(AggregatedExecutionLog aggregatedLog) {
     List<Map<String, Object>> output = Lists.newArrayList();
     for (ExecutionLogWithContext logWithContext : aggregatedLog.getLogs()) {
       Map<String, Object> logMap = Maps.newHashMap();
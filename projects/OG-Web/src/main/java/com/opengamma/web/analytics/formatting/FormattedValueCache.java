@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics.formatting;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Cache of formatted calculation results shared by every viewport using a {@link ResultsFormatter}.
+ * <p>
+ * Entries are keyed by value specification, format and inline key. Each entry also holds the value that was
+ * formatted, and a lookup only hits if it is passed the identical value object. Every calculation cycle that
+ * changes a result puts a new value object into the views' results caches, so the identity of the value acts as
+ * the version of the result. A value that hasn't changed is formatted once however many viewports, views and
+ * users display it. This relies on calculation results being immutable, which the engine requires anyway.
+ * <p>
+ * This class is thread safe.
+ */
+/* package */ final class FormattedValueCache {
+
+  /** The cached values. */
+  private final Cache<Key, Entry> _cache;
+
+  /**
+   * @param maximumSize The maximum number of formatted values held by the cache
+   */
+  /* package */ FormattedValueCache(int maximumSize) {
+    ArgumentChecker.notNegativeOrZero(maximumSize, "maximumSize");
+    _cache = CacheBuilder.newBuilder().maximumSize(maximumSize).concurrencyLevel(8).build();
+  }
+
+  /**
+   * Returns the cached formatted value if the same value object was formatted the same way before.
+   * @param value The value, not null
+   * @param valueSpec The value's specification, not null
+   * @param format The type of formatting
+   * @param inlineKey The inline key, possibly null
+   * @return The formatted value, null if it isn't cached. Null isn't a valid formatted value for a non-null value.
+   */
+  /* package */ Object get(Object value, ValueSpecification valueSpec, TypeFormatter.Format format, Object inlineKey) {
+    Entry entry = _cache.getIfPresent(new Key(valueSpec, format, inlineKey));
+    if (entry != null && entry._value == value) {
+      return entry._formattedValue;
+    }
+    return null;
+  }
+
+  /**
+   * Caches a formatted value, replacing any formatted value for an earlier value with the same key.
+   * @param value The value, not null
+   * @param valueSpec The value's specification, not null
+   * @param format The type of formatting
+   * @param inlineKey The inline key, possibly null
+   * @param formattedValue The formatted value, not null
+   */
+  /* package */ void put(Object value,
+                         ValueSpecification valueSpec,
+                         TypeFormatter.Format format,
+                         Object inlineKey,
+                         Object formattedValue) {
+    _cache.put(new Key(valueSpec, format, inlineKey), new Entry(value, formattedValue));
+  }
+
+  /**
+   * @return The approximate number of cached values
+   */
+  /* package */ long size() {
+    return _cache.size();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Immutable cache key.
+   */
+  private static final class Key {
+
+    private final ValueSpecification _valueSpec;
+    private final TypeFormatter.Format _format;
+    private final Object _inlineKey;
+    private final int _hashCode;
+
+    private Key(ValueSpecification valueSpec, TypeFormatter.Format format, Object inlineKey) {
+      _valueSpec = valueSpec;
+      _format = format;
+      _inlineKey = inlineKey;
+      _hashCode = Objects.hashCode(valueSpec, format, inlineKey);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return _format == other._format &&
+          _valueSpec.equals(other._valueSpec) &&
+          Objects.equal(_inlineKey, other._inlineKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /**
+   * A formatted value and the value it was created from.
+   */
+  private static final class Entry {
+
+    private final Object _value;
+    private final Object _formattedValue;
+
+    private Entry(Object value, Object formattedValue) {
+      _value = value;
+      _formattedValue = formattedValue;
+    }
+  }
+
+}
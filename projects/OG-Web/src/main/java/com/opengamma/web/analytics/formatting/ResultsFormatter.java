@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import com.opengamma.engine.calcnode.MissingValue;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.ClassMap;
 import com.opengamma.web.analytics.ValueTypes;
 
@@ -56,6 +57,9 @@ public class ResultsFormatter {
 
   private static final Logger s_logger = LoggerFactory.getLogger(ResultsFormatter.class);
 
+  /** Default maximum number of formatted values cached. */
+  public static final int DEFAULT_FORMATTED_VALUE_CACHE_SIZE = 100000;
+
   /** For formatting null values. */
   private final TypeFormatter _nullFormatter = new NullFormatter();
   /** For formatting values with no specific formatter. */
@@ -64,12 +68,24 @@ public class ResultsFormatter {
   private final ClassMap<TypeFormatter<?>> _formatters = new ClassMap<>();
   /** Formatter for values whose type isn't know in advance or whose type can changes between calculation cycles. */
   private final UnknownTypeFormatter _unknownTypeFormatter = new UnknownTypeFormatter();
+  /** Formatted values shared by all viewports using this formatter, null if formatted values aren't cached. */
+  private final FormattedValueCache _formattedValueCache;
 
   public ResultsFormatter() {
     this(DISPLAY_CURRENCY);
   }
 
   public ResultsFormatter(CurrencyDisplay currencyDisplay) {
+    this(currencyDisplay, DEFAULT_FORMATTED_VALUE_CACHE_SIZE);
+  }
+
+  /**
+   * @param currencyDisplay Whether to include the currency code in formatted values
+   * @param formattedValueCacheSize The maximum number of formatted values to cache, zero to disable caching
+   */
+  public ResultsFormatter(CurrencyDisplay currencyDisplay, int formattedValueCacheSize) {
+    ArgumentChecker.notNegative(formattedValueCacheSize, "formattedValueCacheSize");
+    _formattedValueCache = formattedValueCacheSize > 0 ? new FormattedValueCache(formattedValueCacheSize) : null;
     BigDecimalFormatter bigDecimalFormatter = new BigDecimalFormatter(currencyDisplay);
     DoubleFormatter doubleFormatter = new DoubleFormatter(bigDecimalFormatter);
     CurrencyAmountFormatter currencyAmountFormatter = new CurrencyAmountFormatter(currencyDisplay, bigDecimalFormatter);
@@ -199,8 +215,21 @@ public class ResultsFormatter {
    */
   @SuppressWarnings("unchecked")
   public Object format(Object value, ValueSpecification valueSpec, TypeFormatter.Format format, Object inlineKey) {
+    // history values all share the specification of the cell so they would evict each other
+    boolean cacheable = _formattedValueCache != null && value != null && valueSpec != null &&
+        format != TypeFormatter.Format.HISTORY;
+    if (cacheable) {
+      Object cachedValue = _formattedValueCache.get(value, valueSpec, format, inlineKey);
+      if (cachedValue != null) {
+        return cachedValue;
+      }
+    }
     TypeFormatter formatter = getFormatter(value, valueSpec);
-    return formatter.format(value, valueSpec, format, inlineKey);
+    Object formattedValue = formatter.format(value, valueSpec, format, inlineKey);
+    if (cacheable && formattedValue != null) {
+      _formattedValueCache.put(value, valueSpec, format, inlineKey, formattedValue);
+    }
+    return formattedValue;
   }
 
   /**
@@ -20,25 +20,46 @@ import javax.ws.rs.ext.Provider;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.rest.RestUtils;
 import com.opengamma.web.analytics.ViewportResults;
+import com.opengamma.web.analytics.ViewportResultsBinaryWriter;
 import com.opengamma.web.analytics.ViewportResultsJsonCsvWriter;
 
 
 /**
- * Writes an instance of {@link ViewportResults} to an HTTP response as JSON and CSV.
+ * Writes an instance of {@link ViewportResults} to an HTTP response as JSON, CSV or the compact binary format
+ * written by {@link ViewportResultsBinaryWriter}.
  */
 @Provider
-@Produces(value = { MediaType.APPLICATION_JSON, RestUtils.TEXT_CSV })
+@Produces(value = { MediaType.APPLICATION_JSON, RestUtils.TEXT_CSV, ViewportResultsMessageBodyWriter.BINARY })
 public class ViewportResultsMessageBodyWriter implements MessageBodyWriter<ViewportResults> {
 
+  /** Media type of the binary viewport format. */
+  public static final String BINARY = "application/vnd.opengamma.viewport";
+  /** Media type of the binary viewport format. */
+  public static final MediaType BINARY_TYPE = new MediaType("application", "vnd.opengamma.viewport");
+
   private final ViewportResultsJsonCsvWriter _resultWriter;
+  private final ViewportResultsBinaryWriter _binaryWriter;
   
   public ViewportResultsMessageBodyWriter(ViewportResultsJsonCsvWriter resultWriter) {
+    this(resultWriter, null);
+  }
+
+  /**
+   * @param resultWriter Writes the results as JSON and CSV, not null
+   * @param binaryWriter Writes the results in the binary format, null if the binary format isn't supported
+   */
+  public ViewportResultsMessageBodyWriter(ViewportResultsJsonCsvWriter resultWriter,
+                                          ViewportResultsBinaryWriter binaryWriter) {
     ArgumentChecker.notNull(resultWriter, "resultWriter");
     _resultWriter = resultWriter;
+    _binaryWriter = binaryWriter;
   }
 
   @Override
   public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    if (_binaryWriter == null && isBinary(mediaType)) {
+      return false;
+    }
     return type.equals(ViewportResults.class);
   }
 
@@ -67,5 +88,13 @@ public class ViewportResultsMessageBodyWriter implements MessageBodyWriter<Viewp
         mediaType.getSubtype().equalsIgnoreCase(RestUtils.TEXT_CSV_TYPE.getSubtype())) {
       entityStream.write(_resultWriter.getCsv(results).getBytes());
     }
+    if (_binaryWriter != null && isBinary(mediaType)) {
+      _binaryWriter.write(results, entityStream);
+    }
+  }
+
+  private static boolean isBinary(MediaType mediaType) {
+    return mediaType.getType().equals(BINARY_TYPE.getType()) &&
+        mediaType.getSubtype().equalsIgnoreCase(BINARY_TYPE.getSubtype());
   }
 }
@@ -20,6 +20,7 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -251,12 +252,23 @@ public class WebUiResource {
     return _viewManager.getView(viewId).getGridStructure(gridType(gridType), viewportId);
   }
 
+  /**
+   * Returns the data for a viewport. If the client passes the cycle version from the last data it received only the
+   * cells that have changed since that version are returned.
+   * @param viewId The view ID
+   * @param gridType The grid type
+   * @param viewportId The viewport ID
+   * @param since The cycle version of the client's copy of the data, null to receive all cells
+   * @return The viewport data
+   */
   @Path("{viewId}/{gridType}/viewports/{viewportId}")
   @GET
   public ViewportResults getViewportData(@PathParam("viewId") String viewId,
                                          @PathParam("gridType") String gridType,
-                                         @PathParam("viewportId") int viewportId) {
-    return _viewManager.getView(viewId).getData(gridType(gridType), viewportId);
+                                         @PathParam("viewportId") int viewportId,
+                                         @QueryParam("since") Long since) {
+    ViewportResults results = _viewManager.getView(viewId).getData(gridType(gridType), viewportId);
+    return results == null ? null : results.changedSince(since);
   }
 
   @Path("{viewId}/{gridType}/viewports/{viewportId}")
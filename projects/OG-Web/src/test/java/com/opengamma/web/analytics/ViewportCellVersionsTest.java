@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.web.analytics.formatting.TypeFormatter;
+
+/**
+ * Tests {@link ViewportCellVersions} and the deltas it allows {@link ViewportResults} to produce.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ViewportCellVersionsTest {
+
+  private static final ViewportDefinition VIEWPORT = ViewportDefinition.create(0,
+                                                                               ImmutableList.of(0, 1),
+                                                                               ImmutableList.of(0),
+                                                                               ImmutableList.<GridCell>of(),
+                                                                               TypeFormatter.Format.CELL,
+                                                                               false);
+  private static final GridColumnGroups COLUMNS = new GridColumnGroups(ImmutableList.<GridColumnGroup>of());
+
+  private static ViewportResults results(ViewportDefinition viewport, Object... values) {
+    ImmutableList.Builder<ResultsCell> cells = ImmutableList.builder();
+    for (Object value : values) {
+      cells.add(ResultsCell.forStaticValue(value, String.class, TypeFormatter.Format.CELL, true));
+    }
+    return new ViewportResults(cells.build(), viewport, COLUMNS, Duration.ZERO, Instant.EPOCH);
+  }
+
+  private static List<Integer> included(ViewportResults results) {
+    ImmutableList.Builder<Integer> included = ImmutableList.builder();
+    for (int i = 0; i < results.getResults().size(); i++) {
+      if (results.isIncluded(i)) {
+        included.add(i);
+      }
+    }
+    return included.build();
+  }
+
+  @Test
+  public void firstResultsAreAllNew() {
+    ViewportResults results = new ViewportCellVersions().update(results(VIEWPORT, "a", "b"));
+    assertTrue(results.hasCellVersions());
+    assertEquals(1, results.getCycleVersion());
+    assertEquals(ImmutableList.of(0, 1), included(results.changedSince(0L)));
+  }
+
+  @Test
+  public void onlyChangedCellsIncluded() {
+    ViewportCellVersions versions = new ViewportCellVersions();
+    versions.update(results(VIEWPORT, "a", "b"));
+    ViewportResults results = versions.update(results(VIEWPORT, "a", "c"));
+    assertEquals(2, results.getCycleVersion());
+    assertEquals(ImmutableList.of(1), included(results.changedSince(1L)));
+    assertEquals(ImmutableList.of(0, 1), included(results.changedSince(0L)));
+    assertTrue(included(results.changedSince(2L)).isEmpty());
+  }
+
+  @Test
+  public void unchangedCycleDoesntIncrementVersion() {
+    ViewportCellVersions versions = new ViewportCellVersions();
+    versions.update(results(VIEWPORT, "a", "b"));
+    ViewportResults results = versions.update(results(VIEWPORT, "a", "b"));
+    assertEquals(1, results.getCycleVersion());
+    assertTrue(included(results.changedSince(1L)).isEmpty());
+  }
+
+  @Test
+  public void viewportChangeResetsVersions() {
+    ViewportCellVersions versions = new ViewportCellVersions();
+    versions.update(results(VIEWPORT, "a", "b"));
+    ViewportDefinition scrolled = ViewportDefinition.create(1,
+                                                            ImmutableList.of(1, 2),
+                                                            ImmutableList.of(0),
+                                                            ImmutableList.<GridCell>of(),
+                                                            TypeFormatter.Format.CELL,
+                                                            false);
+    ViewportResults results = versions.update(results(scrolled, "a", "b"));
+    assertEquals(2, results.getCycleVersion());
+    assertEquals(ImmutableList.of(0, 1), included(results.changedSince(1L)));
+  }
+
+  @Test
+  public void futureVersionIncludesAllCells() {
+    ViewportResults results = new ViewportCellVersions().update(results(VIEWPORT, "a", "b"));
+    ViewportResults delta = results.changedSince(5L);
+    assertSame(results, delta);
+    assertFalse(delta.isDelta());
+  }
+
+  @Test
+  public void noVersionsIncludesAllCells() {
+    ViewportResults results = results(VIEWPORT, "a", "b");
+    assertFalse(results.changedSince(0L).isDelta());
+    assertEquals(ImmutableList.of(0, 1), included(results.changedSince(0L)));
+  }
+
+}
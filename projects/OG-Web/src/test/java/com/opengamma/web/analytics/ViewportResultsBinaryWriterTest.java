@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.MissingOutput;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.web.analytics.formatting.ResultsFormatter;
+import com.opengamma.web.analytics.formatting.TypeFormatter;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ViewportResultsBinaryWriterTest {
+
+  private static final ViewportDefinition VIEWPORT = ViewportDefinition.create(7,
+                                                                               ImmutableList.of(0, 1),
+                                                                               ImmutableList.of(0),
+                                                                               ImmutableList.<GridCell>of(),
+                                                                               TypeFormatter.Format.CELL,
+                                                                               false);
+  private static final ValueSpecification VALUE_SPEC =
+      new ValueSpecification("valueName",
+                             new ComputationTargetSpecification(ComputationTargetType.POSITION, UniqueId.of("foo", "bar")),
+                             ValueProperties.builder().with(ValuePropertyNames.FUNCTION, "fnName").get());
+
+  private final ViewportResultsBinaryWriter _writer = new ViewportResultsBinaryWriter(new ResultsFormatter());
+
+  private static ViewportResults createResults() {
+    List<ResultsCell> cells = ImmutableList.of(
+        ResultsCell.forCalculatedValue("val", VALUE_SPEC, null, null, false, String.class, TypeFormatter.Format.CELL),
+        ResultsCell.forCalculatedValue(MissingOutput.EVALUATION_ERROR, VALUE_SPEC, null, null, true, String.class,
+                                       TypeFormatter.Format.CELL));
+    GridColumnGroups columns = new GridColumnGroups(ImmutableList.<GridColumnGroup>of());
+    return new ViewportResults(cells, VIEWPORT, columns, Duration.ofMillis(1234), Instant.EPOCH)
+        .withCellVersions(new long[] {1, 2}, 2);
+  }
+
+  private byte[] write(ViewportResults results) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    _writer.write(results, out);
+    return out.toByteArray();
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readUnsignedByte()];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  @Test
+  public void allCells() throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(write(createResults())));
+    assertEquals(ViewportResultsBinaryWriter.FORMAT_VERSION, in.readByte());
+    assertEquals(7, in.readLong());
+    assertEquals(2, in.readLong());
+    assertEquals(0, in.readByte());
+    assertEquals(1234, in.readLong());
+    assertEquals(2, in.readUnsignedByte());
+
+    assertEquals(0, in.readUnsignedByte());
+    assertEquals(0, in.readByte());
+    assertEquals(ViewportResultsBinaryWriter.TAG_STRING, in.readByte());
+    assertEquals("val", readString(in));
+
+    assertEquals(1, in.readUnsignedByte());
+    assertEquals(ViewportResultsBinaryWriter.FLAG_ERROR, in.readByte());
+    assertEquals(ViewportResultsBinaryWriter.TAG_STRING, in.readByte());
+    assertEquals("Evaluation error", readString(in));
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void delta() throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(write(createResults().changedSince(1L))));
+    in.readByte();
+    in.readLong();
+    assertEquals(2, in.readLong());
+    assertEquals(1, in.readByte());
+    in.readLong();
+    assertEquals(1, in.readUnsignedByte());
+    assertEquals(1, in.readUnsignedByte());
+    assertEquals(ViewportResultsBinaryWriter.FLAG_ERROR, in.readByte());
+    assertEquals(ViewportResultsBinaryWriter.TAG_STRING, in.readByte());
+    assertEquals("Evaluation error", readString(in));
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void numbers() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    ViewportResultsBinaryWriter.writeValue(out, 1.5d);
+    ViewportResultsBinaryWriter.writeValue(out, Long.MAX_VALUE);
+    ViewportResultsBinaryWriter.writeValue(out, new BigDecimal("0.10000000000000000001"));
+    out.flush();
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertEquals(ViewportResultsBinaryWriter.TAG_DOUBLE, in.readByte());
+    assertEquals(1.5d, in.readDouble());
+    assertEquals(ViewportResultsBinaryWriter.TAG_LONG, in.readByte());
+    assertEquals(Long.MAX_VALUE, in.readLong());
+    assertEquals(ViewportResultsBinaryWriter.TAG_DECIMAL, in.readByte());
+    assertEquals("0.10000000000000000001", readString(in));
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void varInt() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    ViewportResultsBinaryWriter.writeVarInt(out, 300);
+    out.flush();
+    byte[] written = bytes.toByteArray();
+    assertEquals(2, written.length);
+    assertEquals(0xAC, written[0] & 0xFF);
+    assertEquals(0x02, written[1]);
+  }
+
+}
@@ -137,6 +137,30 @@ public class ViewportResultsJsonCsvWriterTest {
     assertTrue(JsonTestUtils.equal(new JSONObject(expectedJson), new JSONObject(json)));
   }
 
+  @Test
+  public void cycleVersion() throws JSONException {
+    List<ResultsCell> results = createResults("val", null, String.class);
+    ViewportResults viewportResults = new ViewportResults(results, _viewportDefinition, createColumns(String.class), DURATION, CALC_TIME)
+        .withCellVersions(new long[] {3}, 3);
+    String json = _writer.getJson(viewportResults);
+    String expectedJson = "{\"version\":0, \"calculationDuration\":\"1,234\", \"cycle\":3, \"data\":[{\"v\":\"val\"}]}";
+    assertTrue(JsonTestUtils.equal(new JSONObject(expectedJson), new JSONObject(json)));
+  }
+
+  @Test
+  public void delta() throws JSONException {
+    List<ResultsCell> results = ImmutableList.of(
+        ResultsCell.forCalculatedValue("val1", _valueSpec, null, null, false, String.class, TypeFormatter.Format.CELL),
+        ResultsCell.forCalculatedValue("val2", _valueSpec, null, null, true, String.class, TypeFormatter.Format.CELL));
+    ViewportResults viewportResults = new ViewportResults(results, _viewportDefinition, createColumns(String.class), DURATION, CALC_TIME)
+        .withCellVersions(new long[] {1, 2}, 2);
+    String json = _writer.getJson(viewportResults.changedSince(1L));
+    String expectedJson = "{\"version\":0, \"calculationDuration\":\"1,234\", \"cycle\":2, \"delta\":true, \"data\":[{\"i\":1, \"v\":\"val2\"}]}";
+    assertTrue(JsonTestUtils.equal(new JSONObject(expectedJson), new JSONObject(json)));
+    String emptyJson = "{\"version\":0, \"calculationDuration\":\"1,234\", \"cycle\":2, \"delta\":true, \"data\":[]}";
+    assertTrue(JsonTestUtils.equal(new JSONObject(emptyJson), new JSONObject(_writer.getJson(viewportResults.changedSince(2L)))));
+  }
+
   private static class TestCellRenderer implements GridColumn.CellRenderer {
 
     @Override
@@ -7,6 +7,8 @@ package com.opengamma.web.analytics.formatting;
 
 import static com.opengamma.web.analytics.formatting.ResultsFormatter.CurrencyDisplay.SUPPRESS_CURRENCY;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import org.testng.annotations.Test;
@@ -117,6 +119,36 @@ public class ResultsFormatterTest {
     assertEquals(result, "123");
   }
 
+  @Test
+  public void formattedValueCachedForSameValue() {
+    ResultsFormatter formatter = new ResultsFormatter();
+    ValueSpecification valueSpec = buildValueSpecificationWithCurrency(ValueRequirementNames.PRESENT_VALUE);
+    Double value = new Double(123.45);
+    Object result = formatter.format(value, valueSpec, TypeFormatter.Format.CELL, null);
+    assertSame(formatter.format(value, valueSpec, TypeFormatter.Format.CELL, null), result);
+  }
+
+  @Test
+  public void formattedValueNotCachedForNewValue() {
+    ResultsFormatter formatter = new ResultsFormatter();
+    ValueSpecification valueSpec = buildValueSpecificationWithCurrency(ValueRequirementNames.PRESENT_VALUE);
+    Object result = formatter.format(new Double(123.45), valueSpec, TypeFormatter.Format.CELL, null);
+    Object newResult = formatter.format(new Double(234.56), valueSpec, TypeFormatter.Format.CELL, null);
+    assertEquals(result, "USD 123");
+    assertEquals(newResult, "USD 235");
+  }
+
+  @Test
+  public void formattedValueCacheDisabled() {
+    ResultsFormatter formatter = new ResultsFormatter(SUPPRESS_CURRENCY, 0);
+    ValueSpecification valueSpec = buildValueSpecificationWithCurrency(ValueRequirementNames.PRESENT_VALUE);
+    Double value = new Double(123.45);
+    Object result = formatter.format(value, valueSpec, TypeFormatter.Format.CELL, null);
+    Object secondResult = formatter.format(value, valueSpec, TypeFormatter.Format.CELL, null);
+    assertEquals(secondResult, result);
+    assertNotSame(secondResult, result);
+  }
+
   private ValueSpecification buildValueSpecificationWithCurrency(String valueName) {
 
     UniqueId uid = UniqueId.of("scheme", "value");
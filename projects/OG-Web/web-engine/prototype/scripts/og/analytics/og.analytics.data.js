@@ -66,8 +66,8 @@ $.register_module({
                     if (!result || result.error) {// do not kill connection even if there is an error, just warn
                         return og.dev.warn(data.prefix + (result && result.message || 'reset connection'));
                     }
-                    if (result.data && result.data.version === viewport_version) {
-                        fire('data', result.data.data);
+                    if (result.data && result.data.version === viewport_version && cells.version === viewport_version) {
+                        fire('data', cells.data.slice());
                         fire('cycle', {duration: result.data[CALC]});
                     }
                 };
@@ -76,6 +76,9 @@ $.register_module({
                     if (!view_id) {// connection is dead
                         return;
                     }
+                    if (result && !result.error && result.data) {// merge now, throttling must not drop a delta
+                        merge(result.data);
+                    }
                     if ((delta = (current = +new Date()) - last) >= rate) {
                         last = current;
                         return handler(result);
@@ -83,6 +86,25 @@ $.register_module({
                     timeout = setTimeout(data_handler.partial(result), rate - delta);
                 };
             })();
+            // the last data received, deltas only hold the cells that changed since its cycle
+            var cells = {version: null, cycle: null, data: []};
+            var merge = function (update) {
+                if (!update.delta) {
+                    cells = {version: update.version, cycle: update.cycle, data: update.data};
+                    return;
+                }
+                if (update.version !== cells.version) {// a new viewport definition sends every cell
+                    cells = {version: update.version, cycle: null, data: []};
+                }
+                update.data.forEach(function (cell) {
+                    cells.data[cell.i] = cell;
+                    delete cell.i;
+                });
+                cells.cycle = update.cycle;
+            };
+            var since = function () {
+                return cells.version === viewport_version && cells.cycle != null ? cells.cycle : void 0;
+            };
             var data_setup = function () {
                 if (!view_id || !viewport) {
                     return;
@@ -92,7 +114,7 @@ $.register_module({
                 // if we have a viewport id already just GET the data
                 if (data.viewport_id) {
                     viewports.get({view_id: view_id, grid_type: grid_type, graph_id: graph_id, update: data_setup,
-                        viewport_id: data.viewport_id }).pipe(data_handler);
+                        viewport_id: data.viewport_id, since: since()}).pipe(data_handler);
                 } else {
                     // PUT the structure of the viewport, returns the viewport id and set the version as the promise id
                     (promise = viewports.put({view_id: view_id, grid_type: grid_type, graph_id: graph_id,
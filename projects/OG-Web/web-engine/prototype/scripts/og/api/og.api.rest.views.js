@@ -275,6 +275,9 @@ $.register_module({
                         method[1] = config.view_id;
                         method[2] = config.grid_type;
                         method.push(config.viewport_id);
+                        if (config.since !== void 0) {// only the cells changed after this cycle are returned
+                            data.since = config.since;
+                        }
                         return api.request(method, {data: data, meta: meta});
                     },
                     put: function (config) {
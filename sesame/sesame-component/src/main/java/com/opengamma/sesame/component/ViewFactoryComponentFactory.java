@@ -9,13 +9,11 @@ import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Optional;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.component.ComponentInfo;
 import com.opengamma.component.ComponentRepository;
 import com.opengamma.component.factory.AbstractComponentFactory;
-import com.opengamma.core.change.ChangeManager;
 import com.opengamma.core.config.ConfigSource;
 import com.opengamma.core.convention.ConventionSource;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
@@ -101,7 +99,6 @@ import org.joda.beans.impl.direct.DirectMetaProperty;
 import org.joda.beans.impl.direct.DirectMetaPropertyMap;
 import org.threeten.bp.Instant;
 
-import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -159,7 +156,8 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
   @Override
   public void init(ComponentRepository repo, LinkedHashMap<String, String> configuration) throws Exception {
     Map<Class<?>, Object> components = getComponents(repo, configuration);
-    // TODO cache invalidation isn't fully implemented yet, this will need to be changed for a real implementation
+    // the cache aware sources record the objects a value is calculated from and the view factory listens for
+    // changes to them, so the invalidator only needs to record the objects
     CacheInvalidator cacheInvalidator = new NoOpCacheInvalidator();
     ComponentMap componentMap = decorateSources(ComponentMap.of(components), cacheInvalidator);
 
@@ -192,6 +190,7 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
                                               cacheBuilder,
                                               cacheInvalidator,
                                               Optional.fromNullable(_metricRegistry));
+    viewFactory.invalidateCacheOnChanges(componentMap);
 
     repo.registerComponent(ViewFactory.class, getClassifier(), viewFactory);
     repo.registerComponent(AvailableOutputs.class, getClassifier(), availableOutputs);
@@ -334,56 +333,45 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
    * queried so cache entries can be invalidated when it changes. The returned
    * component map contains the cache aware sources in place of the originals.
    * <p>
-   * This functionality isn't complete yet. The cache aware sources record when data is used
-   * by a function but nothing listens to change notifications from the underlying sources.
-   * Ultimately the {@code CacheInvalidator} should have a method to add and remove listeners
-   * and logic to process change notifications and maintain a set of invalid cache keys.
-   * TODO should this be somewhere else? a CacheUtils class? ComponentMap? CacheInvalidator?
+   * The cache aware sources delegate to the change managers of the originals, so
+   * {@link ViewFactory#invalidateCacheOnChanges(ComponentMap)} can be called with the returned
+   * map to remove cache entries when the data they were calculated from changes.
    *
    * @param components  platform components used by functions
+   * @param cacheInvalidator  the invalidator the sources register the data they return with
    * @return a component map containing the decorated sources instead of the originals
    */
-  private static ComponentMap decorateSources(ComponentMap components, CacheInvalidator cacheInvalidator) {
+  public static ComponentMap decorateSources(ComponentMap components, CacheInvalidator cacheInvalidator) {
     // Copy the original set and overwrite the ones we're interested in
     Map<Class<?>, Object> sources = Maps.newHashMap(components.getComponents());
 
-    // need to record which ChangeManagers we're listening to so we can remove the listeners and avoid leaks
-    Collection<ChangeManager> changeManagers = Lists.newArrayList();
-
     ConfigSource configSource = components.findComponent(ConfigSource.class);
     if (configSource != null) {
-      changeManagers.add(configSource.changeManager());
       sources.put(ConfigSource.class, new CacheAwareConfigSource(configSource, cacheInvalidator));
     }
 
     RegionSource regionSource = components.findComponent(RegionSource.class);
     if (regionSource != null) {
-      changeManagers.add(regionSource.changeManager());
       sources.put(RegionSource.class, new CacheAwareRegionSource(regionSource, cacheInvalidator));
     }
 
     SecuritySource securitySource = components.findComponent(SecuritySource.class);
     if (securitySource != null) {
-      changeManagers.add(securitySource.changeManager());
       sources.put(SecuritySource.class, new CacheAwareSecuritySource(securitySource, cacheInvalidator));
     }
 
     ConventionSource conventionSource = components.findComponent(ConventionSource.class);
     if (conventionSource != null) {
-      changeManagers.add(conventionSource.changeManager());
       sources.put(ConventionSource.class, new CacheAwareConventionSource(conventionSource, cacheInvalidator));
     }
 
     HistoricalTimeSeriesSource timeSeriesSource = components.findComponent(HistoricalTimeSeriesSource.class);
     if (timeSeriesSource != null) {
-      changeManagers.add(timeSeriesSource.changeManager());
       sources.put(HistoricalTimeSeriesSource.class,
                   new CacheAwareHistoricalTimeSeriesSource(timeSeriesSource, cacheInvalidator));
     }
     // TODO HolidaySource (which has a horrible design WRT decorating)
 
-    // TODO something needs to add listeners to the change managers. probably CacheInvalidator. addListeners() method?
-
     return ComponentMap.of(sources);
   }
 
@@ -10,6 +10,7 @@ import static com.opengamma.sesame.config.ConfigBuilder.configureView;
 import static org.testng.AssertJUnit.assertEquals;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventListener;
 import java.util.List;
@@ -51,6 +52,7 @@ public class RemoteViewRunnerTest {
 
   private Server _jettyServer;
   private ViewRunner _remoteViewRunner;
+  private ViewRunner _streamingViewRunner;
 
   @BeforeClass
   public void startServer() throws Exception {
@@ -76,6 +78,7 @@ public class RemoteViewRunnerTest {
     _jettyServer.setHandler(handlers);
     _jettyServer.start();
     _remoteViewRunner = new RemoteViewRunner(URI.create(serverUrl));
+    _streamingViewRunner = new RemoteViewRunner(URI.create(serverUrl), 2);
   }
 
   @AfterClass
@@ -95,6 +98,27 @@ public class RemoteViewRunnerTest {
     assertEquals("runView successfully invoked", results.get(0, 0).getResult().getValue());
   }
 
+  public void runViewStreaming() {
+    final List<Integer> firstRowIndices = new ArrayList<>();
+    ResultRowListener listener = new ResultRowListener() {
+      @Override
+      public void rowsReceived(int firstRowIndex, List<ResultRow> rows) {
+        firstRowIndices.add(firstRowIndex);
+        assertEquals("runView successfully invoked", rows.get(0).get(0).getResult().getValue());
+      }
+    };
+    Results results =
+        _streamingViewRunner.runViewStreaming(
+            _viewConfig,
+            CalculationArguments.builder().build(),
+            MarketDataEnvironmentBuilder.empty(),
+            ImmutableList.of("a", "b", "c"),
+            listener);
+    // the portfolio is requested from the server in batches of two rows
+    assertEquals(ImmutableList.of(0, 2), firstRowIndices);
+    assertEquals(0, results.getRows().size());
+  }
+
   public void runScenarios() {
     MarketDataEnvironment marketData = MarketDataEnvironmentBuilder.empty();
     CalculationArguments calculationArgs = CalculationArguments.builder().build();
@@ -124,6 +148,17 @@ public class RemoteViewRunnerTest {
       return builder.build(Instant.EPOCH, 0, 0, 0);
     }
 
+    @Override
+    public Results runViewStreaming(
+        ViewConfig viewConfig,
+        CalculationArguments calculationArguments,
+        MarketDataEnvironment marketData,
+        List<?> portfolio,
+        ResultRowListener listener) {
+
+      throw new UnsupportedOperationException("runViewStreaming not supported");
+    }
+
     @Override
     public ScenarioResults runScenarios(
         ViewConfig viewConfig,
@@ -0,0 +1,428 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.id.ObjectId;
+import com.opengamma.sesame.marketdata.MarketDataBundle;
+import com.opengamma.sesame.marketdata.MarketDataId;
+import com.opengamma.timeseries.date.DateTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.result.Result;
+import com.opengamma.util.time.LocalDateRange;
+
+/**
+ * The data read by a cacheable method while it was calculating its value.
+ * <p>
+ * This records the market data, the database objects (e.g. configuration) and the parts of the
+ * valuation time used to calculate a cache entry. It allows an entry to be reused by a later
+ * calculation cycle if the data it read is unchanged, and allows an entry to be removed when
+ * any of the data it depends on is changed.
+ * <p>
+ * The dependencies are recorded by a thread local stack. The caching proxy starts a recording
+ * when it calculates a value, and the engine's environment and data sources record the data
+ * as it's read. When a cacheable method returns, its dependencies are added to the recording of
+ * the calling method, so a value depends on all the data used by the functions below it.
+ * <p>
+ * The market data and valuation time can only be checked against a new environment if they were read from
+ * the environment passed to the cacheable method. If a method reads data from a different time or a
+ * different bundle, for example to calculate a theta, its value can only be reused with the same
+ * environment.
+ * <p>
+ * Instances are only mutated by the thread calculating the value and are effectively immutable
+ * once the value is in the cache.
+ */
+public final class CacheEntryDependencies {
+
+  /** The dependencies being recorded by the current thread, the innermost method first. */
+  private static final ThreadLocal<LinkedList<CacheEntryDependencies>> s_recording =
+      new ThreadLocal<LinkedList<CacheEntryDependencies>>() {
+        @Override
+        protected LinkedList<CacheEntryDependencies> initialValue() {
+          return new LinkedList<>();
+        }
+      };
+
+  /** The market data bundle in the environment passed to the method, null if there was no environment. */
+  private final MarketDataBundle _bundle;
+
+  /** The valuation time in the environment passed to the method, null if there was no environment. */
+  private final ZonedDateTime _valuationTime;
+
+  /** The market data read, keyed by the details of the request, with the value returned. */
+  private final Map<MarketDataRead, Result<?>> _marketData = new LinkedHashMap<>();
+
+  /** The IDs of the database objects read. */
+  private final Set<ObjectId> _objectIds = new HashSet<>();
+
+  /** The parts of the valuation time that were read. */
+  private final Set<ValuationTimeCacheEntry> _valuationTimes = new HashSet<>();
+
+  /** Whether the market data and valuation time can be checked against a different environment. */
+  private boolean _replayable = true;
+
+  /**
+   * Restricted constructor.
+   *
+   * @param bundle the market data bundle in the environment passed to the method, null if none
+   * @param valuationTime the valuation time in the environment passed to the method, null if none
+   */
+  private CacheEntryDependencies(MarketDataBundle bundle, ZonedDateTime valuationTime) {
+    _bundle = bundle;
+    _valuationTime = valuationTime;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Starts recording the dependencies of a calculation on the current thread.
+   *
+   * @param bundle the market data bundle in the environment passed to the method, null if none
+   * @param valuationTime the valuation time in the environment passed to the method, null if none
+   * @return the dependencies that will be recorded
+   */
+  /* package */ static CacheEntryDependencies startRecording(MarketDataBundle bundle, ZonedDateTime valuationTime) {
+    CacheEntryDependencies dependencies = new CacheEntryDependencies(baseBundle(bundle), valuationTime);
+    s_recording.get().push(dependencies);
+    return dependencies;
+  }
+
+  /**
+   * Stops the recording started by the last call to {@link #startRecording()} on the current thread.
+   */
+  /* package */ static void stopRecording() {
+    s_recording.get().pop();
+  }
+
+  /**
+   * Returns true if the current thread is recording dependencies.
+   *
+   * @return true if the current thread is recording dependencies
+   */
+  public static boolean isRecording() {
+    return !s_recording.get().isEmpty();
+  }
+
+  /**
+   * Records that the current calculation read a database object.
+   *
+   * @param objectId the ID of the object
+   */
+  public static void recordObjectId(ObjectId objectId) {
+    CacheEntryDependencies dependencies = s_recording.get().peek();
+    if (dependencies != null) {
+      dependencies._objectIds.add(ArgumentChecker.notNull(objectId, "objectId"));
+    }
+  }
+
+  /**
+   * Records that the current calculation read the valuation time.
+   *
+   * @param valuationTime the valuation time of the environment that was read
+   * @param entry describes which part of the valuation time was read
+   */
+  public static void recordValuationTime(ZonedDateTime valuationTime, ValuationTimeCacheEntry entry) {
+    CacheEntryDependencies dependencies = s_recording.get().peek();
+    if (dependencies != null) {
+      dependencies._valuationTimes.add(ArgumentChecker.notNull(entry, "entry"));
+      if (!valuationTime.equals(dependencies._valuationTime)) {
+        dependencies._replayable = false;
+      }
+    }
+  }
+
+  /**
+   * Adds previously recorded dependencies to the current recording.
+   * <p>
+   * This is used when a cacheable method returns a value to a calling method. The caller depends on
+   * everything the value depends on, whether the value was calculated or taken from the cache.
+   * <p>
+   * A value taken from the cache may have been calculated in an earlier cycle. It is only returned if its
+   * data is the same in the environment it was requested with, so the bundle and valuation time of that
+   * environment are compared with the caller's rather than the ones the value was calculated with.
+   *
+   * @param dependencies the dependencies of a value used by the current calculation
+   * @param bundle the market data bundle the value is valid for
+   * @param valuationTime the valuation time the value is valid for
+   */
+  /* package */ static void recordAll(CacheEntryDependencies dependencies,
+                                      MarketDataBundle bundle,
+                                      ZonedDateTime valuationTime) {
+    CacheEntryDependencies current = s_recording.get().peek();
+    if (current != null && current != dependencies) {
+      if (!dependencies._replayable ||
+          (!dependencies._marketData.isEmpty() && current._bundle != baseBundle(bundle)) ||
+          (!dependencies._valuationTimes.isEmpty() && !Objects.equals(current._valuationTime, valuationTime))) {
+        current._replayable = false;
+      }
+      current._marketData.putAll(dependencies._marketData);
+      current._objectIds.addAll(dependencies._objectIds);
+      current._valuationTimes.addAll(dependencies._valuationTimes);
+    }
+  }
+
+  /**
+   * Returns a market data bundle which records the data read from it if the current thread is recording.
+   *
+   * @param bundle the bundle providing the data
+   * @return a bundle which records the data read from it, or the bundle itself if nothing is being recorded
+   */
+  public static MarketDataBundle recordingBundle(MarketDataBundle bundle) {
+    ArgumentChecker.notNull(bundle, "bundle");
+    if (!isRecording() || bundle instanceof RecordingMarketDataBundle) {
+      return bundle;
+    }
+    return new RecordingMarketDataBundle(bundle, bundle, null);
+  }
+
+  /**
+   * Returns the bundle wrapped by a recording bundle created by {@link #recordingBundle}.
+   *
+   * @param bundle a market data bundle, possibly null
+   * @return the underlying bundle if the bundle records data, otherwise the bundle
+   */
+  private static MarketDataBundle baseBundle(MarketDataBundle bundle) {
+    if (bundle instanceof RecordingMarketDataBundle && ((RecordingMarketDataBundle) bundle)._time == null) {
+      return ((RecordingMarketDataBundle) bundle)._root;
+    }
+    return bundle;
+  }
+
+  private static void recordMarketData(MarketDataBundle root, MarketDataRead read, Result<?> result) {
+    CacheEntryDependencies dependencies = s_recording.get().peek();
+    if (dependencies != null) {
+      dependencies._marketData.put(read, result);
+      if (root != dependencies._bundle) {
+        dependencies._replayable = false;
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns true if the market data and valuation time can be checked against a different environment.
+   *
+   * @return true if {@link #isValidAt} and {@link #isValidFor} can be used
+   */
+  /* package */ boolean isReplayable() {
+    return _replayable;
+  }
+
+  /**
+   * Returns true if the valuation time read by the calculation is the same at a different valuation time.
+   *
+   * @param valuationTime the valuation time
+   * @return true if all the parts of the valuation time read are the same at the time
+   */
+  /* package */ boolean isValidAt(ZonedDateTime valuationTime) {
+    for (ValuationTimeCacheEntry entry : _valuationTimes) {
+      if (!entry.isValidAt(valuationTime)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if a bundle contains the same values for all the market data read by the calculation.
+   * <p>
+   * The data is requested from the bundle again and compared with the values that were read.
+   *
+   * @param bundle a market data bundle
+   * @return true if the bundle contains the same values for all the market data that was read
+   */
+  /* package */ boolean isValidFor(MarketDataBundle bundle) {
+    for (Map.Entry<MarketDataRead, Result<?>> entry : _marketData.entrySet()) {
+      if (!isSameResult(entry.getValue(), entry.getKey().read(bundle))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the calculation read any of the data.
+   *
+   * @param marketDataIds IDs of market data
+   * @param objectIds IDs of database objects
+   * @return true if the calculation read any of the data
+   */
+  /* package */ boolean dependsOn(Collection<? extends MarketDataId<?>> marketDataIds, Collection<ObjectId> objectIds) {
+    for (ObjectId objectId : objectIds) {
+      if (_objectIds.contains(objectId)) {
+        return true;
+      }
+    }
+    if (marketDataIds.isEmpty()) {
+      return false;
+    }
+    for (MarketDataRead read : _marketData.keySet()) {
+      if (marketDataIds.contains(read._id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSameResult(Result<?> result1, Result<?> result2) {
+    if (result1 == result2) {
+      return true;
+    }
+    if (result1.isSuccess() != result2.isSuccess()) {
+      return false;
+    }
+    // failures are only ever used to produce failures so it doesn't matter if the details are different
+    return !result1.isSuccess() || Objects.equals(result1.getValue(), result2.getValue());
+  }
+
+  @Override
+  public String toString() {
+    return "CacheEntryDependencies [" +
+        "_marketData=" + new ArrayList<>(_marketData.keySet()) +
+        ", _objectIds=" + _objectIds +
+        ", _valuationTimes=" + _valuationTimes +
+        "]";
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A request for an item of market data or a time series of market data.
+   */
+  private static final class MarketDataRead {
+
+    private final MarketDataId<?> _id;
+    private final Class<?> _dataType;
+    /** The date range of a time series, null for a single value. */
+    private final LocalDateRange _dateRange;
+    /** The time of the bundle's market data, null if it's the bundle's default time. */
+    private final Object _time;
+
+    private MarketDataRead(MarketDataId<?> id, Class<?> dataType, LocalDateRange dateRange, Object time) {
+      _id = id;
+      _dataType = dataType;
+      _dateRange = dateRange;
+      _time = time;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    private Result<?> read(MarketDataBundle bundle) {
+      MarketDataBundle timeBundle;
+      if (_time instanceof ZonedDateTime) {
+        timeBundle = bundle.withTime((ZonedDateTime) _time);
+      } else if (_time instanceof LocalDate) {
+        timeBundle = bundle.withDate((LocalDate) _time);
+      } else {
+        timeBundle = bundle;
+      }
+      if (_dateRange == null) {
+        return timeBundle.get((MarketDataId) _id, (Class) _dataType);
+      } else {
+        return timeBundle.get((MarketDataId) _id, (Class) _dataType, _dateRange);
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_id, _dataType, _dateRange, _time);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      final MarketDataRead other = (MarketDataRead) obj;
+      return
+          Objects.equals(this._id, other._id) &&
+          Objects.equals(this._dataType, other._dataType) &&
+          Objects.equals(this._dateRange, other._dateRange) &&
+          Objects.equals(this._time, other._time);
+    }
+
+    @Override
+    public String toString() {
+      return "MarketDataRead [_id=" + _id + ", _dataType=" + _dataType + ", _dateRange=" + _dateRange +
+          ", _time=" + _time + "]";
+    }
+  }
+
+  /**
+   * Market data bundle that records the data read from it in the current thread's dependencies.
+   * <p>
+   * Bundles created for different times record the time so the same data can be read again
+   * when the dependencies are checked.
+   */
+  private static final class RecordingMarketDataBundle implements MarketDataBundle {
+
+    /** The bundle that was wrapped by {@link #recordingBundle}. */
+    private final MarketDataBundle _root;
+    /** The bundle providing the data, derived from the root bundle by changing its time. */
+    private final MarketDataBundle _delegate;
+    /** The time passed to {@link #withTime} or {@link #withDate}, null for the original bundle. */
+    private final Object _time;
+
+    private RecordingMarketDataBundle(MarketDataBundle root, MarketDataBundle delegate, Object time) {
+      _root = root;
+      _delegate = delegate;
+      _time = time;
+    }
+
+    @Override
+    public <T, I extends MarketDataId<T>> Result<T> get(I id, Class<T> dataType) {
+      Result<T> result = _delegate.get(id, dataType);
+      recordMarketData(_root, new MarketDataRead(id, dataType, null, _time), result);
+      return result;
+    }
+
+    @Override
+    public <T, I extends MarketDataId<T>> Result<DateTimeSeries<LocalDate, T>> get(I id,
+                                                                                   Class<T> dataType,
+                                                                                   LocalDateRange dateRange) {
+      Result<DateTimeSeries<LocalDate, T>> result = _delegate.get(id, dataType, dateRange);
+      recordMarketData(_root, new MarketDataRead(id, dataType, dateRange, _time), result);
+      return result;
+    }
+
+    @Override
+    public MarketDataBundle withTime(ZonedDateTime time) {
+      return new RecordingMarketDataBundle(_root, _delegate.withTime(time), time);
+    }
+
+    @Override
+    public MarketDataBundle withDate(LocalDate date) {
+      return new RecordingMarketDataBundle(_root, _delegate.withDate(date), date);
+    }
+
+    @Override
+    public int hashCode() {
+      return _delegate.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      return _delegate.equals(((RecordingMarketDataBundle) obj)._delegate);
+    }
+  }
+}
@@ -7,15 +7,21 @@ package com.opengamma.sesame.cache;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.threeten.bp.ZonedDateTime;
 
+import com.google.common.cache.Cache;
 import com.google.common.collect.Sets;
+import com.opengamma.id.ObjectId;
 import com.opengamma.sesame.Environment;
 import com.opengamma.sesame.config.EngineUtils;
 import com.opengamma.sesame.function.scenarios.FilteredScenarioDefinition;
@@ -26,6 +32,8 @@ import com.opengamma.sesame.graph.FunctionModelNode;
 import com.opengamma.sesame.graph.InterfaceNode;
 import com.opengamma.sesame.graph.NodeDecorator;
 import com.opengamma.sesame.graph.ProxyNode;
+import com.opengamma.sesame.marketdata.MarketDataBundle;
+import com.opengamma.sesame.marketdata.MarketDataId;
 import com.opengamma.sesame.proxy.AbstractProxyInvocationHandler;
 import com.opengamma.sesame.proxy.InvocationHandlerFactory;
 import com.opengamma.sesame.proxy.ProxyInvocationHandler;
@@ -33,11 +41,25 @@ import com.opengamma.util.ArgumentChecker;
 
 /**
  * Decorates a node in the graph with a proxy which performs memoization using a cache.
+ * <p>
+ * If a cacheable method's first argument is a {@link DependencyTrackingEnvironment} the data read while
+ * calculating its value is recorded with the value. If the method is called again with a different
+ * market data bundle or valuation time, a previously calculated value is used if the data it read
+ * hasn't changed. This allows values that don't depend on market data that is ticking, e.g. curves
+ * built from data that hasn't changed, to be reused in later cycles.
  */
 public class CachingProxyDecorator extends NodeDecorator {
 
   private static final Logger s_logger = LoggerFactory.getLogger(CachingProxyDecorator.class);
 
+  /** Creates the values stored in the cache for a method call with all market data bundles and valuation times. */
+  private static final Callable<Object> NEW_TRACKED_VALUES = new Callable<Object>() {
+    @Override
+    public Object call() {
+      return new TrackedValues();
+    }
+  };
+
   private final ExecutingMethodsThreadLocal _executingMethods;
   private final CacheProvider _cacheProvider;
 
@@ -59,6 +81,85 @@ public class CachingProxyDecorator extends NodeDecorator {
     _executingMethods = ArgumentChecker.notNull(executingMethods, "executingMethods");
   }
 
+  /**
+   * Removes the entries from a cache whose values were calculated using any of the specified data.
+   * <p>
+   * Only entries calculated using a {@link DependencyTrackingEnvironment} record the data they use.
+   * Other entries are never removed by this method.
+   *
+   * @param cache the cache
+   * @param marketDataIds IDs of market data that has changed
+   * @param objectIds IDs of database objects that have changed
+   */
+  public static void invalidate(Cache<Object, Object> cache,
+                                Collection<? extends MarketDataId<?>> marketDataIds,
+                                Collection<ObjectId> objectIds) {
+    ArgumentChecker.notNull(cache, "cache");
+    ArgumentChecker.notNull(marketDataIds, "marketDataIds");
+    ArgumentChecker.notNull(objectIds, "objectIds");
+
+    for (Iterator<Map.Entry<Object, Object>> itr = cache.asMap().entrySet().iterator(); itr.hasNext(); ) {
+      Object value = itr.next().getValue();
+
+      if (value instanceof TrackedValue) {
+        if (((TrackedValue) value).getDependencies().dependsOn(marketDataIds, objectIds)) {
+          ((TrackedValue) value).invalidate();
+          itr.remove();
+        }
+      } else if (value instanceof TrackedValues) {
+        if (((TrackedValues) value).removeDependents(marketDataIds, objectIds)) {
+          itr.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the entries for method calls from a cache.
+   * <p>
+   * If a call's environment is a {@link DependencyTrackingEnvironment} the values it calculated with other
+   * environments are removed too. Otherwise one of them could be found valid for the call's environment and
+   * the removed value would be used again.
+   *
+   * @param cache the cache
+   * @param keys the keys of the method calls
+   */
+  public static void invalidate(Cache<Object, Object> cache, Collection<MethodInvocationKey> keys) {
+    ArgumentChecker.notNull(cache, "cache");
+    ArgumentChecker.notNull(keys, "keys");
+
+    for (MethodInvocationKey key : keys) {
+      Object value = cache.asMap().remove(key);
+
+      if (value instanceof TrackedValue) {
+        ((TrackedValue) value).invalidate();
+      }
+      Object[] args = key.getArgs();
+
+      if (args != null && args.length != 0 && args[0] instanceof DependencyTrackingEnvironment) {
+        Object values = cache.asMap().remove(trackedValuesKey(key.getFunctionId(), key.getMethod(), args));
+
+        if (values instanceof TrackedValues) {
+          ((TrackedValues) values).invalidateAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the key for the values calculated by a method call with any market data and valuation time.
+   *
+   * @param functionId the ID of the function
+   * @param method the method
+   * @param keyArgs the arguments in the key of the call, the first is the environment
+   * @return the key for the values
+   */
+  private static TrackedValuesKey trackedValuesKey(FunctionId functionId, Method method, Object[] keyArgs) {
+    Object[] valuesKeyArgs = keyArgs.clone();
+    valuesKeyArgs[0] = ((Environment) keyArgs[0]).getScenarioDefinition();
+    return new TrackedValuesKey(new MethodInvocationKey(functionId, method, valuesKeyArgs));
+  }
+
   @Override
   public FunctionModelNode decorateNode(FunctionModelNode node) {
     if (!(node instanceof ProxyNode) && !(node instanceof InterfaceNode)) {
@@ -186,6 +287,10 @@ public class CachingProxyDecorator extends NodeDecorator {
    * If the cache doesn't contain an element the underlying object is called and the cache is populated.
    * The values in the cache are futures. This allows multiple threads to request the same value and for all of
    * them to block while the first thread calculates it.
+   * If the method's environment is a {@link DependencyTrackingEnvironment} the value is stored with the data
+   * used to calculate it. A second entry keyed without the market data and valuation time holds the values
+   * calculated with other environments, and one of these is used instead of calculating a new value if the
+   * data it used is the same in the new environment.
    * This is package scoped for testing.
    */
   /* package */ static final class Handler extends AbstractProxyInvocationHandler {
@@ -234,6 +339,26 @@ public class CachingProxyDecorator extends NodeDecorator {
         Object[] keyArgs = getArgumentsForCacheKey(args);
         // create a key representing the method call - the receiver's ID, the method and its arguments
         MethodInvocationKey key = new MethodInvocationKey(_functionId, method, keyArgs);
+
+        if (isEnvironmentFirst(args) && args[0] instanceof DependencyTrackingEnvironment) {
+          // the value is stored with the data used to calculate it so it can be reused with different data
+          TrackedCallableMethod calculationTask = new TrackedCallableMethod(key, keyArgs, method, args);
+          Cache<Object, Object> cache = _cacheProvider.get();
+          TrackedValue value = (TrackedValue) cache.get(key, calculationTask);
+
+          while (value.isInvalidated()) {
+            // the value was invalidated through the key of a different environment
+            cache.asMap().remove(key, value);
+            value = (TrackedValue) cache.get(key, calculationTask);
+          }
+          // the caller depends on the data used to calculate the value, whether it was cached or not.
+          // the value is valid for this environment even if it was calculated with an earlier one
+          DependencyTrackingEnvironment env = (DependencyTrackingEnvironment) args[0];
+          CacheEntryDependencies.recordAll(value.getDependencies(),
+                                           env.getUntrackedMarketDataBundle(),
+                                           env.getUntrackedValuationTime());
+          return value.getValue();
+        }
         // create a task to calculate the value if it's not in the cache - calls the underlying method
         CallableMethod calculationTask = new CallableMethod(key, method, args);
         // get the value from the cache - if it's not already present it's calculated
@@ -268,7 +393,7 @@ public class CachingProxyDecorator extends NodeDecorator {
      * @return the arguments that should be used in the cache key
      */
     private Object[] getArgumentsForCacheKey(Object[] args) {
-      if (args == null || args.length == 0 || !(args[0] instanceof Environment)) {
+      if (!isEnvironmentFirst(args)) {
         return args;
       }
       Environment env = (Environment) args[0];
@@ -283,6 +408,10 @@ public class CachingProxyDecorator extends NodeDecorator {
       return keyArgs;
     }
 
+    private static boolean isEnvironmentFirst(Object[] args) {
+      return args != null && args.length != 0 && args[0] instanceof Environment;
+    }
+
     /** Visible for testing */
     /* package */ Object getDelegate() {
       return _delegate;
@@ -317,5 +446,83 @@ public class CachingProxyDecorator extends NodeDecorator {
         }
       }
     }
+
+    /**
+     * Calculates a value using a method whose environment tracks the data read from it.
+     * <p>
+     * A value calculated with a different environment is returned if it used the same data.
+     * Otherwise the method is called and the data it reads is recorded with the value.
+     */
+    private class TrackedCallableMethod implements Callable<Object> {
+
+      private final CallableMethod _callableMethod;
+      private final TrackedValuesKey _valuesKey;
+      private final DependencyTrackingEnvironment _env;
+
+      private TrackedCallableMethod(MethodInvocationKey key, Object[] keyArgs, Method method, Object[] args) {
+        _callableMethod = new CallableMethod(key, method, args);
+        _env = (DependencyTrackingEnvironment) args[0];
+        // the key for the values calculated with any market data and valuation time
+        _valuesKey = trackedValuesKey(_functionId, method, keyArgs);
+      }
+
+      @Override
+      public Object call() throws Exception {
+        MarketDataBundle bundle = _env.getUntrackedMarketDataBundle();
+        ZonedDateTime valuationTime = _env.getUntrackedValuationTime();
+        TrackedValues values = (TrackedValues) _cacheProvider.get().get(_valuesKey, NEW_TRACKED_VALUES);
+        TrackedValue value = values.get(bundle, valuationTime);
+
+        if (value != null) {
+          s_logger.debug("Reusing value calculated with different market data for {}", _valuesKey);
+          return value;
+        }
+        CacheEntryDependencies dependencies = CacheEntryDependencies.startRecording(bundle, valuationTime);
+        Object result;
+        try {
+          result = _callableMethod.call();
+        } finally {
+          CacheEntryDependencies.stopRecording();
+        }
+        value = new TrackedValue(result, dependencies, bundle, valuationTime);
+        values.add(value);
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Key for the values calculated by a method call with any market data and valuation time.
+   * This wraps the key so it can't be equal to the key of a method call whose first argument
+   * isn't an environment.
+   */
+  private static final class TrackedValuesKey {
+
+    private final MethodInvocationKey _key;
+
+    private TrackedValuesKey(MethodInvocationKey key) {
+      _key = key;
+    }
+
+    @Override
+    public int hashCode() {
+      return _key.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      return _key.equals(((TrackedValuesKey) obj)._key);
+    }
+
+    @Override
+    public String toString() {
+      return "TrackedValuesKey [_key=" + _key + "]";
+    }
   }
 }
@@ -6,6 +6,7 @@
 package com.opengamma.sesame.cache;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -65,6 +66,7 @@ public class DefaultCacheInvalidator implements CacheInvalidator {
 
   @Override
   public synchronized void register(ObjectId id) {
+    CacheEntryDependencies.recordObjectId(id);
     if (VersionCorrection.LATEST.equals(_configVersionCorrection)) {
       _objectIdsToKeys.putAll(id, _executingMethods.get());
     }
@@ -98,11 +100,12 @@ public class DefaultCacheInvalidator implements CacheInvalidator {
     // TODO if the new VC isn't the same as the old then clear all DB dependent entries
     _configVersionCorrection = configVersionCorrection;
 
+    // the caching proxy also removes the values calculated by the same calls with other environments
     for (ExternalId externalId : marketData) {
-      _cache.invalidateAll(_externalIdsToKeys.removeAll(externalId));
+      CachingProxyDecorator.invalidate(_cache, _externalIdsToKeys.removeAll(externalId));
     }
     for (ObjectId objectId : dbIds) {
-      _cache.invalidateAll(_objectIdsToKeys.removeAll(objectId));
+      CachingProxyDecorator.invalidate(_cache, _objectIdsToKeys.removeAll(objectId));
     }
   }
 
@@ -112,7 +115,7 @@ public class DefaultCacheInvalidator implements CacheInvalidator {
       MethodInvocationKey key = pair.getFirst();
       ValuationTimeCacheEntry timeEntry = pair.getSecond();
       if (!timeEntry.isValidAt(valuationTime)) {
-        _cache.invalidate(key);
+        CachingProxyDecorator.invalidate(_cache, Collections.singleton(key));
         itr.remove();
       }
     }
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.sesame.Environment;
+import com.opengamma.sesame.marketdata.MarketDataBundle;
+
+/**
+ * An environment that records the data read from it in the {@link CacheEntryDependencies} of the
+ * cacheable method that is executing.
+ * <p>
+ * The values returned by cacheable methods are only reused with a different market data bundle or
+ * valuation time if the method's environment implements this interface. Otherwise the cache entry
+ * is only used when the method is called again with an equal environment.
+ */
+public interface DependencyTrackingEnvironment extends Environment {
+
+  /**
+   * Returns the valuation time without recording that it was read.
+   *
+   * @return the valuation time
+   */
+  ZonedDateTime getUntrackedValuationTime();
+
+  /**
+   * Returns the market data bundle without recording the data read from it.
+   *
+   * @return the market data bundle
+   */
+  MarketDataBundle getUntrackedMarketDataBundle();
+}
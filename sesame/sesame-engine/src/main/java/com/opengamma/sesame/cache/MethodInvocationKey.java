@@ -27,6 +27,18 @@ public class MethodInvocationKey {
     _args = args;
   }
 
+  /* package */ FunctionId getFunctionId() {
+    return _functionId;
+  }
+
+  /* package */ Method getMethod() {
+    return _method;
+  }
+
+  /* package */ Object[] getArgs() {
+    return _args;
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(_functionId, _method, Arrays.deepHashCode(_args));
@@ -30,6 +30,8 @@ public class NoOpCacheInvalidator implements CacheInvalidator {
 
   @Override
   public void register(ObjectId id) {
+    // cache entries that depend on the object can still be removed using CachingProxyDecorator.invalidate()
+    CacheEntryDependencies.recordObjectId(id);
   }
 
   @Override
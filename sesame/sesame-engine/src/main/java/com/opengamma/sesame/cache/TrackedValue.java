@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import java.lang.ref.WeakReference;
+
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.sesame.marketdata.MarketDataBundle;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A value calculated by a cacheable method and the data that was used to calculate it.
+ * <p>
+ * This is stored in the cache for methods whose environment is a {@link DependencyTrackingEnvironment}.
+ */
+/* package */ final class TrackedValue {
+
+  private final Object _value;
+  private final CacheEntryDependencies _dependencies;
+  private final ZonedDateTime _valuationTime;
+
+  /** The last bundle the value was found to be valid for. Weak so old market data can be collected. */
+  private volatile WeakReference<MarketDataBundle> _validBundle;
+
+  /** Whether the data used to calculate the value has been invalidated. */
+  private volatile boolean _invalidated;
+
+  /* package */ TrackedValue(Object value,
+                             CacheEntryDependencies dependencies,
+                             MarketDataBundle bundle,
+                             ZonedDateTime valuationTime) {
+    _value = value;
+    _dependencies = ArgumentChecker.notNull(dependencies, "dependencies");
+    _valuationTime = ArgumentChecker.notNull(valuationTime, "valuationTime");
+    _validBundle = new WeakReference<>(ArgumentChecker.notNull(bundle, "bundle"));
+  }
+
+  /**
+   * @return the value returned by the method, possibly null
+   */
+  /* package */ Object getValue() {
+    return _value;
+  }
+
+  /**
+   * @return the data used to calculate the value
+   */
+  /* package */ CacheEntryDependencies getDependencies() {
+    return _dependencies;
+  }
+
+  /**
+   * Returns true if the value would be the same if it were calculated with a different market data bundle
+   * and valuation time.
+   * <p>
+   * The check against a bundle is relatively expensive, so the last bundle that passed the check
+   * is remembered and subsequent checks against the same bundle succeed immediately.
+   *
+   * @param bundle the market data bundle
+   * @param valuationTime the valuation time
+   * @return true if the value is valid for the bundle and time
+   */
+  /* package */ boolean isValidFor(MarketDataBundle bundle, ZonedDateTime valuationTime) {
+    if (_invalidated) {
+      return false;
+    }
+    boolean sameTime = _valuationTime.equals(valuationTime);
+    boolean sameBundle = _validBundle.get() == bundle;
+
+    if (sameTime && sameBundle) {
+      return true;
+    }
+    if (!_dependencies.isReplayable()) {
+      return false;
+    }
+    if (!sameTime && !_dependencies.isValidAt(valuationTime)) {
+      return false;
+    }
+    if (!sameBundle) {
+      if (!_dependencies.isValidFor(bundle)) {
+        return false;
+      }
+      _validBundle = new WeakReference<>(bundle);
+    }
+    return true;
+  }
+
+  /**
+   * Marks the value as calculated from data that has changed.
+   * <p>
+   * The same value can be stored under the keys of several environments, an invalidated value
+   * is recalculated whichever key it's found with.
+   */
+  /* package */ void invalidate() {
+    _invalidated = true;
+  }
+
+  /**
+   * @return true if the data used to calculate the value has been invalidated
+   */
+  /* package */ boolean isInvalidated() {
+    return _invalidated;
+  }
+
+  @Override
+  public String toString() {
+    return "TrackedValue [_value=" + _value + ", _dependencies=" + _dependencies + "]";
+  }
+}
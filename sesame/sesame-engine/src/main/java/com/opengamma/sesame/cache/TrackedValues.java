@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.id.ObjectId;
+import com.opengamma.sesame.marketdata.MarketDataBundle;
+import com.opengamma.sesame.marketdata.MarketDataId;
+
+/**
+ * The values calculated by a cacheable method for the same arguments but different market data
+ * or valuation times.
+ * <p>
+ * This allows a value calculated in one cycle to be used in a later cycle if none of the data used to
+ * calculate it has changed. A small number of values is kept so concurrent cycles with different
+ * data, e.g. scenarios, don't continually replace each other's values. The most recently used
+ * value is checked first.
+ */
+/* package */ final class TrackedValues {
+
+  /** The maximum number of values stored for one method call. */
+  /* package */ static final int MAX_VALUES = 8;
+
+  /** The values, most recently used first. Guarded by this. */
+  private final LinkedList<TrackedValue> _values = new LinkedList<>();
+
+  /**
+   * Returns a value that is valid for a market data bundle and valuation time.
+   *
+   * @param bundle the market data bundle
+   * @param valuationTime the valuation time
+   * @return a value that is valid for the bundle and time, null if there isn't one
+   */
+  /* package */ TrackedValue get(MarketDataBundle bundle, ZonedDateTime valuationTime) {
+    TrackedValue[] values;
+    synchronized (this) {
+      values = _values.toArray(new TrackedValue[_values.size()]);
+    }
+    // the check can be slow so it's done without holding the lock
+    for (TrackedValue value : values) {
+      if (value.isValidFor(bundle, valuationTime)) {
+        synchronized (this) {
+          if (_values.remove(value)) {
+            _values.addFirst(value);
+          }
+        }
+        return value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a value, removing the least recently used value if there are too many.
+   *
+   * @param value the value
+   */
+  /* package */ synchronized void add(TrackedValue value) {
+    _values.addFirst(value);
+    if (_values.size() > MAX_VALUES) {
+      _values.removeLast();
+    }
+  }
+
+  /**
+   * Invalidates and removes all the values.
+   */
+  /* package */ synchronized void invalidateAll() {
+    for (TrackedValue value : _values) {
+      value.invalidate();
+    }
+    _values.clear();
+  }
+
+  /**
+   * Removes the values that depend on any of the data.
+   *
+   * @param marketDataIds IDs of market data
+   * @param objectIds IDs of database objects
+   * @return true if there are no values left
+   */
+  /* package */ synchronized boolean removeDependents(Collection<? extends MarketDataId<?>> marketDataIds,
+                                                      Collection<ObjectId> objectIds) {
+    for (Iterator<TrackedValue> itr = _values.iterator(); itr.hasNext(); ) {
+      TrackedValue value = itr.next();
+      if (value.getDependencies().dependsOn(marketDataIds, objectIds)) {
+        value.invalidate();
+        itr.remove();
+      }
+    }
+    return _values.isEmpty();
+  }
+}
@@ -36,6 +36,22 @@ public interface ValuationTimeCacheEntry {
     public boolean isValidAt(ZonedDateTime valuationTime) {
       return _calculationTime.equals(valuationTime);
     }
+
+    @Override
+    public int hashCode() {
+      return _calculationTime.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      return _calculationTime.equals(((ValidAtCalculationInstant) obj)._calculationTime);
+    }
   }
 
   public static final class ValidOnCalculationDay implements ValuationTimeCacheEntry {
@@ -50,5 +66,21 @@ public interface ValuationTimeCacheEntry {
     public boolean isValidAt(ZonedDateTime valuationTime) {
       return _calculationDate.equals(valuationTime.toLocalDate());
     }
+
+    @Override
+    public int hashCode() {
+      return _calculationDate.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      return _calculationDate.equals(((ValidOnCalculationDay) obj)._calculationDate);
+    }
   }
 }
@@ -77,6 +77,18 @@ public class DefaultEngine implements Engine {
     return view.run(calculationArguments, marketData, portfolio);
   }
 
+  @Override
+  public Results runViewStreaming(
+      ViewConfig viewConfig,
+      CalculationArguments calculationArguments,
+      MarketDataEnvironment marketData,
+      List<?> portfolio,
+      ResultRowListener listener) {
+
+    View view = _viewFactory.createView(viewConfig, EngineUtils.getInputTypes(portfolio));
+    return view.runStreaming(calculationArguments, marketData, portfolio, listener);
+  }
+
   @Override
   public ScenarioResults runScenarios(
       ViewConfig viewConfig,
@@ -44,6 +44,23 @@ public class DefaultViewRunner implements ViewRunner {
     return _engine.runView(viewConfig, calculationArguments, marketData, portfolio);
   }
 
+  @Override
+  public Results runViewStreaming(
+      ViewConfig viewConfig,
+      CalculationArguments calculationArguments,
+      MarketDataEnvironment suppliedData,
+      List<?> portfolio,
+      ResultRowListener listener) {
+
+    MarketDataEnvironment marketData =
+        _engine.buildMarketData(
+            viewConfig,
+            suppliedData,
+            calculationArguments,
+            portfolio);
+    return _engine.runViewStreaming(viewConfig, calculationArguments, marketData, portfolio, listener);
+  }
+
   @Override
   public ScenarioResults runScenarios(
       ViewConfig viewConfig,
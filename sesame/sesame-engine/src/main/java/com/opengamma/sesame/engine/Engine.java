@@ -88,6 +88,28 @@ public interface Engine {
       MarketDataEnvironment marketData,
       List<?> portfolio);
 
+  /**
+   * Creates a view and uses it to perform a set of calculations, delivering the results for the portfolio
+   * to a listener in batches of rows as they are calculated.
+   * <p>
+   * Only a bounded number of rows are held in memory at once, regardless of the size of the portfolio.
+   * The valuation time in the market data is ignored, the valuation time from
+   * {@code calculationArguments} is used. This will change in v3.0.
+   *
+   * @param viewConfig configuration defining the view that will perform the calculations
+   * @param calculationArguments options used when performing calculations
+   * @param marketData market data to be used in the calculations
+   * @param portfolio the trades, securities (or anything else) that are the inputs to the calculations
+   * @param listener receives the rows of portfolio results
+   * @return the non-portfolio results, the portfolio results are only delivered to the listener
+   */
+  Results runViewStreaming(
+      ViewConfig viewConfig,
+      CalculationArguments calculationArguments,
+      MarketDataEnvironment marketData,
+      List<?> portfolio,
+      ResultRowListener listener);
+
   /**
    * Performs the calculations defined in a view multiple times, using data from a different scenario each time.
    * <p>
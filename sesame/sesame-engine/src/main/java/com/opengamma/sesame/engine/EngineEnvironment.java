@@ -12,7 +12,9 @@ import org.threeten.bp.LocalDate;
 import org.threeten.bp.ZonedDateTime;
 
 import com.opengamma.sesame.Environment;
+import com.opengamma.sesame.cache.CacheEntryDependencies;
 import com.opengamma.sesame.cache.CacheInvalidator;
+import com.opengamma.sesame.cache.DependencyTrackingEnvironment;
 import com.opengamma.sesame.cache.ValuationTimeCacheEntry;
 import com.opengamma.sesame.function.scenarios.FilteredScenarioDefinition;
 import com.opengamma.sesame.function.scenarios.ScenarioArgument;
@@ -30,7 +32,7 @@ import com.opengamma.util.ArgumentChecker;
  * TODO can this be retired? might not need a cache or any cache invalidation after MarketDataEnvironment
  * could use SimpleEnvironment for everything
  */
-final class EngineEnvironment implements Environment {
+final class EngineEnvironment implements DependencyTrackingEnvironment {
 
   // TODO an inner class used by all environment impls that is used for hashCode and equals
   // makes it explicit which parts of the environment are part of the cache key and which ones are ignored
@@ -66,19 +68,33 @@ final class EngineEnvironment implements Environment {
   @Override
   public LocalDate getValuationDate() {
     LocalDate valuationDate = _valuationTime.toLocalDate();
-    _cacheInvalidator.register(new ValuationTimeCacheEntry.ValidOnCalculationDay(valuationDate));
+    ValuationTimeCacheEntry entry = new ValuationTimeCacheEntry.ValidOnCalculationDay(valuationDate);
+    _cacheInvalidator.register(entry);
+    CacheEntryDependencies.recordValuationTime(_valuationTime, entry);
     return valuationDate;
   }
 
   @Override
   public ZonedDateTime getValuationTime() {
-    _cacheInvalidator.register(new ValuationTimeCacheEntry.ValidAtCalculationInstant(_valuationTime));
+    ValuationTimeCacheEntry entry = new ValuationTimeCacheEntry.ValidAtCalculationInstant(_valuationTime);
+    _cacheInvalidator.register(entry);
+    CacheEntryDependencies.recordValuationTime(_valuationTime, entry);
     return _valuationTime;
   }
 
-  // TODO wrap bundle to do cache invalidation?
   @Override
   public MarketDataBundle getMarketDataBundle() {
+    // records the data read by cacheable methods so their values can be reused if the data doesn't change
+    return CacheEntryDependencies.recordingBundle(_marketDataBundle);
+  }
+
+  @Override
+  public ZonedDateTime getUntrackedValuationTime() {
+    return _valuationTime;
+  }
+
+  @Override
+  public MarketDataBundle getUntrackedMarketDataBundle() {
     return _marketDataBundle;
   }
 
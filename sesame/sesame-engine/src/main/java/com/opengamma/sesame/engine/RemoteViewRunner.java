@@ -8,9 +8,11 @@ package com.opengamma.sesame.engine;
 import java.net.URI;
 import java.util.List;
 
+import com.google.common.collect.ImmutableList;
 import com.opengamma.sesame.config.ViewConfig;
 import com.opengamma.sesame.marketdata.MarketDataEnvironment;
 import com.opengamma.sesame.marketdata.scenarios.ScenarioDefinition;
+import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.rest.AbstractRemoteClient;
 
 /**
@@ -18,11 +20,26 @@ import com.opengamma.util.rest.AbstractRemoteClient;
  */
 public class RemoteViewRunner extends AbstractRemoteClient implements ViewRunner {
 
+  /** The default number of portfolio rows requested from the server at once when streaming results. */
+  public static final int DEFAULT_STREAMING_BATCH_SIZE = 10000;
+
+  /** The number of portfolio rows requested from the server at once when streaming results. */
+  private final int _streamingBatchSize;
+
   /**
    * @param baseUri the base URI of the remote server
    */
   public RemoteViewRunner(URI baseUri) {
+    this(baseUri, DEFAULT_STREAMING_BATCH_SIZE);
+  }
+
+  /**
+   * @param baseUri the base URI of the remote server
+   * @param streamingBatchSize the number of portfolio rows requested from the server at once when streaming results
+   */
+  public RemoteViewRunner(URI baseUri, int streamingBatchSize) {
     super(baseUri);
+    _streamingBatchSize = ArgumentChecker.notNegativeOrZero(streamingBatchSize, "streamingBatchSize");
   }
 
   @Override
@@ -37,6 +54,53 @@ public class RemoteViewRunner extends AbstractRemoteClient implements ViewRunner
     return accessRemote(uri).post(Results.class, args);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The portfolio is sent to the server in batches and the next batch is only requested when the listener
+   * has received the rows from the previous one. Neither the client nor the server hold more than one batch
+   * of results at a time. The non-portfolio outputs are calculated by the server for every batch and the
+   * results from the first batch are returned.
+   */
+  @Override
+  public Results runViewStreaming(
+      ViewConfig viewConfig,
+      CalculationArguments calculationArguments,
+      MarketDataEnvironment marketData,
+      List<?> portfolio,
+      ResultRowListener listener) {
+
+    ArgumentChecker.notNull(portfolio, "portfolio");
+    ArgumentChecker.notNull(listener, "listener");
+    URI uri = DataViewRunnerResource.uriRunView(getBaseUri());
+    Results nonPortfolioResults = null;
+    boolean pendingMarketData = false;
+    int firstRowIndex = 0;
+
+    // always make at least one request so the non-portfolio outputs are calculated for an empty portfolio
+    do {
+      int endRowIndex = Math.min(firstRowIndex + _streamingBatchSize, portfolio.size());
+      List<?> batch = ImmutableList.copyOf(portfolio.subList(firstRowIndex, endRowIndex));
+      RunViewArguments args = new RunViewArguments(viewConfig, calculationArguments, marketData, batch);
+      Results results = accessRemote(uri).post(Results.class, args);
+      pendingMarketData |= results.isPendingMarketData();
+
+      if (!batch.isEmpty()) {
+        listener.rowsReceived(firstRowIndex, results.getRows());
+      }
+      if (nonPortfolioResults == null) {
+        nonPortfolioResults = results;
+      }
+      firstRowIndex = endRowIndex;
+    } while (firstRowIndex < portfolio.size());
+
+    return new Results(nonPortfolioResults.getColumnNames(),
+                       ImmutableList.<ResultRow>of(),
+                       nonPortfolioResults.getNonPortfolioResults(),
+                       pendingMarketData,
+                       nonPortfolioResults.getViewTimer());
+  }
+
   @Override
   public ScenarioResults runScenarios(
       ViewConfig viewConfig,
@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.util.List;
+
+/**
+ * Receives the rows of results from a view as they are calculated.
+ * <p>
+ * This is used when running a view in streaming mode, where the results for the portfolio are
+ * delivered in batches of rows instead of being collected into a single {@link Results} object.
+ * Only the rows that have not yet been delivered are held in memory, so the memory needed is
+ * independent of the size of the portfolio.
+ * <p>
+ * The listener is always invoked by the thread that is running the view, never concurrently.
+ * The view doesn't start calculating further rows while the listener is blocked, so a slow
+ * listener will slow down the calculations instead of causing results to accumulate.
+ */
+public interface ResultRowListener {
+
+  /**
+   * Called when the calculations for a batch of consecutive rows are complete.
+   * <p>
+   * Batches can be delivered out of order but each row is delivered exactly once.
+   *
+   * @param firstRowIndex the index in the portfolio of the first row in the batch
+   * @param rows the rows of results, not null
+   */
+  void rowsReceived(int firstRowIndex, List<ResultRow> rows);
+}
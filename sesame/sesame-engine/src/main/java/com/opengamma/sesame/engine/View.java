@@ -11,9 +11,11 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.annotation.Nullable;
 
@@ -79,6 +81,8 @@ import com.opengamma.sesame.trace.TracingProxy;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.result.Failure;
 import com.opengamma.util.result.Result;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
 
 /**
  * View is the main class for running calculations over a portfolio and producing results.
@@ -91,12 +95,19 @@ import com.opengamma.util.result.Result;
  * the portfolio. For example an output could be defined to return the curve used in the calculations.
  * <p>
  * A view is executed by calling one of the {@code run} or {@code runAsync} methods. A view can be run
- * repeatedly and can execute multiple runs concurrently.
+ * repeatedly and can execute multiple runs concurrently. For very large portfolios {@code runStreaming}
+ * delivers the rows of results to a listener as they are calculated instead of holding them all in memory.
  */
 public class View {
 
   private static final Logger s_logger = LoggerFactory.getLogger(View.class);
 
+  /** The default number of rows in each batch when streaming results. */
+  public static final int DEFAULT_STREAMING_BATCH_SIZE = 1000;
+
+  /** The default maximum number of batches being calculated at once when streaming results. */
+  public static final int DEFAULT_STREAMING_PENDING_BATCHES = 4;
+
   private final Graph _graph;
   private final ViewConfig _viewConfig;
   private final ListeningExecutorService _executor;
@@ -367,6 +378,134 @@ public class View {
     });
   }
 
+  /**
+   * Runs a single calculation cycle, delivering the results for the portfolio to a listener as they are calculated.
+   * <p>
+   * This uses the default batch size and number of pending batches.
+   *
+   * @param calculationArguments settings for running the calculations
+   * @param marketData market data used by the calculations
+   * @param inputs the inputs to the calculation, e.g. trades, positions, securities
+   * @param listener receives the rows of portfolio results
+   * @return the non-portfolio results, the portfolio results are only delivered to the listener
+   * @see #runStreaming(CalculationArguments, MarketDataEnvironment, List, ResultRowListener, int, int)
+   */
+  public Results runStreaming(CalculationArguments calculationArguments,
+                              MarketDataEnvironment marketData,
+                              List<?> inputs,
+                              ResultRowListener listener) {
+    return runStreaming(calculationArguments, marketData, inputs, listener,
+                        DEFAULT_STREAMING_BATCH_SIZE, DEFAULT_STREAMING_PENDING_BATCHES);
+  }
+
+  /**
+   * Runs a single calculation cycle, delivering the results for the portfolio to a listener as they are calculated.
+   * <p>
+   * The portfolio is split into batches of rows. At most {@code maxPendingBatches} batches are submitted for
+   * calculation at any time and another batch is only submitted when a completed one has been passed to the
+   * listener. The memory needed for results is therefore bounded by the batch size and the number of pending
+   * batches, not the size of the portfolio.
+   * <p>
+   * This blocks until all the results have been delivered. The listener is invoked on the calling thread.
+   * Capturing the calculation inputs isn't supported when streaming.
+   *
+   * @param calculationArguments settings for running the calculations
+   * @param marketData market data used by the calculations
+   * @param inputs the inputs to the calculation, e.g. trades, positions, securities
+   * @param listener receives the rows of portfolio results
+   * @param batchSize the number of rows in each batch
+   * @param maxPendingBatches the maximum number of batches being calculated at once
+   * @return the non-portfolio results, the portfolio results are only delivered to the listener
+   * @throws IllegalStateException if ThreadLocalServiceContext not set
+   */
+  public Results runStreaming(CalculationArguments calculationArguments,
+                              MarketDataEnvironment marketData,
+                              List<?> inputs,
+                              ResultRowListener listener,
+                              int batchSize,
+                              int maxPendingBatches) {
+    ArgumentChecker.notNull(calculationArguments, "calculationArguments");
+    ArgumentChecker.notNull(marketData, "marketData");
+    ArgumentChecker.notNull(inputs, "inputs");
+    ArgumentChecker.notNull(listener, "listener");
+    ArgumentChecker.notNegativeOrZero(batchSize, "batchSize");
+    ArgumentChecker.notNegativeOrZero(maxPendingBatches, "maxPendingBatches");
+    ArgumentChecker.isFalse(calculationArguments.isCaptureInputs(), "Inputs can't be captured when streaming results");
+    Instant start = Instant.now();
+    long startInitialization = System.nanoTime();
+
+    Cache<Object, Object> cache = getCache();
+    VersionCorrectionProvider vcProvider = getVersionCorrectionProvider(calculationArguments);
+    ServiceContext originalContext = getThreadLocalServiceContext();
+    ServiceContext context = originalContext.with(VersionCorrectionProvider.class, vcProvider);
+    CycleInitializer cycleInitializer = new StandardCycleInitializer(context, _graph, cache);
+    ThreadLocalWrapper threadLocalWrapper =
+        new ThreadLocalWrapper(cycleInitializer.getServiceContext(),
+                               originalContext,
+                               cycleInitializer.getCache(),
+                               _cacheThreadLocal,
+                               AnalyticsEnvironment.getInstance(),
+                               false);
+    Graph graph = cycleInitializer.getGraph();
+    ScenarioDefinition scenario = _viewConfig.getScenarioDefinition();
+    long startExecution = System.nanoTime();
+
+    ListenableFuture<List<TaskResult>> nonPortfolioFuture =
+        Futures.allAsList(invokeTasks(nonPortfolioTasks(calculationArguments, marketData, graph, scenario, threadLocalWrapper)));
+    // completed batches are queued for delivery to the listener by this thread
+    final BlockingQueue<Pair<Integer, ListenableFuture<Results>>> completedBatches = new LinkedBlockingQueue<>();
+    boolean pendingMarketData = false;
+    int nextRowIndex = 0;
+    int pendingBatches = 0;
+
+    try {
+      while (nextRowIndex < inputs.size() || pendingBatches > 0) {
+        while (nextRowIndex < inputs.size() && pendingBatches < maxPendingBatches) {
+          int endRowIndex = Math.min(nextRowIndex + batchSize, inputs.size());
+          final List<?> batchInputs = inputs.subList(nextRowIndex, endRowIndex);
+          List<Task> tasks = portfolioTasks(calculationArguments, marketData, batchInputs, nextRowIndex,
+                                            graph, scenario, threadLocalWrapper);
+          ListenableFuture<Results> batchFuture =
+              Futures.transform(Futures.allAsList(invokeTasks(tasks)), new Function<List<TaskResult>, Results>() {
+                @Override
+                public Results apply(List<TaskResult> taskResults) {
+                  ResultBuilder resultBuilder = Results.builder(batchInputs, _columnNames);
+
+                  for (TaskResult result : taskResults) {
+                    result.addToResults(resultBuilder);
+                  }
+                  // the timings are reported for the whole cycle, not for each batch
+                  return resultBuilder.build(Instant.now(), 0, 0, 0);
+                }
+              });
+          final Pair<Integer, ListenableFuture<Results>> batch = Pairs.of(nextRowIndex, batchFuture);
+          batchFuture.addListener(new Runnable() {
+            @Override
+            public void run() {
+              completedBatches.add(batch);
+            }
+          }, MoreExecutors.sameThreadExecutor());
+          pendingBatches++;
+          nextRowIndex = endRowIndex;
+        }
+        Pair<Integer, ListenableFuture<Results>> batch = completedBatches.take();
+        pendingBatches--;
+        Results batchResults = batch.getSecond().get();
+        pendingMarketData |= batchResults.isPendingMarketData();
+        listener.rowsReceived(batch.getFirst(), batchResults.getRows());
+      }
+      Results results = buildResults(Collections.emptyList(), nonPortfolioFuture.get(), start,
+                                     startInitialization, startExecution, cycleInitializer);
+      if (pendingMarketData && !results.isPendingMarketData()) {
+        results = new Results(results.getColumnNames(), results.getRows(), results.getNonPortfolioResults(),
+                              true, results.getViewTimer());
+      }
+      return results;
+    } catch (InterruptedException | ExecutionException e) {
+      throw new OpenGammaRuntimeException("Failed to run view", e);
+    }
+  }
+
   /**
    * Collects requirements for market data that must be provided for running the calculations in this view for
    * a portfolio.
@@ -426,7 +565,7 @@ public class View {
     List<Task> tasks = new ArrayList<>();
     Graph graph = cycleInitializer.getGraph();
     ScenarioDefinition scenario = _viewConfig.getScenarioDefinition();
-    tasks.addAll(portfolioTasks(calculationArguments, marketData, portfolio, graph, scenario, threadLocalWrapper));
+    tasks.addAll(portfolioTasks(calculationArguments, marketData, portfolio, 0, graph, scenario, threadLocalWrapper));
     tasks.addAll(nonPortfolioTasks(calculationArguments, marketData, graph, scenario, threadLocalWrapper));
     List<ListenableFuture<TaskResult>> resultFutures = invokeTasks(tasks);
     return Futures.allAsList(resultFutures);
@@ -533,6 +672,7 @@ public class View {
   private List<Task> portfolioTasks(CalculationArguments calculationArguments,
                                     MarketDataEnvironment marketDataEnvironment,
                                     List<?> inputs,
+                                    int firstRowIndex,
                                     Graph graph,
                                     ScenarioDefinition scenarioDefinition,
                                     ThreadLocalWrapper threadLocalWrapper) {
@@ -548,7 +688,7 @@ public class View {
       Environment columnEnv = env.withScenarioDefinition(filteredDef);
       Map<Class<?>, InvokableFunction> functions = graph.getFunctionsForColumn(column.getName());
 
-      int rowIndex = 0;
+      int rowIndex = firstRowIndex;
       for (Object input : inputs) {
         // the function that is determined from the input
         InvokableFunction function;
@@ -6,7 +6,10 @@
  */
 package com.opengamma.sesame.engine;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
@@ -20,15 +23,22 @@ import com.google.common.base.Optional;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.core.change.ChangeListener;
+import com.opengamma.core.change.ChangeManager;
+import com.opengamma.core.change.ChangeProvider;
 import com.opengamma.core.position.PositionOrTrade;
 import com.opengamma.core.security.Security;
+import com.opengamma.id.ObjectId;
 import com.opengamma.sesame.cache.CacheInvalidator;
 import com.opengamma.sesame.cache.CacheProvider;
+import com.opengamma.sesame.cache.CachingProxyDecorator;
 import com.opengamma.sesame.config.FunctionModelConfig;
 import com.opengamma.sesame.config.ViewConfig;
 import com.opengamma.sesame.function.AvailableImplementations;
 import com.opengamma.sesame.function.AvailableOutputs;
 import com.opengamma.sesame.graph.FunctionBuilder;
+import com.opengamma.sesame.marketdata.MarketDataId;
 import com.opengamma.util.ArgumentChecker;
 
 /**
@@ -163,6 +173,54 @@ public class ViewFactory implements ViewFactoryMonitor {
     _cacheRef.set(_cacheBuilder.<Object, Object>build());
   }
 
+  /**
+   * Removes the cache entries whose values were calculated using any of the specified data.
+   * <p>
+   * Entries are normally reused in later cycles if the market data, valuation time and database objects
+   * they were calculated from haven't changed. The market data and valuation time are checked when an entry
+   * is used, but changes to database objects, e.g. configuration, can't be detected by the engine. This
+   * method should be called when they change. Removing the entries for market data that has changed isn't
+   * necessary but releases the memory they use.
+   * <p>
+   * Unlike {@link #clearCache()} this affects running views.
+   *
+   * @param marketDataIds IDs of the market data that has changed, not null
+   * @param objectIds IDs of the database objects that have changed, not null
+   */
+  public void invalidateCache(Collection<? extends MarketDataId<?>> marketDataIds, Collection<ObjectId> objectIds) {
+    s_logger.info("Removing cache entries for {} market data items and {} objects", marketDataIds.size(), objectIds.size());
+    CachingProxyDecorator.invalidate(_cacheRef.get(), marketDataIds, objectIds);
+  }
+
+  /**
+   * Listens for changes to the database objects provided by the components and removes the cache entries
+   * calculated from the objects that change.
+   * <p>
+   * Only objects read through sources that record them, e.g. the cache aware sources, are removed. Without
+   * this, changes to configuration, conventions or securities aren't seen until {@link #clearCache()} is called.
+   *
+   * @param components the components, the change managers of those that provide one are listened to, not null
+   */
+  public void invalidateCacheOnChanges(ComponentMap components) {
+    ArgumentChecker.notNull(components, "components");
+    ChangeListener listener = new ChangeListener() {
+      @Override
+      public void entityChanged(ChangeEvent event) {
+        invalidateCache(Collections.<MarketDataId<?>>emptySet(), Collections.singleton(event.getObjectId()));
+      }
+    };
+    // a change manager can be shared by several sources
+    Set<ChangeManager> changeManagers = Collections.newSetFromMap(new IdentityHashMap<ChangeManager, Boolean>());
+    for (Object component : components.getComponents().values()) {
+      if (component instanceof ChangeProvider) {
+        ChangeManager changeManager = ((ChangeProvider) component).changeManager();
+        if (changeManager != null && changeManagers.add(changeManager)) {
+          changeManager.addChangeListener(listener);
+        }
+      }
+    }
+  }
+
   @Override
   public void clearMetrics() {
     if (_metricRegistry.isPresent()) {
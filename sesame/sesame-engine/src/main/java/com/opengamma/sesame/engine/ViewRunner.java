@@ -41,6 +41,28 @@ public interface ViewRunner {
       MarketDataEnvironment suppliedData,
       List<?> portfolio);
 
+  /**
+   * Creates a view and uses it to perform a set of calculations, delivering the results for the portfolio
+   * to a listener in batches of rows as they are calculated.
+   * <p>
+   * This should be used instead of {@link #runView} for very large portfolios, as only a bounded number of
+   * rows of results are held in memory at once.
+   *
+   * @param viewConfig configuration defining the view that will perform the calculations
+   * @param calculationArguments options used when performing calculations
+   * @param suppliedData pre-built market data to be used in the calculations. If market data is required by the
+   * functions that isn't supplied, the engine will attempt to build it.
+   * @param portfolio the trades, securities (or anything else) that are the inputs to the calculations
+   * @param listener receives the rows of portfolio results
+   * @return the non-portfolio results, the portfolio results are only delivered to the listener
+   */
+  Results runViewStreaming(
+      ViewConfig viewConfig,
+      CalculationArguments calculationArguments,
+      MarketDataEnvironment suppliedData,
+      List<?> portfolio,
+      ResultRowListener listener);
+
   /**
    * Performs the calculations defined in a view multiple times, using data from a different scenario each time.
    * <p>
@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.server.streaming;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.joda.beans.Bean;
+import org.joda.beans.BeanDefinition;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.ImmutableConstructor;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.Property;
+import org.joda.beans.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.opengamma.sesame.engine.ResultRow;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Immutable bean indicating that a batch of rows of results has been received
+ * from a view that is streaming its results.
+ */
+@BeanDefinition
+public final class RowsReceivedMessage implements Function<StreamingClientResultListener, Object>, ImmutableBean {
+
+  /**
+   * The index in the portfolio of the first row in the batch.
+   */
+  @PropertyDefinition
+  private final int _firstRowIndex;
+
+  /**
+   * The rows that were received.
+   */
+  @PropertyDefinition(validate = "notNull")
+  private final List<ResultRow> _rows;
+
+  /**
+   * Constructs a message with the received rows.
+   *
+   * @param firstRowIndex the index in the portfolio of the first row in the batch
+   * @param rows the rows that have been received
+   */
+  @ImmutableConstructor
+  public RowsReceivedMessage(int firstRowIndex, List<ResultRow> rows) {
+    _firstRowIndex = ArgumentChecker.notNegative(firstRowIndex, "firstRowIndex");
+    _rows = ImmutableList.copyOf(ArgumentChecker.notNull(rows, "rows"));
+  }
+
+  @Override
+  public Object apply(StreamingClientResultListener input) {
+    input.rowsReceived(_firstRowIndex, _rows);
+    return null;
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  ///CLOVER:OFF
+  /**
+   * The meta-bean for {@code RowsReceivedMessage}.
+   * @return the meta-bean, not null
+   */
+  public static RowsReceivedMessage.Meta meta() {
+    return RowsReceivedMessage.Meta.INSTANCE;
+  }
+
+  static {
+    JodaBeanUtils.registerMetaBean(RowsReceivedMessage.Meta.INSTANCE);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static RowsReceivedMessage.Builder builder() {
+    return new RowsReceivedMessage.Builder();
+  }
+
+  @Override
+  public RowsReceivedMessage.Meta metaBean() {
+    return RowsReceivedMessage.Meta.INSTANCE;
+  }
+
+  @Override
+  public <R> Property<R> property(String propertyName) {
+    return metaBean().<R>metaProperty(propertyName).createProperty(this);
+  }
+
+  @Override
+  public Set<String> propertyNames() {
+    return metaBean().metaPropertyMap().keySet();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the index in the portfolio of the first row in the batch.
+   * @return the value of the property
+   */
+  public int getFirstRowIndex() {
+    return _firstRowIndex;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the rows that were received.
+   * @return the value of the property, not null
+   */
+  public List<ResultRow> getRows() {
+    return _rows;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      RowsReceivedMessage other = (RowsReceivedMessage) obj;
+      return (getFirstRowIndex() == other.getFirstRowIndex()) &&
+          JodaBeanUtils.equal(getRows(), other.getRows());
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(getFirstRowIndex());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getRows());
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(96);
+    buf.append("RowsReceivedMessage{");
+    buf.append("firstRowIndex").append('=').append(getFirstRowIndex()).append(',').append(' ');
+    buf.append("rows").append('=').append(JodaBeanUtils.toString(getRows()));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code RowsReceivedMessage}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code firstRowIndex} property.
+     */
+    private final MetaProperty<Integer> _firstRowIndex = DirectMetaProperty.ofImmutable(
+        this, "firstRowIndex", RowsReceivedMessage.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code rows} property.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    private final MetaProperty<List<ResultRow>> _rows = DirectMetaProperty.ofImmutable(
+        this, "rows", RowsReceivedMessage.class, (Class) List.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "firstRowIndex",
+        "rows");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1864769000:  // firstRowIndex
+          return _firstRowIndex;
+        case 3506649:  // rows
+          return _rows;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public RowsReceivedMessage.Builder builder() {
+      return new RowsReceivedMessage.Builder();
+    }
+
+    @Override
+    public Class<? extends RowsReceivedMessage> beanType() {
+      return RowsReceivedMessage.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return _metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code firstRowIndex} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> firstRowIndex() {
+      return _firstRowIndex;
+    }
+
+    /**
+     * The meta-property for the {@code rows} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<List<ResultRow>> rows() {
+      return _rows;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 1864769000:  // firstRowIndex
+          return ((RowsReceivedMessage) bean).getFirstRowIndex();
+        case 3506649:  // rows
+          return ((RowsReceivedMessage) bean).getRows();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code RowsReceivedMessage}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<RowsReceivedMessage> {
+
+    private int _firstRowIndex;
+    private List<ResultRow> _rows = new ArrayList<ResultRow>();
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(RowsReceivedMessage beanToCopy) {
+      this._firstRowIndex = beanToCopy.getFirstRowIndex();
+      this._rows = new ArrayList<ResultRow>(beanToCopy.getRows());
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1864769000:  // firstRowIndex
+          return _firstRowIndex;
+        case 3506649:  // rows
+          return _rows;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 1864769000:  // firstRowIndex
+          this._firstRowIndex = (Integer) newValue;
+          break;
+        case 3506649:  // rows
+          this._rows = (List<ResultRow>) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(String propertyName, String value) {
+      setString(meta().metaProperty(propertyName), value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(MetaProperty<?> property, String value) {
+      super.setString(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setAll(Map<String, ? extends Object> propertyValueMap) {
+      super.setAll(propertyValueMap);
+      return this;
+    }
+
+    @Override
+    public RowsReceivedMessage build() {
+      return new RowsReceivedMessage(
+          _firstRowIndex,
+          _rows);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the {@code firstRowIndex} property in the builder.
+     * @param firstRowIndex  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder firstRowIndex(int firstRowIndex) {
+      this._firstRowIndex = firstRowIndex;
+      return this;
+    }
+
+    /**
+     * Sets the {@code rows} property in the builder.
+     * @param rows  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder rows(List<ResultRow> rows) {
+      JodaBeanUtils.notNull(rows, "rows");
+      this._rows = rows;
+      return this;
+    }
+
+    /**
+     * Sets the {@code rows} property in the builder
+     * from an array of objects.
+     * @param rows  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder rows(ResultRow... rows) {
+      return rows(Arrays.asList(rows));
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(96);
+      buf.append("RowsReceivedMessage.Builder{");
+      buf.append("firstRowIndex").append('=').append(JodaBeanUtils.toString(_firstRowIndex)).append(',').append(' ');
+      buf.append("rows").append('=').append(JodaBeanUtils.toString(_rows));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  ///CLOVER:ON
+  //-------------------------- AUTOGENERATED END --------------------------
+}
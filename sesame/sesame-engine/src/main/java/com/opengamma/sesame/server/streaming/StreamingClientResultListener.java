@@ -5,14 +5,21 @@
  */
 package com.opengamma.sesame.server.streaming;
 
+import java.util.List;
+
+import com.opengamma.sesame.engine.ResultRow;
+import com.opengamma.sesame.engine.ResultRowListener;
 import com.opengamma.sesame.engine.Results;
 
 /**
  * Listener interface for use with a streaming client. Once the
  * listener is registered, the client will report progress via
  * this interface.
+ * <p>
+ * As this is also a {@link ResultRowListener} it can be passed directly
+ * to a view, engine or view runner to receive the rows of a streaming run.
  */
-public interface StreamingClientResultListener {
+public interface StreamingClientResultListener extends ResultRowListener {
 
   /**
    * Called when results have been received from the streaming
@@ -22,6 +29,18 @@ public interface StreamingClientResultListener {
    */
   void resultsReceived(Results results);
 
+  /**
+   * Called when a batch of rows of results has been received from
+   * a streaming client whose view is streaming its results. The
+   * complete results for the portfolio are never received in a
+   * single {@link Results} in this mode.
+   *
+   * @param firstRowIndex the index in the portfolio of the first row in the batch
+   * @param rows the rows received, not null
+   */
+  @Override
+  void rowsReceived(int firstRowIndex, List<ResultRow> rows);
+
   /**
    * Called when the streaming client has successfully produced all
    * the results it was originally asked to. No further results
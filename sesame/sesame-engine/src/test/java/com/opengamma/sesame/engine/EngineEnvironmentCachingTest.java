@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import static com.opengamma.sesame.config.ConfigBuilder.config;
+import static com.opengamma.sesame.config.ConfigBuilder.implementations;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.ZonedDateTime;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.sesame.EngineTestUtils;
+import com.opengamma.sesame.Environment;
+import com.opengamma.sesame.cache.CacheInvalidator;
+import com.opengamma.sesame.cache.CacheProvider;
+import com.opengamma.sesame.cache.Cacheable;
+import com.opengamma.sesame.cache.CachingProxyDecorator;
+import com.opengamma.sesame.cache.DefaultCacheInvalidator;
+import com.opengamma.sesame.cache.ExecutingMethodsThreadLocal;
+import com.opengamma.sesame.cache.NoOpCacheInvalidator;
+import com.opengamma.sesame.config.EngineUtils;
+import com.opengamma.sesame.config.FunctionModelConfig;
+import com.opengamma.sesame.function.FunctionMetadata;
+import com.opengamma.sesame.function.Output;
+import com.opengamma.sesame.graph.FunctionBuilder;
+import com.opengamma.sesame.graph.FunctionModel;
+import com.opengamma.sesame.marketdata.MapMarketDataBundle;
+import com.opengamma.sesame.marketdata.MarketDataBundle;
+import com.opengamma.sesame.marketdata.MarketDataEnvironmentBuilder;
+import com.opengamma.sesame.marketdata.MarketDataId;
+import com.opengamma.sesame.marketdata.RawId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests that cached values are reused with a different environment if the data they used hasn't changed.
+ */
+@Test(groups = TestGroup.UNIT)
+public class EngineEnvironmentCachingTest {
+
+  private static final ZonedDateTime VALUATION_TIME = ZonedDateTime.of(2014, 3, 10, 11, 0, 0, 0, ZoneOffset.UTC);
+  private static final RawId<Double> ID_A = RawId.of(ExternalIdBundle.of("Test", "A"));
+  private static final RawId<Double> ID_B = RawId.of(ExternalIdBundle.of("Test", "B"));
+  private static final RawId<Double> ID_C = RawId.of(ExternalIdBundle.of("Test", "C"));
+  private static final ObjectId OBJECT_ID = ObjectId.of("Test", "Config");
+
+  private final CacheProvider _cacheProvider = EngineTestUtils.createCacheProvider();
+
+  /** values are reused when data they didn't read changes */
+  public void reuseWhenMarketDataUnchanged() {
+    Fn fn = createFunction(ReadsMarketData.class);
+    Object value1 = fn.foo(environment(VALUATION_TIME, 1, 2));
+    Object value2 = fn.foo(environment(VALUATION_TIME, 1, 3));
+    Object value3 = fn.foo(environment(VALUATION_TIME.plusHours(1), 1, 4));
+    assertSame(value1, value2);
+    assertSame(value1, value3);
+
+    Object value4 = fn.foo(environment(VALUATION_TIME, 2, 2));
+    assertNotSame(value1, value4);
+    assertEquals(2d, ((Object[]) value4)[0]);
+  }
+
+  /** values are only reused at valuation times where the parts of the time they read are the same */
+  public void reuseWhenValuationDateUnchanged() {
+    Fn fn = createFunction(ReadsValuationDate.class);
+    Object value1 = fn.foo(environment(VALUATION_TIME, 1, 2));
+    Object value2 = fn.foo(environment(VALUATION_TIME.plusHours(1), 1, 3));
+    Object value3 = fn.foo(environment(VALUATION_TIME.plusDays(1), 1, 2));
+    assertSame(value1, value2);
+    assertNotSame(value1, value3);
+  }
+
+  /** data read for a different date is checked for the same date */
+  public void reuseWhenOtherDateUnchanged() {
+    Fn fn = createFunction(ReadsPreviousDay.class);
+    Object value1 = fn.foo(environment(VALUATION_TIME, 1, 2));
+    Object value2 = fn.foo(environment(VALUATION_TIME, 2, 2));
+    Object value3 = fn.foo(environment(VALUATION_TIME, 1, 3));
+    assertSame(value1, value2);
+    assertNotSame(value1, value3);
+    assertEquals(30d, ((Object[]) value3)[0]);
+  }
+
+  /** values calculated with an environment created by the function are only reused with an equal environment */
+  public void noReuseWhenEnvironmentChanged() {
+    Fn fn = createFunction(ShiftsValuationTime.class);
+    Object value1 = fn.foo(environment(VALUATION_TIME, 1, 2));
+    Object value2 = fn.foo(environment(VALUATION_TIME, 1, 2));
+    Object value3 = fn.foo(environment(VALUATION_TIME.plusHours(1), 1, 2));
+    assertSame(value1, value2);
+    assertNotSame(value1, value3);
+  }
+
+  /** a value that uses a cached value calculated in an earlier cycle can be reused in later cycles */
+  public void reuseNested() {
+    FunctionModelConfig config = config(implementations(Fn.class, CallsInner.class, InnerFn.class, ReadsMarketDataInner.class));
+    Fn fn = createFunction(config);
+    CallsInner.s_calls.set(0);
+    ReadsMarketDataInner.s_calls.set(0);
+
+    fn.foo(environment(VALUATION_TIME, 1, 2, 0));
+    assertEquals(1, CallsInner.s_calls.get());
+    assertEquals(1, ReadsMarketDataInner.s_calls.get());
+
+    // the outer function reads B, the inner function is reused
+    Object value2 = fn.foo(environment(VALUATION_TIME, 1, 3, 0));
+    assertEquals(2, CallsInner.s_calls.get());
+    assertEquals(1, ReadsMarketDataInner.s_calls.get());
+
+    // neither function reads C
+    Object value3 = fn.foo(environment(VALUATION_TIME, 1, 3, 1));
+    assertSame(value2, value3);
+    assertEquals(2, CallsInner.s_calls.get());
+    assertEquals(1, ReadsMarketDataInner.s_calls.get());
+  }
+
+  /** values are removed when data they depend on is invalidated */
+  public void invalidate() {
+    Fn fn = createFunction(ReadsMarketData.class);
+    Object value1 = fn.foo(environment(VALUATION_TIME, 1, 2));
+    CachingProxyDecorator.invalidate(_cacheProvider.get(), ImmutableList.of(ID_B), Collections.<ObjectId>emptyList());
+    assertSame(value1, fn.foo(environment(VALUATION_TIME, 1, 3)));
+
+    CachingProxyDecorator.invalidate(_cacheProvider.get(), ImmutableList.of(ID_A), Collections.<ObjectId>emptyList());
+    assertNotSame(value1, fn.foo(environment(VALUATION_TIME, 1, 3)));
+  }
+
+  private Fn createFunction(Class<? extends Fn> implementationType) {
+    return createFunction(config(implementations(Fn.class, implementationType)));
+  }
+
+  private Fn createFunction(FunctionModelConfig config) {
+    return createFunction(config, new ExecutingMethodsThreadLocal(), ComponentMap.EMPTY);
+  }
+
+  private Fn createFunction(FunctionModelConfig config,
+                            ExecutingMethodsThreadLocal executingMethods,
+                            ComponentMap components) {
+    CachingProxyDecorator cachingDecorator = new CachingProxyDecorator(_cacheProvider, executingMethods);
+    FunctionMetadata metadata = EngineUtils.createMetadata(Fn.class, "foo");
+    FunctionModel functionModel =
+        FunctionModel.forFunction(metadata, config, components.getComponentTypes(), cachingDecorator);
+    return (Fn) functionModel.build(new FunctionBuilder(), components).getReceiver();
+  }
+
+  /** values calculated from a database object are recalculated when the object is invalidated */
+  public void invalidateObjectId() {
+    ExecutingMethodsThreadLocal executingMethods = new ExecutingMethodsThreadLocal();
+    DefaultCacheInvalidator invalidator = new DefaultCacheInvalidator(executingMethods, _cacheProvider.get());
+    List<ExternalId> noMarketData = Collections.emptyList();
+    List<ObjectId> noObjects = Collections.emptyList();
+    // the invalidator only records object IDs for the latest version
+    invalidator.invalidate(VALUATION_TIME, VersionCorrection.LATEST, noMarketData, noObjects);
+    ComponentMap components = ComponentMap.of(ImmutableMap.<Class<?>, Object>of(CacheInvalidator.class, invalidator));
+    Fn fn = createFunction(config(implementations(Fn.class, ReadsObject.class)), executingMethods, components);
+    ReadsObject.s_calls.set(0);
+
+    fn.foo(environment(VALUATION_TIME, 1, 2));
+    fn.foo(environment(VALUATION_TIME, 1, 3));
+    assertEquals(1, ReadsObject.s_calls.get());
+
+    // the value is found under the keys of both environments and in the values for all environments
+    invalidator.invalidate(VALUATION_TIME, VersionCorrection.LATEST, noMarketData, ImmutableList.of(OBJECT_ID));
+    fn.foo(environment(VALUATION_TIME, 1, 3));
+    assertEquals(2, ReadsObject.s_calls.get());
+    fn.foo(environment(VALUATION_TIME, 1, 2));
+    assertEquals(2, ReadsObject.s_calls.get());
+
+    CachingProxyDecorator.invalidate(_cacheProvider.get(), Collections.<MarketDataId<?>>emptyList(), ImmutableList.of(OBJECT_ID));
+    fn.foo(environment(VALUATION_TIME, 1, 4));
+    assertEquals(3, ReadsObject.s_calls.get());
+  }
+
+  private static Environment environment(ZonedDateTime valuationTime, double valueA, double valueB) {
+    return environment(valuationTime, valueA, valueB, 0);
+  }
+
+  private static Environment environment(ZonedDateTime valuationTime, double valueA, double valueB, double valueC) {
+    MarketDataEnvironmentBuilder builder = new MarketDataEnvironmentBuilder()
+        .add(ID_A, valueA)
+        .add(ID_B, valueB)
+        .add(ID_C, valueC)
+        .add(ID_A, valueA * 10, VALUATION_TIME.toLocalDate().minusDays(1))
+        .add(ID_B, valueB * 10, VALUATION_TIME.toLocalDate().minusDays(1))
+        .valuationTime(valuationTime);
+    MarketDataBundle bundle = new MapMarketDataBundle(builder.build());
+    return new EngineEnvironment(valuationTime, bundle, new NoOpCacheInvalidator());
+  }
+
+  interface Fn {
+
+    @Cacheable
+    @Output("Foo")
+    Object foo(Environment env);
+  }
+
+  public static class ReadsMarketData implements Fn {
+
+    @Override
+    public Object foo(Environment env) {
+      return new Object[] {read(env.getMarketDataBundle(), ID_A), new Object()};
+    }
+  }
+
+  interface InnerFn {
+
+    @Cacheable
+    Object bar(Environment env);
+  }
+
+  public static class ReadsMarketDataInner implements InnerFn {
+
+    private static final AtomicInteger s_calls = new AtomicInteger();
+
+    @Override
+    public Object bar(Environment env) {
+      s_calls.incrementAndGet();
+      return new Object[] {read(env.getMarketDataBundle(), ID_A), new Object()};
+    }
+  }
+
+  public static class CallsInner implements Fn {
+
+    private static final AtomicInteger s_calls = new AtomicInteger();
+
+    private final InnerFn _inner;
+
+    public CallsInner(InnerFn inner) {
+      _inner = inner;
+    }
+
+    @Override
+    public Object foo(Environment env) {
+      s_calls.incrementAndGet();
+      return new Object[] {_inner.bar(env), read(env.getMarketDataBundle(), ID_B)};
+    }
+  }
+
+  public static class ReadsObject implements Fn {
+
+    private static final AtomicInteger s_calls = new AtomicInteger();
+
+    private final CacheInvalidator _invalidator;
+
+    public ReadsObject(CacheInvalidator invalidator) {
+      _invalidator = invalidator;
+    }
+
+    @Override
+    public Object foo(Environment env) {
+      s_calls.incrementAndGet();
+      // the cache aware sources register the objects they return in the same way
+      _invalidator.register(OBJECT_ID);
+      return new Object();
+    }
+  }
+
+  public static class ReadsValuationDate implements Fn {
+
+    @Override
+    public Object foo(Environment env) {
+      return new Object[] {env.getValuationDate(), new Object()};
+    }
+  }
+
+  public static class ReadsPreviousDay implements Fn {
+
+    @Override
+    public Object foo(Environment env) {
+      Environment previousDay = env.withMarketData(env.getMarketDataBundle().withDate(VALUATION_TIME.toLocalDate().minusDays(1)));
+      return new Object[] {read(previousDay.getMarketDataBundle(), ID_B), new Object()};
+    }
+  }
+
+  public static class ShiftsValuationTime implements Fn {
+
+    @Override
+    public Object foo(Environment env) {
+      Environment previousDay = env.withValuationTime(VALUATION_TIME.minusDays(1));
+      return new Object[] {previousDay.getMarketDataBundle().get(ID_A, Double.class).isSuccess(), new Object()};
+    }
+  }
+
+  private static Object read(MarketDataBundle bundle, MarketDataId<Double> id) {
+    return bundle.get(id, Double.class).getValue();
+  }
+}
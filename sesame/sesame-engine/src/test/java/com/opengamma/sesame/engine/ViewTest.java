@@ -9,6 +9,8 @@ import static com.opengamma.sesame.config.ConfigBuilder.column;
 import static com.opengamma.sesame.config.ConfigBuilder.configureView;
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.testng.annotations.BeforeMethod;
@@ -130,6 +132,31 @@ public class ViewTest {
     assertEquals(expected, requirements);
   }
 
+  public void runStreaming() {
+    ViewConfig config = configureView("test view", column(FOO));
+    View view = view(config);
+    CalculationArguments calculationArguments = CalculationArguments.builder().valuationTime(ZonedDateTime.now()).build();
+    List<String> inputs = ImmutableList.of("a", "b", "c", "d", "e");
+    final List<Integer> firstRowIndices = new ArrayList<>();
+    final List<Object> rowInputs = new ArrayList<>();
+    ResultRowListener listener = new ResultRowListener() {
+      @Override
+      public void rowsReceived(int firstRowIndex, List<ResultRow> rows) {
+        firstRowIndices.add(firstRowIndex);
+        for (ResultRow row : rows) {
+          rowInputs.add(row.getInput());
+          assertEquals("BAR", row.get(0).getResult().getValue());
+        }
+      }
+    };
+    Results results = view.runStreaming(calculationArguments, MarketDataEnvironmentBuilder.empty(), inputs, listener, 2, 1);
+
+    assertEquals(ImmutableList.of(0, 2, 4), firstRowIndices);
+    assertEquals(inputs, rowInputs);
+    assertEquals(0, results.getRows().size());
+    assertEquals(ImmutableList.of(FOO), results.getColumnNames());
+  }
+
   private static View view(ViewConfig config) {
     ImmutableSet<Class<?>> inputTypes = ImmutableSet.<Class<?>>of(String.class);
     AvailableOutputsImpl availableOutputs = new AvailableOutputsImpl(inputTypes);
@@ -13,7 +13,9 @@ import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import com.opengamma.sesame.cache.CacheInvalidator;
 import com.opengamma.sesame.cache.NoOpCacheInvalidator;
+import com.opengamma.sesame.component.ViewFactoryComponentFactory;
 import com.opengamma.sesame.config.FunctionModelConfig;
 import com.opengamma.sesame.engine.ComponentMap;
 import com.opengamma.sesame.engine.FunctionService;
@@ -54,16 +56,20 @@ public class ViewFactoryProvider implements Provider<ViewFactory> {
   
   @Override
   public ViewFactory get() {
-    
-    return new ViewFactory(_executorService, 
-                           _componentMap, 
-                           _availableOutputs, 
-                           new AvailableImplementationsImpl(), 
-                           FunctionModelConfig.EMPTY, 
-                           FunctionService.DEFAULT_SERVICES, 
-                           createCacheBuilder(), 
-                           new NoOpCacheInvalidator(), 
-                           Optional.fromNullable(_metricRegistry));
+    CacheInvalidator cacheInvalidator = new NoOpCacheInvalidator();
+    // the cache aware sources record the data used by each cached value so it can be discarded when the data changes
+    ComponentMap componentMap = ViewFactoryComponentFactory.decorateSources(_componentMap, cacheInvalidator);
+    ViewFactory viewFactory = new ViewFactory(_executorService,
+                                              componentMap,
+                                              _availableOutputs,
+                                              new AvailableImplementationsImpl(),
+                                              FunctionModelConfig.EMPTY,
+                                              FunctionService.DEFAULT_SERVICES,
+                                              createCacheBuilder(),
+                                              cacheInvalidator,
+                                              Optional.fromNullable(_metricRegistry));
+    viewFactory.invalidateCacheOnChanges(componentMap);
+    return viewFactory;
   }
 
   /**